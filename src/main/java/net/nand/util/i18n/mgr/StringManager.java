@@ -92,7 +92,22 @@ public class StringManager
     public final String get(final String key, final Object ... arguments)
         throws MissingResourceException
     {
-        return MessageFormat.format(bundle.getString(key), arguments);
+        return format(bundle.getString(key), arguments);
+    }
+
+    /**
+     * Format a localized pattern string with parameters. Used by {@link #get(String, Object...)}.
+     * This implementation calls {@link MessageFormat#format(String, Object...)};
+     * subclasses may override to reuse parsed {@link MessageFormat}s.
+     * @param pattern  Localized pattern string from the manager's bundle
+     * @param arguments  Objects to use with <tt>{0}</tt>, <tt>{1}</tt>, etc in {@code pattern}
+     * @return the formatted string
+     * @throws IllegalArgumentException if {@code pattern} has a parse error
+     */
+    protected String format(final String pattern, final Object ... arguments)
+        throws IllegalArgumentException
+    {
+        return MessageFormat.format(pattern, arguments);
     }
 
 }
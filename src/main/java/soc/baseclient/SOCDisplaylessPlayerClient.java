@@ -97,6 +97,18 @@ public class SOCDisplaylessPlayerClient implements Runnable
      */
     public static final String PROP_JSETTLERS_DEBUG_TRAFFIC = "jsettlers.debug.traffic";
 
+    /**
+     * Boolean property {@code jsettlers.client.binary}: If Y, ask the server to use the compact
+     * binary message encoding of {@link SOCBinaryCodec} when connecting over the network.
+     * Messages are still sent as text unless the server's features include
+     * {@link SOCServerFeatures#FEAT_BINARY_PROTO}. Not used for practice games or local robots.
+     * Used by this class, {@link soc.robot.SOCRobotClient SOCRobotClient}, and
+     * {@link soc.client.SOCPlayerClient SOCPlayerClient}.
+     * @see #isBinaryProtocolRequested()
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_CLIENT_BINARY = "jsettlers.client.binary";
+
     protected static String STATSPREFEX = "  [";
     protected String doc;
     protected String lastMessage;
@@ -173,6 +185,22 @@ public class SOCDisplaylessPlayerClient implements Runnable
      */
     protected boolean debugTraffic;
 
+    /**
+     * True if we should ask the server for binary message frames; set from {@link #PROP_JSETTLERS_CLIENT_BINARY}.
+     * Subclasses use this when sending {@link SOCVersion}; see {@link SOCBinaryCodec#withClientFlag(String)}.
+     * @see #sendBinary
+     * @since 2.0.00
+     */
+    protected boolean wantsBinary;
+
+    /**
+     * True if {@link #put(String)} should send binary message frames: We asked for them ({@link #wantsBinary})
+     * and the network server's {@link SOCVersion} says it has {@link SOCServerFeatures#FEAT_BINARY_PROTO}.
+     * Cleared when connecting or reconnecting, since each server must be asked again.
+     * @since 2.0.00
+     */
+    protected volatile boolean sendBinary;
+
     /**
      * Create a SOCDisplaylessPlayerClient, which would connect to localhost port 8889.
      * Does not actually connect; subclass must connect, such as {@link soc.robot.SOCRobotClient#init()}
@@ -201,6 +229,18 @@ public class SOCDisplaylessPlayerClient implements Runnable
 
         if (null != System.getProperty(PROP_JSETTLERS_DEBUG_TRAFFIC))
             debugTraffic = true;  // set flag if debug prop has any value at all
+        wantsBinary = isBinaryProtocolRequested();
+    }
+
+    /**
+     * Is system property {@link #PROP_JSETTLERS_CLIENT_BINARY} set to Y or true?
+     * @return true if the client should ask the server for binary message frames
+     * @since 2.0.00
+     */
+    public static boolean isBinaryProtocolRequested()
+    {
+        final String val = System.getProperty(PROP_JSETTLERS_CLIENT_BINARY);
+        return (val != null) && (val.equalsIgnoreCase("Y") || val.equalsIgnoreCase("true"));
     }
 
     /**
@@ -241,12 +281,10 @@ public class SOCDisplaylessPlayerClient implements Runnable
         {
             while (connected)
             {
-                String s;
                 if (sLocal == null)
-                    s = in.readUTF();
+                    treat(SOCMessage.toMsg(SOCBinaryCodec.readFrame(in)));  // text or binary frame
                 else
-                    s = sLocal.readNext();
-                treat(SOCMessage.toMsg(s));
+                    treat(sLocal.readNextMessage());  // no parsing needed if server sent an object
             }
         }
         catch (InterruptedIOException x)
@@ -312,7 +350,7 @@ public class SOCDisplaylessPlayerClient implements Runnable
         {
             if (sLocal == null)
             {
-                out.writeUTF(s);
+                SOCBinaryCodec.writeFrame(out, s, sendBinary);
                 out.flush();
             } else {
                 sLocal.put(s);
@@ -914,6 +952,8 @@ public class SOCDisplaylessPlayerClient implements Runnable
         } else {
             sVersion = vers;
             sFeatures = feats;
+            if (wantsBinary && feats.isActive(SOCServerFeatures.FEAT_BINARY_PROTO))
+                sendBinary = true;
         }
 
         final int ourVers = Version.versionNumber();
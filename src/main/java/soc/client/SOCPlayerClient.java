@@ -3768,6 +3768,10 @@ public class SOCPlayerClient
                 : new SOCServerFeatures(true);
 
             gameDisplay.showVersion(vers, mes.getVersionString(), mes.getBuild(), sFeatures);
+
+            if (sFeatures.isActive(SOCServerFeatures.FEAT_BINARY_PROTO)
+                && SOCDisplaylessPlayerClient.isBinaryProtocolRequested())
+                net.sendBinary = true;
         }
 
         // If we ever require a minimum server version, would check that here.
@@ -6701,6 +6705,15 @@ public class SOCPlayerClient
          */
         boolean connected = false;
 
+        /**
+         * True if {@link #putNet(String)} should send binary message frames from {@link SOCBinaryCodec}:
+         * {@link SOCDisplaylessPlayerClient#PROP_JSETTLERS_CLIENT_BINARY} is set and the server's
+         * {@link SOCVersion} says it has {@link SOCServerFeatures#FEAT_BINARY_PROTO}.
+         * Cleared in {@link #connect(String, int)}.
+         * @since 2.0.00
+         */
+        volatile boolean sendBinary;
+
         /** For debug, our last messages sent, over the net or practice server (pipes) */
         protected String lastMessage_N, lastMessage_P;
 
@@ -6922,8 +6935,12 @@ public class SOCPlayerClient
                 (reader = new Thread(new NetReadTask(client, this))).start();
                 // send VERSION right away (1.1.06 and later)
                 // Version msg includes locale in 2.0.00 and later clients; v1.x.xx servers will ignore that token.
+                // Locale field may also ask the server for binary frames.
+                sendBinary = false;
+                final String loc = client.cliLocale.toString();
                 putNet(SOCVersion.toCmd
-                    (Version.versionNumber(), Version.version(), Version.buildnum(), client.cliLocale.toString()));
+                    (Version.versionNumber(), Version.version(), Version.buildnum(),
+                     (SOCDisplaylessPlayerClient.isBinaryProtocolRequested()) ? SOCBinaryCodec.withClientFlag(loc) : loc));
             }
             catch (Exception e)
             {
@@ -7036,7 +7053,7 @@ public class SOCPlayerClient
 
             try
             {
-                out.writeUTF(s);
+                SOCBinaryCodec.writeFrame(out, s, sendBinary);
                 out.flush();
             }
             catch (IOException e)
@@ -7156,7 +7173,7 @@ public class SOCPlayerClient
                 {
                     while (net.isConnected())
                     {
-                        String s = net.in.readUTF();
+                        String s = SOCBinaryCodec.readFrame(net.in);  // text or binary frame
                         client.treater.treat(SOCMessage.toMsg(s), false);
                     }
                 }
@@ -7209,8 +7226,7 @@ public class SOCPlayerClient
                 {
                     while (locl.isConnected())
                     {
-                        String s = locl.readNext();
-                        SOCMessage msg = SOCMessage.toMsg(s);
+                        SOCMessage msg = locl.readNextMessage();  // no parsing needed if server sent an object
 
                         client.treater.treat(msg, true);
                     }
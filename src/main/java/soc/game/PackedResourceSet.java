@@ -0,0 +1,329 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soc.game;
+
+/**
+ * An immutable set of resources packed into a single {@code long}: The amounts of
+ * {@link SOCResourceConstants#CLAY} through {@link SOCResourceConstants#WOOD}
+ * and {@link SOCResourceConstants#UNKNOWN}, each from 0 to {@link #MAX_AMOUNT}.
+ *<P>
+ * The static methods work directly on packed {@code long}s, so loops which add, subtract and compare
+ * resources many times (like the robot's building speed estimates) don't need to allocate any objects.
+ * Their add, subtract, compare and contains operations work on all 6 amounts at once without branching.
+ * An instance of this class wraps a packed value as a {@link ResourceSet};
+ * {@link #pack(ResourceSet)} and {@link #toResourceSet(long)} convert to and from other resource sets.
+ *<P>
+ * Layout: Each resource type has a 10-bit field, {@link SOCResourceConstants#CLAY} in the lowest bits,
+ * holding its amount in the low 9 bits. The top bit of each field is a guard bit, always 0 in a valid packed set;
+ * {@link #contains(long, long)} and {@link #subtract(long, long)} use it to detect borrows.
+ * Unlike {@link SOCResourceSet}, amounts can't be negative.
+ *
+ * @see SOCResourceSet
+ * @since 2.0.00
+ */
+public final class PackedResourceSet implements ResourceSet
+{
+    /** Bits in each resource type's field, including its guard bit */
+    private static final int FIELD_BITS = 10;
+
+    /** Largest amount of any resource type which can be packed: 511 */
+    public static final int MAX_AMOUNT = (1 << (FIELD_BITS - 1)) - 1;
+
+    /** Mask for an amount within its field */
+    private static final long AMOUNT_MASK = MAX_AMOUNT;
+
+    /** 1 in the lowest bit of each of the 6 fields */
+    private static final long ONES;
+
+    /** The guard bit of each of the 6 fields */
+    private static final long GUARDS;
+
+    /** The guard bits of the 5 known resource types' fields, not {@link SOCResourceConstants#UNKNOWN} */
+    private static final long KNOWN_GUARDS;
+
+    static
+    {
+        long ones = 0;
+        for (int i = 0; i < 6; ++i)
+            ones |= 1L << (FIELD_BITS * i);
+        ONES = ones;
+        GUARDS = ones << (FIELD_BITS - 1);
+        KNOWN_GUARDS = GUARDS & ~(1L << (FIELD_BITS * 6 - 1));
+    }
+
+    /** Packed set with 0 of each resource type */
+    public static final long EMPTY = 0L;
+
+    /**
+     * Returned by {@link #pack(ResourceSet)} for a set with an amount that can't be packed.
+     * Not a valid packed set, so it's never equal to one.
+     */
+    public static final long INVALID = -1L;
+
+    /** This set's packed amounts */
+    private final long packed;
+
+    /**
+     * Wrap a packed set.
+     * @param packed  A valid packed set, from {@link #pack(ResourceSet)} or the other static methods
+     * @throws IllegalArgumentException if {@code packed} isn't valid
+     * @see #isValid(long)
+     */
+    public PackedResourceSet(final long packed)
+        throws IllegalArgumentException
+    {
+        if (! isValid(packed))
+            throw new IllegalArgumentException("packed: " + Long.toHexString(packed));
+
+        this.packed = packed;
+    }
+
+    /**
+     * Get this set's packed amounts, for the static methods.
+     * @return this set's packed value
+     */
+    public long getPacked()
+    {
+        return packed;
+    }
+
+    /**
+     * Is this a valid packed set? Sums from {@link #add(long, long)} aren't valid if any amount exceeds {@link #MAX_AMOUNT}.
+     * @param packed  Packed set to check
+     * @return true if each amount is within range: No guard bits or bits above the fields are set
+     */
+    public static boolean isValid(final long packed)
+    {
+        return ((packed & GUARDS) == 0) && ((packed >>> (FIELD_BITS * 6)) == 0);
+    }
+
+    /**
+     * Pack these amounts.
+     * @param cl  number of clay resources
+     * @param or  number of ore resources
+     * @param sh  number of sheep resources
+     * @param wh  number of wheat resources
+     * @param wo  number of wood resources
+     * @param uk  number of unknown resources
+     * @return the packed set, or {@link #INVALID} if any amount is less than 0 or more than {@link #MAX_AMOUNT}
+     */
+    public static long pack(final int cl, final int or, final int sh, final int wh, final int wo, final int uk)
+    {
+        if (((cl | or | sh | wh | wo | uk) & ~MAX_AMOUNT) != 0)
+            return INVALID;
+
+        return cl | ((long) or << FIELD_BITS) | ((long) sh << (FIELD_BITS * 2))
+            | ((long) wh << (FIELD_BITS * 3)) | ((long) wo << (FIELD_BITS * 4)) | ((long) uk << (FIELD_BITS * 5));
+    }
+
+    /**
+     * Pack a resource set's amounts, including {@link SOCResourceConstants#UNKNOWN}.
+     * @param rs  Resource set to pack, or {@code null} for an empty set
+     * @return the packed set, or {@link #INVALID} if any amount is less than 0 or more than {@link #MAX_AMOUNT}
+     * @see #toResourceSet(long)
+     */
+    public static long pack(final ResourceSet rs)
+    {
+        if (rs == null)
+            return EMPTY;
+        if (rs instanceof PackedResourceSet)
+            return ((PackedResourceSet) rs).packed;
+
+        return pack
+            (rs.getAmount(SOCResourceConstants.CLAY), rs.getAmount(SOCResourceConstants.ORE),
+             rs.getAmount(SOCResourceConstants.SHEEP), rs.getAmount(SOCResourceConstants.WHEAT),
+             rs.getAmount(SOCResourceConstants.WOOD), rs.getAmount(SOCResourceConstants.UNKNOWN));
+    }
+
+    /**
+     * Make a new mutable resource set with a packed set's amounts.
+     * @param packed  A valid packed set
+     * @return a new {@link SOCResourceSet} with the same amounts, including {@link SOCResourceConstants#UNKNOWN}
+     * @see #pack(ResourceSet)
+     */
+    public static SOCResourceSet toResourceSet(final long packed)
+    {
+        return new SOCResourceSet
+            (getAmount(packed, SOCResourceConstants.CLAY), getAmount(packed, SOCResourceConstants.ORE),
+             getAmount(packed, SOCResourceConstants.SHEEP), getAmount(packed, SOCResourceConstants.WHEAT),
+             getAmount(packed, SOCResourceConstants.WOOD), getAmount(packed, SOCResourceConstants.UNKNOWN));
+    }
+
+    /**
+     * Get the amount of one resource type in a packed set.
+     * @param packed  A valid packed set
+     * @param resourceType  Type from {@link SOCResourceConstants#CLAY} to {@link SOCResourceConstants#UNKNOWN}
+     * @return the amount of that type
+     */
+    public static int getAmount(final long packed, final int resourceType)
+    {
+        return (int) ((packed >>> (FIELD_BITS * (resourceType - SOCResourceConstants.CLAY))) & AMOUNT_MASK);
+    }
+
+    /**
+     * Add an amount of one resource type to a packed set.
+     * @param packed  A valid packed set
+     * @param amt  Amount to add; can be negative if the set has at least that many
+     * @param resourceType  Type from {@link SOCResourceConstants#CLAY} to {@link SOCResourceConstants#UNKNOWN}
+     * @return the new packed set, which isn't valid if the new amount is more than {@link #MAX_AMOUNT}
+     */
+    public static long add(final long packed, final int amt, final int resourceType)
+    {
+        return packed + ((long) amt << (FIELD_BITS * (resourceType - SOCResourceConstants.CLAY)));
+    }
+
+    /**
+     * Add two packed sets.
+     * @param a  A valid packed set
+     * @param b  A valid packed set
+     * @return the sum, which isn't valid if any amount is more than {@link #MAX_AMOUNT}.
+     *     Since the guard bits absorb any carry, other amounts are still correct.
+     * @see #isValid(long)
+     */
+    public static long add(final long a, final long b)
+    {
+        return a + b;
+    }
+
+    /**
+     * Subtract one packed set from another. If any type's amount would go below 0, it's 0 instead,
+     * like {@link SOCResourceSet#subtract(ResourceSet)}.
+     * @param a  A valid packed set
+     * @param b  A valid packed set to subtract from {@code a}
+     * @return the difference, a valid packed set
+     */
+    public static long subtract(final long a, final long b)
+    {
+        // Each field's guard bit stays set only if that field didn't borrow;
+        // expand those bits into masks for the fields to keep.
+        final long diff = (a | GUARDS) - b;
+        final long noBorrow = (diff & GUARDS) >>> (FIELD_BITS - 1);
+
+        return diff & (noBorrow * AMOUNT_MASK);
+    }
+
+    /**
+     * Does packed set {@code a} contain at least the amounts in {@code b}?
+     * Same as {@link SOCResourceSet#gte(ResourceSet, ResourceSet) SOCResourceSet.gte(a, b)}.
+     * @param a  A valid packed set
+     * @param b  A valid packed set
+     * @return true if each resource type's amount in {@code a} is &gt;= its amount in {@code b}
+     */
+    public static boolean contains(final long a, final long b)
+    {
+        return (((a | GUARDS) - b) & GUARDS) == GUARDS;
+    }
+
+    /**
+     * Get the total number of resources in a packed set, including unknown types.
+     * @param packed  A valid packed set
+     * @return the total number of resources
+     */
+    public static int getTotal(final long packed)
+    {
+        // Add pairs of adjacent fields into 20-bit fields, then add those 3.
+        final long pairs = (packed & 0x0003FF003FF003FFL) + ((packed >>> FIELD_BITS) & 0x0003FF003FF003FFL);
+        return (int) ((pairs + (pairs >>> (FIELD_BITS * 2)) + (pairs >>> (FIELD_BITS * 4))) & 0xFFFFF);
+    }
+
+    /**
+     * Get the number of known resource types with a nonzero amount in a packed set,
+     * like {@link SOCResourceSet#getResourceTypeCount()}.
+     * @param packed  A valid packed set
+     * @return the number of types from {@link SOCResourceConstants#CLAY} to {@link SOCResourceConstants#WOOD}
+     *     with nonzero amounts
+     */
+    public static int getResourceTypeCount(final long packed)
+    {
+        // a field's guard bit stays set after subtracting 1 only if its amount was at least 1
+        return Long.bitCount(((packed | GUARDS) - ONES) & KNOWN_GUARDS);
+    }
+
+    /** {@inheritDoc} */
+    public int getAmount(final int resourceType)
+    {
+        if ((resourceType < SOCResourceConstants.CLAY) || (resourceType > SOCResourceConstants.UNKNOWN))
+            return 0;
+
+        return getAmount(packed, resourceType);
+    }
+
+    /** {@inheritDoc} */
+    public boolean contains(final int resourceType)
+    {
+        return (getAmount(resourceType) > 0);
+    }
+
+    /** {@inheritDoc} */
+    public int getResourceTypeCount()
+    {
+        return getResourceTypeCount(packed);
+    }
+
+    /** {@inheritDoc} */
+    public int getTotal()
+    {
+        return getTotal(packed);
+    }
+
+    /** {@inheritDoc} */
+    public boolean contains(final ResourceSet other)
+    {
+        final long p = pack(other);
+        if (p != INVALID)
+            return contains(packed, p);
+        else
+            return SOCResourceSet.gte(this, other);
+    }
+
+    /**
+     * @return true if the argument is a PackedResourceSet with the same amounts of each resource, including UNKNOWN
+     * @param anObject  the object in question
+     */
+    public boolean equals(final Object anObject)
+    {
+        return (anObject instanceof PackedResourceSet) && (((PackedResourceSet) anObject).packed == packed);
+    }
+
+    /**
+     * @return a hashcode for this data
+     */
+    public int hashCode()
+    {
+        return (int) (packed ^ (packed >>> 32));
+    }
+
+    /**
+     * Human-readable form of the set, with the same format as {@link SOCResourceSet#toString()}:
+     * "clay=5|ore=1|sheep=0|wheat=0|wood=3|unknown=0"
+     * @return a human readable longer form of the set
+     */
+    public String toString()
+    {
+        return "clay=" + getAmount(packed, SOCResourceConstants.CLAY)
+            + "|ore=" + getAmount(packed, SOCResourceConstants.ORE)
+            + "|sheep=" + getAmount(packed, SOCResourceConstants.SHEEP)
+            + "|wheat=" + getAmount(packed, SOCResourceConstants.WHEAT)
+            + "|wood=" + getAmount(packed, SOCResourceConstants.WOOD)
+            + "|unknown=" + getAmount(packed, SOCResourceConstants.UNKNOWN);
+    }
+
+}
@@ -360,6 +360,14 @@ public abstract class SOCBoard implements Serializable, Cloneable
      */
     protected int minNode, minEdge, maxEdge;
 
+    /**
+     * This board geometry's shared adjacency tables, or null if not built.
+     * Set by {@link #initTopology()} at the end of each subclass constructor.
+     * While null, adjacency methods use their coordinate arithmetic.
+     * @since 2.0.00
+     */
+    protected transient SOCBoardTopology topology;
+
     /**
      * The encoding format of board coordinates,
      * or {@link #BOARD_ENCODING_ORIGINAL} (default, original).
@@ -2078,6 +2086,34 @@ public abstract class SOCBoard implements Serializable, Cloneable
         return boardEncodingFormat;
     }
 
+    /**
+     * For subclass constructor usage, get the shared {@link SOCBoardTopology} adjacency tables
+     * for this board's geometry, building them if needed.
+     * Call at the end of the constructor, once the encoding format, board size,
+     * and node/edge ranges ({@link #minNode}, {@link #maxEdge}, etc) are set.
+     *<P>
+     * A subclass which overrides an adjacency method such as {@link #getAdjacentNodeToNode(int, int)}
+     * in a way which doesn't depend only on that geometry should override this method to do nothing.
+     * @since 2.0.00
+     */
+    protected void initTopology()
+    {
+        topology = null;  // build from coordinate arithmetic, not a previous table
+        topology = SOCBoardTopology.getTopology(this);
+    }
+
+    /**
+     * Get this board geometry's shared adjacency tables, for callers which want
+     * to read adjacent coordinates without allocating arrays or Vectors.
+     * @return  This board's topology tables, or {@code null} if none;
+     *     see {@link SOCBoardTopology#ENABLED}
+     * @since 2.0.00
+     */
+    public final SOCBoardTopology getTopology()
+    {
+        return topology;
+    }
+
     /**
      * Adjacent node coordinates to an edge, within valid range to be on the board.
      *<P>
@@ -2113,6 +2149,17 @@ public abstract class SOCBoard implements Serializable, Cloneable
     {
         int[] nodes = new int[2];
 
+        if (topology != null)
+        {
+            final int i = topology.getCoordIndex(coord);
+            if (i != -1)
+            {
+                nodes[0] = topology.edgeToNodes[2 * i];
+                nodes[1] = topology.edgeToNodes[2 * i + 1];
+                return nodes;
+            }
+        }
+
         /**
          * if the coords are (even, even), then
          * the road is '|'.
@@ -2159,6 +2206,13 @@ public abstract class SOCBoard implements Serializable, Cloneable
      */
     public Vector<Integer> getAdjacentEdgesToEdge(int coord)
     {
+        if (topology != null)
+        {
+            final int i = topology.getCoordIndex(coord);
+            if (i != -1)
+                return topology.toVector(topology.edgeToEdges, i, 4, false);
+        }
+
         Vector<Integer> edges = new Vector<Integer>(4);
         int tmp;
 
@@ -2277,6 +2331,13 @@ public abstract class SOCBoard implements Serializable, Cloneable
      */
     public Vector<Integer> getAdjacentHexesToNode(int coord)
     {
+        if (topology != null)
+        {
+            final int i = topology.getCoordIndex(coord);
+            if (i != -1)
+                return topology.toVector(topology.nodeToHexes, i, 3, false);
+        }
+
         Vector<Integer> hexes = new Vector<Integer>(3);
         int tmp;
 
@@ -2346,6 +2407,13 @@ public abstract class SOCBoard implements Serializable, Cloneable
      */
     public Vector<Integer> getAdjacentEdgesToNode(final int coord)
     {
+        if (topology != null)
+        {
+            final int i = topology.getCoordIndex(coord);
+            if (i != -1)
+                return topology.toVector(topology.nodeToEdges, i, 3, true);
+        }
+
         Vector<Integer> edges = new Vector<Integer>(3);
         int[] edgea = getAdjacentEdgesToNode_arr(coord);
         for (int i = edgea.length - 1; i>=0; --i)
@@ -2368,6 +2436,13 @@ public abstract class SOCBoard implements Serializable, Cloneable
      */
     public final int[] getAdjacentEdgesToNode_arr(final int coord)
     {
+        if (topology != null)
+        {
+            final int i = topology.getCoordIndex(coord);
+            if (i != -1)
+                return SOCBoardTopology.copy3(topology.nodeToEdges, i);
+        }
+
         int[] edges = new int[3];
         for (int i = 0; i < 3; ++i)
             edges[i] = getAdjacentEdgeToNode(coord, i);
@@ -2396,6 +2471,13 @@ public abstract class SOCBoard implements Serializable, Cloneable
     public int getAdjacentEdgeToNode(final int nodeCoord, final int nodeDir)
         throws IllegalArgumentException
     {
+        if ((topology != null) && (nodeDir >= 0) && (nodeDir <= 2))
+        {
+            final int i = topology.getCoordIndex(nodeCoord);
+            if (i != -1)
+                return topology.nodeToEdges[3 * i + nodeDir];
+        }
+
         // See RST dissertation figures A.2 (nodes), A.3 (edges),
         // and A.8 and A.10 (computing adjacent edges to a node).
 
@@ -2582,6 +2664,13 @@ public abstract class SOCBoard implements Serializable, Cloneable
      */
     public Vector<Integer> getAdjacentNodesToNode(final int coord)
     {
+        if (topology != null)
+        {
+            final int i = topology.getCoordIndex(coord);
+            if (i != -1)
+                return topology.toVector(topology.nodeToNodes, i, 3, true);
+        }
+
         Vector<Integer> nodes = new Vector<Integer>(3);
         int[] nodea = getAdjacentNodesToNode_arr(coord);
         for (int i = nodea.length - 1; i>=0; --i)
@@ -2606,6 +2695,13 @@ public abstract class SOCBoard implements Serializable, Cloneable
      */
     public final int[] getAdjacentNodesToNode_arr(final int coord)
     {
+        if (topology != null)
+        {
+            final int i = topology.getCoordIndex(coord);
+            if (i != -1)
+                return SOCBoardTopology.copy3(topology.nodeToNodes, i);
+        }
+
         int nodes[] = new int[3];
         for (int i = 0; i < 3; ++i)
             nodes[i] = getAdjacentNodeToNode(coord, i);
@@ -2624,6 +2720,18 @@ public abstract class SOCBoard implements Serializable, Cloneable
      */
     public final boolean isNodeAdjacentToNode(final int nodeA, final int nodeB)
     {
+        if (topology != null)
+        {
+            final int i = topology.getCoordIndex(nodeA);
+            if (i != -1)
+            {
+                final int[] nodeToNodes = topology.nodeToNodes;
+                final int start = 3 * i;
+                return (nodeToNodes[start] == nodeB) || (nodeToNodes[start + 1] == nodeB)
+                    || (nodeToNodes[start + 2] == nodeB);
+            }
+        }
+
         for (int i = 0; i < 3; ++i)
         {
             if (getAdjacentNodeToNode(nodeA, i) == nodeB)
@@ -2654,6 +2762,13 @@ public abstract class SOCBoard implements Serializable, Cloneable
     public int getAdjacentNodeToNode(final int nodeCoord, final int nodeDir)
         throws IllegalArgumentException
     {
+        if ((topology != null) && (nodeDir >= 0) && (nodeDir <= 2))
+        {
+            final int i = topology.getCoordIndex(nodeCoord);
+            if (i != -1)
+                return topology.nodeToNodes[3 * i + nodeDir];
+        }
+
         // See RST dissertation figures A.2 (nodes)
         // and A.7 and A.9 (computing adjacent nodes to a node).
 
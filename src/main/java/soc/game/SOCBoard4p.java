@@ -191,6 +191,8 @@ public class SOCBoard4p extends SOCBoard
         minEdge = MINEDGE_V1;
         maxEdge = MAXEDGE_V1;
         minNode = MINNODE_V1;
+
+        initTopology();
     }
 
     @Override
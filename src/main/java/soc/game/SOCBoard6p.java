@@ -191,6 +191,8 @@ public class SOCBoard6p extends SOCBoard
         minEdge = MINEDGE_V2;
         maxEdge = MAXEDGE_V2;
         minNode = MINNODE_V2;
+
+        initTopology();
     }
 
     @Override
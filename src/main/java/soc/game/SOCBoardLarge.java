@@ -708,6 +708,8 @@ public class SOCBoardLarge extends SOCBoard
         portsCount = 0;
         pirateHex = 0;
         prevPirateHex = 0;
+
+        initTopology();
     }
 
     @Override
@@ -2792,6 +2794,13 @@ public class SOCBoardLarge extends SOCBoard
     @Override
     public Vector<Integer> getAdjacentEdgesToEdge(final int coord)
     {
+        if (topology != null)
+        {
+            final int i = topology.getCoordIndex(coord);
+            if (i != -1)
+                return topology.toVector(topology.edgeToEdges, i, 4, false);
+        }
+
         final int r = (coord >> 8),
                   c = (coord & 0xFF);
 
@@ -2931,6 +2940,17 @@ public class SOCBoardLarge extends SOCBoard
     {
         int[] nodes = new int[2];
 
+        if (topology != null)
+        {
+            final int i = topology.getCoordIndex(coord);
+            if (i != -1)
+            {
+                nodes[0] = topology.edgeToNodes[2 * i];
+                nodes[1] = topology.edgeToNodes[2 * i + 1];
+                return nodes;
+            }
+        }
+
         final int r = coord >> 8;
         if ((r%2) == 1)
         {
@@ -3053,6 +3073,13 @@ public class SOCBoardLarge extends SOCBoard
         //  "A" if (s,c) is odd,odd or even,even
         // Bounds check for hexes: r > 0, c > 0, r < height, c < width
 
+        if (topology != null)
+        {
+            final int i = topology.getCoordIndex(nodeCoord);
+            if (i != -1)
+                return topology.toVector(topology.nodeToHexes, i, 3, false);
+        }
+
         final int r = (nodeCoord >> 8), c = (nodeCoord & 0xFF);
         Vector<Integer> hexes = new Vector<Integer>(3);
 
@@ -3120,6 +3147,13 @@ public class SOCBoardLarge extends SOCBoard
         //  "Y" if (s,c) is even,odd or odd,even
         //  "A" if (s,c) is odd,odd or even,even
 
+        if ((topology != null) && (nodeDir >= 0) && (nodeDir <= 2))
+        {
+            final int i = topology.getCoordIndex(nodeCoord);
+            if (i != -1)
+                return topology.nodeToEdges[3 * i + nodeDir];
+        }
+
         int r = (nodeCoord >> 8), c = (nodeCoord & 0xFF);
 
         switch (nodeDir)
@@ -3289,6 +3323,13 @@ public class SOCBoardLarge extends SOCBoard
     public int getAdjacentNodeToNode(final int nodeCoord, final int nodeDir)
         throws IllegalArgumentException
     {
+        if ((topology != null) && (nodeDir >= 0) && (nodeDir <= 2))
+        {
+            final int i = topology.getCoordIndex(nodeCoord);
+            if (i != -1)
+                return topology.nodeToNodes[3 * i + nodeDir];
+        }
+
         int r = (nodeCoord >> 8),
             c = (nodeCoord & 0xFF);
 
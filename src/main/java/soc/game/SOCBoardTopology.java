@@ -0,0 +1,310 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.game;
+
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed adjacency tables for one board geometry: An encoding format, board size,
+ * and node/edge coordinate ranges. Built once from a board's coordinate arithmetic
+ * and then shared, read-only, by every board with that geometry.
+ * {@link SOCBoard}'s adjacency methods such as {@link SOCBoard#getAdjacentNodesToNode_arr(int)},
+ * {@link SOCBoard#getAdjacentEdgesToNode_arr(int)}, {@link SOCBoard#getAdjacentHexesToNode(int)} and
+ * {@link SOCBoard#getAdjacentEdgesToEdge(int)} read from these tables instead of recalculating.
+ *<P>
+ * In all encodings, nodes, edges and hexes share one grid of coordinates (row, column).
+ * This class gives each coordinate in the board's grid a dense index from 0 to
+ * {@link #getIndexCount()} - 1: See {@link #getCoordIndex(int)} and {@link #getIndexCoord(int)}.
+ * Adjacent coordinates are kept in flat {@code int[]}s, at a fixed number of slots per index;
+ * unused slots are -9, like the "none" value of the board methods.
+ * Coordinates outside the grid, such as -1 or off-board rows, aren't in the tables:
+ * Board methods use their coordinate arithmetic for those.
+ *<P>
+ * Tables are built only by the board subclass constructors, which call
+ * {@link SOCBoard#initTopology()}. A subclass which overrides an adjacency method should
+ * also override {@link SOCBoard#initTopology()} so that the tables aren't used.
+ *
+ * @since 2.0.00
+ */
+public final class SOCBoardTopology
+{
+    /**
+     * If false, new boards don't get a topology table and use coordinate arithmetic
+     * for every adjacency call, as in versions before 2.0.00. Used for testing and benchmarks.
+     */
+    public static boolean ENABLED = true;
+
+    /**
+     * Shared tables, one per geometry.
+     * Key = "encoding:height:width:minNode:minEdge:maxEdge" from {@link #geometryKey(SOCBoard)}.
+     */
+    private static final ConcurrentHashMap<String, SOCBoardTopology> tables
+        = new ConcurrentHashMap<String, SOCBoardTopology>();
+
+    /** Board encoding format of this geometry, such as {@link SOCBoard#BOARD_ENCODING_LARGE} */
+    public final int encodingFormat;
+
+    /** Bits to shift a coordinate right to get its row: 4 for v1 and v2 encodings, 8 for v3 */
+    private final int rowShift;
+
+    /** Number of rows and columns in the grid of indexed coordinates */
+    private final int nRows, nCols;
+
+    /** Adjacent nodes to each node index, 3 slots each, in the order of {@link SOCBoard#getAdjacentNodeToNode(int, int)} directions */
+    final int[] nodeToNodes;
+
+    /** Adjacent edges to each node index, 3 slots each, in the order of {@link SOCBoard#getAdjacentEdgeToNode(int, int)} directions */
+    final int[] nodeToEdges;
+
+    /** Adjacent hexes to each node index, 3 slots each, in the order of {@link SOCBoard#getAdjacentHexesToNode(int)} */
+    final int[] nodeToHexes;
+
+    /** Both end nodes of each edge index, 2 slots each, as from {@link SOCBoard#getAdjacentNodesToEdge_arr(int)} */
+    final int[] edgeToNodes;
+
+    /** Adjacent edges to each edge index, 4 slots each, in the order of {@link SOCBoard#getAdjacentEdgesToEdge(int)} */
+    final int[] edgeToEdges;
+
+    /**
+     * Each index's coordinate as an Integer, for the Vectors returned by board methods:
+     * Coordinates are usually too large for {@link Integer#valueOf(int)}'s small cache.
+     */
+    private final Integer[] coordBoxes;
+
+    /**
+     * Get the shared topology table for this board's geometry, building it if needed.
+     * Called from {@link SOCBoard#initTopology()} while the board doesn't yet have a table,
+     * so that the board's methods use their coordinate arithmetic to fill the new table.
+     * @param board  Board whose geometry fields (encoding, size, node and edge ranges) are all set
+     * @return  The shared table for {@code board}'s geometry, or {@code null} if not {@link #ENABLED}
+     */
+    static SOCBoardTopology getTopology(final SOCBoard board)
+    {
+        if (! ENABLED)
+            return null;
+
+        final String key = geometryKey(board);
+        SOCBoardTopology topo = tables.get(key);
+        if (topo == null)
+        {
+            topo = new SOCBoardTopology(board);
+            final SOCBoardTopology prev = tables.putIfAbsent(key, topo);
+            if (prev != null)
+                topo = prev;  // another thread built it first
+        }
+
+        return topo;
+    }
+
+    /**
+     * Get the key of a board's geometry for {@link #tables}.
+     * Boards with the same key have the same adjacency results for all coordinates.
+     */
+    private static String geometryKey(final SOCBoard board)
+    {
+        return board.getBoardEncodingFormat() + ":" + board.getBoardHeight() + ":" + board.getBoardWidth()
+            + ":" + board.minNode + ":" + board.minEdge + ":" + board.maxEdge;
+    }
+
+    /**
+     * Build the tables by calling {@code board}'s adjacency methods for every coordinate in its grid.
+     * @param board  Board which doesn't have a topology table yet
+     */
+    private SOCBoardTopology(final SOCBoard board)
+    {
+        encodingFormat = board.getBoardEncodingFormat();
+        if (encodingFormat == SOCBoard.BOARD_ENCODING_LARGE)
+        {
+            rowShift = 8;
+            nRows = board.getBoardHeight() + 1;
+            nCols = board.getBoardWidth() + 1;
+        } else {
+            rowShift = 4;
+            nRows = 0x10;
+            nCols = 0x10;
+        }
+
+        final int n = nRows * nCols;
+        nodeToNodes = new int[3 * n];
+        nodeToEdges = new int[3 * n];
+        nodeToHexes = new int[3 * n];
+        edgeToNodes = new int[2 * n];
+        edgeToEdges = new int[4 * n];
+        coordBoxes = new Integer[n];
+
+        for (int i = 0; i < n; ++i)
+        {
+            final int coord = getIndexCoord(i);
+            coordBoxes[i] = Integer.valueOf(coord);
+
+            for (int dir = 0; dir < 3; ++dir)
+            {
+                nodeToNodes[3 * i + dir] = board.getAdjacentNodeToNode(coord, dir);
+                nodeToEdges[3 * i + dir] = board.getAdjacentEdgeToNode(coord, dir);
+            }
+
+            fillSlots(board.getAdjacentHexesToNode(coord), nodeToHexes, 3 * i, 3);
+
+            final int[] nodes = board.getAdjacentNodesToEdge_arr(coord);
+            edgeToNodes[2 * i] = nodes[0];
+            edgeToNodes[2 * i + 1] = nodes[1];
+
+            fillSlots(board.getAdjacentEdgesToEdge(coord), edgeToEdges, 4 * i, 4);
+        }
+    }
+
+    /** Copy {@code coords} into {@code slots[start]} onward, padding with -9 to {@code count} slots. */
+    private static void fillSlots(final Vector<Integer> coords, final int[] slots, final int start, final int count)
+    {
+        final int L = coords.size();
+        for (int j = 0; j < count; ++j)
+            slots[start + j] = (j < L) ? coords.get(j).intValue() : -9;
+    }
+
+    /**
+     * Get the number of coordinates indexed by this table.
+     * @return  Number of coordinates in the board's grid; valid indexes are 0 to this count - 1
+     */
+    public int getIndexCount()
+    {
+        return nRows * nCols;
+    }
+
+    /**
+     * Get a coordinate's dense index in these tables.
+     * @param coord  Node, edge or hex coordinate; not validated
+     * @return  Index from 0 to {@link #getIndexCount()} - 1, or -1 if {@code coord} is outside the board's grid
+     * @see #getIndexCoord(int)
+     */
+    public int getCoordIndex(final int coord)
+    {
+        if (coord < 0)
+            return -1;
+
+        final int r = coord >> rowShift, c = coord & ((1 << rowShift) - 1);
+        if ((r >= nRows) || (c >= nCols))
+            return -1;
+
+        return r * nCols + c;
+    }
+
+    /**
+     * Get the coordinate at an index in these tables.
+     * @param index  Index from 0 to {@link #getIndexCount()} - 1; not validated
+     * @return  Node, edge or hex coordinate
+     * @see #getCoordIndex(int)
+     */
+    public int getIndexCoord(final int index)
+    {
+        return ((index / nCols) << rowShift) | (index % nCols);
+    }
+
+    /**
+     * Get a node's adjacent node in a given direction, without allocating.
+     * @param nodeIndex  Node's index from {@link #getCoordIndex(int)}
+     * @param nodeDir  Direction 0 to 2, as in {@link SOCBoard#getAdjacentNodeToNode(int, int)}
+     * @return  Adjacent node coordinate, or -9 if none
+     */
+    public int getAdjacentNodeToNode(final int nodeIndex, final int nodeDir)
+    {
+        return nodeToNodes[3 * nodeIndex + nodeDir];
+    }
+
+    /**
+     * Get a node's adjacent edge in a given direction, without allocating.
+     * @param nodeIndex  Node's index from {@link #getCoordIndex(int)}
+     * @param nodeDir  Direction 0 to 2, as in {@link SOCBoard#getAdjacentEdgeToNode(int, int)}
+     * @return  Adjacent edge coordinate, or -9 if none
+     */
+    public int getAdjacentEdgeToNode(final int nodeIndex, final int nodeDir)
+    {
+        return nodeToEdges[3 * nodeIndex + nodeDir];
+    }
+
+    /**
+     * Get one of a node's adjacent hexes, without allocating.
+     * @param nodeIndex  Node's index from {@link #getCoordIndex(int)}
+     * @param i  Slot 0 to 2, in the order of {@link SOCBoard#getAdjacentHexesToNode(int)}
+     * @return  Adjacent hex coordinate, or -9 if the node has fewer adjacent hexes
+     */
+    public int getAdjacentHexToNode(final int nodeIndex, final int i)
+    {
+        return nodeToHexes[3 * nodeIndex + i];
+    }
+
+    /**
+     * Get one end node of an edge, without allocating.
+     * @param edgeIndex  Edge's index from {@link #getCoordIndex(int)}
+     * @param i  0 or 1, as in {@link SOCBoard#getAdjacentNodesToEdge_arr(int)}
+     * @return  Node coordinate; not bounds-checked, like {@code getAdjacentNodesToEdge_arr}
+     */
+    public int getAdjacentNodeToEdge(final int edgeIndex, final int i)
+    {
+        return edgeToNodes[2 * edgeIndex + i];
+    }
+
+    /**
+     * Get one of an edge's adjacent edges, without allocating.
+     * @param edgeIndex  Edge's index from {@link #getCoordIndex(int)}
+     * @param i  Slot 0 to 3, in the order of {@link SOCBoard#getAdjacentEdgesToEdge(int)}
+     * @return  Adjacent edge coordinate, or -9 if the edge has fewer adjacent edges
+     */
+    public int getAdjacentEdgeToEdge(final int edgeIndex, final int i)
+    {
+        return edgeToEdges[4 * edgeIndex + i];
+    }
+
+    /**
+     * Copy 3 slots of a node table into a new array, for {@code _arr} methods whose callers may change the result.
+     * @param table  {@link #nodeToNodes} or {@link #nodeToEdges}
+     */
+    static int[] copy3(final int[] table, final int index)
+    {
+        final int[] ret = new int[3];
+        System.arraycopy(table, 3 * index, ret, 0, 3);
+        return ret;
+    }
+
+    /**
+     * Build a new Vector of the used slots of a table, for methods whose callers may change the result.
+     * @param table  {@link #nodeToHexes} or {@link #edgeToEdges}
+     * @param index  Coordinate index
+     * @param count  Slots per index: 3 or 4
+     * @param reversed  If true, add slots in reverse order
+     */
+    Vector<Integer> toVector(final int[] table, final int index, final int count, final boolean reversed)
+    {
+        final Vector<Integer> ret = new Vector<Integer>(count);
+        final int start = count * index;
+        for (int j = 0; j < count; ++j)
+        {
+            final int coord = table[start + (reversed ? (count - 1 - j) : j)];
+            if (coord != -9)
+            {
+                final int ci = getCoordIndex(coord);
+                ret.addElement((ci != -1) ? coordBoxes[ci] : Integer.valueOf(coord));
+            }
+        }
+
+        return ret;
+    }
+
+}
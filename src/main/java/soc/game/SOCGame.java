@@ -726,6 +726,13 @@ public class SOCGame implements Serializable, Cloneable
      */
     SOCScenarioEventListener scenarioEventListener;
 
+    /**
+     * Clock for {@link #lastActionTime}, or null to use {@link System#currentTimeMillis()}.
+     * @see #setClock(SOCGameClock)
+     * @since 2.0.00
+     */
+    private transient SOCGameClock clock;
+
     /**
      * For use at server; are there clients connected which aren't at the latest version?
      */
@@ -1061,14 +1068,14 @@ public class SOCGame implements Serializable, Cloneable
      * Updated in {@link #updateAtTurn()}, {@link #putPiece(SOCPlayingPiece)},
      * and a few other game action methods.
      *<P>
-     * Same format as {@link System#currentTimeMillis()}.
+     * Same format as {@link System#currentTimeMillis()}, from the game's clock if
+     * {@link #setClock(SOCGameClock)} was called.
      * The server can set this field to 0 to tell itself to end a turn soon, but
      * otherwise the value should be a recent time.
      *<P>
      * At the end of a game, the server may increase this value by
      * 90 minutes ({@link soc.server.SOCGameListAtServer#GAME_TIME_EXPIRE_MINUTES})
-     * in order to remove it from the {@link soc.server.SOCGameTimeoutChecker}
-     * run loop.
+     * so the {@link soc.server.SOCGameTimeoutChecker} won't check it again soon.
      *
      * @see #getStartTime()
      * @see #getExpiration()
@@ -1301,7 +1308,7 @@ public class SOCGame implements Serializable, Cloneable
 
         if (active)
             startTime = new Date();
-        lastActionTime = System.currentTimeMillis();
+        lastActionTime = currentTimeMillis();
     }
 
     /**
@@ -1405,6 +1412,30 @@ public class SOCGame implements Serializable, Cloneable
         scenarioEventListener = sel;
     }
 
+    /**
+     * Set or clear the clock for {@link #lastActionTime}, such as a simulation's virtual clock.
+     * Also sets {@code lastActionTime} to the new clock's current time.
+     * @param c  Clock, or null to use {@link System#currentTimeMillis()}
+     * @since 2.0.00
+     */
+    public void setClock(final SOCGameClock c)
+    {
+        clock = c;
+        lastActionTime = currentTimeMillis();
+    }
+
+    /**
+     * Get the current time for {@link #lastActionTime}: From our {@link #setClock(SOCGameClock) clock} if any,
+     * otherwise {@link System#currentTimeMillis()}.
+     * @return  Current time in milliseconds
+     * @since 2.0.00
+     */
+    private long currentTimeMillis()
+    {
+        final SOCGameClock c = clock;
+        return (c != null) ? c.currentTimeMillis() : System.currentTimeMillis();
+    }
+
     /**
      * Set the expiration time at which this game will be destroyed.
      *
@@ -3248,7 +3279,7 @@ public class SOCGame implements Serializable, Cloneable
             return;   // <--- Early return: Temporary piece ---
         }
 
-        lastActionTime = System.currentTimeMillis();
+        lastActionTime = currentTimeMillis();
         lastActionWasBankTrade = false;
 
         /**
@@ -3930,7 +3961,7 @@ public class SOCGame implements Serializable, Cloneable
         updateAtBoardLayout();
 
         // make sure game doesn't look idle, in case first player is a robot
-        lastActionTime = System.currentTimeMillis();
+        lastActionTime = currentTimeMillis();
 
         allOriginalPlayers = true;
         gameState = START1A;
@@ -4315,7 +4346,7 @@ public class SOCGame implements Serializable, Cloneable
         SOCPlayer currPlayer = players[currentPlayerNumber];
         currPlayer.updateAtOurTurn();
         resetVoteClear();
-        lastActionTime = System.currentTimeMillis();
+        lastActionTime = currentTimeMillis();
         lastActionWasBankTrade = false;
         if (hasSeaBoard)
         {
@@ -5334,7 +5365,7 @@ public class SOCGame implements Serializable, Cloneable
             }
         }
 
-        lastActionTime = System.currentTimeMillis();
+        lastActionTime = currentTimeMillis();
     }
 
     /**
@@ -5397,7 +5428,7 @@ public class SOCGame implements Serializable, Cloneable
     {
         players[pn].getResources().add(rs);
         players[pn].setNeedToPickGoldHexResources(0);
-        lastActionTime = System.currentTimeMillis();
+        lastActionTime = currentTimeMillis();
 
         // initial placement?
         if (gameState == STARTS_WAITING_FOR_PICK_GOLD_RESOURCE)
@@ -5593,7 +5624,7 @@ public class SOCGame implements Serializable, Cloneable
 
         board.setRobberHex(rh, true);  // if rh coord invalid, throws IllegalArgumentException
         robberyWithPirateNotRobber = false;
-        lastActionTime = System.currentTimeMillis();
+        lastActionTime = currentTimeMillis();
         lastActionWasBankTrade = false;
 
         /**
@@ -5742,7 +5773,7 @@ public class SOCGame implements Serializable, Cloneable
 
         ((SOCBoardLarge) board).setPirateHex(ph, true);  // if ph invalid, throws IllegalArgumentException
         robberyWithPirateNotRobber = true;
-        lastActionTime = System.currentTimeMillis();
+        lastActionTime = currentTimeMillis();
         lastActionWasBankTrade = false;
 
         /**
@@ -6558,7 +6589,7 @@ public class SOCGame implements Serializable, Cloneable
         offeringPlayerResources.add(offer.getGetSet());
         acceptingPlayerResources.add(offer.getGiveSet());
 
-        lastActionTime = System.currentTimeMillis();
+        lastActionTime = currentTimeMillis();
         lastActionWasBankTrade = false;
     }
 
@@ -6742,7 +6773,7 @@ public class SOCGame implements Serializable, Cloneable
         {
             playerResources.subtract(give);
             playerResources.add(get);
-            lastActionTime = System.currentTimeMillis();
+            lastActionTime = currentTimeMillis();
             lastActionWasBankTrade = false;
             currPlayer.lastActionBankTrade_give = null;
             currPlayer.lastActionBankTrade_get = null;
@@ -6751,7 +6782,7 @@ public class SOCGame implements Serializable, Cloneable
 
         playerResources.subtract(give);
         playerResources.add(get);
-        lastActionTime = System.currentTimeMillis();
+        lastActionTime = currentTimeMillis();
         lastActionWasBankTrade = true;
         currPlayer.lastActionBankTrade_give = give;
         currPlayer.lastActionBankTrade_get = get;
@@ -7131,7 +7162,7 @@ public class SOCGame implements Serializable, Cloneable
             resources.subtract(1, SOCResourceConstants.SHEEP);
             resources.subtract(1, SOCResourceConstants.WHEAT);
             players[currentPlayerNumber].getInventory().addDevCard(1, SOCInventory.NEW, card);
-            lastActionTime = System.currentTimeMillis();
+            lastActionTime = currentTimeMillis();
             lastActionWasBankTrade = false;
             checkForWinner();
         }
@@ -7383,7 +7414,7 @@ public class SOCGame implements Serializable, Cloneable
         final boolean isWarshipConvert = isGameOptionSet(SOCGameOption.K_SC_PIRI);
         SOCPlayer pl = players[currentPlayerNumber];
 
-        lastActionTime = System.currentTimeMillis();
+        lastActionTime = currentTimeMillis();
         lastActionWasBankTrade = false;
         players[currentPlayerNumber].setPlayedDevCard(true);
         players[currentPlayerNumber].getInventory().removeDevCard(SOCInventory.OLD, SOCDevCardConstants.KNIGHT);
@@ -7421,7 +7452,7 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void playRoadBuilding()
     {
-        lastActionTime = System.currentTimeMillis();
+        lastActionTime = currentTimeMillis();
         lastActionWasBankTrade = false;
         final SOCPlayer player = players[currentPlayerNumber];
         player.setPlayedDevCard(true);
@@ -7442,7 +7473,7 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void playDiscovery()
     {
-        lastActionTime = System.currentTimeMillis();
+        lastActionTime = currentTimeMillis();
         lastActionWasBankTrade = false;
         players[currentPlayerNumber].setPlayedDevCard(true);
         players[currentPlayerNumber].getInventory().removeDevCard(SOCInventory.OLD, SOCDevCardConstants.DISC);
@@ -7455,7 +7486,7 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void playMonopoly()
     {
-        lastActionTime = System.currentTimeMillis();
+        lastActionTime = currentTimeMillis();
         lastActionWasBankTrade = false;
         players[currentPlayerNumber].setPlayedDevCard(true);
         players[currentPlayerNumber].getInventory().removeDevCard(SOCInventory.OLD, SOCDevCardConstants.MONO);
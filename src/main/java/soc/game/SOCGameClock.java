@@ -0,0 +1,38 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.game;
+
+/**
+ * Clock for a game's {@link SOCGame#lastActionTime}, instead of {@link System#currentTimeMillis()}.
+ * Lets a simulation run a game on a virtual clock; see {@link SOCGame#setClock(SOCGameClock)}.
+ *<P>
+ * <em>Threads:</em> Called from whatever thread changes the game's state.
+ *
+ * @since 2.0.00
+ */
+public interface SOCGameClock
+{
+    /**
+     * Get the current time on this clock.
+     * @return  Current time in milliseconds, same format as {@link System#currentTimeMillis()}
+     */
+    public long currentTimeMillis();
+
+}
@@ -0,0 +1,493 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.Vector;
+
+import soc.util.IntPair;
+
+/**
+ * One connected component of a player's road/ship network, with its longest road paths,
+ * for incremental {@link SOCPlayer#calcLongestRoad2()}.
+ *<P>
+ * Each component's paths depend only on its own nodes, roads/ships, and the settlements and cities on those nodes:
+ * Paths from different components never share an edge, so the full search's "keep the longer of two
+ * intersecting paths" check never compares them. So {@link #calcAll(SOCPlayer, SOCBoard, Vector, Hashtable, SOCLRComponent[], Vector)}
+ * splits the network into components, and reuses a previous call's component if its {@link #sig signature}
+ * of those inputs is unchanged. Only the components changed by a new or removed road, ship, or settlement
+ * are searched again.
+ *<P>
+ * The search gives exactly the same paths, in the same order, as {@link SOCPlayer#calcLongestRoadFullSearch()}:
+ * It visits nodes in the same order, but tracks each path's visited edges as bits of a {@code long}
+ * instead of a {@code Vector} of {@link IntPair}s, and builds the {@link SOCLRPathData} node-pair list
+ * only for paths it keeps. A component with more than {@link #MAX_EDGES} edges can't use the bitmask;
+ * for those, {@code calcAll} returns null and the caller does a full search instead.
+ *<P>
+ * Instances are immutable after construction, so copies of a player can share them.
+ *
+ * @since 2.0.00
+ */
+final class SOCLRComponent
+{
+    /** Most edges a component can have for the bitmask search: the number of bits in a {@code long}. */
+    static final int MAX_EDGES = 64;
+
+    /** Edge type in {@link #sig} and the search, for edges on the classic board, where road/ship type isn't checked. */
+    private static final int EDGE_ANY = 0;
+
+    /** Sea board edge type: road */
+    private static final int EDGE_ROAD = 1;
+
+    /** Sea board edge type: ship */
+    private static final int EDGE_SHIP = 2;
+
+    /** Sea board edge type: no road or ship found, which shouldn't happen */
+    private static final int EDGE_NONE = 3;
+
+    /**
+     * Signature: Everything the search depends on, so that an unchanged component can be reused.
+     * For each node, in {@code roadNodes} order: Node coordinate, settlement state
+     * (0 none, 1 player's own, 2 another player's), then for each of the 3 adjacent node slots
+     * in {@link SOCBoard#getAdjacentNodesToNode_arr(int)} order, -1 if not connected
+     * or else (adjacent node coordinate &lt;&lt; 2) | edge type.
+     */
+    private final int[] sig;
+
+    /** This component's longest road paths, in the order the full search would add them; not null */
+    final SOCLRPathData[] paths;
+
+    /** For each of {@link #paths}, index of its starting node within this component's nodes */
+    private final int[] pathStarts;
+
+    /** Length of this component's longest road */
+    final int longest;
+
+    private SOCLRComponent(final int[] sig, final SOCLRPathData[] paths, final int[] pathStarts, final int longest)
+    {
+        this.sig = sig;
+        this.paths = paths;
+        this.pathStarts = pathStarts;
+        this.longest = longest;
+    }
+
+    /**
+     * Find the longest road paths of each component of a player's road/ship network,
+     * reusing any unchanged components from {@code prev}.
+     *
+     * @param pl  Player whose roads/ships to check
+     * @param board  Game board
+     * @param roadNodes  All nodes touched by {@code pl}'s roads and ships, in search order
+     * @param roadNodeGraph  {@code pl}'s graph of nodes connected by roads and ships
+     * @param prev  Components from the previous call, or null
+     * @param lrPaths  Empty list to fill with the paths of all components, in full-search order
+     * @return  The current components, to pass as {@code prev} next time; or null if any component
+     *     has more than {@link #MAX_EDGES} edges or the graph has an unexpected node, in which case
+     *     {@code lrPaths} is left empty and the caller should do a full search
+     */
+    static SOCLRComponent[] calcAll
+        (final SOCPlayer pl, final SOCBoard board, final Vector<Integer> roadNodes,
+         final Hashtable<Integer, int[]> roadNodeGraph, final SOCLRComponent[] prev,
+         final Vector<SOCLRPathData> lrPaths)
+    {
+        final int n = roadNodes.size();
+        final int[] rn = new int[n];
+        for (int i = 0; i < n; ++i)
+            rn[i] = roadNodes.get(i).intValue();
+
+        // Label each node with its component number, found in order of each component's first node
+        final int[] comp = new int[n];
+        Arrays.fill(comp, -1);
+        final int[] queue = new int[n];
+        int nComps = 0;
+        for (int i = 0; i < n; ++i)
+        {
+            if (comp[i] != -1)
+                continue;
+
+            comp[i] = nComps;
+            int qHead = 0, qTail = 0;
+            queue[qTail++] = i;
+            while (qHead < qTail)
+            {
+                final int[] adjac = roadNodeGraph.get(Integer.valueOf(rn[queue[qHead++]]));
+                if (adjac == null)
+                    continue;
+
+                for (int k = 0; k < 3; ++k)
+                {
+                    if (adjac[k] == 0)
+                        continue;
+                    final int j = indexOf(rn, adjac[k]);
+                    if (j == -1)
+                        return null;  // not in roadNodes: unexpected
+                    if (comp[j] == -1)
+                    {
+                        comp[j] = nComps;
+                        queue[qTail++] = j;
+                    }
+                }
+            }
+            ++nComps;
+        }
+
+        final SOCLRComponent[] comps = new SOCLRComponent[nComps];
+        final int[][] rnIndexes = new int[nComps][];  // each component's local node index -> rn index
+        for (int c = 0; c < nComps; ++c)
+        {
+            int m = 0;
+            for (int i = 0; i < n; ++i)
+                if (comp[i] == c)
+                    queue[m++] = i;
+            final int[] rnIdx = new int[m];
+            System.arraycopy(queue, 0, rnIdx, 0, m);
+            rnIndexes[c] = rnIdx;
+
+            final int[] sig = signature(pl, board, rn, rnIdx);
+            SOCLRComponent found = null;
+            if (prev != null)
+            {
+                for (int p = 0; p < prev.length; ++p)
+                {
+                    if (Arrays.equals(sig, prev[p].sig))
+                    {
+                        found = prev[p];
+                        break;
+                    }
+                }
+            }
+            if (found == null)
+            {
+                found = search(pl.getPlayerNumber(), sig, m);
+                if (found == null)
+                    return null;  // too many edges
+            }
+            comps[c] = found;
+        }
+
+        // Merge the components' paths into the order the full search would add them:
+        // By starting node's position in roadNodes; a stable sort keeps each component's
+        // order for paths from the same start.
+        int nPaths = 0;
+        for (int c = 0; c < nComps; ++c)
+            nPaths += comps[c].paths.length;
+        final SOCLRPathData[] all = new SOCLRPathData[nPaths];
+        final int[] keys = new int[nPaths];
+        int k = 0;
+        for (int c = 0; c < nComps; ++c)
+        {
+            final SOCLRComponent co = comps[c];
+            for (int p = 0; p < co.paths.length; ++p)
+            {
+                final SOCLRPathData pd = co.paths[p];
+                final int key = rnIndexes[c][co.pathStarts[p]];
+                int ins = k;
+                while ((ins > 0) && (keys[ins - 1] > key))
+                {
+                    all[ins] = all[ins - 1];
+                    keys[ins] = keys[ins - 1];
+                    --ins;
+                }
+                all[ins] = pd;
+                keys[ins] = key;
+                ++k;
+            }
+        }
+        for (int p = 0; p < nPaths; ++p)
+            lrPaths.addElement(all[p]);
+
+        return comps;
+    }
+
+    /** Linear search; {@code roadNodes} are short. */
+    private static int indexOf(final int[] arr, final int val)
+    {
+        for (int i = 0; i < arr.length; ++i)
+            if (arr[i] == val)
+                return i;
+
+        return -1;
+    }
+
+    /**
+     * Build a component's {@link #sig signature} from the current board.
+     * @param rn  All road nodes
+     * @param rnIdx  This component's nodes, as indexes into {@code rn}
+     */
+    private static int[] signature(final SOCPlayer pl, final SOCBoard board, final int[] rn, final int[] rnIdx)
+    {
+        final int pn = pl.getPlayerNumber();
+        final boolean hasSeaBoard = pl.getGame().hasSeaBoard;
+        final int[] sig = new int[5 * rnIdx.length];
+        int s = 0;
+        for (int i = 0; i < rnIdx.length; ++i)
+        {
+            final int coord = rn[rnIdx[i]];
+            sig[s++] = coord;
+            final SOCPlayingPiece settle = board.settlementAtNode(coord);
+            sig[s++] = (settle == null) ? 0 : ((settle.getPlayerNumber() == pn) ? 1 : 2);
+
+            final int[] adjacNodes = board.getAdjacentNodesToNode_arr(coord);
+            for (int ni = 0; ni < 3; ++ni)
+            {
+                final int j = adjacNodes[ni];
+                if ((j == -9) || ! pl.isConnectedByRoad(coord, j))
+                {
+                    sig[s++] = -1;
+                    continue;
+                }
+
+                int edgeType = EDGE_ANY;
+                if (hasSeaBoard)
+                {
+                    final SOCRoad rs = pl.getRoadOrShip(board.getEdgeBetweenAdjacentNodes(coord, j));
+                    edgeType = (rs == null) ? EDGE_NONE : (rs.isRoadNotShip() ? EDGE_ROAD : EDGE_SHIP);
+                }
+                sig[s++] = (j << 2) | edgeType;
+            }
+        }
+
+        return sig;
+    }
+
+    /**
+     * Search one component for its longest road paths, the same way as {@link SOCPlayer#calcLongestRoadFullSearch()}.
+     * @param pn  Player number, to tell own settlements from other players' blocking ones
+     * @param sig  Component's signature from {@link #signature(SOCPlayer, SOCBoard, int[], int[])}
+     * @param m  Number of nodes in the component
+     * @return  The searched component, or null if it has more than {@link #MAX_EDGES} edges
+     */
+    private static SOCLRComponent search(final int pn, final int[] sig, final int m)
+    {
+        // Unpack the signature into per-node arrays, with neighbors as local indexes
+        final int[] coords = new int[m];
+        final boolean[] blocked = new boolean[m], hasSettle = new boolean[m];
+        for (int i = 0; i < m; ++i)
+        {
+            coords[i] = sig[5 * i];
+            hasSettle[i] = (sig[5 * i + 1] != 0);
+            blocked[i] = (sig[5 * i + 1] == 2);
+        }
+
+        final int[] nbr = new int[3 * m], edgeIds = new int[3 * m];
+        final int[] edgeTypes = new int[MAX_EDGES];
+        int nEdges = 0;
+        for (int i = 0; i < m; ++i)
+        {
+            for (int ni = 0; ni < 3; ++ni)
+            {
+                final int slot = sig[5 * i + 2 + ni];
+                if (slot == -1)
+                {
+                    nbr[3 * i + ni] = -1;
+                    continue;
+                }
+
+                final int j = localIndex(coords, slot >> 2);
+                if (j == -1)
+                    return null;  // shouldn't happen: roadNodeGraph has a node outside roadNodes
+                nbr[3 * i + ni] = j;
+                if (j > i)
+                {
+                    if (nEdges == MAX_EDGES)
+                        return null;
+                    edgeTypes[nEdges] = slot & 0x03;
+                    edgeIds[3 * i + ni] = nEdges++;
+                } else {
+                    // Edge was numbered from j's side, or it's a self-loop which can't happen
+                    int id = -1;
+                    for (int nj = 0; nj < 3; ++nj)
+                        if (nbr[3 * j + nj] == i)
+                            id = edgeIds[3 * j + nj];
+                    if (id == -1)
+                        return null;
+                    edgeIds[3 * i + ni] = id;
+                }
+            }
+        }
+
+        // Depth-first search from each node, keeping frames so each path's edges can be listed afterwards
+        final Search srch = new Search();
+        final ArrayList<SOCLRPathData> paths = new ArrayList<SOCLRPathData>();
+        final ArrayList<long[]> pathMasks = new ArrayList<long[]>();  // {mask, length, start}
+        int longest = 0;
+
+        for (int start = 0; start < m; ++start)
+        {
+            srch.reset();
+            srch.push(start, 0, 0L, -1, EDGE_ANY);
+
+            while (srch.stackSize > 0)
+            {
+                final int f = srch.stack[--srch.stackSize];
+                final int node = srch.fNode[f], len = srch.fLen[f];
+                final long mask = srch.fMask[f];
+                boolean pathEnd = (len > 0) && blocked[node];
+
+                if (! pathEnd)
+                {
+                    pathEnd = true;  // may be set false in loop
+                    for (int ni = 2; ni >= 0; --ni)
+                    {
+                        final int j = nbr[3 * node + ni];
+                        if (j == -1)
+                            continue;
+
+                        final int e = edgeIds[3 * node + ni];
+                        final int edgeType = edgeTypes[e];
+                        if ((edgeType != EDGE_ANY) && (len > 0))
+                        {
+                            if (edgeType == EDGE_NONE)
+                                continue;
+                            if ((edgeType != srch.fInbound[f]) && ! hasSettle[node])
+                                continue;  // Requires settlement/city to connect road to ship
+                        }
+
+                        final long bit = 1L << e;
+                        if ((mask & bit) == 0)
+                        {
+                            srch.push(j, len + 1, mask | bit, f, edgeType);
+                            pathEnd = false;
+                        }
+                    }
+                }
+
+                if (! pathEnd)
+                    continue;
+
+                if (len > longest)
+                    longest = len;
+
+                // Keep only the longest path for a single set of edges
+                boolean addNewPath = true;
+                for (int p = pathMasks.size() - 1; p >= 0; --p)
+                {
+                    final long[] old = pathMasks.get(p);
+                    if ((old[0] & mask) == 0)
+                        continue;
+
+                    if (old[1] < len)
+                    {
+                        pathMasks.remove(p);
+                        paths.remove(p);
+                    } else {
+                        addNewPath = false;
+                    }
+                }
+
+                if (addNewPath)
+                {
+                    paths.add(new SOCLRPathData(coords[start], coords[node], len, srch.pathPairs(f, coords)));
+                    pathMasks.add(new long[]{ mask, len, start });
+                }
+            }
+        }
+
+        final int nPaths = paths.size();
+        final int[] starts = new int[nPaths];
+        for (int p = 0; p < nPaths; ++p)
+            starts[p] = (int) pathMasks.get(p)[2];
+
+        return new SOCLRComponent(sig, paths.toArray(new SOCLRPathData[nPaths]), starts, longest);
+    }
+
+    /** Find a node coordinate's index within the component, or -1. */
+    private static int localIndex(final int[] coords, final int coord)
+    {
+        for (int i = 0; i < coords.length; ++i)
+            if (coords[i] == coord)
+                return i;
+
+        return -1;
+    }
+
+    /**
+     * Frames and stack for {@link SOCLRComponent#search(int, int[], int)}.
+     * Each frame is a node reached by a path: Its node, length, edge bitmask, previous frame, and inbound edge type.
+     */
+    private static final class Search
+    {
+        int[] fNode = new int[64], fLen = new int[64], fParent = new int[64], fInbound = new int[64];
+        long[] fMask = new long[64];
+        int nFrames;
+
+        int[] stack = new int[64];
+        int stackSize;
+
+        void reset()
+        {
+            nFrames = 0;
+            stackSize = 0;
+        }
+
+        void push(final int node, final int len, final long mask, final int parent, final int inbound)
+        {
+            if (nFrames == fNode.length)
+            {
+                final int L = 2 * nFrames;
+                fNode = grow(fNode, L);
+                fLen = grow(fLen, L);
+                fParent = grow(fParent, L);
+                fInbound = grow(fInbound, L);
+                final long[] m2 = new long[L];
+                System.arraycopy(fMask, 0, m2, 0, nFrames);
+                fMask = m2;
+            }
+            final int f = nFrames++;
+            fNode[f] = node;
+            fLen[f] = len;
+            fMask[f] = mask;
+            fParent[f] = parent;
+            fInbound[f] = inbound;
+
+            if (stackSize == stack.length)
+                stack = grow(stack, 2 * stackSize);
+            stack[stackSize++] = f;
+        }
+
+        private static int[] grow(final int[] arr, final int len)
+        {
+            final int[] a2 = new int[len];
+            System.arraycopy(arr, 0, a2, 0, arr.length);
+            return a2;
+        }
+
+        /**
+         * List a path's node pairs from its start, in the same form as the full search's visited list.
+         * @param f  Frame at the end of the path
+         * @param coords  Component's node coordinates
+         */
+        Vector<IntPair> pathPairs(int f, final int[] coords)
+        {
+            final IntPair[] pairs = new IntPair[fLen[f]];
+            while (fParent[f] != -1)
+            {
+                final int parent = fParent[f];
+                pairs[fLen[f] - 1] = new IntPair(coords[fNode[parent]], coords[fNode[f]]);
+                f = parent;
+            }
+
+            return new Vector<IntPair>(Arrays.asList(pairs));
+        }
+    }
+
+}
@@ -24,6 +24,7 @@ package soc.game;
 import soc.disableDebug.D;
 
 import soc.message.SOCMessage;
+import soc.util.IntBitSet;
 import soc.util.IntPair;
 import soc.util.NodeLenVis;
 
@@ -35,7 +36,6 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;  // for javadoc
 import java.util.Stack;
@@ -191,6 +191,15 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      */
     private Vector<SOCLRPathData> lrPaths;
 
+    /**
+     * The components of this player's road/ship network found by the most recent {@link #calcLongestRoad2()},
+     * with their paths, so the next call can skip searching the ones which haven't changed.
+     * Null if not calculated yet, or if the last call did a full search.
+     * The components are immutable, so player copies can share them.
+     * @since 2.0.00
+     */
+    private SOCLRComponent[] lrComponents;
+
     /**
      * how many of each resource this player has
      */
@@ -324,6 +333,9 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      * an edge is legal if a road could eventually be
      * placed there.
      *<P>
+     * Before v2.0.00 this and the player's other legal and potential location sets were {@link HashSet}s.
+     * They're now {@link IntBitSet}s, which robots can copy and check much faster while planning.
+     *<P>
      * If not {@link SOCGame#hasSeaBoard}, initialized in constructor
      * from {@link SOCBoard#initPlayerLegalRoads()}.
      *<P>
@@ -331,7 +343,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      * and {@link SOCGame#startGame()}, because the board layout and legal settlements
      * vary from game to game.
      */
-    private HashSet<Integer> legalRoads;
+    private IntBitSet legalRoads;
 
     /**
      * a set of nodes where it is legal to place a
@@ -339,8 +351,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      * can ever be placed there.
      * Placing a settlement will clear its node and adjacent nodes.
      *<P>
-     * Key = node coordinate, as {@link Integer}.
-     * If {@link HashSet#contains(Object) legalSettlements.contains(new Integer(nodeCoord))},
+     * If {@link IntBitSet#contains(int) legalSettlements.contains(nodeCoord)},
      * then <tt>nodeCoord</tt> is a legal settlement.
      *<P>
      * If not {@link SOCGame#hasSeaBoard}, initialized in constructor
@@ -354,7 +365,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      * @see #potentialSettlements
      * @see SOCBoard#nodesOnLand
      */
-    private HashSet<Integer> legalSettlements;
+    private IntBitSet legalSettlements;
 
     /**
      * The most recently added node from {@link #addLegalSettlement(int, boolean)}, or 0.
@@ -374,7 +385,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      * @see #legalShipsRestricted
      * @since 2.0.00
      */
-    private HashSet<Integer> legalShips;
+    private IntBitSet legalShips;
 
     /**
      * A list of edges if the legal sea edges for ships are restricted
@@ -397,7 +408,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      * {@link #updatePotentials(SOCPlayingPiece)}.
      * Elements are set false when a road or ship is placed on their edge.
      */
-    private HashSet<Integer> potentialRoads;
+    private IntBitSet potentialRoads;
 
     /**
      * a set of nodes where a settlement could be
@@ -407,14 +418,13 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      * and then re-set via {@link #updatePotentials(SOCPlayingPiece) updatePotentials(SOCRoad)}.
      * Placing a settlement will clear its node and adjacent nodes.
      *<P>
-     * Key = node coordinate, as {@link Integer}.
-     * If {@link HashSet#contains(Object) potentialSettlements.contains(new Integer(nodeCoord))},
+     * If {@link IntBitSet#contains(int) potentialSettlements.contains(nodeCoord)},
      * then this is a potential settlement.
      * @see #legalSettlements
      * @see #setPotentialAndLegalSettlements(Collection, boolean, HashSet[])
      * @see SOCBoard#nodesOnLand
      */
-    private HashSet<Integer> potentialSettlements;
+    private IntBitSet potentialSettlements;
 
     /**
      * a set of nodes where a city could be
@@ -427,7 +437,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      * because we use {@link #legalSettlements} before placing a settlement,
      * and settlements can always become cities.
      */
-    private HashSet<Integer> potentialCities;
+    private IntBitSet potentialCities;
 
     /**
      * a set of edges where a ship could be placed
@@ -441,7 +451,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      * this set is empty but non-null.
      * @since 2.0.00
      */
-    private HashSet<Integer> potentialShips;
+    private IntBitSet potentialShips;
 
     /**
      * a boolean array stating wheather this player is touching a
@@ -625,6 +635,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
         numWarships = player.numWarships;
         longestRoadLength = player.longestRoadLength;
         lrPaths = new Vector<SOCLRPathData>(player.lrPaths);
+        lrComponents = player.lrComponents;
         resources = player.resources.copy();
         resourceStats = new int[player.resourceStats.length];
         System.arraycopy(player.resourceStats, 0, resourceStats, 0, player.resourceStats.length);
@@ -670,13 +681,13 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
         /**
          * init legal and potential arrays
          */
-        legalRoads = new HashSet<Integer>(player.legalRoads);
-        legalSettlements = new HashSet<Integer>(player.legalSettlements);
-        legalShips = new HashSet<Integer>(player.legalShips);
-        potentialRoads = new HashSet<Integer>(player.potentialRoads);
-        potentialSettlements = new HashSet<Integer>(player.potentialSettlements);
-        potentialCities = new HashSet<Integer>(player.potentialCities);
-        potentialShips = new HashSet<Integer>(player.potentialShips);
+        legalRoads = new IntBitSet(player.legalRoads);
+        legalSettlements = new IntBitSet(player.legalSettlements);
+        legalShips = new IntBitSet(player.legalShips);
+        potentialRoads = new IntBitSet(player.potentialRoads);
+        potentialSettlements = new IntBitSet(player.potentialSettlements);
+        potentialCities = new IntBitSet(player.potentialCities);
+        potentialShips = new IntBitSet(player.potentialShips);
         addedLegalSettlement = player.addedLegalSettlement;
         if (player.legalShipsRestricted != null)
             legalShipsRestricted = new HashSet<Integer>(player.legalShipsRestricted);
@@ -772,21 +783,21 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
          * If game.hasSeaBoard, these are initialized later, after board.makeNewBoard
          * and game.startGame, because the layout varies from game to game.
          */
-        potentialRoads = new HashSet<Integer>();
-        potentialCities = new HashSet<Integer>();
-        potentialShips = new HashSet<Integer>();
+        potentialRoads = new IntBitSet();
+        potentialCities = new IntBitSet();
+        potentialShips = new IntBitSet();
 
         if (! game.hasSeaBoard)
         {
-            legalRoads = board.initPlayerLegalRoads();
-            legalSettlements = board.initPlayerLegalAndPotentialSettlements();
-            legalShips = new HashSet<Integer>();  // will remain empty
-            potentialSettlements = new HashSet<Integer>(legalSettlements);
+            legalRoads = new IntBitSet(board.initPlayerLegalRoads());
+            legalSettlements = new IntBitSet(board.initPlayerLegalAndPotentialSettlements());
+            legalShips = new IntBitSet();  // will remain empty
+            potentialSettlements = new IntBitSet(legalSettlements);
         } else {
-            legalRoads = new HashSet<Integer>();
-            legalSettlements = new HashSet<Integer>();
-            legalShips = new HashSet<Integer>();
-            potentialSettlements = new HashSet<Integer>();
+            legalRoads = new IntBitSet();
+            legalSettlements = new IntBitSet();
+            legalShips = new IntBitSet();
+            potentialSettlements = new IntBitSet();
         }
 
         currentOffer = null;
@@ -3821,14 +3832,19 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      * At the start of the game (before/during initial placement), this is all legal nodes.
      * Afterwards it's mostly empty, and follows from the player's road locations.
      *<P>
-     * Please make no changes, treat the returned set as read-only.
+     * Since the player's sets are stored as {@link IntBitSet}s, this returns a new copy of the set,
+     * allocating a {@link HashSet} and an {@link Integer} for each node on every call;
+     * changes to the returned set don't affect the player.
+     * Use it only where a {@code HashSet} is needed, such as the server's messages at game start.
+     * Robots and other frequent callers should use {@link #getPotentialSettlements_arr()}
+     * or {@link #isPotentialSettlement(int)} instead.
      * @return the player's set of {@link Integer} potential-settlement node coordinates
      * @see #getPotentialSettlements_arr()
      * @since 2.0.00
      */
     public HashSet<Integer> getPotentialSettlements()
     {
-        return potentialSettlements;
+        return potentialSettlements.toHashSet();
     }
 
     /**
@@ -3837,22 +3853,17 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      * Afterwards it's mostly empty, and follows from the player's road locations.
      *<P>
      * This variant returns them as an array, for ease of use when traversing all potential settlements.
-     * @return the player's set of potential-settlement node coordinates,
+     * @return the player's set of potential-settlement node coordinates in ascending order,
      *     or if none, <tt>null</tt>
      * @see #getPotentialSettlements()
      * @since 2.0.00
      */
     public int[] getPotentialSettlements_arr()
     {
-        int L = potentialSettlements.size();
-        if (L == 0)
+        if (potentialSettlements.isEmpty())
             return null;
 
-        int[] pset = new int[L];
-        Iterator<Integer> it = potentialSettlements.iterator();
-        for (int i = 0; it.hasNext(); ++i)
-            pset[i] = it.next().intValue();
-        return pset;
+        return potentialSettlements.toArray();
     }
 
     /**
@@ -3909,9 +3920,9 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
                     legalSettlements.addAll(legalLandAreaNodes[i]);
             }
 
-            legalRoads = game.getBoard().initPlayerLegalRoads();
+            legalRoads = new IntBitSet(game.getBoard().initPlayerLegalRoads());
             if (! game.isGameOptionSet(SOCGameOption.K_SC_PIRI))
-                legalShips = ((SOCBoardLarge) game.getBoard()).initPlayerLegalShips();
+                legalShips = new IntBitSet(((SOCBoardLarge) game.getBoard()).initPlayerLegalShips());
             else
                 legalShips.clear();  // caller must soon call setRestrictedLegalShips
         }
@@ -3945,7 +3956,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
                     return;  // <--- Early return: adjacent settlement/city found ---
         }
 
-        legalSettlements.add(Integer.valueOf(node));
+        legalSettlements.add(node);
         addedLegalSettlement = node;
     }
 
@@ -3987,7 +3998,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      */
     public boolean isPotentialSettlement(final int node)
     {
-        return potentialSettlements.contains(Integer.valueOf(node));
+        return potentialSettlements.contains(node);
     }
 
     /**
@@ -4000,7 +4011,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      */
     public void clearPotentialSettlement(final int node)
     {
-        potentialSettlements.remove(Integer.valueOf(node));
+        potentialSettlements.remove(node);
     }
 
     /**
@@ -4012,7 +4023,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      */
     public boolean isLegalSettlement(final int node)
     {
-        return legalSettlements.contains(Integer.valueOf(node));
+        return legalSettlements.contains(node);
     }
 
     /**
@@ -4038,7 +4049,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      */
     public boolean isPotentialCity(final int node)
     {
-        return potentialCities.contains(Integer.valueOf(node));
+        return potentialCities.contains(node);
     }
 
     /**
@@ -4051,7 +4062,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      */
     public void clearPotentialCity(final int node)
     {
-        potentialCities.remove(Integer.valueOf(node));
+        potentialCities.remove(node);
     }
 
     /**
@@ -4066,7 +4077,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
     {
         if (edge == -1)
             edge = 0x00;
-        return potentialRoads.contains(Integer.valueOf(edge));
+        return potentialRoads.contains(edge);
     }
 
     /**
@@ -4081,7 +4092,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
     {
         if (edge == -1)
             edge = 0x00;
-        potentialRoads.remove(Integer.valueOf(edge));
+        potentialRoads.remove(edge);
     }
 
     /**
@@ -4095,7 +4106,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
             edge = 0x00;
         else if (edge < 0)
             return false;
-        return legalRoads.contains(Integer.valueOf(edge));
+        return legalRoads.contains(edge);
     }
 
     /**
@@ -4127,7 +4138,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      */
     public boolean isPotentialShipMoveTo(final int toEdge, final int fromEdge)
     {
-        if (! potentialShips.contains(Integer.valueOf(toEdge)))
+        if (! potentialShips.contains(toEdge))
         {
             if (game.isGameOptionSet(SOCGameOption.K_SC_PIRI)
                 && (null != legalShipsRestricted))
@@ -4182,7 +4193,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      */
     public boolean isPotentialShip(int edge)
     {
-        return potentialShips.contains(Integer.valueOf(edge));
+        return potentialShips.contains(edge);
     }
 
     /**
@@ -4195,7 +4206,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
      */
     public void clearPotentialShip(int edge)
     {
-        potentialShips.remove(Integer.valueOf(edge));
+        potentialShips.remove(edge);
     }
 
     /**
@@ -4209,7 +4220,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
         if (edge < 0)
             return false;
 
-        return legalShips.contains(Integer.valueOf(edge));
+        return legalShips.contains(edge);
     }
 
     /**
@@ -4371,11 +4382,45 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
     }
 
     /**
-     * Calculates the longest road / longest trade route for this player
+     * Calculates the longest road / longest trade route for this player,
+     * and updates {@link #getLRPaths()}.
+     *<P>
+     * Searches only the parts of the player's road/ship network which changed since the last call:
+     * A new or removed road or ship, or a settlement or city placed on one of its nodes.
+     * Other parts reuse the last call's results. The results are the same as
+     * {@link #calcLongestRoadFullSearch()}, which searches the entire network.
      *
      * @return the length of the longest road for this player
      */
     public int calcLongestRoad2()
+    {
+        lrPaths.removeAllElements();
+        final SOCLRComponent[] comps = SOCLRComponent.calcAll
+            (this, game.getBoard(), roadNodes, roadNodeGraph, lrComponents, lrPaths);
+        lrComponents = comps;
+        if (comps == null)
+            return calcLongestRoadFullSearch();  // unusually large or unexpected network
+
+        int longest = 0;
+        for (int c = 0; c < comps.length; ++c)
+            if (comps[c].longest > longest)
+                longest = comps[c].longest;
+
+        longestRoadLength = longest;
+        return longest;
+    }
+
+    /**
+     * Calculates the longest road / longest trade route for this player
+     * by searching all of the player's roads and ships,
+     * and updates {@link #getLRPaths()}.
+     * {@link #calcLongestRoad2()} gives the same results faster,
+     * by searching only the parts of the network which have changed.
+     *
+     * @return the length of the longest road for this player
+     * @since 2.0.00
+     */
+    public int calcLongestRoadFullSearch()
     {
         //Date startTime = new Date();
         //
@@ -4718,6 +4763,7 @@ public class SOCPlayer implements SOCDevCardConstants, Serializable, Cloneable
         roadNodes = null;
         roadNodeGraph.clear();
         roadNodeGraph = null;
+        lrComponents = null;
         if (legalRoads != null)
         {
             legalRoads.clear();
@@ -23,9 +23,7 @@ package soc.game;
 
 import soc.util.IntPair;
 
-import java.util.Enumeration;
-import java.util.Hashtable;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.Map;  // for javadocs
 import java.util.Vector;
 
@@ -36,45 +34,75 @@ import java.util.Vector;
  *<P>
  * Calls each touched hex's {@link SOCBoard#getHexTypeFromCoord(int)}, ignores all hex types besides
  * the usual {@link SOCBoard#CLAY_HEX} through {@link SOCBoard#WOOD_HEX} and {@link SOCBoardLarge#GOLD_HEX}.
+ *<P>
+ * Before v2.0.00 this data was kept in Vectors of Integers and a Hashtable of hex coordinates,
+ * and the robber-aware queries built new Vectors on every call.
+ * It's now a dense count table of dice numbers and resource types, plus a short packed list of
+ * the hexes touched. The copy constructor, which the robots call for each possible piece,
+ * copies two int arrays. The robber-aware totals for a robber hex are calculated once,
+ * then reused until the robber moves or the numbers change.
+ * The methods which return Vectors are still available, but build them on each call.
  *
  * @author Robert S. Thomas
  */
 public class SOCPlayerNumbers
 {
     /**
-     * Dice roll numbers which yield this resource.
-     * Uses indexes in range {@link SOCResourceConstants#CLAY} to {@link SOCResourceConstants#WOOD}.
-     * Each element contains {@link Integer}s for the dice numbers.
-     *<P>
-     * {@link SOCBoardLarge#GOLD_HEX} is handled by adding the dice number to
-     * all resource types in {@link #addNumberForResource(int, int, int)}.
+     * Length of each dice number's row in {@link #resCounts} and {@link #robberCounts}:
+     * Indexes {@link SOCResourceConstants#CLAY} to {@link SOCResourceConstants#WOOD}; index 0 is unused.
+     * @since 2.0.00
      */
-    private Vector<Integer>[] numbersForResource;
+    private static final int RES_ROW = SOCResourceConstants.WOOD + 1;
 
     /**
-     * Resources on dice roll numbers; uses indexes 2-12.
-     * Each element contains {@link Integer}s for the resource(s),
-     * in range {@link SOCResourceConstants#CLAY} to {@link SOCResourceConstants#WOOD}.
-     * If the number yields more than one of that resource type
-     * (a city, or multiple pieces on the hex), there will be
-     * more than one Integer here with that resource type.
+     * Number of ints for each entry in {@link #hexPairs}:
+     * Hex coordinate, dice number, resource type, amount.
+     * @since 2.0.00
+     */
+    private static final int HEX_PAIR_LEN = 4;
+
+    /**
+     * Amount of each resource type gained from each dice roll number, not considering the robber:
+     * Index is {@code diceNum * }{@link #RES_ROW}{@code  + resource}, for dice numbers 0 to 12
+     * and resource types {@link SOCResourceConstants#CLAY} to {@link SOCResourceConstants#WOOD}.
+     * If the number yields more than one of that resource type (a city, or multiple pieces on the hex),
+     * the amount is more than 1.
+     *<P>
+     * {@link SOCBoardLarge#GOLD_HEX} is handled by adding 1 of each resource type
+     * in {@link #addNumberForResource(int, int, int)}.
      *<P>
-     * {@link SOCBoardLarge#GOLD_HEX} is handled by adding all resource types to
-     * the dice number in {@link #addNumberForResource(int, int, int)}.
+     * Before v2.0.00 this data was in Vectors {@code numbersForResource} and {@code resourcesForNumber}.
+     * @since 2.0.00
      */
-    private Vector<Integer>[] resourcesForNumber;
+    private final int[] resCounts;
 
     /**
-     * Hex dice-roll resource information, by land-hex coordinate ID.
-     * Key = Integer hexCoord; value = Vector.
-     * Each hex coordinate's vector contains 0 or more {@link IntPair}(diceNum, resource).
+     * Hex dice-roll resource information, as a packed list of entries
+     * of {@link #HEX_PAIR_LEN} ints each: Hex coordinate, dice number, resource type, amount.
+     * {@link #hexPairsLen} ints are used. Each (hex, dice number, resource type) has at most 1 entry,
+     * whose amount may be 0 after {@link #undoAddNumberForResource(int, int, int)}.
      * If {@link #hasSeaBoard}, the resource type may be {@link SOCBoardLarge#GOLD_HEX}.
      *<P>
-     * Until {@link #addNumberForResource(int, int, int)} or
-     * {@link #updateNumbers(int, SOCBoard)} is called,
-     * any land hex's entry in this hashtable may be null.
+     * A player touches only a few hexes, so a linear search is quick.
+     * Before v2.0.00 this data was in a Hashtable {@code numberAndResourceForHex}.
+     * @since 2.0.00
      */
-    private Hashtable<Integer, Vector<IntPair>> numberAndResourceForHex;
+    private int[] hexPairs;
+
+    /**
+     * Number of ints used in {@link #hexPairs}, a multiple of {@link #HEX_PAIR_LEN}.
+     * @since 2.0.00
+     */
+    private int hexPairsLen;
+
+    /**
+     * Cached copy of {@link #resCounts} minus the hex at the robber's location,
+     * for the robber-aware queries, or null if not calculated since the numbers last changed.
+     * The robber's hex coordinate is in the extra last element, so that the array and its hex
+     * are replaced together by {@link #getCounts(int)}.
+     * @since 2.0.00
+     */
+    private int[] robberCounts;
 
     /**
      * Reference to either {@link SOCBoard4p#HEXCOORDS_LAND_V1} or {@link SOCBoard6p#HEXCOORDS_LAND_V2}.
@@ -102,33 +130,16 @@ public class SOCPlayerNumbers
      *
      * @param numbers   the player numbers to copy
      */
-    @SuppressWarnings("unchecked")
     public SOCPlayerNumbers(SOCPlayerNumbers numbers)
     {
         hasSeaBoard = numbers.hasSeaBoard;
         landHexCoords = numbers.landHexCoords;
 
-        numbersForResource = new Vector[SOCResourceConstants.MAXPLUSONE - 1];
-
-        for (int i = SOCResourceConstants.CLAY; i <= SOCResourceConstants.WOOD; i++)
-        {
-            numbersForResource[i] = new Vector<Integer>(numbers.numbersForResource[i]);
-        }
-
-        resourcesForNumber = new Vector[13];  // dice roll totals 2 to 12
-
-        for (int i = 0; i < 13; i++)
-        {
-            resourcesForNumber[i] = new Vector<Integer>(numbers.resourcesForNumber[i]);
-        }
-
-        // deep copy, not shallow copy:
-        numberAndResourceForHex = new Hashtable<Integer, Vector<IntPair>>((int) (numbers.numberAndResourceForHex.size() * 1.4f));
-        for (Enumeration<Integer> hexes = numbers.numberAndResourceForHex.keys(); hexes.hasMoreElements(); )
-        {
-            Integer hex = hexes.nextElement();
-            numberAndResourceForHex.put(hex, new Vector<IntPair>(numbers.numberAndResourceForHex.get(hex)));
-        }
+        resCounts = numbers.resCounts.clone();
+        hexPairsLen = numbers.hexPairsLen;
+        hexPairs = new int[numbers.hexPairs.length];
+        System.arraycopy(numbers.hexPairs, 0, hexPairs, 0, hexPairsLen);
+        robberCounts = numbers.robberCounts;  // never modified, only replaced
     }
 
     /**
@@ -144,7 +155,6 @@ public class SOCPlayerNumbers
      *         and {@link SOCBoard#getLandHexCoords()}.
      * @throws IllegalArgumentException  If <tt>boardEncodingFormat</tt> value is unknown to this class
      */
-    @SuppressWarnings("unchecked")
     public SOCPlayerNumbers(SOCBoard board)
         throws IllegalArgumentException
     {
@@ -160,29 +170,8 @@ public class SOCPlayerNumbers
         //   landHexCoords might be null for BOARD_ENCODING_LARGE
         //   if the layout isn't yet created in SOCBoardLarge.makeNewBoard.
 
-        numbersForResource = new Vector[SOCResourceConstants.MAXPLUSONE - 1];
-
-        for (int i = SOCResourceConstants.CLAY; i <= SOCResourceConstants.WOOD;
-                i++)
-        {
-            numbersForResource[i] = new Vector<Integer>();
-        }
-
-        resourcesForNumber = new Vector[13];  // dice roll totals 2 to 12
-
-        for (int i = 0; i < 13; i++)
-        {
-            resourcesForNumber[i] = new Vector<Integer>();
-        }
-
-        numberAndResourceForHex = new Hashtable<Integer, Vector<IntPair>>();
-
-        //    Initially empty, until addNumberForResource is called.
-        //    So, skip this loop:
-        // for (int i = 0; i < landHexCoords.length; i++)
-        // {
-        //    numberAndResourceForHex.put(new Integer(landHexCoords[i]), new Vector());
-        // }
+        resCounts = new int[13 * RES_ROW];  // dice roll totals 0 to 12
+        hexPairs = new int[8 * HEX_PAIR_LEN];  // initially empty, until addNumberForResource is called
     }
 
     /**
@@ -190,17 +179,9 @@ public class SOCPlayerNumbers
      */
     public void clear()
     {
-        for (int i = SOCResourceConstants.CLAY; i <= SOCResourceConstants.WOOD; i++)
-        {
-            numbersForResource[i].removeAllElements();
-        }
-
-        for (int i = 0; i < 13; i++)
-        {
-            resourcesForNumber[i].removeAllElements();
-        }
-
-        numberAndResourceForHex.clear();
+        Arrays.fill(resCounts, 0);
+        hexPairsLen = 0;
+        robberCounts = null;
     }
 
     /**
@@ -308,6 +289,9 @@ public class SOCPlayerNumbers
      * to the dice number, if {@link #hasSeaBoard}.
      * So, gold hex numbers will have 5 resources in the Vector
      * (10 for cities on gold).
+     *<P>
+     * Before v2.0.00 this returned an internal Vector; it's now built on each call,
+     * in resource type order. To avoid that, call {@link #getResourceCountForNumber(int, int, int)}.
      *
      * @param diceNum  the dice number, 2-12
      * @return the resources for a number; contains {@link Integer}s for the resource(s),
@@ -319,7 +303,7 @@ public class SOCPlayerNumbers
      */
     public Vector<Integer> getResourcesForNumber(final int diceNum)
     {
-        return resourcesForNumber[diceNum];
+        return getResourcesForNumber(resCounts, diceNum);
     }
 
     /**
@@ -327,6 +311,9 @@ public class SOCPlayerNumbers
      *<P>
      * {@link SOCBoardLarge#GOLD_HEX} is handled by adding the dice number to
      * all resource types, if {@link #hasSeaBoard}.
+     *<P>
+     * Before v2.0.00 this returned an internal Vector; it's now built on each call,
+     * in dice number order. To avoid that, call {@link #getResourceCountForNumber(int, int, int)}.
      *
      * @return the numbers for a resource, as {@link Integer}s
      *
@@ -335,7 +322,7 @@ public class SOCPlayerNumbers
      */
     public Vector<Integer> getNumbersForResource(int resource)
     {
-        return numbersForResource[resource];
+        return getNumbersForResource(resCounts, resource);
     }
 
     /**
@@ -346,13 +333,26 @@ public class SOCPlayerNumbers
      *  (a city, or multiple pieces on the hex), there will be
      *  more than one Integer here with that resource type.
      *  If {@link #hasSeaBoard}, a resource type may be {@link SOCBoardLarge#GOLD_HEX}.
+     *  Before v2.0.00 this was an internal Vector; it's now built on each call.
      *
      * @param hexCoord  the hex coord
      * @see #hasNoResourcesForHex(int)
      */
     public Vector<IntPair> getNumberResourcePairsForHex(final int hexCoord)
     {
-        return numberAndResourceForHex.get(Integer.valueOf(hexCoord));
+        Vector<IntPair> pairs = null;
+        for (int i = 0; i < hexPairsLen; i += HEX_PAIR_LEN)
+        {
+            if (hexPairs[i] != hexCoord)
+                continue;
+
+            if (pairs == null)
+                pairs = new Vector<IntPair>();
+            for (int amt = hexPairs[i + 3]; amt > 0; --amt)
+                pairs.addElement(new IntPair(hexPairs[i + 1], hexPairs[i + 2]));
+        }
+
+        return pairs;
     }
 
     /**
@@ -364,11 +364,11 @@ public class SOCPlayerNumbers
      */
     public boolean hasNoResourcesForHex(final int hexCoord)
     {
-        Vector<IntPair> v = numberAndResourceForHex.get(Integer.valueOf(hexCoord));
-        if (v == null)
-            return true;
-        else
-            return v.isEmpty();
+        for (int i = 0; i < hexPairsLen; i += HEX_PAIR_LEN)
+            if ((hexPairs[i] == hexCoord) && (hexPairs[i + 3] > 0))
+                return false;
+
+        return true;
     }
 
     /**
@@ -376,6 +376,9 @@ public class SOCPlayerNumbers
      *<P>
      * {@link SOCBoardLarge#GOLD_HEX} is handled by adding the dice number to
      * all resource types, if {@link #hasSeaBoard}.
+     *<P>
+     * Builds a new Vector on each call, in dice number order.
+     * To avoid that, call {@link #getResourceCountForNumber(int, int, int)}.
      *
      * @return the dice numbers for a resource (as {@link Integer}s), taking the robber into account;
      *     if this resource is on two 8s (for example), there will be two {@link Integer}(8) in the
@@ -387,31 +390,7 @@ public class SOCPlayerNumbers
      */
     public Vector<Integer> getNumbersForResource(int resource, int robberHex)
     {
-        Vector<Integer> numbers = new Vector<Integer>();
-
-        if (landHexCoords == null)
-            return numbers;
-
-        for (int i = 0; i < landHexCoords.length; i++)
-        {
-            if (landHexCoords[i] == robberHex)
-                continue;
-
-            Vector<IntPair> pairs = numberAndResourceForHex.get(new Integer(landHexCoords[i]));
-            if (pairs == null)
-                continue;
-
-            for (IntPair pair : pairs)
-            {
-                final int res = pair.getB();
-                if ((res == resource) || (hasSeaBoard && (res == SOCBoardLarge.GOLD_HEX)))
-                {
-                    numbers.addElement(Integer.valueOf(pair.getA()));
-                }
-            }
-        }
-
-        return numbers;
+        return getNumbersForResource(getCounts(robberHex), resource);
     }
 
     /**
@@ -421,6 +400,9 @@ public class SOCPlayerNumbers
      * to the dice number, if {@link #hasSeaBoard}.
      * So, gold hex numbers will have 5 resources in the Vector
      * (10 for cities on gold).
+     *<P>
+     * Builds a new Vector on each call, in resource type order.
+     * To avoid that, call {@link #getResourceCountForNumber(int, int, int)}.
      *
      * @return the resources for a dice number, taking the robber into account;
      *   Integers in range {@link SOCResourceConstants#CLAY} to {@link SOCResourceConstants#WOOD}.
@@ -434,39 +416,125 @@ public class SOCPlayerNumbers
      */
     public Vector<Integer> getResourcesForNumber(final int diceNum, final int robberHex)
     {
-        Vector<Integer> resources = new Vector<Integer>();
+        return getResourcesForNumber(getCounts(robberHex), diceNum);
+    }
 
+    /**
+     * Get the amount of a resource type this player gains when a dice number is rolled,
+     * optionally taking the robber into account. Doesn't allocate any objects,
+     * unless the robber has moved since the last robber-aware call.
+     *<P>
+     * {@link SOCBoardLarge#GOLD_HEX} is handled by adding 1 of all resource types
+     * to the dice number, if {@link #hasSeaBoard}.
+     *
+     * @param diceNum  the dice roll, 2 - 12
+     * @param resource  the resource, in range {@link SOCResourceConstants#CLAY} to {@link SOCResourceConstants#WOOD}
+     * @param robberHex  the robber hex coordinate, or -1 to ignore the robber
+     * @return  the amount gained; 0 if none.
+     *     If the number yields more than one of that resource type
+     *     (a city, or multiple pieces on the hex), the amount will be more than 1.
+     * @see #getResourcesForNumber(int, int)
+     * @see #getNumbersForResource(int, int)
+     * @since 2.0.00
+     */
+    public int getResourceCountForNumber(final int diceNum, final int resource, final int robberHex)
+    {
+        final int[] counts = getCounts(robberHex);
+        return (counts != null) ? counts[diceNum * RES_ROW + resource] : 0;
+    }
+
+    /**
+     * Get the resource amounts to use for a query, optionally taking the robber into account.
+     * If the robber's hex isn't the one last calculated, calculates and caches it in {@link #robberCounts}.
+     * @param robberHex  the robber hex coordinate, or -1 to ignore the robber
+     * @return {@link #resCounts} or {@link #robberCounts}, which must not be changed by the caller;
+     *     null if {@code robberHex} != -1 and {@link #landHexCoords} is null
+     * @since 2.0.00
+     */
+    private int[] getCounts(final int robberHex)
+    {
+        if (robberHex == -1)
+            return resCounts;
         if (landHexCoords == null)
-            return resources;
+            return null;
 
-        for (int i = 0; i < landHexCoords.length; i++)
-        {
-            if (landHexCoords[i] == robberHex)
-                continue;
+        int[] counts = robberCounts;
+        if ((counts != null) && (counts[resCounts.length] == robberHex))
+            return counts;
 
-            Vector<IntPair> pairs = numberAndResourceForHex.get(Integer.valueOf(landHexCoords[i]));
-            if (pairs == null)
+        counts = new int[resCounts.length + 1];
+        System.arraycopy(resCounts, 0, counts, 0, resCounts.length);
+        counts[resCounts.length] = robberHex;
+        for (int i = 0; i < hexPairsLen; i += HEX_PAIR_LEN)
+        {
+            final int amt = hexPairs[i + 3];
+            if ((hexPairs[i] != robberHex) || (amt == 0))
                 continue;
 
-            for (IntPair pair : pairs)
+            final int row = hexPairs[i + 1] * RES_ROW, res = hexPairs[i + 2];
+            if (res == SOCBoardLarge.GOLD_HEX)
             {
-                if (pair.getA() == diceNum)
-                {
-                    final int res = pair.getB();
-                    if (hasSeaBoard && (res == SOCBoardLarge.GOLD_HEX))
-                    {
-                        for (int r = SOCResourceConstants.CLAY; r <= SOCResourceConstants.WOOD; ++r)
-                            resources.addElement(new Integer(r));
-                    } else {
-                        resources.addElement(new Integer(res));
-                    }
-                }
+                for (int r = SOCResourceConstants.CLAY; r <= SOCResourceConstants.WOOD; ++r)
+                    counts[row + r] -= amt;
+            } else {
+                counts[row + res] -= amt;
             }
         }
 
+        robberCounts = counts;
+        return counts;
+    }
+
+    /**
+     * Build a Vector of the resources for a dice number, for the Vector getters.
+     * @param counts  {@link #resCounts} or {@link #robberCounts}, or null for none
+     * @param diceNum  the dice roll, 2 - 12
+     * @return  a new Vector of resource types; may be empty
+     * @since 2.0.00
+     */
+    private static Vector<Integer> getResourcesForNumber(final int[] counts, final int diceNum)
+    {
+        final Vector<Integer> resources = new Vector<Integer>();
+        if (counts == null)
+            return resources;
+
+        final int row = diceNum * RES_ROW;
+        for (int r = SOCResourceConstants.CLAY; r <= SOCResourceConstants.WOOD; ++r)
+        {
+            final Integer resInt = Integer.valueOf(r);
+            for (int amt = counts[row + r]; amt > 0; --amt)
+                resources.addElement(resInt);
+        }
+
         return resources;
     }
 
+    /**
+     * Build a Vector of the dice numbers for a resource type, for the Vector getters.
+     * @param counts  {@link #resCounts} or {@link #robberCounts}, or null for none
+     * @param resource  the resource, in range {@link SOCResourceConstants#CLAY} to {@link SOCResourceConstants#WOOD}
+     * @return  a new Vector of dice numbers; may be empty
+     * @since 2.0.00
+     */
+    private static Vector<Integer> getNumbersForResource(final int[] counts, final int resource)
+    {
+        final Vector<Integer> numbers = new Vector<Integer>();
+        if (counts == null)
+            return numbers;
+
+        for (int diceNum = 0, i = resource; diceNum <= 12; ++diceNum, i += RES_ROW)
+        {
+            if (counts[i] == 0)
+                continue;
+
+            final Integer numInt = Integer.valueOf(diceNum);
+            for (int amt = counts[i]; amt > 0; --amt)
+                numbers.addElement(numInt);
+        }
+
+        return numbers;
+    }
+
     /**
      * add a number to the list of dice numbers for a resource
      *
@@ -479,16 +547,10 @@ public class SOCPlayerNumbers
      */
     public void addNumberForResource(final int diceNum, final int resource, final int hex)
     {
+        final int row = diceNum * RES_ROW;
         if ((resource >= SOCResourceConstants.CLAY) && (resource <= SOCResourceConstants.WOOD))
         {
-            numbersForResource[resource].addElement(new Integer(diceNum));
-
-            Integer resourceInt = new Integer(resource);
-
-            //if (!resourcesForNumber[number].contains(resourceInt)) {
-            resourcesForNumber[diceNum].addElement(resourceInt);
-
-            //}
+            ++resCounts[row + resource];
         }
         else
         {
@@ -498,24 +560,34 @@ public class SOCPlayerNumbers
             }
 
             // GOLD_HEX: Add all 5 resource types
-            final Integer diceNumInt = new Integer(diceNum);
             for (int res = SOCResourceConstants.CLAY; res <= SOCResourceConstants.WOOD; ++res)
+                ++resCounts[row + res];
+
+            // GOLD_HEX is okay in hexPairs.
+        }
+
+        robberCounts = null;
+
+        for (int i = 0; i < hexPairsLen; i += HEX_PAIR_LEN)
+        {
+            if ((hexPairs[i] == hex) && (hexPairs[i + 1] == diceNum) && (hexPairs[i + 2] == resource))
             {
-                numbersForResource[res].addElement(diceNumInt);
-                resourcesForNumber[diceNum].addElement(new Integer(res));
+                ++hexPairs[i + 3];
+                return;
             }
-
-            // GOLD_HEX is okay in numberAndResourceForHex.
         }
 
-        final Integer hexInt = new Integer(hex);
-        Vector<IntPair> pairs = numberAndResourceForHex.get(hexInt);
-        if (pairs == null)
+        if (hexPairsLen == hexPairs.length)
         {
-            pairs = new Vector<IntPair>();
-            numberAndResourceForHex.put(hexInt, pairs);
+            int[] pairs = new int[2 * hexPairsLen];
+            System.arraycopy(hexPairs, 0, pairs, 0, hexPairsLen);
+            hexPairs = pairs;
         }
-        pairs.addElement(new IntPair(diceNum, resource));
+        hexPairs[hexPairsLen] = hex;
+        hexPairs[hexPairsLen + 1] = diceNum;
+        hexPairs[hexPairsLen + 2] = resource;
+        hexPairs[hexPairsLen + 3] = 1;
+        hexPairsLen += HEX_PAIR_LEN;
     }
 
     /**
@@ -564,25 +636,11 @@ public class SOCPlayerNumbers
      */
     public void undoAddNumberForResource(int number, int resource, int hex)
     {
+        final int row = number * RES_ROW;
         if ((resource >= SOCResourceConstants.CLAY) && (resource <= SOCResourceConstants.WOOD))
         {
-            for (Integer num : numbersForResource[resource])
-            {
-                if (num.intValue() == number)
-                {
-                    numbersForResource[resource].removeElement(num);
-                    break;
-                }
-            }
-
-            for (Integer resourceInt : resourcesForNumber[number])
-            {
-                if (resourceInt.intValue() == resource)
-                {
-                    resourcesForNumber[number].removeElement(resourceInt);
-                    break;
-                }
-            }
+            if (resCounts[row + resource] > 0)
+                --resCounts[row + resource];
         }
         else
         {
@@ -592,47 +650,22 @@ public class SOCPlayerNumbers
             }
 
             // GOLD_HEX: Remove all 5 resource types.
-            // To simplify multiple removal, use Iterator not Enumeration.
-
             for (int res = SOCResourceConstants.CLAY; res <= SOCResourceConstants.WOOD; ++res)
-            {
-                Iterator<Integer> numIter = numbersForResource[res].iterator();
-                while (numIter.hasNext())
-                {
-                    final int num = numIter.next().intValue();
-                    if (num == number)
-                    {
-                        numIter.remove();
-                        break;
-                    }
-                }
-            }
+                if (resCounts[row + res] > 0)
+                    --resCounts[row + res];
 
-            boolean[] removed = new boolean[SOCResourceConstants.UNKNOWN];  // range CLAY to WOOD
-            Iterator<Integer> resIter = resourcesForNumber[number].iterator();
-            while (resIter.hasNext())
-            {
-                final int res = resIter.next().intValue();
-                if (! removed[res])
-                {
-                    resIter.remove();
-                    removed[res] = true;
-                }
-            }
-
-            // GOLD_HEX will be in numberAndResourceForHex.
+            // GOLD_HEX will be in hexPairs.
         }
 
-        Vector<IntPair> pairs = numberAndResourceForHex.get(Integer.valueOf(hex));
-        if (pairs != null)
+        robberCounts = null;
+
+        for (int i = 0; i < hexPairsLen; i += HEX_PAIR_LEN)
         {
-            for (IntPair numAndResource : pairs)
+            if ((hexPairs[i] == hex) && (hexPairs[i + 1] == number) && (hexPairs[i + 2] == resource))
             {
-                if ((numAndResource.getA() == number) && (numAndResource.getB() == resource))
-                {
-                    pairs.removeElement(numAndResource);
-                    break;
-                }
+                if (hexPairs[i + 3] > 0)
+                    --hexPairs[i + 3];
+                break;
             }
         }
     }
@@ -645,7 +678,12 @@ public class SOCPlayerNumbers
      */
     public boolean hasNumber(int number)
     {
-        return !resourcesForNumber[number].isEmpty();
+        final int row = number * RES_ROW;
+        for (int r = SOCResourceConstants.CLAY; r <= SOCResourceConstants.WOOD; ++r)
+            if (resCounts[row + r] != 0)
+                return true;
+
+        return false;
     }
 
     /**
@@ -654,21 +692,21 @@ public class SOCPlayerNumbers
     @Override
     public String toString()
     {
-        String str = "SOCPN:";
+        StringBuilder sb = new StringBuilder("SOCPN:");
 
         for (int i = SOCResourceConstants.CLAY; i <= SOCResourceConstants.WOOD;
                 i++)
         {
-            str += (i + ":");
+            sb.append(i).append(':');
 
-            for (Integer num : numbersForResource[i])
+            for (Integer num : getNumbersForResource(i))
             {
-                str += (num + ",");
+                sb.append(num).append(',');
             }
 
-            str += "|";
+            sb.append('|');
         }
 
-        return str;
+        return sb.toString();
     }
 }
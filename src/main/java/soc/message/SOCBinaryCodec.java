@@ -0,0 +1,638 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.message;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+
+/**
+ * Optional compact binary encoding of the network message protocol, which a client can ask to use
+ * during the {@link SOCVersion} exchange. Text remains the default; see "Negotiation" below.
+ *<P>
+ * On the network every message is a frame: A 2-byte unsigned length, followed by that many bytes of payload.
+ * Normally the payload is the message's text from {@link SOCMessage#toCmd()} in "modified UTF-8",
+ * as written by {@link DataOutputStream#writeUTF(String)}. A binary payload instead starts with a 0 byte,
+ * which can never begin a text payload (modified UTF-8 encodes '\u0000' as 2 nonzero bytes).
+ * So a reader can accept both kinds of frame at any time with {@link #readFrame(DataInputStream)}
+ * or {@link #decodePayload(byte[], int, int)}, and no message needs to mark when a connection switches to binary.
+ *
+ *<H3>Binary payload format, version 1:</H3>
+ * This is a lossless re-encoding of the message text, so decoding returns exactly
+ * the same String that was encoded and each message type's parsing is unchanged.
+ *<UL>
+ * <LI> Byte 0: 0, the binary marker
+ * <LI> Byte 1: Format version, currently 1 ({@link #FORMAT_VERSION})
+ * <LI> Message type ID, as an unsigned varint
+ * <LI> Then the rest of the text, split at each {@link SOCMessage#sep_char sep} or {@link SOCMessage#sep2_char sep2}
+ *      into separator+field pieces. Each piece starts with a header byte: Bits 0-1 are its separator
+ *      (1 = sep, 2 = sep2), bits 2-3 its kind, bits 4-7 a small value {@code s} (0-15) described here:
+ *   <UL>
+ *    <LI> 0: Text field: Byte length: {@code s} if &lt; 15, otherwise an unsigned varint;
+ *         then modified UTF-8 bytes
+ *    <LI> 1: Integer field in canonical decimal form: {@code s - 1} if {@code s} != 0, otherwise a zigzag varint
+ *    <LI> 2: Run of 2 or more integer fields separated by sep2, such as a list of board coordinates:
+ *         Count: {@code s} if != 0, otherwise an unsigned varint; then each value as a zigzag varint
+ *    <LI> 3: Array-length field like "[37" from {@link SOCBoardLayout2}: '[' then an integer, encoded like kind 1
+ *   </UL>
+ *</UL>
+ * Varints are 7 bits per byte, low bits first, high bit set on all but the last byte.
+ * A short text field takes the same space as in text; a small integer field like "3" or "12" takes 1 byte;
+ * an integer field like "1029" (4 bytes plus separator in text) takes 3 bytes, and a run of them about half
+ * the text's size, so coordinate-heavy messages like {@link SOCBoardLayout2} and {@link SOCPotentialSettlements}
+ * shrink the most. Messages which don't start with a canonical type number, or whose binary form would be
+ * too long, are sent as text frames instead.
+ *
+ *<H3>Negotiation:</H3>
+ * A server which can decode binary frames lists {@link soc.util.SOCServerFeatures#FEAT_BINARY_PROTO}
+ * in its {@link SOCVersion}'s features. A client (v2.0.00 or newer) asks for binary by appending
+ * {@link #CLIENT_VERSION_FLAG} to the locale field of its own {@code SOCVersion}; see {@link #withClientFlag(String)}.
+ * Each side sends binary frames only after it sees the other side's flag, and always accepts either kind.
+ * Old clients and servers never see a binary frame.
+ *
+ * @since 2.0.00
+ */
+public final class SOCBinaryCodec
+{
+    /** Binary payload format version written by this class. */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * Flag appended by a client to its {@link SOCVersion}'s locale field to ask for binary frames:
+     * {@code ";bin1;"}, same format as an encoded {@link soc.util.SOCServerFeatures} list.
+     * The server looks for it with {@link #hasClientFlag(String)} and strips it with {@link #stripClientFlag(String)}.
+     */
+    public static final String CLIENT_VERSION_FLAG = ";bin1;";
+
+    /** First byte of a binary payload. */
+    private static final byte MARKER = 0;
+
+    /** Header byte separator codes */
+    private static final int HDR_SEP = 1, HDR_SEP2 = 2;
+
+    /** Header byte kind codes, shifted into bits 2-3 */
+    private static final int KIND_TEXT = 0, KIND_INT = 1 << 2, KIND_RUN = 2 << 2, KIND_BRACKET_INT = 3 << 2;
+
+    /** Header byte's small-value field, in bits 4-7 */
+    private static final int HDR_SMALL_SHIFT = 4, HDR_SMALL_MAX = 15;
+
+    private SOCBinaryCodec() {}
+
+    /**
+     * Append the binary-protocol request flag to a client's locale string for {@link SOCVersion}.
+     * @param locale  Client locale, or null
+     * @return  {@code locale} + {@link #CLIENT_VERSION_FLAG}
+     */
+    public static String withClientFlag(final String locale)
+    {
+        return (locale != null) ? (locale + CLIENT_VERSION_FLAG) : CLIENT_VERSION_FLAG;
+    }
+
+    /**
+     * Does this {@link SOCVersion} locale field from a client ask for binary frames?
+     * @param localeField  Client's {@link SOCVersion#localeOrFeats}, or null
+     * @return  True if it contains {@link #CLIENT_VERSION_FLAG}
+     */
+    public static boolean hasClientFlag(final String localeField)
+    {
+        return (localeField != null) && localeField.contains(CLIENT_VERSION_FLAG);
+    }
+
+    /**
+     * Remove any client feature flags from a {@link SOCVersion} locale field, leaving only the locale.
+     * @param localeField  Client's {@link SOCVersion#localeOrFeats}, or null
+     * @return  The locale part, or null if none
+     */
+    public static String stripClientFlag(final String localeField)
+    {
+        if (localeField == null)
+            return null;
+
+        final int i = localeField.indexOf(';');
+        if (i == -1)
+            return localeField;
+
+        return (i > 0) ? localeField.substring(0, i) : null;
+    }
+
+    /**
+     * Read one frame, text or binary, from a stream and decode it.
+     * Like {@link DataInputStream#readUTF()}, blocks until the whole frame has arrived.
+     * @param in  Stream to read from
+     * @return  The message text
+     * @throws IOException if the stream throws it, or the frame is malformed
+     *     ({@link UTFDataFormatException})
+     */
+    public static String readFrame(final DataInputStream in)
+        throws IOException
+    {
+        return readFrame(in, null);
+    }
+
+    /**
+     * Read one frame, text or binary, from a stream and decode it, and report its size on the wire.
+     * Like {@link DataInputStream#readUTF()}, blocks until the whole frame has arrived.
+     * @param in  Stream to read from
+     * @param frameSize  If not null, element 0 is set to the number of bytes read
+     *     for the frame, including its 2-byte length
+     * @return  The message text
+     * @throws IOException if the stream throws it, or the frame is malformed
+     *     ({@link UTFDataFormatException})
+     * @see #readFrame(DataInputStream)
+     */
+    public static String readFrame(final DataInputStream in, final int[] frameSize)
+        throws IOException
+    {
+        final int len = in.readUnsignedShort();
+        final byte[] b = new byte[len];
+        in.readFully(b);
+        if (frameSize != null)
+            frameSize[0] = 2 + len;
+
+        return decodePayload(b, 0, len);
+    }
+
+    /**
+     * Encode and write one frame to a stream, without flushing.
+     * @param out  Stream to write to
+     * @param msg  Message text to write
+     * @param binary  If true, write a binary frame if possible; otherwise same as {@link DataOutputStream#writeUTF(String)}
+     * @return  Number of bytes written for the frame, including its 2-byte length
+     * @throws IOException if the stream throws it, or {@code msg} is too long ({@link UTFDataFormatException})
+     */
+    public static int writeFrame(final DataOutputStream out, final String msg, final boolean binary)
+        throws IOException
+    {
+        if (binary)
+        {
+            final byte[] f = encodeBinaryFrame(msg);
+            if (f != null)
+            {
+                out.write(f);
+                return f.length;
+            }
+        }
+
+        out.writeUTF(msg);
+        return 2 + modifiedUTF8Length(msg);
+    }
+
+    /**
+     * Length of a string encoded in modified UTF-8, as written by {@link DataOutputStream#writeUTF(String)}
+     * after its 2-byte length: 1 byte for each char from 0x0001 to 0x007F,
+     * 2 bytes for 0x0000 and chars up to 0x07FF, otherwise 3 bytes.
+     * @param str  String to measure
+     * @return  Encoded length in bytes, not including the 2-byte length
+     */
+    public static int modifiedUTF8Length(final String str)
+    {
+        final int L = str.length();
+        int n = L;
+        for (int i = 0; i < L; ++i)
+        {
+            final char c = str.charAt(i);
+            if ((c == 0) || (c > 0x7F))
+                n += (c > 0x7FF) ? 2 : 1;
+        }
+
+        return n;
+    }
+
+    /**
+     * Decode a frame's payload, text or binary.
+     * @param b  Buffer holding the payload, without its 2-byte length
+     * @param off  Payload's offset within {@code b}
+     * @param len  Payload length
+     * @return  The message text
+     * @throws UTFDataFormatException if the payload is malformed
+     */
+    public static String decodePayload(final byte[] b, final int off, final int len)
+        throws UTFDataFormatException
+    {
+        if ((len > 0) && (b[off] == MARKER))
+            return decodeBinary(b, off, len);
+        else
+            return decodeModifiedUTF8(b, off, len);
+    }
+
+    /**
+     * Encode a message as a binary frame, including its 2-byte length.
+     * @param msg  Message text, from {@link SOCMessage#toCmd()}
+     * @return  The binary frame, or null if {@code msg} can't be binary-encoded
+     *     (doesn't start with a canonical type number, or too long): Send it as text instead
+     */
+    public static byte[] encodeBinaryFrame(final String msg)
+    {
+        final int L = msg.length();
+
+        // Message type
+        int i = 0;
+        while ((i < L) && isDigit(msg.charAt(i)))
+            ++i;
+        if ((i == 0) || (i > 9) || ((i > 1) && (msg.charAt(0) == '0')))
+            return null;
+        if ((i < L) && ! isSep(msg.charAt(i)))
+            return null;
+
+        final Buf buf = new Buf(L + 8);
+        buf.n = 2;  // length, filled in at end
+        buf.put(MARKER);
+        buf.put((byte) FORMAT_VERSION);
+        buf.putVarint(SOCMessageCursor.parseInt(msg, 0, i));
+
+        // Pieces: separator + field
+        while (i < L)
+        {
+            final char sep = msg.charAt(i);
+            final int fStart = i + 1;
+            int fEnd = fStart;
+            while ((fEnd < L) && ! isSep(msg.charAt(fEnd)))
+                ++fEnd;
+            final int sepCode = (sep == SOCMessage.sep_char) ? HDR_SEP : HDR_SEP2;
+
+            if ((fEnd - fStart >= 2) && (msg.charAt(fStart) == '[') && isCanonicalInt(msg, fStart + 1, fEnd))
+            {
+                buf.putIntField(sepCode | KIND_BRACKET_INT, parseLong(msg, fStart + 1, fEnd));
+                i = fEnd;
+                continue;
+            }
+            else if (! isCanonicalInt(msg, fStart, fEnd))
+            {
+                buf.putModifiedUTF8(sepCode | KIND_TEXT, msg, fStart, fEnd);
+                i = fEnd;
+                continue;
+            }
+
+            // Integer: Is it the start of a run of integers?
+            int runEnd = fEnd, count = 1;
+            while ((runEnd < L) && (msg.charAt(runEnd) == SOCMessage.sep2_char))
+            {
+                int nEnd = runEnd + 1;
+                while ((nEnd < L) && ! isSep(msg.charAt(nEnd)))
+                    ++nEnd;
+                if (! isCanonicalInt(msg, runEnd + 1, nEnd))
+                    break;
+                ++count;
+                runEnd = nEnd;
+            }
+
+            if (count == 1)
+            {
+                buf.putIntField(sepCode | KIND_INT, parseLong(msg, fStart, fEnd));
+            } else {
+                if (count <= HDR_SMALL_MAX)
+                {
+                    buf.put((byte) (sepCode | KIND_RUN | (count << HDR_SMALL_SHIFT)));
+                } else {
+                    buf.put((byte) (sepCode | KIND_RUN));
+                    buf.putVarint(count);
+                }
+                int s = fStart;
+                for (int k = 0; k < count; ++k)
+                {
+                    int e = s;
+                    while ((e < runEnd) && (msg.charAt(e) != SOCMessage.sep2_char))
+                        ++e;
+                    buf.putZigzag(parseLong(msg, s, e));
+                    s = e + 1;
+                }
+            }
+            i = runEnd;
+        }
+
+        final int plen = buf.n - 2;
+        if (plen > 0xFFFF)
+            return null;
+        buf.a[0] = (byte) (plen >>> 8);
+        buf.a[1] = (byte) plen;
+
+        if (buf.n == buf.a.length)
+            return buf.a;
+        final byte[] ret = new byte[buf.n];
+        System.arraycopy(buf.a, 0, ret, 0, buf.n);
+        return ret;
+    }
+
+    /**
+     * Decode a binary payload into message text.
+     * @param b  Buffer holding the payload; {@code b[off]} is the binary marker
+     * @param off  Payload's offset within {@code b}
+     * @param len  Payload length
+     * @return  The message text
+     * @throws UTFDataFormatException if the payload is malformed or an unknown format version
+     */
+    private static String decodeBinary(final byte[] b, final int off, final int len)
+        throws UTFDataFormatException
+    {
+        if ((len < 3) || (b[off + 1] != FORMAT_VERSION))
+            throw new UTFDataFormatException("binary frame: unknown format");
+
+        final int end = off + len;
+        final int[] pos = { off + 2 };
+        final StringBuilder sb = new StringBuilder(len * 2);
+        try
+        {
+            sb.append(readVarint(b, pos, end));
+            while (pos[0] < end)
+            {
+                final int hdr = b[pos[0]++] & 0xFF;
+                final int sepCode = hdr & 3, kind = hdr & 0x0C, small = hdr >> HDR_SMALL_SHIFT;
+                if (sepCode == HDR_SEP)
+                    sb.append(SOCMessage.sep_char);
+                else if (sepCode == HDR_SEP2)
+                    sb.append(SOCMessage.sep2_char);
+                else
+                    throw new UTFDataFormatException("binary frame: bad header");
+
+                switch (kind)
+                {
+                case KIND_TEXT:
+                    {
+                        final int n = (small < HDR_SMALL_MAX) ? small : (int) readVarint(b, pos, end);
+                        if ((n < 0) || (pos[0] + n > end))
+                            throw new UTFDataFormatException("binary frame: bad length");
+                        appendModifiedUTF8(b, pos[0], n, sb);
+                        pos[0] += n;
+                    }
+                    break;
+
+                case KIND_INT:
+                    sb.append((small != 0) ? (small - 1) : readZigzag(b, pos, end));
+                    break;
+
+                case KIND_BRACKET_INT:
+                    sb.append('[').append((small != 0) ? (small - 1) : readZigzag(b, pos, end));
+                    break;
+
+                case KIND_RUN:
+                    {
+                        final int n = (small != 0) ? small : (int) readVarint(b, pos, end);
+                        for (int k = 0; k < n; ++k)
+                        {
+                            if (k > 0)
+                                sb.append(SOCMessage.sep2_char);
+                            sb.append(readZigzag(b, pos, end));
+                        }
+                    }
+                    break;
+
+                default:
+                    throw new UTFDataFormatException("binary frame: bad header");
+                }
+            }
+        }
+        catch (ArrayIndexOutOfBoundsException e)
+        {
+            throw new UTFDataFormatException("binary frame: truncated");
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Decode modified UTF-8 text, same as {@link DataInputStream#readUTF()} after its 2-byte length.
+     * @throws UTFDataFormatException if malformed
+     */
+    private static String decodeModifiedUTF8(final byte[] b, final int off, final int len)
+        throws UTFDataFormatException
+    {
+        final StringBuilder sb = new StringBuilder(len);
+        appendModifiedUTF8(b, off, len, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Decode modified UTF-8 bytes and append the chars to {@code sb}.
+     * @throws UTFDataFormatException if malformed
+     */
+    private static void appendModifiedUTF8(final byte[] b, int i, final int len, final StringBuilder sb)
+        throws UTFDataFormatException
+    {
+        final int end = i + len;
+        while (i < end)
+        {
+            final int c = b[i] & 0xFF;
+            switch (c >> 4)
+            {
+            case 0: case 1: case 2: case 3: case 4: case 5: case 6: case 7:
+                sb.append((char) c);
+                ++i;
+                break;
+
+            case 12: case 13:
+                {
+                    if (i + 2 > end)
+                        throw new UTFDataFormatException("malformed input: partial character at end");
+                    final int c2 = b[i + 1];
+                    if ((c2 & 0xC0) != 0x80)
+                        throw new UTFDataFormatException("malformed input around byte " + (i + 1));
+                    sb.append((char) (((c & 0x1F) << 6) | (c2 & 0x3F)));
+                    i += 2;
+                }
+                break;
+
+            case 14:
+                {
+                    if (i + 3 > end)
+                        throw new UTFDataFormatException("malformed input: partial character at end");
+                    final int c2 = b[i + 1], c3 = b[i + 2];
+                    if (((c2 & 0xC0) != 0x80) || ((c3 & 0xC0) != 0x80))
+                        throw new UTFDataFormatException("malformed input around byte " + (i + 2));
+                    sb.append((char) (((c & 0x0F) << 12) | ((c2 & 0x3F) << 6) | (c3 & 0x3F)));
+                    i += 3;
+                }
+                break;
+
+            default:
+                throw new UTFDataFormatException("malformed input around byte " + i);
+            }
+        }
+    }
+
+    private static long readVarint(final byte[] b, final int[] pos, final int end)
+        throws UTFDataFormatException
+    {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            if (pos[0] >= end)
+                throw new UTFDataFormatException("binary frame: truncated varint");
+            final int by = b[pos[0]++];
+            v |= (long) (by & 0x7F) << shift;
+            if ((by & 0x80) == 0)
+                return v;
+        }
+
+        throw new UTFDataFormatException("binary frame: bad varint");
+    }
+
+    private static long readZigzag(final byte[] b, final int[] pos, final int end)
+        throws UTFDataFormatException
+    {
+        final long v = readVarint(b, pos, end);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static boolean isDigit(final char c)
+    {
+        return (c >= '0') && (c <= '9');
+    }
+
+    private static boolean isSep(final char c)
+    {
+        return (c == SOCMessage.sep_char) || (c == SOCMessage.sep2_char);
+    }
+
+    /**
+     * Is this field an integer in the form that {@link StringBuilder#append(long)} would print it,
+     * so it can be binary-encoded and decoded back to the same text?
+     * Limited to 18 digits to avoid overflow checks.
+     */
+    private static boolean isCanonicalInt(final String s, int start, final int end)
+    {
+        if ((start < end) && (s.charAt(start) == '-'))
+            ++start;
+        final int n = end - start;
+        if ((n == 0) || (n > 18))
+            return false;
+        final char c0 = s.charAt(start);
+        if (c0 == '0')
+            return (n == 1) && (s.charAt(start - 1) != '-');  // "0" but not "-0" or "01"
+        for (int i = start; i < end; ++i)
+            if (! isDigit(s.charAt(i)))
+                return false;
+
+        return true;
+    }
+
+    /** Parse a field already checked by {@link #isCanonicalInt(String, int, int)}. */
+    private static long parseLong(final String s, int start, final int end)
+    {
+        final boolean neg = (s.charAt(start) == '-');
+        if (neg)
+            ++start;
+        long v = 0;
+        for (int i = start; i < end; ++i)
+            v = v * 10 + (s.charAt(i) - '0');
+
+        return neg ? -v : v;
+    }
+
+    /** Minimal growable byte buffer for encoding, without {@link java.io.ByteArrayOutputStream}'s synchronization. */
+    private static final class Buf
+    {
+        byte[] a;
+        int n;
+
+        Buf(final int size)
+        {
+            a = new byte[size];
+        }
+
+        private void ensure(final int more)
+        {
+            if (n + more > a.length)
+            {
+                final byte[] b2 = new byte[Math.max(a.length * 2, n + more)];
+                System.arraycopy(a, 0, b2, 0, n);
+                a = b2;
+            }
+        }
+
+        void put(final byte b)
+        {
+            ensure(1);
+            a[n++] = b;
+        }
+
+        void putVarint(long v)
+        {
+            ensure(10);
+            while ((v & ~0x7FL) != 0)
+            {
+                a[n++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            a[n++] = (byte) v;
+        }
+
+        void putZigzag(final long v)
+        {
+            putVarint((v << 1) ^ (v >> 63));
+        }
+
+        /**
+         * Write an integer field: Header byte with the value in its small field if 0 to 14,
+         * otherwise header byte and zigzag varint.
+         * @param hdr  Header byte's separator and kind bits
+         * @param v  Value to write
+         */
+        void putIntField(final int hdr, final long v)
+        {
+            if ((v >= 0) && (v < HDR_SMALL_MAX))
+            {
+                put((byte) (hdr | ((int) (v + 1) << HDR_SMALL_SHIFT)));
+            } else {
+                put((byte) hdr);
+                putZigzag(v);
+            }
+        }
+
+        /**
+         * Write a text field: Header byte with the byte length in its small field if &lt; 15,
+         * otherwise header byte and varint byte length; then the modified UTF-8 encoding of {@code s[start, end)}.
+         * @param hdr  Header byte's separator and kind bits
+         */
+        void putModifiedUTF8(final int hdr, final String s, final int start, final int end)
+        {
+            int blen = 0;
+            for (int i = start; i < end; ++i)
+            {
+                final char c = s.charAt(i);
+                blen += ((c >= 1) && (c <= 0x7F)) ? 1 : ((c <= 0x7FF) ? 2 : 3);
+            }
+            if (blen < HDR_SMALL_MAX)
+            {
+                put((byte) (hdr | (blen << HDR_SMALL_SHIFT)));
+            } else {
+                put((byte) (hdr | (HDR_SMALL_MAX << HDR_SMALL_SHIFT)));
+                putVarint(blen);
+            }
+            ensure(blen);
+            for (int i = start; i < end; ++i)
+            {
+                final char c = s.charAt(i);
+                if ((c >= 1) && (c <= 0x7F))
+                {
+                    a[n++] = (byte) c;
+                } else if (c <= 0x7FF) {
+                    a[n++] = (byte) (0xC0 | (c >> 6));
+                    a[n++] = (byte) (0x80 | (c & 0x3F));
+                } else {
+                    a[n++] = (byte) (0xE0 | (c >> 12));
+                    a[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    a[n++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+    }
+
+}
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message reports total of what was rolled on the dice.
@@ -91,18 +89,31 @@ public class SOCDiceResult extends SOCMessageTemplate1i
      *
      * @param s   the String to parse: DICERESULT sep game sep2 result
      * @return    a DiceResult message, or null if the data is garbled
+     * @see #parseDataStr(SOCMessageCursor)
      */
     public static SOCDiceResult parseDataStr(String s)
+    {
+        return parseDataStr(new SOCMessageCursor(s));
+    }
+
+    /**
+     * Parse the command String's data fields into a DiceResult message, using a cursor
+     * instead of allocating substrings and a tokenizer.
+     * Called from {@link SOCMessage#toMsg(String)}.
+     *
+     * @param st  Cursor over the data fields, after the message type and {@link #sep}
+     * @return    a DiceResult message, or null if the data is garbled
+     * @since 2.0.00
+     */
+    public static SOCDiceResult parseDataStr(SOCMessageCursor st)
     {
         String ga; // the game name
         int dr; // the dice result
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            dr = Integer.parseInt(st.nextToken());
+            ga = st.next();
+            dr = st.nextInt();
         }
         catch (Exception e)
         {
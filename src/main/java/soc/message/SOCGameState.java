@@ -20,7 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
 import soc.game.SOCGame;  // for javadoc's use
 
 
@@ -115,18 +114,31 @@ public class SOCGameState extends SOCMessage
      *
      * @param s   the String to parse
      * @return    a GameState message, or null if the data is garbled
+     * @see #parseDataStr(SOCMessageCursor)
      */
     public static SOCGameState parseDataStr(String s)
+    {
+        return parseDataStr(new SOCMessageCursor(s));
+    }
+
+    /**
+     * Parse the command String's data fields into a GameState message, using a cursor
+     * instead of allocating substrings and a tokenizer.
+     * Called from {@link SOCMessage#toMsg(String)}.
+     *
+     * @param st  Cursor over the data fields, after the message type and {@link #sep}
+     * @return    a GameState message, or null if the data is garbled
+     * @since 2.0.00
+     */
+    public static SOCGameState parseDataStr(SOCMessageCursor st)
     {
         String ga;
         int gs;
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            gs = Integer.parseInt(st.nextToken());
+            ga = st.next();
+            gs = st.nextInt();
         }
         catch (Exception e)
         {
@@ -24,8 +24,6 @@ import soc.game.SOCResourceConstants;
 import soc.game.SOCResourceSet;
 import soc.game.SOCTradeOffer;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that a player wants to trade with other players
@@ -126,8 +124,23 @@ public class SOCMakeOffer extends SOCMessage
      *
      * @param s   the String to parse
      * @return    a MakeOffer message, or null if the data is garbled
+     * @see #parseDataStr(SOCMessageCursor)
      */
     public static SOCMakeOffer parseDataStr(String s)
+    {
+        return parseDataStr(new SOCMessageCursor(s));
+    }
+
+    /**
+     * Parse the command String's data fields into a MakeOffer message, using a cursor
+     * instead of allocating substrings and a tokenizer.
+     * Called from {@link SOCMessage#toMsg(String)}.
+     *
+     * @param st  Cursor over the data fields, after the message type and {@link #sep}
+     * @return    a MakeOffer message, or null if the data is garbled
+     * @since 2.0.00
+     */
+    public static SOCMakeOffer parseDataStr(SOCMessageCursor st)
     {
         String ga; // the game name
         int from; // the number of the offering player
@@ -138,18 +151,16 @@ public class SOCMakeOffer extends SOCMessage
         give = new SOCResourceSet();
         get = new SOCResourceSet();
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            from = Integer.parseInt(st.nextToken());
-            final int numPlayerTokens = st.countTokens() - (2 * 5);  // Should be == game.maxPlayers
+            ga = st.next();
+            from = st.nextInt();
+            final int numPlayerTokens = st.countRemaining() - (2 * 5);  // Should be == game.maxPlayers
             to = new boolean[numPlayerTokens];
 
             for (int i = 0; i < numPlayerTokens; i++)
             {
-                to[i] = (Boolean.valueOf(st.nextToken())).booleanValue();
+                to[i] = st.nextBoolean();
             }
 
             /**
@@ -157,12 +168,12 @@ public class SOCMakeOffer extends SOCMessage
              */
             for (int i = 1; i <= SOCResourceConstants.WOOD; i++)
             {
-                give.setAmount(Integer.parseInt(st.nextToken()), i);
+                give.setAmount(st.nextInt(), i);
             }
 
             for (int i = 1; i <= SOCResourceConstants.WOOD; i++)
             {
-                get.setAmount(Integer.parseInt(st.nextToken()), i);
+                get.setAmount(st.nextInt(), i);
             }
         }
         catch (Exception e)
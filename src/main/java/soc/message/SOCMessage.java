@@ -559,6 +559,12 @@ public abstract class SOCMessage implements Serializable, Cloneable
      * Convert a string into a SOCMessage.
      * The string is in the form of "id SEP messagename {SEP2 messagedata}*".
      * If the message type id is unknown, this is printed to System.err.
+     *<P>
+     * High-volume message types with a single {@link #sep} are parsed in place with a {@link SOCMessageCursor},
+     * without allocating a tokenizer or substrings for their int fields:
+     * {@link SOCPutPiece}, {@link SOCPlayerElement}, {@link SOCDiceResult}, {@link SOCGameState},
+     * {@link SOCMakeOffer}, {@link SOCTurn}. Other types are split with {@link StringTokenizer}
+     * and passed to their {@code parseDataStr(String)}.
      *
      * @param s  String to convert
      * @return   converted String to a SOCMessage, or null if the string is garbled,
@@ -568,6 +574,39 @@ public abstract class SOCMessage implements Serializable, Cloneable
     {
         try
         {
+            /**
+             * Fast path for high-volume types: Parse data fields in place.
+             * Any other message type falls through to StringTokenizer parsing.
+             */
+            final int sepIdx = s.indexOf(sep_char);
+            if ((sepIdx > 0) && (-1 == s.indexOf(sep_char, sepIdx + 1)))
+            {
+                final int len = s.length();
+                switch (SOCMessageCursor.parseInt(s, 0, sepIdx))
+                {
+                case PUTPIECE:
+                    return SOCPutPiece.parseDataStr(new SOCMessageCursor(s, sepIdx + 1, len));
+
+                case PLAYERELEMENT:
+                    return SOCPlayerElement.parseDataStr(new SOCMessageCursor(s, sepIdx + 1, len));
+
+                case DICERESULT:
+                    return SOCDiceResult.parseDataStr(new SOCMessageCursor(s, sepIdx + 1, len));
+
+                case GAMESTATE:
+                    return SOCGameState.parseDataStr(new SOCMessageCursor(s, sepIdx + 1, len));
+
+                case MAKEOFFER:
+                    return SOCMakeOffer.parseDataStr(new SOCMessageCursor(s, sepIdx + 1, len));
+
+                case TURN:
+                    return SOCTurn.parseDataStr(new SOCMessageCursor(s, sepIdx + 1, len));
+
+                default:
+                    // fall through to tokenizer below
+                }
+            }
+
             StringTokenizer st = new StringTokenizer(s, sep);
 
             /**
@@ -0,0 +1,240 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.message;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Cursor over the {@link SOCMessage#sep2_char}-separated fields of a message's data string,
+ * for parsing without the substring and tokenizer allocations of {@link java.util.StringTokenizer}.
+ * Integer fields are parsed in place by {@link #nextInt()}; only {@link #next()} allocates,
+ * for fields such as game names which the message needs to keep as a String.
+ *<P>
+ * Tokens are found the same way as {@code new StringTokenizer(s, SOCMessage.sep2)}:
+ * Consecutive separators are skipped, so there are no empty tokens.
+ * So a message type's {@code parseDataStr} can be ported from StringTokenizer
+ * by replacing {@code st.nextToken()} calls with this cursor's methods:
+ *<UL>
+ * <LI> {@code st.nextToken()} &rarr; {@link #next()}
+ * <LI> {@code Integer.parseInt(st.nextToken())} &rarr; {@link #nextInt()}
+ * <LI> {@code st.nextToken().equals("Y")} &rarr; {@link #nextEquals(String) nextEquals("Y")}
+ * <LI> {@code Boolean.valueOf(st.nextToken()).booleanValue()} &rarr; {@link #nextBoolean()}
+ * <LI> {@code st.hasMoreTokens()}, {@code st.countTokens()} &rarr; {@link #hasNext()}, {@link #countRemaining()}
+ *</UL>
+ * Like StringTokenizer's, these methods throw {@link NoSuchElementException} when no tokens remain,
+ * and {@link #nextInt()} throws {@link NumberFormatException} for the same values as {@link Integer#parseInt(String)}.
+ *<P>
+ * Used by {@link SOCMessage#toMsg(String)} for high-volume message types; see that method for the list.
+ * Not thread-safe; meant to be created for each message being parsed.
+ *
+ * @since 2.0.00
+ */
+public final class SOCMessageCursor
+{
+    /** String being parsed */
+    private final String str;
+
+    /** End of the range being parsed, exclusive */
+    private final int end;
+
+    /** Current position in {@link #str} */
+    private int pos;
+
+    /**
+     * Create a cursor over an entire data string.
+     * @param s  Data string to parse, such as {@code "gamename,3,1,0x405"}; not null
+     */
+    public SOCMessageCursor(final String s)
+    {
+        this(s, 0, s.length());
+    }
+
+    /**
+     * Create a cursor over part of a string, such as a whole message's data after its {@link SOCMessage#sep_char}.
+     * @param s  String to parse; not null
+     * @param start  Starting index within {@code s}
+     * @param end  Ending index, exclusive
+     */
+    public SOCMessageCursor(final String s, final int start, final int end)
+    {
+        str = s;
+        pos = start;
+        this.end = end;
+    }
+
+    /**
+     * Are any tokens remaining?
+     * @return true if {@link #next()} would return a token
+     */
+    public boolean hasNext()
+    {
+        skipSeparators();
+        return (pos < end);
+    }
+
+    /**
+     * Count the remaining tokens without moving the cursor.
+     * @return number of tokens remaining, or 0
+     */
+    public int countRemaining()
+    {
+        int n = 0;
+        boolean inToken = false;
+        for (int i = pos; i < end; ++i)
+        {
+            if (str.charAt(i) == SOCMessage.sep2_char)
+            {
+                inToken = false;
+            }
+            else if (! inToken)
+            {
+                inToken = true;
+                ++n;
+            }
+        }
+
+        return n;
+    }
+
+    /**
+     * Get the next token as a String.
+     * @return the next token
+     * @throws NoSuchElementException if no tokens remain
+     */
+    public String next()
+        throws NoSuchElementException
+    {
+        final int st = tokenStart();
+        return str.substring(st, pos);
+    }
+
+    /**
+     * Parse the next token as a decimal int, without allocating a substring.
+     * @return the next token's int value
+     * @throws NoSuchElementException if no tokens remain
+     * @throws NumberFormatException if the token isn't a valid int
+     */
+    public int nextInt()
+        throws NoSuchElementException, NumberFormatException
+    {
+        final int st = tokenStart();
+        return parseInt(str, st, pos);
+    }
+
+    /**
+     * Does the next token equal this string? Consumes the token.
+     * @param expected  String to compare, such as {@code "Y"}; not null
+     * @return true if the next token is exactly {@code expected}
+     * @throws NoSuchElementException if no tokens remain
+     */
+    public boolean nextEquals(final String expected)
+        throws NoSuchElementException
+    {
+        final int st = tokenStart();
+        final int len = pos - st;
+        return (len == expected.length()) && str.regionMatches(st, expected, 0, len);
+    }
+
+    /**
+     * Parse the next token as a boolean, same as {@link Boolean#valueOf(String)}:
+     * True if it's {@code "true"} ignoring case, otherwise false.
+     * @return the next token's boolean value
+     * @throws NoSuchElementException if no tokens remain
+     */
+    public boolean nextBoolean()
+        throws NoSuchElementException
+    {
+        final int st = tokenStart();
+        return (pos - st == 4) && str.regionMatches(true, st, "true", 0, 4);
+    }
+
+    /**
+     * Skip any separators, then move past the next token.
+     * @return the token's start index; its end is the new {@link #pos}
+     * @throws NoSuchElementException if no tokens remain
+     */
+    private int tokenStart()
+        throws NoSuchElementException
+    {
+        skipSeparators();
+        if (pos >= end)
+            throw new NoSuchElementException();
+
+        final int st = pos;
+        while ((pos < end) && (str.charAt(pos) != SOCMessage.sep2_char))
+            ++pos;
+
+        return st;
+    }
+
+    /** Move {@link #pos} past any separators. */
+    private void skipSeparators()
+    {
+        while ((pos < end) && (str.charAt(pos) == SOCMessage.sep2_char))
+            ++pos;
+    }
+
+    /**
+     * Parse a decimal int from part of a string without allocating a substring.
+     * Accepts the same strings as {@link Integer#parseInt(String)} on Java 5 and 6: An optional {@code '-'} sign
+     * followed by 1 or more digits, within int range. Like those versions, rejects a leading {@code '+'}
+     * (which Java 7 and newer accept), so this and the tokenizer-based parsing agree on every JVM.
+     * @param s  String containing the number
+     * @param start  Starting index within {@code s}
+     * @param end  Ending index, exclusive
+     * @return the parsed value
+     * @throws NumberFormatException if the range is empty or isn't a valid int
+     */
+    public static int parseInt(final CharSequence s, int start, final int end)
+        throws NumberFormatException
+    {
+        if (start >= end)
+            throw new NumberFormatException("empty");
+
+        // Accumulate negatively, as Integer.parseInt does, to handle Integer.MIN_VALUE
+        boolean negative = false;
+        int limit = -Integer.MAX_VALUE;
+        final char c0 = s.charAt(start);
+        if (c0 == '-')
+        {
+            negative = true;
+            limit = Integer.MIN_VALUE;
+            ++start;
+            if (start == end)
+                throw new NumberFormatException(s.subSequence(start - 1, end).toString());
+        }
+
+        final int multmin = limit / 10;
+        int result = 0;
+        for (int i = start; i < end; ++i)
+        {
+            final int digit = Character.digit(s.charAt(i), 10);
+            if ((digit < 0) || (result < multmin))
+                throw new NumberFormatException(s.subSequence(start, end).toString());
+            result *= 10;
+            if (result < limit + digit)
+                throw new NumberFormatException(s.subSequence(start, end).toString());
+            result -= digit;
+        }
+
+        return negative ? result : -result;
+    }
+
+}
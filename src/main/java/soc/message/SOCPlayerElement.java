@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message conveys one part of the player's status, such as their number of
@@ -409,8 +407,23 @@ public class SOCPlayerElement extends SOCMessage
      *
      * @param s   the String to parse
      * @return    a PlayerElement message, or null if the data is garbled
+     * @see #parseDataStr(SOCMessageCursor)
      */
     public static SOCPlayerElement parseDataStr(String s)
+    {
+        return parseDataStr(new SOCMessageCursor(s));
+    }
+
+    /**
+     * Parse the command String's data fields into a PlayerElement message, using a cursor
+     * instead of allocating substrings and a tokenizer.
+     * Called from {@link SOCMessage#toMsg(String)}.
+     *
+     * @param st  Cursor over the data fields, after the message type and {@link #sep}
+     * @return    a PlayerElement message, or null if the data is garbled
+     * @since 2.0.00
+     */
+    public static SOCPlayerElement parseDataStr(SOCMessageCursor st)
     {
         String ga;
         int pn;
@@ -419,17 +432,15 @@ public class SOCPlayerElement extends SOCMessage
         int va;
         boolean isNews = false;
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            pn = Integer.parseInt(st.nextToken());
-            ac = Integer.parseInt(st.nextToken());
-            et = Integer.parseInt(st.nextToken());
-            va = Integer.parseInt(st.nextToken());
-            if (st.hasMoreTokens())
-                isNews = st.nextToken().equals("Y");
+            ga = st.next();
+            pn = st.nextInt();
+            ac = st.nextInt();
+            et = st.nextInt();
+            va = st.nextInt();
+            if (st.hasNext())
+                isNews = st.nextEquals("Y");
         }
         catch (Exception e)
         {
@@ -20,7 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
 
 /**
  * This message means that a player is asking to place, or has placed, a piece on the board.
@@ -147,22 +146,35 @@ public class SOCPutPiece extends SOCMessage
      *
      * @param s   the String to parse
      * @return    a PUTPIECE message, or null if the data is garbled
+     * @see #parseDataStr(SOCMessageCursor)
      */
     public static SOCPutPiece parseDataStr(String s)
+    {
+        return parseDataStr(new SOCMessageCursor(s));
+    }
+
+    /**
+     * Parse the command String's data fields into a PutPiece message, using a cursor
+     * instead of allocating substrings and a tokenizer.
+     * Called from {@link SOCMessage#toMsg(String)}.
+     *
+     * @param st  Cursor over the data fields, after the message type and {@link #sep}
+     * @return    a PUTPIECE message, or null if the data is garbled
+     * @since 2.0.00
+     */
+    public static SOCPutPiece parseDataStr(SOCMessageCursor st)
     {
         String na; // name of the game
         int pn; // player number
         int pt; // type of piece
         int co; // coordinates
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            na = st.nextToken();
-            pn = Integer.parseInt(st.nextToken());
-            pt = Integer.parseInt(st.nextToken());
-            co = Integer.parseInt(st.nextToken());
+            na = st.next();
+            pn = st.nextInt();
+            pt = st.nextInt();
+            co = st.nextInt();
         }
         catch (Exception e)
         {
@@ -39,6 +39,9 @@ import soc.util.SOCServerFeatures;  // for javadocs only
  * should use the {@link SOCServerFeatures#SOCServerFeatures(boolean) SOCServerFeatures(true)} constructor
  * to set the default features active.
  *<P>
+ * In 2.0.00 and newer, a client's locale field can end with {@link SOCBinaryCodec#CLIENT_VERSION_FLAG}
+ * to ask for binary message frames, if the server's features include {@link SOCServerFeatures#FEAT_BINARY_PROTO}.
+ *<P>
  * Before 1.1.06, in SOCPlayerClient, this was sent first from server to client, then client responded.
  * Robot clients have always sent first since the introduction in 1.1.00 of client-server versioning (2008-08-07).
  *
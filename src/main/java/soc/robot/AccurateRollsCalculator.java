@@ -0,0 +1,517 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.robot;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import soc.game.SOCBoard;
+import soc.game.SOCResourceConstants;
+import soc.game.SOCResourceSet;
+import soc.util.CutoffExceededException;
+
+/**
+ * Calculation engine for {@link SOCBuildingSpeedEstimate#calculateRollsAccurate(SOCResourceSet, SOCResourceSet, int, boolean[])}
+ * which encodes each possible hand as a packed int instead of a {@link SOCResourceSet}, and keeps
+ * each roll's probability distribution of hands in primitive arrays instead of a
+ * {@code Hashtable<SOCResourceSet, Float>}. Recently calculated results are kept in an LRU cache,
+ * since the robots often ask for the same estimates many times.
+ *<P>
+ * Gives the same results as the Hashtable calculation, including which hand is returned when several reach
+ * the target on the same roll: {@link StateTable} visits hands in the same order as
+ * {@link java.util.Hashtable#keys()}, using the same hash codes as {@link SOCResourceSet#hashCode()},
+ * so the float probabilities are also summed in the same order.
+ *<P>
+ * Each hand is 5 fields of {@link #FIELD_BITS} bits, clay in the lowest bits through wood in the highest.
+ * If any amount could overflow a field, or a set has {@link SOCResourceConstants#UNKNOWN} resources,
+ * {@link #calculate(int[], SOCResourceSet[], SOCResourceSet, SOCResourceSet, int, boolean[])} returns null
+ * and the caller must use the Hashtable calculation instead.
+ *
+ * @since 2.0.00
+ */
+final class AccurateRollsCalculator
+{
+    /** Number of bits in each resource type's field of a packed hand */
+    private static final int FIELD_BITS = 6;
+
+    /** Mask for one field of a packed hand; also the largest amount that fits */
+    private static final int FIELD_MASK = (1 << FIELD_BITS) - 1;
+
+    /** Most recent results; see {@link SOCBuildingSpeedEstimate#ROLLS_ACCURATE_CACHE_SIZE}. Synchronize on this map. */
+    private static final Map<CacheKey, int[]> resultCache
+        = new LinkedHashMap<CacheKey, int[]>(64, 0.75f, true)
+        {
+            private static final long serialVersionUID = 2000L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, int[]> eldest)
+            {
+                return size() > SOCBuildingSpeedEstimate.ROLLS_ACCURATE_CACHE_SIZE;
+            }
+        };
+
+    private AccurateRollsCalculator() {}
+
+    /**
+     * Calculate how many rolls it would take to reach a target set of resources from a starting set.
+     * See {@link SOCBuildingSpeedEstimate#calculateRollsAccurate(SOCResourceSet, SOCResourceSet, int, boolean[])}
+     * for details. Uses a cached result if available.
+     *
+     * @param rollsPerResource  Estimate's rolls per resource, indexes {@link SOCResourceConstants#CLAY}
+     *     to {@link SOCResourceConstants#WOOD}; used to choose what to trade for
+     * @param resourcesForRoll  Estimate's resources gained for each dice number 2 to 12
+     * @param startingResources   the starting resources
+     * @param targetResources     the target resources
+     * @param cutoff              throw an exception if the total speed is greater than this
+     * @param ports               the player's trade port flags
+     * @return the number of rolls and our resources when the target is reached,
+     *     or {@code null} if the amounts are outside the range of this engine.
+     *     If {@code startingResources.contains(targetResources)}, returns 0 rolls and a {@code null} resource set.
+     * @throws CutoffExceededException if estimate more than {@code cutoff} turns to obtain {@code targetResources}
+     */
+    static SOCResSetBuildTimePair calculate
+        (final int[] rollsPerResource, final SOCResourceSet[] resourcesForRoll,
+         final SOCResourceSet startingResources, final SOCResourceSet targetResources,
+         final int cutoff, final boolean[] ports)
+        throws CutoffExceededException
+    {
+        if ((startingResources.getAmount(SOCResourceConstants.UNKNOWN) != 0)
+            || (targetResources.getAmount(SOCResourceConstants.UNKNOWN) != 0))
+            return null;
+
+        // Pack the inputs and check that every hand will fit:
+        // A hand which doesn't reach the target is left with at most (target + 3) of each type after trading,
+        // so each is at most max(start, target + 3) before adding a roll's resources.
+
+        final int[] gains = new int[13];
+        final int[] maxGain = new int[SOCResourceConstants.WOOD + 1];
+        for (int diceResult = 2; diceResult <= 12; ++diceResult)
+        {
+            final SOCResourceSet rs = resourcesForRoll[diceResult];
+            if ((rs == null) || (rs.getAmount(SOCResourceConstants.UNKNOWN) != 0))
+                return null;
+            for (int res = SOCResourceConstants.CLAY; res <= SOCResourceConstants.WOOD; ++res)
+            {
+                final int amt = rs.getAmount(res);
+                if (amt < 0)
+                    return null;
+                if (amt > maxGain[res])
+                    maxGain[res] = amt;
+            }
+            gains[diceResult] = pack(rs);
+        }
+
+        final int[] target = new int[SOCResourceConstants.WOOD + 1];
+        for (int res = SOCResourceConstants.CLAY; res <= SOCResourceConstants.WOOD; ++res)
+        {
+            final int st = startingResources.getAmount(res), tg = targetResources.getAmount(res);
+            if ((st < 0) || (tg < 0) || (Math.max(st, tg + 3) + maxGain[res] > FIELD_MASK))
+                return null;
+            target[res] = tg;
+        }
+
+        int portBits = 0;
+        for (int i = 0; i < ports.length; ++i)
+            if (ports[i])
+                portBits |= (1 << i);
+
+        final int[] keyData = new int[21];
+        System.arraycopy(rollsPerResource, SOCResourceConstants.CLAY, keyData, 0, 5);
+        System.arraycopy(gains, 2, keyData, 5, 11);
+        keyData[16] = pack(startingResources);
+        keyData[17] = pack(targetResources);
+        keyData[18] = portBits;
+        keyData[19] = ports.length;
+        keyData[20] = cutoff;
+        final CacheKey key = new CacheKey(keyData);
+
+        int[] result = null;
+        if (SOCBuildingSpeedEstimate.ROLLS_ACCURATE_CACHE_SIZE > 0)
+            synchronized (resultCache)
+            {
+                result = resultCache.get(key);
+            }
+
+        if (result == null)
+        {
+            result = calculatePacked
+                (rollsPerResource, gains, keyData[16], target, cutoff, ports);
+            if (SOCBuildingSpeedEstimate.ROLLS_ACCURATE_CACHE_SIZE > 0)
+                synchronized (resultCache)
+                {
+                    resultCache.put(key, result);
+                }
+        }
+
+        if (result[0] < 0)
+            throw new CutoffExceededException();
+
+        return new SOCResSetBuildTimePair((result[1] != -1) ? unpack(result[1]) : null, result[0]);
+    }
+
+    /**
+     * The calculation itself, on packed hands.
+     * Same steps as the Hashtable calculation in {@link SOCBuildingSpeedEstimate}.
+     * @param gains  Packed resources gained for each dice number 2 to 12
+     * @param start  Packed starting resources
+     * @param target  Target amounts, indexes {@link SOCResourceConstants#CLAY} to {@link SOCResourceConstants#WOOD}
+     * @return  Number of rolls and packed hand when the target is reached, or 0 and -1 if {@code start}
+     *     already contains the target, or -1 and 0 if {@code cutoff} is exceeded
+     */
+    private static int[] calculatePacked
+        (final int[] rollsPerResource, final int[] gains, final int start, final int[] target,
+         final int cutoff, final boolean[] ports)
+    {
+        if (contains(start, target))
+            return new int[]{ 0, -1 };
+
+        final int[] tradeRatio = new int[SOCResourceConstants.WOOD + 1];
+        for (int res = SOCResourceConstants.CLAY; res <= SOCResourceConstants.WOOD; ++res)
+            tradeRatio[res] = (ports[res]) ? 2 : (ports[SOCBoard.MISC_PORT]) ? 3 : 4;
+
+        StateTable lastTable = new StateTable(), thisTable = new StateTable();
+        lastTable.put(start, hash(start), 1.0f);
+
+        int rolls = 0;
+        int[] order = new int[16];
+        boolean targetReached = false;
+        int targetReachedResources = -1;
+        float targetReachedProb = 0.0f;
+
+        while (! targetReached)
+        {
+            rolls++;
+
+            if (rolls > cutoff)
+                return new int[]{ -1, 0 };
+
+            // lastTable doesn't change during this roll, so visit its hands in the same order for each dice number
+            if (order.length < lastTable.count)
+                order = new int[lastTable.keys.length];
+            final int n = lastTable.getOrder(order);
+
+            for (int diceResult = 2; diceResult <= 12; diceResult++)
+            {
+                final int gained = gains[diceResult];
+                final float diceProb = SOCNumberProbabilities.FLOAT_VALUES[diceResult];
+
+                for (int i = 0; i < n; ++i)
+                {
+                    final int e = order[i];
+                    int newResources = lastTable.keys[e] + gained;  // no carries: amounts were checked to fit
+                    final float newProb = lastTable.probs[e] * diceProb;
+
+                    if (! contains(newResources, target))
+                        newResources = trade(newResources, target, tradeRatio, rollsPerResource);
+
+                    if (contains(newResources, target))
+                    {
+                        targetReachedProb += newProb;
+
+                        if (targetReachedResources == -1)
+                            targetReachedResources = newResources;
+
+                        if (targetReachedProb >= 0.5)
+                            targetReached = true;
+                    } else {
+                        thisTable.put(newResources, hash(newResources), newProb);
+                    }
+                }
+            }
+
+            StateTable tmp = lastTable;
+            lastTable = thisTable;
+            thisTable = tmp;
+            thisTable.clear();
+        }
+
+        return new int[]{ rolls, targetReachedResources };
+    }
+
+    /**
+     * Do any possible trading with the bank or ports, the same way as the Hashtable calculation.
+     * @param hand  Packed hand which doesn't contain the target
+     * @return the packed hand after trading
+     */
+    private static int trade
+        (int hand, final int[] target, final int[] tradeRatio, final int[] rollsPerResource)
+    {
+        for (int giveResource = SOCResourceConstants.CLAY;
+                giveResource <= SOCResourceConstants.WOOD;
+                giveResource++)
+        {
+            final int surplus = amount(hand, giveResource) - target[giveResource];
+            if (surplus <= 1)
+                continue;
+
+            final int ratio = tradeRatio[giveResource];
+            final int numTrades = surplus / ratio;
+            for (int trades = 0; trades < numTrades; trades++)
+            {
+                // find the most needed resource: of those we still need, takes the longest to acquire
+                int mostNeededResource = -1;
+                for (int resource = SOCResourceConstants.CLAY;
+                        resource <= SOCResourceConstants.WOOD;
+                        resource++)
+                {
+                    if (amount(hand, resource) < target[resource])
+                    {
+                        if ((mostNeededResource < 0)
+                            || (rollsPerResource[resource] > rollsPerResource[mostNeededResource]))
+                            mostNeededResource = resource;
+                    }
+                }
+
+                if ((mostNeededResource != -1) && (amount(hand, giveResource) >= ratio))
+                {
+                    hand += 1 << (FIELD_BITS * (mostNeededResource - 1));
+                    hand -= ratio << (FIELD_BITS * (giveResource - 1));
+                }
+
+                if (contains(hand, target))
+                    return hand;
+            }
+        }
+
+        return hand;
+    }
+
+    /** Amount of one resource type in a packed hand. */
+    private static int amount(final int hand, final int resource)
+    {
+        return (hand >>> (FIELD_BITS * (resource - 1))) & FIELD_MASK;
+    }
+
+    /** Does a packed hand contain at least the target amounts? */
+    private static boolean contains(final int hand, final int[] target)
+    {
+        for (int res = SOCResourceConstants.CLAY; res <= SOCResourceConstants.WOOD; ++res)
+            if (((hand >>> (FIELD_BITS * (res - 1))) & FIELD_MASK) < target[res])
+                return false;
+
+        return true;
+    }
+
+    /** Pack a resource set's known resources, which the caller has checked will fit. */
+    private static int pack(final SOCResourceSet rs)
+    {
+        int hand = 0;
+        for (int res = SOCResourceConstants.WOOD; res >= SOCResourceConstants.CLAY; --res)
+            hand = (hand << FIELD_BITS) | rs.getAmount(res);
+
+        return hand;
+    }
+
+    /** Unpack a hand into a new resource set. */
+    private static SOCResourceSet unpack(final int hand)
+    {
+        return new SOCResourceSet
+            (amount(hand, SOCResourceConstants.CLAY), amount(hand, SOCResourceConstants.ORE),
+             amount(hand, SOCResourceConstants.SHEEP), amount(hand, SOCResourceConstants.WHEAT),
+             amount(hand, SOCResourceConstants.WOOD), 0);
+    }
+
+    /**
+     * Hash code of a packed hand, the same as {@link SOCResourceSet#hashCode()} of that hand
+     * (the {@link String#hashCode()} of its {@link SOCResourceSet#toString()}) without building the string.
+     */
+    private static int hash(final int hand)
+    {
+        int h = hashOf(0, "clay=");
+        h = hashOf(h, amount(hand, SOCResourceConstants.CLAY));
+        h = hashOf(h, "|ore=");
+        h = hashOf(h, amount(hand, SOCResourceConstants.ORE));
+        h = hashOf(h, "|sheep=");
+        h = hashOf(h, amount(hand, SOCResourceConstants.SHEEP));
+        h = hashOf(h, "|wheat=");
+        h = hashOf(h, amount(hand, SOCResourceConstants.WHEAT));
+        h = hashOf(h, "|wood=");
+        h = hashOf(h, amount(hand, SOCResourceConstants.WOOD));
+        return hashOf(h, "|unknown=0");
+    }
+
+    /** Continue a {@link String#hashCode()} calculation with the characters of {@code s}. */
+    private static int hashOf(int h, final String s)
+    {
+        for (int i = 0; i < s.length(); ++i)
+            h = 31 * h + s.charAt(i);
+
+        return h;
+    }
+
+    /** Continue a {@link String#hashCode()} calculation with the decimal digits of {@code v} &gt;= 0. */
+    private static int hashOf(int h, final int v)
+    {
+        if (v >= 10)
+            h = hashOf(h, v / 10);
+
+        return 31 * h + ('0' + (v % 10));
+    }
+
+    /**
+     * Packed hands and their probabilities for one roll, kept in primitive arrays.
+     * Hands are visited in the same order as a {@link java.util.Hashtable} with the default
+     * initial capacity and load factor: Same bucket index calculation and rehash growth,
+     * new entries at the head of their bucket's chain, enumeration from the last bucket to the first,
+     * and {@link #clear()} keeps the current capacity.
+     */
+    private static final class StateTable
+    {
+        /** First entry index in each bucket, or -1; length is the table's capacity */
+        int[] heads = new int[11];
+
+        /** Entry data, indexed by entry number 0 to {@link #count} - 1 */
+        int[] keys = new int[16], hashes = new int[16], next = new int[16];
+
+        /** Entry probabilities, indexed like {@link #keys} */
+        float[] probs = new float[16];
+
+        int count;
+
+        /** Rehash when adding an entry if {@link #count} &gt;= threshold */
+        int threshold = (int) (11 * 0.75f);
+
+        StateTable()
+        {
+            Arrays.fill(heads, -1);
+        }
+
+        /**
+         * Add a probability to a hand's entry, or add a new entry for it.
+         * @param key  Packed hand
+         * @param hash  {@link AccurateRollsCalculator#hash(int) hash(key)}
+         * @param prob  Probability to add
+         */
+        void put(final int key, final int hash, final float prob)
+        {
+            int idx = (hash & 0x7FFFFFFF) % heads.length;
+            for (int e = heads[idx]; e != -1; e = next[e])
+            {
+                if (keys[e] == key)
+                {
+                    probs[e] = probs[e] + prob;
+                    return;
+                }
+            }
+
+            if (count >= threshold)
+            {
+                rehash();
+                idx = (hash & 0x7FFFFFFF) % heads.length;
+            }
+
+            if (count == keys.length)
+            {
+                final int len = 2 * count;
+                int[] a = new int[len];
+                System.arraycopy(keys, 0, a, 0, count);
+                keys = a;
+                a = new int[len];
+                System.arraycopy(hashes, 0, a, 0, count);
+                hashes = a;
+                a = new int[len];
+                System.arraycopy(next, 0, a, 0, count);
+                next = a;
+                float[] p = new float[len];
+                System.arraycopy(probs, 0, p, 0, count);
+                probs = p;
+            }
+
+            keys[count] = key;
+            hashes[count] = hash;
+            probs[count] = prob;
+            next[count] = heads[idx];
+            heads[idx] = count;
+            ++count;
+        }
+
+        /** Grow the bucket array, re-linking entries in the same order as {@code Hashtable.rehash()}. */
+        private void rehash()
+        {
+            final int oldCapacity = heads.length, newCapacity = oldCapacity * 2 + 1;
+            final int[] newHeads = new int[newCapacity];
+            Arrays.fill(newHeads, -1);
+            threshold = (int) (newCapacity * 0.75f);
+
+            for (int i = oldCapacity; i-- > 0; )
+            {
+                for (int e = heads[i]; e != -1; )
+                {
+                    final int nextE = next[e];
+                    final int idx = (hashes[e] & 0x7FFFFFFF) % newCapacity;
+                    next[e] = newHeads[idx];
+                    newHeads[idx] = e;
+                    e = nextE;
+                }
+            }
+
+            heads = newHeads;
+        }
+
+        /**
+         * Get the entry numbers in enumeration order.
+         * @param order  Array to fill, at least {@link #count} long
+         * @return  {@link #count}
+         */
+        int getOrder(final int[] order)
+        {
+            int n = 0;
+            for (int i = heads.length; i-- > 0; )
+                for (int e = heads[i]; e != -1; e = next[e])
+                    order[n++] = e;
+
+            return n;
+        }
+
+        /** Remove all entries, keeping the current capacity. */
+        void clear()
+        {
+            Arrays.fill(heads, -1);
+            count = 0;
+        }
+    }
+
+    /** Key for {@link AccurateRollsCalculator#resultCache}: All inputs to a calculation, as ints. */
+    private static final class CacheKey
+    {
+        private final int[] data;
+        private final int hash;
+
+        CacheKey(final int[] data)
+        {
+            this.data = data;
+            hash = Arrays.hashCode(data);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            return (o instanceof CacheKey) && Arrays.equals(data, ((CacheKey) o).data);
+        }
+    }
+
+}
@@ -24,11 +24,20 @@
  **/
 package soc.robot;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.Hashtable;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // import org.apache.log4j.Logger;
 
@@ -44,6 +53,60 @@ import soc.util.CutoffExceededException;
  */
 public class OpeningBuildStrategy {
 
+    /**
+     * If true, {@link #planInitialSettlements()} and {@link #planSecondSettlement()} score all their
+     * candidate pairs of settlement nodes on up to {@link #EVAL_THREADS} threads with
+     * {@link #scorePairs(SOCBoard, int[], int[], int)}, then choose among those scores
+     * in the same order and with the same rules as their serial loops, which are used if false.
+     * Both ways choose the same nodes.
+     * @since 2.0.00
+     */
+    public static boolean USE_PARALLEL_EVAL = true;
+
+    /**
+     * Number of threads, including the robot brain's own thread, which score candidate settlement pairs
+     * when {@link #USE_PARALLEL_EVAL}; 1 scores them all in the brain's thread.
+     * Default is the number of available processors.
+     * The pool shared by all robots is created the first time it's needed,
+     * so changing this afterwards doesn't change the pool's size.
+     * @since 2.0.00
+     */
+    public static int EVAL_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Piece types whose rolls are added together for a pair's speed,
+     * in the order {@link #planInitialSettlements()} adds them.
+     * @since 2.0.00
+     */
+    private static final SOCResourceSet[] SPEED_TARGETS =
+        { SOCSettlement.COST, SOCCity.COST, SOCGame.CARD_SET, SOCRoad.COST };
+
+    /**
+     * Length of each pair's entry in {@link #scorePairs(SOCBoard, int[], int[], int)}'s results:
+     * Its probability total, then its rolls for each of {@link #SPEED_TARGETS}.
+     * @since 2.0.00
+     */
+    private static final int SCORE_LEN = 1 + 4;
+
+    /**
+     * Cutoff for the rolls scored by {@link #scorePairs(SOCBoard, int[], int[], int)}.
+     * The serial loops start with a best speed of {@code 4 * DEFAULT_ROLL_LIMIT} and use it as their cutoff;
+     * {@link #planSecondSettlement()} always keeps its first pair, whose speed can be up to
+     * ({@code bestSpeed - 1}) + {@code bestSpeed}, so no later cutoff is more than twice that.
+     * @since 2.0.00
+     */
+    private static final int PAIR_ROLLS_CUTOFF = 2 * 4 * SOCBuildingSpeedEstimate.DEFAULT_ROLL_LIMIT;
+
+    /** Number of pairs each scoring thread takes at a time from the list of candidates. */
+    private static final int EVAL_CHUNK = 32;
+
+    /**
+     * Daemon threads to help score pairs, shared by all robots, or null if not created yet.
+     * @see #getEvalPool()
+     * @since 2.0.00
+     */
+    private static ExecutorService evalPool;
+
     /** Our game */
     private final SOCGame game;
 
@@ -85,7 +148,7 @@ public class OpeningBuildStrategy {
      * @param ga  Our game
      * @param pl  Our player data in <tt>ga</tt>
      */
-    OpeningBuildStrategy(SOCGame ga, SOCPlayer pl)
+    public OpeningBuildStrategy(SOCGame ga, SOCPlayer pl)
     {
         if (pl == null)
             throw new IllegalArgumentException();
@@ -133,6 +196,47 @@ public class OpeningBuildStrategy {
         if (ourPotentialSettlements == null)
             return 0;  // Should not occur
 
+        if (USE_PARALLEL_EVAL)
+        {
+            final int np = ourPotentialSettlements.length;
+            final int[] firstNodes = new int[np * (np - 1) / 2], secondNodes = new int[firstNodes.length];
+            int n = 0;
+            for (int i = 0; i < np; ++i)
+            {
+                final int firstNode = ourPotentialSettlements[i];
+                for (int j = 1 + i; j < np; ++j)
+                {
+                    final int secondNode = ourPotentialSettlements[j];
+                    if (board.isNodeAdjacentToNode(secondNode, firstNode))
+                        continue;  // <-- too close to firstNode to build --
+
+                    firstNodes[n] = firstNode;
+                    secondNodes[n] = secondNode;
+                    ++n;
+                }
+            }
+
+            final int[] scores = scorePairs(board, firstNodes, secondNodes, n);
+            final boolean[] allTheWayOut = new boolean[1];
+            for (int p = 0; p < n; ++p)
+            {
+                speed = serialSpeed(scores, p, bestSpeed, allTheWayOut);
+                probTotal = scores[p * SCORE_LEN];
+                if ((speed < bestSpeed)
+                    || ((speed == bestSpeed) && allTheWayOut[0] && (probTotal > bestProbTotal)))
+                {
+                    firstSettlement = firstNodes[p];
+                    secondSettlement = secondNodes[p];
+                    bestSpeed = speed;
+                    bestProbTotal = probTotal;
+                }
+            }
+
+            log.debug("scored " + n + " pairs: bestSpeed = " + bestSpeed + ", bestProbTotal = " + bestProbTotal);
+
+            return orderInitialSettlements(bestSpeed);
+        }
+
         for (int i = 0; i < ourPotentialSettlements.length; ++i)
         {
             final int firstNode = ourPotentialSettlements[i];
@@ -330,6 +434,24 @@ public class OpeningBuildStrategy {
 
         }  // for (i in ourPotentialSettlements[])
 
+        return orderInitialSettlements(bestSpeed);
+    }
+
+    /**
+     * Choose which of the pair chosen by {@link #planInitialSettlements()} to place first,
+     * swapping {@link #firstSettlement} and {@link #secondSettlement} if needed.
+     * @param bestSpeed  Speed of the chosen pair, used as the cutoff for {@link #secondSettlement}'s speed
+     * @return {@link #firstSettlement}
+     * @since 2.0.00
+     */
+    private int orderInitialSettlements(final int bestSpeed)
+    {
+        final SOCBoard board = game.getBoard();
+        final SOCResourceSet emptySet = new SOCResourceSet();
+        final SOCPlayerNumbers playerNumbers = new SOCPlayerNumbers(board);
+        final boolean[] ports = new boolean[SOCBoard.WOOD_PORT + 1];
+        final SOCBuildingSpeedEstimate estimate = new SOCBuildingSpeedEstimate();
+
         /**
          * choose which settlement to place first
          */
@@ -414,6 +536,43 @@ public class OpeningBuildStrategy {
         if (ourPotentialSettlements == null)
             return -1;  // Should not occur
 
+        if (USE_PARALLEL_EVAL)
+        {
+            final int[] firstNodes = new int[ourPotentialSettlements.length],
+                secondNodes = new int[firstNodes.length];
+            int n = 0;
+            for (int i = 0; i < ourPotentialSettlements.length; ++i)
+            {
+                final int secondNode = ourPotentialSettlements[i];
+                if (board.isNodeAdjacentToNode(secondNode, firstNode))
+                    continue;  // <-- too close to firstNode to build --
+
+                firstNodes[n] = firstNode;
+                secondNodes[n] = secondNode;
+                ++n;
+            }
+
+            final int[] scores = scorePairs(board, firstNodes, secondNodes, n);
+            for (int p = 0; p < n; ++p)
+            {
+                final int speed = serialSpeed(scores, p, bestSpeed, null);
+                probTotal = scores[p * SCORE_LEN];
+                if ((speed < bestSpeed) || (secondSettlement < 0)
+                    || ((speed == bestSpeed) && (probTotal > bestProbTotal)))
+                {
+                    firstSettlement = firstNode;
+                    secondSettlement = secondNodes[p];
+                    bestSpeed = speed;
+                    bestProbTotal = probTotal;
+                }
+            }
+
+            log.debug("scored " + n + " pairs: secondSettlement = " + Integer.toHexString(secondSettlement)
+                + ", bestSpeed = " + bestSpeed);
+
+            return secondSettlement;
+        }
+
         for (int i = 0; i < ourPotentialSettlements.length; ++i)
         {
             final int secondNode = ourPotentialSettlements[i];
@@ -536,6 +695,135 @@ public class OpeningBuildStrategy {
         return secondSettlement;
     }
 
+    /**
+     * Calculate the speed which the serial loops of {@link #planInitialSettlements()}
+     * and {@link #planSecondSettlement()} would calculate for a pair scored by
+     * {@link #scorePairs(SOCBoard, int[], int[], int)}: They add the rolls for each of {@link #SPEED_TARGETS}
+     * only while the total is less than {@code bestSpeed}, use {@code bestSpeed} as each one's cutoff,
+     * and use {@code bestSpeed} as the speed if any cutoff is exceeded.
+     * @param scores  Scores from {@code scorePairs}
+     * @param p  Index of the pair within {@code scores}
+     * @param bestSpeed  Best speed so far, in the serial loop's order
+     * @param allTheWay  If not null, sets element 0 to true if the rolls for all piece types were added
+     *     without exceeding a cutoff, false otherwise
+     * @return the pair's speed, which may be as much as ({@code bestSpeed - 1}) + {@code bestSpeed}
+     * @since 2.0.00
+     */
+    private static int serialSpeed(final int[] scores, final int p, final int bestSpeed, final boolean[] allTheWay)
+    {
+        if (allTheWay != null)
+            allTheWay[0] = false;
+
+        int speed = 0;
+        for (int t = 0; t < SPEED_TARGETS.length; ++t)
+        {
+            if ((t > 0) && (speed >= bestSpeed))
+                return speed;
+
+            final int rolls = scores[p * SCORE_LEN + 1 + t];
+            if ((rolls < 0) || (rolls > bestSpeed))
+                return bestSpeed;  // CutoffExceededException
+
+            speed += rolls;
+        }
+
+        if (allTheWay != null)
+            allTheWay[0] = true;
+
+        return speed;
+    }
+
+    /**
+     * Score each candidate pair of settlement nodes, for {@link #USE_PARALLEL_EVAL}.
+     * The brain's thread and up to {@link #EVAL_THREADS} - 1 threads from a shared pool
+     * take chunks of the pairs, each thread with its own {@link SOCPlayerNumbers} and
+     * {@link SOCBuildingSpeedEstimate}. Since the rolls from nothing to each piece type depend only on
+     * the pair's rolls per resource and ports, they're calculated once per distinct combination
+     * and shared through a cache which lasts for this call.
+     *<P>
+     * Each pair's rolls are calculated with a fixed cutoff instead of the serial loops' best speed so far,
+     * so the scores don't depend on which thread got there first;
+     * {@link #serialSpeed(int[], int, int, boolean[])} then gives the same speeds as the serial loops.
+     *
+     * @param board  Our game's board
+     * @param firstNodes  First node of each pair
+     * @param secondNodes  Second node of each pair
+     * @param n  Number of pairs in {@code firstNodes} and {@code secondNodes}
+     * @return  Scores for each pair {@code p}: Element {@code p * SCORE_LEN} is the probability total of its nodes'
+     *     dice numbers from {@link SOCNumberProbabilities#INT_VALUES}, followed by the rolls from nothing to each of
+     *     {@link #SPEED_TARGETS}, or -1 for more than {@link #PAIR_ROLLS_CUTOFF}
+     * @since 2.0.00
+     */
+    static int[] scorePairs(final SOCBoard board, final int[] firstNodes, final int[] secondNodes, final int n)
+    {
+        final PairScorer scorer = new PairScorer(board, firstNodes, secondNodes, n);
+        final int helpers = Math.min(EVAL_THREADS, (n + EVAL_CHUNK - 1) / EVAL_CHUNK) - 1;
+        List<Future<Object>> helping = null;
+        if (helpers > 0)
+        {
+            final ExecutorService pool = getEvalPool();
+            helping = new ArrayList<Future<Object>>(helpers);
+            for (int h = 0; h < helpers; ++h)
+                helping.add(pool.submit(scorer));
+        }
+
+        scorer.call();
+
+        if (helping != null)
+        {
+            boolean interrupted = false;
+            for (Future<Object> f : helping)
+            {
+                for (;;)
+                {
+                    try
+                    {
+                        f.get();
+                        break;
+                    }
+                    catch (InterruptedException e)
+                    {
+                        interrupted = true;  // helpers' chunks are short; wait for them anyway
+                    }
+                    catch (ExecutionException e)
+                    {
+                        throw new IllegalStateException("scoring failed", e.getCause());
+                    }
+                }
+            }
+
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+
+        return scorer.scores;
+    }
+
+    /**
+     * Get the shared pool of daemon threads which help {@link #scorePairs(SOCBoard, int[], int[], int)},
+     * creating it with {@link #EVAL_THREADS} - 1 threads if needed.
+     * @since 2.0.00
+     */
+    private static synchronized ExecutorService getEvalPool()
+    {
+        if (evalPool == null)
+        {
+            evalPool = Executors.newFixedThreadPool(Math.max(1, EVAL_THREADS - 1), new ThreadFactory()
+            {
+                private final AtomicInteger threadNum = new AtomicInteger();
+
+                public Thread newThread(Runnable r)
+                {
+                    final Thread t = new Thread(r, "robotOpeningEval-" + threadNum.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+
+        return evalPool;
+    }
+
     /**
      * Plan and place a road attached to our most recently placed initial settlement,
      * in game states {@link SOCGame#START1B START1B}, {@link SOCGame#START2B START2B}, {@link SOCGame#START3B START3B}.
@@ -605,11 +893,12 @@ public class OpeningBuildStrategy {
                  */
                 Hashtable<Integer,Integer> allNodes = new Hashtable<Integer,Integer>();
 
+                final int[] ourPotentialSettlements = ourPlayerData.getPotentialSettlements_arr();
+                if (ourPotentialSettlements != null)
                 {
-                    Iterator<Integer> psi = ourPlayerData.getPotentialSettlements().iterator();
-                    while (psi.hasNext())
-                        allNodes.put(psi.next(), Integer.valueOf(0));
-                    // log.debug("-- potential settlement at " + Integer.toHexString(next));
+                    for (final int node : ourPotentialSettlements)
+                        allNodes.put(Integer.valueOf(node), Integer.valueOf(0));
+                    // log.debug("-- potential settlement at " + Integer.toHexString(node));
                 }
 
                 /**
@@ -650,7 +939,9 @@ public class OpeningBuildStrategy {
                  */
                 Vector<Integer> psList = new Vector<Integer>();
 
-                psList.addAll(ourPlayerData.getPotentialSettlements());
+                if (ourPotentialSettlements != null)
+                    for (final int node : ourPotentialSettlements)
+                        psList.add(Integer.valueOf(node));
                 // log.debug("- potential settlement at " + Integer.toHexString(j));
 
                 dummy.setPotentialAndLegalSettlements(psList, false, null);
@@ -1080,4 +1371,126 @@ public class OpeningBuildStrategy {
         }
     }
 
+    /**
+     * Scores chunks of candidate settlement pairs for {@link OpeningBuildStrategy#scorePairs(SOCBoard, int[], int[], int)}.
+     * {@link #call()} can run in several threads at once: Each call takes chunks of pairs until none are left,
+     * with its own {@link SOCPlayerNumbers} and {@link SOCBuildingSpeedEstimate}.
+     * @since 2.0.00
+     */
+    private static final class PairScorer implements Callable<Object>
+    {
+        private final SOCBoard board;
+        private final int[] firstNodes, secondNodes;
+        private final int n;
+
+        /** Index of the next chunk's first pair */
+        private final AtomicInteger nextPair = new AtomicInteger();
+
+        /**
+         * Rolls from nothing to each of {@link OpeningBuildStrategy#SPEED_TARGETS}, or -1 if more than
+         * {@link OpeningBuildStrategy#PAIR_ROLLS_CUTOFF}, for each combination of rolls per resource and ports
+         * seen so far; see {@link #rollsKey(int[], boolean[])}.
+         */
+        private final ConcurrentHashMap<Long, int[]> rollsCache = new ConcurrentHashMap<Long, int[]>();
+
+        /** Results; see {@link OpeningBuildStrategy#scorePairs(SOCBoard, int[], int[], int)} */
+        final int[] scores;
+
+        PairScorer(final SOCBoard board, final int[] firstNodes, final int[] secondNodes, final int n)
+        {
+            this.board = board;
+            this.firstNodes = firstNodes;
+            this.secondNodes = secondNodes;
+            this.n = n;
+            scores = new int[n * SCORE_LEN];
+        }
+
+        public Object call()
+        {
+            final SOCPlayerNumbers playerNumbers = new SOCPlayerNumbers(board);
+            final SOCBuildingSpeedEstimate estimate = new SOCBuildingSpeedEstimate();
+            final SOCResourceSet emptySet = new SOCResourceSet();
+            final boolean[] ports = new boolean[SOCBoard.WOOD_PORT + 1];
+            final int[] prob = SOCNumberProbabilities.INT_VALUES;
+
+            for (int start = nextPair.getAndAdd(EVAL_CHUNK); start < n; start = nextPair.getAndAdd(EVAL_CHUNK))
+            {
+                final int end = Math.min(n, start + EVAL_CHUNK);
+                for (int p = start; p < end; ++p)
+                {
+                    final int firstNode = firstNodes[p], secondNode = secondNodes[p];
+
+                    playerNumbers.clear();
+                    final int probTotal = playerNumbers.updateNumbersAndProbability(firstNode, board, prob, null)
+                        + playerNumbers.updateNumbersAndProbability(secondNode, board, prob, null);
+
+                    Arrays.fill(ports, false);
+                    int portType = board.getPortTypeFromNodeCoord(firstNode);
+                    if (portType != -1)
+                        ports[portType] = true;
+                    portType = board.getPortTypeFromNodeCoord(secondNode);
+                    if (portType != -1)
+                        ports[portType] = true;
+
+                    estimate.recalculateRollsPerResource(playerNumbers, -1);
+
+                    final long key = rollsKey(estimate.getRollsPerResource(), ports);
+                    int[] rolls = (key != -1) ? rollsCache.get(Long.valueOf(key)) : null;
+                    if (rolls == null)
+                    {
+                        rolls = new int[SPEED_TARGETS.length];
+                        for (int t = 0; t < rolls.length; ++t)
+                        {
+                            try
+                            {
+                                rolls[t] = estimate.calculateRollsAndRsrcFast
+                                    (emptySet, SPEED_TARGETS[t], PAIR_ROLLS_CUTOFF, ports).getRolls();
+                            }
+                            catch (CutoffExceededException e)
+                            {
+                                rolls[t] = -1;
+                            }
+                        }
+
+                        if (key != -1)
+                            rollsCache.putIfAbsent(Long.valueOf(key), rolls);
+                    }
+
+                    final int i = p * SCORE_LEN;
+                    scores[i] = probTotal;
+                    System.arraycopy(rolls, 0, scores, i + 1, rolls.length);
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Key for {@link #rollsCache}. The fast roll calculation uses only the rolls per resource and ports,
+         * and each resource's rolls are from 1 to 36 or 55555 (none) when estimated from a pair's dice numbers.
+         * @param rollsPerResource  Rolls per resource, from {@link SOCBuildingSpeedEstimate#getRollsPerResource()}
+         * @param ports  Port flags
+         * @return the key, or -1 if a resource's rolls are outside the range which can be packed into it
+         */
+        private static long rollsKey(final int[] rollsPerResource, final boolean[] ports)
+        {
+            long key = 0;
+            for (int res = SOCResourceConstants.CLAY; res <= SOCResourceConstants.WOOD; ++res)
+            {
+                int r = rollsPerResource[res];
+                if (r == 55555)
+                    r = 63;
+                else if ((r < 0) || (r >= 63))
+                    return -1;
+
+                key = (key << 6) | r;
+            }
+
+            for (int portType = SOCBoard.MISC_PORT; portType <= SOCBoard.WOOD_PORT; ++portType)
+                key = (key << 1) | (ports[portType] ? 1 : 0);
+
+            return key;
+        }
+    }
+
 }
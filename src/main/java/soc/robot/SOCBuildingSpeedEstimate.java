@@ -30,7 +30,6 @@ import soc.util.CutoffExceededException;
 
 import java.util.Enumeration;
 import java.util.Hashtable;
-import java.util.Vector;
 
 
 /**
@@ -50,6 +49,71 @@ public class SOCBuildingSpeedEstimate
     public static final int MIN = 0;
     public static final int MAXPLUSONE = 5;
     public static final int DEFAULT_ROLL_LIMIT = 40;
+
+    /**
+     * If true (the default), {@link #calculateRollsAccurate(SOCResourceSet, SOCResourceSet, int, boolean[])}
+     * uses {@link AccurateRollsCalculator}, which keeps hands as packed ints in primitive arrays and caches
+     * recent results. If false, or if a hand's amounts don't fit that engine, it uses the original
+     * calculation with a {@code Hashtable<SOCResourceSet, Float>} for each roll.
+     * Both ways give the same results; this flag is for testing and timing comparisons.
+     * @since 2.0.00
+     */
+    public static boolean USE_PACKED_ROLLS_ACCURATE = true;
+
+    /**
+     * If true (the default), {@link #calculateRollsFast(ResourceSet, SOCResourceSet, int, boolean[])},
+     * {@link #calculateRollsAndRsrcFast(ResourceSet, SOCResourceSet, int, boolean[])},
+     * {@link #getEstimatesFromNowFast(SOCResourceSet, boolean[])} and {@code getEstimatesFromNothingFast}
+     * keep their working resources in a {@link PackedResourceSet} {@code long} instead of copying the starting set
+     * and changing the copy for each roll and trade. If false, or if the amounts don't fit, they use the original
+     * calculation.
+     * Both ways give the same results; this flag is for testing and timing comparisons.
+     * @since 2.0.00
+     */
+    public static boolean USE_PACKED_ROLLS_FAST = true;
+
+    /**
+     * Largest amount of any resource type in the starting or target resources of the packed
+     * {@link #calculateRollsFast(ResourceSet, SOCResourceSet, int, boolean[])} calculation.
+     * While the target isn't reached, trades keep each resource's amount below its target + 4
+     * unless it started higher, so this limit keeps every amount within {@link PackedResourceSet#MAX_AMOUNT}.
+     * @since 2.0.00
+     */
+    private static final long PACKED_FAST_LIMIT = PackedResourceSet.pack(255, 255, 255, 255, 255, 255);
+
+    /**
+     * Resources after the most recent {@link #calculateRollsPacked(long, long, int, boolean[])},
+     * for {@link #calculateRollsAndRsrcFast(ResourceSet, SOCResourceSet, int, boolean[])}.
+     * Like the rest of this object's state, used by only one thread at a time.
+     * @since 2.0.00
+     */
+    private long packedFastResources;
+
+    /**
+     * Most of each known resource type a packed hand can have beyond its target without any possible trade:
+     * The best trade ratio is 2:1. Used by {@link #tradePacked(long, long, boolean[])}.
+     * @since 2.0.00
+     */
+    private static final long PACKED_NO_TRADES = PackedResourceSet.pack(1, 1, 1, 1, 1, PackedResourceSet.MAX_AMOUNT);
+
+    /**
+     * {@link SOCRoad#COST}, {@link SOCSettlement#COST}, {@link SOCCity#COST}, {@link SOCGame#CARD_SET}
+     * and {@link SOCShip#COST} as {@link PackedResourceSet}s, indexed by {@link #ROAD} through {@link #SHIP}.
+     * @since 2.0.00
+     */
+    private static final long[] PACKED_PIECE_COSTS =
+        { PackedResourceSet.pack(SOCRoad.COST), PackedResourceSet.pack(SOCSettlement.COST),
+          PackedResourceSet.pack(SOCCity.COST), PackedResourceSet.pack(SOCGame.CARD_SET),
+          PackedResourceSet.pack(SOCShip.COST) };
+
+    /**
+     * Maximum number of recent {@link #calculateRollsAccurate(SOCResourceSet, SOCResourceSet, int, boolean[])}
+     * results kept by {@link AccurateRollsCalculator} for all robots, or 0 to not cache them.
+     * Each result is keyed by all of its inputs: The estimate's {@link #getRollsPerResource()}
+     * and resources for each dice roll, the starting and target resources, port flags, and cutoff.
+     * @since 2.0.00
+     */
+    public static int ROLLS_ACCURATE_CACHE_SIZE = 1024;
     protected static boolean recalc;
     int[] estimatesFromNothing;
     int[] estimatesFromNow;
@@ -197,6 +261,9 @@ public class SOCBuildingSpeedEstimate
             estimatesFromNothing[CARD] = DEFAULT_ROLL_LIMIT;
             estimatesFromNothing[SHIP] = DEFAULT_ROLL_LIMIT;
 
+            if (calculateEstimatesPacked(PackedResourceSet.EMPTY, estimatesFromNothing, DEFAULT_ROLL_LIMIT, ports))
+                return estimatesFromNothing;
+
             SOCResourceSet emptySet = new SOCResourceSet();
 
             try
@@ -231,6 +298,9 @@ public class SOCBuildingSpeedEstimate
             estimatesFromNothing[CARD] = limit;
             estimatesFromNothing[SHIP] = limit;
 
+            if (calculateEstimatesPacked(PackedResourceSet.EMPTY, estimatesFromNothing, limit, ports))
+                return estimatesFromNothing;
+
             SOCResourceSet emptySet = new SOCResourceSet();
 
             try
@@ -294,6 +364,9 @@ public class SOCBuildingSpeedEstimate
         estimatesFromNow[CARD] = DEFAULT_ROLL_LIMIT;
         estimatesFromNow[SHIP] = DEFAULT_ROLL_LIMIT;
 
+        if (calculateEstimatesPacked(PackedResourceSet.pack(resources), estimatesFromNow, DEFAULT_ROLL_LIMIT, ports))
+            return estimatesFromNow;
+
         try
         {
             estimatesFromNow[ROAD] = calculateRollsAndRsrcFast(resources, SOCRoad.COST, DEFAULT_ROLL_LIMIT, ports).getRolls();
@@ -360,16 +433,11 @@ public class SOCBuildingSpeedEstimate
 
             float totalProbability = 0.0f;
 
-            Enumeration<Integer> numbersEnum =
-                ((robberHex != -1)
-                   ? numbers.getNumbersForResource(resource, robberHex)
-                   : numbers.getNumbersForResource(resource)
-                 ).elements();
-
-            while (numbersEnum.hasMoreElements())
+            for (int diceNum = 2; diceNum <= 12; ++diceNum)
             {
-                Integer number = numbersEnum.nextElement();
-                totalProbability += SOCNumberProbabilities.FLOAT_VALUES[number.intValue()];
+                final int amount = numbers.getResourceCountForNumber(diceNum, resource, robberHex);
+                if (amount != 0)
+                    totalProbability += amount * SOCNumberProbabilities.FLOAT_VALUES[diceNum];
             }
 
             //D.ebugPrintln("totalProbability: " + totalProbability);
@@ -404,34 +472,26 @@ public class SOCBuildingSpeedEstimate
 
         for (int diceResult = 2; diceResult <= 12; diceResult++)
         {
-            Vector<Integer> resources = (robberHex != -1)
-                ? numbers.getResourcesForNumber(diceResult, robberHex)
-                : numbers.getResourcesForNumber(diceResult);
+            SOCResourceSet resourceSet = resourcesForRoll[diceResult];
 
-            if (resources != null)
+            if (resourceSet == null)
             {
-                SOCResourceSet resourceSet = resourcesForRoll[diceResult];
-
-                if (resourceSet == null)
-                {
-                    resourceSet = new SOCResourceSet();
-                    resourcesForRoll[diceResult] = resourceSet;
-                }
-                else
-                {
-                    resourceSet.clear();
-                }
-
-                Enumeration<Integer> resourcesEnum = resources.elements();
-
-                while (resourcesEnum.hasMoreElements())
-                {
-                    Integer resourceInt = resourcesEnum.nextElement();
-                    resourceSet.add(1, resourceInt.intValue());
-                }
+                resourceSet = new SOCResourceSet();
+                resourcesForRoll[diceResult] = resourceSet;
+            }
+            else
+            {
+                resourceSet.clear();
+            }
 
-                //D.ebugPrintln("### resources for "+diceResult+" = "+resourceSet);
+            for (int resource = SOCResourceConstants.CLAY; resource <= SOCResourceConstants.WOOD; ++resource)
+            {
+                final int amount = numbers.getResourceCountForNumber(diceResult, resource, robberHex);
+                if (amount != 0)
+                    resourceSet.add(amount, resource);
             }
+
+            //D.ebugPrintln("### resources for "+diceResult+" = "+resourceSet);
         }
     }
 
@@ -473,6 +533,17 @@ public class SOCBuildingSpeedEstimate
     protected final int calculateRollsFast
         (final ResourceSet startingResources, final SOCResourceSet targetResources, final int cutoff, final boolean[] ports)
     {
+        if (USE_PACKED_ROLLS_FAST)
+        {
+            final long start = PackedResourceSet.pack(startingResources),
+                target = PackedResourceSet.pack(targetResources);
+            if (canCalculatePacked(start, target))
+            {
+                final int rolls = calculateRollsPacked(start, target, cutoff, ports);
+                return (rolls >= 0) ? rolls : cutoff;
+            }
+        }
+
         try
         {
             SOCResSetBuildTimePair pair = calculateRollsAndRsrcFast(startingResources, targetResources, cutoff, ports);
@@ -484,6 +555,190 @@ public class SOCBuildingSpeedEstimate
         }
     }
 
+    /**
+     * Figures out how many rolls it would take this player to get the target set of resources,
+     * given a packed starting set. Same calculation as
+     * {@link #calculateRollsFast(ResourceSet, SOCResourceSet, int, boolean[])}
+     * for callers which build the starting set with {@link PackedResourceSet}'s methods.
+     *
+     * @param startingResources   the starting resources, a valid {@link PackedResourceSet} {@code long}
+     * @param targetResources     the target resources
+     * @param cutoff              maximum number of rolls
+     * @param ports               a list of port flags
+     *
+     * @return  the number of rolls, or {@code cutoff} if that maximum is reached.
+     *     If {@code startingResources} contains {@code targetResources}, returns 0.
+     * @since 2.0.00
+     */
+    protected final int calculateRollsFast
+        (final long startingResources, final SOCResourceSet targetResources, final int cutoff, final boolean[] ports)
+    {
+        if (USE_PACKED_ROLLS_FAST)
+        {
+            final long target = PackedResourceSet.pack(targetResources);
+            if (canCalculatePacked(startingResources, target))
+            {
+                final int rolls = calculateRollsPacked(startingResources, target, cutoff, ports);
+                return (rolls >= 0) ? rolls : cutoff;
+            }
+        }
+
+        return calculateRollsFast(PackedResourceSet.toResourceSet(startingResources), targetResources, cutoff, ports);
+    }
+
+    /**
+     * Calculate {@link #getEstimatesFromNowFast(SOCResourceSet, boolean[])} or
+     * {@link #getEstimatesFromNothingFast(boolean[], int)} without allocating any resource sets,
+     * if {@link #USE_PACKED_ROLLS_FAST} and the starting resources can be packed.
+     * Like the original calculation, stops at the first piece type whose estimate exceeds {@code limit},
+     * leaving it and the rest of {@code estimates} unchanged.
+     *
+     * @param start  Packed starting resources, or {@link PackedResourceSet#INVALID}
+     * @param estimates  Estimates to fill, indexed by {@link #ROAD} through {@link #SHIP};
+     *     each element should already be {@code limit}
+     * @param limit  maximum number of rolls
+     * @param ports  a list of port flags
+     * @return true if calculated, false if the caller should use the original calculation
+     * @since 2.0.00
+     */
+    private boolean calculateEstimatesPacked
+        (final long start, final int[] estimates, final int limit, final boolean[] ports)
+    {
+        if ((! USE_PACKED_ROLLS_FAST) || ! canCalculatePacked(start, PackedResourceSet.EMPTY))
+            return false;
+
+        for (int i = ROAD; i <= SHIP; ++i)
+        {
+            final int rolls = calculateRollsPacked(start, PACKED_PIECE_COSTS[i], limit, ports);
+            if (rolls < 0)
+                break;
+
+            estimates[i] = rolls;
+        }
+
+        return true;
+    }
+
+    /**
+     * Can {@link #calculateRollsPacked(long, long, int, boolean[])} calculate with these resources
+     * and keep every amount within {@link PackedResourceSet#MAX_AMOUNT}?
+     * Rolls and trades never add {@link SOCResourceConstants#UNKNOWN} resources, so a target with more unknowns
+     * than the start would keep rolling until the cutoff; those are left to the original calculation.
+     * @param start  Packed starting resources, or {@link PackedResourceSet#INVALID}
+     * @param target  Packed target resources, or {@link PackedResourceSet#INVALID}
+     * @return true if both are packed, no amount is more than 255, and the target's unknowns are within the start's
+     * @since 2.0.00
+     */
+    private static boolean canCalculatePacked(final long start, final long target)
+    {
+        return (start != PackedResourceSet.INVALID) && (target != PackedResourceSet.INVALID)
+            && PackedResourceSet.contains(PACKED_FAST_LIMIT, start)
+            && PackedResourceSet.contains(PACKED_FAST_LIMIT, target)
+            && (PackedResourceSet.getAmount(target, SOCResourceConstants.UNKNOWN)
+                <= PackedResourceSet.getAmount(start, SOCResourceConstants.UNKNOWN));
+    }
+
+    /**
+     * Packed form of {@link #calculateRollsAndRsrcFast(ResourceSet, SOCResourceSet, int, boolean[])}:
+     * Same rolls and trades, without allocating any objects.
+     * Stores the resources after trading in {@link #packedFastResources}.
+     * Call only if {@link #canCalculatePacked(long, long)}.
+     *
+     * @param ourResources  the packed starting resources
+     * @param targetResources  the packed target resources
+     * @param cutoff  maximum number of rolls
+     * @param ports  a list of port flags
+     * @return the number of rolls, or -1 if more than {@code cutoff}
+     * @since 2.0.00
+     */
+    private int calculateRollsPacked
+        (long ourResources, final long targetResources, final int cutoff, final boolean[] ports)
+    {
+        int rolls = 0;
+
+        if (! PackedResourceSet.contains(ourResources, targetResources))
+            ourResources = tradePacked(ourResources, targetResources, ports);
+
+        while (! PackedResourceSet.contains(ourResources, targetResources))
+        {
+            rolls++;
+
+            if (rolls > cutoff)
+                return -1;
+
+            for (int resource = SOCResourceConstants.CLAY;
+                    resource <= SOCResourceConstants.WOOD; resource++)
+            {
+                if ((rollsPerResource[resource] == 0) || ((rolls % rollsPerResource[resource]) == 0))
+                    ourResources = PackedResourceSet.add(ourResources, 1, resource);
+            }
+
+            if (! PackedResourceSet.contains(ourResources, targetResources))
+                ourResources = tradePacked(ourResources, targetResources, ports);
+        }
+
+        packedFastResources = ourResources;
+
+        return rolls;
+    }
+
+    /**
+     * Do any possible trading with the bank/ports towards the target, as in
+     * {@link #calculateRollsAndRsrcFast(ResourceSet, SOCResourceSet, int, boolean[])}:
+     * For each resource type we have more of than needed, trade it for the most needed resource
+     * (the one which takes the most rolls to acquire) until we can't trade or have the target.
+     *
+     * @param ourResources  the packed current resources, which don't contain {@code targetResources}
+     * @param targetResources  the packed target resources
+     * @param ports  a list of port flags
+     * @return the packed resources after trading
+     * @since 2.0.00
+     */
+    private long tradePacked(long ourResources, final long targetResources, final boolean[] ports)
+    {
+        // Quick check: Trades need at least 2 more of some type than the target
+        if (PackedResourceSet.contains
+                (PACKED_NO_TRADES, PackedResourceSet.subtract(ourResources, targetResources)))
+            return ourResources;
+
+        for (int giveResource = SOCResourceConstants.CLAY;
+                giveResource <= SOCResourceConstants.WOOD;
+                giveResource++)
+        {
+            final int tradeRatio = (ports[giveResource]) ? 2 : ((ports[SOCBoard.MISC_PORT]) ? 3 : 4);
+            final int numTrades = (PackedResourceSet.getAmount(ourResources, giveResource)
+                - PackedResourceSet.getAmount(targetResources, giveResource)) / tradeRatio;
+
+            for (int trades = 0; trades < numTrades; trades++)
+            {
+                int mostNeededResource = -1;
+
+                for (int resource = SOCResourceConstants.CLAY;
+                        resource <= SOCResourceConstants.WOOD;
+                        resource++)
+                {
+                    if ((PackedResourceSet.getAmount(ourResources, resource)
+                         < PackedResourceSet.getAmount(targetResources, resource))
+                        && ((mostNeededResource < 0)
+                            || (rollsPerResource[resource] > rollsPerResource[mostNeededResource])))
+                        mostNeededResource = resource;
+                }
+
+                if ((mostNeededResource != -1)
+                    && (PackedResourceSet.getAmount(ourResources, giveResource) >= tradeRatio))
+                {
+                    ourResources = PackedResourceSet.add(ourResources, 1, mostNeededResource);
+                    ourResources = PackedResourceSet.add(ourResources, -tradeRatio, giveResource);
+                }
+
+                if (PackedResourceSet.contains(ourResources, targetResources))
+                    return ourResources;
+            }
+        }
+
+        return ourResources;
+    }
+
     /**
      * this figures out how many rolls it would take this
      * player to get the target set of resources given
@@ -509,6 +764,20 @@ public class SOCBuildingSpeedEstimate
         //D.ebugPrintln("calculateRolls");
         //D.ebugPrintln("  start: "+startingResources);
         //D.ebugPrintln("  target: "+targetResources);
+        if (USE_PACKED_ROLLS_FAST)
+        {
+            final long start = PackedResourceSet.pack(startingResources),
+                target = PackedResourceSet.pack(targetResources);
+            if (canCalculatePacked(start, target))
+            {
+                final int rolls = calculateRollsPacked(start, target, cutoff, ports);
+                if (rolls < 0)
+                    throw new CutoffExceededException();
+
+                return new SOCResSetBuildTimePair(PackedResourceSet.toResourceSet(packedFastResources), rolls);
+            }
+        }
+
         SOCResourceSet ourResources = new SOCResourceSet(startingResources);
         int rolls = 0;
 
@@ -763,6 +1032,7 @@ public class SOCBuildingSpeedEstimate
      *    If {@link SOCResourceSet#contains(SOCResourceSet) startingResources.contains(targetResources)},
      *    returns 0 rolls and a {@code null} resource set.
      * @throws CutoffExceededException if estimate more than {@code cutoff} turns to obtain {@code targetResources}
+     * @see #USE_PACKED_ROLLS_ACCURATE
      */
     protected SOCResSetBuildTimePair calculateRollsAccurate
         (SOCResourceSet startingResources, SOCResourceSet targetResources, int cutoff, boolean[] ports)
@@ -772,6 +1042,16 @@ public class SOCBuildingSpeedEstimate
         D.ebugPrintln("  start: " + startingResources);
         D.ebugPrintln("  target: " + targetResources);
 
+        if (USE_PACKED_ROLLS_ACCURATE)
+        {
+            final SOCResSetBuildTimePair pair = AccurateRollsCalculator.calculate
+                (rollsPerResource, resourcesForRoll, startingResources, targetResources, cutoff, ports);
+            if (pair != null)
+                return pair;
+
+            // else, amounts are outside the packed engine's range; fall through to calculate here
+        }
+
         SOCResourceSet ourResources = startingResources.copy();
         int rolls = 0;
 
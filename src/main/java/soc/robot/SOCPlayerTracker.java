@@ -43,6 +43,7 @@ import soc.game.SOCShip;
 import soc.util.Pair;
 import soc.util.Queue;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -50,6 +51,7 @@ import java.util.Iterator;
 import java.util.Stack;
 import java.util.TreeMap;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -75,6 +77,11 @@ import java.util.Vector;
  *  keeping track of which pieces support the building of others."
  *</blockquote>
  *<p>
+ *  To see the effects of a possible placement, {@link SOCRobotDM} can either work on copies of the trackers
+ *  ({@link #tryPutPiece(SOCPlayingPiece, SOCGame, HashMap)}) or place it in the trackers themselves while
+ *  recording an {@link UndoLog} to roll back afterwards
+ *  ({@link #tryPutPieceWithUndoLog(SOCPlayingPiece, SOCGame, HashMap)}), which is faster.
+ *<p>
  *  To output a legible overview of the data in a SOCPlayerTracker, use {@link #playerTrackersDebug(HashMap)}.
  *
  * @author Robert S Thomas
@@ -165,6 +172,14 @@ public class SOCPlayerTracker
      */
     private SOCShip scen_SC_PIRI_closestShipToFortress;
 
+    /**
+     * If not null, an {@link UndoLog} is recording speculative changes to this tracker and the
+     * other trackers in its set. Mutating methods call {@link #journal(SOCPossiblePiece)} or
+     * {@link #journal(TreeMap, Integer)} before changing a possible piece or map that existed before the log started.
+     * @since 2.0.00
+     */
+    private UndoLog undoLog;
+
     /**
      * monitor for synchronization
      */
@@ -250,7 +265,9 @@ public class SOCPlayerTracker
      * make copies of player trackers and then
      * make connections between copied pieces
      *<P>
-     * Note: not copying threats
+     * Threats are copied too, so that a copy finds the same roads cut off
+     * by a new settlement as the original trackers would.
+     * Before v2.0.00 threats weren't copied.
      *
      * param trackers  player trackers for each player
      */
@@ -313,6 +330,8 @@ public class SOCPlayerTracker
                     }
                 }
 
+                copyThreats(posRoad, posRoadCopy, trackersCopy);
+
                 for (SOCPossiblePiece newPos : posRoad.getNewPossibilities())
                 {
                     //D.ebugPrintln(">> posRoad.newPos : "+newPos);
@@ -383,6 +402,7 @@ public class SOCPlayerTracker
                     }
                 }
 
+                copyThreats(posSet, posSetCopy, trackersCopy);
 
                 for (SOCPossibleSettlement conflict : posSet.getConflicts())
                 {
@@ -417,6 +437,72 @@ public class SOCPlayerTracker
         return trackersCopy;
     }
 
+    /**
+     * For {@link #copyPlayerTrackers(HashMap)}, add the copies of a possible piece's threats
+     * to that piece's copy. Each threat is an opponent's possible road, ship or settlement,
+     * found in that opponent's tracker copy by its coordinates.
+     *<P>
+     * A threat may no longer be in its opponent's tracker, if it was removed there
+     * since threats were last updated. That threat is added to the copy as-is,
+     * since threats are only read and never changed through a threatened piece.
+     *
+     * @param pp  Possible piece to copy threats from
+     * @param ppCopy  Copy of {@code pp} to add threats to
+     * @param trackersCopy  Player tracker copies, to find the threats' copies in
+     * @since 2.0.00
+     */
+    private static void copyThreats
+        (final SOCPossiblePiece pp, final SOCPossiblePiece ppCopy, final HashMap<Integer, SOCPlayerTracker> trackersCopy)
+    {
+        for (SOCPossiblePiece threat : pp.getThreats())
+        {
+            SOCPossiblePiece threatCopy = null;
+            final SOCPlayerTracker trackerCopy = trackersCopy.get(new Integer(threat.getPlayer().getPlayerNumber()));
+            if (trackerCopy != null)
+            {
+                final Integer coord = new Integer(threat.getCoordinates());
+                switch (threat.getType())
+                {
+                case SOCPossiblePiece.SHIP:  // fall through to ROAD
+                case SOCPossiblePiece.ROAD:
+                    threatCopy = trackerCopy.getPossibleRoads().get(coord);
+                    break;
+
+                case SOCPossiblePiece.SETTLEMENT:
+                    threatCopy = trackerCopy.getPossibleSettlements().get(coord);
+                    break;
+                }
+            }
+
+            ppCopy.addThreat((threatCopy != null) ? threatCopy : threat);
+        }
+    }
+
+    /**
+     * If an {@link UndoLog} is recording, save this possible piece's current state
+     * before it's changed by this tracker or another tracker in the set.
+     * @param pp  Possible piece about to be changed; not null
+     * @since 2.0.00
+     */
+    private void journal(final SOCPossiblePiece pp)
+    {
+        if (undoLog != null)
+            undoLog.savePiece(pp);
+    }
+
+    /**
+     * If an {@link UndoLog} is recording, save a possible-piece map's current value for this key
+     * before a put or remove. The map can be this tracker's or another tracker's in the set.
+     * @param map  {@link #possibleRoads}, {@link #possibleSettlements} or {@link #possibleCities} of any tracker
+     * @param key  Coordinate key about to be changed
+     * @since 2.0.00
+     */
+    private void journal(final TreeMap<Integer, ? extends SOCPossiblePiece> map, final Integer key)
+    {
+        if (undoLog != null)
+            undoLog.saveMapEntry(map, key);
+    }
+
     /**
      * take the monitor for this tracker
      */
@@ -604,7 +690,9 @@ public class SOCPlayerTracker
                 // if so, remove it
                 //
                 //D.ebugPrintln("$$$ removing (wrong) "+Integer.toHexString(road.getCoordinates()));
-                possibleRoads.remove(new Integer(pr.getCoordinates()));
+                final Integer prCoord = Integer.valueOf(pr.getCoordinates());
+                journal(possibleRoads, prCoord);
+                possibleRoads.remove(prCoord);
                 removeFromNecessaryRoads(pr);
 
                 break;
@@ -638,7 +726,11 @@ public class SOCPlayerTracker
             //
             // reset all expanded flags for possible roads
             //
-            pr.resetExpandedFlag();
+            if (pr.hasBeenExpanded())
+            {
+                journal(pr);
+                pr.resetExpandedFlag();
+            }
 
             if (pr.getCoordinates() == road.getCoordinates())
             {
@@ -646,7 +738,9 @@ public class SOCPlayerTracker
                 // if so, remove it
                 //
                 //D.ebugPrintln("$$$ removing "+Integer.toHexString(road.getCoordinates()));
-                possibleRoads.remove(new Integer(pr.getCoordinates()));
+                final Integer prCoord = Integer.valueOf(pr.getCoordinates());
+                journal(possibleRoads, prCoord);
+                possibleRoads.remove(prCoord);
                 removeFromNecessaryRoads(pr);
 
                 break;
@@ -679,6 +773,7 @@ public class SOCPlayerTracker
                     //
                     //D.ebugPrintln("$$$ found it");
                     removeFromNecessaryRoads(posSet);
+                    journal(posSet);
                     posSet.getNecessaryRoads().removeAllElements();
                     posSet.setNumberOfNecessaryRoads(0);
                 }
@@ -690,6 +785,7 @@ public class SOCPlayerTracker
                     //D.ebugPrintln("$$$ adding new possible settlement at "+Integer.toHexString(adjNode.intValue()));
                     SOCPossibleSettlement newPosSet = new SOCPossibleSettlement(player, adjNode.intValue(), null);
                     newPosSet.setNumberOfNecessaryRoads(0);
+                    journal(possibleSettlements, adjNode);
                     possibleSettlements.put(adjNode, newPosSet);
                     updateSettlementConflicts(newPosSet, trackers);
                 }
@@ -764,6 +860,7 @@ public class SOCPlayerTracker
                     // if so, clear necessary road list and remove from np lists
                     //
                     //D.ebugPrintln("$$$ pr "+Integer.toHexString(pr.getCoordinates())+" already in list");
+                    journal(pr);
                     if (!pr.getNecessaryRoads().isEmpty())
                     {
                         //D.ebugPrintln("$$$    clearing nr list");
@@ -818,7 +915,9 @@ public class SOCPlayerTracker
         //
         for (SOCPossibleRoad newPR : newPossibleRoads)
         {
-            possibleRoads.put(new Integer(newPR.getCoordinates()), newPR);
+            final Integer prCoord = Integer.valueOf(newPR.getCoordinates());
+            journal(possibleRoads, prCoord);
+            possibleRoads.put(prCoord, newPR);
         }
 
         //
@@ -863,6 +962,7 @@ public class SOCPlayerTracker
          HashMap<Integer, SOCPlayerTracker> trackers, final int level)
     {
         //D.ebugPrintln("$$$ expandRoad at "+Integer.toHexString(targetRoad.getCoordinates())+" level="+level);
+        journal(targetRoad);
         SOCBoard board = game.getBoard();
         final int tgtRoadEdge = targetRoad.getCoordinates();
         SOCRoad dummyRoad;
@@ -902,6 +1002,7 @@ public class SOCPlayerTracker
                         // add target road to settlement's nr list and this settlement to the road's np list
                         //
                         //D.ebugPrintln("$$$ adding road "+Integer.toHexString(targetRoad.getCoordinates())+" to the settlement "+Integer.toHexString(posSet.getCoordinates()));
+                        journal(posSet);
                         posSet.getNecessaryRoads().addElement(targetRoad);
                         targetRoad.addNewPossibility(posSet);
 
@@ -925,6 +1026,7 @@ public class SOCPlayerTracker
 
                     SOCPossibleSettlement newPosSet = new SOCPossibleSettlement(player, adjNode.intValue(), nr);
                     newPosSet.setNumberOfNecessaryRoads(targetRoad.getNumberOfNecessaryRoads() + 1);
+                    journal(possibleSettlements, adjNode);
                     possibleSettlements.put(adjNode, newPosSet);
                     targetRoad.addNewPossibility(newPosSet);
                     updateSettlementConflicts(newPosSet, trackers);
@@ -1025,6 +1127,7 @@ public class SOCPlayerTracker
                         // if so, and it needs 1 or more roads other than this one,
                         //
                         //D.ebugPrintln("$$$ pr "+Integer.toHexString(pr.getCoordinates())+" already in list");
+                        journal(pr);
                         Vector<SOCPossibleRoad> nr = pr.getNecessaryRoads();
 
                         if (!nr.isEmpty() && (!nr.contains(targetRoad)))
@@ -1099,7 +1202,9 @@ public class SOCPlayerTracker
             while (newPREnum.hasMoreElements())
             {
                 SOCPossibleRoad newPR = newPREnum.nextElement();
-                possibleRoads.put(new Integer(newPR.getCoordinates()), newPR);
+                final Integer prCoord = Integer.valueOf(newPR.getCoordinates());
+                journal(possibleRoads, prCoord);
+                possibleRoads.put(prCoord, newPR);
             }
 
             //
@@ -1146,6 +1251,7 @@ public class SOCPlayerTracker
         if (pr != null)
         {
             //D.ebugPrintln("$$$ removing road at "+Integer.toHexString(pr.getCoordinates()));
+            journal(possibleRoads, roadCoordinates);
             possibleRoads.remove(roadCoordinates);
             removeFromNecessaryRoads(pr);
             removeDependents(pr);
@@ -1356,6 +1462,8 @@ public class SOCPlayerTracker
                 if (posSet != null)
                 {
                     //D.ebugPrintln("$$$ add conflict "+Integer.toHexString(posSet.getCoordinates()));
+                    journal(ps);
+                    journal(posSet);
                     ps.addConflict(posSet);
                     posSet.addConflict(ps);
                 }
@@ -1374,6 +1482,8 @@ public class SOCPlayerTracker
                 if (posSet != null)
                 {
                     //D.ebugPrintln("$$$ add conflict "+Integer.toHexString(posSet.getCoordinates()));
+                    journal(ps);
+                    journal(posSet);
                     ps.addConflict(posSet);
                     posSet.addConflict(ps);
                 }
@@ -1425,6 +1535,7 @@ public class SOCPlayerTracker
         Integer settlementCoords = new Integer(settlement.getCoordinates());
         SOCPossibleSettlement ps = possibleSettlements.get(settlementCoords);
         D.ebugPrintln("$$$ removing (wrong) " + Integer.toHexString(settlement.getCoordinates()));
+        journal(possibleSettlements, settlementCoords);
         possibleSettlements.remove(settlementCoords);
         removeFromNecessaryRoads(ps);
 
@@ -1463,6 +1574,7 @@ public class SOCPlayerTracker
         /**
          * add a new possible city
          */
+        journal(possibleCities, settlementCoords);
         possibleCities.put(settlementCoords, new SOCPossibleCity(player, settlement.getCoordinates()));
 
         /**
@@ -1484,6 +1596,7 @@ public class SOCPlayerTracker
              * remove the possible settlement that is now a real settlement
              */
             D.ebugPrintln("$$$ removing " + Integer.toHexString(settlement.getCoordinates()));
+            journal(possibleSettlements, settlementCoords);
             possibleSettlements.remove(settlementCoords);
             removeFromNecessaryRoads(ps);
 
@@ -1502,7 +1615,9 @@ public class SOCPlayerTracker
                 if (tracker != null)
                 {
                     D.ebugPrintln("$$$ removing " + Integer.toHexString(conflict.getCoordinates()));
-                    tracker.getPossibleSettlements().remove(new Integer(conflict.getCoordinates()));
+                    final Integer conflictCoord = Integer.valueOf(conflict.getCoordinates());
+                    journal(tracker.getPossibleSettlements(), conflictCoord);
+                    tracker.getPossibleSettlements().remove(conflictCoord);
                     removeFromNecessaryRoads(conflict);
 
                     /**
@@ -1514,6 +1629,7 @@ public class SOCPlayerTracker
                     {
                         SOCPossibleSettlement otherConflict = otherConflictEnum.nextElement();
                         D.ebugPrintln("$$$ removing conflict " + Integer.toHexString(conflict.getCoordinates()) + " from " + Integer.toHexString(otherConflict.getCoordinates()));
+                        journal(otherConflict);
                         otherConflict.removeConflict(conflict);
                     }
                 }
@@ -1556,6 +1672,7 @@ public class SOCPlayerTracker
                     {
                         SOCPossibleSettlement conflict = conflictEnum.nextElement();
                         D.ebugPrintln("$$$ removing conflict " + Integer.toHexString(posSet.getCoordinates()) + " from " + Integer.toHexString(conflict.getCoordinates()));
+                        journal(conflict);
                         conflict.removeConflict(posSet);
                     }
                 }
@@ -1585,6 +1702,7 @@ public class SOCPlayerTracker
                         {
                             SOCPossibleSettlement conflict = conflictEnum.nextElement();
                             D.ebugPrintln("$$$ removing conflict " + Integer.toHexString(posSet.getCoordinates()) + " from " + Integer.toHexString(conflict.getCoordinates()));
+                            journal(conflict);
                             conflict.removeConflict(posSet);
                         }
                     }
@@ -1602,7 +1720,9 @@ public class SOCPlayerTracker
                 {
                     SOCPossibleSettlement pset = trashEnum.nextElement();
                     D.ebugPrintln("$$$ removing " + Integer.toHexString(pset.getCoordinates()) + " owned by " + pset.getPlayer().getPlayerNumber());
-                    tracker.getPossibleSettlements().remove(new Integer(pset.getCoordinates()));
+                    final Integer psetCoord = Integer.valueOf(pset.getCoordinates());
+                    journal(tracker.getPossibleSettlements(), psetCoord);
+                    tracker.getPossibleSettlements().remove(psetCoord);
                     removeFromNecessaryRoads(pset);
                 }
 
@@ -1690,6 +1810,7 @@ public class SOCPlayerTracker
                 {
                     // A way out to a new island
                     SOCPossibleShip newPS = new SOCPossibleShip(player, edge, false, null);
+                    journal(possibleRoads, edge);
                     possibleRoads.put(edge, newPS);
                     System.err.println("L1685: " + toString() + ": new PossibleShip(false) at 0x" + Integer.toHexString(edge)
                         + " from coastal settle 0x" + Integer.toHexString(settlementCoords));
@@ -1708,7 +1829,9 @@ public class SOCPlayerTracker
                 // (Make sure this isn't initial placement, where nothing has adjacent roads)
                 for (SOCPossibleRoad pr : possibleNewIslandRoads)
                 {
-                    possibleRoads.put(Integer.valueOf(pr.getCoordinates()), pr);
+                    final Integer prCoord = Integer.valueOf(pr.getCoordinates());
+                    journal(possibleRoads, prCoord);
+                    possibleRoads.put(prCoord, pr);
                     System.err.println("L1396: new possible road at edge 0x"
                         + Integer.toHexString(pr.getCoordinates()) + " from coastal settle 0x"
                         + Integer.toHexString(settlementCoords));
@@ -1787,6 +1910,9 @@ public class SOCPlayerTracker
                     /// other players' potential roads, because point of 'cancel'
                     /// is to change our robot's immediate goal, not other players.
                     ///
+                    /// Tracker copies from copyPlayerTrackers include threats, so this check
+                    /// gives the same results there and while an undo log is recording.
+                    ///
                     if (! isCancel)
                     {
                         final int settleCoord = settlement.getCoordinates(),
@@ -1843,6 +1969,8 @@ public class SOCPlayerTracker
                         while (nrTrashEnum.hasMoreElements())
                         {
                             SOCPossibleRoad nrTrashRoad = nrTrashEnum.nextElement();
+                            journal(pr);
+                            journal(nrTrashRoad);
                             pr.getNecessaryRoads().removeElement(nrTrashRoad);
                             nrTrashRoad.getNewPossibilities().removeElement(pr);
                         }
@@ -1864,7 +1992,9 @@ public class SOCPlayerTracker
             while (prTrashEnum.hasMoreElements())
             {
                 SOCPossibleRoad prt = prTrashEnum.nextElement();
-                possibleRoads.remove(new Integer(prt.getCoordinates()));
+                final Integer prtCoord = Integer.valueOf(prt.getCoordinates());
+                journal(possibleRoads, prtCoord);
+                possibleRoads.remove(prtCoord);
                 removeFromNecessaryRoads(prt);
                 removeDependents(prt);
             }
@@ -1893,6 +2023,7 @@ public class SOCPlayerTracker
 
             //D.ebugPrintln("$$$ updating "+Integer.toHexString(newPos.getCoordinates()));
             Vector<SOCPossibleRoad> nr;
+            journal(newPos);
 
             switch (newPos.getType())
             {
@@ -1911,7 +2042,9 @@ public class SOCPlayerTracker
                     if (nr.isEmpty())
                     {
                         //D.ebugPrintln("$$$ removing this road");
-                        possibleRoads.remove(new Integer(newPos.getCoordinates()));
+                        final Integer npCoord = Integer.valueOf(newPos.getCoordinates());
+                        journal(possibleRoads, npCoord);
+                        possibleRoads.remove(npCoord);
                         removeFromNecessaryRoads((SOCPossibleRoad) newPos);
                         removeDependents((SOCPossibleRoad) newPos);
                     }
@@ -1953,7 +2086,9 @@ public class SOCPlayerTracker
                     if (nr.isEmpty())
                     {
                         //D.ebugPrintln("$$$ removing this settlement");
-                        possibleSettlements.remove(new Integer(newPos.getCoordinates()));
+                        final Integer npCoord = Integer.valueOf(newPos.getCoordinates());
+                        journal(possibleSettlements, npCoord);
+                        possibleSettlements.remove(npCoord);
                         removeFromNecessaryRoads((SOCPossibleSettlement) newPos);
 
                         /**
@@ -1964,6 +2099,7 @@ public class SOCPlayerTracker
                         while (conflictEnum.hasMoreElements())
                         {
                             SOCPossibleSettlement conflict = conflictEnum.nextElement();
+                            journal(conflict);
                             conflict.removeConflict((SOCPossibleSettlement) newPos);
                         }
                     }
@@ -1993,6 +2129,7 @@ public class SOCPlayerTracker
             }
         }
 
+        journal(road);
         road.getNewPossibilities().removeAllElements();
     }
 
@@ -2011,6 +2148,7 @@ public class SOCPlayerTracker
             SOCPossibleRoad nr = nrEnum.nextElement();
 
             //D.ebugPrintln("%%% removing road at "+Integer.toHexString(pr.getCoordinates())+" from road at "+Integer.toHexString(nr.getCoordinates()));
+            journal(nr);
             nr.getNewPossibilities().removeElement(pr);
         }
     }
@@ -2033,6 +2171,7 @@ public class SOCPlayerTracker
             SOCPossibleRoad nr = nrEnum.nextElement();
 
             //D.ebugPrintln("%%% removing settlement at "+Integer.toHexString(ps.getCoordinates())+" from road at "+Integer.toHexString(nr.getCoordinates()));
+            journal(nr);
             nr.getNewPossibilities().removeElement(ps);
         }
     }
@@ -2057,7 +2196,9 @@ public class SOCPlayerTracker
          * Just remove our potential city, since it was wrongly placed.
          * remove the possible city from the list
          */
-        possibleCities.remove(new Integer(city.getCoordinates()));
+        final Integer cityCoord = Integer.valueOf(city.getCoordinates());
+        journal(possibleCities, cityCoord);
+        possibleCities.remove(cityCoord);
     }
 
     /**
@@ -2071,7 +2212,9 @@ public class SOCPlayerTracker
         /**
          * remove the possible city from the list
          */
-        possibleCities.remove(new Integer(city.getCoordinates()));
+        final Integer cityCoord = Integer.valueOf(city.getCoordinates());
+        journal(possibleCities, cityCoord);
+        possibleCities.remove(cityCoord);
     }
 
     /**
@@ -2084,7 +2227,9 @@ public class SOCPlayerTracker
         /**
          * add the possible city to the list
          */
-        possibleCities.put(new Integer(city.getCoordinates()), city);
+        final Integer cityCoord = Integer.valueOf(city.getCoordinates());
+        journal(possibleCities, cityCoord);
+        possibleCities.put(cityCoord, city);
     }
 
     /**
@@ -4155,6 +4300,81 @@ public class SOCPlayerTracker
         }
     }
 
+    /**
+     * See how building a piece impacts the game, without copying the player trackers:
+     * Starts an {@link UndoLog} for {@code trackers}, then calls
+     * {@link #tryPutPieceNoCopy(SOCPlayingPiece, SOCGame, HashMap)} to place {@code piece} in them.
+     * When done looking at the results, call {@link #undoTryPutPiece(SOCPlayingPiece, SOCGame, UndoLog)}
+     * to put the trackers and game back exactly as they were.
+     *<P>
+     * Much faster than {@link #tryPutPiece(SOCPlayingPiece, SOCGame, HashMap)}, which copies every
+     * tracker's possible pieces and their links, but {@code trackers} can't be used for any other
+     * purpose until the undo. Any {@code trackers} reference to their "before" values, such as
+     * their {@link #getWinGameETA()}, must be read before calling this method.
+     *
+     * @param piece      the piece to build, or null to only start the undo log
+     * @param game       the game
+     * @param trackers   the player trackers; will be changed until the undo
+     * @return  the undo log recording changes to {@code trackers}
+     * @see #startUndoLog(HashMap)
+     * @since 2.0.00
+     */
+    public static UndoLog tryPutPieceWithUndoLog
+        (SOCPlayingPiece piece, SOCGame game, HashMap<Integer, SOCPlayerTracker> trackers)
+    {
+        final UndoLog log = startUndoLog(trackers);
+        tryPutPieceNoCopy(piece, game, trackers);
+
+        return log;
+    }
+
+    /**
+     * Reset the game and player trackers back to before
+     * {@link #tryPutPieceWithUndoLog(SOCPlayingPiece, SOCGame, HashMap)}.
+     *
+     * @param piece      the piece to remove, or null
+     * @param game       the game
+     * @param log        the log returned by {@code tryPutPieceWithUndoLog}
+     * @throws IllegalStateException if {@code log} was already rolled back
+     * @since 2.0.00
+     */
+    public static void undoTryPutPiece(SOCPlayingPiece piece, SOCGame game, UndoLog log)
+        throws IllegalStateException
+    {
+        log.rollback();
+        undoTryPutPiece(piece, game);
+    }
+
+    /**
+     * Start recording changes to a set of player trackers, to later undo them with {@link UndoLog#rollback()}.
+     * Callers can then make any changes through the trackers' methods, such as
+     * {@link #tryPutPieceNoCopy(SOCPlayingPiece, SOCGame, HashMap)}, {@link #addOurNewCity(SOCCity)}
+     * or {@link #updateWinGameETAs(HashMap)}.
+     *<P>
+     * To match the fresh state of {@link #copyPlayerTrackers(HashMap) copied} trackers, clears the
+     * possible roads' {@link SOCPossiblePiece#hasBeenExpanded()} flags left over from earlier expansions;
+     * the rollback will restore them too.
+     *<P>
+     * If a previous log on these trackers was never rolled back (because of an exception during
+     * speculation, for example), rolls it back first.
+     *
+     * @param trackers  the player trackers for all players in the game
+     * @return  the new undo log
+     * @see #tryPutPieceWithUndoLog(SOCPlayingPiece, SOCGame, HashMap)
+     * @since 2.0.00
+     */
+    public static UndoLog startUndoLog(HashMap<Integer, SOCPlayerTracker> trackers)
+    {
+        for (SOCPlayerTracker pt : trackers.values())
+            if (pt.undoLog != null)
+            {
+                D.ebugPrintln("*** ERROR in startUndoLog : rolling back unfinished log for " + pt);
+                pt.undoLog.rollback();
+            }
+
+        return new UndoLog(trackers.values());
+    }
+
     /**
      * Print debug output for a set of player trackers.
      *<P>
@@ -4311,6 +4531,244 @@ public class SOCPlayerTracker
         }
     }
 
+    /**
+     * Undo log for speculative changes to a set of player trackers, from
+     * {@link SOCPlayerTracker#startUndoLog(HashMap)} or
+     * {@link SOCPlayerTracker#tryPutPieceWithUndoLog(SOCPlayingPiece, SOCGame, HashMap)}.
+     * {@link #rollback()} puts the trackers exactly as they were when the log started:
+     * Same possible-piece objects in their maps, and the same necessary-road, new-possibility
+     * and conflict links, road counts and ETAs.
+     *<P>
+     * Instead of copying every tracker up front like {@link SOCPlayerTracker#copyPlayerTrackers(HashMap)},
+     * the log saves each possible piece's state the first time a tracker method changes it,
+     * and each map entry's old value before a put or remove. The trackers' ETA fields are saved when
+     * the log starts. A speculative placement usually changes a few dozen pieces, out of the hundreds
+     * which a copy would duplicate and relink.
+     *<P>
+     * Not thread-safe: Use the trackers only from the thread which started the log, until it's rolled back.
+     * A set of trackers can have only one log at a time.
+     * @since 2.0.00
+     */
+    public static final class UndoLog
+    {
+        /** For {@link #id}; starts at 1 because {@link SOCPossiblePiece#undoLogID} 0 means none */
+        private static final AtomicInteger nextID = new AtomicInteger(1);
+
+        /** Unique ID to mark pieces already saved by this log; see {@link SOCPossiblePiece#undoLogID}. */
+        private final int id;
+
+        /** The trackers, and their fields' values when the log started */
+        private final SOCPlayerTracker[] trackers;
+
+        /** Each tracker's {@code int} ETA fields when the log started: 5 per tracker */
+        private final int[] savedETAs;
+
+        /** Each tracker's {@code needLR}, {@code needLA} when the log started: 2 per tracker */
+        private final boolean[] savedNeeds;
+
+        /** Each tracker's {@code scen_SC_PIRI_closestShipToFortress} when the log started */
+        private final SOCShip[] savedClosestShips;
+
+        /** Possible roads whose {@code hasBeenExpanded} flag was cleared when the log started */
+        private final ArrayList<SOCPossiblePiece> clearedExpanded = new ArrayList<SOCPossiblePiece>();
+
+        /** Changes to undo, in the order they were made; rolled back in reverse order */
+        private final ArrayList<Entry> entries = new ArrayList<Entry>();
+
+        /** Set true by {@link #rollback()} */
+        private boolean isRolledBack;
+
+        private UndoLog(final Collection<SOCPlayerTracker> pts)
+        {
+            id = nextID.getAndIncrement();
+            final int n = pts.size();
+            trackers = pts.toArray(new SOCPlayerTracker[n]);
+            savedETAs = new int[5 * n];
+            savedNeeds = new boolean[2 * n];
+            savedClosestShips = new SOCShip[n];
+
+            for (int i = 0; i < n; ++i)
+            {
+                final SOCPlayerTracker pt = trackers[i];
+                savedETAs[5 * i] = pt.longestRoadETA;
+                savedETAs[5 * i + 1] = pt.roadsToGo;
+                savedETAs[5 * i + 2] = pt.largestArmyETA;
+                savedETAs[5 * i + 3] = pt.winGameETA;
+                savedETAs[5 * i + 4] = pt.knightsToBuy;
+                savedNeeds[2 * i] = pt.needLR;
+                savedNeeds[2 * i + 1] = pt.needLA;
+                savedClosestShips[i] = pt.scen_SC_PIRI_closestShipToFortress;
+
+                for (SOCPossibleRoad pr : pt.possibleRoads.values())
+                {
+                    if (pr.hasBeenExpanded)
+                    {
+                        pr.hasBeenExpanded = false;
+                        clearedExpanded.add(pr);
+                    }
+                }
+
+                pt.undoLog = this;
+            }
+        }
+
+        /**
+         * Save this piece's current state, unless already saved by this log.
+         * @param pp  Possible piece about to be changed
+         */
+        void savePiece(final SOCPossiblePiece pp)
+        {
+            if (pp.undoLogID == id)
+                return;
+
+            pp.undoLogID = id;
+            entries.add(new PieceState(pp));
+        }
+
+        /**
+         * Save a possible-piece map's current value for this key.
+         * @param map  Any tracker's possible-piece map
+         * @param key  Coordinate key about to be changed
+         */
+        void saveMapEntry(final TreeMap<Integer, ? extends SOCPossiblePiece> map, final Integer key)
+        {
+            entries.add(new MapEntry(map, key));
+        }
+
+        /**
+         * Put the trackers back exactly as they were when this log started, and stop recording.
+         * Doesn't change the game; the caller must also undo any temporary pieces placed there.
+         * @throws IllegalStateException if already rolled back
+         */
+        public void rollback()
+            throws IllegalStateException
+        {
+            if (isRolledBack)
+                throw new IllegalStateException("already rolled back");
+            isRolledBack = true;
+
+            for (int i = entries.size() - 1; i >= 0; --i)
+                entries.get(i).restore();
+            entries.clear();
+
+            for (SOCPossiblePiece pp : clearedExpanded)
+                pp.hasBeenExpanded = true;
+
+            for (int i = 0; i < trackers.length; ++i)
+            {
+                final SOCPlayerTracker pt = trackers[i];
+                pt.longestRoadETA = savedETAs[5 * i];
+                pt.roadsToGo = savedETAs[5 * i + 1];
+                pt.largestArmyETA = savedETAs[5 * i + 2];
+                pt.winGameETA = savedETAs[5 * i + 3];
+                pt.knightsToBuy = savedETAs[5 * i + 4];
+                pt.needLR = savedNeeds[2 * i];
+                pt.needLA = savedNeeds[2 * i + 1];
+                pt.scen_SC_PIRI_closestShipToFortress = savedClosestShips[i];
+                pt.undoLog = null;
+            }
+        }
+
+        /** A saved change; {@link #restore()} undoes it. */
+        private static abstract class Entry
+        {
+            abstract void restore();
+        }
+
+        /** A possible-piece map's value for one key before a put or remove. */
+        private static final class MapEntry extends Entry
+        {
+            private final TreeMap<Integer, SOCPossiblePiece> map;
+            private final Integer key;
+            private final SOCPossiblePiece oldValue;
+
+            @SuppressWarnings("unchecked")
+            MapEntry(final TreeMap<Integer, ? extends SOCPossiblePiece> map, final Integer key)
+            {
+                this.map = (TreeMap<Integer, SOCPossiblePiece>) map;
+                this.key = key;
+                oldValue = map.get(key);
+            }
+
+            void restore()
+            {
+                if (oldValue == null)
+                    map.remove(key);
+                else
+                    map.put(key, oldValue);
+            }
+        }
+
+        /**
+         * A possible piece's fields which the trackers change during placement:
+         * Expanded flag, number of necessary roads, and contents of the
+         * necessary roads, new possibilities and conflicts lists.
+         * The lists' contents are restored into the same Vector objects.
+         */
+        private static final class PieceState extends Entry
+        {
+            private final SOCPossiblePiece pp;
+            private final boolean hasBeenExpanded;
+            private final int numberOfNecessaryRoads;
+            private final SOCPossibleRoad[] necessaryRoads;
+            private final SOCPossiblePiece[] newPossibilities;
+            private final SOCPossibleSettlement[] conflicts;
+
+            PieceState(final SOCPossiblePiece pp)
+            {
+                this.pp = pp;
+                hasBeenExpanded = pp.hasBeenExpanded;
+                if (pp instanceof SOCPossibleRoad)
+                {
+                    final SOCPossibleRoad pr = (SOCPossibleRoad) pp;
+                    numberOfNecessaryRoads = pr.numberOfNecessaryRoads;
+                    necessaryRoads = pr.necessaryRoads.toArray(new SOCPossibleRoad[pr.necessaryRoads.size()]);
+                    newPossibilities = pr.newPossibilities.toArray(new SOCPossiblePiece[pr.newPossibilities.size()]);
+                    conflicts = null;
+                }
+                else if (pp instanceof SOCPossibleSettlement)
+                {
+                    final SOCPossibleSettlement ps = (SOCPossibleSettlement) pp;
+                    numberOfNecessaryRoads = ps.numberOfNecessaryRoads;
+                    necessaryRoads = ps.necessaryRoads.toArray(new SOCPossibleRoad[ps.necessaryRoads.size()]);
+                    newPossibilities = null;
+                    conflicts = ps.conflicts.toArray(new SOCPossibleSettlement[ps.conflicts.size()]);
+                } else {
+                    numberOfNecessaryRoads = 0;
+                    necessaryRoads = null;
+                    newPossibilities = null;
+                    conflicts = null;
+                }
+            }
+
+            void restore()
+            {
+                pp.hasBeenExpanded = hasBeenExpanded;
+                if (pp instanceof SOCPossibleRoad)
+                {
+                    final SOCPossibleRoad pr = (SOCPossibleRoad) pp;
+                    pr.numberOfNecessaryRoads = numberOfNecessaryRoads;
+                    setContents(pr.necessaryRoads, necessaryRoads);
+                    setContents(pr.newPossibilities, newPossibilities);
+                }
+                else if (pp instanceof SOCPossibleSettlement)
+                {
+                    final SOCPossibleSettlement ps = (SOCPossibleSettlement) pp;
+                    ps.numberOfNecessaryRoads = numberOfNecessaryRoads;
+                    setContents(ps.necessaryRoads, necessaryRoads);
+                    setContents(ps.conflicts, conflicts);
+                }
+            }
+
+            private static <T> void setContents(final Vector<T> v, final T[] contents)
+            {
+                v.clear();
+                for (T item : contents)
+                    v.addElement(item);
+            }
+        }
+    }
+
     /**
      * SOCPlayerTracker key fields (brain player name, tracked player name) to aid debugging.
      * Since PTs are copied a lot and we need a way to tell the copies apart, also includes
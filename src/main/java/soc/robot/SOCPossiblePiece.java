@@ -138,6 +138,13 @@ public abstract class SOCPossiblePiece
      */
     protected boolean hasBeenExpanded;
 
+    /**
+     * ID of the most recent {@link SOCPlayerTracker.UndoLog} which saved this piece's state,
+     * so each log saves it only once; 0 if none.
+     * @since 2.0.00
+     */
+    int undoLogID;
+
     /**
      * Construct a SOCPossiblePiece.
      * @param pt  Piece type: {@link #ROAD}, {@link #CARD}, etc.
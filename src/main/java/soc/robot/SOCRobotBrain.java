@@ -82,10 +82,15 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 import java.util.Stack;
 import java.util.Vector;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -120,7 +125,7 @@ import java.util.Vector;
  * be used to inject random delays in incoming messages.
  *<P>
  * To keep the game moving, the server may force an inactive bot to end its turn;
- * see {@link soc.server.SOCForceEndTurnThread}.
+ * see {@link soc.server.SOCForceEndTurnTask}.
  *
  *<H3>AI/Robot development:</H3>
  *
@@ -141,6 +146,20 @@ public class SOCRobotBrain extends Thread
      */
     public static float BOTS_ONLY_FAST_PAUSE_FACTOR = .25f;
 
+    /**
+     * The brain currently calling {@link #handleGameEvent(SOCMessage)} in this thread, if any.
+     * Lets {@link SOCRobotClient#put(String)} hold that brain's messages until its {@link #pause(int)} ends.
+     * @since 2.0.00
+     */
+    static final ThreadLocal<SOCRobotBrain> handlingBrain = new ThreadLocal<SOCRobotBrain>();
+
+    /**
+     * Shared timer thread which sends all brains' messages held by {@link #pause(int)}; created when first needed.
+     * @see #getPauseTimer()
+     * @since 2.0.00
+     */
+    private static ScheduledExecutorService pauseTimer;
+
     /**
      * If, during a turn, we make this many illegal build
      * requests that the server denies, stop trying.
@@ -160,6 +179,15 @@ public class SOCRobotBrain extends Thread
      */
     protected volatile boolean alive;
 
+    /**
+     * True while this brain runs on a {@link SOCRobotBrainPool} or {@link SOCRobotBrainStepper}
+     * instead of in its own thread. Set by {@link SOCRobotBrainPool#startBrain(SOCRobotBrain)}
+     * or {@link SOCRobotBrainStepper#startBrain(SOCRobotBrain)}, cleared when the brain ends.
+     * @see #isRunning()
+     * @since 2.0.00
+     */
+    volatile boolean isPooledRunning;
+
     /**
      * Flag for whether or not it is our turn.
      * Updated near top of per-message loop in {@code run()}
@@ -180,6 +208,20 @@ public class SOCRobotBrain extends Thread
      */
     private boolean pauseFaster;
 
+    /**
+     * Messages from this brain to the server held until a {@link #pause(int)} ends, in order.
+     * Synchronize on this list when accessing it or {@link #pauseUntil}.
+     * @since 2.0.00
+     */
+    private final LinkedList<PausedMessage> pausedMessages = new LinkedList<PausedMessage>();
+
+    /**
+     * When this brain's current {@link #pause(int)} ends, from {@link System#nanoTime()}.
+     * Synchronized on {@link #pausedMessages}.
+     * @since 2.0.00
+     */
+    private long pauseUntil = System.nanoTime();
+
     /**
      * Our current state
      */
@@ -1099,966 +1141,995 @@ public class SOCRobotBrain extends Thread
 
             while (alive)
             {
-                try
-                {
-                    final SOCMessage mes = gameEventQ.get();  // Sleeps until message received
-
-                    final int mesType;
-                    if (mes != null)
-                    {
-                        // Debug aid: When looking at message contents or setting a per-message breakpoint,
-                        // skip the pings; note (mesType != SOCMessage.TIMINGPING) here.
-
-                        mesType = mes.getType();
-                        if (mesType != SOCMessage.TIMINGPING)
-                            turnEventsCurrent.addElement(mes);
-                        if (D.ebugOn)
-                            D.ebugPrintln("mes - " + mes);
-                    }
-                    else
-                    {
-                        mesType = -1;
-                    }
+                final SOCMessage mes = gameEventQ.get();  // Sleeps until message received
+                handleGameEvent(mes);
+            }
+        }
+        else
+        {
+            System.out.println("AGG! NO PINGER!");
+        }
 
-                    if (waitingForTradeMsg && (counter > 10))
-                    {
-                        waitingForTradeMsg = false;
-                        counter = 0;
-                    }
+        brainEnded();
+    }
 
-                    if (waitingForTradeResponse && (counter > 100))
-                    {
-                        // Remember other players' responses, call client.clearOffer,
-                        // clear waitingForTradeResponse and counter.
-                        tradeStopWaitingClearOffer();
-                    }
+    /**
+     * Handle one game event from {@link #gameEventQ}: Called for each message by {@link #run()},
+     * or by a worker thread of {@link SOCRobotBrainPool} if this brain is pooled.
+     * Catches and prints any exception thrown while handling {@code mes}.
+     * Check {@link #alive} afterwards: Handling some messages ends the brain.
+     * @param mes  Message to handle, or {@code null} from {@link #kill()}
+     * @since 2.0.00
+     */
+    final void handleGameEvent(final SOCMessage mes)
+    {
+        handlingBrain.set(this);
 
-                    if (waitingForGameState && (counter > 10000))
-                    {
-                        //D.ebugPrintln("counter = "+counter);
-                        //D.ebugPrintln("RESEND");
-                        counter = 0;
-                        client.resend();
-                    }
+        try
+        {
+            final int mesType;
+            if (mes != null)
+            {
+                // Debug aid: When looking at message contents or setting a per-message breakpoint,
+                // skip the pings; note (mesType != SOCMessage.TIMINGPING) here.
+
+                mesType = mes.getType();
+                if (mesType != SOCMessage.TIMINGPING)
+                    turnEventsCurrent.addElement(mes);
+                if (D.ebugOn)
+                    D.ebugPrintln("mes - " + mes);
+            }
+            else
+            {
+                mesType = -1;
+            }
 
-                    if (mesType == SOCMessage.GAMESTATE)
-                    {
-                        waitingForGameState = false;
-                        oldGameState = game.getGameState();
-                        game.setGameState(((SOCGameState) mes).getState());
-                    }
+            if (waitingForTradeMsg && (counter > 10))
+            {
+                waitingForTradeMsg = false;
+                counter = 0;
+            }
 
-                    else if (mesType == SOCMessage.FIRSTPLAYER)
-                    {
-                        game.setFirstPlayer(((SOCFirstPlayer) mes).getPlayerNumber());
-                    }
+            if (waitingForTradeResponse && (counter > 100))
+            {
+                // Remember other players' responses, call client.clearOffer,
+                // clear waitingForTradeResponse and counter.
+                tradeStopWaitingClearOffer();
+            }
 
-                    else if (mesType == SOCMessage.SETTURN)
-                    {
-                        game.setCurrentPlayerNumber(((SOCSetTurn) mes).getPlayerNumber());
-                    }
+            if (waitingForGameState && (counter > 10000))
+            {
+                //D.ebugPrintln("counter = "+counter);
+                //D.ebugPrintln("RESEND");
+                counter = 0;
+                client.resend();
+            }
 
-                    else if (mesType == SOCMessage.TURN)
-                    {
-                        // Start of a new player's turn.
-                        // Update game and reset most of our state fields.
-                        // See also below: if ((mesType == SOCMessage.TURN) && ourTurn).
+            if (mesType == SOCMessage.GAMESTATE)
+            {
+                waitingForGameState = false;
+                oldGameState = game.getGameState();
+                game.setGameState(((SOCGameState) mes).getState());
+            }
 
-                        game.setCurrentPlayerNumber(((SOCTurn) mes).getPlayerNumber());
-                        game.updateAtTurn();
+            else if (mesType == SOCMessage.FIRSTPLAYER)
+            {
+                game.setFirstPlayer(((SOCFirstPlayer) mes).getPlayerNumber());
+            }
 
-                        //
-                        // remove any expected states
-                        //
-                        expectROLL_OR_CARD = false;
-                        expectPLAY1 = false;
-                        expectPLACING_ROAD = false;
-                        expectPLACING_SETTLEMENT = false;
-                        expectPLACING_CITY = false;
-                        expectPLACING_SHIP = false;
-                        expectPLACING_ROBBER = false;
-                        expectPLACING_FREE_ROAD1 = false;
-                        expectPLACING_FREE_ROAD2 = false;
-                        expectPLACING_INV_ITEM = false;
-                        expectDICERESULT = false;
-                        expectDISCARD = false;
-                        expectMOVEROBBER = false;
-                        expectWAITING_FOR_DISCOVERY = false;
-                        expectWAITING_FOR_MONOPOLY = false;
+            else if (mesType == SOCMessage.SETTURN)
+            {
+                game.setCurrentPlayerNumber(((SOCSetTurn) mes).getPlayerNumber());
+            }
 
-                        //
-                        // reset the selling flags and offers history
-                        //
-                        if (robotParameters.getTradeFlag() == 1)
-                        {
-                            doneTrading = false;
-                        }
-                        else
-                        {
-                            doneTrading = true;
-                        }
+            else if (mesType == SOCMessage.TURN)
+            {
+                // Start of a new player's turn.
+                // Update game and reset most of our state fields.
+                // See also below: if ((mesType == SOCMessage.TURN) && ourTurn).
 
-                        waitingForTradeMsg = false;
-                        waitingForTradeResponse = false;
-                        negotiator.resetIsSelling();
-                        negotiator.resetOffersMade();
+                game.setCurrentPlayerNumber(((SOCTurn) mes).getPlayerNumber());
+                game.updateAtTurn();
 
-                        waitingForPickSpecialItem = null;
-                        waitingForSC_PIRI_FortressRequest = false;
+                //
+                // remove any expected states
+                //
+                expectROLL_OR_CARD = false;
+                expectPLAY1 = false;
+                expectPLACING_ROAD = false;
+                expectPLACING_SETTLEMENT = false;
+                expectPLACING_CITY = false;
+                expectPLACING_SHIP = false;
+                expectPLACING_ROBBER = false;
+                expectPLACING_FREE_ROAD1 = false;
+                expectPLACING_FREE_ROAD2 = false;
+                expectPLACING_INV_ITEM = false;
+                expectDICERESULT = false;
+                expectDISCARD = false;
+                expectMOVEROBBER = false;
+                expectWAITING_FOR_DISCOVERY = false;
+                expectWAITING_FOR_MONOPOLY = false;
 
-                        //
-                        // check or reset any special-building-phase decisions
-                        //
-                        decidedIfSpecialBuild = false;
-                        if (game.getGameState() == SOCGame.SPECIAL_BUILDING)
-                        {
-                            if (waitingForSpecialBuild && ! buildingPlan.isEmpty())
-                            {
-                                // Keep the building plan.
-                                // Will ask during loop body to build.
-                            } else {
-                                // We have no plan, but will call planBuilding()
-                                // during the loop body.  If buildingPlan still empty,
-                                // bottom of loop will end our Special Building turn,
-                                // just as it would in gamestate PLAY1.  Otherwise,
-                                // will ask to build after planBuilding.
-                            }
-                        } else {
-                            //
-                            // reset any plans we had
-                            //
-                            buildingPlan.clear();
-                        }
-                        negotiator.resetTargetPieces();
+                //
+                // reset the selling flags and offers history
+                //
+                if (robotParameters.getTradeFlag() == 1)
+                {
+                    doneTrading = false;
+                }
+                else
+                {
+                    doneTrading = true;
+                }
 
-                        //
-                        // swap the message-history queues
-                        //
-                        {
-                            Vector<SOCMessage> oldPrev = turnEventsPrev;
-                            turnEventsPrev = turnEventsCurrent;
-                            oldPrev.clear();
-                            turnEventsCurrent = oldPrev;
-                        }
+                waitingForTradeMsg = false;
+                waitingForTradeResponse = false;
+                negotiator.resetIsSelling();
+                negotiator.resetOffersMade();
 
-                        turnExceptionCount = 0;
-                    }
+                waitingForPickSpecialItem = null;
+                waitingForSC_PIRI_FortressRequest = false;
 
-                    if (game.getCurrentPlayerNumber() == ourPlayerNumber)
-                    {
-                        ourTurn = true;
-                        waitingForSpecialBuild = false;
-                    }
-                    else
+                //
+                // check or reset any special-building-phase decisions
+                //
+                decidedIfSpecialBuild = false;
+                if (game.getGameState() == SOCGame.SPECIAL_BUILDING)
+                {
+                    if (waitingForSpecialBuild && ! buildingPlan.isEmpty())
                     {
-                        ourTurn = false;
+                        // Keep the building plan.
+                        // Will ask during loop body to build.
+                    } else {
+                        // We have no plan, but will call planBuilding()
+                        // during the loop body.  If buildingPlan still empty,
+                        // bottom of loop will end our Special Building turn,
+                        // just as it would in gamestate PLAY1.  Otherwise,
+                        // will ask to build after planBuilding.
                     }
+                } else {
+                    //
+                    // reset any plans we had
+                    //
+                    buildingPlan.clear();
+                }
+                negotiator.resetTargetPieces();
 
-                    if ((mesType == SOCMessage.TURN) && ourTurn)
-                    {
-                        waitingForOurTurn = false;
-
-                        // Clear some per-turn variables.
-                        // For others, see above: if (mesType == SOCMessage.TURN)
-                        whatWeFailedToBuild = null;
-                        failedBuildingAttempts = 0;
-                        rejectedPlayDevCardType = -1;
-                        rejectedPlayInvItem = null;
-                    }
+                //
+                // swap the message-history queues
+                //
+                {
+                    Vector<SOCMessage> oldPrev = turnEventsPrev;
+                    turnEventsPrev = turnEventsCurrent;
+                    oldPrev.clear();
+                    turnEventsCurrent = oldPrev;
+                }
 
-                    /**
-                     * Handle some message types early.
-                     *
-                     * When reading the main flow of this method, skip past here;
-                     * search for "it's time to decide to build or take other normal actions".
-                     */
-                    switch (mesType)
-                    {
-                    case SOCMessage.PLAYERELEMENT:
-                        {
-                        handlePLAYERELEMENT((SOCPlayerElement) mes);
+                turnExceptionCount = 0;
+            }
 
-                        // If this during the ROLL_OR_CARD state, also updates the
-                        // negotiator's is-selling flags.
+            if (game.getCurrentPlayerNumber() == ourPlayerNumber)
+            {
+                ourTurn = true;
+                waitingForSpecialBuild = false;
+            }
+            else
+            {
+                ourTurn = false;
+            }
 
-                        // If our player is losing a resource needed for the buildingPlan,
-                        // clear the plan if this is for the Special Building Phase (on the 6-player board).
-                        // In normal game play, we clear the building plan at the start of each turn.
-                        }
-                        break;
+            if ((mesType == SOCMessage.TURN) && ourTurn)
+            {
+                waitingForOurTurn = false;
+
+                // Clear some per-turn variables.
+                // For others, see above: if (mesType == SOCMessage.TURN)
+                whatWeFailedToBuild = null;
+                failedBuildingAttempts = 0;
+                rejectedPlayDevCardType = -1;
+                rejectedPlayInvItem = null;
+            }
 
-                    case SOCMessage.RESOURCECOUNT:
-                        {
-                        SOCPlayer pl = game.getPlayer(((SOCResourceCount) mes).getPlayerNumber());
+            /**
+             * Handle some message types early.
+             *
+             * When reading the main flow of this method, skip past here;
+             * search for "it's time to decide to build or take other normal actions".
+             */
+            switch (mesType)
+            {
+            case SOCMessage.PLAYERELEMENT:
+                {
+                handlePLAYERELEMENT((SOCPlayerElement) mes);
 
-                        if (((SOCResourceCount) mes).getCount() != pl.getResources().getTotal())
-                        {
-                            SOCResourceSet rsrcs = pl.getResources();
+                // If this during the ROLL_OR_CARD state, also updates the
+                // negotiator's is-selling flags.
 
-                            if (D.ebugOn)
-                            {
-                                client.sendText(game, ">>> RESOURCE COUNT ERROR FOR PLAYER " + pl.getPlayerNumber()
-                                    + ": " + ((SOCResourceCount) mes).getCount() + " != " + rsrcs.getTotal());
-                            }
+                // If our player is losing a resource needed for the buildingPlan,
+                // clear the plan if this is for the Special Building Phase (on the 6-player board).
+                // In normal game play, we clear the building plan at the start of each turn.
+                }
+                break;
 
-                            //
-                            //  fix it
-                            //
-                            if (pl.getPlayerNumber() != ourPlayerNumber)
-                            {
-                                rsrcs.clear();
-                                rsrcs.setAmount(((SOCResourceCount) mes).getCount(), SOCResourceConstants.UNKNOWN);
-                            }
-                        }
-                        }
-                        break;
+            case SOCMessage.RESOURCECOUNT:
+                {
+                SOCPlayer pl = game.getPlayer(((SOCResourceCount) mes).getPlayerNumber());
 
-                    case SOCMessage.DICERESULT:
-                        game.setCurrentDice(((SOCDiceResult) mes).getResult());
-                        break;
+                if (((SOCResourceCount) mes).getCount() != pl.getResources().getTotal())
+                {
+                    SOCResourceSet rsrcs = pl.getResources();
 
-                    case SOCMessage.PUTPIECE:
-                        handlePUTPIECE_updateGameData((SOCPutPiece) mes);
-                        // For initial roads, also tracks their initial settlement in SOCPlayerTracker.
-                        break;
+                    if (D.ebugOn)
+                    {
+                        client.sendText(game, ">>> RESOURCE COUNT ERROR FOR PLAYER " + pl.getPlayerNumber()
+                            + ": " + ((SOCResourceCount) mes).getCount() + " != " + rsrcs.getTotal());
+                    }
 
-                    case SOCMessage.MOVEPIECE:
-                        {
-                            SOCMovePiece mpm = (SOCMovePiece) mes;
-                            SOCShip sh = new SOCShip
-                                (game.getPlayer(mpm.getPlayerNumber()), mpm.getFromCoord(), null);
-                            game.moveShip(sh, mpm.getToCoord());
-                        }
-                        break;
+                    //
+                    //  fix it
+                    //
+                    if (pl.getPlayerNumber() != ourPlayerNumber)
+                    {
+                        rsrcs.clear();
+                        rsrcs.setAmount(((SOCResourceCount) mes).getCount(), SOCResourceConstants.UNKNOWN);
+                    }
+                }
+                }
+                break;
 
-                    case SOCMessage.CANCELBUILDREQUEST:
-                        handleCANCELBUILDREQUEST((SOCCancelBuildRequest) mes);
-                        break;
+            case SOCMessage.DICERESULT:
+                game.setCurrentDice(((SOCDiceResult) mes).getResult());
+                break;
 
-                    case SOCMessage.MOVEROBBER:
-                        {
-                        //
-                        // Note: Don't call ga.moveRobber() because that will call the
-                        // functions to do the stealing.  We just want to set where
-                        // the robber moved, without seeing if something was stolen.
-                        // MOVEROBBER will be followed by PLAYERELEMENT messages to
-                        // report the gain/loss of resources.
-                        //
-                        moveRobberOnSeven = false;
-                        final int newHex = ((SOCMoveRobber) mes).getCoordinates();
-                        if (newHex >= 0)
-                            game.getBoard().setRobberHex(newHex, true);
-                        else
-                            ((SOCBoardLarge) game.getBoard()).setPirateHex(-newHex, true);
-                        }
-                        break;
+            case SOCMessage.PUTPIECE:
+                handlePUTPIECE_updateGameData((SOCPutPiece) mes);
+                // For initial roads, also tracks their initial settlement in SOCPlayerTracker.
+                break;
 
-                    case SOCMessage.MAKEOFFER:
-                        if (robotParameters.getTradeFlag() == 1)
-                            handleMAKEOFFER((SOCMakeOffer) mes);
-                        break;
+            case SOCMessage.MOVEPIECE:
+                {
+                    SOCMovePiece mpm = (SOCMovePiece) mes;
+                    SOCShip sh = new SOCShip
+                        (game.getPlayer(mpm.getPlayerNumber()), mpm.getFromCoord(), null);
+                    game.moveShip(sh, mpm.getToCoord());
+                }
+                break;
 
-                    case SOCMessage.CLEAROFFER:
-                        if (robotParameters.getTradeFlag() == 1)
-                        {
-                            final int pn = ((SOCClearOffer) mes).getPlayerNumber();
-                            if (pn != -1)
-                            {
-                                game.getPlayer(pn).setCurrentOffer(null);
-                            } else {
-                                for (int i = 0; i < game.maxPlayers; ++i)
-                                    game.getPlayer(i).setCurrentOffer(null);
-                            }
-                        }
-                        break;
+            case SOCMessage.CANCELBUILDREQUEST:
+                handleCANCELBUILDREQUEST((SOCCancelBuildRequest) mes);
+                break;
 
-                    case SOCMessage.ACCEPTOFFER:
-                        if (waitingForTradeResponse && (robotParameters.getTradeFlag() == 1))
-                        {
-                            if ((ourPlayerNumber == (((SOCAcceptOffer) mes).getOfferingNumber()))
-                                || (ourPlayerNumber == ((SOCAcceptOffer) mes).getAcceptingNumber()))
-                            {
-                                waitingForTradeResponse = false;
-                            }
-                        }
-                        break;
+            case SOCMessage.MOVEROBBER:
+                {
+                //
+                // Note: Don't call ga.moveRobber() because that will call the
+                // functions to do the stealing.  We just want to set where
+                // the robber moved, without seeing if something was stolen.
+                // MOVEROBBER will be followed by PLAYERELEMENT messages to
+                // report the gain/loss of resources.
+                //
+                moveRobberOnSeven = false;
+                final int newHex = ((SOCMoveRobber) mes).getCoordinates();
+                if (newHex >= 0)
+                    game.getBoard().setRobberHex(newHex, true);
+                else
+                    ((SOCBoardLarge) game.getBoard()).setPirateHex(-newHex, true);
+                }
+                break;
 
-                    case SOCMessage.REJECTOFFER:
-                        if (robotParameters.getTradeFlag() == 1)
-                            handleREJECTOFFER((SOCRejectOffer) mes);
-                        break;
+            case SOCMessage.MAKEOFFER:
+                if (robotParameters.getTradeFlag() == 1)
+                    handleMAKEOFFER((SOCMakeOffer) mes);
+                break;
 
-                    case SOCMessage.DEVCARDCOUNT:
-                        game.setNumDevCards(((SOCDevCardCount) mes).getNumDevCards());
-                        break;
+            case SOCMessage.CLEAROFFER:
+                if (robotParameters.getTradeFlag() == 1)
+                {
+                    final int pn = ((SOCClearOffer) mes).getPlayerNumber();
+                    if (pn != -1)
+                    {
+                        game.getPlayer(pn).setCurrentOffer(null);
+                    } else {
+                        for (int i = 0; i < game.maxPlayers; ++i)
+                            game.getPlayer(i).setCurrentOffer(null);
+                    }
+                }
+                break;
 
-                    case SOCMessage.DEVCARDACTION:
-                        {
-                            SOCDevCardAction dcMes = (SOCDevCardAction) mes;
-                            if (dcMes.getAction() != SOCDevCardAction.CANNOT_PLAY)
-                            {
-                                handleDEVCARDACTION(dcMes);
-                            } else {
-                                // rejected by server, can't play our requested card
-                                rejectedPlayDevCardType = dcMes.getCardType();
-                                waitingForGameState = false;
-                                expectPLACING_FREE_ROAD1 = false;
-                                expectWAITING_FOR_DISCOVERY = false;
-                                expectWAITING_FOR_MONOPOLY = false;
-                                expectPLACING_ROBBER = false;
-                            }
-                        }
-                        break;
+            case SOCMessage.ACCEPTOFFER:
+                if (waitingForTradeResponse && (robotParameters.getTradeFlag() == 1))
+                {
+                    if ((ourPlayerNumber == (((SOCAcceptOffer) mes).getOfferingNumber()))
+                        || (ourPlayerNumber == ((SOCAcceptOffer) mes).getAcceptingNumber()))
+                    {
+                        waitingForTradeResponse = false;
+                    }
+                }
+                break;
 
-                    case SOCMessage.SETPLAYEDDEVCARD:
-                        {
-                        SOCPlayer player = game.getPlayer(((SOCSetPlayedDevCard) mes).getPlayerNumber());
-                        player.setPlayedDevCard(((SOCSetPlayedDevCard) mes).hasPlayedDevCard());
-                        }
-                        break;
+            case SOCMessage.REJECTOFFER:
+                if (robotParameters.getTradeFlag() == 1)
+                    handleREJECTOFFER((SOCRejectOffer) mes);
+                break;
 
-                    case SOCMessage.SIMPLEREQUEST:
-                        // These messages can almost always be ignored by bots,
-                        // unless we've just sent a request to attack a pirate fortress.
-                        // Some request types are handled at the bottom of the loop body;
-                        // search for SOCMessage.SIMPLEREQUEST
+            case SOCMessage.DEVCARDCOUNT:
+                game.setNumDevCards(((SOCDevCardCount) mes).getNumDevCards());
+                break;
 
-                        if (ourTurn && waitingForSC_PIRI_FortressRequest)
-                        {
-                            final SOCSimpleRequest rqMes = (SOCSimpleRequest) mes;
+            case SOCMessage.DEVCARDACTION:
+                {
+                    SOCDevCardAction dcMes = (SOCDevCardAction) mes;
+                    if (dcMes.getAction() != SOCDevCardAction.CANNOT_PLAY)
+                    {
+                        handleDEVCARDACTION(dcMes);
+                    } else {
+                        // rejected by server, can't play our requested card
+                        rejectedPlayDevCardType = dcMes.getCardType();
+                        waitingForGameState = false;
+                        expectPLACING_FREE_ROAD1 = false;
+                        expectWAITING_FOR_DISCOVERY = false;
+                        expectWAITING_FOR_MONOPOLY = false;
+                        expectPLACING_ROBBER = false;
+                    }
+                }
+                break;
 
-                            if ((rqMes.getRequestType() == SOCSimpleRequest.SC_PIRI_FORT_ATTACK)
-                                && (rqMes.getPlayerNumber() == -1))
-                            {
-                                // Attack request was denied: End our turn now.
-                                // Reset method sets waitingForGameState, which will bypass
-                                // any further actions in the run() loop body.
+            case SOCMessage.SETPLAYEDDEVCARD:
+                {
+                SOCPlayer player = game.getPlayer(((SOCSetPlayedDevCard) mes).getPlayerNumber());
+                player.setPlayedDevCard(((SOCSetPlayedDevCard) mes).hasPlayedDevCard());
+                }
+                break;
 
-                                waitingForSC_PIRI_FortressRequest = false;
-                                resetFieldsAtEndTurn();
-                                client.endTurn(game);
-                            }
-                            // else, from another player; we can ignore it
-                        }
-                        break;
+            case SOCMessage.SIMPLEREQUEST:
+                // These messages can almost always be ignored by bots,
+                // unless we've just sent a request to attack a pirate fortress.
+                // Some request types are handled at the bottom of the loop body;
+                // search for SOCMessage.SIMPLEREQUEST
 
-                    case SOCMessage.SIMPLEACTION:
-                        // Most action types are handled later in the loop body;
-                        // search for SOCMessage.SIMPLEACTION
+                if (ourTurn && waitingForSC_PIRI_FortressRequest)
+                {
+                    final SOCSimpleRequest rqMes = (SOCSimpleRequest) mes;
 
-                        switch(((SOCSimpleAction) mes).getActionType())
-                        {
-                        case SOCSimpleAction.SC_PIRI_FORT_ATTACK_RESULT:
-                            if (ourTurn && waitingForSC_PIRI_FortressRequest)
-                            {
-                                // Our player has won or lost an attack on a pirate fortress.
-                                // When we receive this message, other messages have already
-                                // been sent to update related game state. End our turn now.
-                                // Reset method sets waitingForGameState, which will bypass
-                                // any further actions in the run() loop body.
+                    if ((rqMes.getRequestType() == SOCSimpleRequest.SC_PIRI_FORT_ATTACK)
+                        && (rqMes.getPlayerNumber() == -1))
+                    {
+                        // Attack request was denied: End our turn now.
+                        // Reset method sets waitingForGameState, which will bypass
+                        // any further actions in the run() loop body.
 
-                                waitingForSC_PIRI_FortressRequest = false;
-                                resetFieldsAtEndTurn();
-                                // client.endTurn not needed; making the attack implies sending endTurn
-                            }
-                            // else, from another player; we can ignore it
+                        waitingForSC_PIRI_FortressRequest = false;
+                        resetFieldsAtEndTurn();
+                        client.endTurn(game);
+                    }
+                    // else, from another player; we can ignore it
+                }
+                break;
 
-                            break;
-                        }
-                        break;
+            case SOCMessage.SIMPLEACTION:
+                // Most action types are handled later in the loop body;
+                // search for SOCMessage.SIMPLEACTION
 
-                    case SOCMessage.INVENTORYITEMACTION:
-                        if (((SOCInventoryItemAction) mes).action == SOCInventoryItemAction.CANNOT_PLAY)
-                        {
-                            final List<SOCInventoryItem> itms = ourPlayerData.getInventory().getByStateAndType
-                                (SOCInventory.PLAYABLE, ((SOCInventoryItemAction) mes).itemType);
-                            if (itms != null)
-                                rejectedPlayInvItem = itms.get(0);  // any item of same type# is similar enough here
+                switch(((SOCSimpleAction) mes).getActionType())
+                {
+                case SOCSimpleAction.SC_PIRI_FORT_ATTACK_RESULT:
+                    if (ourTurn && waitingForSC_PIRI_FortressRequest)
+                    {
+                        // Our player has won or lost an attack on a pirate fortress.
+                        // When we receive this message, other messages have already
+                        // been sent to update related game state. End our turn now.
+                        // Reset method sets waitingForGameState, which will bypass
+                        // any further actions in the run() loop body.
 
-                            waitingForGameState = false;
-                            expectPLACING_INV_ITEM = false;  // in case was rejected placement (SC_FTRI gift port, etc)
-                        }
-                        break;
+                        waitingForSC_PIRI_FortressRequest = false;
+                        resetFieldsAtEndTurn();
+                        // client.endTurn not needed; making the attack implies sending endTurn
+                    }
+                    // else, from another player; we can ignore it
 
-                    }  // switch(mesType)
+                    break;
+                }
+                break;
 
-                    debugInfo();
+            case SOCMessage.INVENTORYITEMACTION:
+                if (((SOCInventoryItemAction) mes).action == SOCInventoryItemAction.CANNOT_PLAY)
+                {
+                    final List<SOCInventoryItem> itms = ourPlayerData.getInventory().getByStateAndType
+                        (SOCInventory.PLAYABLE, ((SOCInventoryItemAction) mes).itemType);
+                    if (itms != null)
+                        rejectedPlayInvItem = itms.get(0);  // any item of same type# is similar enough here
 
-                    if ((game.getGameState() == SOCGame.ROLL_OR_CARD) && ! waitingForGameState)
-                    {
-                        rollOrPlayKnightOrExpectDice();
+                    waitingForGameState = false;
+                    expectPLACING_INV_ITEM = false;  // in case was rejected placement (SC_FTRI gift port, etc)
+                }
+                break;
 
-                        // On our turn, ask client to roll dice or play a knight;
-                        // on other turns, update flags to expect dice result.
-                        // Clears expectROLL_OR_CARD to false.
-                        // Sets either expectDICERESULT, or expectPLACING_ROBBER and waitingForGameState.
-                    }
+            }  // switch(mesType)
 
-                    if (ourTurn && (game.getGameState() == SOCGame.WAITING_FOR_ROBBER_OR_PIRATE) && ! waitingForGameState)
-                    {
-                        // TODO handle moving the pirate too
-                        // For now, always decide to move the robber.
-                        // Once we move the robber, will also need to deal with state WAITING_FOR_ROB_CLOTH_OR_RESOURCE.
-                        expectPLACING_ROBBER = true;
-                        waitingForGameState = true;
-                        counter = 0;
-                        client.choosePlayer(game, SOCChoosePlayer.CHOICE_MOVE_ROBBER);
-                        pause(200);
-                    }
+            debugInfo();
 
-                    else if ((game.getGameState() == SOCGame.PLACING_ROBBER) && ! waitingForGameState)
-                    {
-                        expectPLACING_ROBBER = false;
+            if ((game.getGameState() == SOCGame.ROLL_OR_CARD) && ! waitingForGameState)
+            {
+                rollOrPlayKnightOrExpectDice();
 
-                        if ((! waitingForOurTurn) && ourTurn)
-                        {
-                            if (! ((expectROLL_OR_CARD || expectPLAY1) && (counter < 4000)))
-                            {
-                                if (moveRobberOnSeven)
-                                {
-                                    // robber moved because 7 rolled on dice
-                                    moveRobberOnSeven = false;
-                                    waitingForGameState = true;
-                                    counter = 0;
-                                    expectPLAY1 = true;
-                                }
-                                else
-                                {
-                                    waitingForGameState = true;
-                                    counter = 0;
+                // On our turn, ask client to roll dice or play a knight;
+                // on other turns, update flags to expect dice result.
+                // Clears expectROLL_OR_CARD to false.
+                // Sets either expectDICERESULT, or expectPLACING_ROBBER and waitingForGameState.
+            }
 
-                                    if (oldGameState == SOCGame.ROLL_OR_CARD)
-                                    {
-                                        // robber moved from playing knight card before dice roll
-                                        expectROLL_OR_CARD = true;
-                                    }
-                                    else if (oldGameState == SOCGame.PLAY1)
-                                    {
-                                        // robber moved from playing knight card after dice roll
-                                        expectPLAY1 = true;
-                                    }
-                                }
+            if (ourTurn && (game.getGameState() == SOCGame.WAITING_FOR_ROBBER_OR_PIRATE) && ! waitingForGameState)
+            {
+                // TODO handle moving the pirate too
+                // For now, always decide to move the robber.
+                // Once we move the robber, will also need to deal with state WAITING_FOR_ROB_CLOTH_OR_RESOURCE.
+                expectPLACING_ROBBER = true;
+                waitingForGameState = true;
+                counter = 0;
+                client.choosePlayer(game, SOCChoosePlayer.CHOICE_MOVE_ROBBER);
+                pause(200);
+            }
 
-                                counter = 0;
-                                moveRobber();
-                            }
-                        }
-                    }
+            else if ((game.getGameState() == SOCGame.PLACING_ROBBER) && ! waitingForGameState)
+            {
+                expectPLACING_ROBBER = false;
 
-                    if ((game.getGameState() == SOCGame.WAITING_FOR_DISCOVERY) && ! waitingForGameState)
+                if ((! waitingForOurTurn) && ourTurn)
+                {
+                    if (! ((expectROLL_OR_CARD || expectPLAY1) && (counter < 4000)))
                     {
-                        expectWAITING_FOR_DISCOVERY = false;
-
-                        if ((! waitingForOurTurn) && ourTurn)
+                        if (moveRobberOnSeven)
                         {
-                            if (! (expectPLAY1) && (counter < 4000))
-                            {
-                                waitingForGameState = true;
-                                expectPLAY1 = true;
-                                counter = 0;
-                                client.pickResources(game, resourceChoices);
-                                pause(1500);
-                            }
+                            // robber moved because 7 rolled on dice
+                            moveRobberOnSeven = false;
+                            waitingForGameState = true;
+                            counter = 0;
+                            expectPLAY1 = true;
                         }
-                    }
-
-                    if ((game.getGameState() == SOCGame.WAITING_FOR_MONOPOLY) && ! waitingForGameState)
-                    {
-                        expectWAITING_FOR_MONOPOLY = false;
-
-                        if ((! waitingForOurTurn) && ourTurn)
+                        else
                         {
-                            if (!(expectPLAY1) && (counter < 4000))
+                            waitingForGameState = true;
+                            counter = 0;
+
+                            if (oldGameState == SOCGame.ROLL_OR_CARD)
+                            {
+                                // robber moved from playing knight card before dice roll
+                                expectROLL_OR_CARD = true;
+                            }
+                            else if (oldGameState == SOCGame.PLAY1)
                             {
-                                waitingForGameState = true;
+                                // robber moved from playing knight card after dice roll
                                 expectPLAY1 = true;
-                                counter = 0;
-                                client.monopolyPick(game, monopolyStrategy.getMonopolyChoice());
-                                pause(1500);
                             }
                         }
-                    }
 
-                    if (ourTurn && (! waitingForOurTurn)
-                        && (game.getGameState() == SOCGame.PLACING_INV_ITEM) && (! waitingForGameState))
-                    {
-                        planAndPlaceInvItem();  // choose and send a placement location
+                        counter = 0;
+                        moveRobber();
                     }
+                }
+            }
 
-                    if (waitingForTradeMsg && (mesType == SOCMessage.SIMPLEACTION)
-                        && (((SOCSimpleAction) mes).getActionType() == SOCSimpleAction.TRADE_SUCCESSFUL))
-                    {
-                        //
-                        // This is the bank/port trade message we've been waiting for;
-                        // is sent to only the trading player
-                        //
-                        waitingForTradeMsg = false;
-                    }
+            if ((game.getGameState() == SOCGame.WAITING_FOR_DISCOVERY) && ! waitingForGameState)
+            {
+                expectWAITING_FOR_DISCOVERY = false;
 
-                    if (waitingForDevCard && (mesType == SOCMessage.SIMPLEACTION)
-                        && (((SOCSimpleAction) mes).getPlayerNumber() == ourPlayerNumber)
-                        && (((SOCSimpleAction) mes).getActionType() == SOCSimpleAction.DEVCARD_BOUGHT))
+                if ((! waitingForOurTurn) && ourTurn)
+                {
+                    if (! (expectPLAY1) && (counter < 4000))
                     {
-                        //
-                        // This is the "dev card bought" message we've been waiting for
-                        //
-                        waitingForDevCard = false;
+                        waitingForGameState = true;
+                        expectPLAY1 = true;
+                        counter = 0;
+                        client.pickResources(game, resourceChoices);
+                        pause(1500);
                     }
+                }
+            }
 
-                    /**
-                     * Planning: If our turn and not waiting for something,
-                     * it's time to decide to build or take other normal actions.
-                     */
-                    if (((game.getGameState() == SOCGame.PLAY1) || (game.getGameState() == SOCGame.SPECIAL_BUILDING))
-                        && ! (waitingForGameState || waitingForTradeMsg || waitingForTradeResponse || waitingForDevCard
-                              || expectPLACING_ROAD || expectPLACING_SETTLEMENT || expectPLACING_CITY
-                              || expectPLACING_SHIP || expectPLACING_FREE_ROAD1 || expectPLACING_FREE_ROAD2
-                              || expectPLACING_ROBBER || expectWAITING_FOR_DISCOVERY || expectWAITING_FOR_MONOPOLY
-                              || waitingForSC_PIRI_FortressRequest || (waitingForPickSpecialItem != null)))
-                    {
-                        expectPLAY1 = false;
-
-                        // 6-player: check Special Building Phase
-                        // during other players' turns.
-                        if ((! ourTurn) && waitingForOurTurn && gameIs6Player
-                             && (! decidedIfSpecialBuild) && (! expectPLACING_ROBBER))
-                        {
-                            decidedIfSpecialBuild = true;
-
-                            /**
-                             * It's not our turn.  We're not doing anything else right now.
-                             * Gamestate has passed ROLL_OR_CARD, so we know what resources to expect.
-                             * Do we want to Special Build?  Check the same conditions as during our turn.
-                             * Make a plan if we don't have one,
-                             * and if we haven't given up building attempts this turn.
-                             */
-
-                            if (buildingPlan.empty() && (ourPlayerData.getResources().getTotal() > 1)
-                                && (failedBuildingAttempts < MAX_DENIED_BUILDING_PER_TURN))
-                            {
-                                planBuilding();
+            if ((game.getGameState() == SOCGame.WAITING_FOR_MONOPOLY) && ! waitingForGameState)
+            {
+                expectWAITING_FOR_MONOPOLY = false;
 
-                                    /*
-                                     * planBuilding takes these actions, sets buildingPlan and other fields
-                                     * (see its javadoc):
-                                     *
-                                    decisionMaker.planStuff(robotParameters.getStrategyType());
+                if ((! waitingForOurTurn) && ourTurn)
+                {
+                    if (!(expectPLAY1) && (counter < 4000))
+                    {
+                        waitingForGameState = true;
+                        expectPLAY1 = true;
+                        counter = 0;
+                        client.monopolyPick(game, monopolyStrategy.getMonopolyChoice());
+                        pause(1500);
+                    }
+                }
+            }
 
-                                    if (! buildingPlan.empty())
-                                    {
-                                        lastTarget = (SOCPossiblePiece) buildingPlan.peek();
-                                        negotiator.setTargetPiece(ourPlayerNumber, buildingPlan.peek());
-                                    }
-                                     */
+            if (ourTurn && (! waitingForOurTurn)
+                && (game.getGameState() == SOCGame.PLACING_INV_ITEM) && (! waitingForGameState))
+            {
+                planAndPlaceInvItem();  // choose and send a placement location
+            }
 
-                                if ( ! buildingPlan.empty())
-                                {
-                                    // If we have the resources right now, ask to Special Build
-
-                                    final SOCPossiblePiece targetPiece = buildingPlan.peek();
-                                    final SOCResourceSet targetResources = targetPiece.getResourcesToBuild();
-                                        // may be null
-
-                                    if ((ourPlayerData.getResources().contains(targetResources)))
-                                    {
-                                        // Ask server for the Special Building Phase.
-                                        // (TODO) if FAST_STRATEGY: Maybe randomly don't ask, to lower opponent difficulty?
-                                        waitingForSpecialBuild = true;
-                                        client.buildRequest(game, -1);
-                                        pause(100);
-                                    }
-                                }
-                            }
-                        }
+            if (waitingForTradeMsg && (mesType == SOCMessage.SIMPLEACTION)
+                && (((SOCSimpleAction) mes).getActionType() == SOCSimpleAction.TRADE_SUCCESSFUL))
+            {
+                //
+                // This is the bank/port trade message we've been waiting for;
+                // is sent to only the trading player
+                //
+                waitingForTradeMsg = false;
+            }
 
-                        if ((! waitingForOurTurn) && ourTurn)
-                        {
-                            if (! (expectROLL_OR_CARD && (counter < 4000)))
-                            {
-                                counter = 0;
+            if (waitingForDevCard && (mesType == SOCMessage.SIMPLEACTION)
+                && (((SOCSimpleAction) mes).getPlayerNumber() == ourPlayerNumber)
+                && (((SOCSimpleAction) mes).getActionType() == SOCSimpleAction.DEVCARD_BOUGHT))
+            {
+                //
+                // This is the "dev card bought" message we've been waiting for
+                //
+                waitingForDevCard = false;
+            }
 
-                                //D.ebugPrintln("DOING PLAY1");
-                                if (D.ebugOn)
-                                {
-                                    client.sendText(game, "================================");
+            /**
+             * Planning: If our turn and not waiting for something,
+             * it's time to decide to build or take other normal actions.
+             */
+            if (((game.getGameState() == SOCGame.PLAY1) || (game.getGameState() == SOCGame.SPECIAL_BUILDING))
+                && ! (waitingForGameState || waitingForTradeMsg || waitingForTradeResponse || waitingForDevCard
+                      || expectPLACING_ROAD || expectPLACING_SETTLEMENT || expectPLACING_CITY
+                      || expectPLACING_SHIP || expectPLACING_FREE_ROAD1 || expectPLACING_FREE_ROAD2
+                      || expectPLACING_ROBBER || expectWAITING_FOR_DISCOVERY || expectWAITING_FOR_MONOPOLY
+                      || waitingForSC_PIRI_FortressRequest || (waitingForPickSpecialItem != null)))
+            {
+                expectPLAY1 = false;
 
-                                    // for each player in game:
-                                    //    sendText and debug-prn game.getPlayer(i).getResources()
-                                    printResources();
-                                }
+                // 6-player: check Special Building Phase
+                // during other players' turns.
+                if ((! ourTurn) && waitingForOurTurn && gameIs6Player
+                     && (! decidedIfSpecialBuild) && (! expectPLACING_ROBBER))
+                {
+                    decidedIfSpecialBuild = true;
 
-                                /**
-                                 * if we haven't played a dev card yet,
-                                 * and we have a knight, and we can get
-                                 * largest army, play the knight.
-                                 * If we're in SPECIAL_BUILDING (not PLAY1),
-                                 * can't trade or play development cards.
-                                 *
-                                 * In scenario _SC_PIRI (which has no robber and
-                                 * no largest army), play one whenever we have
-                                 * it, someone else has resources, and we can
-                                 * convert a ship to a warship.
-                                 */
-                                if ((game.getGameState() == SOCGame.PLAY1) && ! ourPlayerData.hasPlayedDevCard())
-                                {
-                                    playKnightCardIfShould();  // might set expectPLACING_ROBBER and waitingForGameState
-                                }
+                    /**
+                     * It's not our turn.  We're not doing anything else right now.
+                     * Gamestate has passed ROLL_OR_CARD, so we know what resources to expect.
+                     * Do we want to Special Build?  Check the same conditions as during our turn.
+                     * Make a plan if we don't have one,
+                     * and if we haven't given up building attempts this turn.
+                     */
 
-                                /**
-                                 * make a plan if we don't have one,
-                                 * and if we haven't given up building
-                                 * attempts this turn.
-                                 */
-                                if ( (! expectPLACING_ROBBER) && buildingPlan.empty()
-                                     && (ourPlayerData.getResources().getTotal() > 1)
-                                     && (failedBuildingAttempts < MAX_DENIED_BUILDING_PER_TURN))
-                                {
-                                    planBuilding();
-
-                                        /*
-                                         * planBuilding takes these actions, sets buildingPlan and other fields
-                                         * (see its javadoc):
-                                         *
-                                        decisionMaker.planStuff(robotParameters.getStrategyType());
-
-                                        if (! buildingPlan.empty())
-                                        {
-                                            lastTarget = (SOCPossiblePiece) buildingPlan.peek();
-                                            negotiator.setTargetPiece(ourPlayerNumber, buildingPlan.peek());
-                                        }
-                                         */
-                                }
+                    if (buildingPlan.empty() && (ourPlayerData.getResources().getTotal() > 1)
+                        && (failedBuildingAttempts < MAX_DENIED_BUILDING_PER_TURN))
+                    {
+                        planBuilding();
 
-                                //D.ebugPrintln("DONE PLANNING");
-                                if ( (! expectPLACING_ROBBER) && (! buildingPlan.empty()))
-                                {
-                                    // Time to build something.
+                            /*
+                             * planBuilding takes these actions, sets buildingPlan and other fields
+                             * (see its javadoc):
+                             *
+                            decisionMaker.planStuff(robotParameters.getStrategyType());
 
-                                    // Either ask to build a piece, or use trading or development
-                                    // cards to get resources to build it.  See javadoc for flags set
-                                    // (expectPLACING_ROAD, etc).  In a future iteration of the run loop
-                                    // with the expected PLACING_ state, we'll build whatWeWantToBuild
-                                    // in placeIfExpectPlacing().
+                            if (! buildingPlan.empty())
+                            {
+                                lastTarget = (SOCPossiblePiece) buildingPlan.peek();
+                                negotiator.setTargetPiece(ourPlayerNumber, buildingPlan.peek());
+                            }
+                             */
 
-                                    buildOrGetResourceByTradeOrCard();
-                                }
+                        if ( ! buildingPlan.empty())
+                        {
+                            // If we have the resources right now, ask to Special Build
 
-                                /**
-                                 * see if we're done with our turn
-                                 */
-                                if (! (expectPLACING_SETTLEMENT || expectPLACING_FREE_ROAD1 || expectPLACING_FREE_ROAD2
-                                       || expectPLACING_ROAD || expectPLACING_CITY || expectPLACING_SHIP
-                                       || expectWAITING_FOR_DISCOVERY || expectWAITING_FOR_MONOPOLY
-                                       || expectPLACING_ROBBER || waitingForTradeMsg || waitingForTradeResponse
-                                       || waitingForDevCard
-                                       || waitingForGameState
-                                       || (waitingForPickSpecialItem != null)))
-                                {
-                                    // Any last things for turn from game's scenario?
-                                    boolean scenActionTaken = false;
-                                    if (game.isGameOptionSet(SOCGameOption.K_SC_FTRI)
-                                        || game.isGameOptionSet(SOCGameOption.K_SC_PIRI))
-                                    {
-                                        // possibly attack pirate fortress
-                                        // or place a gift port for better bank trades
-                                        scenActionTaken = considerScenarioTurnFinalActions();
-                                    }
-
-                                    if (! scenActionTaken)
-                                    {
-                                        resetFieldsAtEndTurn();
-                                            /*
-                                             * These state fields are reset:
-                                             *
-                                            waitingForGameState = true;
-                                            counter = 0;
-                                            expectROLL_OR_CARD = true;
-                                            waitingForOurTurn = true;
-
-                                            doneTrading = (robotParameters.getTradeFlag() != 1);
-
-                                            //D.ebugPrintln("!!! ENDING TURN !!!");
-                                            negotiator.resetIsSelling();
-                                            negotiator.resetOffersMade();
-                                            buildingPlan.clear();
-                                            negotiator.resetTargetPieces();
-                                             */
-
-                                        pause(1500);
-                                        client.endTurn(game);
-                                    }
-                                }
-                            }
-                        }
-                    }
+                            final SOCPossiblePiece targetPiece = buildingPlan.peek();
+                            final SOCResourceSet targetResources = targetPiece.getResourcesToBuild();
+                                // may be null
 
-                    /**
-                     * Placement: Make various putPiece calls; server has told us it's OK to buy them.
-                     * Call client.putPiece.
-                     * Works when it's our turn and we have an expect flag set
-                     * (such as expectPLACING_SETTLEMENT, in these game states:
-                     * START1A - START2B or - START3B
-                     * PLACING_SETTLEMENT, PLACING_ROAD, PLACING_CITY
-                     * PLACING_FREE_ROAD1, PLACING_FREE_ROAD2
-                     */
-                    if (! waitingForGameState)
-                    {
-                        placeIfExpectPlacing();
+                            if ((ourPlayerData.getResources().contains(targetResources)))
+                            {
+                                // Ask server for the Special Building Phase.
+                                // (TODO) if FAST_STRATEGY: Maybe randomly don't ask, to lower opponent difficulty?
+                                waitingForSpecialBuild = true;
+                                client.buildRequest(game, -1);
+                                pause(100);
+                            }
+                        }
                     }
+                }
 
-                    /**
-                     * End of various putPiece placement calls.
-                     */
+                if ((! waitingForOurTurn) && ourTurn)
+                {
+                    if (! (expectROLL_OR_CARD && (counter < 4000)))
+                    {
+                        counter = 0;
 
-                    /*
-                       if (game.getGameState() == SOCGame.OVER) {
-                       client.leaveGame(game);
-                       alive = false;
-                       }
-                     */
+                        //D.ebugPrintln("DOING PLAY1");
+                        if (D.ebugOn)
+                        {
+                            client.sendText(game, "================================");
 
-                    /**
-                     * Handle various message types here at bottom of loop.
-                     */
-                    switch (mesType)
-                    {
-                    case SOCMessage.SETTURN:
-                        game.setCurrentPlayerNumber(((SOCSetTurn) mes).getPlayerNumber());
-                        break;
+                            // for each player in game:
+                            //    sendText and debug-prn game.getPlayer(i).getResources()
+                            printResources();
+                        }
 
-                    case SOCMessage.PUTPIECE:
                         /**
-                         * this is for player tracking
+                         * if we haven't played a dev card yet,
+                         * and we have a knight, and we can get
+                         * largest army, play the knight.
+                         * If we're in SPECIAL_BUILDING (not PLAY1),
+                         * can't trade or play development cards.
                          *
-                         * For initial placement of our own pieces, also checks
-                         * and clears expectPUTPIECE_FROM_START1A,
-                         * and sets expectSTART1B, etc.  The final initial putpiece
-                         * clears expectPUTPIECE_FROM_START2B and sets expectROLL_OR_CARD.
+                         * In scenario _SC_PIRI (which has no robber and
+                         * no largest army), play one whenever we have
+                         * it, someone else has resources, and we can
+                         * convert a ship to a warship.
                          */
+                        if ((game.getGameState() == SOCGame.PLAY1) && ! ourPlayerData.hasPlayedDevCard())
                         {
-                            final SOCPutPiece mpp = (SOCPutPiece) mes;
-                            final int pn = mpp.getPlayerNumber();
-                            final int coord = mpp.getCoordinates();
-                            final int pieceType = mpp.getPieceType();
-                            handlePUTPIECE_updateTrackers(pn, coord, pieceType);
+                            playKnightCardIfShould();  // might set expectPLACING_ROBBER and waitingForGameState
                         }
 
-                        break;
-
-                    case SOCMessage.MOVEPIECE:
                         /**
-                         * this is for player tracking of moved ships
+                         * make a plan if we don't have one,
+                         * and if we haven't given up building
+                         * attempts this turn.
                          */
+                        if ( (! expectPLACING_ROBBER) && buildingPlan.empty()
+                             && (ourPlayerData.getResources().getTotal() > 1)
+                             && (failedBuildingAttempts < MAX_DENIED_BUILDING_PER_TURN))
                         {
-                            final SOCMovePiece mpp = (SOCMovePiece) mes;
-                            final int pn = mpp.getPlayerNumber();
-                            final int coord = mpp.getToCoord();
-                            final int pieceType = mpp.getPieceType();
-                            // TODO what about getFromCoord()?
-                            handlePUTPIECE_updateTrackers(pn, coord, pieceType);
+                            planBuilding();
+
+                                /*
+                                 * planBuilding takes these actions, sets buildingPlan and other fields
+                                 * (see its javadoc):
+                                 *
+                                decisionMaker.planStuff(robotParameters.getStrategyType());
+
+                                if (! buildingPlan.empty())
+                                {
+                                    lastTarget = (SOCPossiblePiece) buildingPlan.peek();
+                                    negotiator.setTargetPiece(ourPlayerNumber, buildingPlan.peek());
+                                }
+                                 */
                         }
-                        break;
 
-                    case SOCMessage.DICERESULT:
-                        if (expectDICERESULT)
+                        //D.ebugPrintln("DONE PLANNING");
+                        if ( (! expectPLACING_ROBBER) && (! buildingPlan.empty()))
                         {
-                            expectDICERESULT = false;
-
-                            if (((SOCDiceResult) mes).getResult() == 7)
-                            {
-                                final boolean robWithoutRobber = game.isGameOptionSet(SOCGameOption.K_SC_PIRI);
+                            // Time to build something.
 
-                                if (! robWithoutRobber)
-                                    moveRobberOnSeven = true;
+                            // Either ask to build a piece, or use trading or development
+                            // cards to get resources to build it.  See javadoc for flags set
+                            // (expectPLACING_ROAD, etc).  In a future iteration of the run loop
+                            // with the expected PLACING_ state, we'll build whatWeWantToBuild
+                            // in placeIfExpectPlacing().
 
-                                if (ourPlayerData.getResources().getTotal() > 7)
-                                    expectDISCARD = true;
+                            buildOrGetResourceByTradeOrCard();
+                        }
 
-                                else if (ourTurn)
-                                {
-                                    if (! robWithoutRobber)
-                                        expectPLACING_ROBBER = true;
-                                    else
-                                        expectPLAY1 = true;
-                                }
-                            }
-                            else
+                        /**
+                         * see if we're done with our turn
+                         */
+                        if (! (expectPLACING_SETTLEMENT || expectPLACING_FREE_ROAD1 || expectPLACING_FREE_ROAD2
+                               || expectPLACING_ROAD || expectPLACING_CITY || expectPLACING_SHIP
+                               || expectWAITING_FOR_DISCOVERY || expectWAITING_FOR_MONOPOLY
+                               || expectPLACING_ROBBER || waitingForTradeMsg || waitingForTradeResponse
+                               || waitingForDevCard
+                               || waitingForGameState
+                               || (waitingForPickSpecialItem != null)))
+                        {
+                            // Any last things for turn from game's scenario?
+                            boolean scenActionTaken = false;
+                            if (game.isGameOptionSet(SOCGameOption.K_SC_FTRI)
+                                || game.isGameOptionSet(SOCGameOption.K_SC_PIRI))
                             {
-                                expectPLAY1 = true;
+                                // possibly attack pirate fortress
+                                // or place a gift port for better bank trades
+                                scenActionTaken = considerScenarioTurnFinalActions();
                             }
-                        }
-                        break;
 
-                    case SOCMessage.SIMPLEREQUEST:
-                        // These messages can almost always be ignored by bots.
-                        // Some request types are handled at the top of the loop body;
-                        // search for SOCMessage.SIMPLEREQUEST
-                        {
-                            final SOCSimpleRequest rqMes = (SOCSimpleRequest) mes;
-                            switch (rqMes.getRequestType())
+                            if (! scenActionTaken)
                             {
-                            case SOCSimpleRequest.PROMPT_PICK_RESOURCES:
-                                // gold hex
-                                counter = 0;
-                                pickFreeResources(rqMes.getValue1());
-                                waitingForGameState = true;
-                                if (game.isInitialPlacement())
-                                {
-                                    if (game.isGameOptionSet(SOCGameOption.K_SC_3IP))
-                                        expectSTART3B = true;
-                                    else
-                                        expectSTART2B = true;
-                                } else {
-                                    expectPLAY1 = true;
-                                }
-                                break;
+                                resetFieldsAtEndTurn();
+                                    /*
+                                     * These state fields are reset:
+                                     *
+                                    waitingForGameState = true;
+                                    counter = 0;
+                                    expectROLL_OR_CARD = true;
+                                    waitingForOurTurn = true;
+
+                                    doneTrading = (robotParameters.getTradeFlag() != 1);
+
+                                    //D.ebugPrintln("!!! ENDING TURN !!!");
+                                    negotiator.resetIsSelling();
+                                    negotiator.resetOffersMade();
+                                    buildingPlan.clear();
+                                    negotiator.resetTargetPieces();
+                                     */
+
+                                pause(1500);
+                                client.endTurn(game);
                             }
                         }
-                        break;
+                    }
+                }
+            }
 
-                    case SOCMessage.DISCARDREQUEST:
-                        expectDISCARD = false;
+            /**
+             * Placement: Make various putPiece calls; server has told us it's OK to buy them.
+             * Call client.putPiece.
+             * Works when it's our turn and we have an expect flag set
+             * (such as expectPLACING_SETTLEMENT, in these game states:
+             * START1A - START2B or - START3B
+             * PLACING_SETTLEMENT, PLACING_ROAD, PLACING_CITY
+             * PLACING_FREE_ROAD1, PLACING_FREE_ROAD2
+             */
+            if (! waitingForGameState)
+            {
+                placeIfExpectPlacing();
+            }
 
-                        /**
-                         * If we haven't recently discarded...
-                         */
+            /**
+             * End of various putPiece placement calls.
+             */
+
+            /*
+               if (game.getGameState() == SOCGame.OVER) {
+               client.leaveGame(game);
+               alive = false;
+               }
+             */
+
+            /**
+             * Handle various message types here at bottom of loop.
+             */
+            switch (mesType)
+            {
+            case SOCMessage.SETTURN:
+                game.setCurrentPlayerNumber(((SOCSetTurn) mes).getPlayerNumber());
+                break;
+
+            case SOCMessage.PUTPIECE:
+                /**
+                 * this is for player tracking
+                 *
+                 * For initial placement of our own pieces, also checks
+                 * and clears expectPUTPIECE_FROM_START1A,
+                 * and sets expectSTART1B, etc.  The final initial putpiece
+                 * clears expectPUTPIECE_FROM_START2B and sets expectROLL_OR_CARD.
+                 */
+                {
+                    final SOCPutPiece mpp = (SOCPutPiece) mes;
+                    final int pn = mpp.getPlayerNumber();
+                    final int coord = mpp.getCoordinates();
+                    final int pieceType = mpp.getPieceType();
+                    handlePUTPIECE_updateTrackers(pn, coord, pieceType);
+                }
+
+                break;
+
+            case SOCMessage.MOVEPIECE:
+                /**
+                 * this is for player tracking of moved ships
+                 */
+                {
+                    final SOCMovePiece mpp = (SOCMovePiece) mes;
+                    final int pn = mpp.getPlayerNumber();
+                    final int coord = mpp.getToCoord();
+                    final int pieceType = mpp.getPieceType();
+                    // TODO what about getFromCoord()?
+                    handlePUTPIECE_updateTrackers(pn, coord, pieceType);
+                }
+                break;
+
+            case SOCMessage.DICERESULT:
+                if (expectDICERESULT)
+                {
+                    expectDICERESULT = false;
+
+                    if (((SOCDiceResult) mes).getResult() == 7)
+                    {
+                        final boolean robWithoutRobber = game.isGameOptionSet(SOCGameOption.K_SC_PIRI);
+
+                        if (! robWithoutRobber)
+                            moveRobberOnSeven = true;
 
-                        //  if (! ((expectPLACING_ROBBER || expectPLAY1) && (counter < 4000)))
-                        //  {
-                        if ((game.getCurrentDice() == 7) && ourTurn)
+                        if (ourPlayerData.getResources().getTotal() > 7)
+                            expectDISCARD = true;
+
+                        else if (ourTurn)
                         {
-                            if (! game.isGameOptionSet(SOCGameOption.K_SC_PIRI))
+                            if (! robWithoutRobber)
                                 expectPLACING_ROBBER = true;
                             else
                                 expectPLAY1 = true;
                         }
-                        else
-                        {
-                            expectPLAY1 = true;
-                        }
+                    }
+                    else
+                    {
+                        expectPLAY1 = true;
+                    }
+                }
+                break;
 
+            case SOCMessage.SIMPLEREQUEST:
+                // These messages can almost always be ignored by bots.
+                // Some request types are handled at the top of the loop body;
+                // search for SOCMessage.SIMPLEREQUEST
+                {
+                    final SOCSimpleRequest rqMes = (SOCSimpleRequest) mes;
+                    switch (rqMes.getRequestType())
+                    {
+                    case SOCSimpleRequest.PROMPT_PICK_RESOURCES:
+                        // gold hex
                         counter = 0;
-                        client.discard(game, DiscardStrategy.discard
-                            (((SOCDiscardRequest) mes).getNumberOfDiscards(), buildingPlan, rand,
-                              ourPlayerData, robotParameters, decisionMaker, negotiator));
-
-                        //  }
-                        break;
-
-                    case SOCMessage.CHOOSEPLAYERREQUEST:
+                        pickFreeResources(rqMes.getValue1());
+                        waitingForGameState = true;
+                        if (game.isInitialPlacement())
                         {
-                            final int choicePl = RobberStrategy.chooseRobberVictim
-                                (((SOCChoosePlayerRequest) mes).getChoices(), game, playerTrackers);
-                            counter = 0;
-                            client.choosePlayer(game, choicePl);
+                            if (game.isGameOptionSet(SOCGameOption.K_SC_3IP))
+                                expectSTART3B = true;
+                            else
+                                expectSTART2B = true;
+                        } else {
+                            expectPLAY1 = true;
                         }
                         break;
+                    }
+                }
+                break;
 
-                    case SOCMessage.CHOOSEPLAYER:
-                        {
-                            final int vpn = ((SOCChoosePlayer) mes).getChoice();
-                            // Cloth is more valuable.
-                            // TODO decide when we should choose resources instead
-                            client.choosePlayer(game, -(vpn + 1));
-                        }
-                        break;
+            case SOCMessage.DISCARDREQUEST:
+                expectDISCARD = false;
 
-                    case SOCMessage.SETSPECIALITEM:
-                        if (waitingForPickSpecialItem != null)
-                        {
-                            final SOCSetSpecialItem siMes = (SOCSetSpecialItem) mes;
-                            if (siMes.typeKey.equals(waitingForPickSpecialItem))
-                            {
-                                // This could be the "pick special item" message we've been waiting for,
-                                // or a related SET/CLEAR message that precedes it
+                /**
+                 * If we haven't recently discarded...
+                 */
 
-                                switch (siMes.op)
-                                {
-                                case SOCSetSpecialItem.OP_PICK:
-                                    waitingForPickSpecialItem = null;
+                //  if (! ((expectPLACING_ROBBER || expectPLAY1) && (counter < 4000)))
+                //  {
+                if ((game.getCurrentDice() == 7) && ourTurn)
+                {
+                    if (! game.isGameOptionSet(SOCGameOption.K_SC_PIRI))
+                        expectPLACING_ROBBER = true;
+                    else
+                        expectPLAY1 = true;
+                }
+                else
+                {
+                    expectPLAY1 = true;
+                }
 
-                                    // Now that this is received, can continue our turn.
-                                    // Any specific action needed? Not for SC_WOND.
-                                    break;
+                counter = 0;
+                client.discard(game, DiscardStrategy.discard
+                    (((SOCDiscardRequest) mes).getNumberOfDiscards(), buildingPlan, rand,
+                      ourPlayerData, robotParameters, decisionMaker, negotiator));
 
-                                case SOCSetSpecialItem.OP_DECLINE:
-                                    waitingForPickSpecialItem = null;
+                //  }
+                break;
 
-                                    // TODO how to prevent asking again? (similar to whatWeFailedtoBuild)
-                                    break;
+            case SOCMessage.CHOOSEPLAYERREQUEST:
+                {
+                    final int choicePl = RobberStrategy.chooseRobberVictim
+                        (((SOCChoosePlayerRequest) mes).getChoices(), game, playerTrackers);
+                    counter = 0;
+                    client.choosePlayer(game, choicePl);
+                }
+                break;
 
-                                // ignore SET or CLEAR that precedes the PICK message
-                                }
-                            }
-                        }
-                        break;
+            case SOCMessage.CHOOSEPLAYER:
+                {
+                    final int vpn = ((SOCChoosePlayer) mes).getChoice();
+                    // Cloth is more valuable.
+                    // TODO decide when we should choose resources instead
+                    client.choosePlayer(game, -(vpn + 1));
+                }
+                break;
+
+            case SOCMessage.SETSPECIALITEM:
+                if (waitingForPickSpecialItem != null)
+                {
+                    final SOCSetSpecialItem siMes = (SOCSetSpecialItem) mes;
+                    if (siMes.typeKey.equals(waitingForPickSpecialItem))
+                    {
+                        // This could be the "pick special item" message we've been waiting for,
+                        // or a related SET/CLEAR message that precedes it
 
-                    case SOCMessage.ROBOTDISMISS:
-                        if ((! expectDISCARD) && (! expectPLACING_ROBBER))
+                        switch (siMes.op)
                         {
-                            client.leaveGame(game, "dismiss msg", false, false);
-                            alive = false;
-                        }
-                        break;
+                        case SOCSetSpecialItem.OP_PICK:
+                            waitingForPickSpecialItem = null;
 
-                    case SOCMessage.TIMINGPING:
-                        // Once-per-second message from the pinger thread
-                        counter++;
-                        break;
+                            // Now that this is received, can continue our turn.
+                            // Any specific action needed? Not for SC_WOND.
+                            break;
 
-                    }  // switch (mesType) - for some types, at bottom of loop body
+                        case SOCSetSpecialItem.OP_DECLINE:
+                            waitingForPickSpecialItem = null;
 
-                    if (ourTurn && (counter > 15000))
-                    {
-                        // We've been waiting too long, must be a bug: Leave the game.
-                        // This is a fallback, server has SOCForceEndTurnThread which
-                        // should have already taken action.
-                        // Before v1.1.20, would leave game even during other (human) players' turns.
-                        client.leaveGame(game, "counter 15000", true, false);
-                        alive = false;
-                    }
+                            // TODO how to prevent asking again? (similar to whatWeFailedtoBuild)
+                            break;
 
-                    if ((failedBuildingAttempts > (2 * MAX_DENIED_BUILDING_PER_TURN))
-                        && game.isInitialPlacement())
-                    {
-                        // Apparently can't decide where we can initially place:
-                        // Leave the game.
-                        client.leaveGame(game, "failedBuildingAttempts at start", true, false);
-                        alive = false;
+                        // ignore SET or CLEAR that precedes the PICK message
+                        }
                     }
-
-                    /*
-                       if (D.ebugOn) {
-                       if (mes != null) {
-                       debugInfo();
-                       D.ebugPrintln("~~~~~~~~~~~~~~~~");
-                       }
-                       }
-                     */
-                    yield();
                 }
-                catch (Exception e)
+                break;
+
+            case SOCMessage.ROBOTDISMISS:
+                if ((! expectDISCARD) && (! expectPLACING_ROBBER))
                 {
-                    // Print exception; ignore errors due to game reset in another thread
-                    if (alive && ((game == null) || (game.getGameState() != SOCGame.RESET_OLD)))
-                    {
-                        ++turnExceptionCount;  // TODO end our turn if too many
-
-                        String eMsg = (turnExceptionCount == 1)
-                            ? "*** Robot caught an exception - " + e
-                            : "*** Robot caught an exception (" + turnExceptionCount + " this turn) - " + e;
-                        D.ebugPrintln(eMsg);
-                        System.out.println(eMsg);
-                        e.printStackTrace();
-                    }
+                    client.leaveGame(game, "dismiss msg", false, false);
+                    alive = false;
                 }
+                break;
+
+            case SOCMessage.TIMINGPING:
+                // Once-per-second message from the pinger thread
+                counter++;
+                break;
+
+            }  // switch (mesType) - for some types, at bottom of loop body
+
+            if (ourTurn && (counter > 15000))
+            {
+                // We've been waiting too long, must be a bug: Leave the game.
+                // This is a fallback, server has SOCForceEndTurnTask which
+                // should have already taken action.
+                // Before v1.1.20, would leave game even during other (human) players' turns.
+                client.leaveGame(game, "counter 15000", true, false);
+                alive = false;
+            }
+
+            if ((failedBuildingAttempts > (2 * MAX_DENIED_BUILDING_PER_TURN))
+                && game.isInitialPlacement())
+            {
+                // Apparently can't decide where we can initially place:
+                // Leave the game.
+                client.leaveGame(game, "failedBuildingAttempts at start", true, false);
+                alive = false;
             }
+
+            /*
+               if (D.ebugOn) {
+               if (mes != null) {
+               debugInfo();
+               D.ebugPrintln("~~~~~~~~~~~~~~~~");
+               }
+               }
+             */
+            if (! isPooledRunning)
+                yield();  // pool or stepper threads return to their caller after each message instead
         }
-        else
+        catch (Exception e)
         {
-            System.out.println("AGG! NO PINGER!");
+            // Print exception; ignore errors due to game reset in another thread
+            if (alive && ((game == null) || (game.getGameState() != SOCGame.RESET_OLD)))
+            {
+                ++turnExceptionCount;  // TODO end our turn if too many
+
+                String eMsg = (turnExceptionCount == 1)
+                    ? "*** Robot caught an exception - " + e
+                    : "*** Robot caught an exception (" + turnExceptionCount + " this turn) - " + e;
+                D.ebugPrintln(eMsg);
+                System.out.println(eMsg);
+                e.printStackTrace();
+            }
+        }
+        finally
+        {
+            handlingBrain.remove();
         }
+    }
 
+    /**
+     * Brain has stopped running; deallocate its game data and stop its pinger.
+     * Called at the end of {@link #run()}, or by {@link SOCRobotBrainPool} for a pooled brain.
+     * @since 2.0.00
+     */
+    final void brainEnded()
+    {
         //D.ebugPrintln("STOPPING AND DEALLOCATING");
         gameEventQ = null;
 
@@ -3614,22 +3685,22 @@ public class SOCRobotBrain extends Thread
         {
         case SOCPlayerElement.ROADS:
             SOCDisplaylessPlayerClient.handlePLAYERELEMENT_numPieces
-                (pl, amount, SOCPlayingPiece.ROAD, amount);
+                (pl, action, SOCPlayingPiece.ROAD, amount);
             break;
 
         case SOCPlayerElement.SETTLEMENTS:
             SOCDisplaylessPlayerClient.handlePLAYERELEMENT_numPieces
-                (pl, amount, SOCPlayingPiece.SETTLEMENT, amount);
+                (pl, action, SOCPlayingPiece.SETTLEMENT, amount);
             break;
 
         case SOCPlayerElement.CITIES:
             SOCDisplaylessPlayerClient.handlePLAYERELEMENT_numPieces
-                (pl, amount, SOCPlayingPiece.CITY, amount);
+                (pl, action, SOCPlayingPiece.CITY, amount);
             break;
 
         case SOCPlayerElement.SHIPS:
             SOCDisplaylessPlayerClient.handlePLAYERELEMENT_numPieces
-                (pl, amount, SOCPlayingPiece.SHIP, amount);
+                (pl, action, SOCPlayingPiece.SHIP, amount);
             break;
 
         case SOCPlayerElement.NUMKNIGHTS:
@@ -3640,27 +3711,27 @@ public class SOCRobotBrain extends Thread
 
         case SOCPlayerElement.CLAY:
             handlePLAYERELEMENT_numRsrc
-                (pl, amount, SOCResourceConstants.CLAY, "CLAY", amount);
+                (pl, action, SOCResourceConstants.CLAY, "CLAY", amount);
             break;
 
         case SOCPlayerElement.ORE:
             handlePLAYERELEMENT_numRsrc
-                (pl, amount, SOCResourceConstants.ORE, "ORE", amount);
+                (pl, action, SOCResourceConstants.ORE, "ORE", amount);
             break;
 
         case SOCPlayerElement.SHEEP:
             handlePLAYERELEMENT_numRsrc
-                (pl, amount, SOCResourceConstants.SHEEP, "SHEEP", amount);
+                (pl, action, SOCResourceConstants.SHEEP, "SHEEP", amount);
             break;
 
         case SOCPlayerElement.WHEAT:
             handlePLAYERELEMENT_numRsrc
-                (pl, amount, SOCResourceConstants.WHEAT, "WHEAT", amount);
+                (pl, action, SOCResourceConstants.WHEAT, "WHEAT", amount);
             break;
 
         case SOCPlayerElement.WOOD:
             handlePLAYERELEMENT_numRsrc
-                (pl, amount, SOCResourceConstants.WOOD, "WOOD", amount);
+                (pl, action, SOCResourceConstants.WOOD, "WOOD", amount);
             break;
 
         case SOCPlayerElement.UNKNOWN:
@@ -3670,7 +3741,7 @@ public class SOCRobotBrain extends Thread
              * then remove mes's unknown resources from player.
              */
             handlePLAYERELEMENT_numRsrc
-                (pl, amount, SOCResourceConstants.UNKNOWN, "UNKNOWN", amount);
+                (pl, action, SOCResourceConstants.UNKNOWN, "UNKNOWN", amount);
             break;
 
         case SOCPlayerElement.SCENARIO_WARSHIP_COUNT:
@@ -4349,6 +4420,17 @@ public class SOCRobotBrain extends Thread
         buildingPlan.clear();
     }
 
+    /**
+     * Is this brain running, either in its own started thread or on a {@link SOCRobotBrainPool}?
+     * Like {@link Thread#isAlive()} for brains which may be pooled.
+     * @return true if started and not yet ended
+     * @since 2.0.00
+     */
+    public boolean isRunning()
+    {
+        return isPooledRunning || isAlive();
+    }
+
     /**
      * Kill this brain's thread: clears its "alive" flag, stops pinger,
      * puts a null message into the event queue.
@@ -4378,6 +4460,14 @@ public class SOCRobotBrain extends Thread
      * In a 6-player game, pause only 75% as long, to shorten the overall game delay,
      * except if {@link #waitingForTradeResponse}.
      * This is indicated by the {@link #pauseFaster} flag.
+     *<P>
+     * When called while handling a game event, doesn't sleep: Instead holds this brain's
+     * next messages to the server until the pause ends, then a shared timer thread sends them
+     * in order. The server and other players see the same delays as if the brain had slept,
+     * but the brain's thread is free meanwhile; if pooled, its {@link SOCRobotBrainPool} worker
+     * can run other brains. Since the brain doesn't act on incoming messages until it
+     * handles them in order from {@link #gameEventQ}, holding its messages is equivalent to sleeping.
+     * If called from another thread, sleeps as in earlier versions.
      *
      * @param msec  number of milliseconds to pause
      */
@@ -4388,15 +4478,118 @@ public class SOCRobotBrain extends Thread
         else if (pauseFaster && ! waitingForTradeResponse)
             msec = (msec / 2) + (msec / 4);
 
+        if (msec <= 2)
+            return;  // skip very short pauses from small BOTS_ONLY_FAST_PAUSE_FACTOR
+
+        if (handlingBrain.get() == this)
+        {
+            final long now = System.nanoTime();
+            synchronized (pausedMessages)
+            {
+                if (pauseUntil - now < 0)
+                    pauseUntil = now;
+                pauseUntil += msec * 1000000L;
+            }
+
+            return;
+        }
+
         try
         {
             yield();
-            if (msec > 2)  // skip very short sleeps from small BOTS_ONLY_FAST_PAUSE_FACTOR
-                sleep(msec);
+            sleep(msec);
         }
         catch (InterruptedException exc) {}
     }
 
+    /**
+     * If this brain is in a {@link #pause(int)} or still has messages held from an earlier pause,
+     * hold this message to send after them. Called from {@link SOCRobotClient#put(String)}
+     * when {@link #handlingBrain} is this brain.
+     * @param cli  Client to send the message
+     * @param msg  Message to send
+     * @return  True if held to send later, false if caller should send it now
+     * @since 2.0.00
+     */
+    boolean holdIfPaused(final SOCRobotClient cli, final String msg)
+    {
+        synchronized (pausedMessages)
+        {
+            final boolean wasEmpty = pausedMessages.isEmpty();
+            if (wasEmpty && (pauseUntil - System.nanoTime() <= 0))
+                return false;
+
+            pausedMessages.add(new PausedMessage(cli, msg, pauseUntil));
+            if (wasEmpty)
+                schedulePausedSend(pauseUntil);
+        }
+
+        return true;
+    }
+
+    /**
+     * Schedule {@link #sendPausedMessages()} on the shared {@link #getPauseTimer()}.
+     * @param sendAt  When to send, from {@link System#nanoTime()}
+     * @since 2.0.00
+     */
+    private void schedulePausedSend(final long sendAt)
+    {
+        getPauseTimer().schedule(new Runnable()
+        {
+            public void run()
+            {
+                sendPausedMessages();
+            }
+        }, sendAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Send the held messages whose pauses have ended, in order. If any are left, schedule the next send.
+     * Called from the {@link #getPauseTimer()} thread.
+     * @since 2.0.00
+     */
+    private void sendPausedMessages()
+    {
+        synchronized (pausedMessages)
+        {
+            // Send while synchronized, so the brain can't send a newer message first
+            // after seeing pausedMessages is empty
+            while (! pausedMessages.isEmpty())
+            {
+                final PausedMessage pm = pausedMessages.getFirst();
+                if (pm.sendAt - System.nanoTime() > 0)
+                {
+                    schedulePausedSend(pm.sendAt);
+                    return;
+                }
+
+                pausedMessages.removeFirst();
+                pm.cli.put(pm.msg);
+            }
+        }
+    }
+
+    /**
+     * Get or create the shared daemon timer thread to send messages held by {@link #pause(int)}.
+     * @return  the pause timer
+     * @since 2.0.00
+     */
+    private static synchronized ScheduledExecutorService getPauseTimer()
+    {
+        if (pauseTimer == null)
+            pauseTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    final Thread t = new Thread(r, "robotBrain-pauseTimer");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+        return pauseTimer;
+    }
+
     /**
      * place planned first settlement
      * @param firstSettlement  First settlement's node coordinate
@@ -5205,4 +5398,27 @@ public class SOCRobotBrain extends Thread
             }
         }
     }
+
+    /**
+     * A message to the server held by {@link SOCRobotBrain#pause(int)}, and when to send it.
+     * @since 2.0.00
+     */
+    private static final class PausedMessage
+    {
+        /** Client to send the message; the brain's {@link SOCRobotBrain#client} field is cleared when it ends */
+        public final SOCRobotClient cli;
+
+        public final String msg;
+
+        /** When to send, from {@link System#nanoTime()} */
+        public final long sendAt;
+
+        public PausedMessage(final SOCRobotClient cli, final String msg, final long sendAt)
+        {
+            this.cli = cli;
+            this.msg = msg;
+            this.sendAt = sendAt;
+        }
+    }
+
 }
@@ -0,0 +1,322 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.robot;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import soc.message.SOCMessage;
+import soc.util.CappedQueue;
+import soc.util.CutoffExceededException;
+import soc.util.HashedWheelTimer;
+
+/**
+ * Runs {@link SOCRobotBrain}s as message-driven tasks on a shared set of worker threads,
+ * instead of each brain being its own thread which sleeps in {@link CappedQueue#get()}
+ * and has its own {@link SOCRobotPinger} thread.
+ *<P>
+ * Each pooled brain's {@link SOCRobotBrain#gameEventQ gameEventQ} is a {@link BrainQueue} from {@link #newQueue()}.
+ * Putting a message into that queue schedules the brain on a worker if it isn't already scheduled or running;
+ * the worker calls {@link SOCRobotBrain#handleGameEvent(SOCMessage)} for each queued message in order,
+ * so a brain handles at most one message at a time, in the same order as when it has its own thread.
+ * The brains' timing pings come from one shared timer thread.
+ *<P>
+ * Brains don't sleep in {@link SOCRobotBrain#pause(int)} while handling messages; instead their messages
+ * to the server are held until the pause ends, so a pausing brain doesn't hold a worker thread.
+ *<P>
+ * To use, set {@link SOCRobotClient#brainPool} before robot clients join games.
+ * The server does so when {@code jsettlers.bots.pool_threads} is set.
+ *
+ * @since 2.0.00
+ */
+public class SOCRobotBrainPool
+{
+    /**
+     * Max number of messages a brain handles before giving up its worker thread
+     * to other scheduled brains, if more messages are waiting in its queue.
+     */
+    public static int MAX_MESSAGES_PER_RUN = 64;
+
+    /** Worker threads which run brains' {@link BrainQueue#run()}. */
+    private final ExecutorService workers;
+
+    /** Timer to send each pooled brain's timing pings, from a single thread. */
+    private final HashedWheelTimer pingTimer;
+
+    /** Description for {@link #toString()}, such as "8 threads". */
+    private final String desc;
+
+    /** Number of brains currently started and not yet ended. */
+    private final AtomicInteger numBrains = new AtomicInteger();
+
+    /**
+     * Create a brain pool with a fixed number of daemon worker threads.
+     * @param numThreads  Number of worker threads, or 0 to use virtual threads
+     *     if this JVM has them (Java 21 or newer), otherwise a fixed pool with
+     *     one thread per available processor
+     * @throws IllegalArgumentException if {@code numThreads} &lt; 0
+     */
+    public SOCRobotBrainPool(final int numThreads)
+        throws IllegalArgumentException
+    {
+        if (numThreads < 0)
+            throw new IllegalArgumentException("numThreads");
+
+        ExecutorService ex = null;
+        String d = null;
+        if (numThreads == 0)
+        {
+            ex = newVirtualThreadExecutor();
+            if (ex != null)
+                d = "virtual threads";
+        }
+        if (ex == null)
+        {
+            final int n = (numThreads > 0) ? numThreads : Runtime.getRuntime().availableProcessors();
+            ex = Executors.newFixedThreadPool(n, new DaemonThreadFactory("robotBrainPool-"));
+            d = n + " threads";
+        }
+
+        workers = ex;
+        desc = d;
+        pingTimer = new HashedWheelTimer("robotBrainPool-pinger", 20, 128);
+    }
+
+    /**
+     * Try to create an executor which starts a virtual thread per task, if this JVM supports that.
+     * Uses reflection since this code is built for older java versions.
+     * @return  the executor, or null if not available
+     */
+    private static ExecutorService newVirtualThreadExecutor()
+    {
+        try
+        {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        }
+        catch (Throwable th)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Create a new message queue for a brain which will run on this pool.
+     * Messages can be put into the queue before the brain is created and started;
+     * they're handled once {@link #startBrain(SOCRobotBrain)} is called.
+     * @return a new queue with the default size limit
+     */
+    public CappedQueue<SOCMessage> newQueue()
+    {
+        return new BrainQueue(this);
+    }
+
+    /**
+     * Start running a brain on this pool, instead of calling {@link SOCRobotBrain#start()}.
+     * If the brain's {@link SOCRobotBrain#gameEventQ} wasn't created by this pool's {@link #newQueue()},
+     * for example by a third-party {@link SOCRobotClient#createBrain(soc.util.SOCRobotParameters,
+     * soc.game.SOCGame, CappedQueue)}, starts the brain as its own thread instead.
+     * @param brain  Brain to start; its {@link SOCRobotBrain#setOurPlayerData()} must already be called
+     */
+    public void startBrain(final SOCRobotBrain brain)
+    {
+        final CappedQueue<SOCMessage> q = brain.gameEventQ;
+        if (! ((q instanceof BrainQueue) && (((BrainQueue) q).pool == this)) || (brain.pinger == null))
+        {
+            brain.start();
+            return;
+        }
+
+        final BrainQueue bq = (BrainQueue) q;
+        numBrains.incrementAndGet();
+        brain.isPooledRunning = true;
+        bq.brain = brain;
+        pingTimer.schedule(new PingTask(brain.pinger), 0);
+        bq.wake();
+    }
+
+    /**
+     * Get the number of brains running on this pool: Started and not yet ended.
+     * @return the number of running brains
+     */
+    public int getBrainCount()
+    {
+        return numBrains.get();
+    }
+
+    /**
+     * Stop this pool's threads. Running brains won't be able to handle any more messages;
+     * kill them first.
+     */
+    public void shutdown()
+    {
+        pingTimer.stop();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Description of the pool, such as "SOCRobotBrainPool[8 threads, 12 brains]".
+     */
+    @Override
+    public String toString()
+    {
+        return "SOCRobotBrainPool[" + desc + ", " + numBrains.get() + " brains]";
+    }
+
+    /**
+     * A pooled brain's game event queue, which also runs as the worker task to handle the queued messages.
+     * {@link #scheduled} ensures the brain is run by only one worker at a time.
+     */
+    private static final class BrainQueue
+        extends CappedQueue<SOCMessage> implements Runnable
+    {
+        final SOCRobotBrainPool pool;
+
+        /** This queue's brain, or null until {@link SOCRobotBrainPool#startBrain(SOCRobotBrain)} is called. */
+        volatile SOCRobotBrain brain;
+
+        /** True while waiting for a worker or running on one. */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        BrainQueue(final SOCRobotBrainPool pool)
+        {
+            this.pool = pool;
+        }
+
+        /**
+         * Add a message to the end of the queue, and schedule the brain to handle it
+         * if the brain has been started.
+         */
+        @Override
+        public void put(final SOCMessage mes)
+            throws CutoffExceededException
+        {
+            try
+            {
+                super.put(mes);
+            }
+            finally
+            {
+                wake();
+            }
+        }
+
+        /** Schedule {@link #run()} on a worker thread, unless not started or already scheduled. */
+        void wake()
+        {
+            if ((brain != null) && scheduled.compareAndSet(false, true))
+            {
+                try
+                {
+                    pool.workers.execute(this);
+                }
+                catch (RuntimeException e)
+                {
+                    // pool was shut down
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        /**
+         * Handle the queued messages in order, up to {@link SOCRobotBrainPool#MAX_MESSAGES_PER_RUN}.
+         * If the brain is no longer alive afterwards, end it.
+         */
+        public void run()
+        {
+            final SOCRobotBrain br = brain;
+            if (br == null)
+                return;  // already ended
+
+            int n = 0;
+            while (br.alive && (n < MAX_MESSAGES_PER_RUN) && ! empty())
+            {
+                br.handleGameEvent(get());
+                ++n;
+            }
+
+            if (! br.alive)
+            {
+                brain = null;
+                br.isPooledRunning = false;
+                br.brainEnded();
+                pool.numBrains.decrementAndGet();
+
+                return;  // leave scheduled set, so no other worker will run this queue
+            }
+
+            scheduled.set(false);
+            if (! empty())
+                wake();  // more messages: arrived after the empty() check, or reached MAX_MESSAGES_PER_RUN
+        }
+    }
+
+    /**
+     * A pooled brain's timing pings: Calls {@link SOCRobotPinger#pingOnce()}
+     * and reschedules itself for the next ping, until the pinger is stopped.
+     */
+    private final class PingTask extends HashedWheelTimer.Task
+    {
+        private final SOCRobotPinger pinger;
+
+        PingTask(final SOCRobotPinger pinger)
+        {
+            this.pinger = pinger;
+        }
+
+        public void run()
+        {
+            final int next = pinger.pingOnce();
+            if (next >= 0)
+                pingTimer.schedule(this, next);
+        }
+    }
+
+    /**
+     * Creates named daemon threads for the pool, so they won't keep the JVM running.
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory
+    {
+        private final String namePrefix;
+        private final AtomicInteger threadNum = new AtomicInteger();
+
+        /**
+         * @param namePrefix  Name for threads; if it ends with "-", each thread's name
+         *     is this prefix followed by a number
+         */
+        DaemonThreadFactory(final String namePrefix)
+        {
+            this.namePrefix = namePrefix;
+        }
+
+        public Thread newThread(final Runnable r)
+        {
+            final String name = (namePrefix.endsWith("-")) ? namePrefix + threadNum.incrementAndGet() : namePrefix;
+            final Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.robot;
+
+import java.util.ArrayList;
+
+import soc.message.SOCMessage;
+import soc.util.CappedQueue;
+
+/**
+ * Runs {@link SOCRobotBrain}s on the caller's thread, for headless simulations such as
+ * {@link soc.server.SOCBotTournament}: Instead of each brain being its own thread or running on a
+ * {@link SOCRobotBrainPool}, the caller calls {@link #step()} to handle the brains' queued messages.
+ *<P>
+ * Brains' timing pings come from a virtual clock instead of {@link SOCRobotPinger} threads or timers.
+ * When all brains are idle (nothing queued), the caller can advance its clock to the next deadline,
+ * such as {@link #getNextPingTime()}, and call {@link #advanceTo(long)} to send the pings due by then.
+ * The brain's {@link SOCRobotPinger} object is used for its pings, but its thread isn't started.
+ *<P>
+ * Not thread-safe: Call all methods from the same thread. To use, override
+ * {@link SOCRobotClient#startBrain(SOCRobotBrain)} to call {@link #startBrain(SOCRobotBrain)}.
+ *
+ * @since 2.0.00
+ */
+public class SOCRobotBrainStepper
+{
+    /** Brains started and not yet ended, in the order they were started. */
+    private final ArrayList<SOCRobotBrain> brains = new ArrayList<SOCRobotBrain>();
+
+    /** Time of each brain's next timing ping; same indexes as {@link #brains}. */
+    private final ArrayList<Long> nextPings = new ArrayList<Long>();
+
+    /** Current time on the virtual clock, in milliseconds; see {@link #advanceTo(long)}. */
+    private long now;
+
+    /**
+     * Create a brain stepper.
+     * @param startTime  Starting time for the virtual clock, in milliseconds, such as
+     *     {@link System#currentTimeMillis()}
+     */
+    public SOCRobotBrainStepper(final long startTime)
+    {
+        now = startTime;
+    }
+
+    /**
+     * Start running a brain on this stepper, instead of calling {@link SOCRobotBrain#start()}.
+     * Its first timing ping is sent at the current time of the virtual clock.
+     * @param brain  Brain to start; its {@link SOCRobotBrain#setOurPlayerData()} must already be called
+     * @throws IllegalArgumentException if {@code brain} has no pinger because {@code setOurPlayerData()}
+     *     hasn't been called
+     */
+    public void startBrain(final SOCRobotBrain brain)
+        throws IllegalArgumentException
+    {
+        if (brain.pinger == null)
+            throw new IllegalArgumentException("pinger");
+
+        brain.isPooledRunning = true;
+        brains.add(brain);
+        nextPings.add(Long.valueOf(now));
+    }
+
+    /**
+     * Handle all messages queued for each brain, in order. Ends and removes any brain
+     * which is no longer alive afterwards, such as one whose game was deleted.
+     * @return  Number of messages handled
+     */
+    public int step()
+    {
+        int n = 0;
+
+        for (int i = 0; i < brains.size(); )
+        {
+            final SOCRobotBrain br = brains.get(i);
+            final CappedQueue<SOCMessage> q = br.gameEventQ;
+            while (br.alive && ! q.empty())
+            {
+                br.handleGameEvent(q.get());
+                ++n;
+            }
+
+            if (br.alive)
+            {
+                ++i;
+            } else {
+                brains.remove(i);
+                nextPings.remove(i);
+                br.isPooledRunning = false;
+                br.brainEnded();
+            }
+        }
+
+        return n;
+    }
+
+    /**
+     * Get the time of the earliest timing ping not yet sent.
+     * @return  That time on the virtual clock, or {@link Long#MAX_VALUE} if no brains are running
+     */
+    public long getNextPingTime()
+    {
+        long t = Long.MAX_VALUE;
+        for (Long at : nextPings)
+            if (at.longValue() < t)
+                t = at.longValue();
+
+        return t;
+    }
+
+    /**
+     * Advance the virtual clock, and queue a timing ping to each brain whose ping is due by then.
+     * Call {@link #step()} afterwards to handle them.
+     * @param time  New time on the virtual clock; ignored if earlier than its current time
+     */
+    public void advanceTo(final long time)
+    {
+        if (time > now)
+            now = time;
+
+        for (int i = 0; i < brains.size(); ++i)
+        {
+            long at = nextPings.get(i).longValue();
+            if (at > now)
+                continue;
+
+            final int delay = brains.get(i).pinger.pingOnce();
+            if (delay < 0)
+            {
+                at = Long.MAX_VALUE;  // stopped; brain will end when its queue is handled
+            } else {
+                do
+                {
+                    at += delay;
+                } while (at <= now);
+            }
+            nextPings.set(i, Long.valueOf(at));
+        }
+    }
+
+    /**
+     * Get the number of brains running on this stepper: Started and not yet ended.
+     * @return the number of running brains
+     */
+    public int getBrainCount()
+    {
+        return brains.size();
+    }
+
+}
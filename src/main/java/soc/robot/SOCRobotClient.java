@@ -114,6 +114,14 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
      */
     private static int testQuitAtJoinreqPercent = 0;
 
+    /**
+     * If not null, shared pool on which all robot clients in this JVM run their brains,
+     * instead of starting a thread for each brain. Set before robots join any games;
+     * the server sets this from its {@code jsettlers.bots.pool_threads} property.
+     * @since 2.0.00
+     */
+    public static SOCRobotBrainPool brainPool;
+
     /**
      * For debugging/regression testing, randomly pause responding
      * for several seconds, to simulate a "stuck" robot brain.
@@ -336,7 +344,9 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
 
             //resetThread = new SOCRobotResetThread(this);
             //resetThread.start();
-            put(SOCVersion.toCmd(Version.versionNumber(), Version.version(), Version.buildnum(), null));
+            sendBinary = false;
+            put(SOCVersion.toCmd(Version.versionNumber(), Version.version(), Version.buildnum(),
+                ((wantsBinary && (strSocketName == null)) ? SOCBinaryCodec.withClientFlag(null) : null)));
             put(SOCImARobot.toCmd(nickname, cookie, rbclass));
         }
         catch (Exception e)
@@ -379,7 +389,9 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
 
                 //resetThread = new SOCRobotResetThread(this);
                 //resetThread.start();
-                put(SOCVersion.toCmd(Version.versionNumber(), Version.version(), Version.buildnum(), null));
+                sendBinary = false;
+                put(SOCVersion.toCmd(Version.versionNumber(), Version.version(), Version.buildnum(),
+                    ((wantsBinary && (strSocketName == null)) ? SOCBinaryCodec.withClientFlag(null) : null)));
                 put(SOCImARobot.toCmd(nickname, cookie, SOCImARobot.RBCLASS_BUILTIN));
 
                 break;  // <--- Exit attempt-loop ---
@@ -401,6 +413,26 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
         }
     }
 
+    /**
+     * Send a message to the server. If called by a brain which is in a {@link SOCRobotBrain#pause(int)},
+     * holds the message to send when the pause ends, after any earlier held messages from that brain.
+     *
+     * @param s  the message
+     * @return true if the message was sent or held to send later, false if not
+     * @throws IllegalArgumentException if {@code s} is {@code null}
+     * @since 2.0.00
+     */
+    @Override
+    public boolean put(String s)
+        throws IllegalArgumentException
+    {
+        final SOCRobotBrain brain = SOCRobotBrain.handlingBrain.get();
+        if ((s != null) && (brain != null) && brain.holdIfPaused(this, s))
+            return true;
+
+        return super.put(s);
+    }
+
     /**
      * Factory method for creating a new {@link SOCRobotBrain}.
      *<P>
@@ -419,6 +451,37 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
         return new SOCRobotBrain(this, params, ga, mq);
     }
 
+    /**
+     * Create the inbound message queue for a new {@link SOCRobotBrain}: From {@link #brainPool} if set,
+     * otherwise a plain {@link CappedQueue}. Called when joining a game, before
+     * {@link #createBrain(SOCRobotParameters, SOCGame, CappedQueue)}.
+     * Clients which run their brains some other way can override this and {@link #startBrain(SOCRobotBrain)}.
+     * @return  the new queue
+     * @since 2.0.00
+     */
+    protected CappedQueue<SOCMessage> newBrainQueue()
+    {
+        final SOCRobotBrainPool pool = brainPool;
+        return (pool != null) ? pool.newQueue() : new CappedQueue<SOCMessage>();
+    }
+
+    /**
+     * Start running a new {@link SOCRobotBrain} when we've sat down in its game:
+     * On {@link #brainPool} if set, otherwise as its own thread.
+     * Clients which run their brains some other way, such as on a {@link SOCRobotBrainStepper},
+     * can override this and {@link #newBrainQueue()}.
+     * @param brain  Brain to start; its {@link SOCRobotBrain#setOurPlayerData()} has been called
+     * @since 2.0.00
+     */
+    protected void startBrain(final SOCRobotBrain brain)
+    {
+        final SOCRobotBrainPool pool = brainPool;
+        if (pool != null)
+            pool.startBrain(brain);
+        else
+            brain.start();
+    }
+
     /**
      * Treat the incoming messages.
      * Messages of unknown type are ignored. All {@link SOCGameServerText} are ignored.
@@ -854,7 +917,7 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
         ga.isPractice = isPractice;
         games.put(gaName, ga);
 
-        CappedQueue<SOCMessage> brainQ = new CappedQueue<SOCMessage>();
+        CappedQueue<SOCMessage> brainQ = newBrainQueue();
         brainQs.put(gaName, brainQ);
 
         SOCRobotBrain rb = createBrain(currentRobotParameters, ga, brainQ);
@@ -1262,7 +1325,7 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
                 }
 
                 brain.setOurPlayerData();
-                brain.start();
+                startBrain(brain);
 
                 /**
                  * change our face to the robot face
@@ -1388,7 +1451,7 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
              */
             SOCRobotBrain brain = robotBrains.get(mes.getGame());
 
-            if ((brain == null) || (! brain.isAlive()))
+            if ((brain == null) || (! brain.isRunning()))
             {
                 leaveGame(games.get(mes.getGame()), "brain not alive in handleROBOTDISMISS", true, false);
             }
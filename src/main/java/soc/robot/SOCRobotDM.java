@@ -107,6 +107,16 @@ public class SOCRobotDM
   public static final int SMART_STRATEGY = 0;
   public static final int FAST_STRATEGY = 1;
 
+  /**
+   * If true (the default), {@link #SMART_STRATEGY} planning tries each possible piece placement in the
+   * {@link #playerTrackers} themselves and rolls back the changes with a {@link SOCPlayerTracker.UndoLog}.
+   * If false, it copies all player trackers for each placement with
+   * {@link SOCPlayerTracker#tryPutPiece(SOCPlayingPiece, SOCGame, HashMap)}, which is much slower.
+   * Both ways give the same results; this flag is for testing and timing comparisons.
+   * @since 2.0.00
+   */
+  public static boolean USE_TRACKER_UNDO_LOG = true;
+
   protected SOCRobotBrain brain;
   protected HashMap<Integer,SOCPlayerTracker> playerTrackers;
   protected SOCPlayerTracker ourPlayerTracker;
@@ -163,6 +173,14 @@ public class SOCRobotDM
   protected SOCPossibleCity favoriteCity;
   protected SOCPossibleCard possibleCard;
 
+  /**
+   * If not null, the undo log recording changes to {@link #playerTrackers} during
+   * a possible placement from {@link #tryPutPiece(SOCPlayingPiece, HashMap)} or {@link #copyOrLogTrackers()}.
+   * @see #USE_TRACKER_UNDO_LOG
+   * @since 2.0.00
+   */
+  private SOCPlayerTracker.UndoLog undoLog;
+
 
   /**
    * constructor
@@ -1014,7 +1032,7 @@ public class SOCRobotDM
         else
             tmpRoad = new SOCRoad(ourPlayerData, favoriteRoad.getCoordinates(), null);
 
-        HashMap<Integer, SOCPlayerTracker> trackersCopy = SOCPlayerTracker.tryPutPiece(tmpRoad, game, playerTrackers);
+        HashMap<Integer, SOCPlayerTracker> trackersCopy = tryPutPiece(tmpRoad, playerTrackers);
         SOCPlayerTracker.updateWinGameETAs(trackersCopy);
 
         SOCPlayerTracker ourPlayerTrackerCopy = trackersCopy.get(Integer.valueOf(ourPlayerNumber));
@@ -1033,6 +1051,9 @@ public class SOCRobotDM
           }
         }
 
+        // Undo before looking at favoriteRoad's new possibilities, which placing it may have changed
+        undoTryPutPiece(tmpRoad);
+
         Enumeration<SOCPossiblePiece> newPosEnum = favoriteRoad.getNewPossibilities().elements();
         while (newPosEnum.hasMoreElements())
         {
@@ -1112,8 +1133,6 @@ public class SOCRobotDM
           }
         }
 
-        SOCPlayerTracker.undoTryPutPiece(tmpRoad, game);
-
         if (! buildingPlan.empty())
         {
           SOCPossiblePiece planPeek = buildingPlan.peek();
@@ -1177,7 +1196,7 @@ public class SOCRobotDM
 
     //
     // We're doing a depth first search of all possible road paths.
-    // For similar code, see SOCPlayer.calcLongestRoad2
+    // For similar code, see SOCPlayer.calcLongestRoadFullSearch
     // Both methods rely on a stack holding NodeLenVis (pop to curNode in loop);
     // they differ in actual element type within the stack because they are
     // gathering slightly different results (length or a stack of edges).
@@ -1695,7 +1714,8 @@ public class SOCRobotDM
     ///
     if (ourPlayerData.getNumPieces(SOCPlayingPiece.CITY) > 0)
     {
-      HashMap<Integer, SOCPlayerTracker> trackersCopy = SOCPlayerTracker.copyPlayerTrackers(playerTrackers);
+      HashMap<Integer, SOCPlayerTracker> trackersCopy =
+          (USE_TRACKER_UNDO_LOG) ? playerTrackers : SOCPlayerTracker.copyPlayerTrackers(playerTrackers);
       SOCPlayerTracker ourTrackerCopy = trackersCopy.get(Integer.valueOf(ourPlayerNumber));
       int originalWGETAs[] = new int[game.maxPlayers];
       int WGETAdiffs[] = new int[game.maxPlayers];
@@ -1703,10 +1723,14 @@ public class SOCRobotDM
       int bestWGETA = 1000;
       // int bonus = 0;
 
-      Iterator<SOCPossibleCity> posCitiesIter = ourPlayerTracker.getPossibleCities().values().iterator();
+      // iterate over a list, since placing a city changes the map
+      Iterator<SOCPossibleCity> posCitiesIter =
+          new ArrayList<SOCPossibleCity>(ourPlayerTracker.getPossibleCities().values()).iterator();
       while (posCitiesIter.hasNext())
       {
 	SOCPossibleCity posCity = posCitiesIter.next();
+	if (USE_TRACKER_UNDO_LOG)
+	  undoLog = SOCPlayerTracker.startUndoLog(playerTrackers);
 	if ((brain != null) && (brain.getDRecorder().isOn())) {
 	  brain.getDRecorder().startRecording("CITY"+posCity.getCoordinates());
 	  brain.getDRecorder().record("Estimate value of city at "
@@ -1760,6 +1784,7 @@ public class SOCRobotDM
 	// remove the city
 	//
 	ourTrackerCopy.undoAddOurNewCity(posCity);
+	rollbackTrackers();
 	game.undoPutTempPiece(tmpCity);
 
 	D.ebugPrintln("*** ETA for city = "+buildingETAs[SOCBuildingSpeedEstimate.CITY]);
@@ -2386,7 +2411,9 @@ public class SOCRobotDM
     }
     */
 
-    Iterator<SOCPossibleSettlement> posSetsIter = ourPlayerTracker.getPossibleSettlements().values().iterator();
+    // iterate over a list, since trying a placement changes the map
+    Iterator<SOCPossibleSettlement> posSetsIter =
+        new ArrayList<SOCPossibleSettlement>(ourPlayerTracker.getPossibleSettlements().values()).iterator();
     while (posSetsIter.hasNext())
     {
       SOCPossibleSettlement posSet = posSetsIter.next();
@@ -2417,9 +2444,10 @@ public class SOCRobotDM
 	  brain.getDRecorder().record("Estimate value of settlement at "+board.nodeCoordToString(posSet.getCoordinates()));
 	}
 
-	HashMap<Integer, SOCPlayerTracker> trackersCopy = SOCPlayerTracker.tryPutPiece(tmpSet, game, playerTrackers);
+	final int[] wgetasBefore = getWinGameETAs(playerTrackers);
+	HashMap<Integer, SOCPlayerTracker> trackersCopy = tryPutPiece(tmpSet, playerTrackers);
 	SOCPlayerTracker.updateWinGameETAs(trackersCopy);
-	float wgetaScore = calcWGETABonus(playerTrackers, trackersCopy);
+	float wgetaScore = calcWGETABonus(playerTrackers, wgetasBefore, trackersCopy);
 	D.ebugPrintln("***  wgetaScore = "+wgetaScore);
 
 	D.ebugPrintln("*** ETA for settlement = "+settlementETA);
@@ -2439,7 +2467,7 @@ public class SOCRobotDM
 	  brain.getDRecorder().stopRecording();
 	}
 
-	SOCPlayerTracker.undoTryPutPiece(tmpSet, game);
+	undoTryPutPiece(tmpSet);
       }
     }
   }
@@ -2463,15 +2491,16 @@ public class SOCRobotDM
     D.ebugPrintln("our player numbers = "+ourPlayerData.getNumbers());
     D.ebugPrintln("--- before [end] ---");
 
+    final int[] wgetasBefore = getWinGameETAs(playerTrackers);
     switch (posPiece.getType())
     {
     case SOCPossiblePiece.SETTLEMENT:
       tmpSet = new SOCSettlement(ourPlayerData, posPiece.getCoordinates(), null);
-      trackersCopy = SOCPlayerTracker.tryPutPiece(tmpSet, game, playerTrackers);
+      trackersCopy = tryPutPiece(tmpSet, playerTrackers);
       break;
 
     case SOCPossiblePiece.CITY:
-      trackersCopy = SOCPlayerTracker.copyPlayerTrackers(playerTrackers);
+      trackersCopy = copyOrLogTrackers();
       tmpCity = new SOCCity(ourPlayerData, posPiece.getCoordinates(), null);
       game.putTempPiece(tmpCity);
       SOCPlayerTracker trackerCopy = trackersCopy.get(Integer.valueOf(ourPlayerNumber));
@@ -2482,12 +2511,12 @@ public class SOCRobotDM
 
     case SOCPossiblePiece.ROAD:
       tmpRoad = new SOCRoad(ourPlayerData, posPiece.getCoordinates(), null);
-      trackersCopy = SOCPlayerTracker.tryPutPiece(tmpRoad, game, playerTrackers);
+      trackersCopy = tryPutPiece(tmpRoad, playerTrackers);
       break;
 
     case SOCPossiblePiece.SHIP:
       tmpRoad = new SOCShip(ourPlayerData, posPiece.getCoordinates(), null);
-      trackersCopy = SOCPlayerTracker.tryPutPiece(tmpRoad, game, playerTrackers);
+      trackersCopy = tryPutPiece(tmpRoad, playerTrackers);
       break;
     }
 
@@ -2501,7 +2530,7 @@ public class SOCRobotDM
     //SOCPlayerTracker.playerTrackersDebug(trackersCopy);
     SOCPlayerTracker.updateWinGameETAs(trackersCopy);
 
-    float WGETABonus = calcWGETABonus(playerTrackers, trackersCopy);
+    float WGETABonus = calcWGETABonus(playerTrackers, wgetasBefore, trackersCopy);
     D.ebugPrintln("$$$ win game ETA bonus : +"+WGETABonus);
     bonus = WGETABonus;
 
@@ -2511,16 +2540,17 @@ public class SOCRobotDM
     switch (posPiece.getType())
     {
     case SOCPossiblePiece.SETTLEMENT:
-      SOCPlayerTracker.undoTryPutPiece(tmpSet, game);
+      undoTryPutPiece(tmpSet);
       break;
 
     case SOCPossiblePiece.CITY:
+      rollbackTrackers();
       game.undoPutTempPiece(tmpCity);
       break;
 
     case SOCPossiblePiece.SHIP:  // fall through to ROAD
     case SOCPossiblePiece.ROAD:
-      SOCPlayerTracker.undoTryPutPiece(tmpRoad, game);
+      undoTryPutPiece(tmpRoad);
       break;
     }
 
@@ -2536,14 +2566,14 @@ public class SOCRobotDM
    * based on the change in win game ETA for this one road or ship
    * (possible settlements are 1 road closer, longest road bonus, etc).
    *<UL>
-   * <LI> Calls {@link SOCPlayerTracker#tryPutPiece(SOCPlayingPiece, SOCGame, HashMap)}
-   *      which makes a copy of the player trackers and puts the piece there.
+   * <LI> Calls {@link #tryPutPiece(SOCPlayingPiece, HashMap)}
+   *      which puts the piece in the player trackers (or a copy of them) and the game.
    *      This also updates our player's VP total, including any special VP from placement.
    * <LI> Calls {@link SOCPlayerTracker#updateWinGameETAs(HashMap)} on that copy
    * <LI> Calls {@link #calcWGETABonus(HashMap, HashMap)} to compare WGETA before and after placement
    * <LI> Calls {@link #getETABonus(int, int, float)} to weigh that bonus
    * <LI> Adds that to {@code posRoad}'s {@link SOCPossiblePiece#getScore()}
-   * <LI> Cleans up with {@link SOCPlayerTracker#undoTryPutPiece(SOCPlayingPiece, SOCGame)}
+   * <LI> Cleans up with {@link #undoTryPutPiece(SOCPlayingPiece)}
    *</UL>
    *
    * @param posRoad  the possible piece that we're scoring
@@ -2582,9 +2612,10 @@ public class SOCRobotDM
     tmpRoad1 = (isShip)
         ? new SOCShip(ourPlayerData, posRoad.getCoordinates(), null)
         : new SOCRoad(ourPlayerData, posRoad.getCoordinates(), null);
-    trackersCopy = SOCPlayerTracker.tryPutPiece(tmpRoad1, game, playerTrackers);
+    final int[] wgetasBefore = getWinGameETAs(playerTrackers);
+    trackersCopy = tryPutPiece(tmpRoad1, playerTrackers);
     SOCPlayerTracker.updateWinGameETAs(trackersCopy);
-    float score = calcWGETABonus(playerTrackers, trackersCopy);
+    float score = calcWGETABonus(playerTrackers, wgetasBefore, trackersCopy);
 
     if (! posRoad.getThreats().isEmpty()) {
       score *= threatMultiplier;
@@ -2603,7 +2634,7 @@ public class SOCRobotDM
     }
 
     D.ebugPrintln("--- after [end] ---");
-    SOCPlayerTracker.undoTryPutPiece(tmpRoad1, game);
+    undoTryPutPiece(tmpRoad1);
     ourPlayerData.getResources().clear();
     ourPlayerData.getResources().add(originalResources);
     D.ebugPrintln("--- cleanup done ---");
@@ -2622,10 +2653,28 @@ public class SOCRobotDM
    */
   protected float calcWGETABonus
       (HashMap<Integer, SOCPlayerTracker> trackersBefore, HashMap<Integer, SOCPlayerTracker> trackersAfter)
+  {
+    return calcWGETABonus(trackersBefore, getWinGameETAs(trackersBefore), trackersAfter);
+  }
+
+  /**
+   * Calc the win game ETA bonus for a move, based on each player's {@link SOCPlayerTracker#getWinGameETA()}
+   * before the move. Used when the trackers "before" and "after" are the same objects,
+   * changed by {@link #tryPutPiece(SOCPlayingPiece, HashMap)}.
+   *
+   * @param  trackersBefore   player trackers, to iterate in the same order as
+   *           {@link #calcWGETABonus(HashMap, HashMap)}; their current WGETAs aren't used
+   * @param  originalWGETAs   each player's WGETA before the move, from {@link #getWinGameETAs(HashMap)}
+   * @param  trackersAfter    list of player trackers after move;
+   *           call {@link SOCPlayerTracker#updateWinGameETAs(HashMap) SOCPlayerTracker.updateWinGameETAs(trackersAfter)}
+   *           before calling this method
+   * @since 2.0.00
+   */
+  private float calcWGETABonus
+      (HashMap<Integer, SOCPlayerTracker> trackersBefore, final int[] originalWGETAs,
+       HashMap<Integer, SOCPlayerTracker> trackersAfter)
   {
     D.ebugPrintln("^^^^^ calcWGETABonus");
-    int originalWGETAs[] = new int[game.maxPlayers];
-    int WGETAdiffs[] = new int[game.maxPlayers];
     Vector<SOCPlayerTracker> leaders = new Vector<SOCPlayerTracker>();  // Players winning soonest, based on ETA
     int bestWGETA = 1000;  // Lower is better
     float bonus = 0;
@@ -2635,15 +2684,14 @@ public class SOCRobotDM
     {
       SOCPlayerTracker trackerBefore = trackersBeforeIter.next();
       final int pn = trackerBefore.getPlayer().getPlayerNumber();
-      D.ebugPrintln("$$$ win game ETA for player " + pn + " = " + trackerBefore.getWinGameETA());
-      originalWGETAs[pn] = trackerBefore.getWinGameETA();
-      WGETAdiffs[pn] = trackerBefore.getWinGameETA();
+      final int wgetaBefore = originalWGETAs[pn];
+      D.ebugPrintln("$$$ win game ETA for player " + pn + " = " + wgetaBefore);
 
-      if (trackerBefore.getWinGameETA() < bestWGETA) {
-	bestWGETA = trackerBefore.getWinGameETA();
+      if (wgetaBefore < bestWGETA) {
+	bestWGETA = wgetaBefore;
 	leaders.removeAllElements();
 	leaders.addElement(trackerBefore);
-      } else if (trackerBefore.getWinGameETA() == bestWGETA) {
+      } else if (wgetaBefore == bestWGETA) {
 	leaders.addElement(trackerBefore);
       }
     }
@@ -2657,6 +2705,87 @@ public class SOCRobotDM
     return bonus;
   }
 
+  /**
+   * Get each player's current {@link SOCPlayerTracker#getWinGameETA()},
+   * to compare with their WGETA after trying a move.
+   * @param trackers  player trackers
+   * @return  array indexed by player number; 0 for any player without a tracker
+   * @since 2.0.00
+   */
+  private int[] getWinGameETAs(final HashMap<Integer, SOCPlayerTracker> trackers)
+  {
+    final int[] wgetas = new int[game.maxPlayers];
+    for (SOCPlayerTracker pt : trackers.values())
+      wgetas[pt.getPlayer().getPlayerNumber()] = pt.getWinGameETA();
+
+    return wgetas;
+  }
+
+  /**
+   * Try placing a possible piece, to see how it changes the players' ETAs.
+   * If {@link #USE_TRACKER_UNDO_LOG}, places it in {@code trackers} themselves and starts {@link #undoLog};
+   * otherwise places it in a copy of {@code trackers}.
+   * Afterwards, call {@link #undoTryPutPiece(SOCPlayingPiece)}.
+   *<P>
+   * Because {@code trackers} may be changed, read any "before" values from them
+   * (such as {@link #getWinGameETAs(HashMap)}) before calling this method.
+   *
+   * @param piece  the piece to place temporarily
+   * @param trackers  the player trackers
+   * @return  the player trackers with the piece placed: {@code trackers} or a copy of them
+   * @since 2.0.00
+   */
+  private HashMap<Integer, SOCPlayerTracker> tryPutPiece
+      (final SOCPlayingPiece piece, final HashMap<Integer, SOCPlayerTracker> trackers)
+  {
+    if (! USE_TRACKER_UNDO_LOG)
+      return SOCPlayerTracker.tryPutPiece(piece, game, trackers);
+
+    undoLog = SOCPlayerTracker.tryPutPieceWithUndoLog(piece, game, trackers);
+    return trackers;
+  }
+
+  /**
+   * Undo {@link #tryPutPiece(SOCPlayingPiece, HashMap)}: Roll back the trackers if needed,
+   * and remove the temporary piece from the game.
+   * @param piece  the piece placed temporarily
+   * @since 2.0.00
+   */
+  private void undoTryPutPiece(final SOCPlayingPiece piece)
+  {
+    rollbackTrackers();
+    SOCPlayerTracker.undoTryPutPiece(piece, game);
+  }
+
+  /**
+   * Get player trackers to change temporarily, without placing a piece:
+   * If {@link #USE_TRACKER_UNDO_LOG}, {@link #playerTrackers} with a new {@link #undoLog};
+   * otherwise a copy of them. Afterwards, call {@link #rollbackTrackers()}.
+   * @return  {@link #playerTrackers} or a copy of them
+   * @since 2.0.00
+   */
+  private HashMap<Integer, SOCPlayerTracker> copyOrLogTrackers()
+  {
+    if (! USE_TRACKER_UNDO_LOG)
+      return SOCPlayerTracker.copyPlayerTrackers(playerTrackers);
+
+    undoLog = SOCPlayerTracker.startUndoLog(playerTrackers);
+    return playerTrackers;
+  }
+
+  /**
+   * If {@link #undoLog} is recording, roll back the player trackers' changes and clear the log.
+   * @since 2.0.00
+   */
+  private void rollbackTrackers()
+  {
+    if (undoLog != null)
+    {
+      undoLog.rollback();
+      undoLog = null;
+    }
+  }
+
   /**
    * Helps calculate WGETA bonus for making a move or other change in the game.
    * The bonus is based on lowering your bot's WGETA and increasing the leaders' WGETA.
@@ -23,6 +23,7 @@ package soc.robot;
 
 import soc.disableDebug.D;
 
+import soc.game.PackedResourceSet;
 import soc.game.SOCBoard;
 import soc.game.SOCGame;
 import soc.game.SOCPlayer;
@@ -923,9 +924,31 @@ public class SOCRobotNegotiator
      */
     protected int getETAToTargetResources(SOCPlayer player, SOCResourceSet targetResources, SOCResourceSet giveSet, SOCResourceSet getSet, SOCBuildingSpeedEstimate estimate)
     {
-        SOCResourceSet ourResourcesCopy = player.getResources().copy();
         D.ebugPrintln("*** giveSet = " + giveSet);
         D.ebugPrintln("*** getSet = " + getSet);
+
+        if (SOCBuildingSpeedEstimate.USE_PACKED_ROLLS_FAST)
+        {
+            // This is called for each possible offer; packing avoids copying our resources each time
+            final long ours = PackedResourceSet.pack(player.getResources()),
+                give = PackedResourceSet.pack(giveSet), get = PackedResourceSet.pack(getSet);
+            if ((ours != PackedResourceSet.INVALID) && (give != PackedResourceSet.INVALID)
+                && (get != PackedResourceSet.INVALID))
+            {
+                final long afterTrade = PackedResourceSet.add(PackedResourceSet.subtract(ours, give), get);
+                if (PackedResourceSet.isValid(afterTrade))
+                {
+                    final int offerBuildingTime =
+                        estimate.calculateRollsFast(afterTrade, targetResources, 1000, player.getPortFlags());
+
+                    D.ebugPrintln("*** offerBuildingTime = " + offerBuildingTime);
+
+                    return (offerBuildingTime);
+                }
+            }
+        }
+
+        SOCResourceSet ourResourcesCopy = player.getResources().copy();
         ourResourcesCopy.subtract(giveSet);
         ourResourcesCopy.add(getSet);
 
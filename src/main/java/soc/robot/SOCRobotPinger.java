@@ -72,20 +72,15 @@ public class SOCRobotPinger extends Thread
 
         while (alive)
         {
-            try
-            {
-                messageQueue.put(ping);
-            }
-            catch (CutoffExceededException exc)
-            {
-                alive = false;
-            }
+            final int delay = pingOnce();
+            if (delay < 0)
+                break;
 
             yield();
 
             try
             {
-                sleep(1000);
+                sleep(delay);
             }
             catch (InterruptedException exc) {}
         }
@@ -93,6 +88,33 @@ public class SOCRobotPinger extends Thread
         messageQueue = null;
     }
 
+    /**
+     * Queue one {@link SOCTimingPing} unless stopped, and return the delay until the next one.
+     * Called from {@link #run()}, from {@link SOCRobotBrainPool}'s shared timer
+     * for pooled brains, or by {@link SOCRobotBrainStepper} on its virtual clock;
+     * in those last two cases the pinger thread isn't started.
+     * @return  Milliseconds to wait before the next ping, or -1 if {@link #stopPinger()} was called
+     *     or the queue's size limit was reached
+     * @since 2.0.00
+     */
+    int pingOnce()
+    {
+        if (! alive)
+            return -1;
+
+        try
+        {
+            messageQueue.put(ping);
+        }
+        catch (CutoffExceededException exc)
+        {
+            alive = false;
+            return -1;
+        }
+
+        return 1000;
+    }
+
     /**
      * Stop the pinger thread's {@link #run()} loop by clearing its "alive" flag.
      */
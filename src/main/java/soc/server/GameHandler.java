@@ -163,7 +163,7 @@ public abstract class GameHandler
     /**
      * The server's timer thread thinks this game is inactive because of a robot bug.
      * Check the game.  If this is the case, end the current turn, forcing if necessary.
-     * Use a separate thread so the main timer thread isn't tied up; see {@link SOCForceEndTurnThread}.
+     * Don't end the turn from the timer thread itself, so it isn't tied up; see {@link SOCForceEndTurnTask}.
      *<P>
      * The server checks {@link SOCGame#lastActionTime} to decide inaction.
      * The game could also seem inactive if we're waiting for another human player to decide something.
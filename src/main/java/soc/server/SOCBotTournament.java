@@ -0,0 +1,647 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import soc.game.SOCGame;
+import soc.game.SOCGameClock;
+import soc.game.SOCPlayer;
+import soc.message.SOCImARobot;
+import soc.message.SOCMessage;
+import soc.message.SOCVersion;
+import soc.robot.SOCRobotBrain;
+import soc.robot.SOCRobotBrainStepper;
+import soc.robot.SOCRobotClient;
+import soc.robot.SOCRobotDM;
+import soc.server.genericServer.Connection;
+import soc.server.genericServer.Server;
+import soc.server.genericServer.StringConnection;
+import soc.util.CappedQueue;
+import soc.util.Version;
+
+/**
+ * Headless tournament runner for robot-only games, to evaluate bot changes over many games.
+ * Runs a {@link SOCServer} and its built-in robots on a single thread with a virtual clock,
+ * plays {@link SOCServer#PROP_JSETTLERS_BOTS_BOTGAMES_TOTAL} games,
+ * {@link SOCServer#PROP_JSETTLERS_BOTS_BOTGAMES_PARALLEL} at a time,
+ * then reports games per second, each game's move count, and win rates by robot type.
+ *<P>
+ * Nothing sleeps or waits for a timer:
+ *<UL>
+ * <LI> The server is headless: See {@link SOCServer#SOCServer(String, SOCBotTournament, Properties)}.
+ *      Each robot's connection is a pair of {@link StringConnection}s which this class reads from:
+ *      It passes the robots' messages to the server's game handlers by calling
+ *      {@link soc.server.genericServer.InboundMessageQueue#dispatchQueued()},
+ *      and the server's messages to the robot clients by calling {@link SOCRobotClient#treat(SOCMessage)}.
+ * <LI> The robots' brains run on a {@link SOCRobotBrainStepper}, which feeds each brain its queued game events.
+ * <LI> When every brain is idle and no messages are waiting, the virtual clock advances to the next deadline:
+ *      A brain's once-per-second timing ping, or a game's turn timeout
+ *      ({@link SOCServer#checkForExpiredTurn(SOCGame, long)}). This tournament is each game's
+ *      {@link SOCGame#setClock(SOCGameClock) clock}, so the game stamps {@link SOCGame#lastActionTime}
+ *      with virtual time.
+ * <LI> Bots don't pause between actions: {@link SOCServer#PROP_JSETTLERS_BOTS_FAST__PAUSE__PERCENT} is always 0.
+ *</UL>
+ * So, the bots see the same timing as in a real server's games, but a game takes only as long
+ * as the bots' and server's calculations.
+ *<P>
+ * Throughput is limited by those calculations, on one thread: With 12 built-in robots, 8 games in parallel,
+ * about 0.3 games per second, nearly all of it in the "smart" robots' planning
+ * ({@link SOCRobotDM}, {@link soc.robot.SOCPlayerTracker}). That's far from tens of thousands of games
+ * in minutes; getting there would need faster robot planning or several tournaments running in parallel,
+ * not more changes to this runner.
+ *<P>
+ * Command line is the same as {@link SOCServer#main(String[])} without a port number:
+ * Use {@code -Dname=value} for properties and {@code -o name=value} for game options, for example<BR>
+ * {@code java soc.server.SOCBotTournament -Djsettlers.bots.botgames.total=1000 -o PL=6}
+ *<P>
+ * A "move" is any game action message from a bot which the server's game handler processed,
+ * such as placing a piece, rolling dice, or ending a turn.
+ *
+ * @since 2.0.00
+ */
+public class SOCBotTournament
+    implements SOCGameClock
+{
+    /** Stringport name for the tournament's server. */
+    private static final String TOURNAMENT_STRINGPORT = "SOCBOTTOURNAMENT";
+
+    /** Print a progress report at most this often, in milliseconds of wall-clock time. */
+    private static final int PROGRESS_INTERVAL_MSEC = 10000;
+
+    /** Total number of games to play */
+    private final int numGames;
+
+    /** The tournament's server, set in {@link #run(Properties)} */
+    private SOCServer srv;
+
+    /** Runs all the robots' brains, set in {@link #run(Properties)} */
+    private SOCRobotBrainStepper stepper;
+
+    /** The tournament's robots, set in {@link #run(Properties)} */
+    private final ArrayList<TournamentRobot> robots = new ArrayList<TournamentRobot>();
+
+    /** Current time on the virtual clock, in milliseconds; starts at wall-clock time in {@link #run(Properties)} */
+    private long now;
+
+    /** Games currently being played; key = game name */
+    private final Map<String, RunningGame> running = new HashMap<String, RunningGame>();
+
+    /** For each robot type, as from {@link #robotType(SOCClientData)}: seats played, wins. */
+    private final TreeMap<String, int[]> typeStats = new TreeMap<String, int[]>();
+
+    /** Number of finished games, including any which ended without a winner */
+    private int numFinished, numNoWinner;
+
+    /** Move count totals of finished games */
+    private long movesTotal;
+
+    /** Fewest and most moves in a finished game */
+    private int movesMin = Integer.MAX_VALUE, movesMax;
+
+    /**
+     * Turn count, total wall-clock duration in milliseconds, and total virtual-clock duration
+     * of finished games, for mean turn times
+     */
+    private long turnsTotal, turnMillisTotal, turnVirtualMillisTotal;
+
+    /** Time when first game started, from {@link System#currentTimeMillis()}, or 0 */
+    private long firstStartTime;
+
+    /**
+     * Create a tournament runner. Call {@link #run(Properties)} to play its games.
+     * @param numGames  Number of games to play; same as {@link SOCServer#PROP_JSETTLERS_BOTS_BOTGAMES_TOTAL}
+     * @throws IllegalArgumentException if {@code numGames} &lt;= 0
+     */
+    public SOCBotTournament(final int numGames)
+        throws IllegalArgumentException
+    {
+        if (numGames <= 0)
+            throw new IllegalArgumentException("numGames");
+
+        this.numGames = numGames;
+    }
+
+    /**
+     * Create the server and robots, play all the tournament's games on this thread, and print a report.
+     * Ignores any {@link Server#PROP_JSETTLERS_SERVER_DISPATCH_LANES} or
+     * {@link SOCServer#PROP_JSETTLERS_BOTS_POOL__THREADS} in {@code props}, since everything runs on this thread.
+     *
+     * @param props  Server properties; should contain {@link SOCServer#PROP_JSETTLERS_STARTROBOTS},
+     *     {@link SOCServer#PROP_JSETTLERS_BOTS_BOTGAMES_PARALLEL}, etc.
+     *     {@link SOCServer#PROP_JSETTLERS_BOTS_BOTGAMES_TOTAL} will be set to this tournament's number of games.
+     * @throws Exception  if the server can't start; see {@link SOCServer#SOCServer(String, SOCBotTournament, Properties)}
+     * @throws IllegalStateException  if games stop making progress: No robots are running, but games are
+     */
+    public void run(final Properties props)
+        throws Exception
+    {
+        props.setProperty(SOCServer.PROP_JSETTLERS_BOTS_BOTGAMES_TOTAL, Integer.toString(numGames));
+        props.setProperty(SOCServer.PROP_JSETTLERS_BOTS_FAST__PAUSE__PERCENT, "0");
+        props.remove(Server.PROP_JSETTLERS_SERVER_DISPATCH_LANES);
+        props.remove(SOCServer.PROP_JSETTLERS_BOTS_POOL__THREADS);
+
+        srv = new SOCServer(TOURNAMENT_STRINGPORT, this, props);
+        now = System.currentTimeMillis();
+        stepper = new SOCRobotBrainStepper(now);
+
+        // Same robot names as SOCServer.setupLocalRobots, which handleIMAROBOT uses for their strategy
+        final int rcount = srv.getConfigIntProperty(SOCServer.PROP_JSETTLERS_STARTROBOTS, 0);
+        final int fast30 = (int) (0.30f * rcount);
+        final String cookie = srv.getRobotCookie();
+        for (int i = 0; i < rcount; ++i)
+        {
+            final String rname = ((i < fast30) ? "droid " : "robot ") + (i + 1);
+            final TournamentRobot rob = new TournamentRobot(rname, cookie);
+            robots.add(rob);
+            SOCLocalRobotClient.robotClients.put(rname, rob);  // for SOCForceEndTurnTask's debug prints
+            rob.connect();
+        }
+        while (pump())
+            ;
+
+        srv.startRobotOnlyGames(false);
+
+        long nextProgress = System.currentTimeMillis() + PROGRESS_INTERVAL_MSEC;
+        while (numFinished < numGames)
+        {
+            if (pump())
+                continue;
+
+            // Everything is idle: Advance the clock to the next deadline
+
+            long next = stepper.getNextPingTime();
+            for (RunningGame rg : running.values())
+                if (rg.turnCheckTime < next)
+                    next = rg.turnCheckTime;
+            if (next == Long.MAX_VALUE)
+                throw new IllegalStateException
+                    ("Tournament stalled: " + numFinished + " of " + numGames + " games finished, none running");
+
+            if (next > now)
+                now = next;
+            stepper.advanceTo(now);
+            for (RunningGame rg : new ArrayList<RunningGame>(running.values()))
+            {
+                if (rg.turnCheckTime > now)
+                    continue;
+
+                final long t = srv.checkForExpiredTurn(rg.game, now);
+                rg.turnCheckTime = (t != 0) ? t : Long.MAX_VALUE;
+            }
+
+            final long wallNow = System.currentTimeMillis();
+            if (wallNow >= nextProgress)
+            {
+                nextProgress = wallNow + PROGRESS_INTERVAL_MSEC;
+                printProgress();
+            }
+        }
+        final long endTime = System.currentTimeMillis();
+
+        srv.utilTimer.stop();  // headless server's only thread
+        printReport(endTime);
+    }
+
+    /**
+     * Deliver all waiting messages once: Robots' messages to the server's inbound queue, which is then
+     * dispatched; the server's messages to the robot clients; the robot clients' messages to their brains,
+     * which are then handled.
+     * @return  True if anything was delivered or handled, false if all idle
+     */
+    private boolean pump()
+    {
+        int n = 0;
+
+        for (TournamentRobot rob : robots)
+            n += rob.readFromRobot();
+
+        n += srv.inQueue.dispatchQueued();
+
+        for (TournamentRobot rob : robots)
+            n += rob.readFromServer();
+
+        n += stepper.step();
+
+        return (n > 0);
+    }
+
+    /**
+     * Get the current time on the tournament's virtual clock, for its games' {@link SOCGame#lastActionTime}.
+     * @return  Current virtual time in milliseconds
+     */
+    public long currentTimeMillis()
+    {
+        return now;
+    }
+
+    /**
+     * A tournament game has started. Called from {@link SOCServer} when starting robot-only games.
+     * Sets the game's clock to this tournament's virtual clock.
+     * @param ga  Newly created game
+     */
+    void gameStarted(final SOCGame ga)
+    {
+        if (firstStartTime == 0)
+            firstStartTime = System.currentTimeMillis();
+        ga.setClock(this);
+        running.put(ga.getName(), new RunningGame(ga, now, now + srv.getTurnTimeoutMillis()));
+    }
+
+    /**
+     * Count a move in a tournament game. Called from {@link SOCMessageDispatcher}
+     * when the game's handler has processed a message for a {@link SOCGame#isBotsOnly} game.
+     * @param ga  Game with the move; ignored if not started by {@link #gameStarted(SOCGame)}
+     */
+    void countMove(final SOCGame ga)
+    {
+        final RunningGame rg = running.get(ga.getName());
+        if (rg == null)
+            return;
+
+        ++rg.moves;
+        final int cpn = ga.getCurrentPlayerNumber();
+        if (cpn != rg.lastPN)
+        {
+            // includes initial placement "turns"
+            rg.lastPN = cpn;
+            ++rg.turns;
+        }
+    }
+
+    /**
+     * A robot-only game is being destroyed: Record its results.
+     * Called from {@link SOCServer#destroyGame(String)} while its bots are still connected,
+     * before the game's player data is cleared.
+     * @param ga  Game being destroyed; ignored if not started by {@link #gameStarted(SOCGame)}
+     */
+    void gameDestroyed(final SOCGame ga)
+    {
+        final RunningGame rg = running.remove(ga.getName());
+        if (rg == null)
+            return;
+
+        final SOCPlayer winner = ga.getPlayerWithWin();
+        final int moves = rg.moves;
+        final long millis = System.currentTimeMillis() - rg.startTime,
+            virtualMillis = now - rg.startVirtualTime;
+        final StringBuilder sb = new StringBuilder("Tournament game ");
+        sb.append(ga.getName()).append(": ").append(ga.getRoundCount()).append(" rounds, ")
+          .append(rg.turns).append(" turns, ").append(moves).append(" moves, ").append(millis).append(" ms, ")
+          .append(virtualMillis / 1000).append(" virtual seconds");
+
+        for (int pn = 0; pn < ga.maxPlayers; ++pn)
+        {
+            if (ga.isSeatVacant(pn))
+                continue;
+
+            final SOCPlayer pl = ga.getPlayer(pn);
+            final Connection c = srv.getConnection(pl.getName());
+            final String type = robotType((c != null) ? (SOCClientData) c.getAppData() : null);
+            int[] stats = typeStats.get(type);
+            if (stats == null)
+            {
+                stats = new int[2];
+                typeStats.put(type, stats);
+            }
+            ++stats[0];
+            if (pl == winner)
+            {
+                ++stats[1];
+                sb.append(", winner ").append(pl.getName()).append(" (").append(type).append(')');
+            }
+        }
+
+        ++numFinished;
+        if (winner == null)
+        {
+            ++numNoWinner;
+            sb.append(", no winner");
+        }
+        movesTotal += moves;
+        if (moves < movesMin)
+            movesMin = moves;
+        if (moves > movesMax)
+            movesMax = moves;
+        turnsTotal += rg.turns;
+        turnMillisTotal += millis;
+        turnVirtualMillisTotal += virtualMillis;
+
+        System.out.println(sb);
+    }
+
+    /**
+     * Describe a robot's type for the report: Its brain class if third-party,
+     * otherwise the built-in bot's strategy.
+     * @param scd  Robot's client data, or null if not connected
+     * @return  Robot type, such as {@code "built-in smart"} or {@code "soc.robot.sample3p.Sample3PBrain"}
+     */
+    static String robotType(final SOCClientData scd)
+    {
+        if (scd == null)
+            return "(disconnected)";
+        if (! scd.isBuiltInRobot)
+            return scd.robot3rdPartyBrainClass;
+        if ((scd.robotParams != null) && (scd.robotParams.getStrategyType() == SOCRobotDM.SMART_STRATEGY))
+            return "built-in smart";
+
+        return "built-in fast";
+    }
+
+    /**
+     * Describe this JVM's memory use: Resident set size if available from {@code /proc/self/status}
+     * (Linux), otherwise heap in use.
+     * @return  Memory use, such as {@code "rss 123456 kB"} or {@code "heap 95 MB"}
+     */
+    static String memoryUsage()
+    {
+        BufferedReader br = null;
+        try
+        {
+            br = new BufferedReader(new FileReader("/proc/self/status"));
+            String line;
+            while (null != (line = br.readLine()))
+                if (line.startsWith("VmRSS:"))
+                    return "rss " + line.substring(6).trim();
+        }
+        catch (IOException e) {}
+        finally
+        {
+            if (br != null)
+                try { br.close(); } catch (IOException e) {}
+        }
+
+        final Runtime rt = Runtime.getRuntime();
+        return "heap " + ((rt.totalMemory() - rt.freeMemory()) >> 20) + " MB";
+    }
+
+    /**
+     * Print a progress report to {@link System#err}: Games finished so far, and round number of games being played.
+     */
+    private void printProgress()
+    {
+        final StringBuilder sb = new StringBuilder("Tournament: ");
+        sb.append(numFinished).append(" of ").append(numGames).append(" games finished; ")
+          .append(stepper.getBrainCount()).append(" brains, ").append(memoryUsage());
+        for (RunningGame rg : running.values())
+            sb.append("; ").append(rg.game.getName()).append(" round ").append(rg.game.getRoundCount());
+        System.err.println(sb);
+    }
+
+    /**
+     * Print the tournament report to {@link System#out}.
+     * @param endTime  Time when last game finished, from {@link System#currentTimeMillis()}
+     */
+    private void printReport(final long endTime)
+    {
+        final double secs = (endTime - firstStartTime) / 1000.0;
+        System.out.println();
+        System.out.println("Tournament results: " + numFinished + " games in "
+            + String.format("%.1f", secs) + " seconds: "
+            + String.format("%.2f", (secs > 0) ? (numFinished / secs) : 0.0) + " games/second");
+        if (numFinished > 0)
+            System.out.println("  Moves per game: min " + movesMin + ", mean " + (movesTotal / numFinished)
+                + ", max " + movesMax);
+        if (turnsTotal > 0)
+            System.out.println("  Mean turn time: " + (turnMillisTotal / turnsTotal) + " ms; virtual clock "
+                + (turnVirtualMillisTotal / turnsTotal) + " ms");
+        if (numNoWinner > 0)
+            System.out.println("  Games with no winner: " + numNoWinner);
+        System.out.println("  Memory at end: " + memoryUsage());
+        for (Map.Entry<String, int[]> e : typeStats.entrySet())
+        {
+            final int[] stats = e.getValue();
+            System.out.println("  " + e.getKey() + ": won " + stats[1] + " of " + stats[0] + " games played ("
+                + String.format("%.1f", (100.0 * stats[1]) / stats[0]) + "%)");
+        }
+    }
+
+    /**
+     * Run a tournament from the command line; see {@link SOCBotTournament class javadoc} for usage.
+     * Unless given on the command line, uses these defaults: 100 games, 8 games at a time, 12 robots.
+     */
+    public static void main(String[] args)
+    {
+        for (int i = 0; i < args.length; ++i)
+        {
+            if (args[i].equals("-h") || args[i].equals("--help"))
+            {
+                System.err.println("usage: java soc.server.SOCBotTournament [-Dname=value ...] [-o gameopt=value ...]");
+                System.err.println("  Properties include " + SOCServer.PROP_JSETTLERS_BOTS_BOTGAMES_TOTAL + ", "
+                    + SOCServer.PROP_JSETTLERS_BOTS_BOTGAMES_PARALLEL + ", " + SOCServer.PROP_JSETTLERS_STARTROBOTS);
+                return;
+            }
+        }
+
+        final Properties props = SOCServer.parseCmdline_DashedArgs(args);  // also reads jsserver.properties if exists
+        if (props == null)
+        {
+            System.err.println("Unknown command line argument(s); use -h for help");
+            System.exit(1);
+        }
+
+        setDefault(props, SOCServer.PROP_JSETTLERS_BOTS_BOTGAMES_TOTAL, "100");
+        setDefault(props, SOCServer.PROP_JSETTLERS_BOTS_BOTGAMES_PARALLEL, "8");
+        setDefault(props, SOCServer.PROP_JSETTLERS_STARTROBOTS, "12");
+
+        try
+        {
+            new SOCBotTournament
+                (Integer.parseInt(props.getProperty(SOCServer.PROP_JSETTLERS_BOTS_BOTGAMES_TOTAL))).run(props);
+        }
+        catch (Throwable th)
+        {
+            System.err.println("Tournament failed: " + th);
+            th.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /** Set a property if it's not already set or is blank. */
+    private static void setDefault(final Properties props, final String name, final String value)
+    {
+        final String v = props.getProperty(name);
+        if ((v == null) || (v.trim().length() == 0))
+            props.setProperty(name, value);
+    }
+
+    /**
+     * A game being played in the tournament.
+     */
+    private static final class RunningGame
+    {
+        public final SOCGame game;
+
+        /** Time when game was started, from {@link System#currentTimeMillis()} */
+        public final long startTime = System.currentTimeMillis();
+
+        /** Time on the virtual clock when game was started */
+        public final long startVirtualTime;
+
+        /** Time on the virtual clock to check for an expired turn */
+        public long turnCheckTime;
+
+        /** Number of moves so far */
+        public int moves;
+
+        /**
+         * Number of turns so far, and current player number when last counted;
+         * updated by {@link SOCBotTournament#countMove(SOCGame)}
+         */
+        public int turns, lastPN = -1;
+
+        /**
+         * @param ga  Newly created game
+         * @param startVirtualTime  Time on the virtual clock when game was started
+         * @param turnCheckTime  Time on the virtual clock to first check for an expired turn
+         */
+        public RunningGame(final SOCGame ga, final long startVirtualTime, final long turnCheckTime)
+        {
+            game = ga;
+            this.startVirtualTime = startVirtualTime;
+            this.turnCheckTime = turnCheckTime;
+        }
+    }
+
+    /**
+     * A built-in robot client in the tournament. Instead of a thread reading from its connection,
+     * {@link SOCBotTournament#pump()} delivers its messages; its brains run on the tournament's
+     * {@link SOCRobotBrainStepper}.
+     */
+    private final class TournamentRobot extends SOCRobotClient
+    {
+        /** Server side of the robot's connection; the client side is {@link #sLocal} */
+        private final StringConnection srvConn;
+
+        /** Robot's cookie, for {@link #connect()} */
+        private final String robotCookie;
+
+        /** Has the server read the robot's first message, which is given to {@link Server#processFirstCommand}? */
+        private boolean readFirst;
+
+        /**
+         * Create a robot and its unconnected pair of {@link StringConnection}s. Call {@link #connect()} next.
+         * @param nn  Robot's nickname
+         * @param co  Cookie for robot connections to server
+         * @throws EOFException  if connection setup fails; shouldn't happen
+         */
+        TournamentRobot(final String nn, final String co)
+            throws EOFException
+        {
+            super(TOURNAMENT_STRINGPORT, nn, "pw", co);
+            robotCookie = co;
+
+            final StringConnection cliConn = new StringConnection();
+            srvConn = new StringConnection(cliConn);
+            srvConn.setServer(srv);
+            cliConn.setAccepted();
+            srvConn.setAccepted();
+            sLocal = cliConn;
+        }
+
+        /**
+         * Connect to the server: Like {@link SOCRobotClient#init()}, sends the robot's first messages
+         * including its version, but doesn't start a thread to read from the server.
+         * The server side of the connection is added with {@link Server#addConnection(Connection)}.
+         */
+        void connect()
+        {
+            connected = true;
+            put(SOCVersion.toCmd(Version.versionNumber(), Version.version(), Version.buildnum(), null));
+            put(SOCImARobot.toCmd(nickname, robotCookie, rbclass));
+            srv.addConnection(srvConn);
+        }
+
+        /**
+         * Put the robot's messages into the server's inbound queue.
+         * @return  Number of messages read
+         */
+        int readFromRobot()
+        {
+            int n = 0;
+            try
+            {
+                while (srvConn.isInputAvailable())
+                {
+                    final SOCMessage mes = srvConn.readNextMessage();
+                    ++n;
+                    if (! readFirst)
+                    {
+                        readFirst = true;
+                        if (srv.processFirstCommand(mes, srvConn))
+                            continue;
+                    }
+                    if (mes != null)
+                        srv.inQueue.push(mes, srvConn);
+                }
+            }
+            catch (EOFException e) {}  // robot disconnected; readNextMessage called removeConnection
+
+            return n;
+        }
+
+        /**
+         * Have the robot client treat the server's messages to it; messages for its games
+         * are put into their brains' queues.
+         * @return  Number of messages read
+         */
+        int readFromServer()
+        {
+            int n = 0;
+            try
+            {
+                while (sLocal.isInputAvailable())
+                {
+                    treat(sLocal.readNextMessage());
+                    ++n;
+                }
+            }
+            catch (EOFException e)
+            {
+                connected = false;
+            }
+
+            return n;
+        }
+
+        /** Create a plain queue, since brains run on the tournament's {@link SOCRobotBrainStepper}. */
+        @Override
+        protected CappedQueue<SOCMessage> newBrainQueue()
+        {
+            return new CappedQueue<SOCMessage>();
+        }
+
+        /** Start running the brain on the tournament's {@link SOCRobotBrainStepper}. */
+        @Override
+        protected void startBrain(final SOCRobotBrain brain)
+        {
+            stepper.startBrain(brain);
+        }
+    }
+
+}
@@ -20,12 +20,13 @@ package soc.server;
 
 import java.util.Locale;
 import java.util.Map;
-import java.util.TimerTask;
 
 import soc.message.SOCGameOptionGetInfos;  // for javadoc
 import soc.message.SOCMessage;  // for javadoc
 import soc.server.genericServer.Connection;
+import soc.util.HashedWheelTimer;
 import soc.util.SOCGameList;
+import soc.util.SOCRobotParameters;
 import soc.util.SOCStringManager;  // for javadoc
 
 /**
@@ -208,6 +209,13 @@ public class SOCClientData
      */
     public String robot3rdPartyBrainClass;
 
+    /**
+     * For robots, the parameters sent to this bot after it authenticated, or null.
+     * Used to tell built-in bots' strategies apart in robot-only game results.
+     * @since 2.0.00
+     */
+    public SOCRobotParameters robotParams;
+
     /**
      * Are we considering a request to disconnect this client?
      * If so, the time we sent a ping (and awaiting a reply).
@@ -220,7 +228,7 @@ public class SOCClientData
     public long disconnectLastPingMillis;
 
     /**
-     * TimerTask for connect-time client-version timer
+     * {@link SOCServer#utilTimer} task for connect-time client-version timer
      * @since 1.1.06
      */
     private SOCCDCliVersionTask cliVersionTask;
@@ -408,7 +416,7 @@ public class SOCClientData
 
 
     /**
-     * TimerTask at client connect, to guess the client version
+     * {@link SOCServer#utilTimer} task at client connect, to guess the client version
      * if it isn't sent soon enough. (assume it's too old to tell us)
      *<P>
      * When timer fires, assume client's version will not be sent.
@@ -418,7 +426,7 @@ public class SOCClientData
      * The version can be corrected later if necessary.
      * @since 1.1.06
      */
-    private static class SOCCDCliVersionTask extends TimerTask
+    private static class SOCCDCliVersionTask extends HashedWheelTimer.Task
     {
         private SOCServer srv;
         private SOCClientData cliData;
@@ -31,26 +31,28 @@ import soc.server.genericServer.Connection;
 /**
  * Force this robot's turn to end, by calling
  * {@link SOCGameHandler#endGameTurnOrForce(SOCGame, int, String, Connection, boolean)}.
- * Done in a separate thread in case of deadlocks; see {@link #run()} for more details.
+ * Posted to the server's {@link soc.server.genericServer.InboundMessageQueue} to run on its treater thread
+ * (the game's lane, if using per-game lanes), so that the timer thread isn't tied up;
+ * see {@link #run()} for more details.
  * Created from {@link SOCGameHandler#endTurnIfInactive(SOCGame, long)}
- * when that's called from {@link SOCGameTimeoutChecker#run()}.
+ * when that's called from {@link SOCGameTimeoutChecker}.
  *<P>
  * Before 2.0.00, this class was SOCServer.SOCForceEndTurnThread;
- * split out in 2.0.00 to its own top-level class.
+ * split out in 2.0.00 to its own top-level class, and renamed from SOCForceEndTurnThread
+ * when changed from a new thread to a posted task.
  *
  * @author Jeremy D Monin &lt;jeremy@nand.net&gt;
  * @since 1.1.11
  */
-class SOCForceEndTurnThread extends Thread
+class SOCForceEndTurnTask implements Runnable
 {
     private final SOCServer srv;
     private final SOCGameHandler hand;
     private final SOCGame ga;
     private final SOCPlayer pl;
 
-    public SOCForceEndTurnThread(final SOCServer srv, final SOCGameHandler hand, final SOCGame g, final SOCPlayer p)
+    public SOCForceEndTurnTask(final SOCServer srv, final SOCGameHandler hand, final SOCGame g, final SOCPlayer p)
     {
-        setDaemon(true);
         this.srv = srv;
         this.hand = hand;
         ga = g;
@@ -63,7 +65,6 @@ class SOCForceEndTurnThread extends Thread
      * choose randomly so the game can continue.
      * Calls {@link SOCGameHandler#endGameTurnOrForce(SOCGame, int, String, Connection, boolean)}.
      */
-    @Override
     public void run()
     {
         final String rname = pl.getName();
@@ -113,4 +114,4 @@ class SOCForceEndTurnThread extends Thread
         hand.endGameTurnOrForce(ga, plNum, rname, rconn, false);
     }
 
-}  // class SOCForceEndTurnThread
+}  // class SOCForceEndTurnTask
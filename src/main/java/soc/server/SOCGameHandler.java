@@ -119,7 +119,7 @@ public class SOCGameHandler extends GameHandler
      *<P>
      * This field was originally in SOCServer, moved in v2.0.00.
      * @see SOCServer#ROBOT_FORCE_ENDTURN_SECONDS
-     * @see SOCServer#checkForExpiredTurns(long)
+     * @see SOCServer#checkForExpiredTurn(SOCGame, long)
      * @since 1.1.11
      */
     public static int ROBOT_FORCE_ENDTURN_TRADEOFFER_SECONDS = 60;
@@ -1296,7 +1296,7 @@ public class SOCGameHandler extends GameHandler
          */
         try
         {
-            Vector<Connection> gameMembers = srv.gameList.getMembers(gameName);
+            List<Connection> gameMembers = srv.gameList.getMembers(gameName);
             membersCommand = SOCGameMembers.toCmd(gameName, gameMembers);
         }
         catch (Exception e)
@@ -1583,11 +1583,11 @@ public class SOCGameHandler extends GameHandler
          */
         if ( (! gameHasHumanPlayer) && ! srv.gameList.isGameEmpty(gm))
         {
-            Enumeration<Connection> membersEnum = srv.gameList.getMembers(gm).elements();
+            Iterator<Connection> membersEnum = srv.gameList.getMembers(gm).iterator();
 
-            while (membersEnum.hasMoreElements())
+            while (membersEnum.hasNext())
             {
-                Connection member = membersEnum.nextElement();
+                Connection member = membersEnum.next();
 
                 //D.ebugPrintln("*** "+member.data+" is a member of "+gm);
                 boolean nameMatch = false;
@@ -1691,7 +1691,8 @@ public class SOCGameHandler extends GameHandler
         if (gameIsActive)
             srv.messageToGameKeyed(ga, false, "member.bot.join.fetching");  // "Fetching a robot player..."
 
-        if (srv.robots.isEmpty())
+        final Connection[] robotConns = srv.robotShuffleForJoin();  // Shuffle to distribute load
+        if (robotConns.length == 0)
         {
             srv.messageToGameKeyed(ga, false, "member.bot.join.no.bots.server");
                 // "No robot can join the game, there are no robots on this server."
@@ -1710,7 +1711,7 @@ public class SOCGameHandler extends GameHandler
         Connection robotConn = null;  // the bot selected to join
         boolean nameMatch = true;  // false if can select a bot that isn't already playing in or requested in this game
         final String gaName = ga.getName();
-        Hashtable<Connection, Object> requestedBots = srv.robotJoinRequests.get(gaName);
+        final Hashtable<Connection, Object> requestedBots = srv.robotJoinRequests.get(gaName);
 
         if (! (seatNumberObj instanceof Integer))  // should not happen; check just in case
         {
@@ -1735,11 +1736,9 @@ public class SOCGameHandler extends GameHandler
                 }
             }
 
-            final int[] robotIndexes = srv.robotShuffleForJoin();  // Shuffle to distribute load
-
-            for (int idx = 0; idx < srv.robots.size(); idx++)
+            for (int idx = 0; idx < robotConns.length; idx++)
             {
-                robotConn = srv.robots.get(robotIndexes[idx]);
+                robotConn = robotConns[idx];
 
                 nameMatch = gameBots.contains(robotConn.getData());
 
@@ -1769,17 +1768,18 @@ public class SOCGameHandler extends GameHandler
             }
 
             /**
-             * record the request
+             * record the request; lock the request table so its get and put
+             * are atomic with other dispatch lanes' requests and leaveConnection
              */
-            if (requestedBots == null)
-            {
-                requestedBots = new Hashtable<Connection, Object>();
-                requestedBots.put(robotConn, seatNumberObj);
-                srv.robotJoinRequests.put(gaName, requestedBots);
-            }
-            else
+            synchronized (srv.robotJoinRequests)
             {
-                requestedBots.put(robotConn, seatNumberObj);
+                Hashtable<Connection, Object> reqs = srv.robotJoinRequests.get(gaName);
+                if (reqs == null)
+                {
+                    reqs = new Hashtable<Connection, Object>();
+                    srv.robotJoinRequests.put(gaName, reqs);
+                }
+                reqs.put(robotConn, seatNumberObj);
             }
 
             robotConn.put(SOCBotJoinGameRequest.toCmd(gaName, seatNumber, ga.getGameOptions()));
@@ -2529,7 +2529,7 @@ public class SOCGameHandler extends GameHandler
 
         final String gaName = ga.getName();
 
-        srv.numberOfGamesStarted++;  // TODO once multiple handler threads, encapsulate this
+        srv.gameStartedIncrGamesStartedCount();
 
         /**
          * start the game, place any initial pieces.
@@ -3055,7 +3055,7 @@ public class SOCGameHandler extends GameHandler
                 return;  // <-- Waiting on humans --
         }
 
-        new SOCForceEndTurnThread(srv, this, ga, pl).start();
+        srv.inQueue.postForGame(new SOCForceEndTurnTask(srv, this, ga, pl), ga.getName());
     }
 
     /**
@@ -3075,7 +3075,7 @@ public class SOCGameHandler extends GameHandler
      * May or may not have <tt>gameList.takeMonitorForGame(ga)</tt>;
      * use <tt>hasMonitorFromGameList</tt> to indicate.
      *<P>
-     * Not public, but package visibility, for use by {@link SOCForceEndTurnThread} for {@link SOCGameTimeoutChecker}.
+     * Not public, but package visibility, for use by {@link SOCForceEndTurnTask} for {@link SOCGameTimeoutChecker}.
      *
      * @param ga   The game to end turn if called for current player, or to otherwise stop waiting for a player
      * @param plNumber  player.getNumber; may or may not be current player
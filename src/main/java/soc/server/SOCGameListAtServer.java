@@ -22,10 +22,10 @@
 package soc.server;
 
 import java.util.ArrayList;
-import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
-import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import soc.debug.D;
 import soc.game.SOCGame;
@@ -44,6 +44,12 @@ import soc.util.Version;
  * In 1.1.07, parent class SOCGameList was refactored, with
  * some methods moved to this new subclass, such as
  * {@link #createGame(String, String, String, Map, GameHandler) createGame}.
+ *<P>
+ * In 2.0.00, each game's member list became a {@link CopyOnWriteArrayList}, so that sending to a game's
+ * members doesn't lock the list, and member methods such as {@link #getMembers(String)} and
+ * {@link #addMember(Connection, String)} stopped synchronizing on the entire game list:
+ * Activity in one game doesn't wait for activity in other games, or for the lobby.
+ * Changes to a game's members are synchronized on that game's member list.
  *
  * @see SOCBoardAtServer
  * @author Jeremy D Monin &lt;jeremy@nand.net&gt;
@@ -64,8 +70,11 @@ public class SOCGameListAtServer extends SOCGameList
      */
     public static int GAME_TIME_EXPIRE_MINUTES = 120;
 
-    /** synchronized map of game names to Vector of game members ({@link Connection}s) */
-    protected Hashtable<String, Vector<Connection>> gameMembers;
+    /**
+     * Concurrent map of game names to list of game members ({@link Connection}s).
+     * Before v2.0.00 this was a {@code Hashtable} of {@code Vector}s.
+     */
+    protected ConcurrentHashMap<String, CopyOnWriteArrayList<Connection>> gameMembers;
 
     /**
      * constructor
@@ -73,7 +82,7 @@ public class SOCGameListAtServer extends SOCGameList
     public SOCGameListAtServer()
     {
         super();
-        gameMembers = new Hashtable<String, Vector<Connection>>();
+        gameMembers = new ConcurrentHashMap<String, CopyOnWriteArrayList<Connection>>();
     }
 
     /**
@@ -81,10 +90,10 @@ public class SOCGameListAtServer extends SOCGameList
      * @param   gaName  the name of the game
      * @return true if the game exists and has an empty member list
      */
-    public synchronized boolean isGameEmpty(String gaName)
+    public boolean isGameEmpty(String gaName)
     {
         boolean result;
-        Vector<Connection> members;
+        List<Connection> members;
 
         members = gameMembers.get(gaName);
 
@@ -131,11 +140,16 @@ public class SOCGameListAtServer extends SOCGameList
     }
 
     /**
-     * get a game's members (client connections)
+     * get a game's members (client connections).
+     *<P>
+     * The list can be iterated without locking, even while members join or leave: Each iterator
+     * sees the members as of when it was created. Before v2.0.00 this returned a {@code Vector}.
+     *
      * @param   gaName  game name
-     * @return  list of members: a Vector of {@link Connection}s
+     * @return  list of members: a {@link CopyOnWriteArrayList} of {@link Connection}s,
+     *     or {@code null} if game not found
      */
-    public synchronized Vector<Connection> getMembers(String gaName)
+    public List<Connection> getMembers(String gaName)
     {
         return gameMembers.get(gaName);
     }
@@ -146,9 +160,9 @@ public class SOCGameListAtServer extends SOCGameList
      * @param  conn     the member's connection
      * @return true if memName is a member of the game
      */
-    public synchronized boolean isMember(Connection conn, String gaName)
+    public boolean isMember(Connection conn, String gaName)
     {
-        Vector<Connection> members = getMembers(gaName);
+        List<Connection> members = getMembers(gaName);
 
         if ((members != null) && (members.contains(conn)))
             return true;
@@ -164,48 +178,53 @@ public class SOCGameListAtServer extends SOCGameList
      * @param  gaName   the name of the game
      * @param  conn     the member's connection; version should already be set
      */
-    public synchronized void addMember(Connection conn, String gaName)
+    public void addMember(Connection conn, String gaName)
     {
-        Vector<Connection> members = getMembers(gaName);
+        final List<Connection> members = getMembers(gaName);
+        if (members == null)
+            return;
 
-        if ((members != null) && (!members.contains(conn)))
+        synchronized (members)
         {
-            final boolean firstMember = members.isEmpty();
-            members.addElement(conn);
-
-            // Check version range
-            SOCGame ga = getGameData(gaName);
-            final int cliVers = conn.getVersion();
-            if (firstMember)
+            if (! members.contains(conn))
             {
-                ga.clientVersionLowest = cliVers;
-                ga.clientVersionHighest = cliVers;
-                ga.hasOldClients = (cliVers < Version.versionNumber());
-            }
-            else
-            {
-                final int cliLowestAlready  = ga.clientVersionLowest;
-                final int cliHighestAlready = ga.clientVersionHighest;
-                if (cliVers < cliLowestAlready)
+                final boolean firstMember = members.isEmpty();
+                members.add(conn);
+
+                // Check version range
+                SOCGame ga = getGameData(gaName);
+                final int cliVers = conn.getVersion();
+                if (firstMember)
                 {
                     ga.clientVersionLowest = cliVers;
-                    if (cliVers < Version.versionNumber())
-                        ga.hasOldClients = true;
+                    ga.clientVersionHighest = cliVers;
+                    ga.hasOldClients = (cliVers < Version.versionNumber());
                 }
-                if (cliVers > cliHighestAlready)
+                else
                 {
-                    ga.clientVersionHighest = cliVers;
+                    final int cliLowestAlready  = ga.clientVersionLowest;
+                    final int cliHighestAlready = ga.clientVersionHighest;
+                    if (cliVers < cliLowestAlready)
+                    {
+                        ga.clientVersionLowest = cliVers;
+                        if (cliVers < Version.versionNumber())
+                            ga.hasOldClients = true;
+                    }
+                    if (cliVers > cliHighestAlready)
+                    {
+                        ga.clientVersionHighest = cliVers;
+                    }
                 }
-            }
 
-            if (! ga.hasMultiLocales)
-            {
-                final String gaLocale = ga.getOwnerLocale();
-                if (gaLocale != null)
+                if (! ga.hasMultiLocales)
                 {
-                    final SOCClientData scd = (SOCClientData) conn.getAppData();
-                    if ((scd != null) && (scd.localeStr != null) && ! gaLocale.equals(scd.localeStr))
-                        ga.hasMultiLocales = true;  // client's locale differs from other game members'
+                    final String gaLocale = ga.getOwnerLocale();
+                    if (gaLocale != null)
+                    {
+                        final SOCClientData scd = (SOCClientData) conn.getAppData();
+                        if ((scd != null) && (scd.localeStr != null) && ! gaLocale.equals(scd.localeStr))
+                            ga.hasMultiLocales = true;  // client's locale differs from other game members'
+                    }
                 }
             }
         }
@@ -219,24 +238,26 @@ public class SOCGameListAtServer extends SOCGameList
      * @param  gaName   the name of the game
      * @param  conn     the member's connection
      */
-    public synchronized void removeMember(Connection conn, String gaName)
+    public void removeMember(Connection conn, String gaName)
     {
-        Vector<Connection> members = getMembers(gaName);
+        final List<Connection> members = getMembers(gaName);
+        if (members == null)
+            return;
 
-        if ((members != null))
+        synchronized (members)
         {
-            members.removeElement(conn);
+            members.remove(conn);
 
             // Check version of remaining members
             if (! members.isEmpty())
             {
-                Connection c = members.firstElement();
+                Connection c = members.get(0);
                 int lowVers = c.getVersion();
                 int highVers = lowVers;
 
                 for (int i = members.size() - 1; i >= 1; --i)
                 {
-                    c = members.elementAt(i);
+                    c = members.get(i);
                     int v = c.getVersion();
                     if (v < lowVers)
                         lowVers = v;
@@ -254,6 +275,8 @@ public class SOCGameListAtServer extends SOCGameList
 
     /**
      * Replace member from all games, with a new connection with same name (after a network problem).
+     * Like {@link #addMember(Connection, String)}, synchronizes on each affected game's member list
+     * while changing it.
      *
      * @param  oldConn  the member's old connection
      * @param  newConn  the member's new connection
@@ -273,17 +296,21 @@ public class SOCGameListAtServer extends SOCGameList
         final boolean sameVersion = (oldConn.getVersion() == newConn.getVersion());
         for (String gaName : getGameNames())
         {
-            Vector<Connection> members = gameMembers.get(gaName);
+            List<Connection> members = gameMembers.get(gaName);
             if ((members != null) && members.contains(oldConn))
             {
                 System.err.println("L221: for game " + gaName + ":");  // JM TEMP
                 if (sameVersion)
                 {
-                    if (members.remove(oldConn))
-                        System.err.println("   OK");
-                    else
-                        System.err.println("   ** not found");
-                    members.addElement(newConn);
+                    synchronized (members)
+                    {
+                        if (members.remove(oldConn))
+                            System.err.println("   OK");
+                        else
+                            System.err.println("   ** not found");
+                        if (! members.contains(newConn))
+                            members.add(newConn);
+                    }
                 } else {
                     removeMember(oldConn, gaName);
                     addMember(newConn, gaName);
@@ -323,8 +350,7 @@ public class SOCGameListAtServer extends SOCGameList
         if ((SOCGame.boardFactory == null) || ! (SOCGame.boardFactory instanceof SOCBoardAtServer.BoardFactoryAtServer))
             SOCGame.boardFactory = new SOCBoardAtServer.BoardFactoryAtServer();
 
-        Vector<Connection> members = new Vector<Connection>();
-        gameMembers.put(gaName, members);
+        gameMembers.put(gaName, new CopyOnWriteArrayList<Connection>());
 
         SOCGame game = new SOCGame(gaName, gaOpts);
         if (gaOwner != null)
@@ -415,10 +441,13 @@ public class SOCGameListAtServer extends SOCGameList
         // (Removes game from list before dealing with members, in case of locks)
         super.deleteGame(gaName);
 
-        Vector<Connection> members = gameMembers.get(gaName);
+        List<Connection> members = gameMembers.get(gaName);
         if (members != null)
         {
-            members.removeAllElements();
+            synchronized (members)
+            {
+                members.clear();
+            }
         }
     }
 
@@ -428,7 +457,8 @@ public class SOCGameListAtServer extends SOCGameList
      * Checks {@link SOCGame#getClientVersionMinRequired()}.
      *<P>
      * This method helps determine if a client's connection can be
-     * "taken over" after a network problem.  It synchronizes on <tt>gameData</tt>.
+     * "taken over" after a network problem.  Before v2.0.00 it synchronized on <tt>gameData</tt>;
+     * the game maps are now concurrent, so it doesn't need to lock them.
      *
      * @param  plConn   the previous connection of the player, which might be taken over
      * @return Minimum version, in same format as {@link SOCGame#getClientVersionMinRequired()},
@@ -439,19 +469,16 @@ public class SOCGameListAtServer extends SOCGameList
     {
         int minVers = 0;
 
-        synchronized(gameData)
+        for (SOCGame ga : getGamesData())
         {
-            for (SOCGame ga : getGamesData())
-            {
-                Vector<Connection> members = getMembers(ga.getName());
-                if ((members == null) || ! members.contains(plConn))
-                    continue;
-
-                // plConn is a member of this game.
-                int vers = ga.getClientVersionMinRequired();
-                if (vers > minVers)
-                    minVers = vers;
-            }
+            List<Connection> members = getMembers(ga.getName());
+            if ((members == null) || ! members.contains(plConn))
+                continue;
+
+            // plConn is a member of this game.
+            int vers = ga.getClientVersionMinRequired();
+            if (vers > minVers)
+                minVers = vers;
         }
 
         return minVers;
@@ -473,30 +500,27 @@ public class SOCGameListAtServer extends SOCGameList
     {
         List<SOCGame> cGames = new ArrayList<SOCGame>();
 
-        synchronized(gameData)
+        SOCGame firstGame = null;
+        if (firstGameName != null)
         {
-            SOCGame firstGame = null;
-            if (firstGameName != null)
+            firstGame = getGameData(firstGameName);
+            if (firstGame != null)
             {
-                firstGame = getGameData(firstGameName);
-                if (firstGame != null)
-                {
-                    Vector<?> members = getMembers(firstGameName);
-                    if ((members != null) && members.contains(c))
-                        cGames.add(firstGame);
-                }
+                List<Connection> members = getMembers(firstGameName);
+                if ((members != null) && members.contains(c))
+                    cGames.add(firstGame);
             }
+        }
 
-            for (SOCGame ga : getGamesData())
-            {
-                if (ga == firstGame)
-                    continue;
-                Vector<?> members = getMembers(ga.getName());
-                if ((members == null) || ! members.contains(c))
-                    continue;
+        for (SOCGame ga : getGamesData())
+        {
+            if (ga == firstGame)
+                continue;
+            List<Connection> members = getMembers(ga.getName());
+            if ((members == null) || ! members.contains(c))
+                continue;
 
-                cGames.add(ga);
-            }
+            cGames.add(ga);
         }
 
         return cGames;
@@ -1,7 +1,7 @@
 /**
  * Java Settlers - An online multiplayer version of the game Settlers of Catan
  * Copyright (C) 2003  Robert S. Thomas
- * Portions of this file Copyright (C) 2010,2015-2017 Jeremy D Monin <jeremy@nand.net>
+ * Portions of this file Copyright (C) 2010,2015-2018 Jeremy D Monin <jeremy@nand.net>
  *
  * This program is free software; you can redistribute it and/or
  * modify it under the terms of the GNU General Public License
@@ -18,83 +18,145 @@
  **/
 package soc.server;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import soc.game.SOCGame;
+import soc.util.HashedWheelTimer;
 
 /**
- * Wakes up every few seconds to check for turns that have expired
- * by calling {@link SOCServer#checkForExpiredTurns(long)},
- * and every 5 minutes to check for games that have expired
+ * Schedules each game's turn-timeout check for when its current turn would expire,
+ * which calls {@link SOCServer#checkForExpiredTurn(SOCGame, long)},
+ * and every 5 minutes checks for games that have expired
  * with {@link SOCServer#checkForExpiredGames(long)}.
  *<P>
  * Keeps the game moving if a robot is stuck or indecisive because of a bug.
+ *<P>
+ * Before v2.0.00 this was a thread which woke every few seconds to check every game's turn.
+ * Now each game has its own deadline task on the server's {@link SOCServer#utilTimer};
+ * when that fires, the game's {@link SOCGame#lastActionTime} is checked again and
+ * the task is rescheduled for the new deadline if there's been activity since then.
  *
  * @author Robert S Thomas
  * @see SOCServer#ROBOT_FORCE_ENDTURN_SECONDS
  * @see SOCServer#GAME_TIME_EXPIRE_CHECK_MINUTES
  */
-public class SOCGameTimeoutChecker extends Thread
+public class SOCGameTimeoutChecker
 {
-    private SOCServer server;
-    private boolean alive;
+    private final SOCServer server;
+
+    /** Each current game's turn timeout task, keyed by game name. */
+    private final Map<String, TurnTimeoutTask> turnTasks = new ConcurrentHashMap<String, TurnTimeoutTask>();
+
+    /** Task to call {@link SOCServer#checkForExpiredGames(long)} every few minutes. */
+    private final HashedWheelTimer.Task gameExpireTask = new HashedWheelTimer.Task()
+    {
+        public void run()
+        {
+            server.checkForExpiredGames(System.currentTimeMillis());
+        }
+    };
 
     /**
-     * Create a game timeout checker
+     * Create a game timeout checker. Call {@link #start()} to begin checking for expired games.
      *
      * @param srv  the game server
      */
     public SOCGameTimeoutChecker(SOCServer srv)
     {
         server = srv;
-        alive = true;
-        setName ("timeoutChecker");  // Thread name for debug
-        try { setDaemon(true); } catch (Exception e) {}  // Don't wait on us to exit program
     }
 
     /**
-     * Wakes up every few seconds to check for turns that have expired,
-     * and every 5 minutes to check for games that have expired.
-     * See {@link SOCGameTimeoutChecker class javadoc}.
+     * Start checking for expired games every {@link SOCServer#GAME_TIME_EXPIRE_CHECK_MINUTES}.
+     * Turn timeouts are checked for games given to {@link #addGame(SOCGame)}.
+     * @since 2.0.00
      */
-    public void run()
+    public void start()
     {
-        // check every few seconds; should be about half of ROBOT_FORCE_ENDTURN_SECONDS
-        final int sleepMillis = SOCServer.ROBOT_FORCE_ENDTURN_SECONDS * 600;
+        server.utilTimer.schedule
+            (gameExpireTask, 0, SOCServer.GAME_TIME_EXPIRE_CHECK_MINUTES * 60 * 1000L);
+    }
 
-        // Holds time of next check for game expiry, not just turn expiry
-        long gameExpireCheckTime = 0L;
+    /**
+     * Start checking a new game for turn timeouts.
+     * @param ga  Newly created game
+     * @since 2.0.00
+     */
+    public void addGame(final SOCGame ga)
+    {
+        final String gaName = ga.getName();
+        final TurnTimeoutTask task = new TurnTimeoutTask(gaName);
+        final TurnTimeoutTask prev = turnTasks.put(gaName, task);
+        if (prev != null)
+            prev.cancel();
+        task.scheduleAt(server.getTurnTimeoutMillis() + System.currentTimeMillis());
+    }
 
-        while (alive)
-        {
-            long now = System.currentTimeMillis();
-            if (gameExpireCheckTime == 0L)
-                gameExpireCheckTime = now;
+    /**
+     * Stop checking a game that's being destroyed.
+     * @param gaName  Game name; does nothing if not found
+     * @since 2.0.00
+     */
+    public void removeGame(final String gaName)
+    {
+        final TurnTimeoutTask task = turnTasks.remove(gaName);
+        if (task != null)
+            task.cancel();
+    }
 
-            if (now >= gameExpireCheckTime)
-            {
-                server.checkForExpiredGames(now);
+    /**
+     * Stop all checking.
+     */
+    public void stopChecking()
+    {
+        gameExpireTask.cancel();
+        for (TurnTimeoutTask task : turnTasks.values())
+            task.cancel();
+        turnTasks.clear();
+    }
 
-                // check every 5 minutes
-                gameExpireCheckTime = now + (SOCServer.GAME_TIME_EXPIRE_CHECK_MINUTES * 60 * 1000);
-                yield();
-            }
+    /**
+     * One game's turn timeout task: When it fires, calls {@link SOCServer#checkForExpiredTurn(SOCGame, long)}
+     * and reschedules itself for the returned time.
+     * Looks up the game by name each time, since a board reset replaces the game's {@link SOCGame} object.
+     * @since 2.0.00
+     */
+    private final class TurnTimeoutTask extends HashedWheelTimer.Task
+    {
+        private final String gaName;
 
-            server.checkForExpiredTurns(now);
-            yield();
+        TurnTimeoutTask(final String gaName)
+        {
+            this.gaName = gaName;
+        }
 
+        /**
+         * Schedule this task to run at a certain time.
+         * @param atMillis  Time to run, from {@link System#currentTimeMillis()}; if in the past, runs soon
+         */
+        void scheduleAt(final long atMillis)
+        {
             try
             {
-                sleep(sleepMillis);
+                server.utilTimer.schedule(this, atMillis - System.currentTimeMillis());
+            }
+            catch (IllegalStateException e)
+            {
+                // cancelled because game was destroyed
             }
-            catch (InterruptedException exc) {}
         }
 
-        server = null;
-    }
+        public void run()
+        {
+            final SOCGame ga = server.gameList.getGameData(gaName);
+            if ((ga == null) || (turnTasks.get(gaName) != this))
+                return;  // game was destroyed
 
-    /**
-     * DOCUMENT ME!
-     */
-    public void stopChecking()
-    {
-        alive = false;
+            final long next = server.checkForExpiredTurn(ga, System.currentTimeMillis());
+            if (next != 0)
+                scheduleAt(next);
+        }
     }
+
 }
@@ -130,7 +130,12 @@ public class SOCMessageDispatcher
                     if (hand != null)  // all consistent games will have a handler
                     {
                         if (hand.dispatch(ga, (SOCMessageForGame) mes, con))
+                        {
+                            if (ga.isBotsOnly && (srv.botTournament != null))
+                                srv.botTournament.countMove(ga);
+
                             return;  // <--- Handled by GameMessageHandler ---
+                        }
 
                         // else: Message type unknown or ignored by handler. Server handles it below.
                     }
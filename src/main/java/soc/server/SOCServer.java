@@ -28,15 +28,18 @@ import soc.game.*;
 import soc.message.*;
 
 import soc.robot.SOCRobotBrain;
+import soc.robot.SOCRobotBrainPool;
 import soc.robot.SOCRobotClient;
 import soc.server.database.DBSettingMismatchException;
 import soc.server.database.SOCDBHelper;
 
 import soc.server.genericServer.Connection;
+import soc.server.genericServer.EncodedMessage;
 import soc.server.genericServer.InboundMessageQueue;
 import soc.server.genericServer.Server;
 import soc.server.genericServer.StringConnection;
 
+import soc.util.HashedWheelTimer;
 import soc.util.I18n;
 import soc.util.SOCGameBoardReset;
 import soc.util.SOCGameList;  // used in javadoc
@@ -73,9 +76,8 @@ import java.util.MissingResourceException;
 import java.util.Properties;
 import java.util.Random;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.Vector;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A server for Settlers of Catan
@@ -132,7 +134,7 @@ import java.util.Vector;
  *<LI> For i18n, nearly all text sent from the server starts as a unique key
  *     appearing in {@code soc/server/strings/*.properties} and is localized
  *     to the client's locale through {@link Connection#getLocalized(String)}.
- *<LI> Timer threads are used to check for inactive robots and idle games: See
+ *<LI> The {@link #utilTimer} is used to check for inactive robots and idle games: See
  *     {@link SOCGameTimeoutChecker} and {@link SOCGameHandler#endTurnIfInactive(SOCGame, long)}.
  *</UL>
  *
@@ -255,6 +257,16 @@ public class SOCServer extends Server
      */
     public static final String PROP_JSETTLERS_BOTS_FAST__PAUSE__PERCENT = "jsettlers.bots.fast_pause_percent";
 
+    /**
+     * Integer property <tt>jsettlers.bots.pool_threads</tt> to run the server's robot brains
+     * on a shared {@link soc.robot.SOCRobotBrainPool} with this many worker threads,
+     * instead of a thread (and pinger thread) for each brain in each game.
+     * 0 uses virtual threads if the JVM has them, otherwise one worker per processor.
+     * Unset by default, for a thread per brain.
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_BOTS_POOL__THREADS = "jsettlers.bots.pool_threads";
+
     /**
      * Integer property <tt>jsettlers.bots.botgames.total</tt> will start robot-only games,
      * a few at a time, until this many have been played. (The default is 0.)
@@ -282,6 +294,15 @@ public class SOCServer extends Server
      */
     public static final String PROP_JSETTLERS_BOTS_BOTGAMES_WAIT__SEC = "jsettlers.bots.botgames.wait_sec";
 
+    /**
+     * Integer property <tt>jsettlers.bots.botgames.parallel</tt> to play this many robot-only games
+     * at the same time when {@link #PROP_JSETTLERS_BOTS_BOTGAMES_TOTAL} is set. (The default is 1.)
+     * Each bot can play in several games at once, each game with its own brain thread.
+     * @see SOCBotTournament
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_BOTS_BOTGAMES_PARALLEL = "jsettlers.bots.botgames.parallel";
+
     /**
      * Property <tt>jsettlers.startrobots</tt> to start some robots when the server's threads start.
      * (The default is {@link #SOC_STARTROBOTS_DEFAULT}.)
@@ -379,6 +400,16 @@ public class SOCServer extends Server
      */
     public static final String PROP_JSETTLERS_CLI_MAXCREATECHANNELS = "jsettlers.client.maxcreatechannels";
 
+    /**
+     * Boolean property {@code jsettlers.server.binary} to offer clients the optional compact binary
+     * message encoding from {@link soc.message.SOCBinaryCodec}, by listing
+     * {@link SOCServerFeatures#FEAT_BINARY_PROTO} in the server's features.
+     * Only clients which ask for it during the version exchange are sent binary frames;
+     * all others use the text protocol. The default is true (Y).
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_SERVER_BINARY = "jsettlers.server.binary";
+
     /**
      * Property prefix {@code jsettlers.gameopt.} to specify game option defaults in a server properties file.
      * Option names are case-insensitive past this prefix. Syntax for default value is the same as on the
@@ -436,14 +467,29 @@ public class SOCServer extends Server
         PROP_JSETTLERS_ALLOW_DEBUG,   "Allow remote debug commands? (if Y)",
         PROP_JSETTLERS_CLI_MAXCREATECHANNELS,   "Maximum simultaneous channels that a client can create",
         PROP_JSETTLERS_CLI_MAXCREATEGAMES,      "Maximum simultaneous games that a client can create",
+        PROP_JSETTLERS_SERVER_NIO,              "Flag to use selector-based network I/O, with a few threads shared by all clients",
+        PROP_JSETTLERS_SERVER_NIO_THREADS,      "Number of selector I/O threads if using jsettlers.server.nio (default 2)",
+        PROP_JSETTLERS_SERVER_DISPATCH_LANES,   "Number of per-game threads to handle game messages (default 0: 1 thread for all)",
+        PROP_JSETTLERS_SERVER_OUTPUT_BATCH,     "Max messages per flush of buffered client output (default 0: unbuffered)",
+        PROP_JSETTLERS_SERVER_OUTPUT_LINGER,    "Milliseconds to wait for more output before a partial flush (default 0)",
+        PROP_JSETTLERS_SERVER_OUTPUT_MAX__MESSAGES, "Max messages waiting to be sent to a client (default 0: no limit)",
+        PROP_JSETTLERS_SERVER_OUTPUT_MAX__BYTES, "Max bytes waiting to be sent to a client (default 0: no limit)",
+        PROP_JSETTLERS_SERVER_OUTPUT_OVERFLOW,  "If client output is over max: drop, coalesce, or park (default drop)",
+        PROP_JSETTLERS_SERVER_BINARY,           "Offer compact binary messages to clients which ask for them (default Y)",
+        PROP_JSETTLERS_SERVER_STRINGPORT__OBJECTS, "Pass message objects, not text, to local bots and practice clients (default Y)",
+        PROP_JSETTLERS_SERVER_METRICS_FILE,     "If set, periodically write message metrics to this file",
+        PROP_JSETTLERS_SERVER_METRICS_INTERVAL, "Seconds between writes of metrics file (default 60)",
+        PROP_JSETTLERS_SERVER_METRICS_JMX,      "Register message metrics as a JMX MBean (default Y)",
         PROP_JSETTLERS_GAMEOPT_PREFIX + "*",    "Game option defaults, case-insensitive: jsettlers.gameopt.RD=y",
         // I18n.PROP_JSETTLERS_LOCALE,             "Locale override from the default, such as es or en_US, for console output",
             // -- not used yet at server
         PROP_JSETTLERS_BOTS_BOTGAMES_TOTAL,     "Run this many robot-only games, a few at a time (default 0); allow bot-only games",
         PROP_JSETTLERS_BOTS_BOTGAMES_WAIT__SEC, "Wait at startup before starting robot-only games (default 1.6 seconds)",
+        PROP_JSETTLERS_BOTS_BOTGAMES_PARALLEL,  "Run this many robot-only games at a time (default 1)",
         PROP_JSETTLERS_BOTS_COOKIE,             "Robot cookie value (default is random generated each startup)",
         PROP_JSETTLERS_BOTS_SHOWCOOKIE,         "Flag to show the robot cookie value at startup",
         PROP_JSETTLERS_BOTS_FAST__PAUSE__PERCENT, "Pause at percent of normal pause time (0 to 100) for robot-only games (default 25)",
+        PROP_JSETTLERS_BOTS_POOL__THREADS, "Run robot brains on a pool of this many threads (0 for virtual or 1 per CPU; default: thread per brain)",
         PROP_JSETTLERS_BOTS_PERCENT3P,          "Percent of bots which should be third-party (0 to 100) if available",
         PROP_JSETTLERS_BOTS_TIMEOUT_TURN,       "Robot turn timeout (seconds) for third-party bots",
         PROP_JSETTLERS_TEST_VALIDATE__CONFIG,   "Flag to validate server and DB config, then exit (same as -t command-line option)",
@@ -499,7 +545,7 @@ public class SOCServer extends Server
 
     /**
      * If game will expire in this or fewer minutes, warn the players. Default is 15.
-     * Must be at least twice the sleep-time in {@link SOCGameTimeoutChecker#run()}.
+     * Must be at least twice {@link #GAME_TIME_EXPIRE_CHECK_MINUTES}.
      * The game expiry time is set at game creation in
      * {@link SOCGameListAtServer#createGame(String, String, String, Map, GameHandler)}.
      *<P>
@@ -508,14 +554,14 @@ public class SOCServer extends Server
      * Before v2.0.00 this field was named {@code GAME_EXPIRE_WARN_MINUTES} and its default was 10.
      *
      * @see #checkForExpiredGames(long)
-     * @see SOCGameTimeoutChecker#run()
+     * @see SOCGameTimeoutChecker
      * @see SOCGameListAtServer#GAME_TIME_EXPIRE_MINUTES
      * @see #GAME_TIME_EXPIRE_ADDTIME_MINUTES
      */
     public static int GAME_TIME_EXPIRE_WARN_MINUTES = 15;
 
     /**
-     * Sleep time (minutes) between checks for expired games in {@link SOCGameTimeoutChecker#run()}.
+     * Time (minutes) between checks for expired games by {@link SOCGameTimeoutChecker}.
      * Default is 5 minutes. Must be at most half of {@link #GAME_TIME_EXPIRE_WARN_MINUTES}
      * so the user has time to react after seeing the warning.
      * @since 1.2.00
@@ -537,7 +583,7 @@ public class SOCServer extends Server
      * Default is 8. Can override this for third-party bots by setting
      * {@link #PROP_JSETTLERS_BOTS_TIMEOUT_TURN}.
      *
-     * @see #checkForExpiredTurns(long)
+     * @see #checkForExpiredTurn(SOCGame, long)
      * @since 1.1.11
      */
     public static int ROBOT_FORCE_ENDTURN_SECONDS = 8;
@@ -732,9 +778,14 @@ public class SOCServer extends Server
     /**
      * A list of all robot client {@link Connection}s connected to this server.
      * Includes built-in bots and any third-party bots (which are also in {@link #robots3p}).
+     *<P>
+     * Bots are added and removed on the inbound queue's global lane, but game handlers iterate
+     * this list from any per-game lane; it's a {@link CopyOnWriteArrayList} so they never see
+     * it change while iterating. Before v2.0.00 this was a {@code Vector}.
+     * @see #robotShuffleForJoin()
      * @see SOCLocalRobotClient#robotClients
      */
-    protected Vector<Connection> robots = new Vector<Connection>();
+    protected final CopyOnWriteArrayList<Connection> robots = new CopyOnWriteArrayList<Connection>();
 
     /**
      * A list of third-party bot clients connected to this server, if any.
@@ -884,6 +935,9 @@ public class SOCServer extends Server
      *<P>
      * Before v2.0.00 the per-game value was a {@code Vector<Connection>}
      * without per-bot related data.
+     *<P>
+     *<B>Locking:</B> Games on different inbound dispatch lanes use this table at the same time.
+     * To iterate, or to get a game's value and then put a new one, synchronize on this table.
      *
      * @see #readyGameAskRobotsJoin(SOCGame, Connection[], int)
      * @see #leaveConnection(Connection)
@@ -918,6 +972,7 @@ public class SOCServer extends Server
      * {@link GameHandler#startGame(SOCGame)} has been called
      * and game play has begun. Game state became {@link SOCGame#READY}
      * or higher from an earlier/lower state.
+     * Incremented in {@link #gameStartedIncrGamesStartedCount()}.
      */
     protected int numberOfGamesStarted;
 
@@ -931,7 +986,7 @@ public class SOCServer extends Server
     protected int numberOfGamesFinished;
 
     /**
-     * Synchronization for {@link #numberOfGamesFinished} writes.
+     * Synchronization for {@link #numberOfGamesStarted} and {@link #numberOfGamesFinished} writes.
      * @since 2.0.00
      */
     private Object countFieldSync = new Object();
@@ -958,6 +1013,20 @@ public class SOCServer extends Server
      */
     private int numRobotOnlyGamesRemaining;
 
+    /**
+     * Number of robot-only games started by {@link #startRobotOnlyGames(boolean)} and not yet destroyed.
+     * At most {@link #PROP_JSETTLERS_BOTS_BOTGAMES_PARALLEL} games are running at once.
+     * @since 2.0.00
+     */
+    private int numRobotOnlyGamesRunning;
+
+    /**
+     * Tournament runner collecting robot-only game results, or null if not running one.
+     * If set, this server is headless: See {@link #SOCServer(String, SOCBotTournament, Properties)}.
+     * @since 2.0.00
+     */
+    SOCBotTournament botTournament;
+
     /**
      * Description string for SOCGameOption {@code "PL"} hardcoded into the SOCGameOption class,
      * from {@link SOCGameOption#getOption(String, boolean) SOCGameOption.getOption("PL", false)}.
@@ -999,20 +1068,6 @@ public class SOCServer extends Server
         i18n_scenario_SC_WOND_desc = (scWond != null) ? scWond.getDesc() : "";
     }
 
-    /**
-     * Timer for delaying auth replies for consistency with {@code BCrypt} timing. Used when
-     * {@code ! hadDelay} in {@link SOCDBHelper.AuthPasswordRunnable#authResult(String, boolean)} callbacks.
-     * @since 1.2.00
-     */
-    private Timer replyAuthTimer = new Timer(true);  // use daemon thread
-
-    /**
-     * Timer to queue and soon run miscellaneous short-duration {@link Runnable} tasks
-     * without tying up any single-threaded part of the server.
-     * @since 2.0.00
-     */
-    final Timer miscTaskTimer = new Timer(true);  // use daemon thread
-
     /**
      * server robot pinger
      */
@@ -1020,7 +1075,7 @@ public class SOCServer extends Server
 
     /**
      * Game timeout and and turn timeout checker. Forces end of turn if a robot is
-     * too slow to act. See its class javadoc and {@link SOCForceEndTurnThread}.
+     * too slow to act. See its class javadoc and {@link SOCForceEndTurnTask}.
      */
     SOCGameTimeoutChecker gameTimeoutChecker;
 
@@ -1200,13 +1255,52 @@ public class SOCServer extends Server
         initSocServer(databaseUserName, databasePassword);
     }
 
+    /**
+     * Create a headless Settlers of Catan server for a {@link SOCBotTournament}, which connects
+     * its robots and dispatches their messages from its own thread, and checks turn timeouts on its own clock.
+     * Starts no threads except the {@link #utilTimer}: No {@link SOCServerRobotPinger} or {@link SOCGameTimeoutChecker},
+     * and the server's main thread and message treater shouldn't be started.
+     * Connects to a database only if {@code props} has database properties.
+     *
+     * @param s    name for the server's local stringport, which won't be listened on
+     * @param tourn  the tournament running this server; not null
+     * @param props  null, or properties containing {@link #PROP_JSETTLERS_BOTS_BOTGAMES_TOTAL}
+     *       and any other desired properties; see {@link #SOCServer(int, Properties)}.
+     * @throws SocketException  If a network setup problem occurs
+     * @throws EOFException   If db setup script ran successfully and server should exit now
+     * @throws SQLException   If db setup script fails, or need db but can't connect
+     * @throws IllegalArgumentException  If {@code props} contains game options ({@code jsettlers.gameopt.*})
+     *       with bad syntax, or {@code tourn} is null
+     * @throws IllegalStateException  If {@link Version#versionNumber()} returns 0 (packaging error)
+     * @since 2.0.00
+     */
+    SOCServer(final String s, final SOCBotTournament tourn, Properties props)
+        throws SocketException, EOFException, SQLException, IllegalArgumentException, IllegalStateException
+    {
+        super(s, new SOCMessageDispatcher(), props);
+        if (tourn == null)
+            throw new IllegalArgumentException("tourn");
+        props = this.props;  // if was null, use empty props created by super constructor
+        botTournament = tourn;
+
+        maxConnections = getConfigIntProperty(PROP_JSETTLERS_CONNECTIONS, SOC_MAXCONN_DEFAULT);
+        allowDebugUser = getConfigBoolProperty(PROP_JSETTLERS_ALLOW_DEBUG, false);
+        CLIENT_MAX_CREATE_GAMES = getConfigIntProperty(PROP_JSETTLERS_CLI_MAXCREATEGAMES, CLIENT_MAX_CREATE_GAMES);
+        CLIENT_MAX_CREATE_CHANNELS = getConfigIntProperty(PROP_JSETTLERS_CLI_MAXCREATECHANNELS, CLIENT_MAX_CREATE_CHANNELS);
+
+        String dbuser = props.getProperty(SOCDBHelper.PROP_JSETTLERS_DB_USER, "socuser");
+        String dbpass = props.getProperty(SOCDBHelper.PROP_JSETTLERS_DB_PASS, "socpass");
+
+        initSocServer(dbuser, dbpass);
+    }
+
     /**
      * Common init for all constructors.
      * Prints some progress messages to {@link System#err}.
      * Sets game option default values via {@link #init_propsSetGameopts(Properties)}.
      * Calls {@link SOCMessageDispatcher#setServer(SOCServer, SOCGameListAtServer)}.
      * Starts all server threads except the main thread, unless constructed in Utility Mode
-     * ({@link #hasUtilityModeProp}).
+     * ({@link #hasUtilityModeProp}) or headless for a {@link #botTournament}.
      * If {@link #PROP_JSETTLERS_STARTROBOTS} is specified, those aren't started until {@link #serverUp()}.
      *<P>
      * If there are problems with the network setup ({@link #error} != null),
@@ -1315,6 +1409,16 @@ public class SOCServer extends Server
                     ("Error: Property out of range (0 to 100): " + PROP_JSETTLERS_BOTS_FAST__PAUSE__PERCENT);
         }
 
+        v = getConfigIntProperty(PROP_JSETTLERS_BOTS_POOL__THREADS, -1);
+        if ((v != -1) && (SOCRobotClient.brainPool == null))
+        {
+            if (v >= 0)
+                SOCRobotClient.brainPool = new SOCRobotBrainPool(v);
+            else
+                throw new IllegalArgumentException
+                    ("Error: Property out of range (< 0): " + PROP_JSETTLERS_BOTS_POOL__THREADS);
+        }
+
         ((SOCMessageDispatcher) inboundMsgDispatcher).setServer(this, srvMsgHandler, gameList);
 
         if (allowDebugUser)
@@ -1587,11 +1691,13 @@ public class SOCServer extends Server
 
         if (CLIENT_MAX_CREATE_CHANNELS != 0)
             features.add(SOCServerFeatures.FEAT_CHANNELS);
+        if (getConfigBoolProperty(PROP_JSETTLERS_SERVER_BINARY, true))
+            features.add(SOCServerFeatures.FEAT_BINARY_PROTO);
 
         /**
          * Start various threads.
          */
-        if (! (test_mode_with_db || validate_config_mode))
+        if (! (test_mode_with_db || validate_config_mode || (botTournament != null)))
         {
             serverRobotPinger = new SOCServerRobotPinger(this, robots);
             serverRobotPinger.start();
@@ -2162,6 +2268,9 @@ public class SOCServer extends Server
             else if ((strSocketName != null) && (strSocketName.equals(PRACTICE_STRINGPORT)))
                 newGame.isPractice = true;  // flag if practice game (set since 1.1.09)
 
+            if (gameTimeoutChecker != null)
+                gameTimeoutChecker.addGame(newGame);
+
             if (c != null)
                 // Add this (creating) player to the game
                 gameList.addMember(c, gaName);
@@ -2396,31 +2505,39 @@ public class SOCServer extends Server
     }
 
     /**
-     * shuffle the indexes to distribute load among {@link #robots}
-     * @return a shuffled array of robot indexes, from 0 to ({@link #robots}.size() - 1)
+     * shuffle a snapshot of {@link #robots} to distribute load among them.
+     * Callers on any dispatch lane can use the snapshot even if bots connect or disconnect meanwhile.
+     *<P>
+     * Before v2.0.00 this returned a shuffled array of indexes into {@link #robots}.
+     * @return a shuffled array of the robots' connections; may be empty
      * @since 1.1.06
      */
-    int[] robotShuffleForJoin()
+    Connection[] robotShuffleForJoin()
     {
-        int[] robotIndexes = new int[robots.size()];
-
-        for (int i = 0; i < robots.size(); i++)
-        {
-            robotIndexes[i] = i;
-        }
+        final Connection[] robotConns = robots.toArray(new Connection[0]);
 
         for (int j = 0; j < 3; j++)
         {
-            for (int i = 0; i < robotIndexes.length; i++)
+            for (int i = 0; i < robotConns.length; i++)
             {
                 // Swap a random robot, below the ith robot, with the ith robot
-                int idx = Math.abs(rand.nextInt() % (robotIndexes.length - i));
-                int tmp = robotIndexes[idx];
-                robotIndexes[idx] = robotIndexes[i];
-                robotIndexes[i] = tmp;
+                int idx = Math.abs(rand.nextInt() % (robotConns.length - i));
+                Connection tmp = robotConns[idx];
+                robotConns[idx] = robotConns[i];
+                robotConns[i] = tmp;
             }
         }
-        return robotIndexes;
+        return robotConns;
+    }
+
+    /**
+     * Get the cookie which robots must send to connect, for {@link SOCBotTournament}'s robots.
+     * @return  the robot cookie, or null if none; see {@link #PROP_JSETTLERS_BOTS_COOKIE}
+     * @since 2.0.00
+     */
+    String getRobotCookie()
+    {
+        return robotCookie;
     }
 
     /**
@@ -2433,6 +2550,9 @@ public class SOCServer extends Server
      * {@code FAST} or {@code SMART} strategy params in {@link #handleIMAROBOT(Connection, SOCImARobot)}
      * based on their name prefixes ("droid " or "robot " respectively).
      *<P>
+     * Since v2.0.00 the bots connect through a local string port even if this is a TCP server,
+     * so messages can be passed to them as objects; see {@link #startLocalStringPort()}.
+     *<P>
      * In v1.2.00 and newer, human players can't use names with bot prefixes "droid " or "robot ":
      * see {@link #checkNickname(String, Connection, boolean, boolean)}.
      *<P>
@@ -2451,13 +2571,16 @@ public class SOCServer extends Server
      */
     public boolean setupLocalRobots(final int numFast, final int numSmart)
     {
+        // Even if this is a TCP server, in-process bots connect through a local string port
+        final String localPortName = startLocalStringPort();
+
         try
         {
             // Make some faster ones first.
             for (int i = 0; i < numFast; ++i)
             {
                 String rname = "droid " + (i+1);
-                SOCLocalRobotClient.createAndStartRobotClientThread(rname, strSocketName, port, robotCookie);
+                SOCLocalRobotClient.createAndStartRobotClientThread(rname, localPortName, port, robotCookie);
                     // includes yield() and sleep(75 ms) this thread.
             }
 
@@ -2468,7 +2591,7 @@ public class SOCServer extends Server
             for (int i = 0; i < numSmart; ++i)
             {
                 String rname = "robot " + (i+1+numFast);
-                SOCLocalRobotClient.createAndStartRobotClientThread(rname, strSocketName, port, robotCookie);
+                SOCLocalRobotClient.createAndStartRobotClientThread(rname, localPortName, port, robotCookie);
                     // includes yield() and sleep(75 ms) this thread.
             }
         }
@@ -2510,6 +2633,8 @@ public class SOCServer extends Server
             return;
 
         final boolean wasBotsOnly = cg.isBotsOnly;
+        if (wasBotsOnly && (botTournament != null))
+            botTournament.gameDestroyed(cg);  // before deleteGame clears its player data
 
         ///
         /// write out game data
@@ -2526,18 +2651,20 @@ public class SOCServer extends Server
         /// delete the game from gamelist,
         /// tell all robots to leave
         ///
-        Vector<Connection> members = null;
+        List<Connection> members = null;
         members = gameList.getMembers(gm);
 
         gameList.deleteGame(gm);  // also calls SOCGame.destroyGame
+        if (gameTimeoutChecker != null)
+            gameTimeoutChecker.removeGame(gm);
 
         if (members != null)
         {
-            Enumeration<Connection> conEnum = members.elements();
+            Iterator<Connection> conEnum = members.iterator();
 
-            while (conEnum.hasMoreElements())
+            while (conEnum.hasNext())
             {
-                Connection con = conEnum.nextElement();
+                Connection con = conEnum.next();
                 con.put(SOCRobotDismiss.toCmd(gm));
             }
         }
@@ -2551,8 +2678,13 @@ public class SOCServer extends Server
                 ((SOCClientData) oConn.getAppData()).deletedGame();
         }
 
-        if (wasBotsOnly && (numRobotOnlyGamesRemaining > 0))
-            startRobotOnlyGames(true);
+        if (wasBotsOnly)
+        {
+            if (numRobotOnlyGamesRunning > 0)
+                --numRobotOnlyGamesRunning;  // might be 0 if game was from *STARTBOTGAME* debug command
+            if (numRobotOnlyGamesRemaining > 0)
+                startRobotOnlyGames(true);
+        }
     }
 
     /**
@@ -2807,7 +2939,7 @@ public class SOCServer extends Server
         {
             for (String ga : gameList.getGameNames())
             {
-                Vector<Connection> v = gameList.getMembers(ga);
+                List<Connection> v = gameList.getMembers(ga);
 
                 if (v.contains(c))
                 {
@@ -2933,7 +3065,7 @@ public class SOCServer extends Server
             return;
 
         //currentGameEventRecord.addMessageOut(new SOCMessageRecord(mes, "SERVER", c.getData()));
-        c.put(mes.toCmd());
+        c.put(mes);
     }
 
     /**
@@ -3080,6 +3212,7 @@ public class SOCServer extends Server
 
     /**
      * Send a message to the given game.
+     * The message is encoded only once for all members' network connections: See {@link EncodedMessage}.
      *<P>
      * <b>Locks:</b> Takes, releases {@link SOCGameList#takeMonitorForGame(String)}.
      *
@@ -3094,27 +3227,26 @@ public class SOCServer extends Server
      */
     public void messageToGame(String ga, SOCMessage mes)
     {
-        final String mesCmd = mes.toCmd();
-
         gameList.takeMonitorForGame(ga);
 
         try
         {
-            Vector<Connection> v = gameList.getMembers(ga);
+            List<Connection> v = gameList.getMembers(ga);
 
             if (v != null)
             {
                 //D.ebugPrintln("M2G - "+mes);
-                Enumeration<Connection> menum = v.elements();
+                final EncodedMessage mesEnc = EncodedMessage.forConnections(mes, v);  // encode once for all members
+                Iterator<Connection> menum = v.iterator();
 
-                while (menum.hasMoreElements())
+                while (menum.hasNext())
                 {
-                    Connection c = menum.nextElement();
+                    Connection c = menum.next();
 
                     if (c != null)
                     {
                         //currentGameEventRecord.addMessageOut(new SOCMessageRecord(mes, "SERVER", c.getData()));
-                        c.put(mesCmd);
+                        c.put(mesEnc);
                     }
                 }
             }
@@ -3159,15 +3291,15 @@ public class SOCServer extends Server
 
         try
         {
-            Vector<Connection> v = gameList.getMembers(ga);
+            List<Connection> v = gameList.getMembers(ga);
 
             if (v != null)
             {
-                Enumeration<Connection> menum = v.elements();
+                Iterator<Connection> menum = v.iterator();
 
-                while (menum.hasMoreElements())
+                while (menum.hasNext())
                 {
-                    Connection c = menum.nextElement();
+                    Connection c = menum.next();
                     if (c != null)
                     {
                         if (c.getVersion() >= SOCGameServerText.VERSION_FOR_GAMESERVERTEXT)
@@ -3220,17 +3352,18 @@ public class SOCServer extends Server
 
         try
         {
-            Vector<Connection> v = gameList.getMembers(gaName);
+            List<Connection> v = gameList.getMembers(gaName);
 
             if (v != null)
             {
-                Enumeration<Connection> menum = v.elements();
+                Iterator<Connection> menum = v.iterator();
 
                 final String msgKey = msg.getKey();
                 String gameLocalMsg = null, localText = null, gameTxtLocale = null;  // as rendered during prev. iter.
-                while (menum.hasMoreElements())
+                HashMap<String, String> localeMsgs = null;  // if hasMultiLocales, gameLocalMsg rendered per locale
+                while (menum.hasNext())
                 {
-                    Connection c = menum.nextElement();
+                    Connection c = menum.next();
                     if (c == null)
                         continue;
 
@@ -3241,16 +3374,27 @@ public class SOCServer extends Server
                                    ? (gameTxtLocale != null)
                                    : ! cliLocale.equals(gameTxtLocale)  )))
                     {
-                        if (msgKey != null)
-                            try
+                        gameLocalMsg = (localeMsgs != null) ? localeMsgs.get(cliLocale) : null;
+                        if (gameLocalMsg == null)
+                        {
+                            if (msgKey != null)
+                                try
+                                {
+                                    localText = c.getLocalized(msgKey);
+                                } catch (MissingResourceException e) {
+                                    localText = msgKey;  // fallback so data fields will still be sent
+                                    rsrcMissing = true;
+                                }
+
+                            gameLocalMsg = msg.toCmd(localText);
+                            if (hasMultiLocales)
                             {
-                                localText = c.getLocalized(msgKey);
-                            } catch (MissingResourceException e) {
-                                localText = msgKey;  // fallback so data fields will still be sent
-                                rsrcMissing = true;
+                                // members' locales may alternate; render each locale only once
+                                if (localeMsgs == null)
+                                    localeMsgs = new HashMap<String, String>();
+                                localeMsgs.put(cliLocale, gameLocalMsg);
                             }
-
-                        gameLocalMsg = msg.toCmd(localText);
+                        }
                         gameTxtLocale = cliLocale;
                     }
 
@@ -3472,6 +3616,9 @@ public class SOCServer extends Server
     /**
      * Implement {@link #messageToGameKeyed(SOCGame, boolean, String, Object...)},
      * {@code messageToGameKeyedSpecial}, and {@code messageToGameKeyedSpecialExcept}.
+     *<P>
+     * The text is localized once for each client locale among the members, even if
+     * members with different locales are interleaved in {@code members}.
      *
      * @param ga  the game object
      * @param takeMon Should this method take and release
@@ -3523,6 +3670,7 @@ public class SOCServer extends Server
                 Iterator<Connection> miter = members.iterator();
 
                 String gameTextMsg = null, gameTxtLocale = null;  // as rendered for previous client during loop
+                HashMap<String, String> localeMsgs = null;  // if hasMultiLocales, gameTextMsg rendered per locale
                 while (miter.hasNext())
                 {
                     Connection c = miter.next();
@@ -3536,12 +3684,23 @@ public class SOCServer extends Server
                     if ((gameTextMsg == null)
                         || (hasMultiLocales && ! cliLocale.equals(gameTxtLocale)))
                     {
-                        if (fmtSpecial)
-                            gameTextMsg = SOCGameServerText.toCmd
-                                (gaName, c.getLocalizedSpecial(ga, key, params));
-                        else
-                            gameTextMsg = SOCGameServerText.toCmd
-                                (gaName, (params != null) ? c.getLocalized(key, params) : c.getLocalized(key));
+                        gameTextMsg = (localeMsgs != null) ? localeMsgs.get(cliLocale) : null;
+                        if (gameTextMsg == null)
+                        {
+                            if (fmtSpecial)
+                                gameTextMsg = SOCGameServerText.toCmd
+                                    (gaName, c.getLocalizedSpecial(ga, key, params));
+                            else
+                                gameTextMsg = SOCGameServerText.toCmd
+                                    (gaName, (params != null) ? c.getLocalized(key, params) : c.getLocalized(key));
+                            if (hasMultiLocales)
+                            {
+                                // members' locales may alternate; render each locale only once
+                                if (localeMsgs == null)
+                                    localeMsgs = new HashMap<String, String>();
+                                localeMsgs.put(cliLocale, gameTextMsg);
+                            }
+                        }
                         gameTxtLocale = cliLocale;
                     }
 
@@ -3583,22 +3742,22 @@ public class SOCServer extends Server
      */
     public void messageToGameWithMon(String ga, SOCMessage mes)
     {
-        Vector<Connection> v = gameList.getMembers(ga);
+        List<Connection> v = gameList.getMembers(ga);
         if (v == null)
             return;
 
         //D.ebugPrintln("M2G - "+mes);
-        final String mesCmd = mes.toCmd();
-        Enumeration<Connection> menum = v.elements();
+        final EncodedMessage mesEnc = EncodedMessage.forConnections(mes, v);  // encode once for all members
+        Iterator<Connection> menum = v.iterator();
 
-        while (menum.hasMoreElements())
+        while (menum.hasNext())
         {
-            Connection c = menum.nextElement();
+            Connection c = menum.next();
 
             if (c != null)
             {
                 //currentGameEventRecord.addMessageOut(new SOCMessageRecord(mes, "SERVER", c.getData()));
-                c.put(mesCmd);
+                c.put(mesEnc);
             }
         }
     }
@@ -3649,22 +3808,22 @@ public class SOCServer extends Server
 
         try
         {
-            Vector<Connection> v = gameList.getMembers(gn);
+            List<Connection> v = gameList.getMembers(gn);
 
             if (v != null)
             {
                 //D.ebugPrintln("M2GE - "+mes);
-                final String mesCmd = mes.toCmd();
-                Enumeration<Connection> menum = v.elements();
+                final EncodedMessage mesEnc = EncodedMessage.forConnections(mes, v);  // encode once for all members
+                Iterator<Connection> menum = v.iterator();
 
-                while (menum.hasMoreElements())
+                while (menum.hasNext())
                 {
-                    Connection con = menum.nextElement();
+                    Connection con = menum.next();
 
                     if ((con != null) && (!ex.contains(con)))
                     {
                         //currentGameEventRecord.addMessageOut(new SOCMessageRecord(mes, "SERVER", con.getData()));
-                        con.put(mesCmd);
+                        con.put(mesEnc);
                     }
                 }
             }
@@ -3698,22 +3857,22 @@ public class SOCServer extends Server
 
         try
         {
-            Vector<Connection> v = gameList.getMembers(gn);
+            List<Connection> v = gameList.getMembers(gn);
 
             if (v != null)
             {
                 //D.ebugPrintln("M2GE - "+mes);
-                final String mesCmd = mes.toCmd();
-                Enumeration<Connection> menum = v.elements();
+                final EncodedMessage mesEnc = EncodedMessage.forConnections(mes, v);  // encode once for all members
+                Iterator<Connection> menum = v.iterator();
 
-                while (menum.hasMoreElements())
+                while (menum.hasNext())
                 {
-                    Connection con = menum.nextElement();
+                    Connection con = menum.next();
                     if ((con == null) || (con == ex))
                         continue;
 
                     //currentGameEventRecord.addMessageOut(new SOCMessageRecord(mes, "SERVER", con.getData()));
-                    con.put(mesCmd);
+                    con.put(mesEnc);
                 }
             }
         }
@@ -3778,15 +3937,15 @@ public class SOCServer extends Server
 
         try
         {
-            Vector<Connection> v = gameList.getMembers(gn);
+            List<Connection> v = gameList.getMembers(gn);
             if (v != null)
             {
-                String mesCmd = null;  // lazy init, will be mes.toCmd()
-                Enumeration<Connection> menum = v.elements();
+                EncodedMessage mesEnc = null;  // lazy init, will be encoded from mes
+                Iterator<Connection> menum = v.iterator();
 
-                while (menum.hasMoreElements())
+                while (menum.hasNext())
                 {
-                    Connection con = menum.nextElement();
+                    Connection con = menum.next();
                     if ((con == null) || (con == ex))
                         continue;
 
@@ -3795,9 +3954,9 @@ public class SOCServer extends Server
                         continue;
 
                     //currentGameEventRecord.addMessageOut(new SOCMessageRecord(mes, "SERVER", con.getData()));
-                    if (mesCmd == null)
-                        mesCmd = mes.toCmd();
-                    con.put(mesCmd);
+                    if (mesEnc == null)
+                        mesEnc = EncodedMessage.forConnections(mes, v);
+                    con.put(mesEnc);
                 }
             }
         }
@@ -3861,7 +4020,7 @@ public class SOCServer extends Server
         {
             synchronized(robots)
             {
-                robots.removeElement(c);
+                robots.remove(c);
                 if (! scd.isBuiltInRobot)
                     robots3p.removeElement(c);
             }
@@ -4056,7 +4215,7 @@ public class SOCServer extends Server
          * that it's too old (if the client doesn't tell us soon enough).
          * So: Check if input is waiting for us. If it turns out
          * the waiting message is something other than VERSION,
-         * server callback {@link #processFirstCommand} will set up the version TimerTask
+         * server callback {@link #processFirstCommand} will set up the version timer task
          * using {@link SOCClientData#setVersionTimer}.
          * The version timer will call {@link SOCServer#sendGameList} when it expires.
          * If no input awaits us right now, set up the timer here.
@@ -4376,6 +4535,8 @@ public class SOCServer extends Server
      * the return value.
      * (After {@link #NICKNAME_TAKEOVER_SECONDS_SAME_IP} or
      *  {@link #NICKNAME_TAKEOVER_SECONDS_DIFFERENT_IP} seconds)
+     * If the existing connection's output was parked because it fell too far behind
+     * ({@link Connection#isOutputParked()}), it can be taken over without waiting.
      * When taking over, the new connection's client version must be able
      * to join all games that the old connection is playing, as returned
      * by {@link SOCGameListAtServer#playerGamesMinVersion(Connection) gameList.playerGamesMinVersion}.
@@ -4439,10 +4600,10 @@ public class SOCServer extends Server
             timeoutNeeded = NICKNAME_TAKEOVER_SECONDS_DIFFERENT_IP;
 
         final long now = System.currentTimeMillis();
-        if (scd.disconnectLastPingMillis != 0)
+        if ((scd.disconnectLastPingMillis != 0) || oldc.isOutputParked())
         {
             int secondsSincePing = (int) (((now - scd.disconnectLastPingMillis)) / 1000L);
-            if (secondsSincePing >= timeoutNeeded)
+            if ((secondsSincePing >= timeoutNeeded) || oldc.isOutputParked())
             {
                 // Already sent ping, timeout has expired.
                 // Re-check version just in case.
@@ -4611,6 +4772,7 @@ public class SOCServer extends Server
         "*WHO* gameName   show players and observers of gameName",
         "*WHO* *  show all connected clients",
         "*DBSETTINGS*  show current database settings, if any",  // processed in SOCServerMessageHandler
+        "*MSGSTATS* [ALL|RESET]  show message counts and timings by type",  // processed in SOCServerMessageHandler
         };
 
     /**
@@ -4716,11 +4878,8 @@ public class SOCServer extends Server
         }
         else if (dcmdU.startsWith("*BOTLIST*"))
         {
-            Enumeration<Connection> robotsEnum = robots.elements();
-
-            while (robotsEnum.hasMoreElements())
+            for (Connection robotConn : robots)
             {
-                Connection robotConn = robotsEnum.nextElement();
                 messageToGame(ga, "> Robot: " + robotConn.getData());
                 robotConn.put(SOCAdminPing.toCmd((ga)));
             }
@@ -4730,12 +4889,9 @@ public class SOCServer extends Server
             String botName = dcmd.substring(11).trim();
             messageToGame(ga, "> botName = '" + botName + "'");
 
-            Enumeration<Connection> robotsEnum = robots.elements();
-
             boolean botFound = false;
-            while (robotsEnum.hasMoreElements())
+            for (Connection robotConn : robots)
             {
-                Connection robotConn = robotsEnum.nextElement();
                 if (botName.equals(robotConn.getData()))
                 {
                     botFound = true;
@@ -4754,13 +4910,9 @@ public class SOCServer extends Server
             String botName = dcmd.substring(10).trim();
             messageToGame(ga, "> botName = '" + botName + "'");
 
-            Enumeration<Connection> robotsEnum = robots.elements();
-
             boolean botFound = false;
-            while (robotsEnum.hasMoreElements())
+            for (Connection robotConn : robots)
             {
-                Connection robotConn = robotsEnum.nextElement();
-
                 if (botName.equals(robotConn.getData()))
                 {
                     botFound = true;
@@ -4852,6 +5004,20 @@ public class SOCServer extends Server
         messageToPlayer(c, gaName, "> Games finished: " + numberOfGamesFinished);
         messageToPlayer(c, gaName, "> Total Memory: " + rt.totalMemory());
         messageToPlayer(c, gaName, "> Free Memory: " + rt.freeMemory());
+        final InboundMessageQueue.LaneStats[] lanes = inQueue.getLaneStats();
+        if (lanes.length > 1)
+        {
+            messageToPlayer(c, gaName, "> Inbound dispatch lanes:");
+            for (int i = 0; i < lanes.length; ++i)
+                messageToPlayer(c, gaName, ">   " + lanes[i]);
+        }
+        final long nFlush = getOutputFlushCount();
+        if (nFlush > 0)
+        {
+            final long nFlushMsgs = getOutputFlushMessageCount();
+            messageToPlayer(c, gaName, "> Buffered output: " + nFlushMsgs + " messages in " + nFlush
+                + " flushes, avg " + (nFlushMsgs / (float) nFlush) + " max " + getOutputFlushMaxBatch() + " per flush");
+        }
         final int vers = Version.versionNumber();
         messageToPlayer(c, gaName, "> Version: "
             + vers + " (" + Version.version() + ") build " + Version.buildnum());
@@ -5126,7 +5292,7 @@ public class SOCServer extends Server
                                 (c, msgUserName, dbUserName, cliVers,
                                  doNameConnection, takingOver, authCallback, hadDelay);
                         else
-                            inQueue.post(new Runnable()
+                            inQueue.postForConnection(new Runnable()
                             {
                                 public void run()
                                 {
@@ -5134,7 +5300,7 @@ public class SOCServer extends Server
                                         (c, msgUserName, dbUserName, cliVers,
                                          doNameConnection, takingOver, authCallback, hadDelay);
                                 }
-                            });
+                            }, c);
                     }
                 });;
         }
@@ -5176,8 +5342,8 @@ public class SOCServer extends Server
                 c.put(msg);
             else
                 // TODO consider timing actual delay of BCrypt calcs & use that
-                replyAuthTimer.schedule
-                    (new TimerTask()
+                utilTimer.schedule
+                    (new HashedWheelTimer.Task()
                      {
                         public void run() { c.put(msg); }
                      }, 350 + rand.nextInt(250));  // roughly same range as DBH.testBCryptSpeed
@@ -5195,8 +5361,8 @@ public class SOCServer extends Server
             if (hadDelay)
                 c.put(msg);
             else
-                replyAuthTimer.schedule
-                    (new TimerTask()
+                utilTimer.schedule
+                    (new HashedWheelTimer.Task()
                      {
                         public void run() { c.put(msg); }
                      }, 350 + rand.nextInt(250));
@@ -5267,7 +5433,8 @@ public class SOCServer extends Server
      *
      * @param c     Client's connection
      * @param cvers Version reported by client, or assumed version if no report
-     * @param clocale  Locale reported by client, or null if none given (was added to {@link SOCVersion} in 2.0.00)
+     * @param clocale  Locale reported by client, or null if none given (was added to {@link SOCVersion} in 2.0.00).
+     *     May end with {@link SOCBinaryCodec#CLIENT_VERSION_FLAG} if client asks for binary message frames.
      * @param isKnown Is this the client's definite version, or just an assumed one?
      *                Affects {@link Connection#isVersionKnown() c.isVersionKnown}.
      *                Can set the client's known version only once; a second "known" call with
@@ -5286,6 +5453,14 @@ public class SOCServer extends Server
         String rejectMsg = null;
         String rejectLogMsg = null;
 
+        if (SOCBinaryCodec.hasClientFlag(clocale))
+        {
+            // Client asked for binary frames; send them only if we've offered that feature
+            if (features.isActive(SOCServerFeatures.FEAT_BINARY_PROTO))
+                c.setBinaryProtocol(true);
+            clocale = SOCBinaryCodec.stripClientFlag(clocale);
+        }
+
         if (clocale == null)
             clocale = "en_US";  // backwards compatibility with clients older than v2.0.00
 
@@ -5350,7 +5525,7 @@ public class SOCServer extends Server
 
             // make an effort to send reject message before closing socket
             final Connection rc = c;
-            miscTaskTimer.schedule(new TimerTask()
+            utilTimer.schedule(new HashedWheelTimer.Task()
             {
                 public void run()
                 {
@@ -5522,7 +5697,7 @@ public class SOCServer extends Server
             scd.robot3rdPartyBrainClass = rbc;
         synchronized(robots)
         {
-            robots.addElement(c);
+            robots.add(c);
             if (! isBuiltIn)
                 robots3p.add(c);
         }
@@ -5792,7 +5967,8 @@ public class SOCServer extends Server
     }  //  createOrJoinGameIfUserOK
 
     /**
-     * Start a few robot-only games if {@link #numRobotOnlyGamesRemaining} &gt; 0.
+     * Start a few robot-only games if {@link #numRobotOnlyGamesRemaining} &gt; 0,
+     * until {@link #PROP_JSETTLERS_BOTS_BOTGAMES_PARALLEL} games are running.
      * Later as these games end, the server will start new games as long as
      * {@link #numRobotOnlyGamesRemaining} &gt; 0 at the time.
      *<P>
@@ -5803,28 +5979,43 @@ public class SOCServer extends Server
      * @see #PROP_JSETTLERS_BOTS_BOTGAMES_TOTAL
      * @since 2.0.00
      */
-    private void startRobotOnlyGames(final boolean hasGameListMonitor)
+    void startRobotOnlyGames(final boolean hasGameListMonitor)
     {
         if (numRobotOnlyGamesRemaining <= 0)
             return;
 
-        // TODO start more than one here
-        // TODO property to control # "a few" games started here
-
-        String gaName = "~botsOnly~" + numRobotOnlyGamesRemaining;
+        final int maxRunning = getConfigIntProperty(PROP_JSETTLERS_BOTS_BOTGAMES_PARALLEL, 1);
 
-        SOCGame newGame = createGameAndBroadcast
-            (null, gaName, SOCGameOption.getAllKnownOptions(), Version.versionNumber(), true, hasGameListMonitor);
+        if (! hasGameListMonitor)
+            gameList.takeMonitor();
 
-        if (newGame != null)
+        try
         {
-            --numRobotOnlyGamesRemaining;
+            while ((numRobotOnlyGamesRemaining > 0) && (numRobotOnlyGamesRunning < maxRunning))
+            {
+                String gaName = "~botsOnly~" + numRobotOnlyGamesRemaining;
 
-            System.out.println("Started bot-only game: " + gaName);
-            newGame.setGameState(SOCGame.READY);
-            readyGameAskRobotsJoin(newGame, null, 0);
-        } else {
-            // TODO game name existed
+                SOCGame newGame = createGameAndBroadcast
+                    (null, gaName, SOCGameOption.getAllKnownOptions(), Version.versionNumber(), true, true);
+
+                if (newGame != null)
+                {
+                    --numRobotOnlyGamesRemaining;
+                    ++numRobotOnlyGamesRunning;
+
+                    System.out.println("Started bot-only game: " + gaName);
+                    if (botTournament != null)
+                        botTournament.gameStarted(newGame);
+                    newGame.setGameState(SOCGame.READY);
+                    readyGameAskRobotsJoin(newGame, null, 0);
+                } else {
+                    // TODO game name existed
+                    break;
+                }
+            }
+        } finally {
+            if (! hasGameListMonitor)
+                gameList.releaseMonitor();
         }
     }
 
@@ -5877,11 +6068,11 @@ public class SOCServer extends Server
         // Key = bot Connection, value = seat number as {@link Integer} like in SOCServer.robotJoinRequests
         Hashtable<Connection, Object> robotsRequested = null;
 
-        int[] robotIndexes = null;
+        Connection[] robotConns = null;
         if (robotSeats == null)
         {
-            // shuffle the indexes to distribute load
-            robotIndexes = robotShuffleForJoin();
+            // shuffle the bots to distribute load
+            robotConns = robotShuffleForJoin();
         }
         else
         {
@@ -5908,7 +6099,7 @@ public class SOCServer extends Server
                  * Similar to SOCGameHandler.findRobotAskJoinGame (called from SGH.leaveGame),
                  * where a player has left and must be replaced by a bot.
                  */
-                if (idx < robots.size())
+                if (idx < ((robotConns != null) ? robotConns.length : robots.size()))
                 {
                     messageToGameKeyed(ga, true, "member.bot.join.fetching");  // "Fetching a robot player..."
 
@@ -5921,7 +6112,7 @@ public class SOCServer extends Server
                     }
                     else
                     {
-                        robotConn = robots.get(robotIndexes[idx]);
+                        robotConn = robotConns[idx];
                     }
                     idx++;
                     --seatsOpen;
@@ -6991,6 +7182,23 @@ public class SOCServer extends Server
         }
     }
 
+    /**
+     * Increment the "number of games started" server-statistics field.
+     * Call when a game's play begins, from {@link GameHandler#startGame(SOCGame)}.
+     *<P>
+     * Thread-safe; synchronizes on an internal object, since games on different
+     * inbound dispatch lanes may start at the same time.
+     * Package-level access for calls from {@link GameHandler}s.
+     * @since 2.0.00
+     */
+    void gameStartedIncrGamesStartedCount()
+    {
+        synchronized (countFieldSync)
+        {
+            ++numberOfGamesStarted;
+        }
+    }
+
     /**
      * create a new game event record
      */
@@ -7109,11 +7317,11 @@ public class SOCServer extends Server
      * check for games that have expired and destroy them.
      * If games are about to expire, send a warning.
      * As of version 1.1.09, practice games ({@link SOCGame#isPractice} flag set) don't expire.
-     * Is callback method every few minutes from {@link SOCGameTimeoutChecker#run()}.
+     * Is callback method every few minutes from {@link SOCGameTimeoutChecker}.
      *
      * @param currentTimeMillis  The time when called, from {@link System#currentTimeMillis()}
      * @see #GAME_TIME_EXPIRE_WARN_MINUTES
-     * @see #checkForExpiredTurns(long)
+     * @see #checkForExpiredTurn(SOCGame, long)
      */
     public void checkForExpiredGames(final long currentTimeMillis)
     {
@@ -7121,7 +7329,7 @@ public class SOCServer extends Server
 
         gameList.takeMonitor();
 
-        // Add 3 extra minutes because of coarse 5-minute granularity in SOCGameTimeoutChecker.run()
+        // Add 3 extra minutes because of coarse 5-minute granularity in SOCGameTimeoutChecker
         long warn_ms = (3 + GAME_TIME_EXPIRE_WARN_MINUTES) * 60L * 1000L;
 
         try
@@ -7182,78 +7390,87 @@ public class SOCServer extends Server
     }
 
     /**
-     * Check all games for robot turns that have expired, and end that turn,
+     * Get the timeout for robot turns: {@link #ROBOT_FORCE_ENDTURN_SECONDS}.
+     * @return  Turn timeout in milliseconds
+     * @since 2.0.00
+     */
+    long getTurnTimeoutMillis()
+    {
+        return ROBOT_FORCE_ENDTURN_SECONDS * 1000L;
+    }
+
+    /**
+     * Check a game for a robot turn that has expired, and end that turn,
      * or stop waiting for non-current-player robot actions (discard picks, etc).
      * Robot turns may end from inactivity or from an illegal placement.
-     * Checks each game's {@link SOCGame#lastActionTime} field, and calls
+     * Checks the game's {@link SOCGame#lastActionTime} field, and calls
      * {@link GameHandler#endTurnIfInactive(SOCGame, long)} if the
-     * last action is older than {@link #ROBOT_FORCE_ENDTURN_SECONDS}
+     * last action is older than {@link #getTurnTimeoutMillis()}
      * (or for third-party bots, {@link #PROP_JSETTLERS_BOTS_TIMEOUT_TURN}).
      *<P>
-     * Is callback method every few seconds from {@link SOCGameTimeoutChecker#run()}.
+     * Is callback method from {@link SOCGameTimeoutChecker} when the game's turn timeout arrives.
+     * Before v2.0.00 this was {@code checkForExpiredTurns(long)}, which checked all games every few seconds.
      *
+     * @param ga  Game to check
      * @param currentTimeMillis  The time when called, from {@link System#currentTimeMillis()}
+     *     or the game's {@link SOCGame#setClock(soc.game.SOCGameClock) clock} if any
+     * @return  When to check this game again, on that same clock, or 0 if game was destroyed
      * @see #ROBOT_FORCE_ENDTURN_SECONDS
      * @see #checkForExpiredGames(long)
      * @since 1.1.11
      */
-    public void checkForExpiredTurns(final long currentTimeMillis)
+    long checkForExpiredTurn(final SOCGame ga, final long currentTimeMillis)
     {
         // Because nothing's currently happening in such a turn,
-        // and we force the end in another thread,
+        // and the forced end is posted to the inbound queue instead of done from this timer task,
         // we shouldn't need to worry about locking.
         // So, we don't need gameList.takeMonitor().
 
-        final long inactiveTime = currentTimeMillis - (ROBOT_FORCE_ENDTURN_SECONDS * 1000L);
-        final long inactiveTime3p;  // if set, longer time for 3rd-party bot players
-        {
-            final int timeout3p = getConfigIntProperty(PROP_JSETTLERS_BOTS_TIMEOUT_TURN, 0);
-            inactiveTime3p = (timeout3p <= ROBOT_FORCE_ENDTURN_SECONDS)
-                ? 0
-                : currentTimeMillis - (timeout3p * 1000L);
-        }
+        final long timeout = getTurnTimeoutMillis();
 
         try
         {
-            for (SOCGame ga : gameList.getGamesData())
+            // lastActionTime is a recent time, or might be 0 to force end
+            final long lastActionTime = ga.lastActionTime;
+            if (lastActionTime + timeout > currentTimeMillis)
+                return lastActionTime + timeout;
+
+            if (ga.getGameState() >= SOCGame.OVER)
             {
-                // lastActionTime is a recent time, or might be 0 to force end
-                long lastActionTime = ga.lastActionTime;
-                if (lastActionTime > inactiveTime)
-                    continue;
+                // nothing to do.
+                // bump out that time, so we don't see it again soon
+                ga.lastActionTime
+                    += (SOCGameListAtServer.GAME_TIME_EXPIRE_MINUTES * 60 * 1000);
+                return Math.max(ga.lastActionTime + timeout, currentTimeMillis + timeout);
+            }
 
-                if (ga.getGameState() >= SOCGame.OVER)
-                {
-                    // nothing to do.
-                    // bump out that time, so we don't see
-                    // it again every few seconds
-                    ga.lastActionTime
-                        += (SOCGameListAtServer.GAME_TIME_EXPIRE_MINUTES * 60 * 1000);
-                    continue;
-                }
+            final int cpn = ga.getCurrentPlayerNumber();
+            if (cpn == -1)
+                return currentTimeMillis + timeout;  // not started yet
 
-                final int cpn = ga.getCurrentPlayerNumber();
-                if (cpn == -1)
-                    continue;  // not started yet
+            final int timeout3p = getConfigIntProperty(PROP_JSETTLERS_BOTS_TIMEOUT_TURN, 0);
+            if ((timeout3p > ROBOT_FORCE_ENDTURN_SECONDS)
+                && (lastActionTime + (timeout3p * 1000L) > currentTimeMillis))
+            {
+                final SOCPlayer pl = ga.getPlayer(cpn);
+                if (pl.isRobot() && ! pl.isBuiltInRobot())
+                    return lastActionTime + (timeout3p * 1000L);  // third-party robot player has more time
+            }
 
-                if ((inactiveTime3p != 0) && (lastActionTime > inactiveTime3p))
-                {
-                    final SOCPlayer pl = ga.getPlayer(cpn);
-                    if (pl.isRobot() && ! pl.isBuiltInRobot())
-                        continue;  // third-party robot player has more time
-                }
+            GameHandler hand = gameList.getGameTypeHandler(ga.getName());
+            if (hand == null)
+                return 0;  // game was destroyed
 
-                GameHandler hand = gameList.getGameTypeHandler(ga.getName());
-                if (hand != null)
-                    hand.endTurnIfInactive(ga, currentTimeMillis);
+            hand.endTurnIfInactive(ga, currentTimeMillis);
 
-                // TODO consider keeping stats on forced end turns (return false or true from endTurnIfInactive, etc)
-            }
+            // TODO consider keeping stats on forced end turns (return false or true from endTurnIfInactive, etc)
         }
         catch (Exception e)
         {
-            D.ebugPrintln("Exception in checkForExpiredTurns - " + e);
+            D.ebugPrintln("Exception in checkForExpiredTurn - " + e);
         }
+
+        return currentTimeMillis + (timeout / 2);
     }
 
     /**
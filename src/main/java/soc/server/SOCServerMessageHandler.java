@@ -35,7 +35,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.MissingResourceException;
-import java.util.TimerTask;
 import java.util.Vector;
 
 import soc.debug.D;
@@ -48,6 +47,7 @@ import soc.message.*;
 import soc.server.database.SOCDBHelper;
 import soc.server.genericServer.Connection;
 import soc.server.genericServer.StringConnection;
+import soc.util.HashedWheelTimer;
 import soc.util.SOCGameBoardReset;
 import soc.util.SOCGameList;
 import soc.util.SOCRobotParameters;
@@ -479,7 +479,7 @@ public class SOCServerMessageHandler
 
             // make an effort to send reject message before closing socket
             final Connection rc = c;
-            srv.miscTaskTimer.schedule(new TimerTask()
+            srv.utilTimer.schedule(new HashedWheelTimer.Task()
             {
                 public void run()
                 {
@@ -511,6 +511,9 @@ public class SOCServerMessageHandler
         if (params == null)
             params = SOCServer.ROBOT_PARAMS_DEFAULT;  // fallback in case of SQLException
 
+        final SOCClientData scd = (SOCClientData) c.getAppData();
+        if (scd != null)
+            scd.robotParams = params;
         c.put(SOCUpdateRobotParams.toCmd(params));
     }
 
@@ -1111,6 +1114,10 @@ public class SOCServerMessageHandler
         {
             processDebugCommand_dbSettings(c, ga);
         }
+        else if (cmdTxtUC.startsWith("*MSGSTATS*"))
+        {
+            processDebugCommand_msgStats(c, ga, cmdTxtUC.substring(10).trim());
+        }
 
         //
         // check for admin/debugging commands
@@ -1199,6 +1206,38 @@ public class SOCServerMessageHandler
             srv.messageToPlayer(c, gaName, "> " + it.next() + ": " + it.next());
     }
 
+    /**
+     * Process the {@code *MSGSTATS*} privileged admin command:
+     * Check {@link SOCServer#isUserDBUserAdmin(String)} and if OK, send the client the
+     * server's {@link soc.server.genericServer.ServerMetrics ServerMetrics} report:
+     * Message counts, bytes, queue wait and handler times by message type.
+     * @param c  Client sending the admin command
+     * @param ga  Game in which to reply
+     * @param argUC  Uppercase argument after the command, or "": "ALL" to list all message types,
+     *     not just those with the most handler time; "RESET" to clear the metrics after showing them
+     * @since 2.0.00
+     * @see SOCServer#processDebugCommand_serverStats(Connection, SOCGame)
+     */
+    private void processDebugCommand_msgStats(final Connection c, final SOCGame ga, final String argUC)
+    {
+        final String msgUser = c.getData();
+        if (! (srv.isUserDBUserAdmin(msgUser)
+               || (srv.isDebugUserEnabled() && msgUser.equals("debug"))))
+        {
+            return;
+        }
+
+        final String gaName = ga.getName();
+        for (String line : srv.metrics.getReportLines(argUC.equals("ALL") ? 0 : 12))
+            srv.messageToPlayer(c, gaName, "> " + line);
+
+        if (argUC.equals("RESET"))
+        {
+            srv.metrics.reset();
+            srv.messageToPlayer(c, gaName, "Message metrics cleared.");
+        }
+    }
+
     /**
      * Print time-remaining and other game stats.
      * Includes more detail beyond the end-game stats sent in {@link SOCGameHandler#sendGameStateOVER(SOCGame)}.
@@ -1326,7 +1365,7 @@ public class SOCServerMessageHandler
             }
         }
 
-        Vector<Connection> gameMembers = null;
+        List<Connection> gameMembers = null;
 
         gameList.takeMonitorForGame(gaNameWho);
         try
@@ -1349,10 +1388,10 @@ public class SOCServerMessageHandler
         if (sendToCli)
             srv.messageToPlayerKeyed(c, gaName, "reply.game_members.of", gaNameWho);  // "Members of game {0}:"
 
-        Enumeration<Connection> membersEnum = gameMembers.elements();
-        while (membersEnum.hasMoreElements())
+        Iterator<Connection> membersEnum = gameMembers.iterator();
+        while (membersEnum.hasNext())
         {
-            Connection conn = membersEnum.nextElement();
+            Connection conn = membersEnum.next();
             String mNameStr = "> " + conn.getData();
 
             if (sendToCli)
@@ -21,113 +21,87 @@
  **/
 package soc.server;
 
-import java.util.ConcurrentModificationException;
-import java.util.Vector;
+import java.util.List;
 
 import soc.disableDebug.D;
 import soc.message.SOCServerPing;
 import soc.server.genericServer.Connection;
+import soc.util.HashedWheelTimer;
 
 
 /**
  * Pings the robots so they know they're connected to an active server.
  * Sends a {@link SOCServerPing} to each bot every 2 minutes or so.
+ *<P>
+ * Before v2.0.00 this was its own thread; it's now a repeating task on the server's {@link SOCServer#utilTimer}.
  *
  * @author Robert S Thomas
  */
-public class SOCServerRobotPinger extends Thread
+public class SOCServerRobotPinger extends HashedWheelTimer.Task
 {
     /** A list of robot {@link Connection}s to ping, shared with and modified by the server. */
-    private Vector<Connection> robotConnections;
+    private final List<Connection> robotConnections;
 
     /**
      * Sleep time (milliseconds) between pings: 150 seconds.
-     * {@link #run()} method sleeps for 60 seconds less than this.
+     * {@link #run()} is scheduled to repeat 60 seconds sooner than this.
      */
     private final int sleepTime = 150000;
 
-    /** Ping message (with {@link #sleepTime} param) to send to each bot */
-    private final SOCServerPing ping;
-
-    /**
-     * Alive flag; loop while true.
-     * @see #stopPinger()
-     */
-    private volatile boolean alive;
+    /** Ping message text (with {@link #sleepTime} param) to send to each bot */
+    private final String pingCmdStr;
 
     /**
      * Our server.
      * @since 1.1.11
      */
-    @SuppressWarnings("unused")
     private final SOCServer srv;
 
     /**
-     * Create a server robot pinger
+     * Create a server robot pinger. Call {@link #start()} to begin pinging.
      *
-     * @param robots  the connections to robots; a Vector of {@link Connection}s
+     * @param robots  the connections to robots; a thread-safe List of {@link Connection}s
      */
-    public SOCServerRobotPinger(SOCServer s, Vector<Connection> robots)
+    public SOCServerRobotPinger(SOCServer s, List<Connection> robots)
     {
         srv = s;
         robotConnections = robots;
-        ping = new SOCServerPing(sleepTime);
-        alive = true;
-        setName ("robotPinger-srv");  // Thread name for debug
+        pingCmdStr = new SOCServerPing(sleepTime).toCmd();
+    }
+
+    /**
+     * Schedule {@link #run()} on the server's timer, now and every {@link #sleepTime} minus 60 seconds.
+     * @since 2.0.00
+     */
+    public void start()
+    {
+        srv.utilTimer.schedule(this, 0, sleepTime - 60000);
     }
 
     /**
-     * Robot ping loop thread:
-     * Send a {@link SOCServerPing} to each bot connected to the server,
-     * then sleep for {@link #sleepTime} minus 60 seconds.
-     * Exits loop when {@link #stopPinger()} is called.
+     * Send a {@link SOCServerPing} to each bot connected to the server.
+     * Called from the server's timer until {@link #stopPinger()} is called.
      */
-    @Override
     public void run()
     {
-        final String pingCmdStr = ping.toCmd();
+        if (robotConnections.isEmpty())
+            return;
 
-        while (alive)
+        final Connection[] robots = robotConnections.toArray(new Connection[0]);
+        for (Connection robotConnection : robots)
         {
-            boolean retry = false;
-
-            if (! robotConnections.isEmpty())
-            {
-                try
-                {
-                    for (Connection robotConnection : robotConnections)
-                    {
-                        if (D.ebugIsEnabled())
-                            D.ebugPrintln("(*)(*)(*)(*) PINGING " + robotConnection.getData());
-                        robotConnection.put(pingCmdStr);
-                    }
-                } catch (ConcurrentModificationException e) {
-                    retry = true;
-                }
-            }
-
-            yield();
-
-            final int msec = (retry) ? 250 : (sleepTime - 60000);
-            try
-            {
-                sleep(msec);
-            }
-            catch (InterruptedException exc) {}
+            if (D.ebugIsEnabled())
+                D.ebugPrintln("(*)(*)(*)(*) PINGING " + robotConnection.getData());
+            robotConnection.put(pingCmdStr);
         }
-
-        //
-        //  cleanup
-        //
-        robotConnections = null;
     }
 
     /**
-     * Cleanly exit the thread's run loop.
+     * Stop pinging.
      */
     public void stopPinger()
     {
-        alive = false;
+        cancel();
     }
 
 }  // public class SOCServerRobotPinger
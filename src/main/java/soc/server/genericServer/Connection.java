@@ -26,6 +26,7 @@ import java.util.Date;
 import java.util.MissingResourceException;
 
 import soc.game.SOCGame;  // strictly for passthrough in getLocalizedSpecial, and javadocs; not used otherwise
+import soc.message.SOCMessage;
 import soc.util.SOCStringManager;
 
 /**
@@ -106,6 +107,13 @@ public abstract class Connection
     protected boolean remoteVersionTrack;
     protected boolean hideTimeoutMessage;
 
+    /**
+     * If true, send messages to the remote end as binary frames from {@link soc.message.SOCBinaryCodec}.
+     * Set by the server after version negotiation; see {@link #setBinaryProtocol(boolean)}.
+     * @since 2.0.00
+     */
+    protected volatile boolean binaryProtocol;
+
     /**
      * Is set if server-side. Notifies at EOF (calls removeConnection).
      * Messages from client will go into ourServer's {@link InboundMessageQueue}.
@@ -115,6 +123,27 @@ public abstract class Connection
     /** Any error encountered, or {@code null} */
     protected Exception error;
 
+    /**
+     * Keeps this client's inbound messages in order when the server's {@link InboundMessageQueue}
+     * dispatches them on more than one lane. Used only by that queue.
+     * @since 2.0.00
+     */
+    final InboundMessageQueue.ConnectionOrder inboundOrder = new InboundMessageQueue.ConnectionOrder();
+
+    /**
+     * If true, the outbound queue went past the server's {@link OutputQueueLimits} and was discarded;
+     * further output is discarded, not queued. See {@link #isOutputParked()}.
+     * @since 2.0.00
+     */
+    protected volatile boolean outputParked;
+
+    /**
+     * Outbound queue's largest depth so far, and the depth last logged as a high-water mark;
+     * see {@link #checkOutputQueue(int, long)}. Synchronized on the subclass's outbound queue.
+     * @since 2.0.00
+     */
+    private int outHighWater, outHighWaterLogged;
+
     /** Time of connection to server, or of object creation if that time's not available */
     protected Date connectTime = new Date();
 
@@ -136,6 +165,43 @@ public abstract class Connection
     public abstract void put(String str)
         throws IllegalStateException;
 
+    /**
+     * Send a pre-encoded message over the connection. When sending the same message to many
+     * connections, this avoids encoding it again for each one.
+     *<P>
+     * This default implementation calls {@link #put(String)} with the message's text;
+     * network connection types override it to send the shared encoded bytes.
+     *<P>
+     * <B>Threads:</B> Each implementation must be safe to call from any thread.
+     *
+     * @param msg Message to send; not null
+     * @throws IllegalStateException if not yet accepted by server
+     * @since 2.0.00
+     */
+    public void put(EncodedMessage msg)
+        throws IllegalStateException
+    {
+        put(msg.getText());
+    }
+
+    /**
+     * Send a message object over the connection.
+     *<P>
+     * This default implementation calls {@link #put(String)} with the message's {@link SOCMessage#toCmd()};
+     * local {@link StringConnection}s override it to pass the object itself to their peer.
+     *<P>
+     * <B>Threads:</B> Each implementation must be safe to call from any thread.
+     *
+     * @param mes Message to send; not null, and should be immutable
+     * @throws IllegalStateException if not yet accepted by server
+     * @since 2.0.00
+     */
+    public void put(SOCMessage mes)
+        throws IllegalStateException
+    {
+        put(mes.toCmd());
+    }
+
     /** For server-side thread which reads and treats incoming messages */
     public abstract void run();
 
@@ -375,8 +441,8 @@ public abstract class Connection
         remoteVersionKnown = isKnown;
         if (remoteVersionTrack && (ourServer != null) && (prevVers != version))
         {
-            ourServer.clientVersionRem(prevVers);
-            ourServer.clientVersionAdd(version);
+            ourServer.clientVersionRem(this, prevVers);
+            ourServer.clientVersionAdd(this, version);
         }
     }
 
@@ -397,8 +463,8 @@ public abstract class Connection
      * is changed by setVersion calls?
      * @param doTracking true if we should notify server, false otherwise.
      *        If true, please call both setVersion and
-     *        {@link Server#clientVersionAdd(int)} before calling setVersionTracking.
-     *        If false, please call {@link Server#clientVersionRem(int)} before
+     *        {@link Server#clientVersionAdd(Connection, int)} before calling setVersionTracking.
+     *        If false, please call {@link Server#clientVersionRem(Connection, int)} before
      *        calling setVersionTracking.
      * @since 1.0.5
      */
@@ -414,6 +480,74 @@ public abstract class Connection
      */
     public abstract boolean isInputAvailable();
 
+    /**
+     * Get the number of messages or frames waiting in this connection's outbound queue, for metrics.
+     * This default implementation returns 0, for connection types which don't queue output.
+     *<P>
+     * <B>Threads:</B> Safe to call from any thread; the result may be out of date by the time it's used.
+     * @return  Number of items waiting to be sent
+     * @see ServerMetrics
+     * @since 2.0.00
+     */
+    public int getOutboundQueueDepth()
+    {
+        return 0;
+    }
+
+    /**
+     * Has this connection's outbound queue gone past the server's {@link OutputQueueLimits}
+     * and been parked or dropped? If so, output to it is discarded. A parked client's new connection
+     * can take over from this one without waiting, to be sent the full state of its games.
+     * @return  True if output is being discarded
+     * @since 2.0.00
+     */
+    public boolean isOutputParked()
+    {
+        return outputParked;
+    }
+
+    /**
+     * After adding a message to a network connection's outbound queue, record the queue depth in the server's
+     * {@link ServerMetrics}, log it if it's a new high-water mark (at least {@link OutputQueueLimits#HIGH_WATER_LOG_MIN}
+     * and double the last one logged), and check the server's {@link OutputQueueLimits}.
+     * Caller must synchronize on its outbound queue.
+     * @param depth  Number of messages or frames in the queue
+     * @param bytes  Total size of the queue's contents
+     * @return  True if the queue is over the server's limits; caller should handle that by its
+     *     {@link OutputQueueLimits#policy} and call {@link #logOutputOverflow(String, int, long)}
+     * @since 2.0.00
+     */
+    protected final boolean checkOutputQueue(final int depth, final long bytes)
+    {
+        ourServer.metrics.recordOutboundQueueDepth(depth);
+        if (depth > outHighWater)
+        {
+            outHighWater = depth;
+            if ((depth >= OutputQueueLimits.HIGH_WATER_LOG_MIN) && (depth >= 2 * outHighWaterLogged))
+            {
+                outHighWaterLogged = depth;
+                System.err.println
+                    ("Output queue high-water mark for " + this + ": " + depth + " messages, " + bytes + " bytes");
+            }
+        }
+
+        final OutputQueueLimits lim = ourServer.outputLimits;
+        return (lim != null) && lim.isExceeded(depth, bytes);
+    }
+
+    /**
+     * Log what's being done about a network connection's outbound queue overflow.
+     * @param action  Action taken, such as "dropping connection"
+     * @param depth  Number of messages or frames in the queue before that action
+     * @param bytes  Total size of the queue's contents before that action
+     * @since 2.0.00
+     */
+    protected final void logOutputOverflow(final String action, final int depth, final long bytes)
+    {
+        System.err.println("Output queue overflow for " + this + " at " + depth + " messages, "
+            + bytes + " bytes: " + action);
+    }
+
     /**
      * If client connection times out at server, should the server not print a message to console?
      * This would be desired, for instance, in automated clients, which would reconnect
@@ -439,4 +573,27 @@ public abstract class Connection
         hideTimeoutMessage = wantsHide;
     }
 
+    /**
+     * Does this connection send messages as binary frames instead of text?
+     * @return true if {@link #setBinaryProtocol(boolean)} has enabled binary frames
+     * @since 2.0.00
+     */
+    public boolean isBinaryProtocol()
+    {
+        return binaryProtocol;
+    }
+
+    /**
+     * Should this connection send messages as compact binary frames from {@link soc.message.SOCBinaryCodec}?
+     * Network connection types honor this flag; local connections always pass message objects' text.
+     * Call only after the remote end has asked for binary during version negotiation,
+     * since older clients can't decode it. Incoming frames are accepted in either format regardless.
+     * @param binary  True to send binary frames, false for the default text frames
+     * @since 2.0.00
+     */
+    public void setBinaryProtocol(final boolean binary)
+    {
+        binaryProtocol = binary;
+    }
+
 }
@@ -0,0 +1,240 @@
+/**
+ * JSettlers network message system.
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server.genericServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+
+import soc.message.SOCBinaryCodec;
+import soc.message.SOCMessage;
+
+/**
+ * A message to be sent to several clients, encoded only once for the network
+ * no matter how many connections it's sent to.
+ * Use {@link Connection#put(EncodedMessage)} to send it.
+ *<P>
+ * Holds the message's text from {@link SOCMessage#toCmd()}, and lazily builds its wire frame: A 2-byte length
+ * followed by the text's "modified UTF-8" bytes, exactly as written by {@link DataOutputStream#writeUTF(String)}.
+ * Network connections write that frame's shared bytes directly to their socket. The frame is built the first time
+ * a network connection asks for it, so a message sent only to local bots is never encoded.
+ * Connections using the optional binary protocol share a second frame built by {@link #getFrame(boolean) getFrame(true)}.
+ *<P>
+ * When created from a message object, also holds that object: Local {@link StringConnection}s pass it
+ * directly to their peer (see {@link StringConnection#PASS_MESSAGE_OBJECTS}). The text is built from it
+ * when created, since some messages refer to mutable game data and network connections must send the
+ * state as of the broadcast; only if every recipient is a local connection
+ * ({@link #forConnections(SOCMessage, Collection)}) is the text built later, if some connection asks for it.
+ *<P>
+ * <B>Threads:</B> Immutable once created, and safe to send from any thread.
+ * If two connection threads ask for the frame at the same moment, each may encode it,
+ * but they'll get identical contents.
+ *
+ * @since 2.0.00
+ */
+public final class EncodedMessage
+{
+    /** Message object, or null if created from text */
+    private final SOCMessage message;
+
+    /** Message text, from {@link SOCMessage#toCmd()}, or null if not yet built by {@link #getText()} */
+    private volatile String text;
+
+    /** Encoded frame, or null if not yet built by {@link #getFrame()} */
+    private volatile byte[] frame;
+
+    /**
+     * Encoded binary frame from {@link SOCBinaryCodec}, or null if not yet built by {@link #getFrame(boolean)}
+     * @since 2.0.00
+     */
+    private volatile byte[] binaryFrame;
+
+    /**
+     * Create an encoded message from a message's text.
+     * @param cmd  Message text, from {@link SOCMessage#toCmd()}
+     * @throws IllegalArgumentException if {@code cmd} is null
+     */
+    public EncodedMessage(final String cmd)
+        throws IllegalArgumentException
+    {
+        if (cmd == null)
+            throw new IllegalArgumentException("null");
+
+        message = null;
+        text = cmd;
+    }
+
+    /**
+     * Create an encoded message from a message object, to send to any connections.
+     * Its {@link SOCMessage#toCmd()} is called now, to capture any game data it refers to.
+     * @param mes  Message to send; should be immutable, since local connections may pass it
+     *     to several peers
+     * @throws IllegalArgumentException if {@code mes} is null
+     * @see #forConnections(SOCMessage, Collection)
+     */
+    public EncodedMessage(final SOCMessage mes)
+        throws IllegalArgumentException
+    {
+        this(mes, false);
+    }
+
+    /**
+     * Create an encoded message from a message object.
+     * @param mes  Message to send
+     * @param localOnly  If true, all recipients are local {@link StringConnection}s, so {@link SOCMessage#toCmd()}
+     *     is called only when some connection first asks for the text. Otherwise it's called now.
+     * @throws IllegalArgumentException if {@code mes} is null
+     */
+    private EncodedMessage(final SOCMessage mes, final boolean localOnly)
+        throws IllegalArgumentException
+    {
+        if (mes == null)
+            throw new IllegalArgumentException("null");
+
+        message = mes;
+        if (! localOnly)
+            text = mes.toCmd();
+    }
+
+    /**
+     * Create an encoded message from a message object, to send to these connections.
+     * If they're all local {@link StringConnection}s which can pass the object to their peer,
+     * its {@link SOCMessage#toCmd()} won't be called unless a connection asks for the text;
+     * if any are network connections, it's called now so they all send the same state,
+     * even if game data which {@code mes} refers to changes before their threads send it.
+     * @param mes  Message to send; should be immutable, since local connections may pass it
+     *     to several peers
+     * @param conns  Connections which the message will be sent to; null elements are ignored
+     * @return  The encoded message
+     * @throws IllegalArgumentException if {@code mes} is null
+     * @since 2.0.00
+     */
+    public static EncodedMessage forConnections(final SOCMessage mes, final Collection<Connection> conns)
+        throws IllegalArgumentException
+    {
+        boolean localOnly = true;
+        for (Connection c : conns)
+        {
+            if ((c != null) && ! (c instanceof StringConnection))
+            {
+                localOnly = false;
+                break;
+            }
+        }
+
+        return new EncodedMessage(mes, localOnly);
+    }
+
+    /**
+     * Get the message object, if this was created from one.
+     * @return  The message given to {@link #EncodedMessage(SOCMessage)}, or null if created from text
+     */
+    public SOCMessage getMessage()
+    {
+        return message;
+    }
+
+    /**
+     * Get the message text, as sent to {@link Connection#put(String)}.
+     * @return  The message text; not null
+     */
+    public String getText()
+    {
+        String t = text;
+        if (t == null)
+        {
+            t = message.toCmd();
+            text = t;
+        }
+
+        return t;
+    }
+
+    /**
+     * Get the wire frame to send over the network: Same bytes as {@link DataOutputStream#writeUTF(String)} of
+     * {@link #getText()}. The returned array is shared by all callers and must not be modified.
+     * @return  The 2-byte length plus modified UTF-8 encoding of the text
+     * @throws IOException  {@link java.io.UTFDataFormatException} if encoded text is longer than
+     *     {@link Connection#MAX_MESSAGE_SIZE_UTF8}
+     */
+    public byte[] getFrame()
+        throws IOException
+    {
+        byte[] f = frame;
+        if (f == null)
+        {
+            f = encodeFrame(getText());
+            frame = f;
+        }
+
+        return f;
+    }
+
+    /**
+     * Get the wire frame to send over the network in text or binary format.
+     * The returned array is shared by all callers and must not be modified.
+     * @param binary  If true, get the frame from {@link SOCBinaryCodec#encodeBinaryFrame(String)};
+     *     if the text can't be binary-encoded, returns the same text frame as {@link #getFrame()}
+     * @return  The encoded frame, including its 2-byte length
+     * @throws IOException  {@link java.io.UTFDataFormatException} if encoded text is longer than
+     *     {@link Connection#MAX_MESSAGE_SIZE_UTF8}
+     */
+    public byte[] getFrame(final boolean binary)
+        throws IOException
+    {
+        if (! binary)
+            return getFrame();
+
+        byte[] f = binaryFrame;
+        if (f == null)
+        {
+            f = SOCBinaryCodec.encodeBinaryFrame(getText());
+            if (f == null)
+                f = getFrame();
+            binaryFrame = f;
+        }
+
+        return f;
+    }
+
+    /**
+     * Encode a message string into the same bytes as {@link DataOutputStream#writeUTF(String)}.
+     * @param str  Message to encode
+     * @return  2-byte length plus modified UTF-8 encoding of {@code str}
+     * @throws IOException  {@link java.io.UTFDataFormatException} if too long
+     */
+    static byte[] encodeFrame(final String str)
+        throws IOException
+    {
+        final ByteArrayOutputStream bout = new ByteArrayOutputStream(str.length() + 8);
+        new DataOutputStream(bout).writeUTF(str);
+        return bout.toByteArray();
+    }
+
+    /**
+     * @return this message's text, for debugging
+     */
+    public String toString()
+    {
+        return getText();
+    }
+
+}
@@ -21,17 +21,20 @@
  **/
 package soc.server.genericServer;
 
-import java.util.Vector;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import soc.message.SOCMessage;
+import soc.message.SOCMessageForGame;
 
 /**
- * The single Inbound Message Queue for all messages coming from clients.
+ * The Inbound Message Queue for all messages coming from clients.
  * Stores all unparsed inbound {@link SOCMessage}s received from the server from all
  * connected clients' {@link Connection} threads through {@link #push(SOCMessage, Connection)},
  * then dispatched to the {@link Server} for parsing and processing.
  *<P>
- * That dispatch is done through this class's single internal {@link Treater} thread, which de-queues
+ * By default that dispatch is done through this class's single internal {@link Treater} thread, which de-queues
  * the received messages from the queue and forwards them to the {@link Server} by calling
  * {@link Server.InboundMessageDispatcher#dispatch(SOCMessage, Connection)}
  * for each inbound message.
@@ -40,6 +43,35 @@ import soc.message.SOCMessage;
  * but then finish handling that message in the Treater to simplify locking of other objects.
  * For this, call {@link #post(Runnable)}: Same concept as {@link java.awt.EventQueue#invokeLater(Runnable)}.
  *
+ *<H3>Per-game dispatch lanes:</H3>
+ * Optionally the queue can instead partition messages onto a fixed number of per-game "lanes",
+ * each with its own {@link Treater} thread, so that one slow handler won't stall every other game:
+ * See {@link #InboundMessageQueue(Server.InboundMessageDispatcher, int)}.
+ * Each {@link SOCMessageForGame} naming a game (not {@link SOCMessage#GAME_NONE}) goes to the lane chosen
+ * by hashing its game name, so messages for any one game are still dispatched one at a time in order.
+ * All other messages (channels, auth, game list, joining or creating a game, etc) and {@link #post(Runnable)}ed code
+ * go to the single global lane. Each lane's queue depth and dispatch latency are tracked
+ * for {@link #getLaneStats()}.
+ *<P>
+ * Each client's messages are still dispatched in the order they arrived, even when they go to different lanes:
+ * A client's message for one lane waits until its earlier messages on another lane have been dispatched.
+ * So for example a client's {@code SITDOWN} on a game lane isn't handled until its {@code VERSION},
+ * auth and {@code JOINGAME} have been handled on the global lane, and its {@code LEAVEALL} waits for
+ * its earlier game messages. Code for a client from {@link #postForConnection(Runnable, Connection)}
+ * is ordered the same way. See {@link ConnectionOrder}.
+ *<P>
+ * If given a {@link ServerMetrics}, each dispatched message's queue wait and handler times
+ * are also recorded there by message type.
+ *<P>
+ * When lanes are used, dispatch code for different games runs concurrently:
+ * Any server-wide structures it touches must be thread-safe.
+ *
+ *<H3>Queueing:</H3>
+ * Each lane's queue is a {@link LinkedBlockingQueue}, so connection threads pushing messages don't contend
+ * with each other or the Treater on a single monitor. The Treater parks until an item arrives, then
+ * drains up to {@link #DRAIN_BATCH_SIZE} queued items at once and dispatches them in order,
+ * so a burst of messages is handled with a single wakeup.
+ *
  *<H3>Startup:</H3>
  * This queue's constructor only sets up the InboundMessageQueue to receive messages. Afterwards when the
  * {@link Server} is ready to process inbound messages, you must call {@link #startMessageProcessing()}
@@ -65,58 +97,133 @@ public class InboundMessageQueue
 {
 
     /**
-     * Internal queue to used to store all clients' {@link MessageData}
-     * and/or code to be ran in the {@link Treater} thread.
+     * Maximum number of queued items a {@link Treater} takes from its queue at once
+     * before dispatching them, to handle bursts without waking for each message.
+     * @since 2.0.00
      */
-    private Vector<MessageData> inQueue;
+    public static final int DRAIN_BATCH_SIZE = 64;
 
     /**
-     * Internal thread to process data out of the {@link #inQueue}.
+     * Placeholder queued by {@link Treater#stopTreater()} to wake that thread so it can exit.
+     * @since 2.0.00
+     */
+    private static final MessageData STOP_MARKER = new MessageData((SOCMessage) null, null);
+
+    /**
+     * The global lane's thread, which processes all messages when not using per-game lanes.
+     * Its internal queue is used to store all clients' {@link MessageData}
+     * and/or code to be ran in the {@link Treater} thread.
      */
     private Treater treater;
 
+    /**
+     * The per-game lanes' threads, or {@code null} if not using lanes (all messages go to {@link #treater}).
+     * @see #InboundMessageQueue(Server.InboundMessageDispatcher, int)
+     * @since 2.0.00
+     */
+    private final Treater[] gameLanes;
+
     /**
      * Message dispatcher at the server which will receive all messages from this queue.
      */
     private final Server.InboundMessageDispatcher dispatcher;
 
     /**
-     * Create a new InboundMessageQueue. Afterwards when the server is ready
+     * Metrics to record each dispatched item's wait and handler times, or null.
+     * @since 2.0.00
+     */
+    private final ServerMetrics metrics;
+
+    /**
+     * Create a new InboundMessageQueue with a single dispatch thread. Afterwards when the server is ready
      * to receive messages, you must call {@link #startMessageProcessing()}.
      *
      * @param imd Message dispatcher at the server which will receive messages from this queue
+     * @see #InboundMessageQueue(Server.InboundMessageDispatcher, int)
      */
     public InboundMessageQueue(Server.InboundMessageDispatcher imd)
     {
-        inQueue = new Vector<MessageData>();
+        this(imd, 0);
+    }
+
+    /**
+     * Create a new InboundMessageQueue, optionally with per-game dispatch lanes
+     * in addition to the global lane. Afterwards when the server is ready
+     * to receive messages, you must call {@link #startMessageProcessing()}.
+     * See class javadoc for details on lanes.
+     *
+     * @param imd Message dispatcher at the server which will receive messages from this queue;
+     *     if {@code nGameLanes} &gt; 0, must be safe to call from multiple threads for different games
+     * @param nGameLanes  Number of per-game lanes, or 0 to dispatch all messages from a single thread
+     * @since 2.0.00
+     */
+    public InboundMessageQueue(Server.InboundMessageDispatcher imd, final int nGameLanes)
+    {
+        this(imd, nGameLanes, null);
+    }
+
+    /**
+     * Create a new InboundMessageQueue, optionally with per-game dispatch lanes, which records
+     * dispatch metrics. Afterwards when the server is ready to receive messages,
+     * you must call {@link #startMessageProcessing()}.
+     *
+     * @param imd Message dispatcher at the server which will receive messages from this queue;
+     *     if {@code nGameLanes} &gt; 0, must be safe to call from multiple threads for different games
+     * @param nGameLanes  Number of per-game lanes, or 0 to dispatch all messages from a single thread
+     * @param metrics  Metrics to record each message's queue wait and handler times, or null
+     * @since 2.0.00
+     */
+    public InboundMessageQueue
+        (Server.InboundMessageDispatcher imd, final int nGameLanes, final ServerMetrics metrics)
+    {
         dispatcher = imd;
+        this.metrics = metrics;
+        treater = new Treater("treater");
+        if (nGameLanes > 0)
+        {
+            gameLanes = new Treater[nGameLanes];
+            for (int i = 0; i < nGameLanes; ++i)
+                gameLanes[i] = new Treater("treater-game-" + i);
+        } else {
+            gameLanes = null;
+        }
     }
 
     /**
-     * Start the {@link Treater} internal thread that calls the server when new messages arrive.
+     * Start the {@link Treater} internal thread(s) that call the server when new messages arrive.
      */
     public void startMessageProcessing()
     {
-        treater = new Treater();
+        if (treater.getState() != Thread.State.NEW)
+            treater = new Treater("treater");  // restarting
         treater.start();
+        if (gameLanes != null)
+            for (int i = 0; i < gameLanes.length; ++i)
+            {
+                if (gameLanes[i].getState() != Thread.State.NEW)
+                    gameLanes[i] = new Treater("treater-game-" + i);
+                gameLanes[i].start();
+            }
     }
 
     /**
-     * Stop the {@link Treater} internal thread
+     * Stop the {@link Treater} internal thread(s)
      */
     public void stopMessageProcessing()
     {
         treater.stopTreater();
+        if (gameLanes != null)
+            for (int i = 0; i < gameLanes.length; ++i)
+                gameLanes[i].stopTreater();
     }
 
     /**
-     * Append an element to the end of the inbound queue.
+     * Append an element to the end of the inbound queue,
+     * or of its game's lane if using per-game lanes.
      *<P>
      *<B>Threads:</B>
-     * This method notifies the {@link Treater}, waking that thread if it
-     * was {@link Object#wait()}ing because the queue was empty.
-     * Although {@code push(..)} isn't declared {@code synchronized},
-     * it's thread-safe because it synchronizes on the internal queue object.
+     * Thread-safe: Adds to the lane's concurrent queue, waking its {@link Treater}
+     * if that thread was waiting because the queue was empty.
      *
      * @param receivedMessage from the connection; will never be {@code null}
      * @param clientConnection that send the message; will never be {@code null}
@@ -125,21 +232,18 @@ public class InboundMessageQueue
     public void push(SOCMessage receivedMessage, Connection clientConnection)
     {
         final MessageData md = new MessageData(receivedMessage, clientConnection);
-        synchronized (inQueue)
-        {
-            inQueue.addElement(md);
-            inQueue.notify();
-        }
+        if (gameLanes == null)
+            treater.enqueue(md);
+        else
+            clientConnection.inboundOrder.enqueue(md, laneFor(receivedMessage));
     }
 
     /**
-     * Post some Runnable code to be queued and then run on the Treater thread.
+     * Post some Runnable code to be queued and then run on the global lane's Treater thread.
      *<P>
      *<B>Threads:</B>
-     * This method notifies the {@link Treater}, waking that thread if it
-     * was {@link Object#wait()}ing because the queue was empty.
-     * Although {@code post(..)} isn't declared {@code synchronized},
-     * it's thread-safe because it synchronizes on the internal queue object.
+     * Thread-safe: Adds to the global lane's concurrent queue, waking its {@link Treater}
+     * if that thread was waiting because the queue was empty.
      * @param run  Runnable code
      * @see #push(SOCMessage, Connection)
      * @see #isCurrentThreadTreater()
@@ -147,16 +251,106 @@ public class InboundMessageQueue
      */
     public void post(Runnable run)
     {
-        final MessageData md = new MessageData(run);
-        synchronized (inQueue)
+        treater.enqueue(new MessageData(run, null));
+    }
+
+    /**
+     * Post some Runnable code for a client to be queued and then run on the global lane's Treater thread,
+     * in order with that client's inbound messages: If using per-game lanes, the code
+     * waits for the client's earlier messages on other lanes, and its later messages wait for the code.
+     *<P>
+     *<B>Threads:</B>
+     * Thread-safe, like {@link #post(Runnable)}.
+     * @param run  Runnable code
+     * @param c  Client connection that {@code run} is for; not null
+     * @see #postForGame(Runnable, String)
+     * @since 2.0.00
+     */
+    public void postForConnection(final Runnable run, final Connection c)
+    {
+        final MessageData md = new MessageData(run, c);
+        if (gameLanes == null)
+            treater.enqueue(md);
+        else
+            c.inboundOrder.enqueue(md, treater);
+    }
+
+    /**
+     * Post some Runnable code for a game to be queued and then run on the Treater thread
+     * of that game's lane, in order with that game's inbound messages.
+     * If not using per-game lanes, same as {@link #post(Runnable)}.
+     *<P>
+     *<B>Threads:</B>
+     * Thread-safe, like {@link #post(Runnable)}.
+     * @param run  Runnable code
+     * @param gaName  Name of game that {@code run} is for; not null
+     * @see #postForConnection(Runnable, Connection)
+     * @since 2.0.00
+     */
+    public void postForGame(final Runnable run, final String gaName)
+    {
+        laneForGame(gaName).enqueue(new MessageData(run, null));
+    }
+
+    /**
+     * Which lane's Treater should dispatch this message?
+     * @param mes  Message to check
+     * @return  Lane for {@code mes}'s game if using per-game lanes and it's a {@link SOCMessageForGame}
+     *     naming a game, otherwise the global lane.
+     *     Requests to join or create a game aren't {@code SOCMessageForGame} and go to the global lane.
+     * @since 2.0.00
+     */
+    private Treater laneFor(final SOCMessage mes)
+    {
+        if ((gameLanes == null) || ! (mes instanceof SOCMessageForGame))
+            return treater;
+
+        return laneForGame(((SOCMessageForGame) mes).getGame());
+    }
+
+    /**
+     * Which lane's Treater should dispatch messages and code for this game?
+     * @param gaName  Game name, or null or {@link SOCMessage#GAME_NONE}
+     * @return  Lane for {@code gaName} if using per-game lanes and it names a game, otherwise the global lane
+     * @since 2.0.00
+     */
+    private Treater laneForGame(final String gaName)
+    {
+        if ((gameLanes == null) || (gaName == null) || gaName.equals(SOCMessage.GAME_NONE))
+            return treater;
+
+        return gameLanes[(gaName.hashCode() & 0x7FFFFFFF) % gameLanes.length];
+    }
+
+    /**
+     * Dispatch the queued messages and posted Runnables on the calling thread instead of a treater thread,
+     * until the queue is empty, including any queued while doing so. For a headless server whose
+     * message processing is never started, such as {@link soc.server.SOCBotTournament}'s,
+     * which calls this from its one thread.
+     *
+     * @return  Number of items dispatched
+     * @throws IllegalStateException if {@link #startMessageProcessing()} has been called,
+     *     or this queue has game lanes
+     * @since 2.0.00
+     */
+    public int dispatchQueued()
+        throws IllegalStateException
+    {
+        if ((gameLanes != null) || (treater.getState() != Thread.State.NEW))
+            throw new IllegalStateException("message processing threads");
+
+        int n = 0;
+        for (MessageData md = treater.poll(); md != null; md = treater.poll())
         {
-            inQueue.addElement(md);
-            inQueue.notify();
+            treater.treat(md);
+            ++n;
         }
+
+        return n;
     }
 
     /**
-     * Retrieves and removes the head of this queue, or returns null if this queue is empty.
+     * Retrieves and removes the head of the global lane's queue, or returns null if that queue is empty.
      * Returns as soon as possible; if queue empty, this method doesn't wait until another thread
      * notifies a message has been added.
      *
@@ -164,29 +358,50 @@ public class InboundMessageQueue
      */
     protected final MessageData poll()
     {
-        synchronized (inQueue)
-        {
-            if (inQueue.size() > 0)
-                return inQueue.remove(0);
-        }
-
-        return null;
+        return treater.poll();
     }
 
     /**
-     * Is our Treater the currently executing thread?
-     * If not, you can use {@link #post(Runnable)} to do work on that thread.
-     * @return true if {@link Thread#currentThread()} is this queue's Treater
+     * Is one of our Treaters the currently executing thread?
+     * If not, you can use {@link #post(Runnable)} to do work on the global lane's thread.
+     * @return true if {@link Thread#currentThread()} is this queue's Treater or one of its per-game lanes
      * @since 1.2.00
      */
     public final boolean isCurrentThreadTreater()
     {
-        return (Thread.currentThread() == treater);
+        final Thread th = Thread.currentThread();
+        if (th == treater)
+            return true;
+
+        if (gameLanes != null)
+            for (int i = 0; i < gameLanes.length; ++i)
+                if (th == gameLanes[i])
+                    return true;
+
+        return false;
+    }
+
+    /**
+     * Get a snapshot of each lane's queue depth and dispatch statistics since startup.
+     * @return Stats for the global lane at index 0, then each per-game lane if any
+     * @since 2.0.00
+     */
+    public LaneStats[] getLaneStats()
+    {
+        final int n = 1 + ((gameLanes != null) ? gameLanes.length : 0);
+        LaneStats[] ret = new LaneStats[n];
+        ret[0] = treater.getStats();
+        for (int i = 1; i < n; ++i)
+            ret[i] = gameLanes[i - 1].getStats();
+
+        return ret;
     }
 
     /**
      * {@link InboundMessageQueue}'s internal single-threaded reader to de-queue each message
-     * stored in the {@link #inQueue} and send it to the server dispatcher.
+     * stored in its lane's queue and send it to the server dispatcher.
+     * Waits in {@link LinkedBlockingQueue#take()} while the queue is empty, then drains
+     * up to {@link InboundMessageQueue#DRAIN_BATCH_SIZE} items per wakeup.
      *<P>
      * This thread can be stopped by calling {@link #stopTreater()}.
      *<P>
@@ -204,61 +419,262 @@ public class InboundMessageQueue
          */
         private volatile boolean processMessage;
 
-        public Treater()  // Server parameter is also passed in, since this is an inner class
+        /**
+         * This lane's queue of messages and/or code to be ran in this Treater thread.
+         * Before v2.0.00 this was {@code InboundMessageQueue.inQueue}, a synchronized {@code Vector}.
+         */
+        private final LinkedBlockingQueue<MessageData> inQueue = new LinkedBlockingQueue<MessageData>();
+
+        /**
+         * Stats for {@link #getStats()}: Number of items dispatched, total and max queue wait and
+         * dispatch times in nanoseconds. Updated only by this thread.
+         * @since 2.0.00
+         */
+        private volatile long statCount, statWaitTotal, statWaitMax, statDispTotal, statDispMax;
+
+        /**
+         * @param threadName  Name of this thread, for debugging
+         */
+        public Treater(final String threadName)
         {
-            setName("treater");  // Thread name for debug
-            processMessage = true;
+            setName(threadName);  // Thread name for debug
         }
 
+        /**
+         * Stop this thread after it finishes dispatching the current message, if any.
+         * Items still in its queue won't be dispatched.
+         */
         public void stopTreater()
         {
             processMessage = false;
+            inQueue.offer(STOP_MARKER);  // wake if waiting in take()
+        }
+
+        @Override
+        public synchronized void start()
+        {
+            processMessage = true;
+            super.start();
+        }
+
+        /**
+         * Add an item to the end of this lane's queue, and wake the thread if waiting.
+         * @param md  Message or code to add
+         * @since 2.0.00
+         */
+        void enqueue(final MessageData md)
+        {
+            inQueue.offer(md);  // unbounded queue: always succeeds
+        }
+
+        /**
+         * Retrieves and removes the head of this lane's queue, or returns null if empty.
+         * @since 2.0.00
+         */
+        MessageData poll()
+        {
+            final MessageData md = inQueue.poll();
+            return (md != STOP_MARKER) ? md : null;
+        }
+
+        /**
+         * Get a snapshot of this lane's stats.
+         * @since 2.0.00
+         */
+        LaneStats getStats()
+        {
+            return new LaneStats
+                (getName(), inQueue.size(), statCount, statWaitTotal, statWaitMax, statDispTotal, statDispMax);
         }
 
         public void run()
         {
+            final ArrayList<MessageData> batch = new ArrayList<MessageData>(DRAIN_BATCH_SIZE);
+
             while (processMessage)
             {
-                MessageData messageData = poll();
-
                 try
                 {
-                    if (messageData != null)
-                    {
-                        if (messageData.run != null)
-                            messageData.run.run();
-                        else
-                            dispatcher.dispatch(messageData.message, messageData.clientSender);
-                    }
+                    batch.add(inQueue.take());  // wait for at least one item
                 }
-                catch (Exception e)  // for anything thrown by bugs in server or game code called from dispatch
+                catch (InterruptedException e)
                 {
-                    System.out.println("Exception in treater (dispatch) - " + e.getMessage());
-                    e.printStackTrace();
+                    continue;  // check processMessage flag
                 }
+                inQueue.drainTo(batch, DRAIN_BATCH_SIZE - 1);
 
-                yield();
-
-                synchronized (inQueue)
+                final int n = batch.size();
+                for (int i = 0; (i < n) && processMessage; ++i)
                 {
-                    if (inQueue.size() == 0)
-                    {
-                        try
-                        {
-                            //D.ebugPrintln("treater waiting");
-                            inQueue.wait(1000);  // timeout to help avoid deadlock
-                        }
-                        catch (Exception ex)
-                        {
-                            ;   // catch InterruptedException from inQueue.notify() in treat(...)
-                        }
-                    }
+                    final MessageData messageData = batch.get(i);
+                    if (messageData != STOP_MARKER)
+                        treat(messageData);
                 }
+                batch.clear();
+            }
+        }
+
+        /**
+         * Run or dispatch one queued item, and update stats.
+         * Catches and prints any exception thrown by the dispatched code.
+         * Afterwards if the item was queued through its client's {@link ConnectionOrder},
+         * lets that client's next items go to their lanes.
+         * @param messageData  Message or code to dispatch; not null
+         * @since 2.0.00
+         */
+        private void treat(final MessageData messageData)
+        {
+            try
+            {
+                final long t0 = System.nanoTime();
+
+                if (messageData.run != null)
+                    messageData.run.run();
+                else
+                    dispatcher.dispatch(messageData.message, messageData.clientSender);
+
+                final long t1 = System.nanoTime(), wait = t0 - messageData.enqueuedAt, disp = t1 - t0;
+                ++statCount;
+                statWaitTotal += wait;
+                if (wait > statWaitMax)
+                    statWaitMax = wait;
+                statDispTotal += disp;
+                if (disp > statDispMax)
+                    statDispMax = disp;
+                if (metrics != null)
+                    metrics.recordDispatch(messageData.message, wait, disp);
+            }
+            catch (Exception e)  // for anything thrown by bugs in server or game code called from dispatch
+            {
+                System.out.println("Exception in treater (dispatch) - " + e.getMessage());
+                e.printStackTrace();
+            }
+            finally
+            {
+                if (messageData.lane != null)
+                    messageData.clientSender.inboundOrder.dispatched();
+            }
+        }
+    }
+
+
+    /**
+     * Keeps one client {@link Connection}'s inbound items in order when using per-game lanes.
+     * Each connection has one, as {@code Connection.inboundOrder}.
+     *<P>
+     * The client's items are all queued to the same lane until they've been dispatched.
+     * Meanwhile an item for a different lane waits here, along with any later items for the client,
+     * until the client has nothing left in the earlier lane. That way each client's messages are
+     * dispatched in order, even though messages for different lanes are dispatched concurrently.
+     *<P>
+     *<B>Threads:</B> Thread-safe; methods synchronize on this object.
+     * Items are queued into a lane while holding this lock, which doesn't block.
+     * @since 2.0.00
+     */
+    static final class ConnectionOrder
+    {
+        /** Lane of the client's queued or dispatching items, or null if {@link #pending} is 0 */
+        private Treater lane;
+
+        /** Number of the client's items queued or dispatching in {@link #lane} */
+        private int pending;
+
+        /** Items waiting for {@link #lane}'s items to be dispatched, in order, or null if none yet */
+        private LinkedList<MessageData> deferred;
+
+        /**
+         * Queue this client's item to a lane now, or after the client's items in another lane are dispatched.
+         * @param md  Item from this client; its {@link MessageData#lane} will be set to {@code toLane}
+         * @param toLane  Lane to dispatch {@code md}
+         */
+        synchronized void enqueue(final MessageData md, final Treater toLane)
+        {
+            md.lane = toLane;
+            if (((deferred == null) || deferred.isEmpty()) && ((pending == 0) || (toLane == lane)))
+            {
+                lane = toLane;
+                ++pending;
+                toLane.enqueue(md);
+            } else {
+                if (deferred == null)
+                    deferred = new LinkedList<MessageData>();
+                deferred.add(md);
+            }
+        }
+
+        /**
+         * One of this client's items has been dispatched from {@link #lane}.
+         * If that was the last one there, queue the waiting items for the next lane
+         * (up to the first waiting item for another lane after that).
+         */
+        synchronized void dispatched()
+        {
+            if (--pending > 0)
+                return;
+
+            lane = null;
+            while ((deferred != null) && ! deferred.isEmpty())
+            {
+                final MessageData md = deferred.getFirst();
+                if ((lane != null) && (md.lane != lane))
+                    break;
+
+                deferred.removeFirst();
+                lane = md.lane;
+                ++pending;
+                lane.enqueue(md);
             }
         }
     }
 
 
+    /**
+     * Snapshot of one dispatch lane's queue depth and statistics, from {@link InboundMessageQueue#getLaneStats()}.
+     * Times are in microseconds.
+     * @since 2.0.00
+     */
+    public static final class LaneStats
+    {
+        /** Lane's thread name, such as {@code "treater"} or {@code "treater-game-3"} */
+        public final String name;
+
+        /** Number of items currently waiting in the lane's queue */
+        public final int queueDepth;
+
+        /** Number of messages and posted Runnables dispatched since startup */
+        public final long dispatchCount;
+
+        /** Average and maximum time items waited in the queue before dispatch, in microseconds */
+        public final long avgWaitMicros, maxWaitMicros;
+
+        /** Average and maximum time taken to dispatch an item, in microseconds */
+        public final long avgDispatchMicros, maxDispatchMicros;
+
+        LaneStats(final String name, final int depth, final long count,
+            final long waitTotal, final long waitMax, final long dispTotal, final long dispMax)
+        {
+            this.name = name;
+            queueDepth = depth;
+            dispatchCount = count;
+            avgWaitMicros = (count > 0) ? (waitTotal / count / 1000) : 0;
+            maxWaitMicros = waitMax / 1000;
+            avgDispatchMicros = (count > 0) ? (dispTotal / count / 1000) : 0;
+            maxDispatchMicros = dispMax / 1000;
+        }
+
+        /**
+         * @return a human-readable summary of this lane's stats, such as
+         *     {@code "treater-game-3: depth 0, dispatched 1234, wait avg 50 max 900 us, dispatch avg 120 max 5000 us"}
+         */
+        public String toString()
+        {
+            return name + ": depth " + queueDepth + ", dispatched " + dispatchCount
+                + ", wait avg " + avgWaitMicros + " max " + maxWaitMicros
+                + " us, dispatch avg " + avgDispatchMicros + " max " + maxDispatchMicros + " us";
+        }
+    }
+
+
     /**
      * Nested class to store a message's contents and sender, and
      * Runnable tasks which must run in the {@link Treater} thread.
@@ -272,7 +688,7 @@ public class InboundMessageQueue
         /** Parsed message contents, via {@link SOCMessage#toMsg(String)} */
         public final SOCMessage message;
 
-        /** Client which sent this message */
+        /** Client which sent this message, or which {@link #run} is for; may be null for {@code run} */
         public final Connection clientSender;
 
         /**
@@ -281,18 +697,37 @@ public class InboundMessageQueue
          */
         public final Runnable run;
 
+        /**
+         * Time this item was queued, from {@link System#nanoTime()}, for lane stats
+         * @since 2.0.00
+         */
+        public final long enqueuedAt;
+
+        /**
+         * If queued through the client's {@link ConnectionOrder}, the lane dispatching this item; otherwise null.
+         * Set before queueing into that lane.
+         * @since 2.0.00
+         */
+        Treater lane;
+
         public MessageData(final SOCMessage message, final Connection clientSender)
         {
             this.message = message;
             this.clientSender = clientSender;
             this.run = null;
+            enqueuedAt = System.nanoTime();
         }
 
-        public MessageData(final Runnable run)
+        /**
+         * @param run  Code to run on a Treater thread
+         * @param c  Client connection that {@code run} is for, or null
+         */
+        public MessageData(final Runnable run, final Connection c)
         {
             this.run = run;
             this.message = null;
-            this.clientSender = null;
+            this.clientSender = c;
+            enqueuedAt = System.nanoTime();
         }
 
     }
@@ -23,13 +23,16 @@
 package soc.server.genericServer;
 
 import soc.disableDebug.D;
+import soc.message.SOCBinaryCodec;
 import soc.message.SOCMessage;
 
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.net.Socket;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Vector;
 
@@ -70,8 +73,33 @@ public final class NetConnection
     /** @see #disconnectSoft() */
     protected boolean inputConnected = false;
 
-    /** Messages from server to client, sent in {@link Putter} thread */
-    private Vector<String> outQueue = new Vector<String>();
+    /**
+     * Messages from server to client, sent in {@link Putter} thread.
+     * Each element is from {@link #put(EncodedMessage)}, or wraps the text from {@link #put(String)}.
+     */
+    private Vector<EncodedMessage> outQueue = new Vector<EncodedMessage>();
+
+    /**
+     * Total frame size in bytes of the messages in {@link #outQueue}, for {@link OutputQueueLimits}.
+     * Synchronized on {@code outQueue}.
+     * @since 2.0.00
+     */
+    private long outQueueBytes;
+
+    /**
+     * If &gt; 0, {@link #out} is buffered and {@link Putter} sends up to this many messages per flush.
+     * From server property {@link Server#PROP_JSETTLERS_SERVER_OUTPUT_BATCH}, read in {@link #connect()}.
+     * @since 2.0.00
+     */
+    private int outBatchMax;
+
+    /**
+     * If {@link #outBatchMax} &gt; 0, how long {@link Putter} waits for more messages
+     * before flushing a partial batch, in milliseconds.
+     * From server property {@link Server#PROP_JSETTLERS_SERVER_OUTPUT_LINGER}.
+     * @since 2.0.00
+     */
+    private int outLingerMS;
 
     /** initialize the connection data */
     NetConnection(Socket so, Server sve)
@@ -123,7 +151,14 @@ public final class NetConnection
         {
             s.setSoTimeout(TIMEOUT_VALUE);
             in = new DataInputStream(s.getInputStream());
-            out = new DataOutputStream(s.getOutputStream());
+            outBatchMax = ourServer.getConfigIntProperty(Server.PROP_JSETTLERS_SERVER_OUTPUT_BATCH, 0);
+            if (outBatchMax > 0)
+            {
+                outLingerMS = ourServer.getConfigIntProperty(Server.PROP_JSETTLERS_SERVER_OUTPUT_LINGER, 0);
+                out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 8192));
+            } else {
+                out = new DataOutputStream(s.getOutputStream());
+            }
             connected = true;
             inputConnected = true;
             connectTime = new Date();
@@ -180,11 +215,15 @@ public final class NetConnection
         try
         {
             final InboundMessageQueue inQueue = ourServer.inQueue;
+            final ServerMetrics metrics = ourServer.metrics;
+            final int[] frameSize = new int[1];  // bytes on the wire, for metrics
 
             if (inputConnected)
             {
-                String firstMsg = in.readUTF();
+                String firstMsg = SOCBinaryCodec.readFrame(in, frameSize);
                 final SOCMessage msgObj = SOCMessage.toMsg(firstMsg);  // parse
+                if (msgObj != null)
+                    metrics.recordInbound(msgObj, frameSize[0]);
                 if (! ourServer.processFirstCommand(msgObj, this))
                 {
                     if (msgObj != null)
@@ -194,11 +233,14 @@ public final class NetConnection
 
             while (inputConnected)
             {
-                // readUTF max message size is 65535 chars, modified utf-8 format
-                final String msgStr = in.readUTF();  // blocks until next message is available
+                // max frame size is 65535 bytes: modified utf-8 text, or binary from SOCBinaryCodec
+                final String msgStr = SOCBinaryCodec.readFrame(in, frameSize);  // blocks until next message is available
                 final SOCMessage msgObj = SOCMessage.toMsg(msgStr);
                 if (msgObj != null)
+                {
+                    metrics.recordInbound(msgObj, frameSize[0]);
                     inQueue.push(msgObj, this);
+                }
             }
         }
         catch (Exception e)
@@ -234,11 +276,121 @@ public final class NetConnection
      */
     public final void put(String str)
     {
+        // D.ebugPrintln("Adding " + str + " to outQueue for " + data);
+        enqueue(new EncodedMessage(str));  // so its frame is encoded once, for queue size and for sending
+    }
+
+    /**
+     * Send this pre-encoded message over the connection. Adds it to the {@link #outQueue}
+     * to be sent by the Putter thread, which writes its shared frame bytes
+     * instead of encoding the text again for this connection.
+     *<P>
+     * <B>Threads:</B> Safe to call from any thread; synchronizes on internal {@code outQueue}.
+     *
+     * @param msg Message to send
+     * @since 2.0.00
+     */
+    @Override
+    public final void put(final EncodedMessage msg)
+    {
+        enqueue(msg);
+    }
+
+    /**
+     * Add an item to {@link #outQueue} and wake the Putter thread,
+     * unless {@link #isOutputParked()}. Checks the queue against the server's {@link OutputQueueLimits}.
+     * @param item  Message to queue
+     * @since 2.0.00
+     */
+    private void enqueue(final EncodedMessage item)
+    {
+        final int size = sizeOf(item);  // encodes the frame, outside of the lock
+
         synchronized (outQueue)
         {
-            // D.ebugPrintln("Adding " + str + " to outQueue for " + data);
-            outQueue.addElement(str);
+            if (outputParked)
+                return;
+
+            outQueue.addElement(item);
+            outQueueBytes += size;
             outQueue.notify();
+            if (checkOutputQueue(outQueue.size(), outQueueBytes))
+                outputOverflow();
+        }
+    }
+
+    /**
+     * Get a queued item's size for {@link #outQueueBytes}: Its frame size in bytes on the wire,
+     * the same as {@link NioConnection} counts, from {@link EncodedMessage#getFrame(boolean)}
+     * which caches the frame for the {@link Putter} to write.
+     * @param item  Message queued or to be queued
+     * @return  Frame size, including its 2-byte length
+     * @since 2.0.00
+     */
+    private int sizeOf(final EncodedMessage item)
+    {
+        try
+        {
+            return item.getFrame(binaryProtocol).length;
+        }
+        catch (IOException e)
+        {
+            // Too long to encode; Putter will get the same exception when sending it
+            return 2 + SOCBinaryCodec.modifiedUTF8Length(item.getText());
+        }
+    }
+
+    /**
+     * {@link #outQueue} is over the server's {@link OutputQueueLimits}: Coalesce, park, or drop this connection
+     * according to the limits' policy. Caller must synchronize on {@code outQueue}.
+     * @since 2.0.00
+     */
+    private void outputOverflow()
+    {
+        final OutputQueueLimits lim = ourServer.outputLimits;
+        final int depth = outQueue.size();
+        final long bytes = outQueueBytes;
+
+        if (lim.policy == OutputQueueLimits.POLICY_COALESCE)
+        {
+            final SOCMessage[] msgs = new SOCMessage[depth];
+            for (int i = 0; i < depth; ++i)
+            {
+                final EncodedMessage em = outQueue.elementAt(i);
+                msgs[i] = (em.getMessage() != null) ? em.getMessage() : SOCMessage.toMsg(em.getText());
+            }
+
+            final boolean[] superseded = OutputQueueLimits.findSuperseded(msgs);
+            for (int i = depth - 1; i >= 0; --i)
+                if (superseded[i])
+                    outQueueBytes -= sizeOf(outQueue.remove(i));
+
+            if (lim.isCoalescedEnough(outQueue.size(), outQueueBytes))
+            {
+                logOutputOverflow("coalesced to " + outQueue.size() + " messages", depth, bytes);
+                return;
+            }
+            // else, drop below
+        }
+
+        outQueue.clear();
+        outQueueBytes = 0;
+        outputParked = true;
+
+        if (lim.policy == OutputQueueLimits.POLICY_PARK)
+        {
+            logOutputOverflow("parking until client reconnects", depth, bytes);
+        } else {
+            logOutputOverflow("dropping connection", depth, bytes);
+            error = new IOException("Output queue overflow");
+            ourServer.inQueue.post(new Runnable()
+            {
+                public void run()
+                {
+                    if (connected)
+                        ourServer.removeConnection(NetConnection.this, false);
+                }
+            });
         }
     }
 
@@ -252,7 +404,7 @@ public final class NetConnection
      * @return True if sent, false if error
      *         (and sets {@link #error})
      */
-    private boolean putForReal(final String str)
+    private boolean putForReal(final EncodedMessage str)
     {
         boolean rv = putAux(str);
 
@@ -276,10 +428,11 @@ public final class NetConnection
     }
 
     /** put a message on the net
+     * @param em  Message whose frame bytes are written as-is
      * @return true for success, false and disconnects on failure
      *         (and sets {@link #error})
      */
-    private final boolean putAux(final String str)
+    private final boolean putAux(final EncodedMessage em)
     {
         if ((error != null) || ! connected)
         {
@@ -288,9 +441,15 @@ public final class NetConnection
 
         try
         {
-            //D.ebugPrintln("trying to put "+str+" to "+data);
-            out.writeUTF(str);
+            //D.ebugPrintln("trying to put "+em+" to "+data);
+            final byte[] frame = em.getFrame(binaryProtocol);
                 // throws UTFDataFormatException (an IOException) if string length > 65535 in UTF-8
+            out.write(frame);
+            final SOCMessage mes = em.getMessage();
+            if (mes != null)
+                ourServer.metrics.recordOutbound(mes, frame.length);
+            else
+                ourServer.metrics.recordOutbound(ServerMetrics.typeOf(em.getText()), frame.length);
         }
         catch (IOException e)
         {
@@ -381,6 +540,17 @@ public final class NetConnection
             catch (IOException e) {}
     }
 
+    /**
+     * {@inheritDoc}
+     * @return  Number of messages in {@link #outQueue}
+     * @since 2.0.00
+     */
+    @Override
+    public int getOutboundQueueDepth()
+    {
+        return outQueue.size();
+    }
+
     /**
      * Are we currently connected and active?
      */
@@ -406,7 +576,10 @@ public final class NetConnection
         return sb.toString();
     }
 
-    /** Connection inner class thread to send {@link NetConnection#outQueue} messages to the net. */
+    /**
+     * Connection inner class thread to send {@link NetConnection#outQueue} messages to the net.
+     * If {@link NetConnection#outBatchMax} is set, sends them in batches: See {@link #runBatched()}.
+     */
     class Putter extends Thread
     {
         //public boolean putting = true;
@@ -424,9 +597,15 @@ public final class NetConnection
 
         public void run()
         {
+            if (outBatchMax > 0)
+            {
+                runBatched();
+                return;
+            }
+
             while (connected)
             {
-                String c = null;
+                EncodedMessage c = null;
 
                 if (D.ebugIsEnabled())
                     D.ebugPrintln("** " + data + " is at the top of the putter loop");
@@ -437,6 +616,7 @@ public final class NetConnection
                     {
                         c = outQueue.elementAt(0);
                         outQueue.removeElementAt(0);
+                        outQueueBytes -= sizeOf(c);
                     }
                 }
 
@@ -466,5 +646,96 @@ public final class NetConnection
 
             D.ebugPrintln("putter not putting connected==false : " + data);
         }
+
+        /**
+         * Putter loop for buffered output: Take everything pending in {@link NetConnection#outQueue},
+         * up to {@link NetConnection#outBatchMax} messages, write them all into the buffered
+         * output stream, then flush once. If the batch isn't full, first wait up to
+         * {@link NetConnection#outLingerMS} for more messages to arrive.
+         * @since 2.0.00
+         */
+        private void runBatched()
+        {
+            final ArrayList<EncodedMessage> batch = new ArrayList<EncodedMessage>();
+
+            while (connected)
+            {
+                synchronized (outQueue)
+                {
+                    if (outQueue.isEmpty())
+                    {
+                        try
+                        {
+                            outQueue.wait(1000);  // timeout to help avoid deadlock
+                        }
+                        catch (InterruptedException ex) {}
+                    }
+                    takeFromQueue(batch);
+
+                    if ((outLingerMS > 0) && ! batch.isEmpty() && (batch.size() < outBatchMax))
+                    {
+                        if (outQueue.isEmpty())
+                            try
+                            {
+                                outQueue.wait(outLingerMS);
+                            }
+                            catch (InterruptedException ex) {}
+                        takeFromQueue(batch);
+                    }
+                }
+
+                final int n = batch.size();
+                if (n == 0)
+                    continue;
+
+                boolean ok = true;
+                for (int i = 0; ok && (i < n); ++i)
+                    ok = putAux(batch.get(i));
+                batch.clear();
+
+                final DataOutputStream o = out;  // null if disconnect() was called meanwhile
+                if (ok && (o != null))
+                {
+                    try
+                    {
+                        o.flush();
+                        ourServer.recordOutputFlush(n);
+                    }
+                    catch (IOException e)
+                    {
+                        D.ebugPrintln("IOException in NetConnection.Putter flush (" + hst + ") - " + e);
+                        error = e;
+                        ok = false;
+                    }
+                }
+
+                if ((! ok) && connected)
+                    ourServer.removeConnection(NetConnection.this, false);
+            }
+
+            D.ebugPrintln("putter not putting connected==false : " + data);
+        }
+
+        /**
+         * Move pending messages from {@link NetConnection#outQueue} to {@code batch},
+         * until it has {@link NetConnection#outBatchMax} or the queue is empty.
+         * Caller must synchronize on {@code outQueue}.
+         * @param batch  Batch to add to
+         * @since 2.0.00
+         */
+        private void takeFromQueue(final ArrayList<EncodedMessage> batch)
+        {
+            int n = Math.min(outQueue.size(), outBatchMax - batch.size());
+            if (n <= 0)
+                return;
+
+            for (int i = 0; i < n; ++i)
+            {
+                final EncodedMessage item = outQueue.elementAt(i);
+                batch.add(item);
+                outQueueBytes -= sizeOf(item);
+            }
+            outQueue.subList(0, n).clear();
+        }
     }
 }
@@ -0,0 +1,601 @@
+/**
+ * JSettlers network message system.
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server.genericServer;
+
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import soc.disableDebug.D;
+import soc.message.SOCBinaryCodec;
+import soc.message.SOCMessage;
+
+/**
+ * A TCP client's non-blocking connection at a server, for {@link NioServerSocket}.
+ * Has no threads of its own: All reads and writes are done by the
+ * {@link NioServerSocket.SelectorLoop} thread which it's assigned to,
+ * which is shared with many other connections.
+ *<P>
+ * Wire-compatible with {@link NetConnection}: Each message is a 2-byte unsigned length
+ * followed by the message's "modified UTF-8" bytes, as from {@link DataOutputStream#writeUTF(String)}.
+ * Incoming frames may also be binary, from {@link SOCBinaryCodec}; outgoing frames are binary
+ * if {@link #setBinaryProtocol(boolean)} was called.
+ *<P>
+ * As used within JSettlers, the structure of this class has much in common
+ * with {@link NetConnection} and {@link StringConnection}, as they all subclass {@link Connection}.
+ * If you add something to one class you should probably add it to the others,
+ * or to the superclass instead.
+ *
+ * @since 2.0.00
+ */
+public final class NioConnection
+    extends Connection
+{
+    /**
+     * Idle timeout, same as {@link NetConnection}'s socket read timeout: approx. 1 hour.
+     * Checked by {@link NioServerSocket.SelectorLoop}.
+     */
+    protected final static int TIMEOUT_VALUE = 3600000;
+
+    /** Initial size of {@link #readBuf}; grows as needed up to {@link #READ_BUF_MAX} */
+    private static final int READ_BUF_INITIAL = 4096;
+
+    /** Largest possible frame: 2-byte length + {@link Connection#MAX_MESSAGE_SIZE_UTF8} */
+    private static final int READ_BUF_MAX = 2 + MAX_MESSAGE_SIZE_UTF8;
+
+    /** Maximum number of queued buffers to send in one gathering write */
+    private static final int WRITE_GATHER_MAX = 64;
+
+    /** Our socket; accessed from other threads only to close it */
+    final SocketChannel channel;
+
+    /** Selector thread which does our reads and writes */
+    private final NioServerSocket.SelectorLoop loop;
+
+    /** Our key in {@link #loop}'s selector, or null if not yet registered. Set by the selector thread. */
+    SelectionKey key;
+
+    /** Hostname of the remote end of the connection, for {@link #host()} */
+    protected String hst;
+
+    /** Remote port number, for {@link #getName()} */
+    private final int remotePort;
+
+    protected volatile boolean connected = false;
+    /** @see #disconnectSoft() */
+    protected volatile boolean inputConnected = false;
+
+    /**
+     * True once {@link #run()} has added us to the server and we were accepted by it.
+     * A rejected connection's EOF doesn't call {@link Server#removeConnection(Connection, boolean)}.
+     */
+    private boolean serverMember;
+
+    /** Has the first message been read and passed to {@link Server#processFirstCommand(SOCMessage, Connection)}? */
+    private boolean sawFirstMessage;
+
+    /**
+     * Inbound bytes not yet decoded into complete messages; in "write" mode between reads.
+     * Accessed only by the selector thread.
+     */
+    private ByteBuffer readBuf = ByteBuffer.allocate(READ_BUF_INITIAL);
+
+    /** Time of most recent read, from {@link System#currentTimeMillis()}, for idle timeouts */
+    volatile long lastReadTime;
+
+    /** Encoded messages from server to client, written by the selector thread; synchronized on itself */
+    private final LinkedList<ByteBuffer> outQueue = new LinkedList<ByteBuffer>();
+
+    /**
+     * Total size of the frames in {@link #outQueue}, for {@link OutputQueueLimits}.
+     * Synchronized on {@code outQueue}.
+     * @since 2.0.00
+     */
+    private long outQueueBytes;
+
+    /** initialize the connection data */
+    NioConnection(final SocketChannel sc, final Server sve, final NioServerSocket.SelectorLoop loop)
+    {
+        channel = sc;
+        ourServer = sve;
+        this.loop = loop;
+        hst = sc.socket().getInetAddress().getHostName();
+        remotePort = sc.socket().getPort();
+        lastReadTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Get our connection name for debugging.  Also used by {@link #toString()}.
+     * @return "connection-" + <em>remotehostname-portnumber</em>
+     */
+    public String getName()
+    {
+        return "connection-" + hst + "-" + Integer.toString(remotePort);
+    }
+
+    /**
+     * @return Hostname of the remote end of the connection
+     */
+    public String host()
+    {
+        return hst;
+    }
+
+    /**
+     * Set up to read from the net; called only by the server.
+     * If successful, also sets connectTime to now.
+     * Reading actually begins when {@link #run()} registers with the selector thread.
+     *<P>
+     * Connection must be unnamed (<tt>{@link #getData()} == null</tt>) at this point.
+     *
+     * @return true if successful, false if an error occurred.
+     */
+    public boolean connect()
+    {
+        if (getData() != null)
+        {
+            D.ebugPrintln("conn.connect() requires null getData()");
+            return false;
+        }
+
+        connected = true;
+        inputConnected = true;
+        connectTime = new Date();
+
+        return true;
+    }
+
+    /**
+     * Is input available now, without blocking?
+     * True if any bytes have been received but not yet treated.
+     */
+    public boolean isInputAvailable()
+    {
+        return inputConnected && (readBuf.position() > 0);
+    }
+
+    /**
+     * Add this new connection to the server, then register it with its selector thread
+     * to begin reading. Unlike {@link NetConnection#run()}, returns right away instead of looping:
+     * Call it from the server's accept thread, there's no need to start a new thread for it.
+     */
+    public void run()
+    {
+        ourServer.addConnection(this);
+            // won't throw IllegalArgumentException, because conn is unnamed at this point; getData() is null
+
+        if (! connected)
+            return;  // <--- Early return: connect() failed ---
+
+        serverMember = inputConnected;  // false if rejected by server
+        loop.register(this);  // also starts writing any output which was sent during addConnection
+    }
+
+    /**
+     * Send this data over the connection.  Encodes it and adds it to the {@link #outQueue}
+     * to be written by our selector thread.
+     *<P>
+     * Because the connection protocol uses {@link DataOutputStream#writeUTF(String)},
+     * {@code str} must be no longer than 65535 bytes when encoded into {@code UTF-8}
+     * (which is not Java's internal string encoding): See {@link Connection#MAX_MESSAGE_SIZE_UTF8}.
+     *<P>
+     * <B>Threads:</B> Safe to call from any thread; synchronizes on internal {@code outQueue}.
+     *
+     * @param str Data to send
+     */
+    public final void put(final String str)
+    {
+        final byte[] frame;
+        try
+        {
+            if (binaryProtocol)
+            {
+                final byte[] bf = SOCBinaryCodec.encodeBinaryFrame(str);
+                frame = (bf != null) ? bf : EncodedMessage.encodeFrame(str);
+            } else {
+                frame = EncodedMessage.encodeFrame(str);
+            }
+        }
+        catch (IOException e)
+        {
+            putFailed(e);
+            return;
+        }
+
+        putFrame(frame);
+        ourServer.metrics.recordOutbound(ServerMetrics.typeOf(str), frame.length);
+    }
+
+    /**
+     * Send this pre-encoded message over the connection. Adds its shared frame bytes to the {@link #outQueue}
+     * without encoding or copying them again.
+     *<P>
+     * <B>Threads:</B> Safe to call from any thread; synchronizes on internal {@code outQueue}.
+     *
+     * @param msg Message to send
+     * @since 2.0.00
+     */
+    @Override
+    public final void put(final EncodedMessage msg)
+    {
+        final byte[] frame;
+        try
+        {
+            frame = msg.getFrame(binaryProtocol);
+        }
+        catch (IOException e)
+        {
+            putFailed(e);
+            return;
+        }
+
+        putFrame(frame);
+        final SOCMessage mes = msg.getMessage();
+        if (mes != null)
+            ourServer.metrics.recordOutbound(mes, frame.length);
+        else
+            ourServer.metrics.recordOutbound(ServerMetrics.typeOf(msg.getText()), frame.length);
+    }
+
+    /**
+     * Add an encoded frame to {@link #outQueue}, and ask our selector thread to write it.
+     * @param frame  Encoded frame bytes; not copied, will not be modified
+     */
+    private void putFrame(final byte[] frame)
+    {
+        final boolean wasEmpty;
+        boolean dropping = false;
+        synchronized (outQueue)
+        {
+            if ((! connected) || outputParked)
+                return;
+            wasEmpty = outQueue.isEmpty();
+            outQueue.addLast(ByteBuffer.wrap(frame));  // new buffer position for each connection, shared bytes
+            outQueueBytes += frame.length;
+            if (checkOutputQueue(outQueue.size(), outQueueBytes))
+                dropping = outputOverflow();
+        }
+
+        if (dropping)
+            putFailed(new IOException("Output queue overflow"));
+        else if (wasEmpty)
+            loop.wantWrite(this);
+    }
+
+    /**
+     * {@link #outQueue} is over the server's {@link OutputQueueLimits}: Coalesce or park according to
+     * the limits' policy, or discard the queue so this connection can be dropped.
+     * Caller must synchronize on {@code outQueue}.
+     * @return  True if caller should drop this connection
+     * @since 2.0.00
+     */
+    private boolean outputOverflow()
+    {
+        final OutputQueueLimits lim = ourServer.outputLimits;
+        final int depth = outQueue.size();
+        final long bytes = outQueueBytes;
+
+        if (lim.policy == OutputQueueLimits.POLICY_COALESCE)
+        {
+            // Decode queued frames back to messages; skip the first, which may be partially written
+            final ByteBuffer[] bufs = outQueue.toArray(new ByteBuffer[depth]);
+            final SOCMessage[] msgs = new SOCMessage[depth];
+            for (int i = 1; i < depth; ++i)
+            {
+                final byte[] arr = bufs[i].array();
+                try
+                {
+                    msgs[i] = SOCMessage.toMsg(SOCBinaryCodec.decodePayload(arr, 2, arr.length - 2));
+                }
+                catch (IOException e) {}
+            }
+
+            final boolean[] superseded = OutputQueueLimits.findSuperseded(msgs);
+            outQueue.clear();
+            outQueueBytes = 0;
+            for (int i = 0; i < depth; ++i)
+                if (! superseded[i])
+                {
+                    outQueue.addLast(bufs[i]);
+                    outQueueBytes += bufs[i].capacity();
+                }
+
+            if (lim.isCoalescedEnough(outQueue.size(), outQueueBytes))
+            {
+                logOutputOverflow("coalesced to " + outQueue.size() + " messages", depth, bytes);
+                return false;
+            }
+            // else, drop below
+        }
+
+        outputParked = true;
+        if (lim.policy == OutputQueueLimits.POLICY_PARK)
+        {
+            // keep the first frame, which may be partially written, to not corrupt the stream
+            final ByteBuffer first = outQueue.getFirst();
+            outQueue.clear();
+            outQueue.addLast(first);
+            outQueueBytes = first.capacity();
+            logOutputOverflow("parking until client reconnects", depth, bytes);
+            return false;
+        }
+
+        outQueue.clear();
+        outQueueBytes = 0;
+        logOutputOverflow("dropping connection", depth, bytes);
+        return true;
+    }
+
+    /**
+     * A message couldn't be encoded to send: Set {@link #error} so our selector thread will remove this connection.
+     * @param e  Exception from encoding; {@link java.io.UTFDataFormatException} if longer than 65535 bytes
+     */
+    private void putFailed(final IOException e)
+    {
+        D.ebugPrintln("IOException in NioConnection.put (" + hst + ") - " + e);
+        error = e;
+        loop.wantWrite(this);  // selector thread will see error and remove this connection
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return  Number of frames in {@link #outQueue}
+     * @since 2.0.00
+     */
+    @Override
+    public int getOutboundQueueDepth()
+    {
+        synchronized (outQueue)
+        {
+            return outQueue.size();
+        }
+    }
+
+    /** Does {@link #outQueue} have any data waiting to be written? */
+    boolean hasOutput()
+    {
+        synchronized (outQueue)
+        {
+            return ! outQueue.isEmpty();
+        }
+    }
+
+    /**
+     * Called from selector thread when our channel has data to read:
+     * Reads it, then decodes and treats any complete messages.
+     * Messages are put into the server's {@link InboundMessageQueue}, except that
+     * the first message is instead given to {@link Server#processFirstCommand(SOCMessage, Connection)}.
+     */
+    void readReady()
+    {
+        if (! connected)
+            return;
+
+        final int n;
+        try
+        {
+            n = channel.read(readBuf);
+        }
+        catch (IOException e)
+        {
+            ioFailed(e);
+            return;
+        }
+
+        if (n < 0)
+        {
+            ioFailed(new EOFException());
+            return;
+        }
+
+        lastReadTime = System.currentTimeMillis();
+
+        readBuf.flip();
+        final byte[] arr = readBuf.array();
+        final InboundMessageQueue inQueue = ourServer.inQueue;
+        while (readBuf.remaining() >= 2)
+        {
+            final int pos = readBuf.position();
+            final int len = ((arr[pos] & 0xFF) << 8) | (arr[pos + 1] & 0xFF);
+            if (readBuf.remaining() < 2 + len)
+                break;
+
+            readBuf.position(pos + 2 + len);
+            if (! inputConnected)
+                continue;  // disconnectSoft: discard input
+
+            final String msgStr;
+            try
+            {
+                msgStr = SOCBinaryCodec.decodePayload(arr, pos + 2, len);  // text or binary frame
+            }
+            catch (IOException e)
+            {
+                // UTFDataFormatException: malformed input
+                ioFailed(e);
+                return;
+            }
+
+            final SOCMessage msgObj = SOCMessage.toMsg(msgStr);  // parse
+            if (msgObj != null)
+                ourServer.metrics.recordInbound(msgObj, 2 + len);
+            if (! sawFirstMessage)
+            {
+                sawFirstMessage = true;
+                if (ourServer.processFirstCommand(msgObj, this))
+                    continue;
+            }
+
+            if (msgObj != null)
+                inQueue.push(msgObj, this);
+        }
+        readBuf.compact();
+
+        if (! readBuf.hasRemaining())
+        {
+            // Full, but doesn't yet hold a complete message: Must grow
+            final int cap = readBuf.capacity();
+            if (cap < READ_BUF_MAX)
+            {
+                final ByteBuffer bigger = ByteBuffer.allocate(Math.min(cap * 2, READ_BUF_MAX));
+                readBuf.flip();
+                bigger.put(readBuf);
+                readBuf = bigger;
+            }
+        }
+    }
+
+    /**
+     * Called from selector thread when our channel can be written:
+     * Write as much of {@link #outQueue} as the socket will take.
+     * Once the queue is empty, stop asking for write-ready callbacks.
+     * @param k  Our selection key
+     */
+    void writeReady(final SelectionKey k)
+    {
+        if (error != null)
+        {
+            ioFailed(error);
+            return;
+        }
+
+        try
+        {
+            synchronized (outQueue)
+            {
+                while (! outQueue.isEmpty())
+                {
+                    final int n = Math.min(outQueue.size(), WRITE_GATHER_MAX);
+                    final ByteBuffer[] bufs = new ByteBuffer[n];
+                    final Iterator<ByteBuffer> it = outQueue.iterator();
+                    for (int i = 0; i < n; ++i)
+                        bufs[i] = it.next();
+
+                    channel.write(bufs);
+
+                    int nDone = 0;
+                    while ((nDone < n) && ! bufs[nDone].hasRemaining())
+                        ++nDone;
+                    for (int i = 0; i < nDone; ++i)
+                        outQueueBytes -= outQueue.removeFirst().capacity();
+
+                    if (nDone < n)
+                        return;  // socket buffer full; wait for next write-ready
+                }
+
+                k.interestOps(SelectionKey.OP_READ);
+            }
+        }
+        catch (IOException e)
+        {
+            ioFailed(e);
+        }
+    }
+
+    /**
+     * I/O problem or EOF reading or writing: Set {@link #error} and remove this connection from the server.
+     * Called from the selector thread.
+     * @param e  Exception to set in {@code error}
+     */
+    void ioFailed(final Exception e)
+    {
+        if (! connected)
+            return;  // Don't set error twice
+
+        D.ebugPrintln("Exception in NioConnection (" + hst + ") - " + e);
+        error = e;
+        if (serverMember)
+            ourServer.removeConnection(this, false);
+        else
+            disconnect();
+    }
+
+    /** close the socket, stop reading; called after conn is removed from server structures */
+    public void disconnect()
+    {
+        if (! connected)
+            return;  // <--- Early return: Already disconnected ---
+
+        D.ebugPrintln("DISCONNECTING " + data);
+        connected = false;
+        inputConnected = false;
+
+        synchronized (outQueue)
+        {
+            outQueue.clear();
+            outQueueBytes = 0;
+        }
+
+        try
+        {
+            channel.close();  // also cancels key
+        }
+        catch (IOException e)
+        {
+            D.ebugPrintln("IOException in NioConnection.disconnect (" + hst + ") - " + e);
+            error = e;
+        }
+    }
+
+    /**
+     * Accept no further input, allow output to drain, don't immediately close the socket.
+     * Once called, {@link #isConnected()} will return false, even if output is still being
+     * sent to the other side.
+     */
+    public void disconnectSoft()
+    {
+        if (! inputConnected)
+            return;
+
+        D.ebugPrintln("DISCONNECTING(SOFT) " + data);
+        inputConnected = false;
+    }
+
+    /**
+     * Are we currently connected and active?
+     */
+    public boolean isConnected()
+    {
+        return connected && inputConnected;
+    }
+
+    /**
+     * For debugging, toString includes data.toString and {@link #getName()}.
+     */
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer("Connection[");
+        if (data != null)
+            sb.append(data);
+        else
+            sb.append(super.hashCode());
+        sb.append('-');
+        sb.append(getName());  // connection-hostname-portnumber
+        sb.append(']');
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,309 @@
+/**
+ * JSettlers network message system.
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server.genericServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Vector;
+
+import soc.disableDebug.D;
+
+/**
+ * Uses {@link ServerSocketChannel} and {@link Selector} to implement {@link SOCServerSocket} over a network,
+ * multiplexing all client sockets onto a small fixed number of I/O threads instead of the two threads
+ * per client used by {@link NetServerSocket}'s {@link NetConnection}s.
+ *<P>
+ * The wire format is the same as {@link NetConnection}'s, so clients can't tell which one the server is using:
+ * Each message is sent as a 2-byte unsigned length followed by that many bytes of "modified UTF-8",
+ * as written by {@link java.io.DataOutputStream#writeUTF(String)}.
+ *<P>
+ * {@link #accept()} blocks like {@link java.net.ServerSocket#accept()}; each accepted {@link NioConnection}
+ * is assigned round-robin to one of the {@link SelectorLoop}s, which does all of its reads and writes.
+ * To use this class instead of {@link NetServerSocket}, set server property
+ * {@link Server#PROP_JSETTLERS_SERVER_NIO}.
+ *
+ * @since 2.0.00
+ */
+public class NioServerSocket implements SOCServerSocket
+{
+    /**
+     * Default number of {@link SelectorLoop} I/O threads (2) if not specified
+     * with {@link Server#PROP_JSETTLERS_SERVER_NIO_THREADS}.
+     */
+    public static final int SELECTOR_THREADS_DEFAULT = 2;
+
+    private final ServerSocketChannel implServChannel;
+    private final Server server;
+
+    /** Selector loops and their threads, started by the constructor. */
+    private final SelectorLoop[] loops;
+
+    /** Index into {@link #loops} for the next accepted connection. */
+    private int nextLoop;
+
+    /**
+     * Bind to a port and start the selector I/O threads.
+     * @param port  TCP port to listen on
+     * @param server  Server which will own our connections
+     * @param nThreads  Number of selector I/O threads to use; if &lt; 1, uses {@link #SELECTOR_THREADS_DEFAULT}
+     * @throws IOException if the port can't be bound, or a selector can't be opened
+     */
+    public NioServerSocket(final int port, final Server server, int nThreads)
+        throws IOException
+    {
+        if (nThreads < 1)
+            nThreads = SELECTOR_THREADS_DEFAULT;
+
+        this.server = server;
+        implServChannel = ServerSocketChannel.open();
+        implServChannel.socket().bind(new InetSocketAddress(port));
+            // remains in blocking mode, so accept() will block
+
+        loops = new SelectorLoop[nThreads];
+        for (int i = 0; i < nThreads; ++i)
+        {
+            loops[i] = new SelectorLoop("nio-selector-" + port + "-" + i);
+            loops[i].start();
+        }
+    }
+
+    /**
+     * Block waiting for the next inbound connection, then put it into non-blocking mode
+     * and assign it to a selector thread. The new connection's reads won't begin until
+     * after its {@link NioConnection#run()} has added it to the server.
+     */
+    public Connection accept()
+        throws SocketException, IOException
+    {
+        final SocketChannel sc = implServChannel.accept();
+        sc.configureBlocking(false);
+        sc.socket().setTcpNoDelay(true);
+
+        final SelectorLoop loop = loops[nextLoop];
+        nextLoop = (nextLoop + 1) % loops.length;
+
+        return new NioConnection(sc, server, loop);
+    }
+
+    /**
+     * Stop accepting new connections. The selector threads keep serving any current connections
+     * until those are all closed, then exit.
+     */
+    public void close()
+        throws IOException
+    {
+        implServChannel.close();
+        for (int i = 0; i < loops.length; ++i)
+            loops[i].shutdownWhenIdle();
+    }
+
+    /**
+     * A single I/O thread with its own {@link Selector}, reading and writing for any number of
+     * {@link NioConnection}s. Connections register with it through {@link #register(NioConnection)}
+     * and request write interest through {@link #wantWrite(NioConnection)}; both are thread-safe
+     * and queue the change to be made in the selector thread, since {@link SelectionKey#interestOps(int)}
+     * may block while the selector is in {@link Selector#select()}.
+     *<P>
+     * Also acts as the idle timeout for its connections, like {@link NetConnection}'s socket read timeout:
+     * About once a minute, any connection idle longer than {@link NioConnection#TIMEOUT_VALUE} is
+     * removed from the server with a {@link SocketTimeoutException}.
+     */
+    static class SelectorLoop extends Thread
+    {
+        /** How often to check for idle connections, in milliseconds */
+        private static final int IDLE_CHECK_MS = 60 * 1000;
+
+        private final Selector selector;
+
+        /** Connections waiting to be registered with {@link #selector}; synchronized on itself */
+        private final Vector<NioConnection> pendingRegister = new Vector<NioConnection>();
+
+        /** Connections wanting {@link SelectionKey#OP_WRITE} interest; synchronized on itself */
+        private final Vector<NioConnection> pendingWrite = new Vector<NioConnection>();
+
+        /** If true, exit the loop once no connections remain */
+        private volatile boolean shuttingDown;
+
+        SelectorLoop(final String threadName)
+            throws IOException
+        {
+            selector = Selector.open();
+            setName(threadName);
+            setDaemon(true);
+        }
+
+        /**
+         * Register this connection for reading; called once per connection.
+         * @param c  Connection to register
+         */
+        void register(final NioConnection c)
+        {
+            synchronized (pendingRegister)
+            {
+                pendingRegister.addElement(c);
+            }
+            selector.wakeup();
+        }
+
+        /**
+         * Ask to be called back when {@code c}'s channel can be written.
+         * @param c  Connection with output waiting in its queue
+         */
+        void wantWrite(final NioConnection c)
+        {
+            synchronized (pendingWrite)
+            {
+                pendingWrite.addElement(c);
+            }
+            if (Thread.currentThread() != this)
+                selector.wakeup();
+        }
+
+        /** Exit the loop once no connections remain. */
+        void shutdownWhenIdle()
+        {
+            shuttingDown = true;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run()
+        {
+            long nextIdleCheck = System.currentTimeMillis() + IDLE_CHECK_MS;
+
+            while (! (shuttingDown && selector.keys().isEmpty()))
+            {
+                try
+                {
+                    selector.select(IDLE_CHECK_MS);
+                }
+                catch (IOException e)
+                {
+                    D.ebugPrintln("IOException in selector " + getName() + " - " + e);
+                    continue;
+                }
+
+                processPending();
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext())
+                {
+                    final SelectionKey key = it.next();
+                    it.remove();
+                    final NioConnection c = (NioConnection) key.attachment();
+                    try
+                    {
+                        if (key.isReadable())
+                            c.readReady();
+                        if (key.isValid() && key.isWritable())
+                            c.writeReady(key);
+                    }
+                    catch (CancelledKeyException e) {}  // was closed meanwhile
+                    catch (Exception e)
+                    {
+                        // Unexpected; don't let one client take down the thread
+                        D.ebugPrintln("Exception in selector " + getName() + " for " + c + " - " + e);
+                        c.ioFailed(e);
+                    }
+                }
+
+                final long now = System.currentTimeMillis();
+                if (now >= nextIdleCheck)
+                {
+                    nextIdleCheck = now + IDLE_CHECK_MS;
+                    checkIdle(now);
+                }
+            }
+
+            try
+            {
+                selector.close();
+            }
+            catch (IOException e) {}
+        }
+
+        /** Make any registration and interest changes queued by other threads. */
+        private void processPending()
+        {
+            NioConnection[] reg = null, wr = null;
+            synchronized (pendingRegister)
+            {
+                if (! pendingRegister.isEmpty())
+                {
+                    reg = pendingRegister.toArray(new NioConnection[pendingRegister.size()]);
+                    pendingRegister.clear();
+                }
+            }
+            synchronized (pendingWrite)
+            {
+                if (! pendingWrite.isEmpty())
+                {
+                    wr = pendingWrite.toArray(new NioConnection[pendingWrite.size()]);
+                    pendingWrite.clear();
+                }
+            }
+
+            if (reg != null)
+                for (int i = 0; i < reg.length; ++i)
+                {
+                    final NioConnection c = reg[i];
+                    try
+                    {
+                        c.key = c.channel.register(selector, SelectionKey.OP_READ, c);
+                        if (c.hasOutput())
+                            c.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    }
+                    catch (ClosedChannelException e) {}  // already disconnected
+                }
+
+            if (wr != null)
+                for (int i = 0; i < wr.length; ++i)
+                {
+                    final SelectionKey key = wr[i].key;
+                    if ((key != null) && key.isValid())
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    // else, will be set when registered
+                }
+        }
+
+        /** Remove any connections idle longer than {@link NioConnection#TIMEOUT_VALUE}. */
+        private void checkIdle(final long now)
+        {
+            final long cutoff = now - NioConnection.TIMEOUT_VALUE;
+            for (SelectionKey key : selector.keys().toArray(new SelectionKey[0]))
+            {
+                final NioConnection c = (NioConnection) key.attachment();
+                if ((c != null) && (c.lastReadTime < cutoff))
+                    c.ioFailed(new SocketTimeoutException("Read timed out"));
+            }
+        }
+
+    }  // SelectorLoop
+
+}
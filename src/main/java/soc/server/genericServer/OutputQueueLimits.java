@@ -0,0 +1,249 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server.genericServer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+
+import soc.message.SOCMessage;
+import soc.message.SOCMessageForGame;
+import soc.message.SOCPlayerElement;
+import soc.message.SOCResourceCount;
+
+/**
+ * A server's limits on each network connection's outbound queue, and what to do when a slow client
+ * lets its queue grow past them. Without limits, a stalled client (bad Wi-Fi, a suspended laptop)
+ * makes the server hold every game broadcast for it in memory until TCP eventually times out.
+ *<P>
+ * Limits are set by {@link Server#PROP_JSETTLERS_SERVER_OUTPUT_MAX__MESSAGES} and
+ * {@link Server#PROP_JSETTLERS_SERVER_OUTPUT_MAX__BYTES}; the policy when a queue goes past them
+ * is {@link Server#PROP_JSETTLERS_SERVER_OUTPUT_OVERFLOW}:
+ *<UL>
+ * <LI> {@link #POLICY_DROP}: Discard the queue and disconnect the client
+ * <LI> {@link #POLICY_COALESCE}: Remove queued game updates which are superseded by a later queued update
+ *      of the same thing (see {@link #findSuperseded(SOCMessage[])}). If that doesn't shrink the queue
+ *      to {@link #COALESCE_TARGET_PCT} of the limits, drop the client.
+ * <LI> {@link #POLICY_PARK}: Discard the queue and stop sending to the client, but keep it in its games.
+ *      When it reconnects, the new connection can take over immediately and will be sent the full
+ *      state of each of its games, as when rejoining after a lost connection.
+ *</UL>
+ * Local {@link StringConnection}s don't have limits.
+ *<P>
+ * Each connection's queue high-water mark is logged when it reaches {@link #HIGH_WATER_LOG_MIN} messages,
+ * and again each time it doubles.
+ *
+ * @since 2.0.00
+ */
+public final class OutputQueueLimits
+{
+    /** Overflow policy: Disconnect the client. */
+    public static final int POLICY_DROP = 0;
+
+    /** Overflow policy: Remove superseded game updates from the queue, then drop if still too full. */
+    public static final int POLICY_COALESCE = 1;
+
+    /** Overflow policy: Stop sending to the client until it reconnects and is sent its games' full state. */
+    public static final int POLICY_PARK = 2;
+
+    /** Policy names for {@link Server#PROP_JSETTLERS_SERVER_OUTPUT_OVERFLOW}, indexed by policy number */
+    private static final String[] POLICY_NAMES = { "drop", "coalesce", "park" };
+
+    /**
+     * Coalescing must shrink an overflowing queue to this percentage of its limits,
+     * otherwise the client is dropped.
+     */
+    public static final int COALESCE_TARGET_PCT = 75;
+
+    /** Smallest outbound queue depth whose high-water mark is logged. */
+    public static final int HIGH_WATER_LOG_MIN = 256;
+
+    /** Maximum number of queued messages per connection, or 0 for no limit */
+    public final int maxMessages;
+
+    /** Maximum queued bytes per connection, or 0 for no limit */
+    public final long maxBytes;
+
+    /** Overflow policy: {@link #POLICY_DROP}, {@link #POLICY_COALESCE} or {@link #POLICY_PARK} */
+    public final int policy;
+
+    /**
+     * Create a set of limits.
+     * @param maxMessages  Maximum number of queued messages per connection, or 0 for no limit
+     * @param maxBytes  Maximum queued bytes per connection, or 0 for no limit
+     * @param policy  Overflow policy: {@link #POLICY_DROP}, {@link #POLICY_COALESCE} or {@link #POLICY_PARK}
+     * @throws IllegalArgumentException if a limit is negative, or policy isn't one of those
+     */
+    public OutputQueueLimits(final int maxMessages, final long maxBytes, final int policy)
+        throws IllegalArgumentException
+    {
+        if ((maxMessages < 0) || (maxBytes < 0))
+            throw new IllegalArgumentException("max");
+        if ((policy < POLICY_DROP) || (policy > POLICY_PARK))
+            throw new IllegalArgumentException("policy: " + policy);
+
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+    }
+
+    /**
+     * Parse an overflow policy name.
+     * @param name  Policy name: {@code "drop"}, {@code "coalesce"} or {@code "park"}; case-insensitive
+     * @return  Policy number, such as {@link #POLICY_DROP}
+     * @throws IllegalArgumentException if {@code name} isn't a known policy
+     */
+    public static int parsePolicy(final String name)
+        throws IllegalArgumentException
+    {
+        final String nlc = name.trim().toLowerCase(Locale.US);
+        for (int i = 0; i < POLICY_NAMES.length; ++i)
+            if (POLICY_NAMES[i].equals(nlc))
+                return i;
+
+        throw new IllegalArgumentException("Unknown policy: " + name);
+    }
+
+    /**
+     * Are these limits exceeded by a queue of this size?
+     * @param depth  Number of messages queued
+     * @param bytes  Total size of queued messages
+     * @return  True if over {@link #maxMessages} or {@link #maxBytes}
+     */
+    public boolean isExceeded(final int depth, final long bytes)
+    {
+        return ((maxMessages > 0) && (depth > maxMessages))
+            || ((maxBytes > 0) && (bytes > maxBytes));
+    }
+
+    /**
+     * After coalescing an overflowing queue, has it shrunk enough to keep the client connected?
+     * @param depth  Number of messages queued
+     * @param bytes  Total size of queued messages
+     * @return  True if within {@link #COALESCE_TARGET_PCT} of {@link #maxMessages} and {@link #maxBytes}
+     */
+    public boolean isCoalescedEnough(final int depth, final long bytes)
+    {
+        return ((maxMessages == 0) || (depth * 100L <= maxMessages * (long) COALESCE_TARGET_PCT))
+            && ((maxBytes == 0) || (bytes * 100 <= maxBytes * COALESCE_TARGET_PCT));
+    }
+
+    /**
+     * For coalescing, find the queued messages which are superseded by a later message in the queue:
+     *<UL>
+     * <LI> Messages which only set an absolute value, such as a player's resource count or the number of
+     *      dev cards left, where a later message sets the same value in the same game. Nothing else reads
+     *      those values while the client handles other messages, so removing the earlier message leaves
+     *      the client with the same end result.
+     * <LI> {@link SOCMessage#GAMESTATE} or {@link SOCMessage#SETTURN}, only when the next queued message
+     *      for the same game is another of the same type. The client uses the current game state and player
+     *      while handling other messages, such as {@link soc.message.SOCCancelBuildRequest} or
+     *      {@link soc.message.SOCDiceResult}, so an earlier one is kept if any message for its game comes between.
+     *</UL>
+     * Messages which add to or subtract from a value are never superseded.
+     * @param msgs  Queued messages, oldest first; elements may be null if unparsable
+     * @return  Flags for each element of {@code msgs}, true if it can be removed
+     */
+    public static boolean[] findSuperseded(final SOCMessage[] msgs)
+    {
+        final boolean[] ret = new boolean[msgs.length];
+        final HashSet<String> laterKeys = new HashSet<String>();
+        final HashMap<String, Integer> nextTypes = new HashMap<String, Integer>();
+            // for each game, type of the next message after the current one
+        for (int i = msgs.length - 1; i >= 0; --i)
+        {
+            final SOCMessage mes = msgs[i];
+            if (! (mes instanceof SOCMessageForGame))
+                continue;
+            final String gaName = ((SOCMessageForGame) mes).getGame();
+            if (gaName == null)
+                continue;
+
+            final int mtype = mes.getType();
+            final Integer mtypeObj = Integer.valueOf(mtype);
+            if ((mtype == SOCMessage.GAMESTATE) || (mtype == SOCMessage.SETTURN))
+            {
+                ret[i] = mtypeObj.equals(nextTypes.get(gaName));
+            } else {
+                final String key = supersedeKey(mes, gaName);
+                if ((key != null) && ! laterKeys.add(key))
+                    ret[i] = true;
+            }
+
+            nextTypes.put(gaName, mtypeObj);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Get a value-setting message's key for {@link #findSuperseded(SOCMessage[])}:
+     * Two messages with the same key set the same value, so the later one supersedes the earlier.
+     * @param mes  Message
+     * @param gaName  {@code mes}'s game name
+     * @return  Key, or null if {@code mes} can't be superseded that way
+     */
+    private static String supersedeKey(final SOCMessage mes, final String gaName)
+    {
+        final int pn;
+        switch (mes.getType())
+        {
+        case SOCMessage.DEVCARDCOUNT:
+        case SOCMessage.LONGESTROAD:
+        case SOCMessage.LARGESTARMY:
+            pn = -1;
+            break;
+
+        case SOCMessage.RESOURCECOUNT:
+            pn = ((SOCResourceCount) mes).getPlayerNumber();
+            break;
+
+        case SOCMessage.PLAYERELEMENT:
+            {
+                final SOCPlayerElement pe = (SOCPlayerElement) mes;
+                if (pe.getAction() != SOCPlayerElement.SET)
+                    return null;
+                pn = pe.getPlayerNumber() * 1000 + pe.getElementType();
+            }
+            break;
+
+        default:
+            return null;
+        }
+
+        return mes.getType() + ":" + pn + ":" + gaName;
+    }
+
+    /**
+     * Describe these limits for the server's startup output, such as "5000 messages, drop".
+     */
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        if (maxMessages > 0)
+            sb.append(maxMessages).append(" messages, ");
+        if (maxBytes > 0)
+            sb.append(maxBytes).append(" bytes, ");
+        sb.append(POLICY_NAMES[policy]);
+
+        return sb.toString();
+    }
+
+}
@@ -22,24 +22,32 @@
  **/
 package soc.server.genericServer;
 
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.io.Serializable;
+import java.lang.management.ManagementFactory;
 import java.net.SocketTimeoutException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Locale;
 import java.util.Properties;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.TreeMap;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
 
 import soc.debug.D; // JM
 import soc.message.SOCMessage;
 import soc.server.SOCServer;
+import soc.util.HashedWheelTimer;
 
 
 /** a general purpose server.
@@ -52,7 +60,8 @@ import soc.server.SOCServer;
  *  Newly connecting clients arrive in {@link #run()},
  *  start a thread for the server side of their {@link NetConnection} or {@link StringConnection},
  *  and are integrated into server data via {@link #addConnection(Connection)}
- *  called from that thread.  If the client's connection is accepted in
+ *  called from that thread. (If {@link #PROP_JSETTLERS_SERVER_NIO} is set, a {@link NioConnection}
+ *  is added from the accept thread instead, and shares a selector thread with many other clients.)  If the client's connection is accepted in
  *  {@link #newConnection1(Connection)}, the per-client thread enters a while-loop and
  *  will place each inbound message into a server-wide {@link #inQueue},
  *  which is processed in a server-wide single thread called the "treater".
@@ -85,8 +94,125 @@ import soc.server.SOCServer;
 public abstract class Server extends Thread implements Serializable, Cloneable
 {
 
+    /**
+     * Boolean property {@code jsettlers.server.nio} to use {@link NioServerSocket}'s
+     * selector-based I/O for TCP client connections, instead of {@link NetServerSocket}
+     * which uses 2 threads per client. Both use the same wire format.
+     * The default is N.
+     * @see #PROP_JSETTLERS_SERVER_NIO_THREADS
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_SERVER_NIO = "jsettlers.server.nio";
+
+    /**
+     * Integer property {@code jsettlers.server.nio.threads} for the number of selector I/O threads
+     * if {@link #PROP_JSETTLERS_SERVER_NIO} is set.
+     * The default is {@link NioServerSocket#SELECTOR_THREADS_DEFAULT}.
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_SERVER_NIO_THREADS = "jsettlers.server.nio.threads";
+
+    /**
+     * Integer property {@code jsettlers.server.dispatch.lanes} to dispatch inbound game messages
+     * on this many per-game threads ("lanes"), so that one game's slow message handling won't delay
+     * all other games. Messages for any one game are still handled in order on that game's lane;
+     * server-wide messages are handled on a single global lane. Each client's messages are
+     * also handled in the order received, even when some are for the global lane and some for a game's.
+     * The default is 0, to handle all inbound messages on a single thread.
+     * See {@link InboundMessageQueue#InboundMessageQueue(InboundMessageDispatcher, int)}.
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_SERVER_DISPATCH_LANES = "jsettlers.server.dispatch.lanes";
+
+    /**
+     * Integer property {@code jsettlers.server.output.batch} to buffer each {@link NetConnection}'s output:
+     * Its Putter thread writes up to this many queued messages into a buffer and then flushes them
+     * to the socket together, instead of sending each message on its own. Bursts of game messages,
+     * such as the resource updates after a dice roll, then need far fewer TCP segments and system calls.
+     * The default is 0, to send each message unbuffered as soon as it's dequeued.
+     * See also {@link #PROP_JSETTLERS_SERVER_OUTPUT_LINGER} and {@link #getOutputFlushCount()}.
+     * Not used by {@link NioConnection}, which already writes all its queued output at once.
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_SERVER_OUTPUT_BATCH = "jsettlers.server.output.batch";
+
+    /**
+     * Integer property {@code jsettlers.server.output.linger} for how long, in milliseconds, a
+     * {@link NetConnection} Putter using {@link #PROP_JSETTLERS_SERVER_OUTPUT_BATCH} will wait for
+     * more messages to arrive before flushing a batch that isn't full.
+     * The default is 0, to flush as soon as the output queue is empty.
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_SERVER_OUTPUT_LINGER = "jsettlers.server.output.linger";
+
+    /**
+     * Boolean property {@code jsettlers.server.stringport_objects}: If Y (default), local {@link StringConnection}s
+     * used by practice games and in-process robots pass message objects to each other instead of message text;
+     * see {@link StringConnection#PASS_MESSAGE_OBJECTS}. Set to N when debugging to send text, as over the network.
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_SERVER_STRINGPORT__OBJECTS = "jsettlers.server.stringport_objects";
+
+    /**
+     * Integer property {@code jsettlers.server.output.max_messages}: Maximum number of messages waiting to be sent
+     * in each network connection's outbound queue. If a slow client's queue goes past this,
+     * the server takes action per {@link #PROP_JSETTLERS_SERVER_OUTPUT_OVERFLOW}.
+     * The default is 0, for no limit. See {@link OutputQueueLimits}.
+     * @see #PROP_JSETTLERS_SERVER_OUTPUT_MAX__BYTES
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_SERVER_OUTPUT_MAX__MESSAGES = "jsettlers.server.output.max_messages";
+
+    /**
+     * Integer property {@code jsettlers.server.output.max_bytes}: Maximum total size of messages waiting to be sent
+     * in each network connection's outbound queue, like {@link #PROP_JSETTLERS_SERVER_OUTPUT_MAX__MESSAGES}.
+     * Counts each message's encoded frame size on the wire, including its 2-byte length.
+     * The default is 0, for no limit.
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_SERVER_OUTPUT_MAX__BYTES = "jsettlers.server.output.max_bytes";
+
+    /**
+     * String property {@code jsettlers.server.output.overflow}: What to do when a connection's outbound queue
+     * goes past {@link #PROP_JSETTLERS_SERVER_OUTPUT_MAX__MESSAGES} or {@link #PROP_JSETTLERS_SERVER_OUTPUT_MAX__BYTES}:
+     * {@code drop} the client (the default), {@code coalesce} superseded game updates in its queue,
+     * or {@code park} it until it reconnects. See {@link OutputQueueLimits} for details.
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_SERVER_OUTPUT_OVERFLOW = "jsettlers.server.output.overflow";
+
+    /**
+     * String property {@code jsettlers.server.metrics.file}: If set, every
+     * {@link #PROP_JSETTLERS_SERVER_METRICS_INTERVAL} seconds the server overwrites this file
+     * with a snapshot of its {@link #metrics} report.
+     * The default is not set, to not write a file.
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_SERVER_METRICS_FILE = "jsettlers.server.metrics.file";
+
+    /**
+     * Integer property {@code jsettlers.server.metrics.interval}: How often to write
+     * {@link #PROP_JSETTLERS_SERVER_METRICS_FILE}, in seconds. The default is 60.
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_SERVER_METRICS_INTERVAL = "jsettlers.server.metrics.interval";
+
+    /**
+     * Boolean property {@code jsettlers.server.metrics.jmx}: If Y (default), a TCP server registers its
+     * {@link #metrics} with the JVM's platform MBean server as a {@link ServerMetricsMBean}.
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_SERVER_METRICS_JMX = "jsettlers.server.metrics.jmx";
+
     SOCServerSocket ss;
 
+    /**
+     * For a TCP server, the local string port for in-process clients such as robots,
+     * or null if not started by {@link #startLocalStringPort()}.
+     * @since 2.0.00
+     */
+    private StringServerSocket localSS;
+
     /**
      * Any optional properties to configure and run the server. Never null, may be empty.
      *<P>
@@ -104,6 +230,40 @@ public abstract class Server extends Thread implements Serializable, Cloneable
      */
     protected final InboundMessageDispatcher inboundMsgDispatcher;
 
+    /**
+     * Output stats from all connections using {@link #PROP_JSETTLERS_SERVER_OUTPUT_BATCH}:
+     * Number of socket flushes, total messages written in them, and largest number of messages in one flush.
+     * @see #recordOutputFlush(int)
+     * @since 2.0.00
+     */
+    private final AtomicLong outFlushCount = new AtomicLong(), outFlushMsgCount = new AtomicLong();
+
+    /**
+     * Largest number of messages written in one flush; see {@link #outFlushCount}.
+     * @since 2.0.00
+     */
+    private volatile int outFlushMaxBatch;
+
+    /**
+     * This server's message metrics: Per-type message counts, bytes, and queue wait and handler times,
+     * and connections' outbound queue depths. Recorded by {@link #inQueue} and the connections.
+     * @since 2.0.00
+     */
+    public final ServerMetrics metrics = new ServerMetrics(this);
+
+    /**
+     * JMX name of {@link #metrics} if registered, or null; see {@link #PROP_JSETTLERS_SERVER_METRICS_JMX}.
+     * @since 2.0.00
+     */
+    private ObjectName metricsJMXName;
+
+    /**
+     * Limits on each network connection's outbound queue, or null if none;
+     * see {@link #PROP_JSETTLERS_SERVER_OUTPUT_MAX__MESSAGES}.
+     * @since 2.0.00
+     */
+    OutputQueueLimits outputLimits;
+
     boolean up = false;
     protected Exception error = null;
 
@@ -178,11 +338,12 @@ public abstract class Server extends Thread implements Serializable, Cloneable
     /**
      * Versions of currently connected clients, according to
      * {@link Connection#getVersion()}.
-     * Key = Integer(version). Value = ConnVersionCounter.
+     * Key = Integer(version). Value = ConnVersionCounter, which also holds
+     * that version's connections (named and unnamed) for {@link #broadcastToVers(String, int, int)}.
      * Synchronized on {@link #unnamedConns}, like many other
      * client-related structures.
-     * @see #clientVersionAdd(int)
-     * @see #clientVersionRem(int)
+     * @see #clientVersionAdd(Connection, int)
+     * @see #clientVersionRem(Connection, int)
      * @since 1.1.06
      */
     private TreeMap<Integer, ConnVersionCounter> cliVersionsConnected = new TreeMap<Integer, ConnVersionCounter>();
@@ -203,10 +364,33 @@ public abstract class Server extends Thread implements Serializable, Cloneable
     private int cliVersionsConnectedQuickCheckCount = 0;
 
     /**
-     * Timer for scheduling timed/recurring tasks.
+     * Held by {@link #broadcastToVers(String, int, int)} while sending, so that concurrent
+     * broadcasts reach each client in the same order without holding the server's monitor
+     * or {@link #unnamedConns}.
+     * @since 2.0.00
+     */
+    private final Object broadcastLock = new Object();
+
+    /**
+     * Tick length of {@link #utilTimer}, in milliseconds:
+     * Its tasks run at most this long after their scheduled time.
+     * @since 2.0.00
+     */
+    public static final int UTIL_TIMER_TICK_MSEC = 50;
+
+    /**
+     * Timer for scheduling timed/recurring tasks, such as per-game deadlines.
+     * Tasks should be short, since they all run in the timer's one thread.
+     * Before v2.0.00 this was a {@link java.util.Timer}; it's now a timing wheel
+     * with {@link #UTIL_TIMER_TICK_MSEC} resolution, so it can hold many deadlines.
+     * This changed the field's type, so code compiled against the older {@code Timer} field must be recompiled.
+     * Code which schedules a {@link java.util.TimerTask} still compiles, using
+     * {@link HashedWheelTimer#schedule(java.util.TimerTask, long)} and
+     * {@link HashedWheelTimer#schedule(java.util.TimerTask, long, long)};
+     * those return a {@link HashedWheelTimer.Task} to cancel instead of calling the TimerTask's {@code cancel()}.
      * @since 1.1.06
      */
-    public Timer utilTimer = new Timer(true);  // use daemon thread
+    public final HashedWheelTimer utilTimer = new HashedWheelTimer("utilTimer", UTIL_TIMER_TICK_MSEC, 1024);
 
     /**
      * Client disconnect error messages, to be printed after a short delay
@@ -226,7 +410,7 @@ public abstract class Server extends Thread implements Serializable, Cloneable
      *<P>
      * After your app (which extends Server) determines that a connection is the
      * same client that just disconnected, it should find both of the tasks in
-     * this HashMap, call {@link TimerTask#cancel()} on them, and remove them.
+     * this HashMap, call {@link HashedWheelTimer.Task#cancel()} on them, and remove them.
      *
      * @see #CLI_DISCON_PRINT_TIMER_FIRE_MS
      * @since 1.1.07
@@ -268,11 +452,12 @@ public abstract class Server extends Thread implements Serializable, Cloneable
         this.port = port;
         this.strSocketName = null;
         this.inboundMsgDispatcher = imd;
-        this.inQueue = new InboundMessageQueue(imd);
+        this.inQueue = new InboundMessageQueue
+            (imd, getConfigIntProperty(PROP_JSETTLERS_SERVER_DISPATCH_LANES, 0), metrics);
 
         try
         {
-            ss = new NetServerSocket(port, this);
+            ss = newNetServerSocket();
         }
         catch (IOException e)
         {
@@ -307,7 +492,8 @@ public abstract class Server extends Thread implements Serializable, Cloneable
         this.port = -1;
         this.strSocketName = stringSocketName;
         this.inboundMsgDispatcher = imd;
-        this.inQueue = new InboundMessageQueue(imd);
+        this.inQueue = new InboundMessageQueue
+            (imd, getConfigIntProperty(PROP_JSETTLERS_SERVER_DISPATCH_LANES, 0), metrics);
 
         ss = new StringServerSocket(stringSocketName);
         setName("server-localstring-" + stringSocketName);  // Thread name for debugging
@@ -327,9 +513,71 @@ public abstract class Server extends Thread implements Serializable, Cloneable
         if (error != null)
             return;
 
+        if (! getConfigBoolProperty(PROP_JSETTLERS_SERVER_STRINGPORT__OBJECTS, true))
+            StringConnection.PASS_MESSAGE_OBJECTS = false;
+
+        final int outMaxMsgs = getConfigIntProperty(PROP_JSETTLERS_SERVER_OUTPUT_MAX__MESSAGES, 0),
+            outMaxBytes = getConfigIntProperty(PROP_JSETTLERS_SERVER_OUTPUT_MAX__BYTES, 0);
+        if ((outMaxMsgs > 0) || (outMaxBytes > 0))
+        {
+            int policy = OutputQueueLimits.POLICY_DROP;
+            final String pname = props.getProperty(PROP_JSETTLERS_SERVER_OUTPUT_OVERFLOW);
+            if (pname != null)
+                try
+                {
+                    policy = OutputQueueLimits.parsePolicy(pname);
+                }
+                catch (IllegalArgumentException e)
+                {
+                    System.err.println("Unknown " + PROP_JSETTLERS_SERVER_OUTPUT_OVERFLOW + " " + pname + ", using drop");
+                }
+            outputLimits = new OutputQueueLimits(Math.max(0, outMaxMsgs), Math.max(0, outMaxBytes), policy);
+        }
+
         // recurring schedule the version set's consistency-chk
         ConnVersionSetCheckerTask cvChkTask = new ConnVersionSetCheckerTask(this);
         utilTimer.schedule(cvChkTask, 0L, SOCServer.CLI_VERSION_SET_CONSIS_CHECK_MINUTES * 60 * 1000);
+
+        final String metricsFile = props.getProperty(PROP_JSETTLERS_SERVER_METRICS_FILE);
+        if ((metricsFile != null) && (metricsFile.length() > 0))
+        {
+            int sec = getConfigIntProperty(PROP_JSETTLERS_SERVER_METRICS_INTERVAL, 60);
+            if (sec < 1)
+                sec = 60;
+            utilTimer.schedule(new MetricsFileTask(new File(metricsFile)), sec * 1000L, sec * 1000L);
+        }
+
+        if ((port > 0) && getConfigBoolProperty(PROP_JSETTLERS_SERVER_METRICS_JMX, true))
+        {
+            try
+            {
+                final ObjectName on = new ObjectName("soc.server:type=ServerMetrics,port=" + port);
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, on);
+                metricsJMXName = on;
+            }
+            catch (Exception e)
+            {
+                // JMX not available, or already registered by another server in this JVM
+                D.ebugPrintln("Server: Can't register metrics with JMX: " + e);
+            }
+        }
+    }
+
+    /**
+     * Create the server socket to listen on our TCP {@link #port}:
+     * {@link NioServerSocket} if {@link #PROP_JSETTLERS_SERVER_NIO} is set, {@link NetServerSocket} otherwise.
+     * @return a new server socket bound to {@link #port}
+     * @throws IOException if the port can't be bound
+     * @since 2.0.00
+     */
+    private SOCServerSocket newNetServerSocket()
+        throws IOException
+    {
+        if (getConfigBoolProperty(PROP_JSETTLERS_SERVER_NIO, false))
+            return new NioServerSocket
+                (port, this, getConfigIntProperty(PROP_JSETTLERS_SERVER_NIO_THREADS, NioServerSocket.SELECTOR_THREADS_DEFAULT));
+        else
+            return new NetServerSocket(port, this);
     }
 
     /**
@@ -400,6 +648,54 @@ public abstract class Server extends Thread implements Serializable, Cloneable
         return strSocketName;
     }
 
+    /**
+     * Record a flush of a {@link NetConnection}'s buffered output, for {@link #getOutputFlushCount()} and related stats.
+     * @param nMessages  Number of messages written to the buffer before this flush
+     * @see #PROP_JSETTLERS_SERVER_OUTPUT_BATCH
+     * @since 2.0.00
+     */
+    final void recordOutputFlush(final int nMessages)
+    {
+        outFlushCount.incrementAndGet();
+        outFlushMsgCount.addAndGet(nMessages);
+        if (nMessages > outFlushMaxBatch)
+            outFlushMaxBatch = nMessages;  // not atomic, but close enough for stats
+    }
+
+    /**
+     * Get the number of times since startup that connections using {@link #PROP_JSETTLERS_SERVER_OUTPUT_BATCH}
+     * have flushed a batch of output to their sockets.
+     * Messages per flush is {@link #getOutputFlushMessageCount()} / {@code getOutputFlushCount()}.
+     * @return  Number of flushes, or 0 if not using that property
+     * @see #getOutputFlushMaxBatch()
+     * @since 2.0.00
+     */
+    public long getOutputFlushCount()
+    {
+        return outFlushCount.get();
+    }
+
+    /**
+     * Get the total number of messages written by {@link #getOutputFlushCount()}'s flushes.
+     * @return  Number of messages sent through batched output
+     * @since 2.0.00
+     */
+    public long getOutputFlushMessageCount()
+    {
+        return outFlushMsgCount.get();
+    }
+
+    /**
+     * Get the largest number of messages written in a single flush of batched output.
+     * @return  Largest batch size seen, or 0 if none
+     * @see #getOutputFlushCount()
+     * @since 2.0.00
+     */
+    public int getOutputFlushMaxBatch()
+    {
+        return outFlushMaxBatch;
+    }
+
     /**
      * Get and parse an integer config property, or use its default instead.
      *<P>
@@ -522,7 +818,11 @@ public abstract class Server extends Thread implements Serializable, Cloneable
                     // Currently it's limited in SOCServer.newConnection1 by checking connectionCount()
                     // which is more modular.
                     Connection connection = ss.accept();
-                    if (port != -1)
+                    if (connection instanceof NioConnection)
+                    {
+                        connection.run();  // adds to server and returns; selector thread does its I/O
+                    }
+                    else if (port != -1)
                     {
                         new Thread((NetConnection) connection).start();
                     }
@@ -550,7 +850,7 @@ public abstract class Server extends Thread implements Serializable, Cloneable
             {
                 ss.close();
                 if (strSocketName == null)
-                    ss = new NetServerSocket(port, this);
+                    ss = newNetServerSocket();
                 else
                     ss = new StringServerSocket(strSocketName);
             }
@@ -564,6 +864,52 @@ public abstract class Server extends Thread implements Serializable, Cloneable
         }
     }
 
+    /**
+     * Get the name of a local string port where in-process clients such as robots can connect
+     * with {@link StringConnection}s, which are faster than TCP within the same JVM.
+     * If this server was created with a string port, returns its name.
+     * Otherwise starts a local string port alongside our TCP port if not already started,
+     * with a daemon thread to accept its connections.
+     * @return the string port name
+     * @since 2.0.00
+     */
+    public synchronized String startLocalStringPort()
+    {
+        if (strSocketName != null)
+            return strSocketName;
+
+        if (localSS == null)
+        {
+            final StringServerSocket lss = new StringServerSocket("localstring-" + port);
+            localSS = lss;
+
+            final Thread t = new Thread("server-localstring-" + port)
+            {
+                public void run()
+                {
+                    while (isUp())
+                    {
+                        try
+                        {
+                            StringConnection localConnection = (StringConnection) lss.accept();
+                            localConnection.setServer(Server.this);
+
+                            new Thread(localConnection).start();
+                        }
+                        catch (IOException e)
+                        {
+                            break;  // closed by stopServer
+                        }
+                    }
+                }
+            };
+            t.setDaemon(true);
+            t.start();
+        }
+
+        return localSS.getSocketName();
+    }
+
     /**
      * Callback to process the client's first message command specially.
      * This default implementation does nothing and returns false;
@@ -665,8 +1011,28 @@ public abstract class Server extends Thread implements Serializable, Cloneable
     {
         up = false;
 
+        if (localSS != null)
+        {
+            try
+            {
+                localSS.close();
+            }
+            catch (IOException e) {}
+            localSS = null;
+        }
+
         inQueue.stopMessageProcessing();
 
+        if (metricsJMXName != null)
+        {
+            try
+            {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsJMXName);
+            }
+            catch (Exception e) {}
+            metricsJMXName = null;
+        }
+
         serverDown();
 
         for (Enumeration<Connection> e = conns.elements(); e.hasMoreElements();)
@@ -721,7 +1087,7 @@ public abstract class Server extends Thread implements Serializable, Cloneable
             }
 
             --numberCurrentConnections;
-            clientVersionRem(c.getVersion());  // One less of the cli's version
+            clientVersionRem(c, c.getVersion());  // One less of the cli's version
             c.setVersionTracking(false);
         }
 
@@ -802,7 +1168,7 @@ public abstract class Server extends Thread implements Serializable, Cloneable
                         unnamedConns.add(c);
                     }
 
-                    clientVersionAdd(c.getVersion());  // Count one more client with that version
+                    clientVersionAdd(c, c.getVersion());  // Count one more client with that version
                     numberCurrentConnections++;
                     c.setVersionTracking(true);
                 }
@@ -881,23 +1247,27 @@ public abstract class Server extends Thread implements Serializable, Cloneable
      *<P>
      * <b>Locks:</b> Caller should synchronize on {@link #unnamedConns},
      *   and call just before incrementing {@link #numberCurrentConnections}.
+     *<P>
+     * Before v2.0.00 this method took only {@code cvers}, and kept a count but not the connections.
      *
+     * @param c  Client connection to add to its version's bucket
      * @param cvers Client version number, from {@link Connection#getVersion()}.
-     * @see #clientVersionRem(int)
+     * @see #clientVersionRem(Connection, int)
      * @see #getMinConnectedCliVersion()
      * @see #getMaxConnectedCliVersion()
      * @since 1.1.06
      */
-    public void clientVersionAdd(final int cvers)
+    public void clientVersionAdd(final Connection c, final int cvers)
     {
         Integer cvkey = new Integer(cvers);
         ConnVersionCounter cv = cliVersionsConnected.get(cvkey);
         if (cv == null)
         {
             cv = new ConnVersionCounter(cvers);
+            cv.add(c);
             cliVersionsConnected.put(cvkey, cv);  // with cliCount == 1
         } else {
-            cv.cliCount++;
+            cv.add(c);
             return;  // <---- Early return: We already have this version ----
         }
 
@@ -921,25 +1291,28 @@ public abstract class Server extends Thread implements Serializable, Cloneable
      * <b>Locks:</b> Caller should synchronize on {@link #unnamedConns},
      *   right after decrementing numberCurrentConnections (in case a consistency-check
      *   is called from here).
+     *<P>
+     * Before v2.0.00 this method took only {@code cvers}, and kept a count but not the connections.
      *
-     * @param cvers Client version number, from {@link Connection#getVersion()}.
-     * @see #clientVersionAdd(int)
+     * @param c  Client connection to remove from its version's bucket
+     * @param cvers Client version number which {@code c} had when it was added;
+     *     from {@link Connection#getVersion()} unless version is being changed
+     * @see #clientVersionAdd(Connection, int)
      * @see #getMinConnectedCliVersion()
      * @see #getMaxConnectedCliVersion()
      * @since 1.1.06
      */
-    public void clientVersionRem(final int cvers)
+    public void clientVersionRem(final Connection c, final int cvers)
     {
         Integer cvkey = new Integer(cvers);
         ConnVersionCounter cv = cliVersionsConnected.get(cvkey);
-        if (cv == null)
+        if ((cv == null) || ! cv.remove(c))
         {
             // not found - must rebuild
             clientVersionRebuildMap(null);
             return;  // <---- Early return: Had to rebuild ----
         }
 
-        cv.cliCount--;
         if (cv.cliCount > 0)
         {
             return;  // <---- Early return: Nothing else to do ----
@@ -956,13 +1329,6 @@ public abstract class Server extends Thread implements Serializable, Cloneable
             return;  // <---- Early return: No other clients ----
         }
 
-        if (cv.cliCount < 0)
-        {
-            // must rebuild - got below 0 somehow
-            clientVersionRebuildMap(null);
-            return;  // <---- Early return: Had to rebuild ----
-        }
-
         if (cvers == cliVersionMin)
         {
             cliVersionMin = cliVersionsConnected.firstKey().intValue();
@@ -999,8 +1365,8 @@ public abstract class Server extends Thread implements Serializable, Cloneable
      * Is a client with this version number currently connected?
      * @param cvers Client version number, from {@link Connection#getVersion()}.
      * @return  True if a client of this version is currently connected,
-     *    according to calls to {@link #clientVersionAdd(int)}
-     *    and {@link #clientVersionRem(int)}
+     *    according to calls to {@link #clientVersionAdd(Connection, int)}
+     *    and {@link #clientVersionRem(Connection, int)}
      * @since 1.1.13
      * @see #getMinConnectedCliVersion()
      * @see #getMaxConnectedCliVersion()
@@ -1034,7 +1400,8 @@ public abstract class Server extends Thread implements Serializable, Cloneable
 
         for (Enumeration<Connection> e = getConnections(); e.hasMoreElements();)
         {
-            cvers = e.nextElement().getVersion();
+            final Connection c = e.nextElement();
+            cvers = c.getVersion();
 
             if ((cvkey == null) || (cvers != lastVers))
             {
@@ -1043,17 +1410,17 @@ public abstract class Server extends Thread implements Serializable, Cloneable
                 if (cvc == null)
                 {
                     cvc = new ConnVersionCounter(cvers);
-                    cvmap.put(cvkey, cvc);  // with cliCount == 1
-                    cvc.cliCount--;  // -- now, since we'll ++ it just below
+                    cvmap.put(cvkey, cvc);  // with cliCount == 0
                 }
             }
-            cvc.cliCount++;
+            cvc.add(c);
             lastVers = cvers;
         }
 
         for (Enumeration<Connection> e = unnamedConns.elements(); e.hasMoreElements();)
         {
-            cvers = e.nextElement().getVersion();
+            final Connection c = e.nextElement();
+            cvers = c.getVersion();
 
             if ((cvkey == null) || (cvers != lastVers))
             {
@@ -1062,11 +1429,10 @@ public abstract class Server extends Thread implements Serializable, Cloneable
                 if (cvc == null)
                 {
                     cvc = new ConnVersionCounter(cvers);
-                    cvmap.put(cvkey, cvc);  // with cliCount == 1
-                    cvc.cliCount--;  // -- now, since we'll ++ it just below
+                    cvmap.put(cvkey, cvc);  // with cliCount == 0
                 }
             }
-            cvc.cliCount++;
+            cvc.add(c);
             lastVers = cvers;
         }
 
@@ -1123,7 +1489,8 @@ public abstract class Server extends Thread implements Serializable, Cloneable
                 if (fullCheck)
                 {
                     ConnVersionCounter cvc2 = cve2.next();
-                    if ((cvc1.vers != cvc2.vers) || (cvc1.cliCount != cvc2.cliCount))
+                    if ((cvc1.vers != cvc2.vers) || (cvc1.cliCount != cvc2.cliCount)
+                        || ! cvc1.conns.equals(cvc2.conns))
                     {
                         return false;
                     }
@@ -1184,25 +1551,21 @@ public abstract class Server extends Thread implements Serializable, Cloneable
 
     /**
      * Broadcast a SOCmessage to all connected clients, named and unnamed.
+     * The message is encoded for the network only once, as an {@link EncodedMessage}.
+     *<P>
+     * <b>Locks:</b> Takes the list of clients from {@link #cliVersionsConnected} while briefly
+     * synchronized on {@link #unnamedConns}, then sends to them while synchronized
+     * on {@link #broadcastLock} so that concurrent broadcasts reach every client in the same order.
+     * Before v2.0.00 this method was {@code synchronized} on the server while sending.
      *
      * @param m SOCmessage string, generated by {@link soc.message.SOCMessage#toCmd()}
      * @see #broadcastToVers(String, int, int)
      * @throws IllegalArgumentException if {@code m} is {@code null}
      */
-    public synchronized void broadcast(String m)
+    public void broadcast(String m)
         throws IllegalArgumentException
     {
-        if (m == null)
-            throw new IllegalArgumentException("null");
-
-        for (Enumeration<Connection> e = getConnections(); e.hasMoreElements();)
-        {
-            e.nextElement().put(m);
-        }
-        for (Enumeration<Connection> e = unnamedConns.elements(); e.hasMoreElements();)
-        {
-            e.nextElement().put(m);
-        }
+        broadcastToVers(m, Integer.MIN_VALUE, Integer.MAX_VALUE);
     }
 
     /**
@@ -1212,6 +1575,10 @@ public abstract class Server extends Thread implements Serializable, Cloneable
      * The range is inclusive: Clients of version <tt>vmin</tt> and newer,
      * up to and including <tt>vmax</tt>, receive the broadcast.
      * If vmin > vmax, do nothing.
+     * The message is encoded for the network only once, as an {@link EncodedMessage}.
+     *<P>
+     * Only the connections in the matching version buckets of {@link #cliVersionsConnected} are visited,
+     * not every connected client. Locks are the same as {@link #broadcast(String)}.
      *
      * @param m SOCmessage string, generated by {@link soc.message.SOCMessage#toCmd()}
      * @param vmin Minimum version, as returned by {@link Connection#getVersion()},
@@ -1221,7 +1588,7 @@ public abstract class Server extends Thread implements Serializable, Cloneable
      * @see #broadcast(String)
      * @throws IllegalArgumentException if {@code m} is {@code null}
      */
-    public synchronized void broadcastToVers(String m, final int vmin, final int vmax)
+    public void broadcastToVers(String m, final int vmin, final int vmax)
         throws IllegalArgumentException
     {
         if (m == null)
@@ -1230,19 +1597,23 @@ public abstract class Server extends Thread implements Serializable, Cloneable
         if (vmin > vmax)
             return;
 
-        for (Enumeration<Connection> e = getConnections(); e.hasMoreElements();)
-        {
-            Connection c = e.nextElement();
-            int cvers = c.getVersion();
-            if ((cvers >= vmin) && (cvers <= vmax))
-                c.put(m);
-        }
-        for (Enumeration<Connection> e = unnamedConns.elements(); e.hasMoreElements();)
+        final EncodedMessage em = new EncodedMessage(m);
+        synchronized (broadcastLock)
         {
-            Connection c = e.nextElement();
-            int cvers = c.getVersion();
-            if ((cvers >= vmin) && (cvers <= vmax))
-                c.put(m);
+            final ArrayList<Connection[]> buckets = new ArrayList<Connection[]>();
+            synchronized (unnamedConns)
+            {
+                for (ConnVersionCounter cv : cliVersionsConnected.tailMap(new Integer(vmin)).values())
+                {
+                    if (cv.vers > vmax)
+                        break;
+                    buckets.add(cv.getConnections());
+                }
+            }
+
+            for (Connection[] bucket : buckets)
+                for (int i = 0; i < bucket.length; ++i)
+                    bucket[i].put(em);
         }
     }
 
@@ -1265,6 +1636,8 @@ public abstract class Server extends Thread implements Serializable, Cloneable
          * Remove a queued incoming message from a client, and treat it.
          * Messages of unknown type are ignored.
          * Called from the single 'treater' thread of {@link InboundMessageQueue}.
+         * If the server is using {@link #PROP_JSETTLERS_SERVER_DISPATCH_LANES}, is instead called
+         * from one of several lane threads, each handling messages for a subset of games.
          *<P>
          * <em>Do not block or sleep</em> because this is single-threaded.
          * Any slow or lengthy work for a message should be done on other threads.
@@ -1301,12 +1674,71 @@ public abstract class Server extends Thread implements Serializable, Cloneable
     private static class ConnVersionCounter implements Comparable<ConnVersionCounter>
     {
         public final int vers;
+
+        /** Number of clients connected with this version; same as {@link #conns}.size() */
         public int cliCount;
 
+        /**
+         * Connections with this version, named and unnamed, for {@link Server#broadcastToVers(String, int, int)}.
+         * @since 2.0.00
+         */
+        public final LinkedHashSet<Connection> conns = new LinkedHashSet<Connection>();
+
+        /**
+         * Copy of {@link #conns} for broadcasts to iterate without holding a lock,
+         * or null if changed since the last call to {@link #getConnections()}.
+         * @since 2.0.00
+         */
+        private Connection[] connsSnapshot;
+
+        /**
+         * Create a counter for this version, with no connections yet.
+         * Before v2.0.00, {@code cliCount} started at 1.
+         */
         public ConnVersionCounter(final int version)
         {
             vers = version;
-            cliCount = 1;
+        }
+
+        /**
+         * Add a connection to this version's bucket, if not already there.
+         * @since 2.0.00
+         */
+        public void add(final Connection c)
+        {
+            if (conns.add(c))
+            {
+                cliCount = conns.size();
+                connsSnapshot = null;
+            }
+        }
+
+        /**
+         * Remove a connection from this version's bucket.
+         * @return  True if {@code c} was in the bucket
+         * @since 2.0.00
+         */
+        public boolean remove(final Connection c)
+        {
+            if (! conns.remove(c))
+                return false;
+
+            cliCount = conns.size();
+            connsSnapshot = null;
+            return true;
+        }
+
+        /**
+         * Get this version's connections. The array is shared until the bucket next changes:
+         * Callers must not modify it.
+         * @since 2.0.00
+         */
+        public Connection[] getConnections()
+        {
+            if (connsSnapshot == null)
+                connsSnapshot = conns.toArray(new Connection[conns.size()]);
+
+            return connsSnapshot;
         }
 
         @Override
@@ -1333,7 +1765,7 @@ public abstract class Server extends Thread implements Serializable, Cloneable
      * @see Server#CLI_VERSION_SET_CONSIS_CHECK_QUICK_COUNT
      * @since 1.1.06
      */
-    private static class ConnVersionSetCheckerTask extends TimerTask
+    private static class ConnVersionSetCheckerTask extends HashedWheelTimer.Task
     {
         private Server srv;
 
@@ -1372,6 +1804,44 @@ public abstract class Server extends Thread implements Serializable, Cloneable
 
     }  // ConnVersionSetCheckerTask
 
+    /**
+     * Periodically overwrite {@link Server#PROP_JSETTLERS_SERVER_METRICS_FILE} with a snapshot
+     * of the {@link Server#metrics} report. Scheduled by {@linkplain Server#initMisc()}.
+     * @since 2.0.00
+     */
+    private class MetricsFileTask extends HashedWheelTimer.Task
+    {
+        private final File file;
+
+        public MetricsFileTask(final File file)
+        {
+            this.file = file;
+        }
+
+        @Override
+        public void run()
+        {
+            PrintWriter pw = null;
+            try
+            {
+                pw = new PrintWriter(new FileWriter(file));
+                pw.println("Metrics at " + new Date());
+                for (String line : metrics.getReportLines(0))
+                    pw.println(line);
+            }
+            catch (IOException e)
+            {
+                System.err.println("Can't write metrics file " + file + ": " + e);
+            }
+            finally
+            {
+                if (pw != null)
+                    pw.close();
+            }
+        }
+
+    }  // MetricsFileTask
+
     /**
      * This object represents one client-connect or disconnect
      * debug-print announcement within {@link Server#cliConnDisconPrintsPending}.
@@ -1391,7 +1861,7 @@ public abstract class Server extends Thread implements Serializable, Cloneable
      * @see Server#addConnection(Connection)
      * @see Server#CLI_DISCON_PRINT_TIMER_FIRE_MS
      */
-    protected class ConnExcepDelayedPrintTask extends TimerTask
+    protected class ConnExcepDelayedPrintTask extends HashedWheelTimer.Task
     {
         /** may be null */
         public Throwable excep;
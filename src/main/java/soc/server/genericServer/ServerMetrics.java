@@ -0,0 +1,515 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server.genericServer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import soc.message.SOCMessage;
+
+/**
+ * A {@link Server}'s message metrics, per message type ID from {@link SOCMessage#getType()}:
+ * Inbound and outbound message counts and bytes, time spent waiting in the {@link InboundMessageQueue},
+ * and time spent in the message handler. Wait and handler times are kept in fixed-bucket histograms.
+ * Also tracks the depth of connections' outbound queues when messages are added to them.
+ *<P>
+ * Recording is allocation-free and lock-free: Each record method only updates
+ * {@link AtomicLongArray}s, so it can be called from any connection or dispatch thread.
+ * Reading a report while messages are being recorded gives approximate but consistent-enough numbers.
+ *<P>
+ * Shown by the {@code *MSGSTATS*} admin command, through JMX as {@link ServerMetricsMBean},
+ * and optionally dumped to a file every so often: See {@link Server#PROP_JSETTLERS_SERVER_METRICS_FILE}.
+ *
+ * @since 2.0.00
+ */
+public class ServerMetrics
+    implements ServerMetricsMBean
+{
+    /**
+     * Number of histogram buckets. Bucket 0 is times under 1 microsecond; bucket {@code b} &gt; 0 is
+     * times from 2<sup>b-1</sup> up to 2<sup>b</sup> microseconds; the last bucket also holds
+     * everything longer (about 4 seconds or more).
+     */
+    public static final int HIST_BUCKETS = 24;
+
+    /** Lowest message type ID with its own slot; see {@link #slotOf(int)}. */
+    private static final int TYPE_SLOT_MIN = 999;
+
+    /** Number of consecutive type IDs starting at {@link #TYPE_SLOT_MIN} which have their own slot. */
+    private static final int TYPE_SLOT_RANGE = 160;
+
+    /** Slot for {@link SOCMessage#VERSION} and {@link SOCMessage#SERVERPING} (types 9998, 9999). */
+    private static final int SLOT_9998 = 1 + TYPE_SLOT_RANGE;
+
+    /** Slot for code {@link InboundMessageQueue#post(Runnable) posted} to run on the dispatch thread. */
+    private static final int SLOT_TASK = SLOT_9998 + 2;
+
+    /** Total number of slots; slot 0 is for any other message types. */
+    private static final int NUM_SLOTS = SLOT_TASK + 1;
+
+    /** Per-slot counters: Inbound messages, bytes; outbound messages, bytes; dispatched items. */
+    private final AtomicLongArray inCount = new AtomicLongArray(NUM_SLOTS),
+        inBytes = new AtomicLongArray(NUM_SLOTS),
+        outCount = new AtomicLongArray(NUM_SLOTS),
+        outBytes = new AtomicLongArray(NUM_SLOTS),
+        dispCount = new AtomicLongArray(NUM_SLOTS);
+
+    /** Per-slot total and maximum queue wait and handler times, in nanoseconds. */
+    private final AtomicLongArray waitTotal = new AtomicLongArray(NUM_SLOTS),
+        waitMax = new AtomicLongArray(NUM_SLOTS),
+        handTotal = new AtomicLongArray(NUM_SLOTS),
+        handMax = new AtomicLongArray(NUM_SLOTS);
+
+    /** Per-slot histograms of wait and handler times: {@link #HIST_BUCKETS} buckets for each slot. */
+    private final AtomicLongArray waitHist = new AtomicLongArray(NUM_SLOTS * HIST_BUCKETS),
+        handHist = new AtomicLongArray(NUM_SLOTS * HIST_BUCKETS);
+
+    /**
+     * Histogram of outbound queue depths seen when messages are queued to connections:
+     * Bucket 0 is depth 0 or 1, bucket {@code b} is depths up to 2<sup>b</sup>.
+     */
+    private final AtomicLongArray outDepthHist = new AtomicLongArray(HIST_BUCKETS);
+
+    /** Largest outbound queue depth seen; see {@link #outDepthHist}. */
+    private final AtomicLong outDepthMax = new AtomicLong();
+
+    /** Each slot's message class name, set when first seen, or null. */
+    private final AtomicReferenceArray<String> slotNames = new AtomicReferenceArray<String>(NUM_SLOTS);
+
+    /** Server whose connections are checked for {@link #getOutboundQueueDepthMax()}, or null */
+    private final Server srv;
+
+    /** Start time of these metrics, from {@link System#currentTimeMillis()}, reset by {@link #reset()} */
+    private volatile long startTime = System.currentTimeMillis();
+
+    /**
+     * Create a new, empty set of metrics.
+     * @param srv  Server whose current connections are checked for their outbound queue depths
+     *     in reports, or null
+     */
+    public ServerMetrics(final Server srv)
+    {
+        this.srv = srv;
+        slotNames.set(SLOT_TASK, "(posted task)");
+    }
+
+    /**
+     * Get the counters' slot for a message type.
+     * @param type  Message type ID, from {@link SOCMessage#getType()}
+     * @return  Slot number for arrays, 0 if type doesn't have its own slot
+     */
+    private static int slotOf(final int type)
+    {
+        if ((type >= TYPE_SLOT_MIN) && (type < TYPE_SLOT_MIN + TYPE_SLOT_RANGE))
+            return 1 + type - TYPE_SLOT_MIN;
+        else if ((type == SOCMessage.VERSION) || (type == SOCMessage.SERVERPING))
+            return SLOT_9998 + type - SOCMessage.VERSION;
+        else
+            return 0;
+    }
+
+    /**
+     * Get a message's slot, and note its class name if this is the first one seen for that slot.
+     * @param mes  Message; not null
+     * @return  Slot number for arrays
+     */
+    private int slotOf(final SOCMessage mes)
+    {
+        final int slot = slotOf(mes.getType());
+        if ((slot != 0) && (slotNames.get(slot) == null))
+            slotNames.set(slot, mes.getClass().getSimpleName());
+
+        return slot;
+    }
+
+    /**
+     * Get a message's type ID from its text without parsing the rest of the message:
+     * The digits before the first {@link SOCMessage#sep_char}.
+     * @param cmd  Message text from {@link SOCMessage#toCmd()}, or null
+     * @return  Type ID, or 0 if {@code cmd} doesn't start with a number
+     */
+    public static int typeOf(final String cmd)
+    {
+        if (cmd == null)
+            return 0;
+
+        int type = 0;
+        final int L = Math.min(cmd.length(), 6);
+        for (int i = 0; i < L; ++i)
+        {
+            final char ch = cmd.charAt(i);
+            if ((ch < '0') || (ch > '9'))
+                break;
+            type = type * 10 + (ch - '0');
+        }
+
+        return type;
+    }
+
+    /**
+     * Get the histogram bucket for a time or depth.
+     * @param val  Time in microseconds, or a queue depth; negative is treated as 0
+     * @return Bucket number, 0 to {@link #HIST_BUCKETS} - 1
+     */
+    private static int bucketOf(final long val)
+    {
+        if (val <= 0)
+            return 0;
+
+        final int b = 64 - Long.numberOfLeadingZeros(val);  // 1 for 1, 2 for 2-3, 3 for 4-7, ...
+        return (b < HIST_BUCKETS) ? b : HIST_BUCKETS - 1;
+    }
+
+    /**
+     * Update a maximum value if {@code val} is larger.
+     * @param arr  Array holding the maximum
+     * @param i  Index into {@code arr}
+     * @param val  New value to compare
+     */
+    private static void updateMax(final AtomicLongArray arr, final int i, final long val)
+    {
+        long prev;
+        while (val > (prev = arr.get(i)))
+            if (arr.compareAndSet(i, prev, val))
+                break;
+    }
+
+    /**
+     * Record an inbound message received from a client.
+     * @param mes  Parsed message; not null
+     * @param nBytes  Message's size in bytes, or 0 if it wasn't sent as bytes
+     *     (passed as an object by a {@link StringConnection})
+     */
+    public void recordInbound(final SOCMessage mes, final int nBytes)
+    {
+        final int slot = slotOf(mes);
+        inCount.incrementAndGet(slot);
+        if (nBytes > 0)
+            inBytes.addAndGet(slot, nBytes);
+    }
+
+    /**
+     * Record an inbound message, or code {@link InboundMessageQueue#post(Runnable) posted} to the dispatch thread,
+     * after it's been dispatched.
+     * @param mes  Message dispatched, or null for posted code
+     * @param waitNanos  Time spent waiting in the queue before dispatch, in nanoseconds
+     * @param handlerNanos  Time spent in the handler, in nanoseconds
+     */
+    public void recordDispatch(final SOCMessage mes, final long waitNanos, final long handlerNanos)
+    {
+        final int slot = (mes != null) ? slotOf(mes) : SLOT_TASK;
+        dispCount.incrementAndGet(slot);
+
+        waitTotal.addAndGet(slot, waitNanos);
+        updateMax(waitMax, slot, waitNanos);
+        waitHist.incrementAndGet(slot * HIST_BUCKETS + bucketOf(waitNanos / 1000));
+
+        handTotal.addAndGet(slot, handlerNanos);
+        updateMax(handMax, slot, handlerNanos);
+        handHist.incrementAndGet(slot * HIST_BUCKETS + bucketOf(handlerNanos / 1000));
+    }
+
+    /**
+     * Record an outbound message object sent to a client.
+     * @param mes  Message sent; not null
+     * @param nBytes  Message's size in bytes, or 0 if it's not sent as bytes
+     *     (passed as an object by a {@link StringConnection})
+     * @see #recordOutbound(int, int)
+     */
+    public void recordOutbound(final SOCMessage mes, final int nBytes)
+    {
+        final int slot = slotOf(mes);
+        outCount.incrementAndGet(slot);
+        if (nBytes > 0)
+            outBytes.addAndGet(slot, nBytes);
+    }
+
+    /**
+     * Record an outbound message sent to a client, when only its text is known.
+     * @param type  Message type ID, from {@link #typeOf(String)}
+     * @param nBytes  Message's size in bytes, or 0 if it's not sent as bytes
+     *     (passed to a {@link StringConnection})
+     * @see #recordOutbound(SOCMessage, int)
+     */
+    public void recordOutbound(final int type, final int nBytes)
+    {
+        final int slot = slotOf(type);
+        outCount.incrementAndGet(slot);
+        if (nBytes > 0)
+            outBytes.addAndGet(slot, nBytes);
+    }
+
+    /**
+     * Record a connection's outbound queue depth, when a message has just been added to that queue.
+     * @param depth  Number of messages or frames waiting in the queue, including the new one
+     */
+    public void recordOutboundQueueDepth(final int depth)
+    {
+        outDepthHist.incrementAndGet(bucketOf(depth - 1));  // depth 1 (queue was empty) goes in bucket 0
+        long prev;
+        while (depth > (prev = outDepthMax.get()))
+            if (outDepthMax.compareAndSet(prev, depth))
+                break;
+    }
+
+    /**
+     * Clear all counters and histograms. Recording can continue while this is called,
+     * so a few counts from that time may be lost.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < NUM_SLOTS; ++i)
+        {
+            inCount.set(i, 0);
+            inBytes.set(i, 0);
+            outCount.set(i, 0);
+            outBytes.set(i, 0);
+            dispCount.set(i, 0);
+            waitTotal.set(i, 0);
+            waitMax.set(i, 0);
+            handTotal.set(i, 0);
+            handMax.set(i, 0);
+        }
+        for (int i = 0; i < waitHist.length(); ++i)
+        {
+            waitHist.set(i, 0);
+            handHist.set(i, 0);
+        }
+        for (int i = 0; i < HIST_BUCKETS; ++i)
+            outDepthHist.set(i, 0);
+        outDepthMax.set(0);
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Sum an array's per-slot values.
+     * @param arr  Array to sum
+     * @return Total of all slots
+     */
+    private static long total(final AtomicLongArray arr)
+    {
+        long n = 0;
+        for (int i = 0; i < NUM_SLOTS; ++i)
+            n += arr.get(i);
+
+        return n;
+    }
+
+    public long getInboundMessageCount()
+    {
+        return total(inCount);
+    }
+
+    public long getInboundBytes()
+    {
+        return total(inBytes);
+    }
+
+    public long getOutboundMessageCount()
+    {
+        return total(outCount);
+    }
+
+    public long getOutboundBytes()
+    {
+        return total(outBytes);
+    }
+
+    public long getDispatchCount()
+    {
+        return total(dispCount);
+    }
+
+    public long getDispatchHandlerMicros()
+    {
+        return total(handTotal) / 1000;
+    }
+
+    public long getOutboundQueueDepthMax()
+    {
+        return outDepthMax.get();
+    }
+
+    public String[] getReport()
+    {
+        final List<String> lines = getReportLines(0);
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    /**
+     * Estimate a percentile from a histogram: The upper bound of the bucket which holds it.
+     * @param hist  Histogram array
+     * @param base  Index of the histogram's first bucket in {@code hist}
+     * @param count  Total count in the histogram
+     * @param pct  Percentile, 0 - 100
+     * @return Upper bound of the bucket containing that percentile, in microseconds; 0 if {@code count} is 0
+     */
+    private static long percentile(final AtomicLongArray hist, final int base, final long count, final int pct)
+    {
+        if (count <= 0)
+            return 0;
+
+        final long want = Math.max(1, (count * pct + 99) / 100);
+        long n = 0;
+        for (int b = 0; b < HIST_BUCKETS; ++b)
+        {
+            n += hist.get(base + b);
+            if (n >= want)
+                return 1L << b;
+        }
+
+        return 1L << (HIST_BUCKETS - 1);
+    }
+
+    /**
+     * Get a human-readable report of these metrics: Totals, then one line per message type,
+     * most handler time first, then the outbound queue depths.
+     * @param maxTypes  Maximum number of message types to list, or 0 for all types seen
+     * @return  Report lines; not null or empty
+     */
+    public List<String> getReportLines(final int maxTypes)
+    {
+        final List<String> ret = new ArrayList<String>();
+
+        final long secs = (System.currentTimeMillis() - startTime) / 1000;
+        ret.add("Messages in " + getInboundMessageCount() + " (" + getInboundBytes() + " bytes), out "
+            + getOutboundMessageCount() + " (" + getOutboundBytes() + " bytes), dispatched "
+            + getDispatchCount() + " in " + (getDispatchHandlerMicros() / 1000) + " ms, over " + secs + " seconds");
+
+        // sort slots by total handler time, then counts
+        final Integer[] slots = new Integer[NUM_SLOTS];
+        int nSlots = 0;
+        for (int slot = 0; slot < NUM_SLOTS; ++slot)
+            if ((dispCount.get(slot) > 0) || (inCount.get(slot) > 0) || (outCount.get(slot) > 0))
+                slots[nSlots++] = Integer.valueOf(slot);
+        Arrays.sort(slots, 0, nSlots, new Comparator<Integer>()
+        {
+            public int compare(final Integer a, final Integer b)
+            {
+                final int sa = a.intValue(), sb = b.intValue();
+                int c = compareLong(handTotal.get(sb), handTotal.get(sa));
+                if (c == 0)
+                    c = compareLong(inCount.get(sb) + outCount.get(sb), inCount.get(sa) + outCount.get(sa));
+                return c;
+            }
+        });
+
+        final int n = ((maxTypes > 0) && (maxTypes < nSlots)) ? maxTypes : nSlots;
+        if (n > 0)
+            ret.add("Per type: in count/bytes, out count/bytes; queue wait, handler: avg/p50/p99/max us");
+        for (int i = 0; i < n; ++i)
+        {
+            final int slot = slots[i].intValue();
+            final StringBuilder sb = new StringBuilder();
+            sb.append(slotLabel(slot)).append(": in ").append(inCount.get(slot)).append('/').append(inBytes.get(slot))
+              .append(", out ").append(outCount.get(slot)).append('/').append(outBytes.get(slot));
+            final long nd = dispCount.get(slot);
+            if (nd > 0)
+            {
+                sb.append("; wait ");
+                appendTimes(sb, waitHist, waitTotal, waitMax, slot, nd);
+                sb.append("; handler ");
+                appendTimes(sb, handHist, handTotal, handMax, slot, nd);
+            }
+            ret.add(sb.toString());
+        }
+        if (n < nSlots)
+            ret.add("(" + (nSlots - n) + " more types)");
+
+        final StringBuilder sb = new StringBuilder("Outbound queue depth when queued: max ");
+        sb.append(outDepthMax.get()).append(", histogram");
+        for (int b = 0; b < HIST_BUCKETS; ++b)
+        {
+            final long c = outDepthHist.get(b);
+            if (c != 0)
+                sb.append(" <=").append(1L << b).append(':').append(c);
+        }
+        ret.add(sb.toString());
+
+        if (srv != null)
+        {
+            int nConns = 0, depthMax = 0;
+            long depthTotal = 0;
+            Connection deepest = null;
+            for (Enumeration<Connection> conns = srv.getConnections(); conns.hasMoreElements(); )
+            {
+                final Connection c = conns.nextElement();
+                final int d = c.getOutboundQueueDepth();
+                ++nConns;
+                depthTotal += d;
+                if (d > depthMax)
+                {
+                    depthMax = d;
+                    deepest = c;
+                }
+            }
+            ret.add("Outbound queue depth now: " + nConns + " named connections, total " + depthTotal
+                + ((deepest != null) ? (", deepest " + depthMax + " (" + deepest.getData() + ")") : ""));
+        }
+
+        return ret;
+    }
+
+    /**
+     * Compare two longs, like Java 7's {@code Long.compare}.
+     */
+    private static int compareLong(final long a, final long b)
+    {
+        return (a < b) ? -1 : ((a == b) ? 0 : 1);
+    }
+
+    /**
+     * Get a slot's label for reports, such as {@code "1024 SOCPutPiece"}.
+     * @param slot  Slot number
+     * @return  Type ID and class name if known
+     */
+    private String slotLabel(final int slot)
+    {
+        final String name = slotNames.get(slot);
+        if (slot == SLOT_TASK)
+            return name;
+        else if (slot == 0)
+            return "(other)";
+
+        final int type = (slot >= SLOT_9998) ? (SOCMessage.VERSION + slot - SLOT_9998) : (slot - 1 + TYPE_SLOT_MIN);
+        return (name != null) ? (type + " " + name) : Integer.toString(type);
+    }
+
+    /**
+     * Append a slot's avg/p50/p99/max times in microseconds to a report line.
+     */
+    private static void appendTimes
+        (final StringBuilder sb, final AtomicLongArray hist, final AtomicLongArray tot, final AtomicLongArray max,
+         final int slot, final long count)
+    {
+        final int base = slot * HIST_BUCKETS;
+        sb.append(tot.get(slot) / count / 1000).append('/')
+          .append(percentile(hist, base, count, 50)).append('/')
+          .append(percentile(hist, base, count, 99)).append('/')
+          .append(max.get(slot) / 1000);
+    }
+
+}
@@ -0,0 +1,56 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server.genericServer;
+
+/**
+ * JMX management interface for a server's {@link ServerMetrics}, registered by {@link Server}
+ * as {@code soc.server:type=ServerMetrics,port=}<em>port</em> so tools like {@code jconsole} can view them.
+ *
+ * @since 2.0.00
+ */
+public interface ServerMetricsMBean
+{
+    /** Get the number of messages received from clients. */
+    long getInboundMessageCount();
+
+    /** Get the total size in bytes of messages received from clients over the network. */
+    long getInboundBytes();
+
+    /** Get the number of messages sent to clients. */
+    long getOutboundMessageCount();
+
+    /** Get the total size in bytes of messages sent to clients over the network. */
+    long getOutboundBytes();
+
+    /** Get the number of messages and posted tasks dispatched by the inbound queue's threads. */
+    long getDispatchCount();
+
+    /** Get the total time spent in message handlers and posted tasks, in microseconds. */
+    long getDispatchHandlerMicros();
+
+    /** Get the largest outbound queue depth seen at any connection. */
+    long getOutboundQueueDepthMax();
+
+    /** Get the metrics report, one line per message type, like the {@code *MSGSTATS*} admin command. */
+    String[] getReport();
+
+    /** Clear all counters and histograms. */
+    void reset();
+}
@@ -24,17 +24,29 @@ package soc.server.genericServer;
 import java.io.EOFException;
 import java.net.ConnectException;
 import java.util.Date;
-import java.util.Vector;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 
 import soc.disableDebug.D;
 import soc.message.SOCMessage;
 
 /**
  * Symmetric buffered connection sending strings between two local peers.
- * Uses vectors and thread synchronization, no actual network traffic.
+ * Uses lock-free queues, no actual network traffic.
  * When using this class from the server (not client), after the constructor
  * call {@link #setServer(Server)}.
  *<P>
+ * Since both peers are in the same JVM, messages sent with {@link #put(SOCMessage)}
+ * or {@link #put(EncodedMessage)} are passed to the peer as the message objects themselves,
+ * without being rendered by {@link SOCMessage#toCmd()} and parsed again by {@link SOCMessage#toMsg(String)}.
+ * Only message types which are simple immutable values are passed this way, so that sender and
+ * receiver never share mutable data; see {@link #isPassable(SOCMessage)}. Other types are sent as text.
+ * The receiving side calls {@link #readNextMessage()} to get either kind as a message object.
+ * For debugging, set {@link #PASS_MESSAGE_OBJECTS} false to send everything as text like a network connection.
+ *<P>
  * This class has a run method, but you must start the thread yourself.
  * Constructors will not create or start a thread.
  *<P>
@@ -59,6 +71,7 @@ import soc.message.SOCMessage;
  *  2.0.0 - 2017-11-01 - Rename StringConnection -> Connection, NetStringConnection -> NetConnection,
  *                       LocalStringConnection -> StringConnection.
  *                       Connection is now a superclass, not an interface.
+ *  2.0.0 - 2018-01-14 - Pass message objects to peer; lock-free queues instead of Vectors.
  *</PRE>
  *
  * @author Jeremy D Monin &lt;jeremy@nand.net&gt;
@@ -67,13 +80,32 @@ import soc.message.SOCMessage;
 public class StringConnection
     extends Connection implements Runnable
 {
+    /**
+     * If true (default), {@link #put(SOCMessage)} and {@link #put(EncodedMessage)} pass message objects
+     * to the peer. If false, they send the message text like {@link #put(String)}, which
+     * can be useful for debugging. Checked at each {@code put}.
+     * @since 2.0.00
+     */
+    public static boolean PASS_MESSAGE_OBJECTS = true;
+
+    /**
+     * Each message class checked so far by {@link #isPassable(SOCMessage)}, and the result.
+     * @since 2.0.00
+     */
+    private static final ConcurrentHashMap<Class<?>, Boolean> passableClasses
+        = new ConcurrentHashMap<Class<?>, Boolean>();
+
     /** Unique end-of-file marker object.  Always compare against this with == not string.equals. */
     protected static String EOF_MARKER = "__EOF_MARKER__" + '\004';
 
-    /** Message contents between the peers on this connection; never contains {@code null} elements. */
-    protected Vector<String> in, out;
-    protected boolean in_reachedEOF;
-    protected boolean out_setEOF;
+    /**
+     * Message contents between the peers on this connection: {@link String}s and {@link SOCMessage}s;
+     * never contains {@code null} elements.
+     * Before v2.0.00 these were {@code Vector<String>}s.
+     */
+    protected MessageQueue in, out;
+    protected volatile boolean in_reachedEOF;
+    protected volatile boolean out_setEOF;
     /** Active connection, server has called accept, and not disconnected yet */
     protected boolean accepted;
     private StringConnection ourPeer;
@@ -91,13 +123,13 @@ public class StringConnection
      */
     public StringConnection()
     {
-        in = new Vector<String>();
-        out = new Vector<String>();
+        in = new MessageQueue();
+        out = new MessageQueue();
         init();
     }
 
     /**
-     * Constructor for an existing peer; we'll share two Vectors for in/out queues.
+     * Constructor for an existing peer; we'll share two queues for in/out.
      *<P>
      * When using this class from the server (not client)
      * call {@link #setServer(Server)} before starting any thread.
@@ -140,14 +172,45 @@ public class StringConnection
     /**
      * Read the next string sent from the remote end,
      * blocking if necessary to wait.
-     *<P>
-     * Synchronized on in-buffer.
+     * If the peer sent a message object, returns its {@link SOCMessage#toCmd()}.
      *
      * @return Next string in the in-buffer; never {@code null}.
      * @throws EOFException Our input buffer has reached EOF
      * @throws IllegalStateException Server has not yet accepted our connection
+     * @see #readNextMessage()
      */
     public String readNext() throws EOFException, IllegalStateException
+    {
+        final Object obj = readNextObject();
+        return (obj instanceof SOCMessage) ? ((SOCMessage) obj).toCmd() : (String) obj;
+    }
+
+    /**
+     * Read the next message sent from the remote end, blocking if necessary to wait.
+     * If the peer sent a message object, returns it without any parsing;
+     * if it sent a string, returns {@link SOCMessage#toMsg(String)} of that string.
+     *
+     * @return Next message in the in-buffer, or {@code null} if it was a string which couldn't be parsed
+     * @throws EOFException Our input buffer has reached EOF
+     * @throws IllegalStateException Server has not yet accepted our connection
+     * @since 2.0.00
+     */
+    public SOCMessage readNextMessage() throws EOFException, IllegalStateException
+    {
+        final Object obj = readNextObject();
+        return (obj instanceof SOCMessage) ? (SOCMessage) obj : SOCMessage.toMsg((String) obj);
+    }
+
+    /**
+     * Read the next item sent from the remote end, blocking if necessary to wait.
+     * Only one thread should read from a connection.
+     *
+     * @return Next {@link String} or {@link SOCMessage} in the in-buffer; never {@code null}.
+     * @throws EOFException Our input buffer has reached EOF
+     * @throws IllegalStateException Server has not yet accepted our connection
+     * @since 2.0.00
+     */
+    private Object readNextObject() throws EOFException, IllegalStateException
     {
         if (! accepted)
         {
@@ -160,47 +223,24 @@ public class StringConnection
             throw (EOFException) error;
         }
 
-        Object obj;
-
-        synchronized (in)
+        final Object obj = in.take();
+        if (obj == EOF_MARKER)
         {
-            while (in.isEmpty())
-            {
-                if (in_reachedEOF)
-                {
-                    error = new EOFException();
-                    throw (EOFException) error;
-                }
-
-                try
-                {
-                    in.wait();
-                }
-                catch (InterruptedException e)
-                {
-                    // interruption is normal, not exceptional
-                }
-            }
-            obj = in.elementAt(0);
-            in.removeElementAt(0);
-
-            if (obj == EOF_MARKER)
-            {
-                in_reachedEOF = true;
-                if (ourServer != null)
-                    ourServer.removeConnection(this, false);
-                error = new EOFException();
-                throw (EOFException) error;
-            }
+            in_reachedEOF = true;
+            if (ourServer != null)
+                ourServer.removeConnection(this, false);
+            error = new EOFException();
+            throw (EOFException) error;
         }
-        return (String) obj;
+
+        return obj;
     }
 
     /**
      * Send data over the connection.  Does not block.
      * Ignored if setEOF() has been called.
      *<P>
-     * <B>Threads:</B> Safe to call from any thread; synchronizes on internal {@code out} queue.
+     * <B>Threads:</B> Safe to call from any thread.
      *
      * @param dat Data to send
      *
@@ -213,6 +253,102 @@ public class StringConnection
         if (dat == null)
             throw new IllegalArgumentException("null");
 
+        putObject(dat);
+    }
+
+    /**
+     * Send a message over the connection, as an object unless {@link #PASS_MESSAGE_OBJECTS} is false.
+     * Does not block. Ignored if setEOF() has been called.
+     *<P>
+     * <B>Threads:</B> Safe to call from any thread.
+     *
+     * @param mes Message to send; should be immutable
+     * @throws IllegalArgumentException if {@code mes} is {@code null}
+     * @throws IllegalStateException if not yet accepted by server
+     * @since 2.0.00
+     */
+    @Override
+    public void put(SOCMessage mes)
+        throws IllegalArgumentException, IllegalStateException
+    {
+        if (mes == null)
+            throw new IllegalArgumentException("null");
+
+        putObject((PASS_MESSAGE_OBJECTS && isPassable(mes)) ? mes : mes.toCmd());
+    }
+
+    /**
+     * Send a pre-encoded message over the connection: Its message object if it has one which
+     * {@link #isPassable(SOCMessage)} and {@link #PASS_MESSAGE_OBJECTS}, otherwise its text. Does not block.
+     * Ignored if setEOF() has been called.
+     *<P>
+     * <B>Threads:</B> Safe to call from any thread.
+     *
+     * @param msg Message to send; not null
+     * @throws IllegalStateException if not yet accepted by server
+     * @since 2.0.00
+     */
+    @Override
+    public void put(EncodedMessage msg)
+        throws IllegalStateException
+    {
+        final SOCMessage mes = msg.getMessage();
+        putObject(((mes != null) && PASS_MESSAGE_OBJECTS && isPassable(mes)) ? mes : msg.getText());
+    }
+
+    /**
+     * Can this message be passed to a local peer as an object, instead of as text?
+     * True if all of its class's instance fields are primitives or {@link String}s:
+     * Since messages have no setters, that makes it an immutable value which can safely be
+     * shared with any number of peers. Messages holding arrays, collections, or other objects
+     * might share them with the sender's game data, or be built differently by the sender than
+     * by parsing, so they're sent as text.
+     *<P>
+     * The result for each message class is calculated once and cached.
+     *
+     * @param mes  Message to check; not null
+     * @return  True if {@code mes} can be passed as an object
+     * @since 2.0.00
+     */
+    public static boolean isPassable(final SOCMessage mes)
+    {
+        final Class<?> cl = mes.getClass();
+        Boolean passable = passableClasses.get(cl);
+        if (passable == null)
+        {
+            boolean ok = true;
+            for (Class<?> c = cl; ok && (c != null) && (c != Object.class); c = c.getSuperclass())
+            {
+                for (Field f : c.getDeclaredFields())
+                {
+                    if (Modifier.isStatic(f.getModifiers()))
+                        continue;
+
+                    final Class<?> ft = f.getType();
+                    if (! (ft.isPrimitive() || (ft == String.class)))
+                    {
+                        ok = false;
+                        break;
+                    }
+                }
+            }
+
+            passable = Boolean.valueOf(ok);
+            passableClasses.put(cl, passable);
+        }
+
+        return passable.booleanValue();
+    }
+
+    /**
+     * Add a {@link String} or {@link SOCMessage} to the out-buffer, unless setEOF() has been called.
+     * @param obj  Item to send; not null
+     * @throws IllegalStateException if not yet accepted by server
+     * @since 2.0.00
+     */
+    private void putObject(final Object obj)
+        throws IllegalStateException
+    {
         if (! accepted)
         {
             error = new IllegalStateException("Not accepted by server yet");
@@ -221,10 +357,13 @@ public class StringConnection
         if (out_setEOF)
             return;
 
-        synchronized (out)
+        out.put(obj);
+        if (ourServer != null)
         {
-            out.addElement(dat);
-            out.notifyAll();  // Another thread may have been waiting for input
+            if (obj instanceof SOCMessage)
+                ourServer.metrics.recordOutbound((SOCMessage) obj, 0);
+            else
+                ourServer.metrics.recordOutbound(ServerMetrics.typeOf((String) obj), 0);
         }
     }
 
@@ -239,14 +378,12 @@ public class StringConnection
 
         D.ebugPrintln("DISCONNECTING " + data);
         accepted = false;
-        synchronized (out)
-        {
-            // let the remote-end know we're closing
-            out.clear();
-            out.addElement(EOF_MARKER);
-            out_setEOF = true;
-            out.notifyAll();
-        }
+
+        // let the remote-end know we're closing
+        out.clear();
+        out_setEOF = true;
+        out.put(EOF_MARKER);
+
         disconnectSoft();  // clear "in", set its EOF
     }
 
@@ -264,13 +401,9 @@ public class StringConnection
         // disconnect(), and it's OK to do this part twice.
 
         D.ebugPrintln("DISCONNECTING(SOFT) " + data);
-        synchronized (in)
-        {
-            in.clear();
-            in.addElement(EOF_MARKER);
-            in_reachedEOF = true;
-            in.notifyAll();
-        }
+        in.clear();
+        in_reachedEOF = true;
+        in.put(EOF_MARKER);
     }
 
     /**
@@ -337,18 +470,12 @@ public class StringConnection
     /**
      * Signal the end of outbound data.
      * Not the same as closing, because we don't terminate the inbound side.
-     *
-     * Synchronizes on out-buffer.
      */
     public void setEOF()
     {
-        synchronized (out)
-        {
-            // let the remote-end know we're closing
-            out.addElement(EOF_MARKER);
-            out_setEOF = true;
-            out.notifyAll();
-        }
+        // let the remote-end know we're closing
+        out_setEOF = true;
+        out.put(EOF_MARKER);
     }
 
     /**
@@ -356,10 +483,7 @@ public class StringConnection
      */
     public boolean isInEOF()
     {
-        synchronized (in)
-        {
-            return in_reachedEOF;
-        }
+        return in_reachedEOF;
     }
 
     /**
@@ -369,10 +493,7 @@ public class StringConnection
      */
     public boolean isOutEOF()
     {
-        synchronized (out)
-        {
-            return out_setEOF;
-        }
+        return out_setEOF;
     }
 
     /**
@@ -437,7 +558,18 @@ public class StringConnection
      */
     public boolean isInputAvailable()
     {
-        return (! in_reachedEOF) && (0 < in.size());
+        return (! in_reachedEOF) && ! in.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return  Number of items waiting in the queue to our peer; takes time proportional to that number
+     * @since 2.0.00
+     */
+    @Override
+    public int getOutboundQueueDepth()
+    {
+        return out.size();
     }
 
     /**
@@ -460,11 +592,13 @@ public class StringConnection
         try
         {
             final InboundMessageQueue inQueue = ourServer.inQueue;
+            final ServerMetrics metrics = ourServer.metrics;
 
             if (! in_reachedEOF)
             {
-                String firstMsg = readNext();
-                final SOCMessage msgObj = SOCMessage.toMsg(firstMsg);  // parse
+                final SOCMessage msgObj = readNextMessage();  // parse if needed
+                if (msgObj != null)
+                    metrics.recordInbound(msgObj, 0);
                 if (! ourServer.processFirstCommand(msgObj, this))
                 {
                     if (msgObj != null)
@@ -474,10 +608,12 @@ public class StringConnection
 
             while (! in_reachedEOF)
             {
-                final String msgStr = readNext();  // blocks until next message is available
-                final SOCMessage msgObj = SOCMessage.toMsg(msgStr);
+                final SOCMessage msgObj = readNextMessage();  // blocks until next message is available
                 if (msgObj != null)
+                {
+                    metrics.recordInbound(msgObj, 0);
                     inQueue.push(msgObj, this);
+                }
             }
         }
         catch (Exception e)
@@ -515,4 +651,77 @@ public class StringConnection
         return sb.toString();
     }
 
+    /**
+     * One direction's message queue between two {@link StringConnection} peers.
+     * Lock-free: Any number of threads can {@link #put(Object)} without blocking each other or the reader.
+     * The peer's single reader thread {@link #take()}s the items in order, parking while the queue is empty.
+     * @since 2.0.00
+     */
+    protected static final class MessageQueue
+    {
+        private final ConcurrentLinkedQueue<Object> q = new ConcurrentLinkedQueue<Object>();
+
+        /** Reader thread parked in {@link #take()}, or null */
+        private volatile Thread waiter;
+
+        /**
+         * Add an item to the end of the queue, and wake the reader if it's waiting.
+         * @param obj  Item to add; not null
+         */
+        public void put(final Object obj)
+        {
+            q.offer(obj);
+            final Thread w = waiter;
+            if (w != null)
+                LockSupport.unpark(w);
+        }
+
+        /**
+         * Remove and return the first item, waiting if necessary until there is one.
+         * Should be called by only one thread at a time.
+         * @return  The first item; never null
+         */
+        public Object take()
+        {
+            Object obj = q.poll();
+            if (obj != null)
+                return obj;
+
+            waiter = Thread.currentThread();
+            try
+            {
+                // check again after setting waiter, in case put was called just before
+                while ((obj = q.poll()) == null)
+                {
+                    LockSupport.park(this);
+                    Thread.interrupted();  // interruption is normal, not exceptional; clear it so we don't spin
+                }
+            }
+            finally
+            {
+                waiter = null;
+            }
+
+            return obj;
+        }
+
+        /** Get the number of items in the queue. Not a constant-time operation. */
+        public int size()
+        {
+            return q.size();
+        }
+
+        /** Is the queue empty? */
+        public boolean isEmpty()
+        {
+            return q.isEmpty();
+        }
+
+        /** Discard all items in the queue. */
+        public void clear()
+        {
+            q.clear();
+        }
+    }
+
 }
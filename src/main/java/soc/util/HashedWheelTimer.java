@@ -0,0 +1,422 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timer for many tasks with coarse deadlines, such as per-game turn timeouts:
+ * A hashed timing wheel, with O(1) {@link #schedule(Task, long)} and {@link Task#cancel()}
+ * no matter how many tasks are pending.
+ *<P>
+ * The wheel is an array of buckets, each holding a linked list of tasks. One daemon thread advances
+ * one bucket every tick, and runs the tasks in that bucket whose deadlines have arrived; tasks
+ * further in the future stay in the bucket for more turns of the wheel. Tasks run on
+ * that thread at most one tick after their deadline, never early.
+ *<P>
+ * The method names are like {@link java.util.Timer}'s, and {@link Task} is used like {@link java.util.TimerTask}.
+ * Like {@code Timer}, tasks should be short, since they're all run by the timer's one thread:
+ * A task which does more work should post it to another thread.
+ * Code written for {@code Timer} can still schedule a {@link java.util.TimerTask}
+ * with {@link #schedule(java.util.TimerTask, long)} or {@link #schedule(java.util.TimerTask, long, long)}.
+ *
+ * @since 2.0.00
+ */
+public class HashedWheelTimer
+{
+    /** Length of each tick, in nanoseconds */
+    private final long tickNanos;
+
+    /** The wheel's buckets; each is the head of a linked list of {@link Task}s, or null. */
+    private final Task[] wheel;
+
+    /** {@link #wheel}.length - 1, to find a tick's bucket; wheel length is a power of 2 */
+    private final int mask;
+
+    /** Start time of tick 0, from {@link System#nanoTime()} */
+    private final long startTime;
+
+    /**
+     * Next tick to be processed by the timer thread.
+     * Synchronized on this timer.
+     */
+    private long tick;
+
+    /** Number of scheduled tasks; synchronized on this timer. */
+    private int size;
+
+    /** The timer's thread, which runs expired tasks. */
+    private final Thread thread;
+
+    /** Set by {@link #stop()}. */
+    private volatile boolean stopped;
+
+    /**
+     * Create and start a timer with a daemon thread.
+     * @param threadName  Name for the timer's thread
+     * @param tickMillis  Length of each tick, in milliseconds; tasks run at most this long after their deadline
+     * @param wheelSize  Number of buckets; rounded up to a power of 2. Tasks due within
+     *     {@code tickMillis * wheelSize} milliseconds don't need to be checked more than once.
+     * @throws IllegalArgumentException if {@code tickMillis} or {@code wheelSize} &lt;= 0
+     */
+    public HashedWheelTimer(final String threadName, final int tickMillis, final int wheelSize)
+        throws IllegalArgumentException
+    {
+        if ((tickMillis <= 0) || (wheelSize <= 0) || (wheelSize > (1 << 30)))
+            throw new IllegalArgumentException("tickMillis, wheelSize");
+
+        int n = 1;
+        while (n < wheelSize)
+            n <<= 1;
+        wheel = new Task[n];
+        mask = n - 1;
+        tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        startTime = System.nanoTime();
+
+        thread = new Thread(threadName)
+        {
+            public void run()
+            {
+                runTimer();
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Schedule a task to run once after a delay.
+     * @param task  Task to run
+     * @param delay  Delay in milliseconds; if &lt;= 0, task runs at the next tick
+     * @throws IllegalStateException if {@code task} is already scheduled, was cancelled, or timer was stopped
+     */
+    public void schedule(final Task task, final long delay)
+        throws IllegalStateException
+    {
+        schedule(task, delay, 0);
+    }
+
+    /**
+     * Schedule a {@link java.util.TimerTask} to run once after a delay, for code written for the
+     * {@link java.util.Timer} that {@code Server.utilTimer} was before v2.0.00.
+     * The timer can't see calls to {@link java.util.TimerTask#cancel()}:
+     * To cancel, call {@link Task#cancel()} on the returned task.
+     * @param task  Task to run
+     * @param delay  Delay in milliseconds; if &lt;= 0, task runs at the next tick
+     * @return  the scheduled wrapper task which calls {@code task}
+     * @throws IllegalStateException if timer was stopped
+     * @see #schedule(Task, long)
+     * @since 2.0.00
+     */
+    public Task schedule(final java.util.TimerTask task, final long delay)
+        throws IllegalStateException
+    {
+        return schedule(task, delay, 0);
+    }
+
+    /**
+     * Schedule a {@link java.util.TimerTask} to run repeatedly with a fixed delay between runs,
+     * for code written for the {@link java.util.Timer} that {@code Server.utilTimer} was before v2.0.00.
+     * The timer can't see calls to {@link java.util.TimerTask#cancel()}:
+     * To cancel, call {@link Task#cancel()} on the returned task.
+     * @param task  Task to run
+     * @param delay  Delay before first run, in milliseconds; if &lt;= 0, task runs at the next tick
+     * @param period  Delay between runs, in milliseconds, or 0 to run only once
+     * @return  the scheduled wrapper task which calls {@code task}
+     * @throws IllegalArgumentException if {@code period} &lt; 0
+     * @throws IllegalStateException if timer was stopped
+     * @see #schedule(Task, long, long)
+     * @since 2.0.00
+     */
+    public Task schedule(final java.util.TimerTask task, final long delay, final long period)
+        throws IllegalArgumentException, IllegalStateException
+    {
+        if (task == null)
+            throw new NullPointerException("task");
+
+        final Task wrapper = new Task()
+        {
+            public void run()
+            {
+                task.run();
+            }
+        };
+        schedule(wrapper, delay, period);
+
+        return wrapper;
+    }
+
+    /**
+     * Schedule a task to run repeatedly with a fixed delay between runs, like
+     * {@link java.util.Timer#schedule(java.util.TimerTask, long, long)}. Each run's deadline
+     * is {@code period} milliseconds after the previous run ended.
+     * @param task  Task to run
+     * @param delay  Delay before first run, in milliseconds; if &lt;= 0, task runs at the next tick
+     * @param period  Delay between runs, in milliseconds, or 0 to run only once
+     * @throws IllegalArgumentException if {@code period} &lt; 0
+     * @throws IllegalStateException if {@code task} is already scheduled, was cancelled, or timer was stopped
+     */
+    public void schedule(final Task task, final long delay, final long period)
+        throws IllegalArgumentException, IllegalStateException
+    {
+        if (period < 0)
+            throw new IllegalArgumentException("period");
+        if (stopped)
+            throw new IllegalStateException("timer stopped");
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(delay, 0));
+
+        synchronized (this)
+        {
+            synchronized (task)
+            {
+                if (task.cancelled)
+                    throw new IllegalStateException("task cancelled");
+                if (task.timer != null)
+                    throw new IllegalStateException("task already scheduled");
+
+                task.timer = this;
+                task.period = period;
+            }
+            add(task, deadline);
+        }
+    }
+
+    /**
+     * Add a task to its deadline's bucket.
+     * Caller must synchronize on this timer, and set {@code task.timer}.
+     * @param task  Task to add
+     * @param deadline  Task's deadline, from {@link System#nanoTime()}
+     */
+    private void add(final Task task, final long deadline)
+    {
+        // Task is due at the end of the tick containing its deadline
+        long due = (deadline - startTime + tickNanos - 1) / tickNanos - 1;
+        if (due < tick)
+            due = tick;
+
+        task.rounds = (due - tick) / wheel.length;
+        final int b = (int) (due & mask);
+        task.bucket = b;
+        task.prev = null;
+        task.next = wheel[b];
+        if (task.next != null)
+            task.next.prev = task;
+        wheel[b] = task;
+        task.inWheel = true;
+        ++size;
+    }
+
+    /**
+     * Remove a task from its bucket. Caller must synchronize on this timer.
+     * @param task  Task to remove; must be in the wheel
+     */
+    private void remove(final Task task)
+    {
+        if (task.prev != null)
+            task.prev.next = task.next;
+        else
+            wheel[task.bucket] = task.next;
+        if (task.next != null)
+            task.next.prev = task.prev;
+        task.prev = null;
+        task.next = null;
+        task.inWheel = false;
+        --size;
+    }
+
+    /**
+     * Cancel a task; called from {@link Task#cancel()}.
+     * @param task  Task to cancel
+     * @return  true if was scheduled and hadn't run yet
+     */
+    private synchronized boolean cancel(final Task task)
+    {
+        synchronized (task)
+        {
+            if (task.timer != this)
+                return false;
+            task.timer = null;
+        }
+
+        if (task.inWheel)
+            remove(task);
+        return true;
+    }
+
+    /**
+     * Get the number of tasks currently scheduled.
+     * @return  Number of scheduled tasks which haven't yet run or been cancelled
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * Stop the timer thread. Scheduled tasks won't run.
+     */
+    public void stop()
+    {
+        stopped = true;
+        thread.interrupt();
+    }
+
+    /**
+     * The timer thread: Each tick, run the expired tasks from that tick's bucket.
+     */
+    private void runTimer()
+    {
+        final ArrayList<Task> expired = new ArrayList<Task>();
+
+        while (! stopped)
+        {
+            // Wait for end of current tick
+            final long tickEnd;
+            synchronized (this)
+            {
+                tickEnd = startTime + (tick + 1) * tickNanos;
+            }
+            long wait;
+            while ((wait = tickEnd - System.nanoTime()) > 0)
+            {
+                try
+                {
+                    Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+                }
+                catch (InterruptedException e)
+                {
+                    if (stopped)
+                        return;
+                }
+            }
+
+            synchronized (this)
+            {
+                Task t = wheel[(int) (tick & mask)];
+                while (t != null)
+                {
+                    final Task next = t.next;
+                    if (t.rounds > 0)
+                    {
+                        --t.rounds;
+                    } else {
+                        remove(t);
+                        expired.add(t);
+                    }
+                    t = next;
+                }
+                ++tick;
+            }
+
+            for (int i = 0; i < expired.size(); ++i)
+            {
+                final Task t = expired.get(i);
+                final long period;
+                synchronized (t)
+                {
+                    if (t.timer != this)
+                        continue;  // was cancelled after removal from wheel
+                    period = t.period;
+                    if (period == 0)
+                        t.timer = null;  // so task can schedule itself again from run()
+                }
+
+                try
+                {
+                    t.run();
+                }
+                catch (Throwable th)
+                {
+                    System.err.println("HashedWheelTimer " + thread.getName() + ": task threw " + th);
+                    th.printStackTrace();
+                }
+
+                if (period != 0)
+                {
+                    synchronized (this)
+                    {
+                        synchronized (t)
+                        {
+                            if ((t.timer != this) || stopped)
+                                continue;  // cancelled during run
+                        }
+                        add(t, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(period));
+                    }
+                }
+            }
+            expired.clear();
+        }
+    }
+
+    /**
+     * A task which can be scheduled once on a {@link HashedWheelTimer}, like {@link java.util.TimerTask}.
+     * A one-time task can be scheduled again after it's run, for example from its own {@link #run()}.
+     * The fields here are for the timer's use.
+     */
+    public static abstract class Task implements Runnable
+    {
+        /** Timer this task is scheduled on, or null; synchronized on this task */
+        private HashedWheelTimer timer;
+
+        /** True if {@link #cancel()} was called; synchronized on this task */
+        private boolean cancelled;
+
+        /** Repeat period in milliseconds, or 0; synchronized on {@link #timer} */
+        private long period;
+
+        /** Number of turns of the wheel before this task's deadline arrives; synchronized on {@link #timer} */
+        private long rounds;
+
+        /** Bucket in the wheel; synchronized on {@link #timer} */
+        private int bucket;
+
+        /** Other tasks in the same bucket; synchronized on {@link #timer} */
+        private Task prev, next;
+
+        /**
+         * True if in a bucket of the wheel, false if not scheduled or is expired and about to run;
+         * synchronized on {@link #timer}
+         */
+        private boolean inWheel;
+
+        /**
+         * Cancel this task: If scheduled, it won't run again. A cancelled task can't be scheduled.
+         * If currently running, that run will finish.
+         * @return  true if this prevents the task from running at least once
+         */
+        public boolean cancel()
+        {
+            final HashedWheelTimer tm;
+            synchronized (this)
+            {
+                cancelled = true;
+                tm = timer;
+            }
+
+            return (tm != null) && tm.cancel(this);
+        }
+
+        /** The task's action, run from the timer's thread. */
+        public abstract void run();
+    }
+
+}
@@ -0,0 +1,324 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.util;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * A set of small non-negative ints, such as board node or edge coordinates, stored as a bitset.
+ * Used by {@link soc.game.SOCPlayer} for its legal and potential piece location sets,
+ * which the robots copy many times while planning: Copying this set is an array clone,
+ * and {@link #contains(int)}, {@link #add(int)} and {@link #remove(int)} don't box their ints.
+ *<P>
+ * Board coordinates are at most about 0x1000 even on {@link soc.game.SOCBoardLarge},
+ * so the set's array is at most a few hundred bytes. The array grows as needed to hold the largest element added.
+ * Negative values are never members: {@link #contains(int)} and {@link #remove(int)} return false for them,
+ * and {@link #add(int)} throws an exception.
+ *<P>
+ * To iterate: {@code for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1))}.
+ * For callers which need a {@code Collection}, {@link #toHashSet()} returns a copy.
+ *<P>
+ * Not thread-safe.
+ *
+ * @since 2.0.00
+ */
+public class IntBitSet
+    implements Serializable, Cloneable
+{
+    private static final long serialVersionUID = 2000L;
+
+    /** Bit {@code i % 64} of {@code words[i / 64]} is set if {@code i} is a member. Never null. */
+    private long[] words;
+
+    /** Number of members */
+    private int size;
+
+    /** Create a new empty set. */
+    public IntBitSet()
+    {
+        words = new long[4];
+    }
+
+    /**
+     * Create a copy of another set.
+     * @param other  Set to copy; not null
+     */
+    public IntBitSet(final IntBitSet other)
+    {
+        words = other.words.clone();
+        size = other.size;
+    }
+
+    /**
+     * Create a set with the contents of a collection.
+     * @param c  Collection of non-negative ints to add; not null
+     * @throws IllegalArgumentException if {@code c} contains a negative value
+     * @throws NullPointerException if {@code c} contains null
+     */
+    public IntBitSet(final Collection<Integer> c)
+        throws IllegalArgumentException, NullPointerException
+    {
+        this();
+        addAll(c);
+    }
+
+    /**
+     * Is this int a member of the set?
+     * @param i  Value to check
+     * @return  True if {@code i} is in the set
+     */
+    public boolean contains(final int i)
+    {
+        final int w = i >> 6;
+        return (i >= 0) && (w < words.length) && ((words[w] & (1L << i)) != 0);
+    }
+
+    /**
+     * Add an int to the set, if not already there.
+     * @param i  Value to add; not negative
+     * @return  True if the set didn't already contain {@code i}
+     * @throws IllegalArgumentException if {@code i} &lt; 0
+     */
+    public boolean add(final int i)
+        throws IllegalArgumentException
+    {
+        if (i < 0)
+            throw new IllegalArgumentException("negative: " + i);
+
+        final int w = i >> 6;
+        if (w >= words.length)
+        {
+            final long[] w2 = new long[Math.max(w + 1, 2 * words.length)];
+            System.arraycopy(words, 0, w2, 0, words.length);
+            words = w2;
+        }
+
+        final long bit = 1L << i;
+        if ((words[w] & bit) != 0)
+            return false;
+
+        words[w] |= bit;
+        ++size;
+        return true;
+    }
+
+    /**
+     * Remove an int from the set, if present.
+     * @param i  Value to remove
+     * @return  True if the set contained {@code i}
+     */
+    public boolean remove(final int i)
+    {
+        final int w = i >> 6;
+        if ((i < 0) || (w >= words.length))
+            return false;
+
+        final long bit = 1L << i;
+        if ((words[w] & bit) == 0)
+            return false;
+
+        words[w] &= ~bit;
+        --size;
+        return true;
+    }
+
+    /**
+     * Add all members of a collection.
+     * @param c  Collection of non-negative ints to add; not null
+     * @throws IllegalArgumentException if {@code c} contains a negative value
+     * @throws NullPointerException if {@code c} contains null
+     */
+    public void addAll(final Collection<Integer> c)
+        throws IllegalArgumentException, NullPointerException
+    {
+        for (Integer i : c)
+            add(i.intValue());
+    }
+
+    /**
+     * Add all members of another set.
+     * @param other  Set whose members to add; not null
+     */
+    public void addAll(final IntBitSet other)
+    {
+        if (other.words.length > words.length)
+        {
+            final long[] w2 = new long[other.words.length];
+            System.arraycopy(words, 0, w2, 0, words.length);
+            words = w2;
+        }
+
+        int n = 0;
+        for (int w = 0; w < words.length; ++w)
+        {
+            if (w < other.words.length)
+                words[w] |= other.words[w];
+            n += Long.bitCount(words[w]);
+        }
+        size = n;
+    }
+
+    /** Remove all members. */
+    public void clear()
+    {
+        for (int w = 0; w < words.length; ++w)
+            words[w] = 0;
+        size = 0;
+    }
+
+    /**
+     * Get the number of members.
+     * @return  Number of ints in the set
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Is the set empty?
+     * @return  True if {@link #size()} is 0
+     */
+    public boolean isEmpty()
+    {
+        return (size == 0);
+    }
+
+    /**
+     * Find the smallest member &gt;= {@code from}, for iterating in ascending order.
+     * @param from  Value to start searching at; if negative, starts at 0
+     * @return  The next member, or -1 if none
+     */
+    public int nextSetBit(int from)
+    {
+        if (from < 0)
+            from = 0;
+        int w = from >> 6;
+        if (w >= words.length)
+            return -1;
+
+        long word = words[w] & (-1L << from);
+        while (true)
+        {
+            if (word != 0)
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w == words.length)
+                return -1;
+            word = words[w];
+        }
+    }
+
+    /**
+     * Get the members as an array, in ascending order.
+     * @return  A new array of the members; length is {@link #size()}
+     */
+    public int[] toArray()
+    {
+        final int[] arr = new int[size];
+        int k = 0;
+        for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1))
+            arr[k++] = i;
+
+        return arr;
+    }
+
+    /**
+     * Get the members as a new {@link HashSet}, for callers which need a {@code Collection}.
+     * Changes to the returned set don't affect this set.
+     * @return  A new HashSet of the members
+     */
+    public HashSet<Integer> toHashSet()
+    {
+        final HashSet<Integer> hs = new HashSet<Integer>((int) (size * 1.4f) + 1);
+        for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1))
+            hs.add(Integer.valueOf(i));
+
+        return hs;
+    }
+
+    /**
+     * Make a copy of this set.
+     * @return  A copy, same as {@link #IntBitSet(IntBitSet) new IntBitSet(this)}
+     */
+    @Override
+    public IntBitSet clone()
+    {
+        return new IntBitSet(this);
+    }
+
+    /**
+     * Do these sets have the same members?
+     * @param o  Object to compare
+     * @return  True if {@code o} is an IntBitSet with the same members
+     */
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (o == this)
+            return true;
+        if (! (o instanceof IntBitSet))
+            return false;
+
+        final IntBitSet other = (IntBitSet) o;
+        if (other.size != size)
+            return false;
+        final int L = Math.max(words.length, other.words.length);
+        for (int w = 0; w < L; ++w)
+        {
+            final long a = (w < words.length) ? words[w] : 0, b = (w < other.words.length) ? other.words[w] : 0;
+            if (a != b)
+                return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        long h = 1234;
+        for (int w = words.length; --w >= 0; )
+            h ^= words[w] * (w + 1);
+
+        return (int) ((h >> 32) ^ h);
+    }
+
+    /**
+     * Members for debugging, in the same format as {@link java.util.AbstractCollection#toString()}
+     * but in hex, like most board coordinates: {@code [0x405, 0x607]}.
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1))
+        {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append("0x").append(Integer.toHexString(i));
+        }
+        sb.append(']');
+
+        return sb.toString();
+    }
+
+}
@@ -20,8 +20,8 @@
  **/
 package soc.util;
 
-import java.util.Enumeration;
-import java.util.Vector;
+import java.util.Iterator;
+import java.util.List;
 
 import soc.debug.D;
 import soc.game.SOCGame;
@@ -82,9 +82,9 @@ public class SOCGameBoardReset
      *   will be called.  The old game's state will be changed to RESET_OLD.
      * @param memberConns Game members (Connections),
      *   as retrieved by {@link soc.server.SOCGameListAtServer#getMembers(String)}.
-     *   Contents of this vector will be changed to remove any robot members.
+     *   Contents of this list will be changed to remove any robot members.
      */
-    public SOCGameBoardReset (SOCGame oldGame, Vector<Connection> memberConns)
+    public SOCGameBoardReset (SOCGame oldGame, List<Connection> memberConns)
     {
         oldGameState = oldGame.getGameState();
         hadRobots = false;
@@ -150,7 +150,7 @@ public class SOCGameBoardReset
      * @param newGame New game (if resetting), or only game
      * @param oldGame Old game (if resetting), or null
      * @param memberConns Members of old game, from {@link soc.server.SOCGameListAtServer#getMembers(String)};
-     *                   a Vector of {@link Connection}s
+     *                   a List of {@link Connection}s
      * @param humanConns New array to fill with human players; indexed 0 to SOCGame.MAXPLAYERS-1.
      *                   humanConns[pn] will be the human player at position pn, or null.
      * @param robotConns New array to fill with robot players; indexed 0 to SOCGame.MAXPLAYERS-1.
@@ -159,17 +159,17 @@ public class SOCGameBoardReset
      * @return The number of human players in newGame
      */
     public static int sortPlayerConnections
-        (SOCGame newGame, SOCGame oldGame, Vector<Connection> memberConns,
+        (SOCGame newGame, SOCGame oldGame, List<Connection> memberConns,
          Connection[] humanConns, Connection[] robotConns)
     {
         // This enum is easier than enumerating all connected clients;
         // there is no server-wide mapping of clientname -> connection.
 
         int numHuman = 0;
-        Enumeration<Connection> playersEnum = memberConns.elements();
-        while (playersEnum.hasMoreElements())
+        Iterator<Connection> playersEnum = memberConns.iterator();
+        while (playersEnum.hasNext())
         {
-            Connection pCon = playersEnum.nextElement();
+            Connection pCon = playersEnum.next();
             String pname = pCon.getData();
             SOCPlayer p = newGame.getPlayer(pname);
             if (p != null)
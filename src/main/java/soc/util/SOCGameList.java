@@ -27,15 +27,17 @@ import soc.game.SOCGameOption;
 import soc.message.SOCGames;
 
 import java.util.Collection;
-import java.util.Hashtable;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 /**
  * A class for creating and tracking the games;
  * contains each game's name, {@link SOCGameOption game options},
- * {@link SOCGame} object, and mutex for synchronization.
+ * {@link SOCGame} object, and lock for synchronization.
  *<P>
  * In 1.1.07, moved from soc.server to soc.util package for client's use.
  * Some methods moved to new subclass {@link soc.server.SOCGameListAtServer}.
@@ -48,18 +50,24 @@ import java.util.Set;
  * and not stored as part of the game name in this list.
  * Besides addGame, never supply this prefix to a SOCGameList method taking a game name;
  * supply the game name without the prefix.
+ *<P>
+ * Each game has its own {@link ReentrantLock}, from {@link #getGameLock(String)} or taken and released with
+ * {@link #takeMonitorForGame(String)} and {@link #releaseMonitorForGame(String)}. The game maps are concurrent,
+ * so looking up a game or its lock doesn't contend with activity in other games or with adding
+ * and removing games. Before v2.0.00 each game had a {@link MutexFlag} and the maps were {@code Hashtable}s.
  *
  * @author Robert S. Thomas
  */
 public class SOCGameList
 {
-    /** key = String, value = {@link GameInfo}; includes mutexes to synchronize game state access,
-     *  game options, and other per-game info
+    /** key = String, value = {@link GameInfo}; includes locks to synchronize game state access,
+     *  game options, and other per-game info.
+     *  Before v2.0.00 this was a {@code Hashtable}.
      */
-    protected Hashtable<String, GameInfo> gameInfo;
+    protected ConcurrentHashMap<String, GameInfo> gameInfo;
 
-    /** synchronized map of game names to {@link SOCGame} objects */
-    protected Hashtable<String, SOCGame> gameData;
+    /** concurrent map of game names to {@link SOCGame} objects; before v2.0.00 this was a {@code Hashtable} */
+    protected ConcurrentHashMap<String, SOCGame> gameData;
 
     /** used with gamelist's monitor */
     protected boolean inUse;
@@ -69,8 +77,8 @@ public class SOCGameList
      */
     public SOCGameList()
     {
-        gameInfo = new Hashtable<String, GameInfo>();
-        gameData = new Hashtable<String, SOCGame>();
+        gameInfo = new ConcurrentHashMap<String, GameInfo>();
+        gameData = new ConcurrentHashMap<String, SOCGame>();
         inUse = false;
     }
 
@@ -106,12 +114,33 @@ public class SOCGameList
         this.notify();
     }
 
+    /**
+     * Get this game's lock, which synchronizes access to the game's state and members.
+     * {@link #takeMonitorForGame(String)} and {@link #releaseMonitorForGame(String)} lock and unlock it.
+     *<P>
+     * If you lock it directly, check {@link #isGame(String)} afterwards, in case the game was deleted while waiting.
+     * A game's lock is reentrant: A thread holding it can take it again, and must release it as many times.
+     *
+     * @param game  the name of the game
+     * @return the game's lock, or {@code null} if game not found in the list
+     * @since 2.0.00
+     */
+    public ReentrantLock getGameLock(final String game)
+    {
+        final GameInfo info = gameInfo.get(game);
+        return (info != null) ? info.lock : null;
+    }
+
     /**
      * take the monitor for this game.
-     * When done with it, you must call {@link #releaseMonitorForGame(String)}.
+     * When done with it, you must call {@link #releaseMonitorForGame(String)} from the same thread.
+     *<P>
+     * In v2.0.00 and newer, this locks the game's {@link ReentrantLock} from {@link #getGameLock(String)}.
+     * Only the game's lock is taken; other games and the list itself aren't locked.
+     * While another thread holds the lock, checks every 1000 ms whether the game has been deleted.
      *
      * @param game  the name of the game
-     * @return false if the game has no mutex, or game not found in the list,
+     * @return false if game not found in the list,
      *   or {@link GameInfo#gameDestroyed} is true
      */
     public boolean takeMonitorForGame(String game)
@@ -123,61 +152,42 @@ public class SOCGameList
         {
             return false;
         }
-        MutexFlag mutex = info.mutex;
-
-        if (mutex == null)
-        {
-            return false;
-        }
 
+        final ReentrantLock lock = info.lock;
         boolean done = false;
-
-        while (!done)
+        while (! done)
         {
-            if (mutex == null)
+            try
             {
-                return false;
+                done = lock.tryLock(1000, TimeUnit.MILLISECONDS);  // timeout to help avoid deadlock
             }
+            catch (InterruptedException e)
+            {
+                System.out.println("EXCEPTION IN takeMonitor() -- " + e);
+            }
+
             if (info.gameDestroyed)
             {
+                if (done)
+                    lock.unlock();
+
                 // Debug print is JM temp add: (TODO)
                 soc.debug.D.ebugPrintStackTrace(null, "Game " + game + " was destroyed while waiting");
                 return false;
             }
-
-            synchronized (mutex)
-            {
-                if (mutex.getState() == true)
-                {
-                    try
-                    {
-                        mutex.wait(1000);  // timeout to help avoid deadlock
-                    }
-                    catch (InterruptedException e)
-                    {
-                        System.out.println("EXCEPTION IN takeMonitor() -- " + e);
-                    }
-                }
-                else
-                {
-                    done = true;
-                }
-            }
         }
 
-        mutex.setState(true);
-
         return true;
     }
 
     /**
      * Release the monitor for this game,
-     * recently taken by {@link #takeMonitorForGame(String)}.
+     * recently taken by {@link #takeMonitorForGame(String)} in this thread.
      *<P>
      * Release is allowed even if {@link GameInfo#gameDestroyed} is true.
      *
      * @param game  the name of the game
-     * @return false if the game has no mutex
+     * @return false if game not found in the list, or this thread doesn't hold its monitor
      */
     public boolean releaseMonitorForGame(String game)
     {
@@ -186,19 +196,15 @@ public class SOCGameList
         GameInfo info = gameInfo.get(game);
         if (info == null)
             return false;
-        MutexFlag mutex = info.mutex;
 
-        if (mutex == null)
+        final ReentrantLock lock = info.lock;
+        if (! lock.isHeldByCurrentThread())
         {
+            soc.debug.D.ebugPrintStackTrace(null, "Game " + game + " monitor released but not held by this thread");
             return false;
         }
 
-        synchronized (mutex)
-        {
-            mutex.setState(false);
-            mutex.notify();
-        }
-
+        lock.unlock();
         return true;
     }
 
@@ -484,7 +490,9 @@ public class SOCGameList
     /**
      * Remove the game from the list
      * and call {@link SOCGame#destroyGame()}.
-     * Set its mutex's {@link GameInfo#gameDestroyed} flag.
+     * Set its {@link GameInfo#gameDestroyed} flag.
+     * If the current thread holds the game's lock, releases it so that any threads
+     * waiting for the lock will see that flag.
      *
      * @param gaName  the name of the game; should not be marked with any prefix.
      */
@@ -503,28 +511,33 @@ public class SOCGameList
         GameInfo info = gameInfo.get(gaName);
         info.gameDestroyed = true;
         gameInfo.remove(gaName);
-        synchronized (info.mutex)
-        {
-            info.mutex.notifyAll();
-        }
+        final ReentrantLock lock = info.lock;
+        while (lock.isHeldByCurrentThread())
+            lock.unlock();  // releaseMonitorForGame won't find it once removed from gameInfo
         info.dispose();
     }
 
     /**
      * Holds most information on one game, except its SOCGame object, which is kept separately.
-     * Includes mutexes to synchronize game state access.
+     * Includes the lock to synchronize game state access.
      * Kept within the {@link #gameInfo} map.
      * @author Jeremy D Monin <jeremy@nand.net>
      * @since 1.1.07
      */
     protected static class GameInfo
     {
-        public MutexFlag mutex;
+        /**
+         * Lock to synchronize game state access; see {@link SOCGameList#takeMonitorForGame(String)}.
+         * Before v2.0.00 this was a {@link MutexFlag} field named {@code mutex}.
+         * @since 2.0.00
+         */
+        public final ReentrantLock lock = new ReentrantLock();
+
         public Map<String,SOCGameOption> opts;  // or null
         public String optsStr;  // or null
         public boolean canJoin;
-        /** Flag for when game has been destroyed, in case anything's waiting on its mutex. @since 1.1.15 */
-        public boolean gameDestroyed;
+        /** Flag for when game has been destroyed, in case anything's waiting on its lock. @since 1.1.15 */
+        public volatile boolean gameDestroyed;
 
         /**
          * Constructor: gameOpts is null or contains game option objects
@@ -533,7 +546,6 @@ public class SOCGameList
          */
         public GameInfo(boolean canJoinGame, Map<String,SOCGameOption> gameOpts)
         {
-            mutex = new MutexFlag();
             opts = gameOpts;
             canJoin = canJoinGame;
         }
@@ -546,7 +558,6 @@ public class SOCGameList
          */
         public GameInfo(boolean canJoinGame, String gameOptsStr)
         {
-            mutex = new MutexFlag();
             optsStr = gameOptsStr;
             canJoin = canJoinGame;
         }
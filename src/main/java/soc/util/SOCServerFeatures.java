@@ -74,6 +74,15 @@ public class SOCServerFeatures
      */
     public static final String FEAT_OPEN_REG = "oreg";
 
+    /**
+     * Binary message protocol.
+     * If this feature is active, the server accepts and can send the compact binary message frames
+     * of {@link soc.message.SOCBinaryCodec}. A client asks for binary frames in its own
+     * {@link soc.message.SOCVersion} message; see that codec's class javadoc for the negotiation.
+     * @since 2.0.00
+     */
+    public static final String FEAT_BINARY_PROTO = "bin1";
+
     /**
      * Separator character ';' between features in {@link #featureList}.
      * Avoid separators defined in {@code SOCMessage}.
@@ -23,8 +23,10 @@ package soc.util;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 
@@ -89,6 +91,35 @@ public class SOCStringManager extends StringManager
      */
     private static SOCStringManager serverManagerForClientLocale_fallback;
 
+    /**
+     * Maximum number of parsed {@link MessageFormat}s each string manager keeps in its {@link #formatCache},
+     * or 0 to not cache them. Since the server has a manager per client locale, this is the cache size
+     * for each locale.
+     * @since 2.0.00
+     */
+    public static int MESSAGEFORMAT_CACHE_SIZE = 256;
+
+    /**
+     * This manager's parsed {@link MessageFormat}s, for {@link #format(String, Object...)}.
+     * Key is the pattern string, since {@link #getSpecial(SOCGame, String, Object...)} may alter
+     * a key's localized pattern before formatting. Least recently used formats are removed
+     * once there are more than {@link #MESSAGEFORMAT_CACHE_SIZE}.
+     * Synchronize on this map to access it; {@link MessageFormat} isn't thread-safe, so synchronize on
+     * each format object while using it.
+     * @since 2.0.00
+     */
+    private final Map<String, MessageFormat> formatCache
+        = new LinkedHashMap<String, MessageFormat>(64, 0.75f, true)
+        {
+            private static final long serialVersionUID = 2000L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MessageFormat> eldest)
+            {
+                return size() > MESSAGEFORMAT_CACHE_SIZE;
+            }
+        };
+
     /**
      * Create a string manager for the bundles at {@code bundlePath} with the default locale.
      * Remember that bundle files are encoded not in {@code UTF-8} but in {@code ISO-8859-1}, see class javadoc.
@@ -166,13 +197,13 @@ public class SOCStringManager extends StringManager
             if ((rcount == 1) || (rcount == -1))
                 resText = bundle.getString(rkeyArray[rtype]);
             else
-                resText = MessageFormat.format(bundle.getString(rkeyArray[rtype]), rcountObj);
+                resText = format(bundle.getString(rkeyArray[rtype]), rcountObj);
         } else {
             // out of range, unknown type
             if ((rcount == 1) || (rcount < 0))
-                resText = MessageFormat.format(bundle.getString(rkeyArray[0]), rtype);
+                resText = format(bundle.getString(rkeyArray[0]), rtype);
             else
-                resText = MessageFormat.format(bundle.getString(rkeyArray[0]), rcountObj, rtype);
+                resText = format(bundle.getString(rkeyArray[0]), rcountObj, rtype);
         }
 
         return resText;
@@ -349,7 +380,45 @@ public class SOCStringManager extends StringManager
         if (argsLocal == null)
             argsLocal = arguments;
 
-        return MessageFormat.format(txtfmt, argsLocal);
+        return format(txtfmt, argsLocal);
+    }
+
+    /**
+     * Format a localized pattern string with parameters, reusing this manager's
+     * parsed {@link MessageFormat} for {@code pattern} if it's been used recently.
+     * Gives the same result as {@link MessageFormat#format(String, Object...)} without re-parsing the pattern.
+     * The cache size is {@link #MESSAGEFORMAT_CACHE_SIZE}.
+     * @param pattern  Localized pattern string from the manager's bundle
+     * @param arguments  Objects to use with <tt>{0}</tt>, <tt>{1}</tt>, etc in {@code pattern}
+     * @return the formatted string
+     * @throws IllegalArgumentException if {@code pattern} has a parse error
+     * @since 2.0.00
+     */
+    @Override
+    protected String format(final String pattern, final Object ... arguments)
+        throws IllegalArgumentException
+    {
+        if (MESSAGEFORMAT_CACHE_SIZE <= 0)
+            return MessageFormat.format(pattern, arguments);
+
+        MessageFormat mf;
+        synchronized (formatCache)
+        {
+            mf = formatCache.get(pattern);
+        }
+        if (mf == null)
+        {
+            mf = new MessageFormat(pattern);  // may throw IllegalArgumentException
+            synchronized (formatCache)
+            {
+                formatCache.put(pattern, mf);
+            }
+        }
+
+        synchronized (mf)
+        {
+            return mf.format(arguments);
+        }
     }
 
     /**
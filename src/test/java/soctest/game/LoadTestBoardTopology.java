@@ -0,0 +1,192 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.game;
+
+import java.util.Vector;
+
+import soc.game.SOCBoard;
+import soc.game.SOCBoard4p;
+import soc.game.SOCBoard6p;
+import soc.game.SOCBoardLarge;
+import soc.game.SOCBoardTopology;
+
+/**
+ * Timing benchmark for {@link SOCBoard}'s adjacency methods, with and without the shared
+ * {@link SOCBoardTopology} tables. Not a junit test, since its results depend on the machine:
+ * Run its {@code main} manually.
+ *<P>
+ * Each pass visits every coordinate of the board's grid and does what
+ * {@link soc.game.SOCPlayer#updatePotentials(soc.game.SOCPlayingPiece)} and the robot trackers do
+ * around a new piece: Adjacent nodes and edges of a node, both ends of each of those edges, adjacent hexes,
+ * adjacent edges of an edge, and node adjacency checks. Timed for classic 4- and 6-player boards
+ * and the default-size large board, as:
+ *<UL>
+ * <LI> {@code arith}: Board without a table ({@link SOCBoardTopology#ENABLED} false): Coordinate arithmetic,
+ *      the same as before v2.0.00
+ * <LI> {@code table}: Board with a table, through the same board methods
+ * <LI> {@code direct}: Reading {@link SOCBoard#getTopology()}'s tables without allocating arrays or Vectors
+ *</UL>
+ * All three must produce the same checksum.
+ *<P>
+ * Usage: {@code LoadTestBoardTopology [passes]}; default is 2000 passes per timed run.
+ *
+ * @since 2.0.00
+ */
+public class LoadTestBoardTopology
+{
+    /** Number of timed runs per configuration; best is reported */
+    private static final int RUNS = 5;
+
+    public static void main(String[] args)
+    {
+        final int passes = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+        final String[] boardNames = { "4p", "6p", "large" };
+
+        System.out.println(passes + " passes per run");
+        System.out.println("board\timpl\tbest_ms\tns_per_coord");
+        for (int b = 0; b < boardNames.length; ++b)
+        {
+            final SOCBoard arith = newBoard(b, false), table = newBoard(b, true);
+            final int nCoords = table.getTopology().getIndexCount();
+
+            long expected = 0;
+            for (int impl = 0; impl < 3; ++impl)
+            {
+                final SOCBoard board = (impl == 0) ? arith : table;
+                runOnce(board, impl == 2, passes / 10);  // warmup
+
+                long best = Long.MAX_VALUE, sum = 0;
+                for (int run = 0; run < RUNS; ++run)
+                {
+                    final long t0 = System.nanoTime();
+                    sum = runOnce(board, impl == 2, passes);
+                    final long ns = System.nanoTime() - t0;
+                    if (ns < best)
+                        best = ns;
+                }
+
+                if (impl == 0)
+                    expected = sum;
+                else if (sum != expected)
+                    throw new IllegalStateException("checksum mismatch: " + boardNames[b] + " impl " + impl);
+
+                System.out.println(boardNames[b] + "\t" + ((impl == 0) ? "arith" : (impl == 1) ? "table" : "direct")
+                    + "\t" + (best / 1000000) + "\t" + String.format("%.1f", best / ((double) passes * nCoords)));
+            }
+        }
+    }
+
+    /**
+     * Create a board.
+     * @param b  0 for classic 4-player, 1 for classic 6-player, 2 for large
+     * @param withTopology  Value for {@link SOCBoardTopology#ENABLED} while constructing
+     */
+    private static SOCBoard newBoard(final int b, final boolean withTopology)
+    {
+        final boolean wasEnabled = SOCBoardTopology.ENABLED;
+        SOCBoardTopology.ENABLED = withTopology;
+        try
+        {
+            switch (b)
+            {
+            case 0:  return new SOCBoard4p(null);
+            case 1:  return new SOCBoard6p(null);
+            default: return new SOCBoardLarge(null, 4);
+            }
+        } finally {
+            SOCBoardTopology.ENABLED = wasEnabled;
+        }
+    }
+
+    /**
+     * Do {@code passes} passes over the board's grid.
+     * The grid is from the board's topology if it has one, otherwise from an equivalent board's.
+     * @param direct  If true, read the topology tables instead of calling board methods
+     * @return  Checksum of all adjacent coordinates found
+     */
+    private static long runOnce(final SOCBoard board, final boolean direct, final int passes)
+    {
+        SOCBoardTopology topo = board.getTopology();
+        if (topo == null)
+            topo = newBoard((board instanceof SOCBoardLarge) ? 2 : (board instanceof SOCBoard6p) ? 1 : 0, true)
+                .getTopology();
+        final int n = topo.getIndexCount();
+
+        long sum = 0;
+        for (int p = 0; p < passes; ++p)
+        {
+            for (int i = 0; i < n; ++i)
+            {
+                final int coord = topo.getIndexCoord(i);
+                if (direct)
+                {
+                    for (int dir = 0; dir < 3; ++dir)
+                    {
+                        sum += topo.getAdjacentNodeToNode(i, dir);
+                        final int edge = topo.getAdjacentEdgeToNode(i, dir);
+                        if (edge != -9)
+                        {
+                            final int ei = topo.getCoordIndex(edge);
+                            sum += topo.getAdjacentNodeToEdge(ei, 0) + topo.getAdjacentNodeToEdge(ei, 1);
+                        }
+                        final int hex = topo.getAdjacentHexToNode(i, dir);
+                        if (hex != -9)
+                            sum += hex;
+                    }
+                    for (int j = 0; j < 4; ++j)
+                    {
+                        final int e2 = topo.getAdjacentEdgeToEdge(i, j);
+                        if (e2 != -9)
+                            sum += e2;
+                    }
+                    final int other = coord + 0x11;
+                    if ((topo.getAdjacentNodeToNode(i, 0) == other) || (topo.getAdjacentNodeToNode(i, 1) == other)
+                        || (topo.getAdjacentNodeToNode(i, 2) == other))
+                        ++sum;
+                } else {
+                    final int[] nodes = board.getAdjacentNodesToNode_arr(coord);
+                    final int[] edges = board.getAdjacentEdgesToNode_arr(coord);
+                    for (int dir = 0; dir < 3; ++dir)
+                    {
+                        sum += nodes[dir];
+                        final int edge = edges[dir];
+                        if (edge != -9)
+                        {
+                            final int[] ends = board.getAdjacentNodesToEdge_arr(edge);
+                            sum += ends[0] + ends[1];
+                        }
+                    }
+                    final Vector<Integer> hexes = board.getAdjacentHexesToNode(coord);
+                    for (int j = 0; j < hexes.size(); ++j)
+                        sum += hexes.get(j).intValue();
+                    final Vector<Integer> e2s = board.getAdjacentEdgesToEdge(coord);
+                    for (int j = 0; j < e2s.size(); ++j)
+                        sum += e2s.get(j).intValue();
+                    if (board.isNodeAdjacentToNode(coord, coord + 0x11))
+                        ++sum;
+                }
+            }
+        }
+
+        return sum;
+    }
+
+}
@@ -0,0 +1,262 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.game;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+
+import soc.game.SOCBoard;
+import soc.game.SOCBoard4p;
+import soc.game.SOCPlayerNumbers;
+import soc.game.SOCResourceConstants;
+import soc.util.IntPair;
+
+/**
+ * Timing benchmark for {@link SOCPlayerNumbers}' copy constructor and robber-aware queries,
+ * comparing its dense count table with {@link LegacyNumbers}, a trimmed copy of its
+ * Vector-based implementation before v2.0.00.
+ * Not a junit test, since its results depend on the machine: Run its {@code main} manually.
+ *<P>
+ * Each iteration does what the robots do for each possible settlement or city:
+ * Copies a mid-game player's numbers, adds a piece's 3 hexes, then calculates the amount of each resource
+ * per dice number and the dice numbers for each resource with the robber on one of the player's hexes,
+ * like {@link soc.robot.SOCBuildingSpeedEstimate#recalculateEstimates(SOCPlayerNumbers, int)}.
+ * Reports time and, if the JVM can measure it, bytes allocated per iteration.
+ * Both implementations must produce the same checksum.
+ *<P>
+ * Usage: {@code LoadTestPlayerNumbers [iterations]}; default is 200000 iterations per timed run.
+ *
+ * @since 2.0.00
+ */
+public class LoadTestPlayerNumbers
+{
+    /** Number of timed runs per implementation; best is reported */
+    private static final int RUNS = 5;
+
+    /** Hexes, as indexes into the board's land hexes, for the player's pieces before the timed piece */
+    private static final int[] PLAYER_HEXES = { 0, 1, 4, 4, 8, 9, 13, 13, 14, 17 };
+
+    /** Hexes, as indexes into the board's land hexes, for the timed piece */
+    private static final int[] PIECE_HEXES = { 5, 9, 10 };
+
+    public static void main(String[] args)
+    {
+        final int n = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+
+        final SOCBoard board = new SOCBoard4p(null);
+        final int[] landHexes = board.getLandHexCoords();
+        final SOCPlayerNumbers numbers = new SOCPlayerNumbers(board);
+        final LegacyNumbers legacy = new LegacyNumbers(landHexes);
+        for (int i = 0; i < PLAYER_HEXES.length; ++i)
+        {
+            final int hex = landHexes[PLAYER_HEXES[i]];
+            final int diceNum = 2 + (i * 5) % 11, res = SOCResourceConstants.CLAY + (i % 5);
+            numbers.addNumberForResource(diceNum, res, hex);
+            legacy.addNumberForResource(diceNum, res, hex);
+        }
+        final int robberHex = landHexes[PLAYER_HEXES[2]];
+
+        System.out.println(n + " iterations per run");
+        System.out.println("impl\tbest_ms\tns_per_iter\tbytes_per_iter");
+        long expected = 0;
+        for (int impl = 0; impl < 2; ++impl)
+        {
+            runOnce(impl, numbers, legacy, landHexes, robberHex, n / 10);  // warmup
+
+            long best = Long.MAX_VALUE, sum = 0, bytes = 0;
+            for (int run = 0; run < RUNS; ++run)
+            {
+                final long b0 = allocatedBytes(), t0 = System.nanoTime();
+                sum = runOnce(impl, numbers, legacy, landHexes, robberHex, n);
+                final long ns = System.nanoTime() - t0;
+                bytes = (b0 >= 0) ? (allocatedBytes() - b0) : -1;
+                if (ns < best)
+                    best = ns;
+            }
+
+            if (impl == 0)
+                expected = sum;
+            else if (sum != expected)
+                throw new IllegalStateException("checksum mismatch: " + sum + " != " + expected);
+
+            System.out.println(((impl == 0) ? "legacy" : "dense") + "\t" + (best / 1000000)
+                + "\t" + (best / n) + "\t" + ((bytes >= 0) ? Long.toString(bytes / n) : "?"));
+        }
+    }
+
+    /**
+     * Do {@code n} iterations.
+     * @param impl  0 for {@link LegacyNumbers}, 1 for {@link SOCPlayerNumbers}
+     * @return  Checksum of all amounts and dice numbers found
+     */
+    private static long runOnce
+        (final int impl, final SOCPlayerNumbers numbers, final LegacyNumbers legacy,
+         final int[] landHexes, final int robberHex, final int n)
+    {
+        long sum = 0;
+        for (int i = 0; i < n; ++i)
+        {
+            if (impl == 0)
+            {
+                final LegacyNumbers copy = new LegacyNumbers(legacy);
+                for (int h = 0; h < PIECE_HEXES.length; ++h)
+                    copy.addNumberForResource(6 + h, SOCResourceConstants.ORE, landHexes[PIECE_HEXES[h]]);
+
+                for (int res = SOCResourceConstants.CLAY; res <= SOCResourceConstants.WOOD; ++res)
+                    for (Enumeration<Integer> e = copy.getNumbersForResource(res, robberHex).elements();
+                         e.hasMoreElements(); )
+                        sum += e.nextElement().intValue();
+                for (int diceNum = 2; diceNum <= 12; ++diceNum)
+                    for (Enumeration<Integer> e = copy.getResourcesForNumber(diceNum, robberHex).elements();
+                         e.hasMoreElements(); )
+                        sum += e.nextElement().intValue() * diceNum;
+            } else {
+                final SOCPlayerNumbers copy = new SOCPlayerNumbers(numbers);
+                for (int h = 0; h < PIECE_HEXES.length; ++h)
+                    copy.addNumberForResource(6 + h, SOCResourceConstants.ORE, landHexes[PIECE_HEXES[h]]);
+
+                for (int res = SOCResourceConstants.CLAY; res <= SOCResourceConstants.WOOD; ++res)
+                    for (int diceNum = 2; diceNum <= 12; ++diceNum)
+                        sum += copy.getResourceCountForNumber(diceNum, res, robberHex) * diceNum;
+                for (int diceNum = 2; diceNum <= 12; ++diceNum)
+                    for (int res = SOCResourceConstants.CLAY; res <= SOCResourceConstants.WOOD; ++res)
+                        sum += copy.getResourceCountForNumber(diceNum, res, robberHex) * res * diceNum;
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Bytes allocated so far by this thread, if the JVM's {@code ThreadMXBean} can tell us.
+     * Called by reflection since {@code getThreadAllocatedBytes} isn't a standard method.
+     * @return  Bytes allocated, or -1 if unknown
+     */
+    private static long allocatedBytes()
+    {
+        try
+        {
+            final Method m = Class.forName("com.sun.management.ThreadMXBean")
+                .getMethod("getThreadAllocatedBytes", long.class);
+            final Object bean = ManagementFactory.getThreadMXBean();
+            return ((Long) m.invoke(bean, Long.valueOf(Thread.currentThread().getId()))).longValue();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Trimmed copy of {@link SOCPlayerNumbers} before v2.0.00, without gold hexes:
+     * Only the fields and methods used by this benchmark.
+     */
+    @SuppressWarnings("unchecked")
+    private static final class LegacyNumbers
+    {
+        private final Vector<Integer>[] numbersForResource;
+        private final Vector<Integer>[] resourcesForNumber;
+        private final Hashtable<Integer, Vector<IntPair>> numberAndResourceForHex;
+        private final int[] landHexCoords;
+
+        @SuppressWarnings("unchecked")
+        LegacyNumbers(final int[] landHexCoords)
+        {
+            this.landHexCoords = landHexCoords;
+            numbersForResource = (Vector<Integer>[]) new Vector<?>[SOCResourceConstants.MAXPLUSONE - 1];
+            for (int i = SOCResourceConstants.CLAY; i <= SOCResourceConstants.WOOD; i++)
+                numbersForResource[i] = new Vector<Integer>();
+            resourcesForNumber = (Vector<Integer>[]) new Vector<?>[13];
+            for (int i = 0; i < 13; i++)
+                resourcesForNumber[i] = new Vector<Integer>();
+            numberAndResourceForHex = new Hashtable<Integer, Vector<IntPair>>();
+        }
+
+        @SuppressWarnings("unchecked")
+        LegacyNumbers(final LegacyNumbers numbers)
+        {
+            landHexCoords = numbers.landHexCoords;
+            numbersForResource = (Vector<Integer>[]) new Vector<?>[SOCResourceConstants.MAXPLUSONE - 1];
+            for (int i = SOCResourceConstants.CLAY; i <= SOCResourceConstants.WOOD; i++)
+                numbersForResource[i] = new Vector<Integer>(numbers.numbersForResource[i]);
+            resourcesForNumber = (Vector<Integer>[]) new Vector<?>[13];
+            for (int i = 0; i < 13; i++)
+                resourcesForNumber[i] = new Vector<Integer>(numbers.resourcesForNumber[i]);
+            numberAndResourceForHex = new Hashtable<Integer, Vector<IntPair>>
+                ((int) (numbers.numberAndResourceForHex.size() * 1.4f));
+            for (Enumeration<Integer> hexes = numbers.numberAndResourceForHex.keys(); hexes.hasMoreElements(); )
+            {
+                Integer hex = hexes.nextElement();
+                numberAndResourceForHex.put(hex, new Vector<IntPair>(numbers.numberAndResourceForHex.get(hex)));
+            }
+        }
+
+        void addNumberForResource(final int diceNum, final int resource, final int hex)
+        {
+            numbersForResource[resource].addElement(new Integer(diceNum));
+            resourcesForNumber[diceNum].addElement(new Integer(resource));
+            final Integer hexInt = new Integer(hex);
+            Vector<IntPair> pairs = numberAndResourceForHex.get(hexInt);
+            if (pairs == null)
+            {
+                pairs = new Vector<IntPair>();
+                numberAndResourceForHex.put(hexInt, pairs);
+            }
+            pairs.addElement(new IntPair(diceNum, resource));
+        }
+
+        Vector<Integer> getNumbersForResource(final int resource, final int robberHex)
+        {
+            Vector<Integer> numbers = new Vector<Integer>();
+            for (int i = 0; i < landHexCoords.length; i++)
+            {
+                if (landHexCoords[i] == robberHex)
+                    continue;
+                Vector<IntPair> pairs = numberAndResourceForHex.get(new Integer(landHexCoords[i]));
+                if (pairs == null)
+                    continue;
+                for (IntPair pair : pairs)
+                    if (pair.getB() == resource)
+                        numbers.addElement(Integer.valueOf(pair.getA()));
+            }
+            return numbers;
+        }
+
+        Vector<Integer> getResourcesForNumber(final int diceNum, final int robberHex)
+        {
+            Vector<Integer> resources = new Vector<Integer>();
+            for (int i = 0; i < landHexCoords.length; i++)
+            {
+                if (landHexCoords[i] == robberHex)
+                    continue;
+                Vector<IntPair> pairs = numberAndResourceForHex.get(Integer.valueOf(landHexCoords[i]));
+                if (pairs == null)
+                    continue;
+                for (IntPair pair : pairs)
+                    if (pair.getA() == diceNum)
+                        resources.addElement(new Integer(pair.getB()));
+            }
+            return resources;
+        }
+    }
+
+}
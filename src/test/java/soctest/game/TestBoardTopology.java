@@ -0,0 +1,157 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.game;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.game.SOCBoard;
+import soc.game.SOCBoard4p;
+import soc.game.SOCBoard6p;
+import soc.game.SOCBoardLarge;
+import soc.game.SOCBoardTopology;
+import soc.util.IntPair;
+
+/**
+ * Equivalence tests for {@link SOCBoardTopology}: Each adjacency method of a board using the shared
+ * tables must give the same results as the coordinate arithmetic of a board without them,
+ * for every coordinate in and somewhat beyond the board's grid.
+ *
+ * @since 2.0.00
+ */
+public class TestBoardTopology
+{
+    /** Board heights and widths to test for {@link SOCBoardLarge}, including default size and odd widths */
+    private static final int[][] LARGE_SIZES =
+        { { SOCBoardLarge.BOARDHEIGHT_LARGE, SOCBoardLarge.BOARDWIDTH_LARGE }, { 0x10, 0x11 }, { 0x14, 0x16 }, { 8, 9 } };
+
+    /** Create a classic 4- or 6-player board, or a large board of this size. */
+    private static SOCBoard newBoard(final int maxPlayers, final int[] largeSize, final boolean withTopology)
+    {
+        final boolean wasEnabled = SOCBoardTopology.ENABLED;
+        SOCBoardTopology.ENABLED = withTopology;
+        try
+        {
+            if (largeSize != null)
+                return new SOCBoardLarge(null, maxPlayers, new IntPair(largeSize[0], largeSize[1]));
+            else if (maxPlayers == 6)
+                return new SOCBoard6p(null);
+            else
+                return new SOCBoard4p(null);
+        } finally {
+            SOCBoardTopology.ENABLED = wasEnabled;
+        }
+    }
+
+    /**
+     * Compare all adjacency methods for coordinates {@code fromCoord} to {@code toCoord}.
+     * @param desc  Board description for failure messages
+     */
+    private static void assertSameAdjacents
+        (final String desc, final SOCBoard arith, final SOCBoard table, final int fromCoord, final int toCoord)
+    {
+        assertNull(desc, arith.getTopology());
+        assertNotNull(desc, table.getTopology());
+
+        for (int coord = fromCoord; coord <= toCoord; ++coord)
+        {
+            final String msg = desc + " coord 0x" + Integer.toHexString(coord);
+
+            for (int dir = 0; dir < 3; ++dir)
+            {
+                assertEquals(msg, arith.getAdjacentNodeToNode(coord, dir), table.getAdjacentNodeToNode(coord, dir));
+                assertEquals(msg, arith.getAdjacentEdgeToNode(coord, dir), table.getAdjacentEdgeToNode(coord, dir));
+            }
+
+            final int[] adjacNodes = arith.getAdjacentNodesToNode_arr(coord);
+            assertTrue(msg, Arrays.equals(adjacNodes, table.getAdjacentNodesToNode_arr(coord)));
+            assertTrue(msg, Arrays.equals
+                (arith.getAdjacentEdgesToNode_arr(coord), table.getAdjacentEdgesToNode_arr(coord)));
+            assertTrue(msg, Arrays.equals
+                (arith.getAdjacentNodesToEdge_arr(coord), table.getAdjacentNodesToEdge_arr(coord)));
+
+            assertEquals(msg, arith.getAdjacentNodesToNode(coord), table.getAdjacentNodesToNode(coord));
+            assertEquals(msg, arith.getAdjacentEdgesToNode(coord), table.getAdjacentEdgesToNode(coord));
+            assertEquals(msg, arith.getAdjacentHexesToNode(coord), table.getAdjacentHexesToNode(coord));
+            assertEquals(msg, arith.getAdjacentNodesToEdge(coord), table.getAdjacentNodesToEdge(coord));
+            assertEquals(msg, arith.getAdjacentEdgesToEdge(coord), table.getAdjacentEdgesToEdge(coord));
+
+            for (int i = 0; i < 3; ++i)
+                if (adjacNodes[i] != -9)
+                    assertTrue(msg, table.isNodeAdjacentToNode(coord, adjacNodes[i]));
+            for (int other : new int[]{ coord, coord + 1, coord + 0x22, coord - 0x0201, -9 })
+                assertEquals(msg, arith.isNodeAdjacentToNode(coord, other), table.isNodeAdjacentToNode(coord, other));
+        }
+
+        try
+        {
+            table.getAdjacentNodeToNode(fromCoord + 0x22, 3);
+            fail(desc + ": should throw for nodeDir 3");
+        } catch (IllegalArgumentException e) {}
+    }
+
+    /** Classic 4- and 6-player boards: v1 and v2 encodings. */
+    @Test
+    public void testClassicBoards()
+    {
+        assertSameAdjacents("4p", newBoard(4, null, false), newBoard(4, null, true), -0x20, 0x120);
+        assertSameAdjacents("6p", newBoard(6, null, false), newBoard(6, null, true), -0x20, 0x120);
+    }
+
+    /** Large boards of several sizes: v3 encoding. */
+    @Test
+    public void testLargeBoards()
+    {
+        for (final int[] size : LARGE_SIZES)
+        {
+            final String desc = "large " + size[0] + "x" + size[1];
+            assertSameAdjacents(desc, newBoard(4, size, false), newBoard(4, size, true),
+                -0x120, ((size[0] + 2) << 8) + 0x10);
+        }
+    }
+
+    /** Boards with the same geometry share one table; the coordinate index is dense and reversible. */
+    @Test
+    public void testSharedTables()
+    {
+        final SOCBoardTopology t4 = newBoard(4, null, true).getTopology();
+        assertSame(t4, newBoard(4, null, true).getTopology());
+        assertNotSame(t4, newBoard(6, null, true).getTopology());
+
+        final int[] size = LARGE_SIZES[0];
+        final SOCBoardTopology tLg = newBoard(4, size, true).getTopology();
+        assertSame(tLg, newBoard(6, size, true).getTopology());
+        assertNotSame(tLg, newBoard(4, LARGE_SIZES[1], true).getTopology());
+
+        assertEquals((size[0] + 1) * (size[1] + 1), tLg.getIndexCount());
+        for (int i = 0; i < tLg.getIndexCount(); ++i)
+            assertEquals(i, tLg.getCoordIndex(tLg.getIndexCoord(i)));
+        assertEquals(-1, tLg.getCoordIndex(-1));
+        assertEquals(-1, tLg.getCoordIndex((size[0] + 1) << 8));
+        assertEquals(-1, tLg.getCoordIndex(size[1] + 1));
+
+        assertEquals(0x100, t4.getIndexCount());
+        assertEquals(0x67, t4.getIndexCoord(t4.getCoordIndex(0x67)));
+    }
+
+}
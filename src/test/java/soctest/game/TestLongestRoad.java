@@ -0,0 +1,238 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.game.SOCBoard;
+import soc.game.SOCGame;
+import soc.game.SOCGameOption;
+import soc.game.SOCPlayer;
+import soc.game.SOCPlayingPiece;
+import soc.game.SOCRoad;
+import soc.game.SOCSettlement;
+import soc.game.SOCShip;
+import soc.server.SOCGameHandler;
+import soc.server.SOCGameListAtServer;
+
+/**
+ * Randomized equivalence test for {@link SOCPlayer#calcLongestRoad2()}, which searches only the changed
+ * parts of a player's road network, against {@link SOCPlayer#calcLongestRoadFullSearch()}:
+ * Both must give the same length and the same {@link SOCPlayer#getLRPaths()} in the same order.
+ * Places random roads, ships and settlements in classic 4- and 6-player games and on the sea board,
+ * and tries and removes temporary roads on player copies like the robots do.
+ *
+ * @since 2.0.00
+ */
+public class TestLongestRoad
+{
+    private static SOCGameListAtServer gl;
+    private static SOCGameHandler sgh;
+
+    @BeforeClass
+    public static void setup()
+    {
+        sgh = new SOCGameHandler(null);
+        gl = new SOCGameListAtServer();
+    }
+
+    /**
+     * Calculate both ways and compare.
+     * The full search doesn't change the incremental search's saved components,
+     * so this can be called after each change without affecting what's tested.
+     */
+    private static void assertSameLR(final String desc, final SOCPlayer pl)
+    {
+        final int inc = pl.calcLongestRoad2();
+        final String incPaths = pl.getLRPaths().toString();
+        final int full = pl.calcLongestRoadFullSearch();
+        assertEquals(desc, full, inc);
+        assertEquals(desc, pl.getLRPaths().toString(), incPaths);
+    }
+
+    /** Create and start a game with these options and number of players. */
+    private static SOCGame startGame(final String gaName, final String opts, final int numPl)
+    {
+        final Map<String, SOCGameOption> gaOpts = SOCGameOption.parseOptionsToMap(opts);
+        assertNull(SOCGameOption.adjustOptionsToKnown(gaOpts, null, true));
+        gl.createGame(gaName, "test", "en_US", gaOpts, sgh);
+        final SOCGame ga = gl.getGameData(gaName);
+        for (int pn = 0; pn < numPl; ++pn)
+            ga.addPlayer("p" + pn, pn);
+        ga.startGame();
+
+        return ga;
+    }
+
+    /** Edges next to the player's roads, ships and settlements where they could build a road or ship. */
+    private static List<SOCPlayingPiece> potentialRoads(final SOCGame ga, final SOCPlayer pl)
+    {
+        final SOCBoard board = ga.getBoard();
+        final List<Integer> nodes = new ArrayList<Integer>(pl.getRoadNodes());
+        for (SOCSettlement se : pl.getSettlements())
+            nodes.add(se.getCoordinates());
+
+        final List<SOCPlayingPiece> rs = new ArrayList<SOCPlayingPiece>();
+        final List<Integer> seen = new ArrayList<Integer>();
+        for (int node : nodes)
+        {
+            for (int edge : board.getAdjacentEdgesToNode(node))
+            {
+                if (seen.contains(edge))
+                    continue;
+                seen.add(edge);
+                if (pl.isPotentialRoad(edge) && (pl.getNumPieces(SOCPlayingPiece.ROAD) > 0))
+                    rs.add(new SOCRoad(pl, edge, board));
+                else if (ga.hasSeaBoard && pl.isPotentialShip(edge) && (pl.getNumPieces(SOCPlayingPiece.SHIP) > 0))
+                    rs.add(new SOCShip(pl, edge, board));
+            }
+        }
+
+        return rs;
+    }
+
+    /** Place a settlement for this player at a random potential node, if any. */
+    private static boolean placeSettlement(final SOCGame ga, final SOCPlayer pl, final Random rnd)
+    {
+        final int[] ps = pl.getPotentialSettlements_arr();
+        if ((ps == null) || (ps.length == 0) || (pl.getNumPieces(SOCPlayingPiece.SETTLEMENT) == 0))
+            return false;
+
+        Arrays.sort(ps);
+        ga.putPiece(new SOCSettlement(pl, ps[rnd.nextInt(ps.length)], ga.getBoard()));
+        return true;
+    }
+
+    /**
+     * Place a road or ship for this player at a random potential edge, if any.
+     * @throws IllegalArgumentException  if the sea board's ship trade route check rejects a ship;
+     *     random placement can make ship networks which don't happen in real games
+     */
+    private static boolean placeRoad(final SOCGame ga, final SOCPlayer pl, final Random rnd)
+        throws IllegalArgumentException
+    {
+        final List<SOCPlayingPiece> rs = potentialRoads(ga, pl);
+        if (rs.isEmpty())
+            return false;
+
+        ga.putPiece(rs.get(rnd.nextInt(rs.size())));
+        return true;
+    }
+
+    /**
+     * Play out random placements in one game, checking every player's longest road after each one.
+     * @param numPl  Number of players
+     */
+    private static void checkGame(final String gaName, final String opts, final int numPl, final Random rnd)
+    {
+        final SOCGame ga = startGame(gaName, opts, numPl);
+        final SOCBoard board = ga.getBoard();
+
+        // Initial placement, in the game's turn order
+        while (ga.getGameState() < SOCGame.ROLL_OR_CARD)
+        {
+            final SOCPlayer pl = ga.getPlayer(ga.getCurrentPlayerNumber());
+            if (! placeSettlement(ga, pl, rnd))
+                break;
+            final int node = pl.getLastSettlementCoord();
+            final List<SOCPlayingPiece> rs = potentialRoads(ga, pl);
+            SOCPlayingPiece rd = null;
+            for (SOCPlayingPiece r : rs)
+                if (board.getAdjacentEdgesToNode(node).contains(r.getCoordinates()))
+                    rd = r;
+            if (rd == null)
+                break;
+            ga.putPiece(rd);
+        }
+
+        for (int step = 0; step < 80; ++step)
+        {
+            final SOCPlayer pl = ga.getPlayer(rnd.nextInt(numPl));
+            if (rnd.nextInt(4) == 0)
+            {
+                placeSettlement(ga, pl, rnd);
+            } else {
+                try
+                {
+                    placeRoad(ga, pl, rnd);
+                }
+                catch (IllegalArgumentException e)
+                {
+                    break;  // unusual ship network; game state may be inconsistent, so stop here
+                }
+            }
+
+            for (int pn = 0; pn < numPl; ++pn)
+                assertSameLR(gaName + " step " + step + " pn " + pn, ga.getPlayer(pn));
+
+            // Try and remove a temporary road on a copy, like SOCPlayerTracker.updateLRValues
+            final SOCPlayer dummy = new SOCPlayer(pl);
+            final List<SOCPlayingPiece> rs = potentialRoads(ga, dummy);
+            if (! rs.isEmpty())
+            {
+                final SOCPlayingPiece pp = rs.get(rnd.nextInt(rs.size()));
+                final SOCRoad dummyRoad = (pp instanceof SOCShip)
+                    ? new SOCShip(dummy, pp.getCoordinates(), null)
+                    : new SOCRoad(dummy, pp.getCoordinates(), null);
+                dummy.putPiece(dummyRoad, true);
+                assertSameLR(gaName + " step " + step + " dummy", dummy);
+                dummy.removePiece(dummyRoad, null);
+                assertSameLR(gaName + " step " + step + " dummy removed", dummy);
+            }
+            dummy.destroyPlayer();
+        }
+
+        gl.deleteGame(gaName);
+    }
+
+    @Test(timeout=60000)
+    public void testClassic4()
+    {
+        final Random rnd = new Random(10);
+        for (int g = 0; g < 8; ++g)
+            checkGame("lr4:" + g, "PL=4", 4, rnd);
+    }
+
+    @Test(timeout=60000)
+    public void testClassic6()
+    {
+        final Random rnd = new Random(11);
+        for (int g = 0; g < 5; ++g)
+            checkGame("lr6:" + g, "PL=6", 6, rnd);
+    }
+
+    @Test(timeout=60000)
+    public void testSeaBoard()
+    {
+        final Random rnd = new Random(12);
+        for (int g = 0; g < 5; ++g)
+            checkGame("lrsea:" + g, "PL=4,SBL=t", 4, rnd);
+    }
+
+}
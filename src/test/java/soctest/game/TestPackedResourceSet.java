@@ -0,0 +1,149 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.game;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.game.PackedResourceSet;
+import soc.game.SOCResourceConstants;
+import soc.game.SOCResourceSet;
+
+/**
+ * Tests for {@link PackedResourceSet}: Its packed operations must give the same results
+ * as the same operations on {@link SOCResourceSet}, including at the edges of each field's range.
+ *
+ * @since 2.0.00
+ */
+public class TestPackedResourceSet
+{
+    /** A random resource set; amounts are mostly small, sometimes up to {@link PackedResourceSet#MAX_AMOUNT}. */
+    private static SOCResourceSet randomSet(final Random rnd)
+    {
+        final int[] amts = new int[6];
+        for (int i = 0; i < 6; ++i)
+            amts[i] = (rnd.nextInt(8) == 0) ? rnd.nextInt(PackedResourceSet.MAX_AMOUNT + 1) : rnd.nextInt(6);
+
+        return new SOCResourceSet(amts);
+    }
+
+    @Test
+    public void testPackAndAmounts()
+    {
+        final SOCResourceSet rs = new SOCResourceSet(1, 2, 3, 4, 511, 6);
+        final long p = PackedResourceSet.pack(rs);
+        assertTrue(PackedResourceSet.isValid(p));
+        for (int rtype = SOCResourceConstants.CLAY; rtype <= SOCResourceConstants.UNKNOWN; ++rtype)
+            assertEquals(rs.getAmount(rtype), PackedResourceSet.getAmount(p, rtype));
+        assertEquals(rs, PackedResourceSet.toResourceSet(p));
+        assertEquals(PackedResourceSet.EMPTY, PackedResourceSet.pack(new SOCResourceSet()));
+        assertEquals(PackedResourceSet.EMPTY, PackedResourceSet.pack(null));
+
+        assertEquals(PackedResourceSet.INVALID, PackedResourceSet.pack(new SOCResourceSet(0, 0, 0, 0, 512, 0)));
+        assertEquals(PackedResourceSet.INVALID, PackedResourceSet.pack(new SOCResourceSet(0, 0, 0, 0, 0, -1)));
+        assertFalse(PackedResourceSet.isValid(PackedResourceSet.INVALID));
+    }
+
+    @Test
+    public void testWrapper()
+    {
+        final SOCResourceSet rs = new SOCResourceSet(0, 2, 0, 4, 1, 3);
+        final PackedResourceSet prs = new PackedResourceSet(PackedResourceSet.pack(rs));
+        assertEquals(rs.getTotal(), prs.getTotal());
+        assertEquals(rs.getResourceTypeCount(), prs.getResourceTypeCount());
+        assertEquals(rs.toString(), prs.toString());
+        assertEquals(rs, new SOCResourceSet(prs));
+        assertEquals(prs, new PackedResourceSet(PackedResourceSet.pack(prs)));
+        assertEquals(prs.hashCode(), new PackedResourceSet(prs.getPacked()).hashCode());
+        assertTrue(prs.contains(SOCResourceConstants.UNKNOWN));
+        assertFalse(prs.contains(SOCResourceConstants.CLAY));
+        assertTrue(prs.contains(new SOCResourceSet(0, 1, 0, 4, 0, 0)));
+        assertFalse(prs.contains(new SOCResourceSet(1, 0, 0, 0, 0, 0)));
+        assertTrue(prs.contains(new SOCResourceSet(0, 0, 0, 0, 0, -1)));  // not packable
+        assertTrue(rs.contains(prs));
+
+        try
+        {
+            new PackedResourceSet(PackedResourceSet.INVALID);
+            fail("should reject invalid packed value");
+        } catch (IllegalArgumentException e) {}
+    }
+
+    /** Random sets: add, subtract, contains, totals and equality must match {@link SOCResourceSet}'s. */
+    @Test
+    public void testRandomEquivalence()
+    {
+        final Random rnd = new Random(2018);
+        for (int i = 0; i < 20000; ++i)
+        {
+            final SOCResourceSet a = randomSet(rnd), b = randomSet(rnd);
+            final long pa = PackedResourceSet.pack(a), pb = PackedResourceSet.pack(b);
+            final String desc = "a " + a + " b " + b;
+
+            assertEquals(desc, SOCResourceSet.gte(a, b), PackedResourceSet.contains(pa, pb));
+            assertEquals(desc, SOCResourceSet.gte(b, a), PackedResourceSet.contains(pb, pa));
+            assertEquals(desc, a.equals(b), (pa == pb));
+            assertEquals(desc, a.getTotal(), PackedResourceSet.getTotal(pa));
+            assertEquals(desc, a.getResourceTypeCount(), PackedResourceSet.getResourceTypeCount(pa));
+
+            final SOCResourceSet diff = a.copy();
+            diff.subtract(b);
+            final long pdiff = PackedResourceSet.subtract(pa, pb);
+            assertTrue(desc, PackedResourceSet.isValid(pdiff));
+            assertEquals(desc, diff, PackedResourceSet.toResourceSet(pdiff));
+
+            final SOCResourceSet sum = a.copy();
+            sum.add(b);
+            final long psum = PackedResourceSet.add(pa, pb);
+            assertEquals(desc, PackedResourceSet.pack(sum) != PackedResourceSet.INVALID, PackedResourceSet.isValid(psum));
+            if (PackedResourceSet.isValid(psum))
+                assertEquals(desc, sum, PackedResourceSet.toResourceSet(psum));
+
+            final int rtype = SOCResourceConstants.CLAY + rnd.nextInt(6);
+            final int amt = rnd.nextInt(a.getAmount(rtype) + 1);
+            final SOCResourceSet less = a.copy();
+            less.subtract(amt, rtype);
+            assertEquals(desc, less, PackedResourceSet.toResourceSet(PackedResourceSet.add(pa, -amt, rtype)));
+        }
+    }
+
+    /** Fields at 0 and at {@link PackedResourceSet#MAX_AMOUNT} don't affect their neighbors. */
+    @Test
+    public void testFieldEdges()
+    {
+        final int m = PackedResourceSet.MAX_AMOUNT;
+        final long full = PackedResourceSet.pack(m, m, m, m, m, m);
+        final long alt = PackedResourceSet.pack(m, 0, m, 0, m, 0);
+        assertEquals(6 * m, PackedResourceSet.getTotal(full));
+        assertEquals(5, PackedResourceSet.getResourceTypeCount(full));
+        assertEquals(3, PackedResourceSet.getResourceTypeCount(alt));
+        assertEquals(PackedResourceSet.pack(0, m, 0, m, 0, m), PackedResourceSet.subtract(full, alt));
+        assertEquals(PackedResourceSet.EMPTY, PackedResourceSet.subtract(alt, full));
+        assertTrue(PackedResourceSet.contains(full, alt));
+        assertFalse(PackedResourceSet.contains(alt, full));
+        assertFalse(PackedResourceSet.isValid(PackedResourceSet.add(full, 1, SOCResourceConstants.UNKNOWN)));
+        assertFalse(PackedResourceSet.isValid(PackedResourceSet.add(alt, alt)));
+        assertEquals(0, PackedResourceSet.getAmount(PackedResourceSet.add(alt, alt), SOCResourceConstants.ORE));
+    }
+
+}
@@ -0,0 +1,236 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.game.SOCBoard;
+import soc.game.SOCBoard4p;
+import soc.game.SOCBoardLarge;
+import soc.game.SOCPlayerNumbers;
+import soc.game.SOCResourceConstants;
+import soc.util.IntPair;
+
+/**
+ * Tests for {@link SOCPlayerNumbers}' dense count table: After random additions and removals
+ * of dice numbers on hexes, each query with and without the robber must give the same dice numbers
+ * and resources as scanning a plain list of those (hex, dice number, resource) triples, which is
+ * how the Vector-based implementation before v2.0.00 calculated them.
+ *
+ * @since 2.0.00
+ */
+public class TestPlayerNumbers
+{
+    /** Land hexes used for the large board, which has no layout in these tests */
+    private static final int[] LARGE_LAND_HEXES = { 0x0104, 0x0106, 0x0108, 0x0303, 0x0305, 0x0307, 0x0309, 0x0504 };
+
+    /**
+     * Sort a Vector's contents, since {@link SOCPlayerNumbers} doesn't keep them in the order added.
+     * @return a sorted copy of {@code v}
+     */
+    private static List<Integer> sorted(final Vector<Integer> v)
+    {
+        final List<Integer> li = new ArrayList<Integer>(v);
+        Collections.sort(li);
+        return li;
+    }
+
+    /**
+     * Expected resources for a dice number, from a list of added triples.
+     * @param robberHex  Robber hex, or -1 to ignore the robber
+     */
+    private static List<Integer> expectedResources
+        (final List<int[]> triples, final int diceNum, final int robberHex, final boolean hasGold)
+    {
+        final List<Integer> li = new ArrayList<Integer>();
+        for (final int[] t : triples)
+        {
+            if ((t[0] == robberHex) || (t[1] != diceNum))
+                continue;
+            if (hasGold && (t[2] == SOCBoardLarge.GOLD_HEX))
+                for (int r = SOCResourceConstants.CLAY; r <= SOCResourceConstants.WOOD; ++r)
+                    li.add(r);
+            else
+                li.add(t[2]);
+        }
+        Collections.sort(li);
+        return li;
+    }
+
+    /**
+     * Expected dice numbers for a resource, from a list of added triples.
+     * @param robberHex  Robber hex, or -1 to ignore the robber
+     */
+    private static List<Integer> expectedNumbers
+        (final List<int[]> triples, final int resource, final int robberHex, final boolean hasGold)
+    {
+        final List<Integer> li = new ArrayList<Integer>();
+        for (final int[] t : triples)
+            if ((t[0] != robberHex) && ((t[2] == resource) || (hasGold && (t[2] == SOCBoardLarge.GOLD_HEX))))
+                li.add(t[1]);
+        Collections.sort(li);
+        return li;
+    }
+
+    /**
+     * Compare every query of {@code pn} against the triples.
+     * @param desc  Description for failure messages
+     */
+    private static void assertMatches
+        (final String desc, final SOCPlayerNumbers pn, final List<int[]> triples, final int[] landHexes)
+    {
+        final boolean hasGold = pn.hasSeaBoard;
+        final int[] robberHexes = new int[landHexes.length + 2];
+        System.arraycopy(landHexes, 0, robberHexes, 0, landHexes.length);
+        robberHexes[landHexes.length] = 0x7777;  // not a land hex
+        robberHexes[landHexes.length + 1] = -1;
+
+        for (int diceNum = 2; diceNum <= 12; ++diceNum)
+        {
+            final List<Integer> expected = expectedResources(triples, diceNum, -1, hasGold);
+            assertEquals(desc, expected, sorted(pn.getResourcesForNumber(diceNum)));
+            assertEquals(desc, ! expected.isEmpty(), pn.hasNumber(diceNum));
+        }
+        for (int res = SOCResourceConstants.CLAY; res <= SOCResourceConstants.WOOD; ++res)
+            assertEquals(desc, expectedNumbers(triples, res, -1, hasGold), sorted(pn.getNumbersForResource(res)));
+
+        for (final int robberHex : robberHexes)
+        {
+            final String msg = desc + " robber 0x" + Integer.toHexString(robberHex);
+            for (int diceNum = 2; diceNum <= 12; ++diceNum)
+            {
+                final List<Integer> expected = expectedResources(triples, diceNum, robberHex, hasGold);
+                if (robberHex != -1)
+                    assertEquals(msg, expected, sorted(pn.getResourcesForNumber(diceNum, robberHex)));
+                for (int res = SOCResourceConstants.CLAY; res <= SOCResourceConstants.WOOD; ++res)
+                    assertEquals(msg + " dice " + diceNum,
+                        Collections.frequency(expected, res), pn.getResourceCountForNumber(diceNum, res, robberHex));
+            }
+            if (robberHex != -1)
+                for (int res = SOCResourceConstants.CLAY; res <= SOCResourceConstants.WOOD; ++res)
+                    assertEquals(msg, expectedNumbers(triples, res, robberHex, hasGold),
+                        sorted(pn.getNumbersForResource(res, robberHex)));
+        }
+
+        for (final int hex : landHexes)
+        {
+            int n = 0;
+            for (final int[] t : triples)
+                if (t[0] == hex)
+                    ++n;
+            assertEquals(desc, (n == 0), pn.hasNoResourcesForHex(hex));
+            final Vector<IntPair> pairs = pn.getNumberResourcePairsForHex(hex);
+            assertEquals(desc, n, (pairs != null) ? pairs.size() : 0);
+        }
+    }
+
+    /**
+     * Randomly add and remove dice numbers on the board's land hexes, checking all queries
+     * and a copy made with the copy constructor after each step.
+     */
+    private static void randomAddsAndRemoves
+        (final String desc, final SOCPlayerNumbers pn, final int[] landHexes, final long seed)
+    {
+        final Random rnd = new Random(seed);
+        final List<int[]> triples = new ArrayList<int[]>();
+        final int maxRes = (pn.hasSeaBoard) ? SOCBoardLarge.GOLD_HEX : SOCResourceConstants.WOOD;
+
+        // each hex has a fixed number and resource, like a real board; some have ignored types
+        final int[][] hexInfo = new int[landHexes.length][];
+        for (int i = 0; i < landHexes.length; ++i)
+            hexInfo[i] = new int[]{ landHexes[i], 2 + rnd.nextInt(11), rnd.nextInt(maxRes + 2) };
+
+        for (int step = 0; step < 200; ++step)
+        {
+            if (triples.isEmpty() || (rnd.nextInt(3) != 0))
+            {
+                final int[] h = hexInfo[rnd.nextInt(hexInfo.length)];
+                pn.addNumberForResource(h[1], h[2], h[0]);
+                final boolean ignored = (h[2] < SOCResourceConstants.CLAY)
+                    || ((h[2] > SOCResourceConstants.WOOD) && ! (pn.hasSeaBoard && (h[2] == SOCBoardLarge.GOLD_HEX)));
+                if (! ignored)
+                    triples.add(h);
+            } else {
+                final int[] t = triples.remove(rnd.nextInt(triples.size()));
+                pn.undoAddNumberForResource(t[1], t[2], t[0]);
+            }
+
+            assertMatches(desc + " step " + step, pn, triples, landHexes);
+            if ((step % 20) == 0)
+            {
+                final SOCPlayerNumbers copy = new SOCPlayerNumbers(pn);
+                assertMatches(desc + " copy at step " + step, copy, triples, landHexes);
+
+                // changing the copy doesn't change the original
+                copy.addNumberForResource(6, SOCResourceConstants.ORE, landHexes[0]);
+                assertMatches(desc + " after copy at step " + step, pn, triples, landHexes);
+            }
+        }
+
+        pn.clear();
+        triples.clear();
+        assertMatches(desc + " after clear", pn, triples, landHexes);
+    }
+
+    /** Classic board, without gold hexes. */
+    @Test
+    public void testClassicBoard()
+    {
+        final SOCBoard board = new SOCBoard4p(null);
+        final SOCPlayerNumbers pn = new SOCPlayerNumbers(board);
+        assertFalse(pn.hasSeaBoard);
+        randomAddsAndRemoves("4p", pn, board.getLandHexCoords(), 11);
+    }
+
+    /** Large board, with gold hexes which give every resource type. */
+    @Test
+    public void testLargeBoardWithGold()
+    {
+        final SOCPlayerNumbers pn = new SOCPlayerNumbers(new SOCBoardLarge(null, 4));
+        assertTrue(pn.hasSeaBoard);
+
+        // before the layout is known, robber-aware queries are empty
+        pn.addNumberForResource(8, SOCResourceConstants.SHEEP, LARGE_LAND_HEXES[0]);
+        assertEquals(1, pn.getNumbersForResource(SOCResourceConstants.SHEEP).size());
+        assertTrue(pn.getNumbersForResource(SOCResourceConstants.SHEEP, LARGE_LAND_HEXES[1]).isEmpty());
+        assertEquals(0, pn.getResourceCountForNumber(8, SOCResourceConstants.SHEEP, LARGE_LAND_HEXES[1]));
+        pn.clear();
+
+        pn.setLandHexCoordinates(LARGE_LAND_HEXES);
+        randomAddsAndRemoves("large", pn, LARGE_LAND_HEXES, 23);
+
+        // a city on gold: 2 of each resource, none while the robber's there
+        pn.addNumberForResource(5, SOCBoardLarge.GOLD_HEX, LARGE_LAND_HEXES[2]);
+        pn.addNumberForResource(5, SOCBoardLarge.GOLD_HEX, LARGE_LAND_HEXES[2]);
+        assertEquals(10, pn.getResourcesForNumber(5).size());
+        assertEquals(2, pn.getResourceCountForNumber(5, SOCResourceConstants.WOOD, LARGE_LAND_HEXES[1]));
+        assertEquals(0, pn.getResourceCountForNumber(5, SOCResourceConstants.WOOD, LARGE_LAND_HEXES[2]));
+        assertEquals(2, pn.getNumberResourcePairsForHex(LARGE_LAND_HEXES[2]).size());
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.i18n;
+
+import java.util.Locale;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.game.SOCResourceSet;
+import soc.util.SOCStringManager;
+
+/**
+ * Tests for {@link SOCStringManager}'s cache of parsed {@code MessageFormat}s:
+ * Formatted text is the same with and without the cache, and for repeated calls.
+ *
+ * @since 2.0.00
+ */
+public class TestStringManagerFormatCache
+{
+    /** Format some texts, with parameters and specials. */
+    private static String[] formatAll(final SOCStringManager sm)
+    {
+        return new String[]
+            {
+            sm.get("action.built.road", "p1"),
+            sm.get("action.built.road", "p2"),
+            sm.getSpecial(null, "action.picked.rsrcs", "p1", new SOCResourceSet(1, 0, 2, 0, 0, 0)),
+            sm.getSpecial(null, "action.picked.rsrcs", "p2", new SOCResourceSet(0, 0, 0, 0, 1, 0)),
+            sm.getSOCResourceCount(3, Integer.valueOf(5))
+            };
+    }
+
+    /** Cached and uncached results are equal, in two locales. */
+    @Test
+    public void testCachedSameAsUncached()
+    {
+        final int cacheSize = SOCStringManager.MESSAGEFORMAT_CACHE_SIZE;
+        final Locale[] locs = { Locale.US, new Locale("es") };
+        try
+        {
+            for (Locale loc : locs)
+            {
+                final SOCStringManager sm = SOCStringManager.getServerManagerForClient(loc);
+                SOCStringManager.MESSAGEFORMAT_CACHE_SIZE = 0;
+                final String[] uncached = formatAll(sm);
+                SOCStringManager.MESSAGEFORMAT_CACHE_SIZE = 2;  // small enough to evict some
+                for (int round = 0; round < 3; ++round)
+                    assertArrayEquals(loc.toString(), uncached, formatAll(sm));
+            }
+        } finally {
+            SOCStringManager.MESSAGEFORMAT_CACHE_SIZE = cacheSize;
+        }
+
+        assertEquals("p1 built a road.", SOCStringManager.getServerManagerForClient(Locale.US)
+            .get("action.built.road", "p1"));
+    }
+
+}
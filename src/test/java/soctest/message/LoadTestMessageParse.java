@@ -0,0 +1,196 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.message;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.StringTokenizer;
+
+import soc.game.SOCResourceSet;
+import soc.game.SOCTradeOffer;
+import soc.message.SOCDiceResult;
+import soc.message.SOCGameState;
+import soc.message.SOCMakeOffer;
+import soc.message.SOCMessage;
+import soc.message.SOCPlayerElement;
+import soc.message.SOCPutPiece;
+import soc.message.SOCTurn;
+
+/**
+ * Allocation and speed benchmark for {@link SOCMessage#toMsg(String)}'s cursor-based parsing of high-volume
+ * message types, compared with the {@link StringTokenizer} parsing they used before v2.0.00.
+ * Not a junit test, since its results depend on the JVM: Run its {@code main} manually.
+ *<P>
+ * For each message type, parses a typical message many times each way and reports the average
+ * bytes allocated and nanoseconds per message. Allocation is measured with the
+ * {@code com.sun.management.ThreadMXBean.getThreadAllocatedBytes} extension, if the JVM has it.
+ *<P>
+ * Usage: {@code LoadTestMessageParse [iterations]}; default is 2,000,000 per type and method.
+ *
+ * @since 2.0.00
+ */
+public class LoadTestMessageParse
+{
+    public static void main(String[] args)
+        throws Exception
+    {
+        final int iters = (args.length > 0) ? Integer.parseInt(args[0]) : 2000000;
+
+        final SOCResourceSet give = new SOCResourceSet(1, 0, 2, 0, 0, 0), get = new SOCResourceSet(0, 1, 0, 0, 3, 0);
+        final String[] cmds =
+            {
+                SOCPutPiece.toCmd("practice-game", 2, 1, 0x405),
+                new SOCPlayerElement("practice-game", 3, SOCPlayerElement.GAIN, SOCPlayerElement.ORE, 2).toCmd(),
+                SOCDiceResult.toCmd("practice-game", 7),
+                SOCGameState.toCmd("practice-game", 20),
+                SOCMakeOffer.toCmd("practice-game", new SOCTradeOffer
+                    ("practice-game", 1, new boolean[]{ false, false, true, true }, give, get)),
+                SOCTurn.toCmd("practice-game", 3)
+            };
+
+        System.out.println("message\tmethod\tbytes_per_msg\tns_per_msg");
+        for (int i = 0; i < cmds.length; ++i)
+        {
+            // warm up both, then measure
+            run(cmds[i], true, iters / 4);
+            run(cmds[i], false, iters / 4);
+            for (int m = 0; m < 2; ++m)
+            {
+                final boolean legacy = (m == 0);
+                final long[] res = run(cmds[i], legacy, iters);
+                final String name = SOCMessage.toMsg(cmds[i]).getClass().getSimpleName();
+                System.out.println(name + "\t" + (legacy ? "tokenizer" : "cursor") + "\t"
+                    + ((res[0] >= 0) ? Long.toString(res[0] / iters) : "?") + "\t" + (res[1] / iters));
+            }
+        }
+    }
+
+    /**
+     * Parse {@code cmd} {@code iters} times.
+     * @param cmd  Message to parse
+     * @param legacy  If true use {@link #legacyToMsg(String)}, otherwise {@link SOCMessage#toMsg(String)}
+     * @param iters  Number of times to parse
+     * @return  Bytes allocated (or -1 if unknown), and elapsed nanoseconds
+     */
+    private static long[] run(final String cmd, final boolean legacy, final int iters)
+        throws Exception
+    {
+        final long b0 = allocatedBytes(), t0 = System.nanoTime();
+        int sink = 0;
+        if (legacy)
+            for (int i = 0; i < iters; ++i)
+                sink += legacyToMsg(cmd).hashCode() & 1;
+        else
+            for (int i = 0; i < iters; ++i)
+                sink += SOCMessage.toMsg(cmd).hashCode() & 1;
+        final long t1 = System.nanoTime(), b1 = allocatedBytes();
+        if (sink == -1)
+            System.out.println();  // keep results live
+
+        return new long[]{ ((b0 >= 0) ? (b1 - b0) : -1), t1 - t0 };
+    }
+
+    /** ThreadMXBean extension method, or null if not available */
+    private static Method allocMethod;
+    private static ThreadMXBean tmx;
+    static
+    {
+        try
+        {
+            tmx = ManagementFactory.getThreadMXBean();
+            allocMethod = Class.forName("com.sun.management.ThreadMXBean")
+                .getMethod("getThreadAllocatedBytes", long.class);
+        }
+        catch (Exception e) {}
+    }
+
+    /** Bytes allocated so far by the current thread, or -1 if not available from this JVM. */
+    private static long allocatedBytes()
+    {
+        if (allocMethod == null)
+            return -1;
+
+        try
+        {
+            return ((Long) allocMethod.invoke(tmx, Thread.currentThread().getId())).longValue();
+        }
+        catch (Exception e)
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * Parse a message the way {@link SOCMessage#toMsg(String)} and these types' {@code parseDataStr} did
+     * before v2.0.00, with {@link StringTokenizer}s. Handles only the types in {@link #main(String[])}.
+     */
+    private static SOCMessage legacyToMsg(final String s)
+    {
+        StringTokenizer st = new StringTokenizer(s, SOCMessage.sep);
+        final int msgId = Integer.parseInt(st.nextToken());
+        final String data = st.nextToken();
+        st = new StringTokenizer(data, SOCMessage.sep2);
+        final String ga = st.nextToken();
+
+        switch (msgId)
+        {
+        case SOCMessage.PUTPIECE:
+            return new SOCPutPiece(ga, Integer.parseInt(st.nextToken()),
+                Integer.parseInt(st.nextToken()), Integer.parseInt(st.nextToken()));
+
+        case SOCMessage.PLAYERELEMENT:
+            {
+                final int pn = Integer.parseInt(st.nextToken()), ac = Integer.parseInt(st.nextToken()),
+                    et = Integer.parseInt(st.nextToken()), va = Integer.parseInt(st.nextToken());
+                final boolean isNews = st.hasMoreTokens() && st.nextToken().equals("Y");
+                return new SOCPlayerElement(ga, pn, ac, et, va, isNews);
+            }
+
+        case SOCMessage.DICERESULT:
+            return new SOCDiceResult(ga, Integer.parseInt(st.nextToken()));
+
+        case SOCMessage.GAMESTATE:
+            return new SOCGameState(ga, Integer.parseInt(st.nextToken()));
+
+        case SOCMessage.MAKEOFFER:
+            {
+                final int from = Integer.parseInt(st.nextToken());
+                final boolean[] to = new boolean[st.countTokens() - 10];
+                for (int i = 0; i < to.length; ++i)
+                    to[i] = Boolean.valueOf(st.nextToken()).booleanValue();
+                final SOCResourceSet give = new SOCResourceSet(), get = new SOCResourceSet();
+                for (int i = 1; i <= 5; ++i)
+                    give.setAmount(Integer.parseInt(st.nextToken()), i);
+                for (int i = 1; i <= 5; ++i)
+                    get.setAmount(Integer.parseInt(st.nextToken()), i);
+                return new SOCMakeOffer(ga, new SOCTradeOffer(ga, from, to, give, get));
+            }
+
+        case SOCMessage.TURN:
+            return new SOCTurn(ga, Integer.parseInt(st.nextToken()));
+
+        default:
+            throw new IllegalArgumentException("type " + msgId);
+        }
+    }
+
+}
@@ -0,0 +1,260 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.message.SOCBinaryCodec;
+import soc.message.SOCBoardLayout2;
+import soc.message.SOCGameTextMsg;
+import soc.message.SOCPotentialSettlements;
+import soc.message.SOCPutPiece;
+import soc.message.SOCVersion;
+import soc.server.genericServer.EncodedMessage;
+
+/**
+ * Tests for {@link SOCBinaryCodec}: Every message text must decode to exactly what was encoded,
+ * and text frames must still be read correctly.
+ *
+ * @since 2.0.00
+ */
+public class TestBinaryCodec
+{
+    /** Encode as a binary frame and decode it again; check that it's really binary. */
+    private static String roundTrip(final String msg)
+        throws IOException
+    {
+        final byte[] f = SOCBinaryCodec.encodeBinaryFrame(msg);
+        assertNotNull(msg, f);
+        assertEquals(0, f[2]);  // marker
+        assertEquals(f.length - 2, ((f[0] & 0xFF) << 8) | (f[1] & 0xFF));
+
+        return SOCBinaryCodec.readFrame(new DataInputStream(new ByteArrayInputStream(f)));
+    }
+
+    /** Typical and unusual message texts round-trip exactly. */
+    @Test
+    public void testRoundTrip()
+        throws IOException
+    {
+        final String[] msgs =
+            {
+            "9999",
+            SOCPutPiece.toCmd("ga", 2, 1, 0x405),
+            SOCGameTextMsg.toCmd("gé", "pl", "café 中文 ok, -12|x"),
+            SOCVersion.toCmd(2000, "2.0.00", "JM20180101", SOCBinaryCodec.withClientFlag("en_US")),
+            SOCPotentialSettlements.toCmd("ga", 0, new java.util.Vector<Integer>()),
+            "1012|", "1012||", "1012|,", "1012|,,5,", "1012|a,,b|",
+            "1012|0,-0,00,01,-1,+1,-,--1",
+            "1012|1,2,3,x,4,5|6|7,8",
+            "1012|[,[0,[-0,[01,[-5,[12|[3,x[1",
+            "1012|9223372036854775807,-9223372036854775808,999999999999999999,-999999999999999999",
+            "1012|1\u0000\u0080߿ࠀ￿",
+            "1012|١٢,12",
+            };
+        for (final String m : msgs)
+            assertEquals(m, roundTrip(m));
+    }
+
+    /** Random texts built from digits, separators, signs and other chars round-trip exactly. */
+    @Test
+    public void testRandomRoundTrip()
+        throws IOException
+    {
+        final Random rnd = new Random(42);
+        final char[] alphabet = { '0', '1', '5', '9', '-', '+', '|', ',', '|', ',', 'a', 'é', '\u0000', '中' };
+        for (int n = 0; n < 20000; ++n)
+        {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(1000 + rnd.nextInt(100));
+            final int len = rnd.nextInt(40);
+            for (int i = 0; i < len; ++i)
+                sb.append(alphabet[rnd.nextInt(alphabet.length)]);
+            final String m = sb.toString();
+            final byte[] f = SOCBinaryCodec.encodeBinaryFrame(m);
+            if (f == null)
+                continue;  // type number followed by non-separator: not binary-encodable
+            assertEquals(m, roundTrip(m));
+        }
+    }
+
+    /** Board layouts and coordinate lists are much smaller in binary. */
+    @Test
+    public void testCoordinateSizes()
+        throws IOException
+    {
+        final StringBuilder sb = new StringBuilder("1067|ga");
+        for (int i = 0; i < 60; ++i)
+            sb.append(',').append(0x400 + 2 * i);
+        final String m = sb.toString();
+        final byte[] f = SOCBinaryCodec.encodeBinaryFrame(m);
+        final int textLen = 2 + m.length();
+        assertTrue("binary " + f.length + " vs text " + textLen, f.length * 2 < textLen);
+        assertEquals(m, roundTrip(m));
+
+        final String layout = "1084|ga,3,HL,[6,1,2,3,-4,5,0,PL,[4,8,5,6,9,VS,[0,X,[1";
+        assertTrue(SOCBoardLayout2.class.getSimpleName(), SOCBinaryCodec.encodeBinaryFrame(layout).length < 2 + layout.length());
+        assertEquals(layout, roundTrip(layout));
+    }
+
+    /** Texts which don't start with a canonical type number are left for text frames. */
+    @Test
+    public void testNotEncodable()
+    {
+        final String[] msgs = { "", "x", "|1", "01|2", "12a|3", "1234567890|1" };
+        for (final String m : msgs)
+            assertNull(m, SOCBinaryCodec.encodeBinaryFrame(m));
+    }
+
+    /** Readers accept text frames, and writers send text unless binary is asked for. */
+    @Test
+    public void testTextFrames()
+        throws IOException
+    {
+        final String m = SOCGameTextMsg.toCmd("gé", "pl", "café 中文 \u0000");
+        final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bout);
+        SOCBinaryCodec.writeFrame(out, m, false);
+        SOCBinaryCodec.writeFrame(out, m, true);
+        SOCBinaryCodec.writeFrame(out, "x", true);  // falls back to text
+
+        final ByteArrayOutputStream utf = new ByteArrayOutputStream();
+        new DataOutputStream(utf).writeUTF(m);
+        final byte[] b = bout.toByteArray();
+        for (int i = 0; i < utf.size(); ++i)
+            assertEquals(utf.toByteArray()[i], b[i]);
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(b));
+        assertEquals(m, SOCBinaryCodec.readFrame(in));
+        assertEquals(m, SOCBinaryCodec.readFrame(in));
+        assertEquals("x", in.readUTF());
+        assertEquals(0, in.available());
+    }
+
+    /**
+     * {@link SOCBinaryCodec#writeFrame(DataOutputStream, String, boolean)} and
+     * {@link SOCBinaryCodec#readFrame(DataInputStream, int[])} report each frame's size on the wire,
+     * including non-ASCII text in modified UTF-8.
+     */
+    @Test
+    public void testFrameSizes()
+        throws IOException
+    {
+        final String[] msgs =
+            { SOCGameTextMsg.toCmd("gé", "pl", "café 中文 \u0000"), SOCPutPiece.toCmd("ga", 2, 1, 0x405), "x", "" };
+        final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bout);
+        final int[] written = new int[2 * msgs.length];
+        for (int i = 0; i < written.length; ++i)
+        {
+            final int before = bout.size();
+            written[i] = SOCBinaryCodec.writeFrame(out, msgs[i / 2], (i % 2 == 1));
+            assertEquals("written size " + i, bout.size() - before, written[i]);
+        }
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bout.toByteArray()));
+        final int[] frameSize = new int[1];
+        for (int i = 0; i < written.length; ++i)
+        {
+            assertEquals(msgs[i / 2], SOCBinaryCodec.readFrame(in, frameSize));
+            assertEquals("read size " + i, written[i], frameSize[0]);
+        }
+
+        assertEquals(2, SOCBinaryCodec.modifiedUTF8Length("\u0000"));
+        assertEquals(2 + 3, SOCBinaryCodec.modifiedUTF8Length("é中"));
+    }
+
+    /** Malformed binary frames throw {@link UTFDataFormatException}, not a runtime exception. */
+    @Test
+    public void testMalformed()
+    {
+        final byte[] full = SOCBinaryCodec.encodeBinaryFrame("1012|ga,1,2,3|xyz");
+        final byte[][] bad =
+            {
+            { 0 },
+            { 0, 2, 5 },  // unknown format version
+            { 0, 1, (byte) 0x80 },  // truncated varint
+            { 0, 1, 5, 0x0F },  // bad header
+            { 0, 1, 5, (byte) 0xF1, 9, 'a' },  // text past end
+            };
+        for (final byte[] b : bad)
+        {
+            try
+            {
+                SOCBinaryCodec.decodePayload(b, 0, b.length);
+                fail("should reject");
+            }
+            catch (UTFDataFormatException e) {}
+        }
+
+        for (int len = 3; len < full.length - 2; ++len)
+        {
+            try
+            {
+                SOCBinaryCodec.decodePayload(full, 2, len);  // truncated: may decode to a prefix, but never runtime exception
+            }
+            catch (UTFDataFormatException e) {}
+        }
+    }
+
+    /** Client flag helpers used during version negotiation. */
+    @Test
+    public void testClientFlag()
+    {
+        assertEquals("en_US;bin1;", SOCBinaryCodec.withClientFlag("en_US"));
+        assertEquals(";bin1;", SOCBinaryCodec.withClientFlag(null));
+        assertTrue(SOCBinaryCodec.hasClientFlag("en_US;bin1;"));
+        assertTrue(SOCBinaryCodec.hasClientFlag(";bin1;"));
+        assertFalse(SOCBinaryCodec.hasClientFlag("en_US"));
+        assertFalse(SOCBinaryCodec.hasClientFlag(null));
+        assertEquals("en_US", SOCBinaryCodec.stripClientFlag("en_US;bin1;"));
+        assertEquals("en_US", SOCBinaryCodec.stripClientFlag("en_US"));
+        assertNull(SOCBinaryCodec.stripClientFlag(";bin1;"));
+        assertNull(SOCBinaryCodec.stripClientFlag(null));
+    }
+
+    /** {@link EncodedMessage#getFrame(boolean)} caches a binary frame separate from the text frame. */
+    @Test
+    public void testEncodedMessageFrames()
+        throws IOException
+    {
+        final String m = SOCPutPiece.toCmd("ga", 2, 1, 0x405);
+        final EncodedMessage em = new EncodedMessage(m);
+        final byte[] bin = em.getFrame(true);
+        assertSame(bin, em.getFrame(true));
+        assertEquals(0, bin[2]);
+        assertSame(em.getFrame(), em.getFrame(false));
+        assertTrue(bin.length < em.getFrame().length);
+
+        final EncodedMessage notBin = new EncodedMessage("x");
+        assertSame(notBin.getFrame(), notBin.getFrame(true));
+    }
+
+}
@@ -0,0 +1,137 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.message;
+
+import java.util.NoSuchElementException;
+import java.util.StringTokenizer;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.game.SOCResourceSet;
+import soc.game.SOCTradeOffer;
+import soc.message.SOCDiceResult;
+import soc.message.SOCGameState;
+import soc.message.SOCMakeOffer;
+import soc.message.SOCMessage;
+import soc.message.SOCMessageCursor;
+import soc.message.SOCPlayerElement;
+import soc.message.SOCPutPiece;
+import soc.message.SOCTurn;
+
+/**
+ * Tests for {@link SOCMessageCursor} and the message types which {@link SOCMessage#toMsg(String)} parses with it.
+ *
+ * @since 2.0.00
+ */
+public class TestMessageCursor
+{
+    /**
+     * {@link SOCMessageCursor#parseInt(CharSequence, int, int)} must accept and reject the same as
+     * {@link Integer#parseInt(String)} on the Java 5 target, which rejects a leading {@code '+'}.
+     */
+    @Test
+    public void testParseInt()
+    {
+        final String[] valid =
+            { "0", "7", "-1", "1000", "-1000", "007",
+              "2147483647", "-2147483648", "١٢" /* arabic-indic 12 */ };
+        for (final String v : valid)
+            assertEquals(v, Integer.parseInt(v), SOCMessageCursor.parseInt("x" + v + "y", 1, v.length() + 1));
+
+        final String[] invalid = { "", "-", "+", "+5", "+-1", "2147483648", "-2147483649", "99999999999", "1a", "0x10", " 1", "1.0", "--1" };
+        for (final String v : invalid)
+        {
+            try
+            {
+                SOCMessageCursor.parseInt(v, 0, v.length());
+                fail("should reject: \"" + v + "\"");
+            }
+            catch (NumberFormatException e) {}
+        }
+    }
+
+    /** Tokens must be the same as {@link StringTokenizer}'s, including consecutive and trailing separators. */
+    @Test
+    public void testTokensLikeStringTokenizer()
+    {
+        final String[] data = { "", ",", "a", "a,b", ",a,,b,", "ga,1,-2,,3,", "g é,12,Y" };
+        for (final String d : data)
+        {
+            final StringTokenizer st = new StringTokenizer(d, SOCMessage.sep2);
+            final SOCMessageCursor cur = new SOCMessageCursor(d);
+            assertEquals(d, st.countTokens(), cur.countRemaining());
+            while (st.hasMoreTokens())
+            {
+                assertTrue(cur.hasNext());
+                assertEquals(st.nextToken(), cur.next());
+            }
+            assertFalse(cur.hasNext());
+            assertEquals(0, cur.countRemaining());
+            try
+            {
+                cur.next();
+                fail("expected NoSuchElementException");
+            }
+            catch (NoSuchElementException e) {}
+        }
+
+        final SOCMessageCursor cur = new SOCMessageCursor("Y,N,YY,true,TRUE,false,t");
+        assertTrue(cur.nextEquals("Y"));
+        assertFalse(cur.nextEquals("Y"));
+        assertFalse(cur.nextEquals("Y"));
+        assertTrue(cur.nextBoolean());
+        assertTrue(cur.nextBoolean());
+        assertFalse(cur.nextBoolean());
+        assertFalse(cur.nextBoolean());
+    }
+
+    /** Round-trip each type parsed with a cursor through {@link SOCMessage#toMsg(String)}. */
+    @Test
+    public void testToMsgRoundTrip()
+    {
+        final SOCResourceSet give = new SOCResourceSet(1, 0, 2, 0, 0, 0), get = new SOCResourceSet(0, 1, 0, 0, 3, 0);
+        final SOCMessage[] msgs =
+            {
+                new SOCPutPiece("ga", 2, 1, 0x405),
+                new SOCPlayerElement("ga", 3, SOCPlayerElement.GAIN, SOCPlayerElement.ORE, 2),
+                new SOCPlayerElement("ga", 3, SOCPlayerElement.SET, SOCPlayerElement.NUMKNIGHTS, 1, true),
+                new SOCDiceResult("ga", 7),
+                new SOCGameState("ga", 20),
+                new SOCMakeOffer("ga", new SOCTradeOffer
+                    ("ga", 1, new boolean[]{ true, false, true, false, false, true }, give, get)),
+                new SOCTurn("ga", 5)
+            };
+        for (final SOCMessage m : msgs)
+        {
+            final String cmd = m.toCmd();
+            final SOCMessage parsed = SOCMessage.toMsg(cmd);
+            assertNotNull(cmd, parsed);
+            assertEquals(m.getClass(), parsed.getClass());
+            assertEquals(cmd, parsed.toCmd());
+        }
+
+        assertNull(SOCMessage.toMsg(SOCMessage.PUTPIECE + "|ga,2,1"));  // missing field
+        assertNull(SOCMessage.toMsg(SOCMessage.TURN + "|ga,x"));  // garbled
+        assertNull(SOCMessage.toMsg(SOCMessage.GAMESTATE + "|"));
+    }
+
+}
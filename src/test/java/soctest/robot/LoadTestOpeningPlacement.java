@@ -0,0 +1,146 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.robot;
+
+import java.util.Map;
+
+import soc.game.SOCBoard6p;
+import soc.game.SOCBoardLarge;
+import soc.game.SOCGame;
+import soc.game.SOCGameOption;
+import soc.robot.OpeningBuildStrategy;
+import soc.server.SOCGameHandler;
+import soc.server.SOCGameListAtServer;
+
+/**
+ * Timing benchmark for {@link OpeningBuildStrategy#planInitialSettlements()}
+ * and {@link OpeningBuildStrategy#planSecondSettlement()} on {@link SOCBoard6p} and {@link SOCBoardLarge} layouts,
+ * which have the most candidate settlement pairs.
+ * Not a junit test, since its results depend on the machine: Run its {@code main} manually.
+ *<P>
+ * For each layout, creates {@link #GAMES} games with random boards and times planning for one player in each:
+ * With the original serial loops ({@link OpeningBuildStrategy#USE_PARALLEL_EVAL} false), with parallel evaluation
+ * in the calling thread only, and with parallel evaluation on {@link OpeningBuildStrategy#EVAL_THREADS} threads.
+ * All 3 must choose the same nodes.
+ *<P>
+ * Usage: {@code LoadTestOpeningPlacement [threads]}; default is the number of available processors.
+ *
+ * @since 2.0.00
+ */
+public class LoadTestOpeningPlacement
+{
+    /** Number of random games per layout */
+    public static final int GAMES = 10;
+
+    /** Number of timed runs per configuration; best is reported */
+    private static final int RUNS = 5;
+
+    /** Layouts to time: Game options and number of players */
+    private static final String[][] LAYOUTS =
+        { { "PL=6,PLB=t", "6" }, { "PL=4,SBL=t", "4" }, { "PL=6,SBL=t", "6" } };
+
+    public static void main(String[] args)
+    {
+        final int threads = (args.length > 0)
+            ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        OpeningBuildStrategy.EVAL_THREADS = threads;  // before the pool is created
+
+        final SOCGameListAtServer gl = new SOCGameListAtServer();
+        final SOCGameHandler sgh = new SOCGameHandler(null);
+
+        System.out.println(GAMES + " games per layout, " + threads + " threads");
+        System.out.println("layout\timpl\tbest_ms\tms_per_plan");
+        for (int lay = 0; lay < LAYOUTS.length; ++lay)
+        {
+            final String[] layout = LAYOUTS[lay];
+            final int numPl = Integer.parseInt(layout[1]);
+            final SOCGame[] games = new SOCGame[GAMES];
+            for (int g = 0; g < GAMES; ++g)
+                games[g] = startGame(gl, sgh, "bench" + lay + "-" + g, layout[0], numPl);
+
+            final String[] implNames = { "serial", "parallel-1", "parallel-" + threads };
+            long expected = 0;
+            for (int impl = 0; impl < 3; ++impl)
+            {
+                OpeningBuildStrategy.USE_PARALLEL_EVAL = (impl != 0);
+                OpeningBuildStrategy.EVAL_THREADS = (impl == 1) ? 1 : threads;
+                runOnce(games);  // warmup
+
+                long best = Long.MAX_VALUE, sum = 0;
+                for (int run = 0; run < RUNS; ++run)
+                {
+                    final long t0 = System.nanoTime();
+                    sum = runOnce(games);
+                    final long ns = System.nanoTime() - t0;
+                    if (ns < best)
+                        best = ns;
+                }
+
+                if (impl == 0)
+                    expected = sum;
+                else if (sum != expected)
+                    throw new IllegalStateException("checksum mismatch: " + layout[0] + " " + implNames[impl]);
+
+                System.out.println(layout[0] + "\t" + implNames[impl] + "\t" + (best / 1000000) + "\t"
+                    + String.format("%.2f", best / (1000000.0 * GAMES)));
+            }
+
+            for (final SOCGame ga : games)
+                gl.deleteGame(ga.getName());
+        }
+
+        OpeningBuildStrategy.USE_PARALLEL_EVAL = true;
+        OpeningBuildStrategy.EVAL_THREADS = threads;
+    }
+
+    /** Create and start a game with these options and number of players. */
+    private static SOCGame startGame
+        (final SOCGameListAtServer gl, final SOCGameHandler sgh, final String gaName, final String opts, final int numPl)
+    {
+        final Map<String, SOCGameOption> gaOpts = SOCGameOption.parseOptionsToMap(opts);
+        SOCGameOption.adjustOptionsToKnown(gaOpts, null, true);
+        gl.createGame(gaName, "bench", "en_US", gaOpts, sgh);
+        final SOCGame ga = gl.getGameData(gaName);
+        for (int pn = 0; pn < numPl; ++pn)
+            ga.addPlayer("p" + pn, pn);
+        ga.startGame();
+
+        return ga;
+    }
+
+    /**
+     * Plan both initial settlements for player 0 in each game.
+     * @return  Checksum of the chosen nodes
+     */
+    private static long runOnce(final SOCGame[] games)
+    {
+        long sum = 0;
+        for (int g = 0; g < games.length; ++g)
+        {
+            final OpeningBuildStrategy obs = new OpeningBuildStrategy(games[g], games[g].getPlayer(0));
+            sum += (g + 1) * (long) obs.planInitialSettlements();
+            sum += (g + 7) * (long) obs.planSecondSettlement();
+        }
+
+        return sum;
+    }
+
+}
@@ -0,0 +1,287 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.robot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import soc.game.SOCBoard;
+import soc.game.SOCGame;
+import soc.game.SOCGameOption;
+import soc.game.SOCPlayer;
+import soc.game.SOCPlayingPiece;
+import soc.game.SOCResourceConstants;
+import soc.game.SOCRoad;
+import soc.game.SOCSettlement;
+import soc.message.SOCMessage;
+import soc.robot.SOCPlayerTracker;
+import soc.robot.SOCPossibleRoad;
+import soc.robot.SOCPossibleSettlement;
+import soc.robot.SOCRobotBrain;
+import soc.robot.SOCRobotClient;
+import soc.robot.SOCRobotDM;
+import soc.util.CappedQueue;
+import soc.util.SOCRobotParameters;
+
+/**
+ * Timing benchmark for the robot decision maker's {@link SOCRobotDM#planStuff(int)}, which
+ * copies and speculatively updates the players' {@link soc.game.SOCPlayer} data and trackers many times per call.
+ * Not a junit test, since it takes a while and its results depend on the machine: Run its {@code main} manually.
+ *<P>
+ * Each round sets up a new 4- or 6-player classic game without a server: Random initial placement,
+ * then several more random roads and settlements per player to reach a typical mid-game position,
+ * all tracked by a {@link SOCRobotBrain} seated at player 0 the same way a robot client would track them.
+ * Then times {@link SOCRobotDM#planStuff(int) planStuff}({@link SOCRobotDM#SMART_STRATEGY}) for that brain.
+ * The first rounds are a warmup and aren't reported.
+ *<P>
+ * Runs on 4- and 6-player boards, with {@link SOCRobotDM#USE_TRACKER_UNDO_LOG} false and true
+ * to compare copying the player trackers against rolling them back with an undo log.
+ *<P>
+ * Usage: {@code LoadTestRobotPlanning [rounds [callsPerRound]]}; defaults are 30 rounds, 40 calls.
+ * Placement is random but seeded, although each new game's board layout isn't.
+ *
+ * @since 2.0.00
+ */
+public class LoadTestRobotPlanning
+{
+    /** Robot parameters for a smart robot, same as the server's default {@code ROBOT_PARAMS_SMARTER} */
+    private static final SOCRobotParameters PARAMS_SMART
+        = new SOCRobotParameters(120, 35, 0.13f, 1.0f, 1.0f, 3.0f, 1.0f, SOCRobotDM.SMART_STRATEGY, 1);
+
+    /** Number of warmup rounds before timing */
+    private static final int WARMUP_ROUNDS = 10;
+
+    public static void main(String[] args)
+    {
+        final int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 30;
+        final int calls = (args.length > 1) ? Integer.parseInt(args[1]) : 40;
+
+        for (int numPlayers = 4; numPlayers <= 6; numPlayers += 2)
+        {
+            for (int mode = 0; mode < 2; ++mode)
+            {
+                SOCRobotDM.USE_TRACKER_UNDO_LOG = (mode == 1);
+                final Random rnd = new Random(2000);
+
+                for (int r = 0; r < WARMUP_ROUNDS; ++r)
+                    runRound(rnd, numPlayers, calls);
+
+                long totalNanos = 0, best = Long.MAX_VALUE, totalTryNanos = 0;
+                for (int r = 0; r < rounds; ++r)
+                {
+                    final long[] perCall = runRound(rnd, numPlayers, calls);
+                    totalNanos += perCall[0];
+                    if (perCall[0] < best)
+                        best = perCall[0];
+                    totalTryNanos += perCall[1];
+                }
+
+                System.out.println("planStuff SMART " + numPlayers + "p, "
+                    + ((mode == 1) ? "undo log" : "tracker copies") + ": " + rounds + " games x " + calls
+                    + " calls: mean " + (totalNanos / rounds / 1000) + " us/call, best game "
+                    + (best / 1000) + " us/call; try and undo a piece: mean "
+                    + (totalTryNanos / rounds / 1000.0f) + " us");
+            }
+        }
+    }
+
+    /**
+     * Set up one mid-game position and time {@code planStuff} there.
+     * Also times trying and undoing each of our player's possible settlements and roads
+     * in the player trackers, without the ETA calculations which planning does after each try.
+     * @return  mean nanoseconds per {@code planStuff} call, and per piece try and undo
+     */
+    private static long[] runRound(final Random rnd, final int numPlayers, final int calls)
+    {
+        final BenchBrain brain = setupGame(rnd, numPlayers);
+        final SOCRobotDM dm = brain.getDecisionMaker();
+
+        long t0 = System.nanoTime();
+        for (int i = 0; i < calls; ++i)
+        {
+            brain.getBuildingPlan().clear();
+            dm.planStuff(SOCRobotDM.SMART_STRATEGY);
+        }
+        final long planNanos = (System.nanoTime() - t0) / calls;
+
+        final SOCGame ga = brain.getGame();
+        final SOCPlayer pl = brain.getOurPlayerData();
+        final HashMap<Integer, SOCPlayerTracker> trackers = brain.getPlayerTrackers();
+        final List<SOCPlayingPiece> pieces = new ArrayList<SOCPlayingPiece>();
+        for (SOCPossibleSettlement ps : brain.getOurPlayerTracker().getPossibleSettlements().values())
+            if (ps.getNecessaryRoads().isEmpty())
+                pieces.add(new SOCSettlement(pl, ps.getCoordinates(), null));
+        for (SOCPossibleRoad pr : brain.getOurPlayerTracker().getPossibleRoads().values())
+            if (pr.getNecessaryRoads().isEmpty())
+                pieces.add(new SOCRoad(pl, pr.getCoordinates(), null));
+        if (pieces.isEmpty())
+            return new long[]{ planNanos, 0 };
+
+        t0 = System.nanoTime();
+        for (int i = 0; i < calls; ++i)
+        {
+            for (SOCPlayingPiece pp : pieces)
+            {
+                if (SOCRobotDM.USE_TRACKER_UNDO_LOG)
+                {
+                    SOCPlayerTracker.undoTryPutPiece
+                        (pp, ga, SOCPlayerTracker.tryPutPieceWithUndoLog(pp, ga, trackers));
+                } else {
+                    SOCPlayerTracker.tryPutPiece(pp, ga, trackers);
+                    SOCPlayerTracker.undoTryPutPiece(pp, ga);
+                }
+            }
+        }
+
+        return new long[]{ planNanos, (System.nanoTime() - t0) / calls / pieces.size() };
+    }
+
+    /**
+     * Create a game with 4 players, a robot brain seated at player 0,
+     * and a random mid-game position tracked by that brain.
+     */
+    static BenchBrain setupGame(final Random rnd)
+    {
+        return setupGame(rnd, 4);
+    }
+
+    /**
+     * Create a game with 4 or 6 players, a robot brain seated at player 0,
+     * and a random mid-game position tracked by that brain.
+     * @param numPlayers  4 or 6; 6 uses the 6-player board
+     */
+    static BenchBrain setupGame(final Random rnd, final int numPlayers)
+    {
+        final SOCGame ga = new SOCGame
+            ("bench", (numPlayers > 4) ? SOCGameOption.parseOptionsToMap("PL=6,PLB=t") : null);
+        for (int pn = 0; pn < numPlayers; ++pn)
+            ga.addPlayer((pn == 0) ? "bench" : ("p" + pn), pn);
+        ga.startGame();
+
+        final SOCRobotClient cli = new SOCRobotClient("localhost", 1, "bench", "pw", "cookie");
+        final BenchBrain brain = new BenchBrain(cli, ga);
+        brain.setOurPlayerData();
+        final SOCBoard board = ga.getBoard();
+
+        // Initial placement, in the game's turn order
+        while (ga.getGameState() < SOCGame.ROLL_OR_CARD)
+        {
+            final SOCPlayer pl = ga.getPlayer(ga.getCurrentPlayerNumber());
+            if (! placeSettlement(ga, brain, pl, rnd) || ! placeRoad(ga, brain, pl, rnd))
+                break;  // shouldn't happen on the classic board
+        }
+
+        // A few more turns' worth of pieces for each player
+        for (int turn = 0; turn < 4; ++turn)
+        {
+            for (int pn = 0; pn < numPlayers; ++pn)
+            {
+                final SOCPlayer pl = ga.getPlayer(pn);
+                placeRoad(ga, brain, pl, rnd);
+                placeRoad(ga, brain, pl, rnd);
+                if (rnd.nextInt(3) == 0)
+                    placeSettlement(ga, brain, pl, rnd);
+            }
+        }
+
+        final SOCPlayer ourPl = ga.getPlayer(0);
+        ourPl.getResources().add(1 + rnd.nextInt(2), SOCResourceConstants.CLAY);
+        ourPl.getResources().add(1 + rnd.nextInt(2), SOCResourceConstants.WOOD);
+        ourPl.getResources().add(rnd.nextInt(2), SOCResourceConstants.SHEEP);
+        ourPl.getResources().add(rnd.nextInt(3), SOCResourceConstants.WHEAT);
+        ourPl.getResources().add(rnd.nextInt(2), SOCResourceConstants.ORE);
+
+        return brain;
+    }
+
+    /** Place a settlement at a random potential node, if any, and track it. */
+    private static boolean placeSettlement
+        (final SOCGame ga, final BenchBrain brain, final SOCPlayer pl, final Random rnd)
+    {
+        final int[] ps = pl.getPotentialSettlements_arr();
+        if ((ps == null) || (pl.getNumPieces(SOCSettlement.SETTLEMENT) == 0))
+            return false;
+
+        java.util.Arrays.sort(ps);  // set iteration order may vary
+        final SOCSettlement se = new SOCSettlement(pl, ps[rnd.nextInt(ps.length)], ga.getBoard());
+        ga.putPiece(se);
+        brain.track(se);
+        return true;
+    }
+
+    /** Place a road at a random potential edge next to one of the player's pieces, if any, and track it. */
+    private static boolean placeRoad
+        (final SOCGame ga, final BenchBrain brain, final SOCPlayer pl, final Random rnd)
+    {
+        if (pl.getNumPieces(SOCRoad.ROAD) == 0)
+            return false;
+
+        final SOCBoard board = ga.getBoard();
+        final int[] candidates = new int[200];
+        int n = 0;
+        for (int edge = 0; edge <= 0xFF; ++edge)
+            if (pl.isPotentialRoad(edge) && (n < candidates.length))
+                candidates[n++] = edge;
+        if (n == 0)
+            return false;
+
+        // During initial placement the road must touch the settlement just placed
+        if (ga.getGameState() < SOCGame.ROLL_OR_CARD)
+        {
+            final int lastNode = pl.getLastSettlementCoord();
+            final List<Integer> adj = board.getAdjacentEdgesToNode(lastNode);
+            int m = 0;
+            for (int i = 0; i < n; ++i)
+                if (adj.contains(Integer.valueOf(candidates[i])))
+                    candidates[m++] = candidates[i];
+            if (m == 0)
+                return false;
+            n = m;
+        }
+
+        final SOCRoad rd = new SOCRoad(pl, candidates[rnd.nextInt(n)], board);
+        ga.putPiece(rd);
+        brain.track(rd);
+        return true;
+    }
+
+    /** Brain which exposes piece tracking, as its robot client would do for PUTPIECE messages. */
+    static final class BenchBrain extends SOCRobotBrain
+    {
+        BenchBrain(final SOCRobotClient cli, final SOCGame ga)
+        {
+            super(cli, PARAMS_SMART, ga, new CappedQueue<SOCMessage>());
+        }
+
+        void track(final SOCSettlement se)
+        {
+            trackNewSettlement(se, false);
+        }
+
+        void track(final SOCRoad rd)
+        {
+            trackNewRoadOrShip(rd, false);
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.robot;
+
+import java.util.Random;
+
+import soc.game.SOCBoard;
+import soc.game.SOCBoard4p;
+import soc.game.SOCPlayerNumbers;
+import soc.game.SOCResourceConstants;
+import soc.game.SOCResourceSet;
+import soc.robot.SOCBuildingSpeedEstimate;
+
+/**
+ * Timing benchmark for {@link SOCBuildingSpeedEstimate#getEstimatesFromNowAccurate(SOCResourceSet, boolean[])},
+ * which calls {@code calculateRollsAccurate} for each of the 5 piece types.
+ * Not a junit test, since its results depend on the machine: Run its {@code main} manually.
+ *<P>
+ * Builds {@link #PROFILES} random production profiles and starting hands, then times estimates for all of them
+ * with the original Hashtable calculation ({@link SOCBuildingSpeedEstimate#USE_PACKED_ROLLS_ACCURATE} false),
+ * the packed engine without its cache ({@link SOCBuildingSpeedEstimate#ROLLS_ACCURATE_CACHE_SIZE} 0),
+ * and the packed engine with its cache. All 3 must produce the same checksum.
+ * Since the profiles repeat in each pass, the cached results are what a robot sees when it
+ * asks again for estimates that haven't changed.
+ *<P>
+ * Usage: {@code LoadTestRollsAccurate [passes]}; default is 5 passes per timed run.
+ *
+ * @since 2.0.00
+ */
+public class LoadTestRollsAccurate
+{
+    /** Number of random production profiles and starting hands */
+    public static final int PROFILES = 100;
+
+    /** Number of timed runs per configuration; best is reported */
+    private static final int RUNS = 5;
+
+    public static void main(String[] args)
+    {
+        final int passes = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+
+        final Random rnd = new Random(2018);
+        final SOCBoard board = new SOCBoard4p(null);
+        final int[] landHexes = board.getLandHexCoords();
+        final SOCBuildingSpeedEstimate[] estimates = new SOCBuildingSpeedEstimate[PROFILES];
+        final SOCResourceSet[] hands = new SOCResourceSet[PROFILES];
+        final boolean[][] ports = new boolean[PROFILES][SOCBoard.WOOD_PORT + 1];
+        for (int p = 0; p < PROFILES; ++p)
+        {
+            final SOCPlayerNumbers numbers = new SOCPlayerNumbers(board);
+            for (int i = 6 + rnd.nextInt(6); i > 0; --i)
+            {
+                final int diceNum = 2 + rnd.nextInt(11);
+                numbers.addNumberForResource
+                    ((diceNum == 7) ? 8 : diceNum, SOCResourceConstants.CLAY + rnd.nextInt(5),
+                     landHexes[rnd.nextInt(landHexes.length)]);
+            }
+            estimates[p] = new SOCBuildingSpeedEstimate(numbers);
+            hands[p] = new SOCResourceSet
+                (rnd.nextInt(3), rnd.nextInt(3), rnd.nextInt(3), rnd.nextInt(3), rnd.nextInt(3), 0);
+            ports[p][rnd.nextInt(ports[p].length)] = true;
+        }
+
+        final String[] implNames = { "hashtable", "packed", "cached" };
+        final int prevCacheSize = SOCBuildingSpeedEstimate.ROLLS_ACCURATE_CACHE_SIZE;
+        System.out.println(PROFILES + " profiles, " + passes + " passes per run");
+        System.out.println("impl\tbest_ms\tus_per_estimate");
+        long expected = 0;
+        for (int impl = 0; impl < 3; ++impl)
+        {
+            SOCBuildingSpeedEstimate.USE_PACKED_ROLLS_ACCURATE = (impl != 0);
+            SOCBuildingSpeedEstimate.ROLLS_ACCURATE_CACHE_SIZE = (impl == 2) ? prevCacheSize : 0;
+            runOnce(estimates, hands, ports, 1);  // warmup
+
+            long best = Long.MAX_VALUE, sum = 0;
+            for (int run = 0; run < RUNS; ++run)
+            {
+                final long t0 = System.nanoTime();
+                sum = runOnce(estimates, hands, ports, passes);
+                final long ns = System.nanoTime() - t0;
+                if (ns < best)
+                    best = ns;
+            }
+
+            if (impl == 0)
+                expected = sum;
+            else if (sum != expected)
+                throw new IllegalStateException("checksum mismatch: " + implNames[impl]);
+
+            System.out.println(implNames[impl] + "\t" + (best / 1000000) + "\t"
+                + String.format("%.1f", best / (1000.0 * passes * PROFILES * SOCBuildingSpeedEstimate.MAXPLUSONE)));
+        }
+
+        SOCBuildingSpeedEstimate.USE_PACKED_ROLLS_ACCURATE = true;
+        SOCBuildingSpeedEstimate.ROLLS_ACCURATE_CACHE_SIZE = prevCacheSize;
+    }
+
+    /**
+     * Calculate estimates for every profile, {@code passes} times.
+     * @return  Checksum of all estimated rolls
+     */
+    private static long runOnce
+        (final SOCBuildingSpeedEstimate[] estimates, final SOCResourceSet[] hands, final boolean[][] ports,
+         final int passes)
+    {
+        long sum = 0;
+        for (int p = 0; p < passes; ++p)
+        {
+            for (int i = 0; i < estimates.length; ++i)
+            {
+                final int[] rolls = estimates[i].getEstimatesFromNowAccurate(hands[i], ports[i]);
+                for (int j = 0; j < rolls.length; ++j)
+                    sum += rolls[j] * (j + 1);
+            }
+        }
+
+        return sum;
+    }
+
+}
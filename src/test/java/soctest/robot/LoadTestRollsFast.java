@@ -0,0 +1,165 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.robot;
+
+import java.util.Random;
+
+import soc.game.PackedResourceSet;
+import soc.game.SOCBoard;
+import soc.game.SOCBoard4p;
+import soc.game.SOCPlayerNumbers;
+import soc.game.SOCResourceConstants;
+import soc.game.SOCResourceSet;
+import soc.robot.SOCBuildingSpeedEstimate;
+
+/**
+ * Timing benchmark for {@link SOCBuildingSpeedEstimate#getEstimatesFromNowFast(SOCResourceSet, boolean[])},
+ * which the robot's player trackers and decision maker call for many possible pieces and hands.
+ * Not a junit test, since its results depend on the machine: Run its {@code main} manually.
+ *<P>
+ * Builds {@link #PROFILES} random production profiles and {@link #HANDS} random hands per profile,
+ * then times estimates for all of them with the original calculation which changes a copy of each hand
+ * ({@link SOCBuildingSpeedEstimate#USE_PACKED_ROLLS_FAST} false) and with {@link PackedResourceSet} hands.
+ * Both must produce the same checksum. Also reports the bytes allocated per estimate
+ * when the JVM can measure them.
+ *<P>
+ * Usage: {@code LoadTestRollsFast [passes]}; default is 100 passes per timed run.
+ *
+ * @since 2.0.00
+ */
+public class LoadTestRollsFast
+{
+    /** Number of random production profiles */
+    public static final int PROFILES = 100;
+
+    /** Number of random hands per profile */
+    public static final int HANDS = 10;
+
+    /** Number of timed runs per configuration; best is reported */
+    private static final int RUNS = 5;
+
+    public static void main(String[] args)
+    {
+        final int passes = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+
+        final Random rnd = new Random(2018);
+        final SOCBoard board = new SOCBoard4p(null);
+        final int[] landHexes = board.getLandHexCoords();
+        final SOCBuildingSpeedEstimate[] estimates = new SOCBuildingSpeedEstimate[PROFILES];
+        final SOCResourceSet[][] hands = new SOCResourceSet[PROFILES][HANDS];
+        final boolean[][] ports = new boolean[PROFILES][SOCBoard.WOOD_PORT + 1];
+        for (int p = 0; p < PROFILES; ++p)
+        {
+            final SOCPlayerNumbers numbers = new SOCPlayerNumbers(board);
+            for (int i = 6 + rnd.nextInt(6); i > 0; --i)
+            {
+                final int diceNum = 2 + rnd.nextInt(11);
+                numbers.addNumberForResource
+                    ((diceNum == 7) ? 8 : diceNum, SOCResourceConstants.CLAY + rnd.nextInt(5),
+                     landHexes[rnd.nextInt(landHexes.length)]);
+            }
+            estimates[p] = new SOCBuildingSpeedEstimate(numbers);
+            for (int h = 0; h < HANDS; ++h)
+                hands[p][h] = new SOCResourceSet
+                    (rnd.nextInt(5), rnd.nextInt(5), rnd.nextInt(5), rnd.nextInt(5), rnd.nextInt(5), 0);
+            ports[p][rnd.nextInt(ports[p].length)] = true;
+        }
+
+        final String[] implNames = { "resourceset", "packed" };
+        final long nEstimates = (long) passes * PROFILES * HANDS * SOCBuildingSpeedEstimate.MAXPLUSONE;
+        System.out.println(PROFILES + " profiles, " + HANDS + " hands, " + passes + " passes per run");
+        System.out.println("impl\tbest_ms\tns_per_estimate\tbytes_per_estimate");
+        long expected = 0;
+        for (int impl = 0; impl < 2; ++impl)
+        {
+            SOCBuildingSpeedEstimate.USE_PACKED_ROLLS_FAST = (impl != 0);
+            runOnce(estimates, hands, ports, passes);  // warmup
+
+            long best = Long.MAX_VALUE, sum = 0, bytes = -1;
+            for (int run = 0; run < RUNS; ++run)
+            {
+                final long b0 = allocatedBytes();
+                final long t0 = System.nanoTime();
+                sum = runOnce(estimates, hands, ports, passes);
+                final long ns = System.nanoTime() - t0;
+                final long b1 = allocatedBytes();
+                if (ns < best)
+                    best = ns;
+                if ((b0 >= 0) && (b1 >= 0) && ((bytes < 0) || (b1 - b0 < bytes)))
+                    bytes = b1 - b0;
+            }
+
+            if (impl == 0)
+                expected = sum;
+            else if (sum != expected)
+                throw new IllegalStateException("checksum mismatch: " + implNames[impl]);
+
+            System.out.println(implNames[impl] + "\t" + (best / 1000000) + "\t"
+                + String.format("%.1f", best / (double) nEstimates) + "\t"
+                + ((bytes >= 0) ? String.format("%.1f", bytes / (double) nEstimates) : "?"));
+        }
+
+        SOCBuildingSpeedEstimate.USE_PACKED_ROLLS_FAST = true;
+    }
+
+    /**
+     * Bytes allocated so far by this thread, if the JVM's thread bean can tell us.
+     * @return allocated bytes, or -1 if not available
+     */
+    private static long allocatedBytes()
+    {
+        try
+        {
+            final java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+            final java.lang.reflect.Method m = Class.forName("com.sun.management.ThreadMXBean")
+                .getMethod("getThreadAllocatedBytes", long.class);
+            return ((Long) m.invoke(bean, Long.valueOf(Thread.currentThread().getId()))).longValue();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Calculate estimates for every profile and hand, {@code passes} times.
+     * @return  Checksum of all estimated rolls
+     */
+    private static long runOnce
+        (final SOCBuildingSpeedEstimate[] estimates, final SOCResourceSet[][] hands, final boolean[][] ports,
+         final int passes)
+    {
+        long sum = 0;
+        for (int p = 0; p < passes; ++p)
+        {
+            for (int i = 0; i < estimates.length; ++i)
+            {
+                for (int h = 0; h < HANDS; ++h)
+                {
+                    final int[] rolls = estimates[i].getEstimatesFromNowFast(hands[i][h], ports[i]);
+                    for (int j = 0; j < rolls.length; ++j)
+                        sum += rolls[j] * (j + 1) * (h + 1);
+                }
+            }
+        }
+
+        return sum;
+    }
+
+}
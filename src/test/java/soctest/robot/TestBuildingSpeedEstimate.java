@@ -0,0 +1,328 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.robot;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.game.SOCBoard;
+import soc.game.PackedResourceSet;
+import soc.game.SOCBoard4p;
+import soc.game.SOCCity;
+import soc.game.SOCGame;
+import soc.game.SOCPlayerNumbers;
+import soc.game.SOCResourceConstants;
+import soc.game.SOCResourceSet;
+import soc.game.SOCRoad;
+import soc.game.SOCSettlement;
+import soc.robot.SOCBuildingSpeedEstimate;
+import soc.robot.SOCResSetBuildTimePair;
+import soc.util.CutoffExceededException;
+
+/**
+ * Equivalence tests for {@link SOCBuildingSpeedEstimate}'s {@code calculateRollsAccurate}:
+ * With random production profiles, starting hands, targets, ports and cutoffs, the packed engine
+ * ({@link SOCBuildingSpeedEstimate#USE_PACKED_ROLLS_ACCURATE} true), with and without its result cache,
+ * must give the same rolls and resources as the original Hashtable calculation, or throw
+ * {@link CutoffExceededException} in the same cases.
+ *<P>
+ * Also checks {@code calculateRollsFast} and {@code calculateRollsAndRsrcFast} the same way:
+ * Their packed calculation ({@link SOCBuildingSpeedEstimate#USE_PACKED_ROLLS_FAST} true)
+ * must match the original one which changes a {@link SOCResourceSet} copy.
+ *
+ * @since 2.0.00
+ */
+public class TestBuildingSpeedEstimate
+{
+    /** Targets to estimate */
+    private static final SOCResourceSet[] TARGETS =
+        { SOCRoad.COST, SOCSettlement.COST, SOCCity.COST, SOCGame.CARD_SET, new SOCResourceSet(0, 4, 0, 4, 0, 0) };
+
+    /** Estimate with public access to {@code calculateRollsAccurate} and the fast calculations */
+    private static final class TestEstimate extends SOCBuildingSpeedEstimate
+    {
+        TestEstimate(final SOCPlayerNumbers numbers)
+        {
+            super(numbers);
+        }
+
+        /**
+         * Calculate with or without the packed engine.
+         * @return the result, or null if the cutoff was exceeded
+         */
+        SOCResSetBuildTimePair calc
+            (final boolean packed, final SOCResourceSet start, final SOCResourceSet target,
+             final int cutoff, final boolean[] ports)
+        {
+            final boolean wasPacked = USE_PACKED_ROLLS_ACCURATE;
+            USE_PACKED_ROLLS_ACCURATE = packed;
+            try
+            {
+                return calculateRollsAccurate(start, target, cutoff, ports);
+            } catch (CutoffExceededException e) {
+                return null;
+            } finally {
+                USE_PACKED_ROLLS_ACCURATE = wasPacked;
+            }
+        }
+
+        /**
+         * Calculate {@code calculateRollsAndRsrcFast} with or without packed resources.
+         * @return the result, or null if the cutoff was exceeded
+         */
+        SOCResSetBuildTimePair calcFast
+            (final boolean packed, final SOCResourceSet start, final SOCResourceSet target,
+             final int cutoff, final boolean[] ports)
+        {
+            final boolean wasPacked = USE_PACKED_ROLLS_FAST;
+            USE_PACKED_ROLLS_FAST = packed;
+            try
+            {
+                return calculateRollsAndRsrcFast(start, target, cutoff, ports);
+            } catch (CutoffExceededException e) {
+                return null;
+            } finally {
+                USE_PACKED_ROLLS_FAST = wasPacked;
+            }
+        }
+
+        /**
+         * Calculate {@code calculateRollsFast} with or without packed resources.
+         * If {@code packed} and {@code start} can be packed, calls the overload which takes a packed starting set.
+         */
+        int calcRollsFast
+            (final boolean packed, final SOCResourceSet start, final SOCResourceSet target,
+             final int cutoff, final boolean[] ports)
+        {
+            final boolean wasPacked = USE_PACKED_ROLLS_FAST;
+            USE_PACKED_ROLLS_FAST = packed;
+            try
+            {
+                final long packedStart = PackedResourceSet.pack(start);
+                return (packed && (packedStart != PackedResourceSet.INVALID))
+                    ? calculateRollsFast(packedStart, target, cutoff, ports)
+                    : calculateRollsFast(start, target, cutoff, ports);
+            } finally {
+                USE_PACKED_ROLLS_FAST = wasPacked;
+            }
+        }
+
+        /** Calculate {@link #getEstimatesFromNowFast(SOCResourceSet, boolean[])} with or without packed resources. */
+        int[] estimatesFast(final boolean packed, final SOCResourceSet start, final boolean[] ports)
+        {
+            final boolean wasPacked = USE_PACKED_ROLLS_FAST;
+            USE_PACKED_ROLLS_FAST = packed;
+            try
+            {
+                return getEstimatesFromNowFast(start, ports).clone();
+            } finally {
+                USE_PACKED_ROLLS_FAST = wasPacked;
+            }
+        }
+    }
+
+    /**
+     * Random numbers for a player with 2 to 5 settlements or cities on the board's land hexes,
+     * and any dice numbers from 2 to 12; sometimes several on the same hex.
+     */
+    private static SOCPlayerNumbers randomNumbers(final SOCBoard board, final Random rnd)
+    {
+        final SOCPlayerNumbers numbers = new SOCPlayerNumbers(board);
+        final int[] landHexes = board.getLandHexCoords();
+        final int nHexes = 4 + rnd.nextInt(12);
+        for (int i = 0; i < nHexes; ++i)
+        {
+            int diceNum = 2 + rnd.nextInt(11);
+            if (diceNum == 7)
+                diceNum = 6;
+            numbers.addNumberForResource
+                (diceNum, SOCResourceConstants.CLAY + rnd.nextInt(5), landHexes[rnd.nextInt(landHexes.length)]);
+        }
+
+        return numbers;
+    }
+
+    /** Compare one calculation's results, reporting {@code desc} on failure. */
+    private static void assertSameResult
+        (final String desc, final TestEstimate est, final SOCResourceSet start, final SOCResourceSet target,
+         final int cutoff, final boolean[] ports)
+    {
+        final SOCResSetBuildTimePair expected = est.calc(false, start, target, cutoff, ports);
+        for (int i = 0; i < 2; ++i)  // second time is from cache
+        {
+            final SOCResSetBuildTimePair actual = est.calc(true, start, target, cutoff, ports);
+            if (expected == null)
+            {
+                assertNull(desc + ": should exceed cutoff", actual);
+                continue;
+            }
+
+            assertNotNull(desc + ": shouldn't exceed cutoff", actual);
+            assertEquals(desc, expected.getRolls(), actual.getRolls());
+            assertEquals(desc, expected.getResources(), actual.getResources());
+            if (actual.getResources() != null)
+                actual.getResources().add(5, SOCResourceConstants.CLAY);  // caller changes shouldn't affect cache
+        }
+    }
+
+    /** Compare one fast calculation's results, reporting {@code desc} on failure. */
+    private static void assertSameFastResult
+        (final String desc, final TestEstimate est, final SOCResourceSet start, final SOCResourceSet target,
+         final int cutoff, final boolean[] ports)
+    {
+        final SOCResSetBuildTimePair expected = est.calcFast(false, start, target, cutoff, ports),
+            actual = est.calcFast(true, start, target, cutoff, ports);
+        if (expected == null)
+        {
+            assertNull(desc + ": should exceed cutoff", actual);
+        } else {
+            assertNotNull(desc + ": shouldn't exceed cutoff", actual);
+            assertEquals(desc, expected.getRolls(), actual.getRolls());
+            assertEquals(desc, expected.getResources(), actual.getResources());
+        }
+
+        assertEquals(desc, est.calcRollsFast(false, start, target, cutoff, ports),
+            est.calcRollsFast(true, start, target, cutoff, ports));
+    }
+
+    /** Random profiles and hands, no ports or some ports, and cutoffs which are sometimes exceeded. */
+    @Test
+    public void testRandomEquivalence()
+    {
+        final Random rnd = new Random(2018);
+        final SOCBoard board = new SOCBoard4p(null);
+
+        for (int profile = 0; profile < 60; ++profile)
+        {
+            final TestEstimate est = new TestEstimate(randomNumbers(board, rnd));
+            final boolean[] ports = new boolean[SOCBoard.WOOD_PORT + 1];
+            for (int i = 0; i < ports.length; ++i)
+                ports[i] = (rnd.nextInt(4) == 0);
+
+            for (int h = 0; h < 6; ++h)
+            {
+                final SOCResourceSet start = new SOCResourceSet
+                    (rnd.nextInt(4), rnd.nextInt(4), rnd.nextInt(4), rnd.nextInt(4), rnd.nextInt(4), 0);
+                final int cutoff = (h == 0) ? 3 : SOCBuildingSpeedEstimate.DEFAULT_ROLL_LIMIT;
+                for (final SOCResourceSet target : TARGETS)
+                    assertSameResult("profile " + profile + " start " + start + " target " + target + " cutoff " + cutoff,
+                        est, start, target, cutoff, ports);
+            }
+        }
+    }
+
+    /** Start hand already has the target; large hands outside the packed range; unknown resources. */
+    @Test
+    public void testSpecialCases()
+    {
+        final Random rnd = new Random(5);
+        final TestEstimate est = new TestEstimate(randomNumbers(new SOCBoard4p(null), rnd));
+        final boolean[] ports = new boolean[SOCBoard.WOOD_PORT + 1];
+
+        final SOCResSetBuildTimePair already = est.calc(true, new SOCResourceSet(1, 0, 0, 0, 1, 0), SOCRoad.COST, 40, ports);
+        assertEquals(0, already.getRolls());
+        assertNull(already.getResources());
+
+        assertSameResult("large hand", est, new SOCResourceSet(70, 0, 0, 0, 0, 0), SOCCity.COST, 40, ports);
+        ports[SOCBoard.MISC_PORT] = true;
+        assertSameResult("large hand with port", est, new SOCResourceSet(0, 0, 61, 0, 0, 0), SOCCity.COST, 40, ports);
+        assertSameResult("unknown", est, new SOCResourceSet(0, 0, 0, 0, 0, 2), SOCSettlement.COST, 40, ports);
+    }
+
+    /**
+     * Fast calculation: Random profiles, larger hands which need several trades,
+     * ports, and cutoffs which are sometimes exceeded.
+     */
+    @Test
+    public void testFastRandomEquivalence()
+    {
+        final Random rnd = new Random(2025);
+        final SOCBoard board = new SOCBoard4p(null);
+
+        for (int profile = 0; profile < 100; ++profile)
+        {
+            final TestEstimate est = new TestEstimate(randomNumbers(board, rnd));
+            final boolean[] ports = new boolean[SOCBoard.WOOD_PORT + 1];
+            for (int i = 0; i < ports.length; ++i)
+                ports[i] = (rnd.nextInt(4) == 0);
+
+            for (int h = 0; h < 10; ++h)
+            {
+                final int max = (h < 5) ? 4 : 12;
+                final SOCResourceSet start = new SOCResourceSet
+                    (rnd.nextInt(max), rnd.nextInt(max), rnd.nextInt(max), rnd.nextInt(max), rnd.nextInt(max),
+                     rnd.nextInt(2));
+                assertArrayEquals("profile " + profile + " start " + start,
+                    est.estimatesFast(false, start, ports), est.estimatesFast(true, start, ports));
+
+                final int cutoff = (h == 0) ? 3 : SOCBuildingSpeedEstimate.DEFAULT_ROLL_LIMIT;
+                for (final SOCResourceSet target : TARGETS)
+                    assertSameFastResult("profile " + profile + " start " + start + " target " + target + " cutoff " + cutoff,
+                        est, start, target, cutoff, ports);
+            }
+        }
+    }
+
+    /**
+     * Fast calculation: Start hand already has the target; hands outside the packed range;
+     * unknown resources in the target.
+     */
+    @Test
+    public void testFastSpecialCases()
+    {
+        final Random rnd = new Random(9);
+        final TestEstimate est = new TestEstimate(randomNumbers(new SOCBoard4p(null), rnd));
+        final boolean[] ports = new boolean[SOCBoard.WOOD_PORT + 1];
+
+        final SOCResSetBuildTimePair already = est.calcFast(true, new SOCResourceSet(1, 0, 0, 0, 1, 0), SOCRoad.COST, 40, ports);
+        assertEquals(0, already.getRolls());
+        assertEquals(new SOCResourceSet(1, 0, 0, 0, 1, 0), already.getResources());
+
+        assertSameFastResult("large hand", est, new SOCResourceSet(300, 0, 0, 0, 0, 0), SOCCity.COST, 40, ports);
+        assertSameFastResult("negative", est, new SOCResourceSet(0, 0, 0, 5, -1, 0), SOCCity.COST, 40, ports);
+        ports[SOCBoard.MISC_PORT] = true;
+        assertSameFastResult("large hand with port", est, new SOCResourceSet(0, 0, 255, 0, 0, 0), SOCCity.COST, 40, ports);
+        assertSameFastResult("large target", est, new SOCResourceSet(), new SOCResourceSet(0, 255, 0, 0, 0, 0), 1000, ports);
+        assertSameFastResult("unknown in target", est, new SOCResourceSet(2, 2, 2, 2, 2, 1),
+            new SOCResourceSet(1, 0, 1, 1, 1, 2), 40, ports);
+    }
+
+    /** With the cache disabled, the packed engine still gives the same results. */
+    @Test
+    public void testWithoutCache()
+    {
+        final int prevSize = SOCBuildingSpeedEstimate.ROLLS_ACCURATE_CACHE_SIZE;
+        SOCBuildingSpeedEstimate.ROLLS_ACCURATE_CACHE_SIZE = 0;
+        try
+        {
+            final Random rnd = new Random(77);
+            final TestEstimate est = new TestEstimate(randomNumbers(new SOCBoard4p(null), rnd));
+            final boolean[] ports = new boolean[SOCBoard.WOOD_PORT + 1];
+            for (final SOCResourceSet target : TARGETS)
+                assertSameResult("no cache " + target, est, new SOCResourceSet(), target, 40, ports);
+        } finally {
+            SOCBuildingSpeedEstimate.ROLLS_ACCURATE_CACHE_SIZE = prevSize;
+        }
+    }
+
+}
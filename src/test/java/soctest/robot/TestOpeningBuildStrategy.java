@@ -0,0 +1,161 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.robot;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.game.SOCGame;
+import soc.game.SOCGameOption;
+import soc.game.SOCPlayer;
+import soc.game.SOCPlayingPiece;
+import soc.game.SOCSettlement;
+import soc.robot.OpeningBuildStrategy;
+import soc.server.SOCGameHandler;
+import soc.server.SOCGameListAtServer;
+
+/**
+ * Equivalence tests for {@link OpeningBuildStrategy}'s parallel evaluation
+ * ({@link OpeningBuildStrategy#USE_PARALLEL_EVAL}): On random classic, 6-player and large sea boards,
+ * with some settlements already placed, {@link OpeningBuildStrategy#planInitialSettlements()}
+ * and {@link OpeningBuildStrategy#planSecondSettlement()} must choose the same nodes as the serial loops,
+ * in the brain's thread alone or with helper threads.
+ *
+ * @since 2.0.00
+ */
+public class TestOpeningBuildStrategy
+{
+    private static SOCGameListAtServer gl;
+    private static SOCGameHandler sgh;
+
+    @BeforeClass
+    public static void setup()
+    {
+        sgh = new SOCGameHandler(null);
+        gl = new SOCGameListAtServer();
+    }
+
+    /** Create and start a game with these options and number of players. */
+    private static SOCGame startGame(final String gaName, final String opts, final int numPl)
+    {
+        final Map<String, SOCGameOption> gaOpts = SOCGameOption.parseOptionsToMap(opts);
+        assertNull(SOCGameOption.adjustOptionsToKnown(gaOpts, null, true));
+        gl.createGame(gaName, "test", "en_US", gaOpts, sgh);
+        final SOCGame ga = gl.getGameData(gaName);
+        for (int pn = 0; pn < numPl; ++pn)
+            ga.addPlayer("p" + pn, pn);
+        ga.startGame();
+
+        return ga;
+    }
+
+    /**
+     * Plan with each evaluation mode for player {@code pn} and compare.
+     * @return the serial loops' first settlement
+     */
+    private static int assertSamePlans(final String desc, final SOCGame ga, final int pn)
+    {
+        final SOCPlayer pl = ga.getPlayer(pn);
+        final boolean wasParallel = OpeningBuildStrategy.USE_PARALLEL_EVAL;
+        final int prevThreads = OpeningBuildStrategy.EVAL_THREADS;
+        try
+        {
+            OpeningBuildStrategy.USE_PARALLEL_EVAL = false;
+            final OpeningBuildStrategy serial = new OpeningBuildStrategy(ga, pl);
+            final int first = serial.planInitialSettlements();
+            final int second = serial.planSecondSettlement();
+
+            OpeningBuildStrategy.USE_PARALLEL_EVAL = true;
+            for (final int threads : new int[]{ 1, 3 })
+            {
+                OpeningBuildStrategy.EVAL_THREADS = threads;
+                final OpeningBuildStrategy par = new OpeningBuildStrategy(ga, pl);
+                final String msg = desc + " pn " + pn + " threads " + threads;
+                assertEquals(msg + " first", first, par.planInitialSettlements());
+                assertEquals(msg + " second", second, par.planSecondSettlement());
+            }
+
+            return first;
+        } finally {
+            OpeningBuildStrategy.USE_PARALLEL_EVAL = wasParallel;
+            OpeningBuildStrategy.EVAL_THREADS = prevThreads;
+        }
+    }
+
+    /**
+     * For several random boards with these options, compare plans for each player
+     * while placing a settlement at each plan's first node, then at random nodes.
+     */
+    private static void checkBoards(final String desc, final String opts, final int numPl, final int games)
+    {
+        final Random rnd = new Random(2018);
+        for (int g = 0; g < games; ++g)
+        {
+            final String gaName = desc + g;
+            final SOCGame ga = startGame(gaName, opts, numPl);
+            for (int pn = 0; pn < numPl; ++pn)
+            {
+                final SOCPlayer pl = ga.getPlayer(pn);
+                int node = assertSamePlans(gaName, ga, pn);
+                if ((node == 0) || ! pl.isPotentialSettlement(node))
+                {
+                    final int[] ps = pl.getPotentialSettlements_arr();
+                    if ((ps == null) || (ps.length == 0))
+                        continue;
+                    Arrays.sort(ps);
+                    node = ps[rnd.nextInt(ps.length)];
+                }
+                if (pl.getNumPieces(SOCPlayingPiece.SETTLEMENT) > 0)
+                    ga.putPiece(new SOCSettlement(pl, node, ga.getBoard()));
+            }
+
+            gl.deleteGame(gaName);
+        }
+    }
+
+    /** Classic 4-player board. */
+    @Test
+    public void testClassicBoard()
+    {
+        checkBoards("obs-4p-", "PL=4", 4, 4);
+    }
+
+    /** 6-player board. */
+    @Test
+    public void test6pBoard()
+    {
+        checkBoards("obs-6p-", "PL=6,PLB=t", 6, 3);
+    }
+
+    /** Large sea board, for 4 and 6 players. */
+    @Test
+    public void testLargeBoard()
+    {
+        checkBoards("obs-sbl4-", "PL=4,SBL=t", 4, 3);
+        checkBoards("obs-sbl6-", "PL=6,SBL=t", 6, 2);
+    }
+
+}
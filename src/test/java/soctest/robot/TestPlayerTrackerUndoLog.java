@@ -0,0 +1,242 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.robot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.game.SOCGame;
+import soc.game.SOCPlayer;
+import soc.game.SOCPlayingPiece;
+import soc.game.SOCRoad;
+import soc.game.SOCSettlement;
+import soc.robot.SOCPlayerTracker;
+import soc.robot.SOCPossibleCity;
+import soc.robot.SOCPossiblePiece;
+import soc.robot.SOCPossibleRoad;
+import soc.robot.SOCPossibleSettlement;
+import soc.robot.SOCRobotDM;
+
+/**
+ * Tests for {@link SOCPlayerTracker.UndoLog}: Trying a piece with an undo log and rolling it back
+ * must leave the player trackers exactly as they were, and give the same win game ETAs
+ * and possible pieces as trying it in a copy of the trackers.
+ * Uses random mid-game positions from {@link LoadTestRobotPlanning}.
+ *
+ * @since 2.0.00
+ */
+public class TestPlayerTrackerUndoLog
+{
+    /** Number of random positions to test */
+    private static final int GAMES = 6;
+
+    /**
+     * Describe the trackers' full state: ETAs, and each possible piece's identity,
+     * flags, road counts and links to other pieces.
+     */
+    private static String dump(final HashMap<Integer, SOCPlayerTracker> trackers)
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (SOCPlayerTracker pt : new TreeMap<Integer, SOCPlayerTracker>(trackers).values())
+        {
+            sb.append("pt ").append(pt.getPlayer().getPlayerNumber())
+              .append(" lr=").append(pt.getLongestRoadETA()).append(pt.needsLR())
+              .append(" la=").append(pt.getLargestArmyETA()).append(pt.needsLA())
+              .append(" wg=").append(pt.getWinGameETA()).append('\n');
+            dumpMap(sb, pt.getPossibleRoads());
+            dumpMap(sb, pt.getPossibleSettlements());
+            dumpMap(sb, pt.getPossibleCities());
+        }
+
+        return sb.toString();
+    }
+
+    private static void dumpMap(final StringBuilder sb, final TreeMap<Integer, ? extends SOCPossiblePiece> map)
+    {
+        for (Map.Entry<Integer, ? extends SOCPossiblePiece> e : map.entrySet())
+        {
+            final SOCPossiblePiece pp = e.getValue();
+            sb.append(Integer.toHexString(e.getKey())).append(' ').append(id(pp))
+              .append(" x=").append(pp.hasBeenExpanded());
+            if (pp instanceof SOCPossibleRoad)
+            {
+                final SOCPossibleRoad pr = (SOCPossibleRoad) pp;
+                sb.append(" n=").append(pr.getNumberOfNecessaryRoads());
+                dumpList(sb, " nr", pr.getNecessaryRoads());
+                dumpList(sb, " np", pr.getNewPossibilities());
+            }
+            else if (pp instanceof SOCPossibleSettlement)
+            {
+                final SOCPossibleSettlement ps = (SOCPossibleSettlement) pp;
+                sb.append(" n=").append(ps.getNumberOfNecessaryRoads());
+                dumpList(sb, " nr", ps.getNecessaryRoads());
+                dumpList(sb, " cf", ps.getConflicts());
+            }
+            sb.append('\n');
+        }
+    }
+
+    private static void dumpList(final StringBuilder sb, final String name, final List<? extends SOCPossiblePiece> list)
+    {
+        sb.append(name).append('[');
+        for (SOCPossiblePiece pp : list)
+            sb.append(id(pp)).append(',');
+        sb.append(']');
+    }
+
+    private static String id(final SOCPossiblePiece pp)
+    {
+        return Integer.toHexString(pp.getCoordinates()) + '@' + Integer.toHexString(System.identityHashCode(pp));
+    }
+
+    /**
+     * Describe which possible pieces the trackers have, without object identities,
+     * to compare trackers and their copies.
+     */
+    private static String coords(final HashMap<Integer, SOCPlayerTracker> trackers)
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (SOCPlayerTracker pt : new TreeMap<Integer, SOCPlayerTracker>(trackers).values())
+            sb.append("pt ").append(pt.getPlayer().getPlayerNumber())
+              .append(" roads=").append(pt.getPossibleRoads().keySet())
+              .append(" settles=").append(pt.getPossibleSettlements().keySet())
+              .append(" cities=").append(pt.getPossibleCities().keySet()).append('\n');
+
+        return sb.toString();
+    }
+
+    private static int[] winGameETAs(final HashMap<Integer, SOCPlayerTracker> trackers)
+    {
+        final int[] etas = new int[SOCGame.MAXPLAYERS];
+        for (SOCPlayerTracker pt : trackers.values())
+            etas[pt.getPlayer().getPlayerNumber()] = pt.getWinGameETA();
+
+        return etas;
+    }
+
+    /**
+     * For each of our possible settlements and roads: Try it in a copy and with an undo log,
+     * compare the resulting ETAs, and check that rollback restores the trackers exactly.
+     */
+    @Test
+    public void testTryPutPieceRollback()
+    {
+        final Random rnd = new Random(9);
+        for (int g = 0; g < GAMES; ++g)
+        {
+            final LoadTestRobotPlanning.BenchBrain brain = LoadTestRobotPlanning.setupGame(rnd);
+            final SOCGame ga = brain.getGame();
+            final SOCPlayer pl = brain.getOurPlayerData();
+            final HashMap<Integer, SOCPlayerTracker> trackers = brain.getPlayerTrackers();
+            SOCPlayerTracker.updateWinGameETAs(trackers);
+            final String before = dump(trackers);
+
+            final List<SOCPlayingPiece> pieces = new ArrayList<SOCPlayingPiece>();
+            final SOCPlayerTracker ourTracker = brain.getOurPlayerTracker();
+            for (SOCPossibleSettlement ps : ourTracker.getPossibleSettlements().values())
+                if (ps.getNecessaryRoads().isEmpty())
+                    pieces.add(new SOCSettlement(pl, ps.getCoordinates(), null));
+            for (SOCPossibleRoad pr : ourTracker.getPossibleRoads().values())
+                if (pr.getNecessaryRoads().isEmpty())
+                    pieces.add(new SOCRoad(pl, pr.getCoordinates(), null));
+            assertFalse(pieces.isEmpty());
+
+            for (SOCPlayingPiece pp : pieces)
+            {
+                final String desc = "game " + g + ": " + pp;
+
+                final HashMap<Integer, SOCPlayerTracker> copy = SOCPlayerTracker.tryPutPiece(pp, ga, trackers);
+                SOCPlayerTracker.updateWinGameETAs(copy);
+                final int[] copyETAs = winGameETAs(copy);
+                final String copyCoords = coords(copy);
+                SOCPlayerTracker.undoTryPutPiece(pp, ga);
+                assertEquals(desc, before, dump(trackers));
+
+                final SOCPlayerTracker.UndoLog log = SOCPlayerTracker.tryPutPieceWithUndoLog(pp, ga, trackers);
+                SOCPlayerTracker.updateWinGameETAs(trackers);
+                assertArrayEquals(desc, copyETAs, winGameETAs(trackers));
+                assertEquals(desc, copyCoords, coords(trackers));
+                SOCPlayerTracker.undoTryPutPiece(pp, ga, log);
+                assertEquals(desc, before, dump(trackers));
+            }
+        }
+    }
+
+    /** Rollback of a speculative city, and a second rollback of the same log is rejected. */
+    @Test
+    public void testCityRollback()
+    {
+        final LoadTestRobotPlanning.BenchBrain brain = LoadTestRobotPlanning.setupGame(new Random(11));
+        final HashMap<Integer, SOCPlayerTracker> trackers = brain.getPlayerTrackers();
+        SOCPlayerTracker.updateWinGameETAs(trackers);
+        final String before = dump(trackers);
+        final SOCPlayerTracker ourTracker = brain.getOurPlayerTracker();
+
+        final SOCPossibleCity posCity = ourTracker.getPossibleCities().values().iterator().next();
+        final SOCPlayerTracker.UndoLog log = SOCPlayerTracker.startUndoLog(trackers);
+        ourTracker.addOurNewCity(new soc.game.SOCCity(brain.getOurPlayerData(), posCity.getCoordinates(), null));
+        SOCPlayerTracker.updateWinGameETAs(trackers);
+        assertFalse(ourTracker.getPossibleCities().containsValue(posCity));
+        log.rollback();
+        assertEquals(before, dump(trackers));
+        assertSame(posCity, ourTracker.getPossibleCities().get(Integer.valueOf(posCity.getCoordinates())));
+
+        try
+        {
+            log.rollback();
+            fail("should reject second rollback");
+        }
+        catch (IllegalStateException e) {}
+    }
+
+    /** Planning gives the same building plan with and without the undo log. */
+    @Test
+    public void testPlanStuffSameResults()
+    {
+        final boolean wasUndo = SOCRobotDM.USE_TRACKER_UNDO_LOG;
+        try
+        {
+            for (int g = 0; g < GAMES; ++g)
+            {
+                final LoadTestRobotPlanning.BenchBrain brain = LoadTestRobotPlanning.setupGame(new Random(100 + g));
+                final String[] plans = new String[2];
+                for (int mode = 0; mode < 2; ++mode)
+                {
+                    SOCRobotDM.USE_TRACKER_UNDO_LOG = (mode == 1);
+                    brain.getBuildingPlan().clear();
+                    brain.getDecisionMaker().planStuff(SOCRobotDM.SMART_STRATEGY);
+                    plans[mode] = brain.getBuildingPlan().toString();
+                }
+                assertEquals("game " + g, plans[0], plans[1]);
+            }
+        } finally {
+            SOCRobotDM.USE_TRACKER_UNDO_LOG = wasUndo;
+        }
+    }
+
+}
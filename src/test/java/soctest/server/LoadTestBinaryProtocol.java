@@ -0,0 +1,247 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import soc.game.SOCGame;
+import soc.message.SOCBinaryCodec;
+import soc.message.SOCGameState;
+import soc.message.SOCMessage;
+import soc.message.SOCNewGameWithOptionsRequest;
+import soc.message.SOCSitDown;
+import soc.message.SOCStartGame;
+import soc.message.SOCVersion;
+import soc.server.SOCServer;
+import soc.util.Version;
+
+/**
+ * Measures the optional {@link SOCBinaryCodec} message encoding against the standard text encoding,
+ * using the messages a client receives while joining a scenario game.
+ * Not a junit test, since it starts a server with robots and its timings depend on the machine:
+ * Run its {@code main} manually.
+ *<P>
+ * For each scenario, starts a {@link SOCServer} with robots on a free port, connects as a plain network client,
+ * creates a game with that scenario, sits down, and starts the game; the server fills the other seats with bots.
+ * Every message received from connecting until initial placement begins ({@link SOCGame#START1A})
+ * is captured. Then reports for those messages:
+ *<UL>
+ * <LI> Total bytes on the wire as text frames and as binary frames
+ * <LI> Encode and decode throughput, in messages per second, for each format
+ *</UL>
+ * Usage: {@code LoadTestBinaryProtocol [scenarioKey ...]}; default is {@code SC_FOG SC_PIRI}.
+ *
+ * @since 2.0.00
+ */
+public class LoadTestBinaryProtocol
+{
+    /** Number of passes over the captured messages for each timed encode or decode run */
+    private static final int PASSES = 2000;
+
+    /** Number of timed runs per format; best is reported */
+    private static final int RUNS = 5;
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        if (args.length == 0)
+            args = new String[]{ "SC_FOG", "SC_PIRI" };
+
+        System.out.println("scenario\tmsgs\ttext_bytes\tbin_bytes\tratio"
+            + "\ttext_enc_msg_s\tbin_enc_msg_s\ttext_dec_msg_s\tbin_dec_msg_s");
+        for (final String sc : args)
+        {
+            final List<String> msgs = captureGameJoin(sc);
+            report(sc, msgs);
+        }
+
+        System.exit(0);  // stop the servers' bots
+    }
+
+    /**
+     * Start a server, join and start a game with this scenario, and capture all received messages.
+     * @param scKey  Scenario key, such as {@code "SC_FOG"}
+     * @return  Text of each message received, in order
+     */
+    private static List<String> captureGameJoin(final String scKey)
+        throws Exception
+    {
+        final int port = LoadTestConnections.findFreePort();
+        final Properties props = new Properties();
+        props.setProperty(SOCServer.PROP_JSETTLERS_PORT, Integer.toString(port));
+        props.setProperty(SOCServer.PROP_JSETTLERS_STARTROBOTS, "7");
+        final SOCServer srv = new SOCServer(port, props);
+        srv.setPriority(5);
+        srv.start();
+        Thread.sleep(1500);  // let the bots connect
+
+        final String gaName = "meas-" + scKey;
+        final String nick = "measure";
+        final List<String> msgs = new ArrayList<String>();
+
+        final Socket s = new Socket("localhost", port);
+        s.setSoTimeout(500);
+        final DataOutputStream out = new DataOutputStream(s.getOutputStream());
+        final DataInputStream in = new DataInputStream(s.getInputStream());
+        out.writeUTF(SOCVersion.toCmd(Version.versionNumber(), Version.version(), Version.buildnum(), "en_US"));
+        out.writeUTF(SOCNewGameWithOptionsRequest.toCmd
+            (nick, "", "localhost", gaName, "PL=4,SBL=t,SC=" + scKey));
+        out.flush();
+
+        boolean satDown = false, started = false;
+        long stopAt = System.currentTimeMillis() + 15000;
+        while (System.currentTimeMillis() < stopAt)
+        {
+            final String m;
+            try
+            {
+                m = SOCBinaryCodec.readFrame(in);
+            }
+            catch (SocketTimeoutException e)
+            {
+                continue;
+            }
+            msgs.add(m);
+
+            final SOCMessage mObj = SOCMessage.toMsg(m);
+            if (! satDown && (mObj != null) && (mObj.getType() == SOCMessage.JOINGAMEAUTH))
+            {
+                satDown = true;
+                out.writeUTF(SOCSitDown.toCmd(gaName, nick, 0, false));
+                out.writeUTF(SOCStartGame.toCmd(gaName));
+                out.flush();
+            }
+            else if (! started && (mObj instanceof SOCGameState)
+                     && (((SOCGameState) mObj).getState() == SOCGame.START1A))
+            {
+                started = true;
+                stopAt = System.currentTimeMillis() + 300;  // any trailing messages
+            }
+        }
+
+        s.close();
+        srv.stopServer();
+        if (! started)
+            System.err.println("* " + scKey + ": game didn't reach START1A; measuring " + msgs.size() + " messages");
+
+        return msgs;
+    }
+
+    /** Measure sizes and throughput of this message list and print a line of results. */
+    private static void report(final String scKey, final List<String> msgList)
+        throws Exception
+    {
+        final String[] msgs = msgList.toArray(new String[msgList.size()]);
+        final int n = msgs.length;
+        final byte[][] textFrames = new byte[n][], binFrames = new byte[n][];
+        long textBytes = 0, binBytes = 0;
+        for (int i = 0; i < n; ++i)
+        {
+            final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            new DataOutputStream(bout).writeUTF(msgs[i]);
+            textFrames[i] = bout.toByteArray();
+            binFrames[i] = SOCBinaryCodec.encodeBinaryFrame(msgs[i]);
+            if (binFrames[i] == null)
+                binFrames[i] = textFrames[i];
+            textBytes += textFrames[i].length;
+            binBytes += binFrames[i].length;
+
+            if (! msgs[i].equals(SOCBinaryCodec.decodePayload(binFrames[i], 2, binFrames[i].length - 2)))
+                throw new IllegalStateException("round trip failed: " + msgs[i]);
+        }
+
+        long[] best = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE };
+        for (int r = 0; r < RUNS + 1; ++r)  // first run is warmup
+        {
+            for (int kind = 0; kind < 4; ++kind)
+            {
+                final long t = timeRun(kind, msgs, textFrames, binFrames);
+                if ((r > 0) && (t < best[kind]))
+                    best[kind] = t;
+            }
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        sb.append(scKey).append('\t').append(n).append('\t').append(textBytes).append('\t').append(binBytes)
+          .append('\t').append(String.format("%.3f", (double) binBytes / textBytes));
+        for (int kind = 0; kind < 4; ++kind)
+            sb.append('\t').append((long) (((double) n * PASSES) * 1e9 / best[kind]));
+        System.out.println(sb);
+    }
+
+    /** Sum of output lengths, so the JIT can't skip the work */
+    static long sink;
+
+    /**
+     * Time {@link #PASSES} passes of one kind of work over all messages.
+     * @param kind  0 text encode, 1 binary encode, 2 text decode, 3 binary decode
+     * @return  elapsed nanoseconds
+     */
+    private static long timeRun
+        (final int kind, final String[] msgs, final byte[][] textFrames, final byte[][] binFrames)
+        throws Exception
+    {
+        final ByteArrayOutputStream bout = new ByteArrayOutputStream(8192);
+        final DataOutputStream dout = new DataOutputStream(bout);
+        long sum = 0;
+        final long t0 = System.nanoTime();
+        for (int p = 0; p < PASSES; ++p)
+        {
+            for (int i = 0; i < msgs.length; ++i)
+            {
+                switch (kind)
+                {
+                case 0:
+                    bout.reset();
+                    dout.writeUTF(msgs[i]);
+                    sum += bout.size();
+                    break;
+
+                case 1:
+                    {
+                        final byte[] f = SOCBinaryCodec.encodeBinaryFrame(msgs[i]);
+                        sum += (f != null) ? f.length : 0;
+                    }
+                    break;
+
+                case 2:
+                    sum += SOCBinaryCodec.decodePayload(textFrames[i], 2, textFrames[i].length - 2).length();
+                    break;
+
+                default:
+                    sum += SOCBinaryCodec.decodePayload(binFrames[i], 2, binFrames[i].length - 2).length();
+                }
+            }
+        }
+        final long elapsed = System.nanoTime() - t0;
+        sink += sum;
+
+        return elapsed;
+    }
+
+}
@@ -0,0 +1,163 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.server;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+
+import soc.server.genericServer.Connection;
+import soc.server.genericServer.EncodedMessage;
+import soc.server.genericServer.Server;
+
+/**
+ * Benchmark for {@link Server#broadcastToVers(String, int, int)} and {@link Server#broadcast(String)}
+ * with many connected clients, most of them the current version. Compares the server's per-version
+ * connection buckets with {@link #legacyBroadcastToVers(String, int, int)}, a copy of the scan of
+ * every named and unnamed connection used before v2.0.00.
+ * Not a junit test, since its results depend on the machine: Run its {@code main} manually.
+ *<P>
+ * Connects {@link #CLIENTS} simulated clients which only count what they're sent: {@link #OLD_PCT} percent
+ * have an older version, the rest are current. Times broadcasts to the older clients only
+ * (like a game-options update for older versions), to the current ones, and to everyone.
+ *<P>
+ * Usage: {@code LoadTestBroadcast [broadcasts]}; default is 20000 broadcasts per timed run.
+ *
+ * @since 2.0.00
+ */
+public class LoadTestBroadcast
+{
+    /** Number of connected clients */
+    public static final int CLIENTS = 2000;
+
+    /** Percentage of clients with {@link #VERS_OLD} */
+    public static final int OLD_PCT = 5;
+
+    /** Client versions */
+    public static final int VERS_OLD = 1118, VERS_CURRENT = 2000;
+
+    /** Number of timed runs per configuration; best is reported */
+    private static final int RUNS = 5;
+
+    /** Named connections, for {@link #legacyBroadcastToVers(String, int, int)} */
+    private static final Hashtable<Object, Connection> legacyConns = new Hashtable<Object, Connection>();
+
+    /** Unnamed connections, for {@link #legacyBroadcastToVers(String, int, int)} */
+    private static final Vector<Connection> legacyUnnamedConns = new Vector<Connection>();
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        final int n = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+
+        final Server srv = TestServerVersionBuckets.newServer("loadtest-broadcast");
+        final LoadTestLocalizedText.SinkConnection[] clients = new LoadTestLocalizedText.SinkConnection[CLIENTS];
+        for (int i = 0; i < CLIENTS; ++i)
+        {
+            final boolean isOld = ((i * 100 / CLIENTS) % (100 / OLD_PCT)) == 0;
+            clients[i] = TestServerVersionBuckets.addConn(srv, (isOld) ? VERS_OLD : VERS_CURRENT);
+            if ((i % 4) != 0)
+            {
+                clients[i].setData("client" + i);
+                srv.nameConnection(clients[i], false);
+                legacyConns.put(clients[i].getData(), clients[i]);
+            } else {
+                legacyUnnamedConns.add(clients[i]);
+            }
+        }
+
+        final int[][] ranges =
+            { { VERS_OLD, VERS_CURRENT - 1 }, { VERS_CURRENT, Integer.MAX_VALUE }, { Integer.MIN_VALUE, Integer.MAX_VALUE } };
+        final String[] rangeNames = { "old", "current", "all" };
+
+        for (int impl = 0; impl < 2; ++impl)  // warmup
+            for (int r = 0; r < ranges.length; ++r)
+                runOnce(srv, impl, ranges[r], n / 10);
+
+        System.out.println(CLIENTS + " clients, " + OLD_PCT + "% older version, " + n + " broadcasts per run");
+        System.out.println("range\timpl\tbest_ms\tus_per_broadcast");
+        for (int r = 0; r < ranges.length; ++r)
+        {
+            for (int impl = 0; impl < 2; ++impl)
+            {
+                long best = Long.MAX_VALUE;
+                for (int run = 0; run < RUNS; ++run)
+                {
+                    final long ns = runOnce(srv, impl, ranges[r], n);
+                    if (ns < best)
+                        best = ns;
+                }
+
+                System.out.println(rangeNames[r] + "\t" + ((impl == 0) ? "legacy" : "buckets") + "\t"
+                    + (best / 1000000) + "\t" + String.format("%.2f", best / (1000.0 * n)));
+            }
+        }
+
+        System.exit(0);  // server threads aren't all daemon
+    }
+
+    /**
+     * Broadcast {@code n} times to a version range.
+     * @param impl  0 for {@link #legacyBroadcastToVers(String, int, int)}, 1 for {@code srv}
+     * @param range  Minimum and maximum version
+     * @return elapsed nanoseconds
+     */
+    private static long runOnce(final Server srv, final int impl, final int[] range, final int n)
+    {
+        final long t0 = System.nanoTime();
+        for (int i = 0; i < n; ++i)
+        {
+            if (impl == 0)
+                legacyBroadcastToVers("m", range[0], range[1]);
+            else
+                srv.broadcastToVers("m", range[0], range[1]);
+        }
+
+        return System.nanoTime() - t0;
+    }
+
+    /**
+     * Copy of {@link Server#broadcastToVers(String, int, int)} before v2.0.00,
+     * which checked the version of every named and unnamed connection while holding the server's monitor.
+     */
+    private static synchronized void legacyBroadcastToVers(String m, final int vmin, final int vmax)
+    {
+        if (vmin > vmax)
+            return;
+
+        final EncodedMessage em = new EncodedMessage(m);
+        for (Enumeration<Connection> e = legacyConns.elements(); e.hasMoreElements();)
+        {
+            Connection c = e.nextElement();
+            int cvers = c.getVersion();
+            if ((cvers >= vmin) && (cvers <= vmax))
+                c.put(em);
+        }
+        for (Enumeration<Connection> e = legacyUnnamedConns.elements(); e.hasMoreElements();)
+        {
+            Connection c = e.nextElement();
+            int cvers = c.getVersion();
+            if ((cvers >= vmin) && (cvers <= vmax))
+                c.put(em);
+        }
+    }
+
+}
@@ -0,0 +1,202 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Properties;
+
+import soc.message.SOCMessage;
+import soc.message.SOCServerPing;
+import soc.server.genericServer.Connection;
+import soc.server.genericServer.Server;
+
+/**
+ * Load test for the generic server's network connection types, to compare
+ * {@link soc.server.genericServer.NetServerSocket} with {@link soc.server.genericServer.NioServerSocket}.
+ * Not a junit test, since it needs many file descriptors and takes a while: Run its {@code main} manually.
+ *<P>
+ * Starts a minimal echo {@link Server} in this JVM, connects many simulated clients to it,
+ * has each client send a message and read back the echo, then reports the JVM's thread count and
+ * heap use while all those clients are connected. Client sockets don't use any threads,
+ * so the thread count reflects only the server side.
+ *<P>
+ * Usage: {@code LoadTestConnections net|nio [clientCount ...]}; default client counts are 1000 and 5000.
+ * Each client uses 2 file descriptors (client and server end), so you may need to raise the
+ * limit first: {@code ulimit -n 12000}.
+ *
+ * @since 2.0.00
+ */
+public class LoadTestConnections
+{
+    public static void main(String[] args)
+        throws Exception
+    {
+        if ((args.length < 1) || ! (args[0].equals("net") || args[0].equals("nio")))
+        {
+            System.err.println("Usage: LoadTestConnections net|nio [clientCount ...]");
+            System.exit(1);
+        }
+        final boolean useNio = args[0].equals("nio");
+
+        int[] counts;
+        if (args.length > 1)
+        {
+            counts = new int[args.length - 1];
+            for (int i = 1; i < args.length; ++i)
+                counts[i - 1] = Integer.parseInt(args[i]);
+        } else {
+            counts = new int[]{ 1000, 5000 };
+        }
+
+        System.out.println("Mode: " + (useNio ? "nio" : "net"));
+        System.out.println("clients\tthreads\theapMB\tconnect_ms\techo_ms");
+        for (int i = 0; i < counts.length; ++i)
+            runOnce(useNio, counts[i]);
+
+        System.exit(0);  // server threads aren't all daemon
+    }
+
+    /**
+     * Start a server, connect {@code nClients} to it and echo one message from each, print results.
+     * @param useNio  Use {@link Server#PROP_JSETTLERS_SERVER_NIO}?
+     * @param nClients  Number of clients to connect
+     */
+    private static void runOnce(final boolean useNio, final int nClients)
+        throws Exception
+    {
+        final int port = findFreePort();
+        final EchoServer srv = startEchoServer(port, useNio, 0);
+
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final MemoryMXBean mem = ManagementFactory.getMemoryMXBean();
+
+        final Socket[] socks = new Socket[nClients];
+        final DataOutputStream[] outs = new DataOutputStream[nClients];
+        final DataInputStream[] ins = new DataInputStream[nClients];
+
+        long t0 = System.currentTimeMillis();
+        for (int i = 0; i < nClients; ++i)
+        {
+            socks[i] = new Socket("localhost", port);
+            outs[i] = new DataOutputStream(socks[i].getOutputStream());
+            ins[i] = new DataInputStream(socks[i].getInputStream());
+        }
+        final long connectMS = System.currentTimeMillis() - t0;
+
+        t0 = System.currentTimeMillis();
+        final String msg = SOCServerPing.toCmd(42);
+        for (int i = 0; i < nClients; ++i)
+            outs[i].writeUTF(msg);
+        for (int i = 0; i < nClients; ++i)
+            if (! msg.equals(ins[i].readUTF()))
+                throw new IllegalStateException("echo mismatch at client " + i);
+        final long echoMS = System.currentTimeMillis() - t0;
+
+        System.gc();
+        Thread.sleep(200);
+        final int nThreads = threads.getThreadCount();
+        final long heapMB = mem.getHeapMemoryUsage().getUsed() / (1024 * 1024);
+
+        System.out.println(nClients + "\t" + nThreads + "\t" + heapMB + "\t" + connectMS + "\t" + echoMS);
+
+        for (int i = 0; i < nClients; ++i)
+            socks[i].close();
+        srv.stopServer();
+    }
+
+    /**
+     * Find a currently unused TCP port number.
+     * @return a port number which was free when checked
+     */
+    public static int findFreePort()
+        throws java.io.IOException
+    {
+        ServerSocket ss = new ServerSocket(0);
+        final int port = ss.getLocalPort();
+        ss.close();
+        return port;
+    }
+
+    /**
+     * Create and start an {@link EchoServer}, and wait for it to come up.
+     * @param port  TCP port to listen on
+     * @param useNio  Use {@link Server#PROP_JSETTLERS_SERVER_NIO}?
+     * @param nioThreads  {@link Server#PROP_JSETTLERS_SERVER_NIO_THREADS}, or 0 for default
+     * @return the started server
+     */
+    public static EchoServer startEchoServer(final int port, final boolean useNio, final int nioThreads)
+        throws InterruptedException
+    {
+        Properties props = new Properties();
+        if (useNio)
+        {
+            props.setProperty(Server.PROP_JSETTLERS_SERVER_NIO, "Y");
+            if (nioThreads > 0)
+                props.setProperty(Server.PROP_JSETTLERS_SERVER_NIO_THREADS, Integer.toString(nioThreads));
+        }
+
+        return startEchoServer(port, props);
+    }
+
+    /**
+     * Create and start an {@link EchoServer} with these properties, and wait for it to come up.
+     * @param port  TCP port to listen on
+     * @param props  Server properties, such as {@link Server#PROP_JSETTLERS_SERVER_OUTPUT_BATCH}
+     * @return the started server
+     */
+    public static EchoServer startEchoServer(final int port, final Properties props)
+        throws InterruptedException
+    {
+        EchoServer srv = new EchoServer(port, props);
+        srv.setDaemon(true);
+        srv.start();
+        while (! srv.isUp())
+            Thread.sleep(10);
+
+        return srv;
+    }
+
+    /**
+     * Minimal server which sends each inbound message back to its client.
+     */
+    public static class EchoServer extends Server
+    {
+        private static final long serialVersionUID = 2000L;
+
+        public EchoServer(final int port, final Properties props)
+        {
+            super(port, new Server.InboundMessageDispatcher()
+            {
+                public void dispatch(SOCMessage mes, Connection con)
+                {
+                    con.put(mes.toCmd());
+                }
+            }, props);
+        }
+    }
+
+}
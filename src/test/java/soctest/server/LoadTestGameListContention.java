@@ -0,0 +1,358 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.server;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import soc.game.SOCGame;
+import soc.server.SOCGameHandler;
+import soc.server.SOCGameListAtServer;
+import soc.server.genericServer.Connection;
+import soc.util.MutexFlag;
+
+/**
+ * Contention benchmark for {@link SOCGameListAtServer}'s per-game locks and member lists,
+ * with many active games. Compares the current game list with {@link LegacyGameList},
+ * a copy of the list-wide {@code synchronized} member methods, {@code Hashtable}s, {@code Vector}s
+ * and {@link MutexFlag} game monitors used before v2.0.00.
+ * Not a junit test, since it takes a while and its results depend on the machine: Run its {@code main} manually.
+ *<P>
+ * Creates {@link #GAMES} games with {@link #MEMBERS_PER_GAME} members each. Worker threads act like
+ * game message handlers: Each operation picks a random game, takes its monitor, checks membership,
+ * sends to each member, and releases the monitor. Meanwhile a lobby thread keeps creating and deleting
+ * other games. Each run does {@link #TOTAL_OPS} operations, divided among the workers.
+ *<P>
+ * Usage: {@code LoadTestGameListContention [workerThreads ...]}; default thread counts are 4, 16 and 64.
+ *
+ * @since 2.0.00
+ */
+public class LoadTestGameListContention
+{
+    /** Number of active games */
+    public static final int GAMES = 500;
+
+    /** Number of members (players and observers) in each game */
+    public static final int MEMBERS_PER_GAME = 6;
+
+    /** Total game operations per run, divided among the workers */
+    public static final int TOTAL_OPS = 2000000;
+
+    /** Number of timed runs per list type and thread count; best is reported */
+    private static final int RUNS = 3;
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        int[] counts;
+        if (args.length > 0)
+        {
+            counts = new int[args.length];
+            for (int i = 0; i < args.length; ++i)
+                counts[i] = Integer.parseInt(args[i]);
+        } else {
+            counts = new int[]{ 4, 16, 64 };
+        }
+
+        final Connection[] conns = new Connection[GAMES * MEMBERS_PER_GAME];
+        for (int i = 0; i < conns.length; ++i)
+            conns[i] = new LoadTestLocalizedText.SinkConnection("en_US");
+
+        final Registry[] lists = { new LegacyGameList(), new CurrentGameList() };
+        for (Registry r : lists)
+            for (int g = 0; g < GAMES; ++g)
+            {
+                final String gaName = "g" + g;
+                r.createGame(gaName);
+                r.take(gaName);
+                for (int m = 0; m < MEMBERS_PER_GAME; ++m)
+                    r.addMember(conns[g * MEMBERS_PER_GAME + m], gaName);
+                r.release(gaName);
+            }
+
+        // warmup
+        for (Registry r : lists)
+            runOnce(r, 4, conns);
+
+        System.out.println(GAMES + " games, " + MEMBERS_PER_GAME + " members each, " + TOTAL_OPS + " ops per run");
+        System.out.println("list\tthreads\tbest_ms\tops_per_sec\tlobby_ops");
+        for (int i = 0; i < counts.length; ++i)
+        {
+            for (Registry r : lists)
+            {
+                long best = Long.MAX_VALUE;
+                int lobbyOps = 0;
+                for (int run = 0; run < RUNS; ++run)
+                {
+                    final long[] res = runOnce(r, counts[i], conns);
+                    if (res[0] < best)
+                    {
+                        best = res[0];
+                        lobbyOps = (int) res[1];
+                    }
+                }
+
+                System.out.println(r.name() + "\t" + counts[i] + "\t" + (best / 1000000) + "\t"
+                    + (long) (TOTAL_OPS / (best / 1e9)) + "\t" + lobbyOps);
+            }
+        }
+    }
+
+    /**
+     * Run the workers and lobby thread against a game list.
+     * @return elapsed nanoseconds for the workers, and number of lobby operations meanwhile
+     */
+    private static long[] runOnce(final Registry r, final int nThreads, final Connection[] conns)
+        throws InterruptedException
+    {
+        final int opsPerThread = TOTAL_OPS / nThreads;
+        final CountDownLatch start = new CountDownLatch(1), done = new CountDownLatch(nThreads);
+        final AtomicBoolean stopLobby = new AtomicBoolean();
+        final long[] lobbyOps = new long[1];
+
+        final Thread lobby = new Thread("lobby")
+        {
+            public void run()
+            {
+                int n = 0;
+                while (! stopLobby.get())
+                {
+                    final String gaName = "lobby" + (n % 20);
+                    if (r.isGame(gaName))
+                        r.deleteGame(gaName);
+                    else
+                        r.createGame(gaName);
+                    ++n;
+                }
+                lobbyOps[0] = n;
+            }
+        };
+
+        for (int t = 0; t < nThreads; ++t)
+        {
+            final Random rnd = new Random(t);
+            new Thread("worker-" + t)
+            {
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    } catch (InterruptedException e) {}
+
+                    long sent = 0;
+                    for (int i = 0; i < opsPerThread; ++i)
+                    {
+                        final int g = rnd.nextInt(GAMES);
+                        final String gaName = "g" + g;
+                        if (! r.take(gaName))
+                            throw new IllegalStateException("take " + gaName);
+                        try
+                        {
+                            if (! r.isMember(conns[g * MEMBERS_PER_GAME + rnd.nextInt(MEMBERS_PER_GAME)], gaName))
+                                throw new IllegalStateException("member " + gaName);
+                            sent += r.sendToMembers(gaName);
+                        } finally {
+                            r.release(gaName);
+                        }
+                    }
+                    if (sent != (long) opsPerThread * MEMBERS_PER_GAME)
+                        throw new IllegalStateException("sent " + sent);
+
+                    done.countDown();
+                }
+            }.start();
+        }
+
+        lobby.start();
+        final long t0 = System.nanoTime();
+        start.countDown();
+        done.await();
+        final long ns = System.nanoTime() - t0;
+        stopLobby.set(true);
+        lobby.join();
+
+        return new long[]{ ns, lobbyOps[0] };
+    }
+
+    /**
+     * Game list operations used by the benchmark.
+     */
+    private interface Registry
+    {
+        String name();
+        void createGame(String gaName);
+        void deleteGame(String gaName);
+        boolean isGame(String gaName);
+        boolean take(String gaName);
+        void release(String gaName);
+        void addMember(Connection c, String gaName);
+        boolean isMember(Connection c, String gaName);
+
+        /** Iterate over the game's members as a broadcast would; return the number of members. */
+        int sendToMembers(String gaName);
+    }
+
+    /** The current {@link SOCGameListAtServer}. */
+    private static final class CurrentGameList implements Registry
+    {
+        private final SOCGameListAtServer gl = new SOCGameListAtServer();
+        private final SOCGameHandler handler = new SOCGameHandler(null);
+
+        public String name() { return "current"; }
+
+        public void createGame(final String gaName)
+        {
+            gl.createGame(gaName, null, null, null, handler);
+        }
+
+        public void deleteGame(final String gaName) { gl.deleteGame(gaName); }
+
+        public boolean isGame(final String gaName) { return gl.isGame(gaName); }
+
+        public boolean take(final String gaName) { return gl.takeMonitorForGame(gaName); }
+
+        public void release(final String gaName) { gl.releaseMonitorForGame(gaName); }
+
+        public void addMember(final Connection c, final String gaName) { gl.addMember(c, gaName); }
+
+        public boolean isMember(final Connection c, final String gaName) { return gl.isMember(c, gaName); }
+
+        public int sendToMembers(final String gaName)
+        {
+            int n = 0;
+            final List<Connection> members = gl.getMembers(gaName);
+            for (Iterator<Connection> mi = members.iterator(); mi.hasNext(); )
+                if (mi.next() != null)
+                    ++n;
+            return n;
+        }
+    }
+
+    /**
+     * Copy of the game list locking used before v2.0.00: {@code Hashtable}s, members in {@code Vector}s,
+     * member methods synchronized on the entire list, and a {@link MutexFlag} with wait/notify per game.
+     */
+    private static final class LegacyGameList implements Registry
+    {
+        private final Hashtable<String, MutexFlag> mutexes = new Hashtable<String, MutexFlag>();
+        private final Hashtable<String, SOCGame> gameData = new Hashtable<String, SOCGame>();
+        private final Hashtable<String, Vector<Connection>> gameMembers = new Hashtable<String, Vector<Connection>>();
+
+        public String name() { return "legacy"; }
+
+        public synchronized void createGame(final String gaName)
+        {
+            gameMembers.put(gaName, new Vector<Connection>());
+            mutexes.put(gaName, new MutexFlag());
+            gameData.put(gaName, new SOCGame(gaName));
+        }
+
+        public synchronized void deleteGame(final String gaName)
+        {
+            final SOCGame ga = gameData.remove(gaName);
+            if (ga != null)
+                ga.destroyGame();
+            final MutexFlag mutex = mutexes.remove(gaName);
+            synchronized (mutex)
+            {
+                mutex.notifyAll();
+            }
+            gameMembers.get(gaName).removeAllElements();
+        }
+
+        public boolean isGame(final String gaName) { return (mutexes.get(gaName) != null); }
+
+        public boolean take(final String gaName)
+        {
+            final MutexFlag mutex = mutexes.get(gaName);
+            if (mutex == null)
+                return false;
+
+            boolean done = false;
+            while (! done)
+            {
+                synchronized (mutex)
+                {
+                    if (mutex.getState())
+                    {
+                        try
+                        {
+                            mutex.wait(1000);
+                        } catch (InterruptedException e) {}
+                    } else {
+                        done = true;
+                    }
+                }
+            }
+            mutex.setState(true);
+            return true;
+        }
+
+        public void release(final String gaName)
+        {
+            final MutexFlag mutex = mutexes.get(gaName);
+            synchronized (mutex)
+            {
+                mutex.setState(false);
+                mutex.notify();
+            }
+        }
+
+        public synchronized Vector<Connection> getMembers(final String gaName)
+        {
+            return gameMembers.get(gaName);
+        }
+
+        public synchronized void addMember(final Connection c, final String gaName)
+        {
+            final Vector<Connection> members = getMembers(gaName);
+            if (! members.contains(c))
+            {
+                members.addElement(c);
+                gameData.get(gaName).clientVersionLowest = c.getVersion();
+            }
+        }
+
+        public synchronized boolean isMember(final Connection c, final String gaName)
+        {
+            final Vector<Connection> members = getMembers(gaName);
+            return (members != null) && members.contains(c);
+        }
+
+        public int sendToMembers(final String gaName)
+        {
+            int n = 0;
+            final Vector<Connection> members = getMembers(gaName);
+            for (Enumeration<Connection> me = members.elements(); me.hasMoreElements(); )
+                if (me.nextElement() != null)
+                    ++n;
+            return n;
+        }
+    }
+
+}
@@ -0,0 +1,233 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.server;
+
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+
+import soc.message.SOCMessage;
+import soc.message.SOCServerPing;
+import soc.server.genericServer.Connection;
+import soc.server.genericServer.InboundMessageQueue;
+import soc.server.genericServer.Server;
+import soc.server.genericServer.StringConnection;
+
+/**
+ * Throughput benchmark for {@link InboundMessageQueue}: Many producer threads push messages
+ * as connection threads would, and the time is measured until the queue's Treater has dispatched them all.
+ * Compares the current queue with {@link VectorQueue}, a copy of the synchronized {@code Vector}
+ * and poll/yield/wait loop used before v2.0.00.
+ * Not a junit test, since it takes a while and its results depend on the machine: Run its {@code main} manually.
+ *<P>
+ * Usage: {@code LoadTestInboundQueue [producerThreads ...]}; default thread counts are 8, 64 and 512.
+ * Each run pushes {@link #TOTAL_MESSAGES} messages, divided among the producers.
+ * The first round for each queue type is a warmup and isn't reported.
+ *
+ * @since 2.0.00
+ */
+public class LoadTestInboundQueue
+{
+    /** Total messages pushed per run, divided among the producer threads */
+    public static final int TOTAL_MESSAGES = 256 * 1024;
+
+    /** Number of timed runs per queue type and thread count; best is reported */
+    private static final int RUNS = 5;
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        int[] counts;
+        if (args.length > 0)
+        {
+            counts = new int[args.length];
+            for (int i = 0; i < args.length; ++i)
+                counts[i] = Integer.parseInt(args[i]);
+        } else {
+            counts = new int[]{ 8, 64, 512 };
+        }
+
+        // warmup
+        runOnce(false, 8);
+        runOnce(true, 8);
+
+        System.out.println("queue\tproducers\tbest_ms\tmsgs_per_sec");
+        for (int i = 0; i < counts.length; ++i)
+        {
+            for (int q = 0; q < 2; ++q)
+            {
+                final boolean useOld = (q == 0);
+                long best = Long.MAX_VALUE;
+                for (int r = 0; r < RUNS; ++r)
+                {
+                    final long ns = runOnce(useOld, counts[i]);
+                    if (ns < best)
+                        best = ns;
+                }
+
+                final int nMsgs = (TOTAL_MESSAGES / counts[i]) * counts[i];
+                System.out.println((useOld ? "vector" : "blocking") + "\t" + counts[i] + "\t"
+                    + (best / 1000000) + "\t" + (long) (nMsgs * 1e9 / best));
+            }
+        }
+    }
+
+    /**
+     * Push {@link #TOTAL_MESSAGES} from {@code nProducers} threads and wait for all to be dispatched.
+     * @param useOld  If true use {@link VectorQueue}, otherwise {@link InboundMessageQueue}
+     * @param nProducers  Number of producer threads
+     * @return  Elapsed time in nanoseconds from starting the producers until the last message was dispatched
+     */
+    private static long runOnce(final boolean useOld, final int nProducers)
+        throws InterruptedException
+    {
+        final int perProducer = TOTAL_MESSAGES / nProducers;
+        final CountDownLatch dispatched = new CountDownLatch(perProducer * nProducers);
+        final Server.InboundMessageDispatcher disp = new Server.InboundMessageDispatcher()
+        {
+            public void dispatch(SOCMessage mes, Connection con)
+            {
+                dispatched.countDown();
+            }
+        };
+
+        final InboundMessageQueue newQueue;
+        final VectorQueue oldQueue;
+        if (useOld)
+        {
+            newQueue = null;
+            oldQueue = new VectorQueue(disp);
+            oldQueue.start();
+        } else {
+            oldQueue = null;
+            newQueue = new InboundMessageQueue(disp);
+            newQueue.startMessageProcessing();
+        }
+
+        final SOCMessage msg = new SOCServerPing(42);
+        final Connection conn = new StringConnection();
+        final CountDownLatch go = new CountDownLatch(1);
+        final Thread[] producers = new Thread[nProducers];
+        for (int i = 0; i < nProducers; ++i)
+        {
+            producers[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        go.await();
+                    }
+                    catch (InterruptedException e) {}
+
+                    if (useOld)
+                        for (int m = 0; m < perProducer; ++m)
+                            oldQueue.push(msg, conn);
+                    else
+                        for (int m = 0; m < perProducer; ++m)
+                            newQueue.push(msg, conn);
+                }
+            };
+            producers[i].start();
+        }
+
+        final long t0 = System.nanoTime();
+        go.countDown();
+        dispatched.await();
+        final long elapsed = System.nanoTime() - t0;
+
+        for (int i = 0; i < nProducers; ++i)
+            producers[i].join();
+        if (useOld)
+            oldQueue.stopTreater();
+        else
+            newQueue.stopMessageProcessing();
+
+        return elapsed;
+    }
+
+    /**
+     * The inbound queue and Treater loop as they were before v2.0.00, for comparison:
+     * A synchronized {@code Vector} where each push notifies the Treater,
+     * which polls one message at a time, yields, and waits up to 1 second when empty.
+     */
+    private static final class VectorQueue extends Thread
+    {
+        private final Vector<Object[]> inQueue = new Vector<Object[]>();
+        private final Server.InboundMessageDispatcher dispatcher;
+        private volatile boolean processMessage = true;
+
+        VectorQueue(final Server.InboundMessageDispatcher imd)
+        {
+            dispatcher = imd;
+            setDaemon(true);
+        }
+
+        public void push(SOCMessage receivedMessage, Connection clientConnection)
+        {
+            synchronized (inQueue)
+            {
+                inQueue.addElement(new Object[]{ receivedMessage, clientConnection });
+                inQueue.notify();
+            }
+        }
+
+        public void stopTreater()
+        {
+            processMessage = false;
+        }
+
+        private Object[] poll()
+        {
+            synchronized (inQueue)
+            {
+                if (inQueue.size() > 0)
+                    return inQueue.remove(0);
+            }
+
+            return null;
+        }
+
+        public void run()
+        {
+            while (processMessage)
+            {
+                final Object[] md = poll();
+                if (md != null)
+                    dispatcher.dispatch((SOCMessage) md[0], (Connection) md[1]);
+
+                Thread.yield();
+
+                synchronized (inQueue)
+                {
+                    if (inQueue.size() == 0)
+                    {
+                        try
+                        {
+                            inQueue.wait(1000);
+                        }
+                        catch (Exception ex) {}
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.server;
+
+import java.util.Locale;
+
+import soc.game.SOCGame;
+import soc.game.SOCResourceSet;
+import soc.server.SOCGameHandler;
+import soc.server.SOCServer;
+import soc.server.genericServer.Connection;
+import soc.server.genericServer.Server;
+import soc.util.SOCStringManager;
+import soc.util.Version;
+
+/**
+ * Benchmark for sending localized game text to a game whose members have several different locales:
+ * {@link SOCServer#messageToGameKeyed(SOCGame, boolean, String, Object...)} and
+ * {@link SOCServer#messageToGameKeyedSpecial(SOCGame, boolean, String, Object...)}.
+ * Not a junit test, since its results depend on the machine: Run its {@code main} manually.
+ *<P>
+ * Creates a stringport server in this JVM without starting its main thread, and a game with
+ * 6 players and 20 observers whose client locales are {@link #LOCALES}. Members are simulated by
+ * connections which only count what they're sent. Each round broadcasts a mix of plain, parameterized, and
+ * resource-set texts, with the members in "interleaved" order (locale changes at each member)
+ * and "grouped" order (members sorted by locale), with and without
+ * {@link SOCStringManager#MESSAGEFORMAT_CACHE_SIZE the MessageFormat cache}.
+ *<P>
+ * Usage: {@code LoadTestLocalizedText [broadcasts]}; default is 20000 broadcasts per timed run.
+ *
+ * @since 2.0.00
+ */
+public class LoadTestLocalizedText
+{
+    /** Client locales of game members, assigned in rotation */
+    public static final String[] LOCALES = { "en_US", "es", "es_MX", "en_GB" };
+
+    /** Number of players and observers in the test game */
+    public static final int PLAYERS = 6, OBSERVERS = 20;
+
+    /** Number of timed runs per configuration; best is reported */
+    private static final int RUNS = 5;
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        final int n = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+
+        final BenchServer srv = new BenchServer();
+        final SinkConnection[] members = new SinkConnection[PLAYERS + OBSERVERS];
+        for (int i = 0; i < members.length; ++i)
+            members[i] = new SinkConnection(LOCALES[i % LOCALES.length]);
+        final SOCGame ga = srv.createGame("loadtest", members, false);
+        final SOCGame gaGrouped = srv.createGame("loadtest-grouped", members, true);
+
+        final int cacheSize = SOCStringManager.MESSAGEFORMAT_CACHE_SIZE;
+        runOnce(srv, ga, n / 10, members);  // warmup
+
+        System.out.println(members.length + " members, " + LOCALES.length + " locales, " + n + " broadcasts per run");
+        System.out.println("order\tmf_cache\tbest_ms\tus_per_broadcast");
+        for (int order = 0; order < 2; ++order)
+        {
+            for (int cache = 0; cache < 2; ++cache)
+            {
+                SOCStringManager.MESSAGEFORMAT_CACHE_SIZE = (cache == 0) ? 0 : cacheSize;
+                final SOCGame g = (order == 0) ? ga : gaGrouped;
+                long best = Long.MAX_VALUE;
+                for (int r = 0; r < RUNS; ++r)
+                {
+                    final long ns = runOnce(srv, g, n, members);
+                    if (ns < best)
+                        best = ns;
+                }
+
+                System.out.println(((order == 0) ? "interleaved" : "grouped") + "\t"
+                    + ((cache == 0) ? "off" : "on") + "\t"
+                    + (best / 1000000) + "\t" + String.format("%.2f", best / (1000.0 * n)));
+            }
+        }
+        SOCStringManager.MESSAGEFORMAT_CACHE_SIZE = cacheSize;
+
+        System.exit(0);  // server threads aren't all daemon
+    }
+
+    /**
+     * Send {@code n} localized texts to a game.
+     * @return elapsed nanoseconds
+     */
+    private static long runOnce(final SOCServer srv, final SOCGame ga, final int n, final SinkConnection[] members)
+    {
+        final SOCResourceSet rs = new SOCResourceSet(1, 0, 2, 0, 1, 0);
+        final long t0 = System.nanoTime();
+        for (int i = 0; i < n; ++i)
+        {
+            switch (i % 3)
+            {
+            case 0:
+                srv.messageToGameKeyed(ga, true, "action.built.road", "player" + (i % PLAYERS));
+                break;
+            case 1:
+                srv.messageToGameKeyedSpecial(ga, true, "action.picked.rsrcs", "player" + (i % PLAYERS), rs);
+                break;
+            default:
+                srv.messageToGameKeyed(ga, true, "action.rolled.no.player.gets.anything");
+            }
+        }
+        final long ns = System.nanoTime() - t0;
+
+        for (int i = 0; i < members.length; ++i)
+            if (members[i].count == 0)
+                throw new IllegalStateException("member " + i + " wasn't sent anything");
+
+        return ns;
+    }
+
+    /**
+     * Stringport server whose main thread isn't started, for access to its protected game list.
+     */
+    private static final class BenchServer extends SOCServer
+    {
+        private static final long serialVersionUID = 2000L;
+
+        BenchServer()
+            throws Exception
+        {
+            super("loadtest-i18n", SOC_MAXCONN_DEFAULT, null, null);
+        }
+
+        /**
+         * Create a game with these members.
+         * @param grouped  If true, add members sorted by locale; otherwise in the order given
+         */
+        SOCGame createGame(final String gaName, final SinkConnection[] members, final boolean grouped)
+        {
+            final SOCGame ga = gameList.createGame(gaName, "player0", members[0].getI18NLocale(),
+                null, new SOCGameHandler(this));
+            gameList.takeMonitorForGame(gaName);
+            if (grouped)
+            {
+                for (int L = 0; L < LOCALES.length; ++L)
+                    for (int i = 0; i < members.length; ++i)
+                        if (members[i].getI18NLocale().equals(LOCALES[L]))
+                            gameList.addMember(members[i], gaName);
+            } else {
+                for (int i = 0; i < members.length; ++i)
+                    gameList.addMember(members[i], gaName);
+            }
+            gameList.releaseMonitorForGame(gaName);
+            ga.hasMultiLocales = true;
+
+            return ga;
+        }
+    }
+
+    /**
+     * Simulated game member which counts what it's sent, but doesn't keep it.
+     * Also used by {@link LoadTestGameListContention}, {@link LoadTestBroadcast}
+     * and {@link TestServerVersionBuckets}.
+     */
+    static final class SinkConnection extends Connection
+    {
+        volatile int count;
+        volatile long chars;
+
+        /**
+         * @param localeStr  Client locale, such as "es" or "en_US"
+         */
+        SinkConnection(final String localeStr)
+        {
+            final String[] parts = localeStr.split("_");
+            final Locale loc = (parts.length > 1) ? new Locale(parts[0], parts[1]) : new Locale(parts[0]);
+            setI18NStringManager(SOCStringManager.getServerManagerForClient(loc), localeStr);
+            setVersion(Version.versionNumber());
+        }
+
+        /**
+         * Set the server to notify about {@link #setVersion(int)} changes,
+         * as if this connection had been accepted by it.
+         */
+        void setOurServer(final Server srv)
+        {
+            ourServer = srv;
+        }
+
+        public String host() { return "localhost"; }
+
+        public void put(final String str)
+        {
+            ++count;
+            chars += str.length();
+        }
+
+        public void run() {}
+
+        public boolean isConnected() { return true; }
+
+        public boolean connect() { return true; }
+
+        public void disconnect() {}
+
+        public void disconnectSoft() {}
+
+        public boolean isInputAvailable() { return false; }
+    }
+
+}
@@ -0,0 +1,157 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.UTFDataFormatException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.message.SOCGameTextMsg;
+import soc.message.SOCMessage;
+import soc.message.SOCServerPing;
+import soc.server.genericServer.Connection;
+import soc.server.genericServer.EncodedMessage;
+import soc.server.genericServer.StringConnection;
+
+/**
+ * Tests for {@link EncodedMessage} and sending it to network connections with
+ * {@link soc.server.genericServer.Server#broadcast(String)}.
+ *
+ * @since 2.0.00
+ */
+public class TestEncodedMessage
+{
+    /** Frame bytes must be identical to {@link DataOutputStream#writeUTF(String)}'s. */
+    @Test
+    public void testFrameMatchesWriteUTF()
+        throws Exception
+    {
+        final String[] texts =
+            { "", SOCServerPing.toCmd(42), SOCGameTextMsg.toCmd("gé", "pl", "café 中文 🎲 \u0000 ok") };
+        for (final String txt : texts)
+        {
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            new DataOutputStream(bout).writeUTF(txt);
+
+            final EncodedMessage em = new EncodedMessage(txt);
+            assertEquals(txt, em.getText());
+            assertTrue(Arrays.equals(bout.toByteArray(), em.getFrame()));
+            assertSame("encoded only once", em.getFrame(), em.getFrame());
+        }
+    }
+
+    /** Too-long text can be created, but not encoded. */
+    @Test(expected=UTFDataFormatException.class)
+    public void testTooLong()
+        throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() <= 0xFFFF)
+            sb.append("0123456789");
+
+        new EncodedMessage(sb.toString()).getFrame();
+    }
+
+    /**
+     * A message object's text is rendered when the EncodedMessage is created, unless all recipients
+     * are local StringConnections, so later changes to data it refers to aren't sent to network clients.
+     */
+    @Test
+    public void testRenderTime()
+    {
+        final MutableMessage mes = new MutableMessage();
+
+        mes.value = 1;
+        final EncodedMessage em = new EncodedMessage(mes);
+        mes.value = 2;
+        assertEquals("mutable:1", em.getText());
+
+        final List<Connection> locals = new ArrayList<Connection>();
+        locals.add(new StringConnection());
+        locals.add(null);
+        final EncodedMessage emLocal = EncodedMessage.forConnections(mes, locals);
+        mes.value = 3;
+        assertEquals("not rendered until asked", "mutable:3", emLocal.getText());
+        mes.value = 4;
+        assertEquals("rendered only once", "mutable:3", emLocal.getText());
+        assertSame(mes, emLocal.getMessage());
+    }
+
+    /** Broadcast reaches each connected client of both network connection types. */
+    @Test(timeout=20000)
+    public void testBroadcast()
+        throws Exception
+    {
+        for (int nio = 0; nio < 2; ++nio)
+        {
+            final int port = LoadTestConnections.findFreePort();
+            final LoadTestConnections.EchoServer srv = LoadTestConnections.startEchoServer(port, (nio == 1), 1);
+
+            final int N = 3;
+            final Socket[] socks = new Socket[N];
+            final DataInputStream[] ins = new DataInputStream[N];
+            for (int i = 0; i < N; ++i)
+            {
+                socks[i] = new Socket("localhost", port);
+                ins[i] = new DataInputStream(socks[i].getInputStream());
+                final String ping = SOCServerPing.toCmd(i);
+                new DataOutputStream(socks[i].getOutputStream()).writeUTF(ping);
+                assertEquals(ping, ins[i].readUTF());  // now known to server
+            }
+
+            final String bc = SOCGameTextMsg.toCmd("g", "pl", "broadcast 中文");
+            srv.broadcast(bc);
+            for (int i = 0; i < N; ++i)
+                assertEquals(bc, ins[i].readUTF());
+
+            for (int i = 0; i < N; ++i)
+                socks[i].close();
+            srv.stopServer();
+        }
+    }
+
+    /** Message whose text comes from a field that can change after it's created, like game data. */
+    private static final class MutableMessage extends SOCMessage
+    {
+        private static final long serialVersionUID = 2000L;
+
+        public int value;
+
+        public String toCmd()
+        {
+            return "mutable:" + value;
+        }
+
+        public String toString()
+        {
+            return toCmd();
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.server;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.server.SOCGameHandler;
+import soc.server.SOCGameListAtServer;
+import soc.server.genericServer.Connection;
+
+/**
+ * Tests for {@link SOCGameListAtServer}'s per-game locks through the
+ * {@code takeMonitorForGame} / {@code releaseMonitorForGame} API, and its member lists.
+ *
+ * @since 2.0.00
+ */
+public class TestGameListLocks
+{
+    private static SOCGameListAtServer newList(final String... gaNames)
+    {
+        final SOCGameListAtServer gl = new SOCGameListAtServer();
+        final SOCGameHandler handler = new SOCGameHandler(null);
+        for (String gaName : gaNames)
+            gl.createGame(gaName, null, null, null, handler);
+        return gl;
+    }
+
+    /** One game's monitor doesn't block another game's; a game's monitor blocks other threads until released. */
+    @Test(timeout=20000)
+    public void testTakeRelease()
+        throws InterruptedException
+    {
+        final SOCGameListAtServer gl = newList("ga", "gb");
+        assertFalse(gl.takeMonitorForGame("unknown"));
+
+        assertTrue(gl.takeMonitorForGame("ga"));
+        assertTrue("reentrant", gl.takeMonitorForGame("ga"));
+
+        final AtomicBoolean tookB = new AtomicBoolean(), tookA = new AtomicBoolean(),
+            otherReleaseA = new AtomicBoolean(true);
+        final Thread th = new Thread()
+        {
+            public void run()
+            {
+                otherReleaseA.set(gl.releaseMonitorForGame("ga"));  // not held by this thread
+                tookB.set(gl.takeMonitorForGame("gb"));
+                gl.releaseMonitorForGame("gb");
+                tookA.set(gl.takeMonitorForGame("ga"));
+                gl.releaseMonitorForGame("ga");
+            }
+        };
+        th.start();
+        th.join(300);
+        assertTrue(tookB.get());
+        assertFalse(otherReleaseA.get());
+        assertFalse("other thread waits for ga", tookA.get());
+
+        assertTrue(gl.releaseMonitorForGame("ga"));
+        Thread.sleep(100);
+        assertFalse("still held once", tookA.get());
+        assertTrue(gl.releaseMonitorForGame("ga"));
+        th.join();
+        assertTrue(tookA.get());
+        assertFalse(gl.getGameLock("ga").isLocked());
+    }
+
+    /** A thread waiting for a game's monitor gets false if the game is deleted meanwhile. */
+    @Test(timeout=20000)
+    public void testDeleteWhileWaiting()
+        throws InterruptedException
+    {
+        final SOCGameListAtServer gl = newList("ga");
+        final AtomicBoolean took = new AtomicBoolean(true);
+        assertTrue(gl.takeMonitorForGame("ga"));
+        final Thread th = new Thread()
+        {
+            public void run()
+            {
+                took.set(gl.takeMonitorForGame("ga"));
+            }
+        };
+        th.start();
+        Thread.sleep(100);
+
+        gl.deleteGame("ga");  // also releases our hold on the lock
+        th.join();
+        assertFalse(took.get());
+        assertFalse(gl.isGame("ga"));
+        assertFalse(gl.releaseMonitorForGame("ga"));
+    }
+
+    /** Iterating a game's members sees a consistent list while members join and leave. */
+    @Test
+    public void testMembersIteration()
+    {
+        final SOCGameListAtServer gl = newList("ga");
+        final Connection[] conns = new Connection[4];
+        for (int i = 0; i < conns.length; ++i)
+        {
+            conns[i] = new LoadTestLocalizedText.SinkConnection("en_US");
+            gl.addMember(conns[i], "ga");
+        }
+        gl.addMember(conns[0], "ga");  // already a member
+        assertTrue(gl.isMember(conns[2], "ga"));
+
+        final List<Connection> members = gl.getMembers("ga");
+        assertEquals(4, members.size());
+        final Iterator<Connection> mi = members.iterator();
+        gl.removeMember(conns[1], "ga");
+        gl.addMember(new LoadTestLocalizedText.SinkConnection("es"), "ga");
+        int n = 0;
+        while (mi.hasNext())
+            assertSame(conns[n++], mi.next());
+        assertEquals(4, n);
+
+        assertFalse(gl.isMember(conns[1], "ga"));
+        assertEquals(4, gl.getMembers("ga").size());
+        assertFalse(gl.isGameEmpty("ga"));
+    }
+
+}
@@ -0,0 +1,308 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.message.SOCGameTextMsg;
+import soc.message.SOCJoinGame;
+import soc.message.SOCLeaveAll;
+import soc.message.SOCMessage;
+import soc.message.SOCMessageForGame;
+import soc.message.SOCServerPing;
+import soc.message.SOCSitDown;
+import soc.message.SOCVersion;
+import soc.util.Version;
+import soc.server.genericServer.Connection;
+import soc.server.genericServer.InboundMessageQueue;
+import soc.server.genericServer.Server;
+import soc.server.genericServer.StringConnection;
+
+/**
+ * Tests for {@link InboundMessageQueue}, including its optional per-game dispatch lanes
+ * and keeping each client's messages in order across lanes.
+ *
+ * @since 2.0.00
+ */
+public class TestInboundMessageQueue
+{
+    /**
+     * Dispatcher which records the text of each {@link SOCGameTextMsg} per game, in the order dispatched.
+     * Game {@code "slow"}'s messages each sleep 200ms.
+     */
+    private static class RecordingDispatcher implements Server.InboundMessageDispatcher
+    {
+        final Map<String, List<String>> received = new HashMap<String, List<String>>();
+        int globalCount;
+
+        public void dispatch(SOCMessage mes, Connection con)
+        {
+            if (! (mes instanceof SOCGameTextMsg))
+            {
+                synchronized (this)
+                {
+                    ++globalCount;
+                    notifyAll();
+                }
+                return;
+            }
+
+            final SOCGameTextMsg m = (SOCGameTextMsg) mes;
+            if (m.getGame().equals("slow"))
+                try { Thread.sleep(200); } catch (InterruptedException e) {}
+
+            synchronized (this)
+            {
+                List<String> li = received.get(m.getGame());
+                if (li == null)
+                {
+                    li = new ArrayList<String>();
+                    received.put(m.getGame(), li);
+                }
+                li.add(m.getText());
+                notifyAll();
+            }
+        }
+
+        synchronized int count(final String gaName)
+        {
+            List<String> li = received.get(gaName);
+            return (li != null) ? li.size() : 0;
+        }
+    }
+
+    /**
+     * Dispatcher which records each client's messages and posted code in the order dispatched.
+     * Global-lane messages each sleep 5ms, so a client's later game messages would pass them
+     * if the queue didn't keep each client's messages in order. Game messages each sleep 10ms
+     * and track how many games are being dispatched at once.
+     */
+    private static class ClientOrderDispatcher implements Server.InboundMessageDispatcher
+    {
+        final Map<Connection, List<String>> received = new HashMap<Connection, List<String>>();
+        int gamesActive, maxGamesActive;
+
+        public void dispatch(SOCMessage mes, Connection con)
+        {
+            final boolean isGame = (mes instanceof SOCMessageForGame);
+            if (isGame)
+                synchronized (this)
+                {
+                    ++gamesActive;
+                    if (gamesActive > maxGamesActive)
+                        maxGamesActive = gamesActive;
+                }
+
+            try { Thread.sleep(isGame ? 10 : 5); } catch (InterruptedException e) {}
+            record(con, (mes instanceof SOCGameTextMsg)
+                ? ((SOCGameTextMsg) mes).getText() : mes.getClass().getSimpleName());
+
+            if (isGame)
+                synchronized (this)
+                {
+                    --gamesActive;
+                }
+        }
+
+        synchronized void record(final Connection con, final String desc)
+        {
+            List<String> li = received.get(con);
+            if (li == null)
+            {
+                li = new ArrayList<String>();
+                received.put(con, li);
+            }
+            li.add(desc);
+            notifyAll();
+        }
+
+        synchronized int count(final Connection con)
+        {
+            List<String> li = received.get(con);
+            return (li != null) ? li.size() : 0;
+        }
+    }
+
+    /** With lanes, each game's messages arrive in order; a slow game doesn't hold up the others. */
+    @Test(timeout=10000)
+    public void testLanesOrderingAndIsolation()
+        throws Exception
+    {
+        final RecordingDispatcher disp = new RecordingDispatcher();
+        final InboundMessageQueue q = new InboundMessageQueue(disp, 4);
+        final Connection slowConn = new StringConnection(), pingConn = new StringConnection();
+        q.startMessageProcessing();
+
+        final int N = 500;
+        final String[] games = new String[6];
+        final int slowLane = ("slow".hashCode() & 0x7FFFFFFF) % 4;
+        for (int g = 0, i = 0; g < games.length; ++i)
+        {
+            final String gaName = "g" + i;
+            if ((gaName.hashCode() & 0x7FFFFFFF) % 4 != slowLane)
+                games[g++] = gaName;  // not on same lane as slow game
+        }
+
+        // Each game has its own client: One client's messages are dispatched in order,
+        // so its messages for one game would wait for its slow ones in another game
+        final Connection[] conns = new Connection[games.length];
+        for (int g = 0; g < games.length; ++g)
+            conns[g] = new StringConnection();
+
+        q.push(new SOCGameTextMsg("slow", "p", "0"), slowConn);
+        q.push(new SOCGameTextMsg("slow", "p", "1"), slowConn);
+        for (int i = 0; i < N; ++i)
+        {
+            for (int g = 0; g < games.length; ++g)
+                q.push(new SOCGameTextMsg(games[g], "p", Integer.toString(i)), conns[g]);
+            q.push(new SOCServerPing(i), pingConn);
+        }
+
+        synchronized (disp)
+        {
+            boolean allDone;
+            do
+            {
+                allDone = (disp.globalCount == N);
+                for (int g = 0; allDone && (g < games.length); ++g)
+                    allDone = (disp.count(games[g]) == N);
+                if (! allDone)
+                    disp.wait(100);
+            } while (! allDone);
+
+            // slow game's messages may still be sleeping; the others didn't wait for them
+            assertTrue(disp.count("slow") < 2);
+        }
+
+        for (int g = 0; g < games.length; ++g)
+        {
+            List<String> li = disp.received.get(games[g]);
+            for (int i = 0; i < N; ++i)
+                assertEquals(Integer.toString(i), li.get(i));
+        }
+
+        InboundMessageQueue.LaneStats[] stats = q.getLaneStats();
+        assertEquals(5, stats.length);
+        assertTrue(stats[0].dispatchCount >= N - 1);  // global lane: server pings; last one may still be finishing
+
+        q.stopMessageProcessing();
+    }
+
+    /**
+     * Two clients each join and play in their own game at the same time, on different lanes.
+     * Each client's messages and posted code, sent to both the global lane and its game's lane,
+     * must be dispatched in the order they were queued. The two games must be dispatched concurrently.
+     */
+    @Test(timeout=20000)
+    public void testTwoGamesClientOrder()
+        throws Exception
+    {
+        final ClientOrderDispatcher disp = new ClientOrderDispatcher();
+        final InboundMessageQueue q = new InboundMessageQueue(disp, 4);
+        q.startMessageProcessing();
+
+        final String[] games = new String[2];
+        for (int g = 0, i = 0; g < games.length; ++i)
+        {
+            final String gaName = "g" + i;
+            if ((g == 0) || ((gaName.hashCode() & 0x7FFFFFFF) % 4 != (games[0].hashCode() & 0x7FFFFFFF) % 4))
+                games[g++] = gaName;
+        }
+        final Connection[] conns = { new StringConnection(), new StringConnection() };
+
+        final int N = 30;
+        final List<String> expected = new ArrayList<String>(Arrays.asList
+            ("SOCVersion", "SOCJoinGame", "auth", "SOCSitDown"));
+        for (int i = 0; i < N; ++i)
+            expected.add(Integer.toString(i));
+        expected.add("SOCLeaveAll");
+
+        // interleave the two clients' messages, like their connection threads would
+        for (int c = 0; c < 2; ++c)
+            q.push(new SOCVersion(Version.versionNumber(), Version.version(), Version.buildnum(), null), conns[c]);
+        for (int c = 0; c < 2; ++c)
+        {
+            final Connection conn = conns[c];
+            q.push(new SOCJoinGame("p" + c, "", "-", games[c]), conn);
+            q.postForConnection(new Runnable()
+            {
+                public void run()
+                {
+                    disp.record(conn, "auth");
+                }
+            }, conn);
+            q.push(new SOCSitDown(games[c], "p" + c, c, false), conn);
+        }
+        for (int i = 0; i < N; ++i)
+            for (int c = 0; c < 2; ++c)
+                q.push(new SOCGameTextMsg(games[c], "p" + c, Integer.toString(i)), conns[c]);
+        for (int c = 0; c < 2; ++c)
+            q.push(new SOCLeaveAll(), conns[c]);
+
+        synchronized (disp)
+        {
+            while ((disp.count(conns[0]) < expected.size()) || (disp.count(conns[1]) < expected.size()))
+                disp.wait(100);
+        }
+
+        for (int c = 0; c < 2; ++c)
+            assertEquals("client " + c, expected, disp.received.get(conns[c]));
+        assertEquals("both games dispatched at once", 2, disp.maxGamesActive);
+
+        q.stopMessageProcessing();
+    }
+
+    /** Without lanes, everything is dispatched on one thread in the order pushed. */
+    @Test(timeout=10000)
+    public void testSingleTreater()
+        throws Exception
+    {
+        final RecordingDispatcher disp = new RecordingDispatcher();
+        final InboundMessageQueue q = new InboundMessageQueue(disp);
+        final Connection conn = new StringConnection();
+        q.startMessageProcessing();
+
+        final int N = 1000;
+        for (int i = 0; i < N; ++i)
+            q.push(new SOCGameTextMsg("ga", "p", Integer.toString(i)), conn);
+
+        synchronized (disp)
+        {
+            while (disp.count("ga") < N)
+                disp.wait(100);
+        }
+
+        List<String> li = disp.received.get("ga");
+        for (int i = 0; i < N; ++i)
+            assertEquals(Integer.toString(i), li.get(i));
+        assertEquals(1, q.getLaneStats().length);
+
+        q.stopMessageProcessing();
+    }
+
+}
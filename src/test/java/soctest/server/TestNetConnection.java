@@ -0,0 +1,142 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.Properties;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.message.SOCBinaryCodec;
+import soc.message.SOCGameTextMsg;
+import soc.message.SOCPutPiece;
+import soc.message.SOCServerPing;
+import soc.server.genericServer.Server;
+
+/**
+ * Tests for {@link soc.server.genericServer.NetConnection}'s buffered output mode,
+ * {@link Server#PROP_JSETTLERS_SERVER_OUTPUT_BATCH}, and reading {@link SOCBinaryCodec} binary frames.
+ *
+ * @since 2.0.00
+ */
+public class TestNetConnection
+{
+    /**
+     * With buffered output, a burst is echoed complete and in order,
+     * and sent in fewer flushes than messages.
+     */
+    @Test(timeout=20000)
+    public void testBatchedOutput()
+        throws Exception
+    {
+        final Properties props = new Properties();
+        props.setProperty(Server.PROP_JSETTLERS_SERVER_OUTPUT_BATCH, "32");
+        props.setProperty(Server.PROP_JSETTLERS_SERVER_OUTPUT_LINGER, "2");
+        final int port = LoadTestConnections.findFreePort();
+        final LoadTestConnections.EchoServer srv = LoadTestConnections.startEchoServer(port, props);
+
+        Socket s = new Socket("localhost", port);
+        DataOutputStream out = new DataOutputStream(s.getOutputStream());
+        DataInputStream in = new DataInputStream(s.getInputStream());
+
+        final String txt = SOCGameTextMsg.toCmd("gé", "pl", "café 中文 ok");
+        out.writeUTF(txt);
+        assertEquals(txt, in.readUTF());
+
+        final int N = 2000;
+        for (int i = 0; i < N; ++i)
+            out.writeUTF(SOCServerPing.toCmd(i));
+        out.flush();
+        for (int i = 0; i < N; ++i)
+            assertEquals(SOCServerPing.toCmd(i), in.readUTF());
+
+        // The writer thread updates the stats after flushing, so the client can see the bytes first
+        for (int tries = 0; (srv.getOutputFlushMessageCount() < N + 1) && (tries < 100); ++tries)
+            Thread.sleep(50);
+        assertEquals(N + 1, srv.getOutputFlushMessageCount());
+        final long nFlush = srv.getOutputFlushCount();
+        assertTrue("flushes: " + nFlush, (nFlush > 0) && (nFlush < N));
+        assertTrue(srv.getOutputFlushMaxBatch() <= 32);
+
+        s.close();
+        srv.stopServer();
+    }
+
+    /** Without the property, output isn't batched. */
+    @Test(timeout=20000)
+    public void testUnbuffered()
+        throws Exception
+    {
+        final int port = LoadTestConnections.findFreePort();
+        final LoadTestConnections.EchoServer srv = LoadTestConnections.startEchoServer(port, new Properties());
+
+        Socket s = new Socket("localhost", port);
+        DataOutputStream out = new DataOutputStream(s.getOutputStream());
+        DataInputStream in = new DataInputStream(s.getInputStream());
+        for (int i = 0; i < 100; ++i)
+        {
+            out.writeUTF(SOCServerPing.toCmd(i));
+            assertEquals(SOCServerPing.toCmd(i), in.readUTF());
+        }
+        assertEquals(0, srv.getOutputFlushCount());
+
+        s.close();
+        srv.stopServer();
+    }
+
+    /**
+     * Both connection types accept binary frames mixed with text frames from a client,
+     * and reply in text to a client that hasn't negotiated binary.
+     */
+    @Test(timeout=20000)
+    public void testBinaryInput()
+        throws Exception
+    {
+        for (int nio = 0; nio < 2; ++nio)
+        {
+            final Properties props = new Properties();
+            if (nio == 1)
+                props.setProperty(Server.PROP_JSETTLERS_SERVER_NIO, "Y");
+            final int port = LoadTestConnections.findFreePort();
+            final LoadTestConnections.EchoServer srv = LoadTestConnections.startEchoServer(port, props);
+
+            Socket s = new Socket("localhost", port);
+            DataOutputStream out = new DataOutputStream(s.getOutputStream());
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            for (int i = 0; i < 50; ++i)
+            {
+                final String txt = (i % 3 == 0)
+                    ? SOCGameTextMsg.toCmd("gé", "pl", "café " + i)
+                    : SOCPutPiece.toCmd("ga", i % 4, 1, 0x405 + i);
+                SOCBinaryCodec.writeFrame(out, txt, (i % 2 == 0));
+                out.flush();
+                assertEquals(txt, in.readUTF());
+            }
+
+            s.close();
+            srv.stopServer();
+        }
+    }
+
+}
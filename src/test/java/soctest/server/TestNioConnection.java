@@ -0,0 +1,108 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.message.SOCGameTextMsg;
+import soc.message.SOCServerPing;
+
+/**
+ * Tests for {@link soc.server.genericServer.NioConnection}: Wire compatibility with
+ * {@link DataOutputStream#writeUTF(String)} / {@link DataInputStream#readUTF()} clients,
+ * including non-ASCII text, large messages, and many messages sent at once.
+ * For thread count and memory use at 1000+ clients, see {@link LoadTestConnections}.
+ *
+ * @since 2.0.00
+ */
+public class TestNioConnection
+{
+    private static LoadTestConnections.EchoServer srv;
+    private static int port;
+
+    @BeforeClass
+    public static void startServer()
+        throws Exception
+    {
+        port = LoadTestConnections.findFreePort();
+        srv = LoadTestConnections.startEchoServer(port, true, 2);
+    }
+
+    @AfterClass
+    public static void stopServer()
+    {
+        srv.stopServer();
+    }
+
+    /** Echo a few messages, including one with multi-byte characters. */
+    @Test
+    public void testEchoText()
+        throws Exception
+    {
+        Socket s = new Socket("localhost", port);
+        DataOutputStream out = new DataOutputStream(s.getOutputStream());
+        DataInputStream in = new DataInputStream(s.getInputStream());
+
+        final String first = SOCServerPing.toCmd(17);
+        out.writeUTF(first);
+        assertEquals(first, in.readUTF());
+
+        final String txt = SOCGameTextMsg.toCmd("gé", "pl", "café 中文 🎲 ok");
+        out.writeUTF(txt);
+        assertEquals(txt, in.readUTF());
+
+        s.close();
+    }
+
+    /** Message larger than the connection's initial read buffer, and a burst of many small ones. */
+    @Test
+    public void testLargeAndBurst()
+        throws Exception
+    {
+        Socket s = new Socket("localhost", port);
+        DataOutputStream out = new DataOutputStream(s.getOutputStream());
+        DataInputStream in = new DataInputStream(s.getInputStream());
+
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 60000)
+            sb.append("0123456789");
+        final String big = SOCGameTextMsg.toCmd("g", "pl", sb.toString());
+        out.writeUTF(big);
+        assertEquals(big, in.readUTF());
+
+        final int N = 2000;
+        for (int i = 0; i < N; ++i)
+            out.writeUTF(SOCServerPing.toCmd(i));
+        out.flush();
+        for (int i = 0; i < N; ++i)
+            assertEquals(SOCServerPing.toCmd(i), in.readUTF());
+
+        s.close();
+    }
+
+}
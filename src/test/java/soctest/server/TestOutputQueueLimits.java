@@ -0,0 +1,128 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.server;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.game.SOCGame;
+import soc.game.SOCPlayingPiece;
+import soc.message.SOCCancelBuildRequest;
+import soc.message.SOCGameState;
+import soc.message.SOCGameTextMsg;
+import soc.message.SOCMessage;
+import soc.message.SOCPlayerElement;
+import soc.message.SOCPutPiece;
+import soc.message.SOCResourceCount;
+import soc.message.SOCSetTurn;
+import soc.server.genericServer.OutputQueueLimits;
+
+/**
+ * Tests for {@link OutputQueueLimits}: Limit checks, policy names, and which queued messages
+ * can be coalesced away because a later message supersedes them.
+ *
+ * @since 2.0.00
+ */
+public class TestOutputQueueLimits
+{
+    /** Message and byte limits, and the coalescing target. */
+    @Test
+    public void testLimits()
+    {
+        final OutputQueueLimits lim = new OutputQueueLimits(100, 0, OutputQueueLimits.POLICY_COALESCE);
+        assertFalse(lim.isExceeded(100, 1000000));
+        assertTrue(lim.isExceeded(101, 0));
+        assertTrue(lim.isCoalescedEnough(75, 1000000));
+        assertFalse(lim.isCoalescedEnough(76, 0));
+
+        final OutputQueueLimits blim = new OutputQueueLimits(0, 4000, OutputQueueLimits.POLICY_DROP);
+        assertFalse(blim.isExceeded(100000, 4000));
+        assertTrue(blim.isExceeded(1, 4001));
+        assertTrue(blim.isCoalescedEnough(100000, 3000));
+        assertFalse(blim.isCoalescedEnough(1, 3001));
+
+        assertEquals(OutputQueueLimits.POLICY_PARK, OutputQueueLimits.parsePolicy(" Park"));
+        assertEquals(OutputQueueLimits.POLICY_DROP, OutputQueueLimits.parsePolicy("drop"));
+        try
+        {
+            OutputQueueLimits.parsePolicy("ignore");
+            fail("should reject unknown policy");
+        }
+        catch (IllegalArgumentException e) {}
+    }
+
+    /** Only earlier absolute-value updates of the same thing in the same game are superseded. */
+    @Test
+    public void testFindSuperseded()
+    {
+        final SOCMessage[] msgs =
+            {
+            new SOCGameState("ga", SOCGame.ROLL_OR_CARD),  // 0: kept, other "ga" messages before 6
+            new SOCResourceCount("ga", 1, 5),  // 1: superseded by 7
+            new SOCResourceCount("ga", 2, 3),  // 2: other player, kept
+            new SOCPlayerElement("ga", 1, SOCPlayerElement.SET, SOCPlayerElement.ROADS, 10),  // 3: superseded by 8
+            new SOCPlayerElement("ga", 1, SOCPlayerElement.GAIN, SOCPlayerElement.ROADS, 1),  // 4: relative, kept
+            new SOCGameState("gb", SOCGame.ROLL_OR_CARD),  // 5: other game, kept
+            new SOCGameState("ga", SOCGame.PLAY1),  // 6
+            new SOCResourceCount("ga", 1, 7),  // 7
+            new SOCPlayerElement("ga", 1, SOCPlayerElement.SET, SOCPlayerElement.ROADS, 9),  // 8
+            new SOCGameTextMsg("ga", "pl", "hi"),  // 9: never superseded
+            new SOCGameTextMsg("ga", "pl", "hi"),  // 10
+            null  // 11: unparsable
+            };
+
+        final boolean[] sup = OutputQueueLimits.findSuperseded(msgs);
+        final boolean[] expected = { false, true, false, true, false, false, false, false, false, false, false, false };
+        assertEquals(expected.length, sup.length);
+        for (int i = 0; i < expected.length; ++i)
+            assertEquals("message " + i, expected[i], sup[i]);
+    }
+
+    /**
+     * An earlier game state or current player is superseded only if the next message for its game
+     * is another of the same type, since the client uses them while handling messages between.
+     */
+    @Test
+    public void testFindSupersededStateAndTurn()
+    {
+        final SOCMessage[] msgs =
+            {
+            new SOCGameState("ga", SOCGame.START1B),  // 0: kept, client needs it for 1
+            new SOCCancelBuildRequest("ga", SOCPlayingPiece.SETTLEMENT),  // 1
+            new SOCSetTurn("ga", 2),  // 2: kept, client needs it for 3
+            new SOCPutPiece("ga", 2, SOCPlayingPiece.ROAD, 0x67),  // 3
+            new SOCGameState("ga", SOCGame.START2A),  // 4: superseded by 6
+            new SOCGameState("gb", SOCGame.PLAY1),  // 5: other game, doesn't separate 4 from 6
+            new SOCGameState("ga", SOCGame.START2B),  // 6: superseded by 7
+            new SOCGameState("ga", SOCGame.PLAY1),  // 7
+            new SOCSetTurn("ga", 1),  // 8: superseded by 10
+            new SOCGameTextMsg("gb", "pl", "hi"),  // 9: other game
+            new SOCSetTurn("ga", 3),  // 10: kept, last
+            };
+
+        final boolean[] sup = OutputQueueLimits.findSuperseded(msgs);
+        final boolean[] expected = { false, false, false, false, true, false, true, false, true, false, false };
+        assertEquals(expected.length, sup.length);
+        for (int i = 0; i < expected.length; ++i)
+            assertEquals("message " + i, expected[i], sup[i]);
+    }
+
+}
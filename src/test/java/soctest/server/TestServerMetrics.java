@@ -0,0 +1,113 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.server;
+
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.message.SOCDiceResult;
+import soc.message.SOCMessage;
+import soc.message.SOCServerPing;
+import soc.server.genericServer.ServerMetrics;
+
+/**
+ * Tests for {@link ServerMetrics}: Counts and bytes by message type, histogram percentiles,
+ * the report, and {@link ServerMetrics#reset()}.
+ *
+ * @since 2.0.00
+ */
+public class TestServerMetrics
+{
+    /** {@link ServerMetrics#typeOf(String)} finds the type without parsing the message. */
+    @Test
+    public void testTypeOf()
+    {
+        assertEquals(SOCMessage.DICERESULT, ServerMetrics.typeOf(new SOCDiceResult("ga", 5).toCmd()));
+        assertEquals(SOCMessage.SERVERPING, ServerMetrics.typeOf(SOCServerPing.toCmd(10)));
+        assertEquals(0, ServerMetrics.typeOf("xyz"));
+        assertEquals(0, ServerMetrics.typeOf(""));
+        assertEquals(0, ServerMetrics.typeOf(null));
+    }
+
+    /** Counts, bytes and dispatch times are kept by type and summed for totals. */
+    @Test
+    public void testRecordAndReport()
+    {
+        final ServerMetrics m = new ServerMetrics(null);
+        final SOCMessage dice = new SOCDiceResult("ga", 5);
+
+        for (int i = 0; i < 100; ++i)
+        {
+            m.recordInbound(dice, 20);
+            m.recordDispatch(dice, 3000, (i < 99) ? 10000 : 5000000);  // wait 3us; handler 10us, 1 slow at 5ms
+        }
+        m.recordOutbound(SOCMessage.SERVERPING, 15);
+        m.recordOutbound(SOCMessage.SERVERPING, 0);
+        m.recordDispatch(null, 1000, 1000);
+        m.recordOutboundQueueDepth(1);
+        m.recordOutboundQueueDepth(40);
+
+        assertEquals(100, m.getInboundMessageCount());
+        assertEquals(2000, m.getInboundBytes());
+        assertEquals(2, m.getOutboundMessageCount());
+        assertEquals(15, m.getOutboundBytes());
+        assertEquals(101, m.getDispatchCount());
+        assertEquals((99 * 10000 + 5000000 + 1000) / 1000, m.getDispatchHandlerMicros());
+        assertEquals(40, m.getOutboundQueueDepthMax());
+
+        final List<String> lines = m.getReportLines(0);
+        final String diceLine = findLine(lines, SOCMessage.DICERESULT + " SOCDiceResult:");
+        assertNotNull("dice line in " + lines, diceLine);
+        // handler avg 59us, p50 bucket up to 16us, p99 bucket up to 16us, max 5000us
+        assertTrue(diceLine, diceLine.endsWith("; handler 59/16/16/5000"));
+        assertTrue(diceLine, diceLine.contains("in 100/2000, out 0/0; wait 3/4/4/3"));
+        assertNotNull(findLine(lines, SOCMessage.SERVERPING + ": in 0/0, out 2/15"));
+        assertNotNull(findLine(lines, "(posted task): "));
+        assertNotNull(findLine(lines, "Outbound queue depth when queued: max 40, histogram <=1:1 <=64:1"));
+
+        // heaviest type is listed first, and can limit the number of types listed
+        final List<String> top = m.getReportLines(1);
+        assertTrue(top.get(2), top.get(2).startsWith(SOCMessage.DICERESULT + " "));
+        assertNotNull(findLine(top, "(2 more types)"));
+
+        m.reset();
+        assertEquals(0, m.getInboundMessageCount());
+        assertEquals(0, m.getDispatchCount());
+        assertEquals(0, m.getOutboundQueueDepthMax());
+        assertEquals(0, m.getReport().length - 2);  // only totals and queue depth lines
+    }
+
+    /**
+     * Find the first line starting with a prefix.
+     * @return the line, or null if none
+     */
+    private static String findLine(final List<String> lines, final String prefix)
+    {
+        for (String line : lines)
+            if (line.startsWith(prefix))
+                return line;
+
+        return null;
+    }
+
+}
@@ -0,0 +1,104 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.server;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.message.SOCMessage;
+import soc.server.genericServer.Connection;
+import soc.server.genericServer.Server;
+
+/**
+ * Tests for {@link Server}'s per-version connection buckets used by
+ * {@link Server#broadcastToVers(String, int, int)} and {@link Server#broadcast(String)}.
+ *
+ * @since 2.0.00
+ */
+public class TestServerVersionBuckets
+{
+    /** Create a stringport server whose main thread isn't started. */
+    static Server newServer(final String name)
+    {
+        return new Server(name, new Server.InboundMessageDispatcher()
+        {
+            public void dispatch(SOCMessage mes, Connection con) {}
+        }, null) {};
+    }
+
+    /** Add a connection with this version to {@code srv}. */
+    static LoadTestLocalizedText.SinkConnection addConn(final Server srv, final int vers)
+    {
+        final LoadTestLocalizedText.SinkConnection c = new LoadTestLocalizedText.SinkConnection("en_US");
+        c.setVersion(vers);
+        c.setOurServer(srv);
+        srv.addConnection(c);
+        return c;
+    }
+
+    /** Version-ranged broadcasts reach only clients in range, including after version changes and removals. */
+    @Test
+    public void testBroadcastToVers()
+    {
+        final Server srv = newServer("test-vers-buckets");
+        final LoadTestLocalizedText.SinkConnection c1119 = addConn(srv, 1119),
+            c1120 = addConn(srv, 1120), c2000 = addConn(srv, 2000), c2000b = addConn(srv, 2000);
+        c2000b.setData("named");
+        srv.nameConnection(c2000b, false);
+
+        assertEquals(1119, srv.getMinConnectedCliVersion());
+        assertEquals(2000, srv.getMaxConnectedCliVersion());
+
+        srv.broadcastToVers("m", 1120, 2000);
+        assertEquals(0, c1119.count);
+        assertEquals(1, c1120.count);
+        assertEquals(1, c2000.count);
+        assertEquals(1, c2000b.count);
+
+        srv.broadcastToVers("m", Integer.MIN_VALUE, 1119);
+        srv.broadcastToVers("m", 2001, Integer.MAX_VALUE);
+        srv.broadcastToVers("m", 2000, 1119);  // vmin > vmax
+        assertEquals(1, c1119.count);
+        assertEquals(1, c1120.count);
+        assertEquals(1, c2000.count);
+
+        // version change moves c1119 to another bucket
+        c1119.setVersion(2001);
+        assertFalse(srv.isCliVersionConnected(1119));
+        assertEquals(1120, srv.getMinConnectedCliVersion());
+        assertEquals(2001, srv.getMaxConnectedCliVersion());
+        srv.broadcastToVers("m", 2001, 2001);
+        assertEquals(2, c1119.count);
+        assertEquals(1, c2000.count);
+
+        srv.removeConnection(c2000, false);
+        srv.removeConnection(c2000b, false);
+        assertFalse(srv.isCliVersionConnected(2000));
+        srv.broadcast("m");
+        assertEquals(3, c1119.count);
+        assertEquals(2, c1120.count);
+        assertEquals(1, c2000.count);
+        assertEquals(1, c2000b.count);
+
+        srv.stopServer();
+    }
+
+}
@@ -0,0 +1,179 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.server;
+
+import java.io.EOFException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.game.SOCResourceSet;
+import soc.message.SOCDiceResult;
+import soc.message.SOCDiceResultResources;
+import soc.message.SOCGameTextMsg;
+import soc.message.SOCMessage;
+import soc.message.SOCServerPing;
+import soc.server.genericServer.EncodedMessage;
+import soc.server.genericServer.StringConnection;
+
+/**
+ * Tests for {@link StringConnection}: Simple message objects are passed to the peer as-is,
+ * text and objects can be mixed, messages holding other objects and the string fallback mode send text,
+ * and several sending threads can share one connection.
+ *
+ * @since 2.0.00
+ */
+public class TestStringConnection
+{
+    /**
+     * Create and accept a pair of connected peers.
+     * @return the two peers; element 0 is the client side, 1 is the server side
+     */
+    private static StringConnection[] connectedPair()
+        throws Exception
+    {
+        final StringConnection cli = new StringConnection();
+        final StringConnection srv = new StringConnection(cli);
+        cli.setAccepted();
+        srv.setAccepted();
+
+        return new StringConnection[]{ cli, srv };
+    }
+
+    /** Objects are passed through without parsing, and text is parsed. */
+    @Test
+    public void testObjectsAndText()
+        throws Exception
+    {
+        final StringConnection[] pair = connectedPair();
+        assertFalse(pair[1].isInputAvailable());
+
+        final SOCMessage dice = new SOCDiceResult("ga", 7);
+        pair[0].put(dice);
+        pair[0].put(new EncodedMessage(dice));
+        pair[0].put(SOCServerPing.toCmd(42));
+        assertTrue(pair[1].isInputAvailable());
+
+        assertSame(dice, pair[1].readNextMessage());
+        assertSame(dice, pair[1].readNextMessage());
+        final SOCMessage ping = pair[1].readNextMessage();
+        assertTrue(ping instanceof SOCServerPing);
+        assertEquals(42, ((SOCServerPing) ping).getSleepTime());
+        assertFalse(pair[1].isInputAvailable());
+
+        // message with List fields isn't passable, is sent as text
+        final List<Integer> pn = new ArrayList<Integer>();
+        pn.add(Integer.valueOf(2));
+        final List<SOCResourceSet> rs = new ArrayList<SOCResourceSet>();
+        rs.add(new SOCResourceSet(1, 0, 0, 0, 2, 0));
+        final SOCMessage drr = new SOCDiceResultResources("ga", pn, rs);
+        assertTrue(StringConnection.isPassable(dice));
+        assertFalse(StringConnection.isPassable(drr));
+        pair[0].put(drr);
+        final SOCMessage drrRead = pair[1].readNextMessage();
+        assertNotSame(drr, drrRead);
+        assertEquals(drr.toCmd(), drrRead.toCmd());
+        assertEquals(pn, ((SOCDiceResultResources) drrRead).playerNum);
+
+        // other direction, read as text
+        final SOCMessage txt = new SOCGameTextMsg("ga", "pl", "hello");
+        pair[1].put(txt);
+        assertEquals(txt.toCmd(), pair[0].readNext());
+    }
+
+    /** If {@link StringConnection#PASS_MESSAGE_OBJECTS} is false, messages are sent as text. */
+    @Test
+    public void testStringFallback()
+        throws Exception
+    {
+        final StringConnection[] pair = connectedPair();
+        final SOCMessage dice = new SOCDiceResult("ga", 9);
+
+        StringConnection.PASS_MESSAGE_OBJECTS = false;
+        try
+        {
+            pair[0].put(dice);
+            pair[0].put(new EncodedMessage(dice));
+        } finally {
+            StringConnection.PASS_MESSAGE_OBJECTS = true;
+        }
+
+        for (int i = 0; i < 2; ++i)
+        {
+            final SOCMessage m = pair[1].readNextMessage();
+            assertNotSame(dice, m);
+            assertTrue(m instanceof SOCDiceResult);
+            assertEquals(9, ((SOCDiceResult) m).getResult());
+        }
+    }
+
+    /** Several threads send to one connection; reader gets each thread's messages in order. */
+    @Test(timeout=30000)
+    public void testManySenders()
+        throws Exception
+    {
+        final StringConnection[] pair = connectedPair();
+        final int NTHREADS = 4, N = 20000;
+        final AtomicInteger ready = new AtomicInteger();
+
+        final Thread[] senders = new Thread[NTHREADS];
+        for (int t = 0; t < NTHREADS; ++t)
+        {
+            final String gaName = "g" + t;
+            senders[t] = new Thread()
+            {
+                public void run()
+                {
+                    ready.incrementAndGet();
+                    while (ready.get() < NTHREADS)
+                        Thread.yield();
+
+                    for (int i = 0; i < N; ++i)
+                        pair[0].put(new SOCDiceResult(gaName, i));
+                }
+            };
+            senders[t].start();
+        }
+
+        final int[] next = new int[NTHREADS];
+        for (int n = 0; n < NTHREADS * N; ++n)
+        {
+            final SOCDiceResult m = (SOCDiceResult) pair[1].readNextMessage();
+            final int t = m.getGame().charAt(1) - '0';
+            assertEquals("order from sender " + t, next[t], m.getResult());
+            ++next[t];
+        }
+        for (int t = 0; t < NTHREADS; ++t)
+            senders[t].join();
+
+        pair[0].disconnect();
+        try
+        {
+            pair[1].readNextMessage();
+            fail("should be at EOF");
+        }
+        catch (EOFException e) {}
+    }
+
+}
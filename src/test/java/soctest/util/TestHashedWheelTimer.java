@@ -0,0 +1,218 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.util;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.util.HashedWheelTimer;
+
+/**
+ * Tests for {@link HashedWheelTimer}: Many deadlines fire on time, cancelled tasks don't run,
+ * repeating tasks repeat, and {@link java.util.TimerTask}s can be scheduled.
+ *
+ * @since 2.0.00
+ */
+public class TestHashedWheelTimer
+{
+    /** Tick length for tests, in milliseconds */
+    private static final int TICK = 20;
+
+    /**
+     * How late a task may run beyond its tick, in milliseconds, to allow for a busy test machine.
+     * The wheel itself adds at most one tick.
+     */
+    private static final int LATE_SLACK = 250;
+
+    /** Task which records when it ran, compared to its deadline. */
+    private static final class DeadlineTask extends HashedWheelTimer.Task
+    {
+        final long deadline;
+        final CountDownLatch done;
+        volatile long ranAt;
+        final AtomicInteger runs = new AtomicInteger();
+
+        DeadlineTask(final long deadline, final CountDownLatch done)
+        {
+            this.deadline = deadline;
+            this.done = done;
+        }
+
+        public void run()
+        {
+            ranAt = System.nanoTime();
+            runs.incrementAndGet();
+            if (done != null)
+                done.countDown();
+        }
+    }
+
+    /**
+     * Schedule 10,000 game-deadline-like tasks over the next few seconds,
+     * spread across more than one turn of the wheel, and cancel some of them.
+     * Each uncancelled task must run exactly once, not before its deadline
+     * and at most a tick (plus {@link #LATE_SLACK}) after it.
+     */
+    @Test(timeout=60000)
+    public void testManyDeadlines()
+        throws InterruptedException
+    {
+        final int N = 10000;
+        final HashedWheelTimer timer = new HashedWheelTimer("test-wheel", TICK, 64);  // 1.28 seconds per turn
+        final Random rnd = new Random(14);
+
+        final DeadlineTask[] tasks = new DeadlineTask[N];
+        final boolean[] cancelled = new boolean[N];
+        int nCancel = 0;
+        for (int i = 0; i < N; ++i)
+            if (rnd.nextInt(5) == 0)
+            {
+                cancelled[i] = true;
+                ++nCancel;
+            }
+
+        final CountDownLatch done = new CountDownLatch(N - nCancel);
+        for (int i = 0; i < N; ++i)
+        {
+            final int delay = 100 + rnd.nextInt(4000);
+            tasks[i] = new DeadlineTask(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay), done);
+            timer.schedule(tasks[i], delay);
+            if (cancelled[i])
+                assertTrue(tasks[i].cancel());
+        }
+
+        assertTrue("all deadlines fired", done.await(30, TimeUnit.SECONDS));
+        Thread.sleep(3 * TICK);
+
+        long totalLate = 0;
+        final long maxLate = TimeUnit.MILLISECONDS.toNanos(TICK + LATE_SLACK);
+        for (int i = 0; i < N; ++i)
+        {
+            final DeadlineTask t = tasks[i];
+            if (cancelled[i])
+            {
+                assertEquals("cancelled task " + i + " ran", 0, t.runs.get());
+                continue;
+            }
+
+            assertEquals("task " + i + " runs", 1, t.runs.get());
+            final long late = t.ranAt - t.deadline;
+            assertTrue("task " + i + " ran early: " + late + " ns", late >= 0);
+            assertTrue("task " + i + " ran late: " + late + " ns", late <= maxLate);
+            totalLate += late;
+        }
+        final long meanLateMs = TimeUnit.NANOSECONDS.toMillis(totalLate / (N - nCancel));
+        assertTrue("mean lateness " + meanLateMs + " ms", meanLateMs <= TICK + (LATE_SLACK / 2));
+        assertEquals(0, timer.size());
+
+        timer.stop();
+    }
+
+    /** A repeating task runs several times until cancelled, and a one-time task can reschedule itself. */
+    @Test(timeout=20000)
+    public void testRepeatAndReschedule()
+        throws InterruptedException
+    {
+        final HashedWheelTimer timer = new HashedWheelTimer("test-wheel", TICK, 16);
+
+        final CountDownLatch fiveRuns = new CountDownLatch(5);
+        final DeadlineTask rep = new DeadlineTask(0, fiveRuns);
+        timer.schedule(rep, 0, 30);
+        assertTrue(fiveRuns.await(10, TimeUnit.SECONDS));
+        assertTrue(rep.cancel());
+        Thread.sleep(3 * TICK);  // in case it was running while cancelled
+        final int n = rep.runs.get();
+        Thread.sleep(200);
+        assertEquals("no more runs after cancel", n, rep.runs.get());
+        assertEquals(0, timer.size());
+
+        try
+        {
+            timer.schedule(rep, 10);
+            fail("cancelled task shouldn't be schedulable");
+        }
+        catch (IllegalStateException e) {}
+
+        final CountDownLatch threeRuns = new CountDownLatch(3);
+        final HashedWheelTimer.Task resched = new HashedWheelTimer.Task()
+        {
+            public void run()
+            {
+                threeRuns.countDown();
+                if (threeRuns.getCount() > 0)
+                    timer.schedule(this, 25);
+            }
+        };
+        timer.schedule(resched, 5);
+        try
+        {
+            timer.schedule(resched, 5);
+            fail("already-scheduled task shouldn't be schedulable");
+        }
+        catch (IllegalStateException e) {}
+        assertTrue(threeRuns.await(10, TimeUnit.SECONDS));
+
+        timer.stop();
+    }
+
+    /** {@link java.util.TimerTask}s run once or repeat, and stop when their returned wrapper is cancelled. */
+    @Test(timeout=30000)
+    public void testTimerTaskAdapter()
+        throws InterruptedException
+    {
+        final HashedWheelTimer timer = new HashedWheelTimer("test-adapter", TICK, 16);
+
+        final CountDownLatch once = new CountDownLatch(1);
+        timer.schedule(new java.util.TimerTask()
+        {
+            public void run()
+            {
+                once.countDown();
+            }
+        }, 10);
+        assertTrue(once.await(10, TimeUnit.SECONDS));
+
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch threeRuns = new CountDownLatch(3);
+        final HashedWheelTimer.Task wrapper = timer.schedule(new java.util.TimerTask()
+        {
+            public void run()
+            {
+                runs.incrementAndGet();
+                threeRuns.countDown();
+            }
+        }, 0, 25);
+        assertTrue(threeRuns.await(10, TimeUnit.SECONDS));
+        assertTrue(wrapper.cancel());
+        Thread.sleep(3 * TICK);  // in case it was running while cancelled
+        final int n = runs.get();
+        Thread.sleep(150);
+        assertEquals("no more runs after cancel", n, runs.get());
+
+        timer.stop();
+    }
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2018 Jeremy D Monin <jeremy@nand.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+
+package soctest.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import soc.util.IntBitSet;
+
+/**
+ * Tests for {@link IntBitSet}, checked against a {@link HashSet} given the same operations.
+ *
+ * @since 2.0.00
+ */
+public class TestIntBitSet
+{
+    /** Check that contents, size, array and HashSet views all match {@code expected}. */
+    private static void assertSameContents(final HashSet<Integer> expected, final IntBitSet s)
+    {
+        assertEquals(expected.size(), s.size());
+        assertEquals(expected.isEmpty(), s.isEmpty());
+        assertEquals(expected, s.toHashSet());
+
+        final int[] arr = s.toArray();
+        int k = 0;
+        for (Integer i : new TreeSet<Integer>(expected))
+            assertEquals(i.intValue(), arr[k++]);
+        assertEquals(arr.length, k);
+    }
+
+    @Test
+    public void testRandomOpsMatchHashSet()
+    {
+        final Random rnd = new Random(7);
+        final HashSet<Integer> hs = new HashSet<Integer>();
+        final IntBitSet s = new IntBitSet();
+        for (int n = 0; n < 20000; ++n)
+        {
+            final int v = rnd.nextInt(0x1100) - 8;  // a few negatives, and past the initial capacity
+            switch (rnd.nextInt(4))
+            {
+            case 0:
+            case 1:
+                if (v >= 0)
+                    assertEquals(hs.add(v), s.add(v));
+                break;
+
+            case 2:
+                assertEquals(hs.remove(v), s.remove(v));
+                break;
+
+            default:
+                assertEquals(hs.contains(v), s.contains(v));
+            }
+        }
+        assertSameContents(hs, s);
+
+        final IntBitSet copy = new IntBitSet(s);
+        assertEquals(s, copy);
+        assertEquals(s.hashCode(), copy.hashCode());
+        copy.add(0x2000);
+        assertFalse(s.contains(0x2000));
+        assertFalse(s.equals(copy));
+
+        s.clear();
+        assertTrue(s.isEmpty());
+        assertEquals(-1, s.nextSetBit(0));
+        assertFalse(copy.isEmpty());
+    }
+
+    @Test
+    public void testAddAllAndIterate()
+    {
+        final IntBitSet a = new IntBitSet(Arrays.asList(0x405, 0x27, 0, 63, 64));
+        final IntBitSet b = new IntBitSet();
+        b.add(0x1007);
+        b.add(0x27);
+        a.addAll(b);
+        assertEquals(6, a.size());
+        assertEquals("[0x0, 0x27, 0x3f, 0x40, 0x405, 0x1007]", a.toString());
+
+        int n = 0;
+        for (int i = a.nextSetBit(0); i >= 0; i = a.nextSetBit(i + 1))
+            ++n;
+        assertEquals(6, n);
+        assertEquals(0x40, a.nextSetBit(0x40));
+        assertEquals(0x405, a.nextSetBit(0x41));
+        assertEquals(-1, a.nextSetBit(0x1008));
+        assertEquals(-1, a.nextSetBit(0x9000));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testAddNegative()
+    {
+        new IntBitSet().add(-1);
+    }
+
+}